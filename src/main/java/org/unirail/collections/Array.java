@@ -20,7 +20,18 @@ package org.unirail.collections;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.DoubleConsumer;
+import java.util.function.IntConsumer;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.IntToLongFunction;
+import java.util.function.IntUnaryOperator;
+import java.util.function.LongConsumer;
 
 /**
  * {@code Array} is a utility interface providing efficient array operations
@@ -1560,6 +1571,146 @@ public interface Array {
 		return size ^ size >>> 16;
 	}
 	
+	/**
+	 * The 64-bit MurmurHash3 finalizer ({@code fmix64}): a bijection whose every output bit depends on every input bit.
+	 * Used where all 64 hash bits are consumed, as by the sketches of this package.
+	 *
+	 * @param key The value to mix.
+	 * @return The mixed value.
+	 */
+	static long avalanche( long key ) {
+		key = ( key ^ key >>> 33 ) * 0xff51afd7ed558ccdL;
+		key = ( key ^ key >>> 33 ) * 0xc4ceb9fe1a85ec53L;
+		return key ^ key >>> 33;
+	}
+
+	/**
+	 * {@code Hash} is a pluggable strategy that turns primitive keys of hash-based collections into
+	 * 32-bit hash codes, which are then reduced to a bucket or slot index.
+	 * <p>
+	 * The default {@link #IDENTITY} strategy reproduces {@link #hash(int)} and {@link #hash(long)}: it is the cheapest,
+	 * but keys with structure in their low bits (sequence ids, packed fields, aligned addresses) pile into a few buckets.
+	 * {@link #MURMUR} and {@link #FIBONACCI} mix every key bit into the result, and {@link #random()} additionally
+	 * salts the mix with a per-instance seed so that an adversary cannot precompute colliding keys.
+	 * <p>
+	 * Float and double keys are hashed through their canonical bit patterns, consistent with
+	 * {@link Float#hashCode(float)} and {@link Double#hashCode(double)}.
+	 */
+	abstract class Hash {
+		/**
+		 * Returns the hash code of an {@code int} key.
+		 *
+		 * @param key The key.
+		 * @return The 32-bit hash code.
+		 */
+		public abstract int hash( int key );
+		
+		/**
+		 * Returns the hash code of a {@code long} key.
+		 *
+		 * @param key The key.
+		 * @return The 32-bit hash code.
+		 */
+		public abstract int hash( long key );
+		
+		/**
+		 * Returns the hash code of a {@code float} key.
+		 *
+		 * @param key The key.
+		 * @return The 32-bit hash code.
+		 */
+		public int hash( float key ) { return hash( Float.floatToIntBits( key ) ); }
+		
+		/**
+		 * Returns the hash code of a {@code double} key.
+		 *
+		 * @param key The key.
+		 * @return The 32-bit hash code.
+		 */
+		public int hash( double key ) { return hash( Double.doubleToLongBits( key ) ); }
+		
+		/**
+		 * Returns keys unchanged ({@code long} keys are folded as in {@link Long#hashCode(long)}).
+		 */
+		public static final Hash IDENTITY = new Identity();
+		
+		/**
+		 * MurmurHash3 finalizer ({@code fmix32}/{@code fmix64}) with a zero seed.
+		 */
+		public static final Hash MURMUR = new Murmur( 0 );
+		
+		/**
+		 * Fibonacci multiply-shift hashing with a zero seed.
+		 */
+		public static final Hash FIBONACCI = new Fibonacci( 0 );
+		
+		/**
+		 * Returns a {@link Murmur} strategy with a fresh random seed. Collections created with
+		 * different instances iterate and collide differently, which defeats precomputed hash-flooding keys.
+		 *
+		 * @return A new randomly seeded strategy.
+		 */
+		public static Hash random() { return new Murmur( ThreadLocalRandom.current().nextLong() ); }
+		
+		/**
+		 * The identity strategy, see {@link #IDENTITY}.
+		 */
+		public static final class Identity extends Hash {
+			private Identity() { }
+			
+			@Override public int hash( int key ) { return key; }
+			
+			@Override public int hash( long key ) { return ( int ) ( key ^ key >>> 32 ); }
+		}
+		
+		/**
+		 * Seeded MurmurHash3 finalizer. Every input bit affects every output bit with probability close to 1/2.
+		 */
+		public static final class Murmur extends Hash {
+			private final long seed;
+			
+			/**
+			 * @param seed The value XOR-ed into every key before mixing.
+			 */
+			public Murmur( long seed ) { this.seed = seed; }
+			
+			@Override public int hash( int key ) { return avalanche( key ^ ( int ) seed ); }
+			
+			@Override
+			public int hash( long key ) {
+				key ^= seed;
+				key = ( key ^ key >>> 33 ) * 0xff51afd7ed558ccdL;
+				key = ( key ^ key >>> 33 ) * 0xc4ceb9fe1a85ec53L;
+				return ( int ) ( key ^ key >>> 33 );
+			}
+		}
+		
+		/**
+		 * Seeded Fibonacci hashing: a single multiplication by the golden-ratio constant followed by folding
+		 * the well-mixed high half into the low half. Cheaper than {@link Murmur}, with weaker avalanche.
+		 */
+		public static final class Fibonacci extends Hash {
+			private final long seed;
+			
+			/**
+			 * @param seed The value XOR-ed into every key before mixing.
+			 */
+			public Fibonacci( long seed ) { this.seed = seed; }
+			
+			@Override
+			public int hash( int key ) {
+				final int h = ( key ^ ( int ) seed ) * 0x9E3779B9;
+				return h ^ h >>> 16;
+			}
+			
+			@Override
+			public int hash( long key ) {
+				final long h = ( key ^ seed ) * 0x9E3779B97F4A7C15L;
+				return ( int ) ( h ^ h >>> 32 );
+			}
+		}
+	}
+	
 	/**
 	 * Computes the hash code for a 2D object array.
 	 * It iterates through each sub-array and XORs their hash codes.
@@ -2908,6 +3059,31 @@ public interface Array {
 		return capacity;
 	}
 	
+	/**
+	 * Precomputes the multiplier used by {@link #mod(int, long, int)} to reduce values modulo {@code divisor}
+	 * without an integer division. Hash tables compute it once per bucket array allocation.
+	 *
+	 * @param divisor The positive divisor, typically a prime bucket array length.
+	 * @return The multiplier {@code ceil(2^64 / divisor)}, wrapped to 64 bits.
+	 */
+	static long modMultiplier( int divisor ) { return Long.divideUnsigned( -1L, divisor ) + 1; }
+	
+	/**
+	 * Computes {@code value % divisor} for a non-negative {@code value} with two multiplications instead of a division
+	 * (Lemire's "fastmod"). The result is exact for every non-negative {@code int} and every positive divisor,
+	 * so bucket distribution is the same as with the {@code %} operator.
+	 *
+	 * @param value      The non-negative value to reduce.
+	 * @param multiplier The multiplier returned by {@link #modMultiplier(int)} for {@code divisor}.
+	 * @param divisor    The positive divisor.
+	 * @return {@code value % divisor}.
+	 */
+	static int mod( int value, long multiplier, int divisor ) {
+		long lowbits = multiplier * value;
+		//Unsigned high 64 bits of lowbits * divisor
+		return ( int ) ( Math.multiplyHigh( lowbits, divisor ) + ( lowbits >> 63 & divisor ) );
+	}
+	
 	// Table of prime numbers to use as hash table sizes.
 	// A typical resize operation would pick the next larger prime number from this table.
 	int[] primes = {
@@ -2923,6 +3099,251 @@ public interface Array {
 	};
 	
 	
+	/**
+	 * A {@link Spliterator.OfInt} over the positions {@code [from, to)} of an indexed source, read through {@code get}.
+	 * Splits in halves, so a parallel stream of a list or hash set divides its positions evenly; always
+	 * {@link Spliterator#SIZED} and {@link Spliterator#SUBSIZED}. Not fail-fast: the source must not be modified while
+	 * the spliterator is in use.
+	 */
+	final class IntSpliterator implements Spliterator.OfInt {
+		private final IntUnaryOperator get;
+		private final int              characteristics;
+		private       int              from;
+		private final int              to;
+		
+		/**
+		 * @param from            The first position.
+		 * @param to              The position after the last one.
+		 * @param characteristics The characteristics besides {@code SIZED} and {@code SUBSIZED}.
+		 * @param get             Maps a position to its value.
+		 */
+		public IntSpliterator( int from, int to, int characteristics, IntUnaryOperator get ) {
+			this.from            = from;
+			this.to              = to;
+			this.characteristics = characteristics | SIZED | SUBSIZED;
+			this.get             = get;
+		}
+		
+		@Override
+		public boolean tryAdvance( IntConsumer action ) {
+			if( to <= from ) return false;
+			action.accept( get.applyAsInt( from++ ) );
+			return true;
+		}
+		
+		@Override
+		public void forEachRemaining( IntConsumer action ) {
+			for( int i = from, end = to; i < end; i++ ) action.accept( get.applyAsInt( i ) );
+			from = to;
+		}
+		
+		@Override
+		public IntSpliterator trySplit() {
+			int mid = from + to >>> 1;
+			return mid <= from ?
+			       null :
+			       new IntSpliterator( from, from = mid, characteristics, get );
+		}
+		
+		@Override
+		public long estimateSize() { return to - from; }
+		
+		@Override
+		public int characteristics() { return characteristics; }
+	}
+	
+	/**
+	 * A {@link Spliterator.OfLong} over the positions {@code [from, to)} of an indexed source, read through {@code get}.
+	 * Splits in halves; see {@link IntSpliterator}.
+	 */
+	final class LongSpliterator implements Spliterator.OfLong {
+		private final IntToLongFunction get;
+		private final int               characteristics;
+		private       int               from;
+		private final int               to;
+		
+		/**
+		 * @param from            The first position.
+		 * @param to              The position after the last one.
+		 * @param characteristics The characteristics besides {@code SIZED} and {@code SUBSIZED}.
+		 * @param get             Maps a position to its value.
+		 */
+		public LongSpliterator( int from, int to, int characteristics, IntToLongFunction get ) {
+			this.from            = from;
+			this.to              = to;
+			this.characteristics = characteristics | SIZED | SUBSIZED;
+			this.get             = get;
+		}
+		
+		@Override
+		public boolean tryAdvance( LongConsumer action ) {
+			if( to <= from ) return false;
+			action.accept( get.applyAsLong( from++ ) );
+			return true;
+		}
+		
+		@Override
+		public void forEachRemaining( LongConsumer action ) {
+			for( int i = from, end = to; i < end; i++ ) action.accept( get.applyAsLong( i ) );
+			from = to;
+		}
+		
+		@Override
+		public LongSpliterator trySplit() {
+			int mid = from + to >>> 1;
+			return mid <= from ?
+			       null :
+			       new LongSpliterator( from, from = mid, characteristics, get );
+		}
+		
+		@Override
+		public long estimateSize() { return to - from; }
+		
+		@Override
+		public int characteristics() { return characteristics; }
+	}
+	
+	/**
+	 * A {@link Spliterator.OfDouble} over the positions {@code [from, to)} of an indexed source, read through {@code get}.
+	 * Splits in halves; see {@link IntSpliterator}.
+	 */
+	final class DoubleSpliterator implements Spliterator.OfDouble {
+		private final IntToDoubleFunction get;
+		private final int                 characteristics;
+		private       int                 from;
+		private final int                 to;
+		
+		/**
+		 * @param from            The first position.
+		 * @param to              The position after the last one.
+		 * @param characteristics The characteristics besides {@code SIZED} and {@code SUBSIZED}.
+		 * @param get             Maps a position to its value.
+		 */
+		public DoubleSpliterator( int from, int to, int characteristics, IntToDoubleFunction get ) {
+			this.from            = from;
+			this.to              = to;
+			this.characteristics = characteristics | SIZED | SUBSIZED;
+			this.get             = get;
+		}
+		
+		@Override
+		public boolean tryAdvance( DoubleConsumer action ) {
+			if( to <= from ) return false;
+			action.accept( get.applyAsDouble( from++ ) );
+			return true;
+		}
+		
+		@Override
+		public void forEachRemaining( DoubleConsumer action ) {
+			for( int i = from, end = to; i < end; i++ ) action.accept( get.applyAsDouble( i ) );
+			from = to;
+		}
+		
+		@Override
+		public DoubleSpliterator trySplit() {
+			int mid = from + to >>> 1;
+			return mid <= from ?
+			       null :
+			       new DoubleSpliterator( from, from = mid, characteristics, get );
+		}
+		
+		@Override
+		public long estimateSize() { return to - from; }
+		
+		@Override
+		public int characteristics() { return characteristics; }
+	}
+	
+	/**
+	 * Returns a {@link Spliterator.OfInt} over the tokens of a collection, walked with its {@code unsafe_token}:
+	 * {@code next} maps the previous token, or {@code -1}, to the next token, or {@code -1} at the end, and {@code get}
+	 * maps a token to its value. The spliterator splits off growing batches, as
+	 * {@link Spliterators#spliterator(PrimitiveIterator.OfInt, long, int)} does, so it is only the fallback for token
+	 * spaces with gaps, where a range of positions does not tell how many entries it holds: bit sets, flat strategies,
+	 * open-addressing tables and partly filled leaves. The {@code lo Region} and {@code hi Region} of the hash
+	 * collections are dense and are halved with {@link IntSpliterator} and its siblings instead.
+	 *
+	 * @param size The number of tokens.
+	 * @param next The token walk.
+	 * @param get  The value of a token.
+	 * @return A {@code SIZED}, {@code SUBSIZED} and {@code NONNULL} spliterator.
+	 */
+	static Spliterator.OfInt spliterator( int size, IntUnaryOperator next, IntUnaryOperator get ) {
+		return Spliterators.spliterator( new PrimitiveIterator.OfInt() {
+			int token = -1, following = -2; // -2: not fetched yet
+			
+			@Override
+			public boolean hasNext() {
+				if( following == -2 ) following = next.applyAsInt( token );
+				return following != -1;
+			}
+			
+			@Override
+			public int nextInt() {
+				if( !hasNext() ) throw new NoSuchElementException();
+				token     = following;
+				following = -2;
+				return get.applyAsInt( token );
+			}
+		}, size, Spliterator.NONNULL );
+	}
+	
+	/**
+	 * Returns a {@link Spliterator.OfLong} over the tokens of a collection; see {@link #spliterator(int, IntUnaryOperator, IntUnaryOperator)}.
+	 *
+	 * @param size The number of tokens.
+	 * @param next The token walk.
+	 * @param get  The value of a token.
+	 * @return A {@code SIZED}, {@code SUBSIZED} and {@code NONNULL} spliterator.
+	 */
+	static Spliterator.OfLong spliterator( int size, IntUnaryOperator next, IntToLongFunction get ) {
+		return Spliterators.spliterator( new PrimitiveIterator.OfLong() {
+			int token = -1, following = -2;
+			
+			@Override
+			public boolean hasNext() {
+				if( following == -2 ) following = next.applyAsInt( token );
+				return following != -1;
+			}
+			
+			@Override
+			public long nextLong() {
+				if( !hasNext() ) throw new NoSuchElementException();
+				token     = following;
+				following = -2;
+				return get.applyAsLong( token );
+			}
+		}, size, Spliterator.NONNULL );
+	}
+	
+	/**
+	 * Returns a {@link Spliterator.OfDouble} over the tokens of a collection; see {@link #spliterator(int, IntUnaryOperator, IntUnaryOperator)}.
+	 *
+	 * @param size The number of tokens.
+	 * @param next The token walk.
+	 * @param get  The value of a token.
+	 * @return A {@code SIZED}, {@code SUBSIZED} and {@code NONNULL} spliterator.
+	 */
+	static Spliterator.OfDouble spliterator( int size, IntUnaryOperator next, IntToDoubleFunction get ) {
+		return Spliterators.spliterator( new PrimitiveIterator.OfDouble() {
+			int token = -1, following = -2;
+			
+			@Override
+			public boolean hasNext() {
+				if( following == -2 ) following = next.applyAsInt( token );
+				return following != -1;
+			}
+			
+			@Override
+			public double nextDouble() {
+				if( !hasNext() ) throw new NoSuchElementException();
+				token     = following;
+				following = -2;
+				return get.applyAsDouble( token );
+			}
+		}, size, Spliterator.NONNULL );
+	}
+	
 	// Represents a set of byte values (0-255) using a bitset implemented with four long integers.
 	abstract class FF implements Cloneable {
 		/**
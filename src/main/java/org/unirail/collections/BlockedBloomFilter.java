@@ -0,0 +1,291 @@
+// Copyright 2025 Chikirev Sirguy, Unirail Group
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+// For inquiries, please contact: al8v5C6HU4UtqE9@gmail.com
+// GitHub Repository: https://github.com/AdHoc-Protocol
+package org.unirail.collections;
+
+import org.unirail.JsonWriter;
+
+import java.util.Arrays;
+
+/**
+ * A cache-line-blocked Bloom filter of primitive keys: answers "definitely absent" or "maybe present" in a few bits per
+ * key, to reject misses before an expensive lookup. Keys cannot be removed; see {@link CuckooFilter} for that.
+ * <p>
+ * The bits are packed into {@code long} words, 64 per word, LSB first, as in {@link BitList.R#values}. The words are
+ * grouped into blocks of {@code 8} words, 512 bits, one 64-byte cache line: a 64-bit hash of the key selects one block,
+ * and all {@code hashes} bits of the key are set and tested inside it, so a query touches one cache line instead of
+ * {@code hashes} random ones, at the cost of a slightly higher false positive rate than an unblocked filter of the same size.
+ * <p>
+ * Filters of the same dimensions {@link #or(BlockedBloomFilter) merge} by OR-ing their words, which gives the filter of
+ * the union of their keys. {@link #words()} and {@link #of(long[], int)} serialize and restore the raw words.
+ */
+public class BlockedBloomFilter implements Cloneable, JsonWriter.Source {
+	
+	/**
+	 * The words per block: one 64-byte cache line.
+	 */
+	protected static final int BLOCK_WORDS = 8;
+	
+	/**
+	 * The number of keys that {@link #mightContain(long[], int, int, BitList.RW)} hashes ahead before testing them.
+	 */
+	public static final int BATCH = 64;
+	
+	/**
+	 * The per-thread batch buffer of {@link #mightContain(long[], int, int, BitList.RW)}: {@link #BATCH} hashes, then
+	 * their {@link #BATCH} first words. Per thread rather than per filter, so concurrent queries stay safe.
+	 */
+	private static final ThreadLocal< long[] > SCRATCH = ThreadLocal.withInitial( () -> new long[ BATCH * 2 ] );
+	
+	/**
+	 * The filter bits, {@code BLOCK_WORDS} words per block.
+	 */
+	protected final long[] words;
+	/**
+	 * The number of blocks.
+	 */
+	protected final int    blocks;
+	/**
+	 * The number of bits set per key.
+	 */
+	protected final int    hashes;
+	
+	/**
+	 * Constructs an empty filter sized for the expected number of keys and false positive probability.
+	 *
+	 * @param expectedKeys The number of keys the filter is sized for.
+	 * @param fpp          The false positive probability at that number of keys, such as {@code 0.01}.
+	 * @throws IllegalArgumentException If {@code expectedKeys} is negative or {@code fpp} is not in (0, 1).
+	 */
+	public BlockedBloomFilter( long expectedKeys, double fpp ) {
+		if( expectedKeys < 0 ) throw new IllegalArgumentException( "expectedKeys is less than 0." );
+		if( !( 0 < fpp && fpp < 1 ) ) throw new IllegalArgumentException( "fpp must be in (0, 1)" );
+		
+		double bitsPerKey = -Math.log( fpp ) / ( Math.log( 2 ) * Math.log( 2 ) ) * 1.1; // +10% for the blocking
+		long   bits       = ( long ) Math.ceil( Math.max( 1, expectedKeys ) * bitsPerKey );
+		long   blocks     = ( bits + BLOCK_WORDS * 64 - 1 ) / ( BLOCK_WORDS * 64 );
+		if( Integer.MAX_VALUE / BLOCK_WORDS < blocks ) throw new IllegalArgumentException( "The filter needs more than " + Integer.MAX_VALUE + " words." );
+		
+		this.blocks = ( int ) blocks;
+		this.hashes = Math.max( 1, Math.min( 16, ( int ) Math.round( bitsPerKey / 1.1 * Math.log( 2 ) ) ) );
+		words       = new long[ this.blocks * BLOCK_WORDS ];
+	}
+	
+	/**
+	 * Restores a filter from its raw words.
+	 *
+	 * @param words  The words, as returned by {@link #words()}; used, not copied.
+	 * @param hashes The number of bits set per key, as returned by {@link #hashes()}.
+	 * @return The filter.
+	 * @throws IllegalArgumentException If the number of words is not a positive multiple of 8.
+	 */
+	public static BlockedBloomFilter of( long[] words, int hashes ) { return new BlockedBloomFilter( words, hashes ); }
+	
+	protected BlockedBloomFilter( long[] words, int hashes ) {
+		if( words.length == 0 || words.length % BLOCK_WORDS != 0 ) throw new IllegalArgumentException( "The number of words must be a positive multiple of " + BLOCK_WORDS + "." );
+		if( hashes < 1 || 16 < hashes ) throw new IllegalArgumentException( "hashes must be in the range 1 to 16" );
+		this.words  = words;
+		this.blocks = words.length / BLOCK_WORDS;
+		this.hashes = hashes;
+	}
+	
+	/**
+	 * Returns the raw words, LSB first, for serialization. The array is the filter's own.
+	 *
+	 * @return The words.
+	 */
+	public long[] words() { return words; }
+	
+	/**
+	 * Returns the number of bits set per key.
+	 *
+	 * @return the number of hash functions
+	 */
+	public int hashes() { return hashes; }
+	
+	/**
+	 * Returns the number of bits of the filter.
+	 *
+	 * @return the filter size in bits
+	 */
+	public long bits() { return ( long ) words.length * 64; }
+	
+	/**
+	 * Returns the number of set bits.
+	 *
+	 * @return the cardinality of the filter bits
+	 */
+	public long cardinality() {
+		long count = 0;
+		for( long word : words ) count += Long.bitCount( word );
+		return count;
+	}
+	
+	/**
+	 * Returns the index of the first word of the block of a hash: the high 32 bits multiplied into the number of blocks.
+	 */
+	private int block( long hash ) { return ( int ) ( ( hash >>> 32 ) * blocks >>> 32 ) * BLOCK_WORDS; }
+	
+	/**
+	 * Adds a key.
+	 *
+	 * @param key The key.
+	 * @return {@code true} if a bit changed, so the key was certainly not present before.
+	 */
+	public boolean put( long key ) {
+		long hash  = Array.avalanche( key );
+		int  block = block( hash );
+		int  h1    = ( int ) hash;
+		int  h2    = ( int ) ( hash >>> 32 ) * 0x9E3779B9 | 1;
+		
+		long changed = 0;
+		for( int i = 0, h = h1; i < hashes; i++, h += h2 ) {
+			int  bit  = h >>> 23; // 9 bits: the bit within the 512-bit block
+			int  w    = block + ( bit >>> 6 );
+			long mask = 1L << bit;
+			changed |= ~words[ w ] & mask;
+			words[ w ] |= mask;
+		}
+		return changed != 0;
+	}
+	
+	/**
+	 * Adds a key.
+	 *
+	 * @param key The key.
+	 * @return {@code true} if a bit changed, so the key was certainly not present before.
+	 */
+	public boolean put( int key ) { return put( ( long ) key ); }
+	
+	/**
+	 * Returns {@code false} if the key was certainly never added, {@code true} if it may have been.
+	 *
+	 * @param key The key.
+	 * @return {@code true} if the key may be present.
+	 */
+	public boolean mightContain( long key ) { return test( Array.avalanche( key ) ); }
+	
+	/**
+	 * Returns {@code false} if the key was certainly never added, {@code true} if it may have been.
+	 *
+	 * @param key The key.
+	 * @return {@code true} if the key may be present.
+	 */
+	public boolean mightContain( int key ) { return test( Array.avalanche( ( long ) key ) ); }
+	
+	private boolean test( long hash ) {
+		int block = block( hash );
+		int h2    = ( int ) ( hash >>> 32 ) * 0x9E3779B9 | 1;
+		
+		for( int i = 0, h = ( int ) hash; i < hashes; i++, h += h2 ) {
+			int bit = h >>> 23;
+			if( ( words[ block + ( bit >>> 6 ) ] & 1L << bit ) == 0 ) return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Tests every key: bit {@code i} of {@code result} is set to the {@link #mightContain(long)} answer for {@code keys[ i ]}.
+	 *
+	 * @param keys   The keys.
+	 * @param result The answers, one bit per key.
+	 * @return The number of keys that may be present.
+	 */
+	public int mightContain( long[] keys, BitList.RW result ) { return mightContain( keys, 0, keys.length, result ); }
+	
+	/**
+	 * Tests a range of keys: bit {@code i} of {@code result} is set to the {@link #mightContain(long)} answer for
+	 * {@code keys[ from + i ]}. The keys are processed in batches of {@link #BATCH}: the first word of every key of the
+	 * batch is loaded before any key is tested, so the cache misses of the batch overlap instead of following one another.
+	 *
+	 * @param keys   The keys.
+	 * @param from   The index of the first key.
+	 * @param len    The number of keys.
+	 * @param result The answers, one bit per key.
+	 * @return The number of keys that may be present.
+	 */
+	public int mightContain( long[] keys, int from, int len, BitList.RW result ) {
+		int    found   = 0;
+		long[] scratch = SCRATCH.get(); // the hashes of the batch, then the first words they load
+		
+		for( int start = 0; start < len; start += BATCH ) {
+			int n = Math.min( BATCH, len - start );
+			
+			for( int i = 0; i < n; i++ ) {
+				long hash = Array.avalanche( keys[ from + start + i ] );
+				scratch[ i ]         = hash;
+				scratch[ BATCH + i ] = words[ block( hash ) + ( ( int ) hash >>> 29 ) ]; // the word of the first bit
+			}
+			
+			for( int i = 0; i < n; i++ )
+				if( ( scratch[ BATCH + i ] & 1L << ( ( int ) scratch[ i ] >>> 23 ) ) != 0 && test( scratch[ i ] ) ) {
+					result.set1( start + i );
+					found++;
+				}
+				else result.set( start + i, false );
+		}
+		return found;
+	}
+	
+	/**
+	 * Adds the keys of another filter of the same dimensions: a word-wise OR.
+	 *
+	 * @param other The filter to merge.
+	 * @return This filter.
+	 * @throws IllegalArgumentException If the filters differ in size or number of hashes.
+	 */
+	public BlockedBloomFilter or( BlockedBloomFilter other ) {
+		if( other.words.length != words.length || other.hashes != hashes ) throw new IllegalArgumentException( "Filters of different dimensions cannot be merged." );
+		for( int i = 0; i < words.length; i++ ) words[ i ] |= other.words[ i ];
+		return this;
+	}
+	
+	/**
+	 * Removes all keys.
+	 */
+	public void clear() { Arrays.fill( words, 0 ); }
+	
+	@Override
+	public int hashCode() { return Array.finalizeHash( Array.hash( Array.hash( hashes ), words, 0, words.length ), words.length ); }
+	
+	@Override
+	public boolean equals( Object obj ) {
+		if( obj == this ) return true;
+		if( !( obj instanceof BlockedBloomFilter ) ) return false;
+		BlockedBloomFilter other = ( BlockedBloomFilter ) obj;
+		return hashes == other.hashes && Arrays.equals( words, other.words );
+	}
+	
+	@Override
+	public BlockedBloomFilter clone() { return new BlockedBloomFilter( words.clone(), hashes ); }
+	
+	/**
+	 * Writes the number of hashes and the raw words as a JSON object.
+	 *
+	 * @param json The JsonWriter to write to.
+	 */
+	@Override
+	public void toJSON( JsonWriter json ) {
+		json.preallocate( words.length * 20 + 32 );
+		json.enterObject()
+		    .name( "hashes" ).value( hashes )
+		    .name( "words" ).value( words )
+		    .exitObject();
+	}
+	
+	@Override
+	public String toString() { return toJSON(); }
+}
\ No newline at end of file
@@ -20,6 +20,10 @@ package org.unirail.collections;
 
 import org.unirail.JsonWriter;
 
+import java.util.Spliterator;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
 /**
  * {@code ByteIntMap} is an interface defining a map that associates byte keys with primitive values.
  * <p>
@@ -33,6 +37,62 @@ import org.unirail.JsonWriter;
  */
 public interface ByteByteMap {
 	
+	/**
+	 * Computes the value of an absent key for {@link RW#computeIfAbsent(byte, Mapping)}.
+	 */
+	@FunctionalInterface
+	interface Mapping {
+		byte apply( byte key );
+	}
+
+	/**
+	 * Computes the new value of a present key for {@link RW#computeIfPresent(byte, Remapping)}.
+	 */
+	@FunctionalInterface
+	interface Remapping {
+		byte apply( byte key, byte value );
+	}
+
+	/**
+	 * Combines the current value of a present key with a given value for {@link RW#merge(byte, byte, Merging)}.
+	 */
+	@FunctionalInterface
+	interface Merging {
+		byte apply( byte oldValue, byte value );
+	}
+
+	/**
+	 * Receives the entries visited by {@link R#forEach(Consumer)}.
+	 */
+	@FunctionalInterface
+	interface Consumer {
+		void accept( byte key, byte value );
+	}
+	
+	/**
+	 * Tests the entries visited by {@link R#forEachWhile(Predicate)}.
+	 */
+	@FunctionalInterface
+	interface Predicate {
+		boolean test( byte key, byte value );
+	}
+	
+	/**
+	 * Receives the keys visited by {@link R#forEachKey(KeyConsumer)}.
+	 */
+	@FunctionalInterface
+	interface KeyConsumer {
+		void accept( byte key );
+	}
+	
+	/**
+	 * Receives the values visited by {@link R#forEachValue(ValueConsumer)}.
+	 */
+	@FunctionalInterface
+	interface ValueConsumer {
+		void accept( byte value );
+	}
+	
 	/**
 	 * {@code R} is an abstract base class providing a skeletal implementation of the {@code ByteIntMap} interface.
 	 * <p>
@@ -83,6 +143,115 @@ public interface ByteByteMap {
 		}
 		
 		
+		/**
+		 * Returns the value of the specified key, or {@code defaultValue} if the key is absent.
+		 *
+		 * @param key          The key to search for.
+		 * @param defaultValue The value to return if the key is absent.
+		 * @return The value of the key, or {@code defaultValue}.
+		 */
+		public byte getOrDefault( byte key, byte defaultValue ) {
+			return contains( key ) ?
+			       values[ index( key ) ] :
+			       defaultValue;
+		}
+		
+		/**
+		 * Returns the index in {@link #values} of the value of a key present.
+		 *
+		 * @param key The key, present.
+		 * @return The index of the key's value.
+		 */
+		protected int index( byte key ) {
+			return values.length == 256 ?
+			       key & 0xFF :
+			       rank( key ) - 1;
+		}
+		
+		/**
+		 * Returns a spliterator over the keys of the map in ascending bit order, the null key excluded; check
+		 * {@link #hasNullKey()}. It walks the set bits with {@link #unsafe_token(int)}, splitting off growing batches,
+		 * and reports {@code SIZED}, {@code SUBSIZED} and {@code NONNULL}. The map must not be modified while it is in use.
+		 *
+		 * @return A spliterator over the keys.
+		 */
+		public Spliterator.OfInt spliterator() { return Array.spliterator( cardinality, this::unsafe_token, this::key ); }
+		
+		/**
+		 * Returns a sequential {@link IntStream} over the keys of the map, the null key excluded, without boxing. Call
+		 * {@code parallel()} on it to run it on the common fork-join pool. The map must not be modified while the stream
+		 * is in use.
+		 *
+		 * @return A stream over the keys.
+		 */
+		public IntStream keys() { return StreamSupport.intStream( spliterator(), false ); }
+		
+		/**
+		 * Returns a spliterator over the values of the map, in the order of {@link #spliterator()}, the value of
+		 * the null key excluded. It splits as {@link #spliterator()} does and reports {@code SIZED}, {@code SUBSIZED}
+		 * and {@code NONNULL}.
+		 *
+		 * @return A spliterator over the values.
+		 */
+		public Spliterator.OfInt valuesSpliterator() { return Array.spliterator( cardinality, this::unsafe_token, this::value ); }
+		
+		/**
+		 * Returns a sequential {@link IntStream} over the values of the map, in the order of {@link #keys()}, the value of
+		 * the null key excluded, without boxing. Call {@code parallel()} on it to run it on the common fork-join pool. The
+		 * map must not be modified while the stream is in use.
+		 *
+		 * @return A stream over the values.
+		 */
+		public IntStream values() { return StreamSupport.intStream( valuesSpliterator(), false ); }
+		
+		/**
+		 * Passes every entry to the action, the null key excluded. Loops directly over the key bits and the value array,
+		 * without tokens or version checks, so the action must not modify the map.
+		 *
+		 * @param action The receiver of the entries.
+		 */
+		public void forEach( Consumer action ) {
+			boolean flat = values.length == 256; // values by key, otherwise by rank: the order of the keys
+			for( int key = -1, i = 0; ( key = next1( key ) ) != -1; i++ )
+				action.accept( ( byte ) key, values[ flat ? key : i ] );
+		}
+		
+		/**
+		 * Passes every key to the action, the null key excluded, in the order of {@link #forEach(Consumer)}.
+		 *
+		 * @param action The receiver of the keys.
+		 */
+		public void forEachKey( KeyConsumer action ) {
+			for( int key = -1; ( key = next1( key ) ) != -1; )
+				action.accept( ( byte ) key );
+		}
+		
+		/**
+		 * Passes every value to the action, the value of the null key excluded, in the order of
+		 * {@link #forEach(Consumer)}.
+		 *
+		 * @param action The receiver of the values.
+		 */
+		public void forEachValue( ValueConsumer action ) {
+			boolean flat = values.length == 256; // values by key, otherwise by rank: the order of the keys
+			for( int key = -1, i = 0; ( key = next1( key ) ) != -1; i++ )
+				action.accept( values[ flat ? key : i ] );
+		}
+		
+		/**
+		 * Passes the entries to the predicate, in the order of {@link #forEach(Consumer)}, until it returns {@code false}.
+		 *
+		 * @param predicate The test of the entries.
+		 * @return {@code true} if the predicate accepted every entry, {@code false} if it stopped the iteration.
+		 */
+		public boolean forEachWhile( Predicate predicate ) {
+			boolean flat = values.length == 256; // values by key, otherwise by rank: the order of the keys
+			for( int key = -1, i = 0; ( key = next1( key ) ) != -1; i++ )
+				if( !predicate.test( ( byte ) key, values[ flat ? key : i ] ) ) return false;
+			return true;
+		}
+		
+		
 		/**
 		 * Checks if the map contains the specified primitive value.
 		 * <p>
@@ -390,6 +559,80 @@ public interface ByteByteMap {
 			return true;
 		}
 		
+		
+		/**
+		 * Associates the value with the key only if the key is absent.
+		 *
+		 * @param key   The key.
+		 * @param value The value to associate with the key.
+		 * @return {@code true} if the value was associated, {@code false} if the key was present and left unchanged.
+		 */
+		public boolean putIfAbsent( byte key, byte value ) {
+			if( contains( key ) ) return false;
+			put( key, value );
+			return true;
+		}
+		
+		
+		/**
+		 * Adds {@code delta} to the value of the key, associating an absent key with {@code delta}.
+		 *
+		 * @param key   The key.
+		 * @param delta The amount to add.
+		 * @return The new value of the key.
+		 */
+		public byte addTo( byte key, byte delta ) {
+			if( contains( key ) ) return values[ index( key ) ] += delta;
+			put( key, delta );
+			return delta;
+		}
+		
+		
+		/**
+		 * Returns the value of the key, first associating an absent key with the value computed by {@code mapping}.
+		 *
+		 * @param key     The key.
+		 * @param mapping Computes the value of an absent key. It must not modify this map.
+		 * @return The current, or the newly computed, value of the key.
+		 */
+		public byte computeIfAbsent( byte key, Mapping mapping ) {
+			if( contains( key ) ) return values[ index( key ) ];
+			byte value = mapping.apply( key );
+			put( key, value );
+			return value;
+		}
+		
+		
+		/**
+		 * Replaces the value of a present key with the value computed by {@code remapping}. An absent key is left
+		 * absent.
+		 *
+		 * @param key       The key.
+		 * @param remapping Computes the new value from the key and its current value. It must not modify this map.
+		 * @return {@code true} if the key was present and its value replaced.
+		 */
+		public boolean computeIfPresent( byte key, Remapping remapping ) {
+			if( !contains( key ) ) return false;
+			put( key, remapping.apply( key, values[ index( key ) ] ) );
+			return true;
+		}
+		
+		
+		/**
+		 * Associates an absent key with {@code value}, or replaces the value of a present key with the result of
+		 * {@code merging} its current value with {@code value}.
+		 *
+		 * @param key     The key.
+		 * @param value   The value to associate with an absent key, or to merge with the current one.
+		 * @param merging Combines the current value with {@code value}. It must not modify this map.
+		 * @return The new value of the key.
+		 */
+		public byte merge( byte key, byte value, Merging merging ) {
+			if( contains( key ) ) value = merging.apply( values[ index( key ) ], value );
+			put( key, value );
+			return value;
+		}
+		
 		/**
 		 * Removes the mapping for the specified key from this {@code ByteIntMap} if present.
 		 *
@@ -21,6 +21,9 @@ import org.unirail.JsonWriter;
 
 import java.util.ConcurrentModificationException;
 import java.util.HashMap;
+import java.util.Spliterator;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
 
 /**
  * {@code ByteIntNullMap} is an interface defining a map that associates primitive {@code byte} keys
@@ -44,6 +47,38 @@ import java.util.HashMap;
  */
 public interface ByteFloatNullMap {
 	
+	/**
+	 * Computes the value of an absent key for {@link RW#computeIfAbsent(byte, Mapping)}.
+	 */
+	@FunctionalInterface
+	interface Mapping {
+		float apply( byte key );
+	}
+
+	/**
+	 * Computes the new value of a present key for {@link RW#computeIfPresent(byte, Remapping)}.
+	 */
+	@FunctionalInterface
+	interface Remapping {
+		float apply( byte key, float value );
+	}
+
+	/**
+	 * Combines the current value of a present key with a given value for {@link RW#merge(byte, float, Merging)}.
+	 */
+	@FunctionalInterface
+	interface Merging {
+		float apply( float oldValue, float value );
+	}
+
+	/**
+	 * Receives the keys visited by {@link R#forEachKey(KeyConsumer)}.
+	 */
+	@FunctionalInterface
+	interface KeyConsumer {
+		void accept( byte key );
+	}
+	
 	/**
 	 * {@code R} is an abstract base class providing read-only access to a {@link ByteIntNullMap}.
 	 * <p>
@@ -250,6 +285,61 @@ public interface ByteFloatNullMap {
 			                    values[ ( int ) token >> KEY_LEN ] );
 		}
 		
+		
+		/**
+		 * Returns the value of the specified key, or {@code defaultValue} if the key is absent or mapped to null.
+		 *
+		 * @param key          The key to search for.
+		 * @param defaultValue The value to return if the key is absent or mapped to null.
+		 * @return The value of the key, or {@code defaultValue}.
+		 */
+		public float getOrDefault( byte key, float defaultValue ) {
+			return nulls.is1( key ) ?
+			       values[ index( key ) ] :
+			       defaultValue;
+		}
+		
+		/**
+		 * Returns the index in {@link #values} of the value of a key mapped to a non-null value.
+		 *
+		 * @param key The key, mapped to a non-null value.
+		 * @return The index of the key's value.
+		 */
+		protected int index( byte key ) {
+			return values.length == 256 ?
+			       key & 0xFF :
+			       nulls.rank( key ) - 1;
+		}
+		
+		/**
+		 * Returns a spliterator over the keys of the map in ascending bit order, the null key excluded; check
+		 * {@link #hasNullKey()}. It walks the set bits with {@link #unsafe_token(int)}, splitting off growing batches,
+		 * and reports {@code SIZED}, {@code SUBSIZED} and {@code NONNULL}. The map must not be modified while it is in use.
+		 *
+		 * @return A spliterator over the keys.
+		 */
+		public Spliterator.OfInt spliterator() { return Array.spliterator( cardinality, this::unsafe_token, this::key ); }
+		
+		/**
+		 * Returns a sequential {@link IntStream} over the keys of the map, the null key excluded, without boxing. Call
+		 * {@code parallel()} on it to run it on the common fork-join pool. The map must not be modified while the stream
+		 * is in use.
+		 *
+		 * @return A stream over the keys.
+		 */
+		public IntStream keys() { return StreamSupport.intStream( spliterator(), false ); }
+		
+		/**
+		 * Passes every key to the action, the null key excluded. Loops directly over the key bits, without tokens or
+		 * version checks, so the action must not modify the map.
+		 *
+		 * @param action The receiver of the keys.
+		 */
+		public void forEachKey( KeyConsumer action ) {
+			for( int key = -1; ( key = next1( key ) ) != -1; )
+				action.accept( ( byte ) key );
+		}
+		
 		public R get( HashMap<  Byte     ,  Float     > dst ) {
 			for( int t = -1; ( t = unsafe_token( t ) ) != -1; )
 				if( hasValue( t ) ) dst.put( key( t ), value( t ) );
@@ -604,6 +694,84 @@ public interface ByteFloatNullMap {
 			return set1( ( byte ) key );
 		}
 		
+		
+		/**
+		 * Associates the value with the key only if the key is absent or mapped to null.
+		 *
+		 * @param key   The key.
+		 * @param value The value to associate with the key.
+		 * @return {@code true} if the value was associated, {@code false} if the key was mapped to a non-null value
+		 *         and left unchanged.
+		 */
+		public boolean putIfAbsent( byte key, float value ) {
+			if( nulls.is1( key ) ) return false;
+			put( key, value );
+			return true;
+		}
+		
+		
+		/**
+		 * Adds {@code delta} to the value of the key, associating a key that is absent or mapped to null with
+		 * {@code delta}.
+		 *
+		 * @param key   The key.
+		 * @param delta The amount to add.
+		 * @return The new value of the key.
+		 */
+		public float addTo( byte key, float delta ) {
+			if( nulls.is1( key ) ) return values[ index( key ) ] += delta;
+			put( key, delta );
+			return delta;
+		}
+		
+		
+		/**
+		 * Returns the value of the key, first associating a key that is absent or mapped to null with the value
+		 * computed by {@code mapping}.
+		 *
+		 * @param key     The key.
+		 * @param mapping Computes the value of a key that is absent or mapped to null. It must not modify this map.
+		 * @return The current, or the newly computed, value of the key.
+		 */
+		public float computeIfAbsent( byte key, Mapping mapping ) {
+			if( nulls.is1( key ) ) return values[ index( key ) ];
+			float value = mapping.apply( key );
+			put( key, value );
+			return value;
+		}
+		
+		
+		/**
+		 * Replaces the value of a key mapped to a non-null value with the value computed by {@code remapping}. A key
+		 * that is absent or mapped to null is left as it is.
+		 *
+		 * @param key       The key.
+		 * @param remapping Computes the new value from the key and its current value. It must not modify this map.
+		 * @return {@code true} if the key was mapped to a non-null value, now replaced.
+		 */
+		public boolean computeIfPresent( byte key, Remapping remapping ) {
+			if( !nulls.is1( key ) ) return false;
+			put( key, remapping.apply( key, values[ index( key ) ] ) );
+			return true;
+		}
+		
+		
+		/**
+		 * Associates a key that is absent or mapped to null with {@code value}, or replaces the value of a key mapped
+		 * to a non-null value with the result of {@code merging} its current value with {@code value}.
+		 *
+		 * @param key     The key.
+		 * @param value   The value to associate with a key that is absent or mapped to null, or to merge with the
+		 *                current one.
+		 * @param merging Combines the current value with {@code value}. It must not modify this map.
+		 * @return The new value of the key.
+		 */
+		public float merge( byte key, float value, Merging merging ) {
+			if( nulls.is1( key ) ) value = merging.apply( values[ index( key ) ], value );
+			put( key, value );
+			return value;
+		}
+		
 		/**
 		 * Removes the mapping for the specified boxed Byte key from this map if present.
 		 * <p>
@@ -21,6 +21,9 @@ import org.unirail.JsonWriter;
 
 import java.util.Arrays;
 import java.util.ConcurrentModificationException;
+import java.util.Spliterator;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
 
 /**
  * A specialized map for mapping 2-byte primitive keys to primitive values.
@@ -168,6 +171,62 @@ import java.util.ConcurrentModificationException;
  */
 public interface CharCharMap {
 	
+	/**
+	 * Computes the value of an absent key for {@link RW#computeIfAbsent(char, Mapping)}.
+	 */
+	@FunctionalInterface
+	interface Mapping {
+		char apply( char key );
+	}
+
+	/**
+	 * Computes the new value of a present key for {@link RW#computeIfPresent(char, Remapping)}.
+	 */
+	@FunctionalInterface
+	interface Remapping {
+		char apply( char key, char value );
+	}
+
+	/**
+	 * Combines the current value of a present key with a given value for {@link RW#merge(char, char, Merging)}.
+	 */
+	@FunctionalInterface
+	interface Merging {
+		char apply( char oldValue, char value );
+	}
+
+	/**
+	 * Receives the entries visited by {@link R#forEach(Consumer)}.
+	 */
+	@FunctionalInterface
+	interface Consumer {
+		void accept( char key, char value );
+	}
+	
+	/**
+	 * Tests the entries visited by {@link R#forEachWhile(Predicate)}.
+	 */
+	@FunctionalInterface
+	interface Predicate {
+		boolean test( char key, char value );
+	}
+	
+	/**
+	 * Receives the keys visited by {@link R#forEachKey(KeyConsumer)}.
+	 */
+	@FunctionalInterface
+	interface KeyConsumer {
+		void accept( char key );
+	}
+	
+	/**
+	 * Receives the values visited by {@link R#forEachValue(ValueConsumer)}.
+	 */
+	@FunctionalInterface
+	interface ValueConsumer {
+		void accept( char value );
+	}
+	
 	
 	/**
 	 * An abstract base class providing read-only functionalities for a map that maps
@@ -190,6 +249,11 @@ public interface CharCharMap {
 		 * in each hash bucket's collision chain. A value of 0 indicates an empty bucket.
 		 */
 		protected char[]         _buckets;
+		/**
+		 * The {@link Array#modMultiplier(int)} of {@code _buckets.length}, used by {@link #bucketIndex(int)}
+		 * to reduce hashes to bucket indices without an integer division.
+		 */
+		protected long           _bucketsMultiplier;
 		/**
 		 * In sparse (hash map) mode, this array stores the 0-based indices of the next entry
 		 * in a collision chain for entries located in the {@code lo Region}.
@@ -415,6 +479,21 @@ public interface CharCharMap {
 		}
 		
 		
+		/**
+		 * Returns the value of the specified primitive key, or {@code defaultValue} if the key is absent.
+		 *
+		 * @param key          The primitive key to search for.
+		 * @param defaultValue The value to return if the key is absent.
+		 * @return The value of the key, or {@code defaultValue}.
+		 */
+		public char getOrDefault( char key, char defaultValue ) {
+			long token = tokenOf( key );
+			return token == INVALID_TOKEN ?
+			       defaultValue :
+			       value( token );
+		}
+		
+		
 		/**
 		 * Returns the first valid token for iterating over map entries (excluding the null key).
 		 * Call {@link #token(long)} subsequently to get the next token.
@@ -544,6 +623,140 @@ public interface CharCharMap {
 					values[ index( token ) ] );
 		}
 		
+		/**
+		 * Returns a spliterator over the keys of the map, the null key excluded; check {@link #hasNullKey()}.
+		 * In hash mode it splits the occupied slots of the {@code lo Region} and {@code hi Region} in halves, as if
+		 * they were one array; in flat mode it walks the set bits with {@link #unsafe_token(int)}. It reports
+		 * {@code DISTINCT}, {@code SIZED}, {@code SUBSIZED} and {@code NONNULL}. The map must not be modified while it
+		 * is in use.
+		 *
+		 * @return A spliterator over the keys.
+		 */
+		public Spliterator.OfInt spliterator() {
+			if( isFlatStrategy() ) return Array.spliterator( flat_count, this::unsafe_token, this::key );
+		
+			int lo  = _lo_Size;
+			int gap = _count() == 0 ?
+			          0 :
+			          keys.length - _hi_Size - lo; // skips the free slots between the regions
+			return new Array.IntSpliterator( 0, _count(), Spliterator.DISTINCT | Spliterator.NONNULL, i -> key( i < lo ? i : i + gap ) );
+		}
+		
+		/**
+		 * Returns a sequential {@link IntStream} over the keys of the map, the null key excluded, without boxing. Call
+		 * {@code parallel()} on it to run it on the common fork-join pool. The map must not be modified while the stream
+		 * is in use.
+		 *
+		 * @return A stream over the keys.
+		 */
+		public IntStream keys() { return StreamSupport.intStream( spliterator(), false ); }
+		
+		/**
+		 * Returns a spliterator over the values of the map, in the order of {@link #spliterator()}, the value of
+		 * the null key excluded. It splits as {@link #spliterator()} does and reports {@code SIZED}, {@code SUBSIZED}
+		 * and {@code NONNULL}.
+		 *
+		 * @return A spliterator over the values.
+		 */
+		public Spliterator.OfInt valuesSpliterator() {
+			if( isFlatStrategy() ) return Array.spliterator( flat_count, this::unsafe_token, this::value );
+		
+			int lo  = _lo_Size;
+			int gap = _count() == 0 ?
+			          0 :
+			          keys.length - _hi_Size - lo; // skips the free slots between the regions
+			return new Array.IntSpliterator( 0, _count(), Spliterator.NONNULL, i -> value( i < lo ? i : i + gap ) );
+		}
+		
+		/**
+		 * Returns a sequential {@link IntStream} over the values of the map, in the order of {@link #keys()}, the value of
+		 * the null key excluded, without boxing. Call {@code parallel()} on it to run it on the common fork-join pool. The
+		 * map must not be modified while the stream is in use.
+		 *
+		 * @return A stream over the values.
+		 */
+		public IntStream values() { return StreamSupport.intStream( valuesSpliterator(), false ); }
+		
+		/**
+		 * Passes every entry to the action, the null key excluded. Loops directly over the key and value arrays, or the
+		 * key bits in the flat strategy, without tokens or version checks, so the action must not modify the map.
+		 *
+		 * @param action The receiver of the entries.
+		 */
+		public void forEach( Consumer action ) {
+			if( isFlatStrategy() ) {
+				for( int t = -1; ( t = unsafe_token( t ) ) != -1; )
+					action.accept( key( t ), value( t ) );
+				return;
+			}
+			
+			if( _count() == 0 ) return;
+			for( int i = 0; i < _lo_Size; i++ )
+				action.accept( keys[ i ], values[ i ] );
+			for( int i = keys.length - _hi_Size; i < keys.length; i++ )
+				action.accept( keys[ i ], values[ i ] );
+		}
+		
+		/**
+		 * Passes every key to the action, the null key excluded, in the order of {@link #forEach(Consumer)}.
+		 *
+		 * @param action The receiver of the keys.
+		 */
+		public void forEachKey( KeyConsumer action ) {
+			if( isFlatStrategy() ) {
+				for( int t = -1; ( t = unsafe_token( t ) ) != -1; )
+					action.accept( key( t ) );
+				return;
+			}
+			
+			if( _count() == 0 ) return;
+			for( int i = 0; i < _lo_Size; i++ )
+				action.accept( keys[ i ] );
+			for( int i = keys.length - _hi_Size; i < keys.length; i++ )
+				action.accept( keys[ i ] );
+		}
+		
+		/**
+		 * Passes every value to the action, the value of the null key excluded, in the order of
+		 * {@link #forEach(Consumer)}.
+		 *
+		 * @param action The receiver of the values.
+		 */
+		public void forEachValue( ValueConsumer action ) {
+			if( isFlatStrategy() ) {
+				for( int t = -1; ( t = unsafe_token( t ) ) != -1; )
+					action.accept( value( t ) );
+				return;
+			}
+			
+			if( _count() == 0 ) return;
+			for( int i = 0; i < _lo_Size; i++ )
+				action.accept( values[ i ] );
+			for( int i = keys.length - _hi_Size; i < keys.length; i++ )
+				action.accept( values[ i ] );
+		}
+		
+		/**
+		 * Passes the entries to the predicate, in the order of {@link #forEach(Consumer)}, until it returns {@code false}.
+		 *
+		 * @param predicate The test of the entries.
+		 * @return {@code true} if the predicate accepted every entry, {@code false} if it stopped the iteration.
+		 */
+		public boolean forEachWhile( Predicate predicate ) {
+			if( isFlatStrategy() ) {
+				for( int t = -1; ( t = unsafe_token( t ) ) != -1; )
+					if( !predicate.test( key( t ), value( t ) ) ) return false;
+				return true;
+			}
+			
+			if( _count() == 0 ) return true;
+			for( int i = 0; i < _lo_Size; i++ )
+				if( !predicate.test( keys[ i ], values[ i ] ) ) return false;
+			for( int i = keys.length - _hi_Size; i < keys.length; i++ )
+				if( !predicate.test( keys[ i ], values[ i ] ) ) return false;
+			return true;
+		}
+		
 		/**
 		 * Computes a hash code for this map.
 		 * The hash code is calculated based on all key-value pairs, including the null key if present.
@@ -684,7 +897,7 @@ public interface CharCharMap {
 		 * @param hash The hash value of a key.
 		 * @return The calculated bucket index.
 		 */
-		protected int bucketIndex( int hash ) { return ( hash & 0x7FFF_FFFF ) % _buckets.length; }
+		protected int bucketIndex( int hash ) { return Array.mod( hash & 0x7FFF_FFFF, _bucketsMultiplier, _buckets.length ); }
 		
 		
 		/**
@@ -815,6 +1028,7 @@ public interface CharCharMap {
 			}
 			nulls    = null;
 			_buckets = new char[ capacity ];
+			_bucketsMultiplier = Array.modMultiplier( capacity );
 			if( links == null ) links = Array.EqualHashOf._chars.O;
 			keys     = new char[ capacity ];
 			values   = new char[ capacity ];
@@ -937,6 +1151,107 @@ public interface CharCharMap {
 		}
 		
 		
+		/**
+		 * Associates the value with the key only if the key is absent.
+		 *
+		 * @param key   The key.
+		 * @param value The value to associate with the key.
+		 * @return {@code true} if the key was added, {@code false} if it was present and its value left unchanged.
+		 */
+		public boolean putIfAbsent( char key, char value ) {
+			return tokenOf( key ) == INVALID_TOKEN && put( key, value );
+		}
+		
+		
+		/**
+		 * Adds {@code delta} to the value of the key, associating an absent key with {@code delta}.
+		 *
+		 * @param key   The key.
+		 * @param delta The amount to add.
+		 * @return The new value of the key.
+		 */
+		public char addTo( char key, char delta ) {
+			long token = tokenOf( key );
+			if( token == INVALID_TOKEN ) {
+				put( key, delta );
+				return delta;
+			}
+			
+			_version++;
+			return values[ index( token ) ] += delta;
+		}
+		
+		
+		/**
+		 * Returns the value of the key, first associating an absent key with the value computed by {@code mapping}.
+		 *
+		 * @param key     The key.
+		 * @param mapping Computes the value of an absent key. It must not modify this map.
+		 * @return The current, or the newly computed, value of the key.
+		 * @throws ConcurrentModificationException if {@code mapping} modified this map.
+		 */
+		public char computeIfAbsent( char key, Mapping mapping ) {
+			long token = tokenOf( key );
+			if( token != INVALID_TOKEN ) return value( token );
+			
+			int  version = _version;
+			char value   = mapping.apply( key );
+			if( version != _version ) throw new ConcurrentModificationException( "The mapping function modified the map." );
+			
+			put( key, value );
+			return value;
+		}
+		
+		
+		/**
+		 * Replaces the value of a present key with the value computed by {@code remapping}. An absent key is left
+		 * absent.
+		 *
+		 * @param key       The key.
+		 * @param remapping Computes the new value from the key and its current value. It must not modify this map.
+		 * @return {@code true} if the key was present and its value replaced.
+		 * @throws ConcurrentModificationException if {@code remapping} modified this map.
+		 */
+		public boolean computeIfPresent( char key, Remapping remapping ) {
+			long token = tokenOf( key );
+			if( token == INVALID_TOKEN ) return false;
+			
+			int  version = _version;
+			char value   = remapping.apply( key, value( token ) );
+			if( version != _version ) throw new ConcurrentModificationException( "The remapping function modified the map." );
+			
+			values[ index( token ) ] = value;
+			_version++;
+			return true;
+		}
+		
+		
+		/**
+		 * Associates an absent key with {@code value}, or replaces the value of a present key with the result of
+		 * {@code merging} its current value with {@code value}.
+		 *
+		 * @param key     The key.
+		 * @param value   The value to associate with an absent key, or to merge with the current one.
+		 * @param merging Combines the current value with {@code value}. It must not modify this map.
+		 * @return The new value of the key.
+		 * @throws ConcurrentModificationException if {@code merging} modified this map.
+		 */
+		public char merge( char key, char value, Merging merging ) {
+			long token = tokenOf( key );
+			if( token == INVALID_TOKEN ) {
+				put( key, value );
+				return value;
+			}
+			
+			int  version = _version;
+			char merged  = merging.apply( value( token ), value );
+			if( version != _version ) throw new ConcurrentModificationException( "The merging function modified the map." );
+			
+			_version++;
+			return values[ index( token ) ] = merged;
+		}
+		
+		
 		/**
 		 * Removes the mapping for the specified key from this map if present.
 		 * Handles {@code null} keys.
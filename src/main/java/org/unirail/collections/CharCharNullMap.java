@@ -21,6 +21,9 @@ import org.unirail.JsonWriter;
 
 import java.util.Arrays;
 import java.util.ConcurrentModificationException;
+import java.util.Spliterator;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
 
 /**
  * A specialized map for mapping primitive keys to primitive values.
@@ -179,6 +182,38 @@ import java.util.ConcurrentModificationException;
  */
 public interface CharCharNullMap {
 	
+	/**
+	 * Computes the value of an absent key for {@link RW#computeIfAbsent(char, Mapping)}.
+	 */
+	@FunctionalInterface
+	interface Mapping {
+		char apply( char key );
+	}
+
+	/**
+	 * Computes the new value of a present key for {@link RW#computeIfPresent(char, Remapping)}.
+	 */
+	@FunctionalInterface
+	interface Remapping {
+		char apply( char key, char value );
+	}
+
+	/**
+	 * Combines the current value of a present key with a given value for {@link RW#merge(char, char, Merging)}.
+	 */
+	@FunctionalInterface
+	interface Merging {
+		char apply( char oldValue, char value );
+	}
+
+	/**
+	 * Receives the keys visited by {@link R#forEachKey(KeyConsumer)}.
+	 */
+	@FunctionalInterface
+	interface KeyConsumer {
+		void accept( char key );
+	}
+	
 	
 	abstract class R implements Cloneable, JsonWriter.Source {
 		
@@ -196,6 +231,11 @@ public interface CharCharNullMap {
 		 * indicating the head of a collision chain for each bucket, or 0 if the bucket is empty.
 		 */
 		protected char[]                 _buckets;
+		/**
+		 * The {@link Array#modMultiplier(int)} of {@code _buckets.length}, used by {@link #bucketIndex(int)}
+		 * to reduce hashes to bucket indices without an integer division.
+		 */
+		protected long                   _bucketsMultiplier;
 		/**
 		 * Internal array used to manage collision chains in hash map mode. Each entry stores the 0-based index
 		 * of the next entry in its chain.
@@ -455,6 +495,22 @@ public interface CharCharNullMap {
 		}
 		
 		
+		/**
+		 * Returns the value of the specified primitive key, or {@code defaultValue} if the key is absent or mapped to
+		 * null.
+		 *
+		 * @param key          The primitive key to search for.
+		 * @param defaultValue The value to return if the key is absent or mapped to null.
+		 * @return The value of the key, or {@code defaultValue}.
+		 */
+		public char getOrDefault( char key, char defaultValue ) {
+			long token = tokenOf( key );
+			return token == INVALID_TOKEN || !hasValue( token ) ?
+			       defaultValue :
+			       value( token );
+		}
+		
+		
 		/**
 		 * Returns the first valid token for iterating over map entries (excluding the null key).
 		 * Call {@link #token(long)} subsequently to get the next token.
@@ -602,6 +658,54 @@ public interface CharCharNullMap {
 					keys[ index( token ) ] );
 		}
 		
+		/**
+		 * Returns a spliterator over the keys of the map, the null key excluded; check {@link #hasNullKey()}.
+		 * In hash mode it splits the occupied slots of the {@code lo Region} and {@code hi Region} in halves, as if
+		 * they were one array; in flat mode it walks the set bits with {@link #unsafe_token(int)}. It reports
+		 * {@code DISTINCT}, {@code SIZED}, {@code SUBSIZED} and {@code NONNULL}. The map must not be modified while it
+		 * is in use.
+		 *
+		 * @return A spliterator over the keys.
+		 */
+		public Spliterator.OfInt spliterator() {
+			if( isFlatStrategy() ) return Array.spliterator( flat_count, this::unsafe_token, this::key );
+		
+			int lo  = _lo_Size;
+			int gap = _count() == 0 ?
+			          0 :
+			          keys.length - _hi_Size - lo; // skips the free slots between the regions
+			return new Array.IntSpliterator( 0, _count(), Spliterator.DISTINCT | Spliterator.NONNULL, i -> key( i < lo ? i : i + gap ) );
+		}
+		
+		/**
+		 * Returns a sequential {@link IntStream} over the keys of the map, the null key excluded, without boxing. Call
+		 * {@code parallel()} on it to run it on the common fork-join pool. The map must not be modified while the stream
+		 * is in use.
+		 *
+		 * @return A stream over the keys.
+		 */
+		public IntStream keys() { return StreamSupport.intStream( spliterator(), false ); }
+		
+		/**
+		 * Passes every key to the action, the null key excluded. Loops directly over the key array, or the key bits in the
+		 * flat strategy, without tokens or version checks, so the action must not modify the map.
+		 *
+		 * @param action The receiver of the keys.
+		 */
+		public void forEachKey( KeyConsumer action ) {
+			if( isFlatStrategy() ) {
+				for( int t = -1; ( t = unsafe_token( t ) ) != -1; )
+					action.accept( key( t ) );
+				return;
+			}
+			
+			if( _count() == 0 ) return;
+			for( int i = 0; i < _lo_Size; i++ )
+				action.accept( keys[ i ] );
+			for( int i = keys.length - _hi_Size; i < keys.length; i++ )
+				action.accept( keys[ i ] );
+		}
+		
 		/**
 		 * Checks if the entry associated with the given token has a non-null value.
 		 * Handles both regular tokens and the special null key token.
@@ -784,7 +888,7 @@ public interface CharCharNullMap {
 		 * @param hash The hash value of a key.
 		 * @return The calculated bucket index.
 		 */
-		protected int bucketIndex( int hash ) { return ( hash & 0x7FFF_FFFF ) % _buckets.length; }
+		protected int bucketIndex( int hash ) { return Array.mod( hash & 0x7FFF_FFFF, _bucketsMultiplier, _buckets.length ); }
 		
 		
 		/**
@@ -885,6 +989,7 @@ public interface CharCharNullMap {
 			}
 			nullsKey = null;
 			_buckets = new char[ capacity ];
+			_bucketsMultiplier = Array.modMultiplier( capacity );
 			if( links == null ) links = Array.EqualHashOf._chars.O;
 			keys     = new char[ capacity ];
 			values   = new char[ capacity ];
@@ -1111,6 +1216,130 @@ public interface CharCharNullMap {
 		}
 		
 		
+		/**
+		 * Maps the present key at the given index to a non-null value.
+		 *
+		 * @param index The index of the key's entry, as returned by {@link #index(long)}.
+		 * @param value The value.
+		 * @return The value, as stored.
+		 */
+		private char set( int index, char value ) {
+			nullsVal[ index >> 6 ] |= 1L << index;
+			_version++;
+			return values[ index ] = value;
+		}
+		
+		
+		/**
+		 * Associates the value with the key only if the key is absent or mapped to null.
+		 *
+		 * @param key   The key.
+		 * @param value The value to associate with the key.
+		 * @return {@code true} if the value was associated, {@code false} if the key was mapped to a non-null value
+		 *         and left unchanged.
+		 */
+		public boolean putIfAbsent( char key, char value ) {
+			long token = tokenOf( key );
+			if( token == INVALID_TOKEN ) put( key, value );
+			else if( !hasValue( token ) ) set( index( token ), value );
+			else return false;
+			return true;
+		}
+		
+		
+		/**
+		 * Adds {@code delta} to the value of the key, associating a key that is absent or mapped to null with
+		 * {@code delta}.
+		 *
+		 * @param key   The key.
+		 * @param delta The amount to add.
+		 * @return The new value of the key.
+		 */
+		public char addTo( char key, char delta ) {
+			long token = tokenOf( key );
+			if( token == INVALID_TOKEN ) {
+				put( key, delta );
+				return delta;
+			}
+			if( !hasValue( token ) ) return set( index( token ), delta );
+			
+			_version++;
+			return values[ index( token ) ] += delta;
+		}
+		
+		
+		/**
+		 * Returns the non-null value of the key, first associating a key that is absent or mapped to null with the
+		 * value computed by {@code mapping}.
+		 *
+		 * @param key     The key.
+		 * @param mapping Computes the value of a key that is absent or mapped to null. It must not modify this map.
+		 * @return The current, or the newly computed, value of the key.
+		 * @throws ConcurrentModificationException if {@code mapping} modified this map.
+		 */
+		public char computeIfAbsent( char key, Mapping mapping ) {
+			long token = tokenOf( key );
+			if( token != INVALID_TOKEN && hasValue( token ) ) return value( token );
+			
+			int  version = _version;
+			char value   = mapping.apply( key );
+			if( version != _version ) throw new ConcurrentModificationException( "The mapping function modified the map." );
+			
+			if( token != INVALID_TOKEN ) return set( index( token ), value );
+			put( key, value );
+			return value;
+		}
+		
+		
+		/**
+		 * Replaces the non-null value of a key with the value computed by {@code remapping}. A key that is absent or
+		 * mapped to null is left as it is.
+		 *
+		 * @param key       The key.
+		 * @param remapping Computes the new value from the key and its current value. It must not modify this map.
+		 * @return {@code true} if the key was mapped to a non-null value, now replaced.
+		 * @throws ConcurrentModificationException if {@code remapping} modified this map.
+		 */
+		public boolean computeIfPresent( char key, Remapping remapping ) {
+			long token = tokenOf( key );
+			if( token == INVALID_TOKEN || !hasValue( token ) ) return false;
+			
+			int  version = _version;
+			char value   = remapping.apply( key, value( token ) );
+			if( version != _version ) throw new ConcurrentModificationException( "The remapping function modified the map." );
+			
+			set( index( token ), value );
+			return true;
+		}
+		
+		
+		/**
+		 * Associates a key that is absent or mapped to null with {@code value}, or replaces the non-null value of a
+		 * key with the result of {@code merging} it with {@code value}.
+		 *
+		 * @param key     The key.
+		 * @param value   The value to associate with a key that is absent or mapped to null, or to merge with the
+		 *                current one.
+		 * @param merging Combines the current value with {@code value}. It must not modify this map.
+		 * @return The new value of the key.
+		 * @throws ConcurrentModificationException if {@code merging} modified this map.
+		 */
+		public char merge( char key, char value, Merging merging ) {
+			long token = tokenOf( key );
+			if( token == INVALID_TOKEN ) {
+				put( key, value );
+				return value;
+			}
+			if( !hasValue( token ) ) return set( index( token ), value );
+			
+			int  version = _version;
+			char merged  = merging.apply( value( token ), value );
+			if( version != _version ) throw new ConcurrentModificationException( "The merging function modified the map." );
+			
+			return set( index( token ), merged );
+		}
+		
+		
 		/**
 		 * Removes the mapping for the specified boxed key from this map if present.
 		 * Handles {@code null} keys.
@@ -1500,13 +1729,9 @@ public interface CharCharNullMap {
 			if( links.length < 0xFF && links.length < _buckets.length ) links = _buckets;//reuse buckets as links
 			initialize( newSize );
 			
-			int  nulls_idx = 0;
-			long bits      = old_nullsVal[ nulls_idx ];
 			// Copy entries from the old lo Region to the new structure
 			for( int i = 0; i < old_lo_Size; i++ )
-				if( ( ( i >> 6 == nulls_idx ?
-				        bits :
-				        ( bits = old_nullsVal[ ++nulls_idx >> 6 ] ) ) & 1L << i ) != 0 )
+				if( ( old_nullsVal[ i >> 6 ] & 1L << i ) != 0 )
 					copy( ( char ) old_keys[ i ], ( char ) old_values[ i ], true );
 				else
 					copy( ( char ) old_keys[ i ], ( char ) 0, false );
@@ -1514,9 +1739,7 @@ public interface CharCharNullMap {
 			
 			// Copy entries from the old hi Region to the new structure
 			for( int i = old_keys.length - old_hi_Size; i < old_keys.length; i++ )
-				if( ( ( i >> 6 == nulls_idx ?
-				        bits :
-				        ( bits = old_nullsVal[ ++nulls_idx >> 6 ] ) ) & 1L << i ) != 0 )
+				if( ( old_nullsVal[ i >> 6 ] & 1L << i ) != 0 )
 					copy( ( char ) old_keys[ i ], ( char ) old_values[ i ], true );
 				else
 					copy( ( char ) old_keys[ i ], ( char ) 0, false );
@@ -21,6 +21,9 @@ import org.unirail.JsonWriter;
 
 import java.util.Arrays;
 import java.util.ConcurrentModificationException;
+import java.util.Spliterator;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
 
 /**
  * A specialized set for storing primitive keys (e.g., 2-byte values).
@@ -165,6 +168,22 @@ import java.util.ConcurrentModificationException;
  */
 public interface CharSet {
 	
+	/**
+	 * Receives the keys visited by {@link R#forEach(Consumer)}.
+	 */
+	@FunctionalInterface
+	interface Consumer {
+		void accept( char key );
+	}
+	
+	/**
+	 * Tests the keys visited by {@link R#forEachWhile(Predicate)}.
+	 */
+	@FunctionalInterface
+	interface Predicate {
+		boolean test( char key );
+	}
+	
 	/**
 	 * {@code R} is a read-only abstract base class that implements the core functionalities and state management for
 	 * a set of primitive keys. It handles the underlying structure which can be either a hash set or a flat bitset.
@@ -182,6 +201,7 @@ public interface CharSet {
 		protected boolean hasNullKey;          // Indicates if the set contains a null key.
 		
 		protected char[]         _buckets;            // Hash table buckets array (1-based indices to chain heads). Stores 0-based indices plus one.
+		protected long           _bucketsMultiplier;  // Precomputed Array.modMultiplier( _buckets.length ) for division-free bucket indexing.
 		protected char[] keys;                // Stores the primitive keys in the set.
 		protected char[]         links= Array.EqualHashOf._chars.O;;               // Links within collision chains. Stores 0-based indices.
 		
@@ -516,6 +536,137 @@ public interface CharSet {
 			return true; // All keys match
 		}
 		
+		/**
+		 * Returns {@code true} if this set contains every key of {@code src}, the null key included.
+		 * Two flat sets are compared word by word; otherwise the keys of {@code src} are walked directly,
+		 * without the version checks of token iteration.
+		 *
+		 * @param src the set whose keys are looked up.
+		 * @return {@code true} if {@code src} is a subset of this set.
+		 */
+		public boolean containsAll( R src ) {
+			if( src == this || src == null ) return true;
+			if( size() < src.size() || src.hasNullKey && !hasNullKey ) return false;
+			
+			if( isFlatStrategy() && src.isFlatStrategy() ) {
+				for( int i = 0; i < NULLS_SIZE; i++ )
+					if( ( src.nulls[ i ] & ~nulls[ i ] ) != 0 ) return false;
+				return true;
+			}
+			
+			for( int token = -1; ( token = src.unsafe_token( token ) ) != -1; )
+				if( !contains( ( char ) ( src.isFlatStrategy() ?
+				                        token :
+				                        src.keys[ token ] ) ) ) return false;
+			return true;
+		}
+		
+		/**
+		 * Returns {@code true} if this set and {@code other} share at least one key, the null key included.
+		 * Two flat sets are compared word by word; otherwise the smaller set is walked and its keys are looked up in the larger one.
+		 *
+		 * @param other the set to check against.
+		 * @return {@code true} if the intersection of the two sets is not empty.
+		 */
+		public boolean intersects( R other ) {
+			if( other == null ) return false;
+			if( other == this ) return !isEmpty();
+			if( hasNullKey && other.hasNullKey ) return true;
+			
+			if( isFlatStrategy() && other.isFlatStrategy() ) {
+				for( int i = 0; i < NULLS_SIZE; i++ )
+					if( ( nulls[ i ] & other.nulls[ i ] ) != 0 ) return true;
+				return false;
+			}
+			
+			R walk = other.size() < size() ?
+			         other :
+			         this;
+			R look = walk == this ?
+			         other :
+			         this;
+			for( int token = -1; ( token = walk.unsafe_token( token ) ) != -1; )
+				if( look.contains( ( char ) ( walk.isFlatStrategy() ?
+				                            token :
+				                            walk.keys[ token ] ) ) ) return true;
+			return false;
+		}
+		
+		/**
+		 * Returns a spliterator over the keys of the set, the null key excluded; check {@link #hasNullKey()}.
+		 * In hash mode it splits the occupied slots of the {@code lo Region} and {@code hi Region} in halves; in flat mode it walks the
+		 * set bits with {@link #unsafe_token(int)}. It reports {@code DISTINCT}, {@code SIZED}, {@code SUBSIZED} and
+		 * {@code NONNULL}. The set must not be modified while it is in use.
+		 *
+		 * @return A spliterator over the keys.
+		 */
+		public Spliterator.OfInt spliterator() {
+			if( isFlatStrategy() ) return Array.spliterator( flat_count, this::unsafe_token, this::key );
+			
+			char[] keys = this.keys;
+			int    lo   = _lo_Size;
+			int    gap  = _count() == 0 ?
+			              0 :
+			              keys.length - _hi_Size - lo; // skips the free slots between the regions
+			return new Array.IntSpliterator( 0, _count(), Spliterator.DISTINCT | Spliterator.NONNULL, i -> keys[ i < lo ? i : i + gap ] );
+		}
+		
+		/**
+		 * Returns a sequential {@link IntStream} over the keys of the set, the null key excluded, without boxing.
+		 *
+		 * @return A stream over the keys.
+		 */
+		public IntStream stream() { return StreamSupport.intStream( spliterator(), false ); }
+		
+		/**
+		 * Returns a parallel {@link IntStream} over the keys of the set, the null key excluded, which runs on the common
+		 * fork-join pool.
+		 *
+		 * @return A parallel stream over the keys.
+		 */
+		public IntStream parallelStream() { return StreamSupport.intStream( spliterator(), true ); }
+		
+		/**
+		 * Passes every key to the action, the null key excluded. Loops directly over the key array, or the key bits in the
+		 * flat strategy, without tokens or version checks, so the action must not modify the set.
+		 *
+		 * @param action The receiver of the keys.
+		 */
+		public void forEach( Consumer action ) {
+			if( isFlatStrategy() ) {
+				for( int t = -1; ( t = unsafe_token( t ) ) != -1; )
+					action.accept( key( t ) );
+				return;
+			}
+			
+			if( _count() == 0 ) return;
+			for( int i = 0; i < _lo_Size; i++ )
+				action.accept( keys[ i ] );
+			for( int i = keys.length - _hi_Size; i < keys.length; i++ )
+				action.accept( keys[ i ] );
+		}
+		
+		/**
+		 * Passes the keys to the predicate, in the order of {@link #forEach(Consumer)}, until it returns {@code false}.
+		 *
+		 * @param predicate The test of the keys.
+		 * @return {@code true} if the predicate accepted every key, {@code false} if it stopped the iteration.
+		 */
+		public boolean forEachWhile( Predicate predicate ) {
+			if( isFlatStrategy() ) {
+				for( int t = -1; ( t = unsafe_token( t ) ) != -1; )
+					if( !predicate.test( key( t ) ) ) return false;
+				return true;
+			}
+			
+			if( _count() == 0 ) return true;
+			for( int i = 0; i < _lo_Size; i++ )
+				if( !predicate.test( keys[ i ] ) ) return false;
+			for( int i = keys.length - _hi_Size; i < keys.length; i++ )
+				if( !predicate.test( keys[ i ] ) ) return false;
+			return true;
+		}
+		
 		/**
 		 * Creates and returns a deep copy of this set.
 		 * All internal arrays are cloned, ensuring the cloned set is independent of the original.
@@ -585,7 +736,7 @@ public interface CharSet {
 		 * @param hash The hash value of a key.
 		 * @return The calculated bucket index.
 		 */
-		protected int bucketIndex( int hash ) { return ( hash & 0x7FFF_FFFF ) % _buckets.length; }
+		protected int bucketIndex( int hash ) { return Array.mod( hash & 0x7FFF_FFFF, _bucketsMultiplier, _buckets.length ); }
 		
 		/**
 		 * Packs an internal array index and the current set version into a single {@code long} token.
@@ -710,6 +861,7 @@ public interface CharSet {
 			}
 			nulls    = null;
 			_buckets = new char[ capacity ];
+			_bucketsMultiplier = Array.modMultiplier( capacity );
 			if( links == null ) links = Array.EqualHashOf._chars.O;
 			keys     = new char[ capacity ];
 			_lo_Size = 0;
@@ -1003,6 +1155,151 @@ public interface CharSet {
 		}
 		
 		
+		/**
+		 * Adds every key of {@code src} to this set, the null key included.
+		 * Two flat sets are merged word by word; otherwise the keys of {@code src} are walked directly,
+		 * without the version checks of token iteration.
+		 *
+		 * @param src the set whose keys are added.
+		 * @return This set.
+		 */
+		public RW addAll( R src ) {
+			if( src == this || src == null ) return this;
+			if( src.hasNullKey ) addNullKey();
+			
+			ensureCapacity( Math.max( size(), src.size() ) );
+			if( isFlatStrategy() && src.isFlatStrategy() ) {
+				int count = 0;
+				for( int i = 0; i < NULLS_SIZE; i++ ) count += Long.bitCount( nulls[ i ] |= src.nulls[ i ] );
+				flat_count = count;
+				_version++;
+				return this;
+			}
+			
+			for( int token = -1; ( token = src.unsafe_token( token ) ) != -1; )
+			     add( ( char ) ( src.isFlatStrategy() ?
+			                   token :
+			                   src.keys[ token ] ) );
+			return this;
+		}
+		
+		/**
+		 * Removes every key of {@code src} from this set, the null key included.
+		 * Two flat sets are combined word by word; otherwise the smaller set is walked.
+		 *
+		 * @param src the set whose keys are removed.
+		 * @return {@code true} if this set changed.
+		 */
+		public boolean removeAll( R src ) {
+			if( src == null ) return false;
+			if( src == this ) {
+				boolean modified = !isEmpty();
+				clear();
+				return modified;
+			}
+			
+			boolean modified = src.hasNullKey && removeNullKey();
+			if( isFlatStrategy() && src.isFlatStrategy() ) return and( src.nulls, true ) || modified;
+			if( isFlatStrategy() || size() <= src.size() ) return removeIf( src, true ) || modified;
+			
+			for( int token = -1; ( token = src.unsafe_token( token ) ) != -1; )
+				if( remove( ( char ) ( src.isFlatStrategy() ?
+				                     token :
+				                     src.keys[ token ] ) ) ) modified = true;
+			return modified;
+		}
+		
+		/**
+		 * Retains only the keys of this set that are also in {@code src}, the null key included; a {@code null} {@code src}
+		 * clears the set. Two flat sets are combined word by word; otherwise the smaller set is walked: the keys of this
+		 * set are looked up in {@code src}, or the keys of {@code src} found in this set are collected and this set is
+		 * refilled with them.
+		 *
+		 * @param src the set whose keys are retained.
+		 * @return {@code true} if this set changed.
+		 */
+		public boolean retainAll( R src ) {
+			if( src == this ) return false;
+			if( src == null ) {
+				boolean modified = !isEmpty();
+				clear();
+				return modified;
+			}
+			
+			boolean modified = hasNullKey && !src.hasNullKey && removeNullKey();
+			if( isFlatStrategy() && src.isFlatStrategy() ) return and( src.nulls, false ) || modified;
+			if( isFlatStrategy() || size() <= src.size() ) return removeIf( src, false ) || modified;
+			
+			char[] kept = new char[ src.size() ]; // fewer keys than this set has, so it shrinks
+			int    n    = 0;
+			for( int token = -1; ( token = src.unsafe_token( token ) ) != -1; ) {
+				char key = ( char ) ( src.isFlatStrategy() ?
+				                      token :
+				                      src.keys[ token ] );
+				if( contains( key ) ) kept[ n++ ] = key;
+			}
+			
+			boolean nullKey = hasNullKey;
+			clear();
+			hasNullKey = nullKey;
+			for( int i = 0; i < n; i++ ) add( kept[ i ] );
+			return true;
+		}
+		
+		/**
+		 * In flat mode, keeps the keys that are ({@code not == false}) or are not set in {@code words}.
+		 */
+		private boolean and( long[] words, boolean not ) {
+			int count = 0;
+			for( int i = 0; i < NULLS_SIZE; i++ )
+			     count += Long.bitCount( nulls[ i ] &= not ?
+			                                           ~words[ i ] :
+			                                           words[ i ] );
+			if( count == flat_count ) return false;
+			flat_count = count;
+			_version++;
+			return true;
+		}
+		
+		/**
+		 * Removes the non-null keys whose presence in {@code src} is {@code present}. In flat mode the bits are cleared
+		 * during the walk; in hash mode the keys are collected first and removed after the walk, as every removal moves
+		 * another entry into the vacated slot.
+		 */
+		private boolean removeIf( R src, boolean present ) {
+			if( isFlatStrategy() ) {
+				int count = flat_count;
+				for( int token = -1; ( token = next1( token ) ) != -1; )
+					if( src.contains( ( char ) token ) == present ) {
+						exists0( ( char ) token );
+						flat_count--;
+					}
+				if( count == flat_count ) return false;
+				_version++;
+				return true;
+			}
+			if( _count() == 0 ) return false;
+			
+			char[] doomed = new char[ 16 ];
+			int  n      = 0;
+			for( int token = -1; ( token = unsafe_token( token ) ) != -1; )
+				if( src.contains( keys[ token ] ) == present ) {
+					if( n == doomed.length ) doomed = Arrays.copyOf( doomed, n * 2 );
+					doomed[ n++ ] = keys[ token ];
+				}
+			if( n == 0 ) return false;
+			
+			if( n == _count() ) {
+				boolean nullKey = hasNullKey;
+				clear();
+				hasNullKey = nullKey;
+				return true;
+			}
+			for( int i = 0; i < n; i++ ) remove( doomed[ i ] );
+			return true;
+		}
+		
+		
 		/**
 		 * Returns an array containing all of the primitive keys in this set.
 		 * The order of keys is not guaranteed.
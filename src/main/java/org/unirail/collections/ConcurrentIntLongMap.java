@@ -0,0 +1,225 @@
+// Copyright 2025 Chikirev Sirguy, Unirail Group
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+// For inquiries, please contact: al8v5C6HU4UtqE9@gmail.com
+// GitHub Repository: https://github.com/AdHoc-Protocol
+
+package org.unirail.collections;
+
+import org.unirail.JsonWriter;
+
+/**
+ * A thread-safe map from primitive {@code int} keys to primitive {@code long} values, built from a power-of-two
+ * number of independently locked segments. Every segment is an ordinary {@link IntLongMap.RW}.
+ * <p>
+ * A key always lives in the segment selected by its {@link Array.Hash#MURMUR} hash. Operations on keys of
+ * different segments never contend, so write throughput grows with the number of segments up to the number of cores.
+ * Every method locks at most one segment at a time, and no value is boxed.
+ * <p>
+ * The null key is not supported. {@link #size()}, {@link #forEach(Consumer)} and {@link #toJSON(JsonWriter)} visit
+ * the segments one after another and are weakly consistent: they reflect every update completed before the call
+ * and may or may not reflect updates made concurrently.
+ */
+public class ConcurrentIntLongMap implements JsonWriter.Source {
+	
+	/**
+	 * The segments. Each one is guarded by its own monitor.
+	 */
+	protected final IntLongMap.RW[] segments;
+	
+	/**
+	 * The number of segments minus one. The number of segments is always a power of two.
+	 */
+	protected final int segmentMask;
+	
+	/**
+	 * Receives the entries visited by {@link #forEach(Consumer)}.
+	 */
+	@FunctionalInterface
+	public interface Consumer {
+		void accept( int key, long value );
+	}
+	
+	/**
+	 * Constructs an empty map with four segments per available processor.
+	 */
+	public ConcurrentIntLongMap() { this( Runtime.getRuntime().availableProcessors() * 4, 0 ); }
+	
+	/**
+	 * Constructs an empty map.
+	 *
+	 * @param concurrency The expected number of concurrently writing threads, rounded up to a power of two segments.
+	 * @param capacity    The expected total number of entries.
+	 * @throws IllegalArgumentException If {@code concurrency} is not positive or {@code capacity} is negative.
+	 */
+	public ConcurrentIntLongMap( int concurrency, int capacity ) {
+		if( concurrency < 1 ) throw new IllegalArgumentException( "concurrency must be positive" );
+		if( capacity < 0 ) throw new IllegalArgumentException( "capacity is less than 0." );
+		int count = ( int ) Array.nextPowerOf2( Math.min( concurrency, 1 << 16 ) );
+		segments    = new IntLongMap.RW[ count ];
+		segmentMask = count - 1;
+		for( int i = 0; i < count; i++ ) segments[ i ] = new IntLongMap.RW( ( capacity + count - 1 ) / count );
+	}
+	
+	/**
+	 * Returns the segment that owns the given key.
+	 */
+	protected IntLongMap.RW segment( int key ) { return segments[ Array.Hash.MURMUR.hash( key ) & segmentMask ]; }
+	
+	/**
+	 * Returns the value mapped to the key, or {@code defaultValue} if the key is absent.
+	 *
+	 * @param key          The key.
+	 * @param defaultValue The value returned if the key is absent.
+	 * @return The mapped value, or {@code defaultValue}.
+	 */
+	public long get( int key, long defaultValue ) {
+		IntLongMap.RW segment = segment( key );
+		synchronized( segment ) {
+			long token = segment.tokenOf( key );
+			return token == IntLongMap.R.INVALID_TOKEN ?
+			       defaultValue :
+			       segment.value( token );
+		}
+	}
+	
+	/**
+	 * Returns {@code true} if the key is present.
+	 *
+	 * @param key The key.
+	 * @return {@code true} if the map contains the key.
+	 */
+	public boolean containsKey( int key ) {
+		IntLongMap.RW segment = segment( key );
+		synchronized( segment ) { return segment.containsKey( key ); }
+	}
+	
+	/**
+	 * Maps the key to the value, replacing any previous value.
+	 *
+	 * @param key   The key.
+	 * @param value The value.
+	 * @return {@code true} if the key was absent, {@code false} if its value was replaced.
+	 */
+	public boolean put( int key, long value ) {
+		IntLongMap.RW segment = segment( key );
+		synchronized( segment ) { return segment.put( key, value ); }
+	}
+	
+	/**
+	 * Atomically maps the key to the value if the key is absent.
+	 *
+	 * @param key   The key.
+	 * @param value The value.
+	 * @return {@code true} if the mapping was added, {@code false} if the key was already present and was left unchanged.
+	 */
+	public boolean putIfAbsent( int key, long value ) {
+		IntLongMap.RW segment = segment( key );
+		synchronized( segment ) { return segment.putIfAbsent( key, value ); }
+	}
+	
+	/**
+	 * Atomically adds {@code delta} to the value mapped to the key. An absent key is treated as mapped to {@code 0}.
+	 *
+	 * @param key   The key.
+	 * @param delta The increment.
+	 * @return The new value.
+	 */
+	public long addTo( int key, long delta ) {
+		IntLongMap.RW segment = segment( key );
+		synchronized( segment ) { return segment.addTo( key, delta ); }
+	}
+	
+	/**
+	 * Removes the key.
+	 *
+	 * @param key The key.
+	 * @return {@code true} if the key was present.
+	 */
+	public boolean remove( int key ) {
+		IntLongMap.RW segment = segment( key );
+		synchronized( segment ) { return segment.remove( key ); }
+	}
+	
+	/**
+	 * Returns the number of entries, summed segment by segment.
+	 *
+	 * @return The number of entries.
+	 */
+	public int size() {
+		int size = 0;
+		for( IntLongMap.RW segment : segments )
+			synchronized( segment ) { size += segment.size(); }
+		return size;
+	}
+	
+	/**
+	 * Returns {@code true} if the map has no entries.
+	 *
+	 * @return {@code true} if the map is empty.
+	 */
+	public boolean isEmpty() {
+		for( IntLongMap.RW segment : segments )
+			synchronized( segment ) { if( 0 < segment.size() ) return false; }
+		return true;
+	}
+	
+	/**
+	 * Removes all entries, segment by segment.
+	 */
+	public void clear() {
+		for( IntLongMap.RW segment : segments )
+			synchronized( segment ) { segment.clear(); }
+	}
+	
+	/**
+	 * Passes every entry to the action. The entries of a segment are copied out under its lock and the action runs
+	 * unlocked, so it may update this map.
+	 *
+	 * @param action The receiver of the entries.
+	 */
+	public void forEach( Consumer action ) {
+		int[]  keys   = null;
+		long[] values = null;
+		for( IntLongMap.RW segment : segments ) {
+			int size = 0;
+			synchronized( segment ) {
+				if( segment.size() == 0 ) continue;
+				if( keys == null || keys.length < segment.size() ) {
+					keys   = new int[ segment.size() ];
+					values = new long[ segment.size() ];
+				}
+				for( long token = segment.token(); token != IntLongMap.R.INVALID_TOKEN; token = segment.token( token ), size++ ) {
+					keys[ size ]   = segment.key( token );
+					values[ size ] = segment.value( token );
+				}
+			}
+			for( int i = 0; i < size; i++ ) action.accept( keys[ i ], values[ i ] );
+		}
+	}
+	
+	@Override
+	public void toJSON( JsonWriter json ) {
+		json.enterObject();
+		for( IntLongMap.RW segment : segments )
+			synchronized( segment ) {
+				for( long token = segment.token(); token != IntLongMap.R.INVALID_TOKEN; token = segment.token( token ) )
+				     json.name( segment.key( token ) ).value( segment.value( token ) );
+			}
+		json.exitObject();
+	}
+	
+	@Override
+	public String toString() { return toJSON(); }
+}
@@ -0,0 +1,749 @@
+// Copyright 2025 Chikirev Sirguy, Unirail Group
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+// For inquiries, please contact: al8v5C6HU4UtqE9@gmail.com
+// GitHub Repository: https://github.com/AdHoc-Protocol
+
+package org.unirail.collections;
+
+import org.unirail.JsonWriter;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ConcurrentModificationException;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * A lock-free, thread-safe {@code long}-to-{@code long} map for read-mostly workloads. Lookups are wait-free and
+ * never write shared memory, so any number of reader threads scale with the number of cores while writers update
+ * the map concurrently.
+ * <p>
+ * It extends {@link LongLongMap.R}: readers written against {@code LongLongMap.R} keep working, and the null key is kept in
+ * the inherited {@code hasNullKey}/{@code nullKeyValue} fields.
+ *
+ * <h3>Layout</h3>
+ * <ul>
+ * <li>A {@link Table} is a power-of-two open-addressing table in one {@code long[]}: slot {@code i} keeps its key at
+ *     {@code i * 3}, its value at {@code i * 3 + 1} and its state word at {@code i * 3 + 2}. The slot at index
+ *     {@code length} is reserved for the {@code 0} key, so a key of {@code 0} marks a never-claimed slot.</li>
+ * <li>A key is claimed by a CAS on its key word and keeps its slot until the next resize; removal only flips the
+ *     state word. The state word packs a sequence number, bumped by every transition, with one of
+ *     {@link #ABSENT}, {@link #BUSY}, {@link #LIVE}, {@link #COPYING} or {@link #MOVED}.</li>
+ * <li>Replacing the value of a present key is a single CAS on its value word.</li>
+ * </ul>
+ *
+ * <h3>Reads</h3>
+ * A lookup reads the state word, the value and the state word again. An unchanged state, or a change that only
+ * reflects the entry being moved by a resize, proves the value was current during the lookup. Any other change proves
+ * the key was absent at some moment during the lookup, which is what the lookup then reports. Lookups never retry.
+ *
+ * <h3>Resize</h3>
+ * A writer that finds the table 3/4 claimed installs a larger table as {@code next}. Every writer that sees a pending
+ * {@code next} helps migrate slots in chunks before doing its own update, so the cost of a resize is shared by all writers.
+ * Migrated slots are marked {@link #MOVED}, which sends lookups on to the {@code next} table. {@link #clear()} uses
+ * the same protocol with a fresh table and no copying.
+ *
+ * <h3>Tokens</h3>
+ * A token encodes the table generation and the slot index. {@link #key(long)} and {@link #value(long)} throw
+ * {@link ConcurrentModificationException} for a token whose table was replaced by a completed resize. Use
+ * {@link #get(long, long)} for a single lookup that is immune to resizes. Iteration is weakly consistent.
+ */
+public class ConcurrentLongLongMap extends LongLongMap.R {
+	
+	/**
+	 * State tag of a slot whose key is absent. A claimed slot returns to it on removal.
+	 */
+	protected static final int ABSENT  = 0;
+	/**
+	 * State tag of a slot whose value is being written by an insertion. The key is still absent.
+	 */
+	protected static final int BUSY    = 1;
+	/**
+	 * State tag of a slot with a present key.
+	 */
+	protected static final int LIVE    = 2;
+	/**
+	 * State tag of a present entry that a resize is copying to the {@code next} table.
+	 */
+	protected static final int COPYING = 3;
+	/**
+	 * State tag of a slot whose content now lives in the {@code next} table.
+	 */
+	protected static final int MOVED   = 4;
+	
+	private static final int TAG_BITS = 3;
+	private static final int TAG_MASK = ( 1 << TAG_BITS ) - 1;
+	
+	/**
+	 * The number of slots migrated by a helping writer at a time.
+	 */
+	private static final int CHUNK = 1024;
+	
+	/**
+	 * The smallest table length.
+	 */
+	protected static final int MIN_LENGTH = 16;
+	
+	/**
+	 * The largest supported table length.
+	 */
+	protected static final int MAX_LENGTH = 1 << 29;
+	
+	private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle( long[].class );
+	private static final VarHandle HAS_NULL_KEY;
+	private static final VarHandle NULL_KEY_VALUE;
+	
+	static {
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			HAS_NULL_KEY   = lookup.findVarHandle( LongLongMap.R.class, "hasNullKey", boolean.class );
+			NULL_KEY_VALUE = lookup.findVarHandle( LongLongMap.R.class, "nullKeyValue", long.class );
+		} catch( ReflectiveOperationException e ) {
+			throw new ExceptionInInitializerError( e );
+		}
+	}
+	
+	/**
+	 * One generation of the map's storage.
+	 */
+	protected static final class Table {
+		/**
+		 * Key, value and state word of every slot, three {@code long}s per slot, followed by the {@code 0} key slot.
+		 */
+		final long[] slots;
+		/**
+		 * The table length minus one.
+		 */
+		final int    mask;
+		/**
+		 * The number of claimed slots at which a resize starts.
+		 */
+		final int    threshold;
+		/**
+		 * The generation number, encoded into tokens.
+		 */
+		final int    id;
+		/**
+		 * {@code true} if this table replaces its predecessor on {@link #clear()}, so nothing is copied into it.
+		 */
+		final boolean cleared;
+		
+		/**
+		 * The table being filled by the resize of this one, or {@code null}.
+		 */
+		volatile Table next;
+		/**
+		 * The number of claimed slots, including slots whose key was removed.
+		 */
+		volatile int   claimed;
+		/**
+		 * The first slot not yet handed out to a migrating writer.
+		 */
+		volatile int   cursor;
+		
+		static final AtomicIntegerFieldUpdater< Table >          CLAIMED = AtomicIntegerFieldUpdater.newUpdater( Table.class, "claimed" );
+		static final AtomicIntegerFieldUpdater< Table >          CURSOR  = AtomicIntegerFieldUpdater.newUpdater( Table.class, "cursor" );
+		static final AtomicReferenceFieldUpdater< Table, Table > NEXT    = AtomicReferenceFieldUpdater.newUpdater( Table.class, Table.class, "next" );
+		
+		Table( int length, int id, boolean cleared ) {
+			slots        = new long[ ( length + 1 ) * 3 ];
+			mask         = length - 1;
+			threshold    = length - ( length >>> 2 );
+			this.id      = id;
+			this.cleared = cleared;
+		}
+		
+		/**
+		 * The number of probed slots, excluding the {@code 0} key slot.
+		 */
+		int length() { return mask + 1; }
+	}
+	
+	/**
+	 * The oldest live table. While a resize is in progress, newer tables hang off its {@code next} chain.
+	 */
+	protected volatile Table table;
+	
+	/**
+	 * The number of present non-null keys.
+	 */
+	private volatile int count;
+	
+	private static final AtomicReferenceFieldUpdater< ConcurrentLongLongMap, Table > TABLE = AtomicReferenceFieldUpdater.newUpdater( ConcurrentLongLongMap.class, Table.class, "table" );
+	private static final AtomicIntegerFieldUpdater< ConcurrentLongLongMap >          COUNT = AtomicIntegerFieldUpdater.newUpdater( ConcurrentLongLongMap.class, "count" );
+	
+	/**
+	 * Serializes writers of the null key.
+	 */
+	private final Object nullKeyLock = new Object();
+	
+	/**
+	 * Constructs an empty map with a default initial capacity.
+	 */
+	public ConcurrentLongLongMap() { this( 0 ); }
+	
+	/**
+	 * Constructs an empty map able to hold {@code capacity} keys without resizing.
+	 *
+	 * @param capacity The expected number of keys.
+	 * @throws IllegalArgumentException If {@code capacity} is negative.
+	 */
+	public ConcurrentLongLongMap( int capacity ) {
+		if( capacity < 0 ) throw new IllegalArgumentException( "capacity is less than 0." );
+		hash_K = Array.Hash.MURMUR;
+		table  = new Table( tableSize( capacity ), 1, false );
+	}
+	
+	/**
+	 * Returns the power-of-two table length whose resize threshold is at least {@code capacity}.
+	 */
+	private static int tableSize( long capacity ) {
+		return ( int ) Math.min( MAX_LENGTH, Math.max( MIN_LENGTH, Array.nextPowerOf2( capacity + ( capacity + 2 ) / 3 ) ) );
+	}
+	
+	private static int tag( long state ) { return ( int ) state & TAG_MASK; }
+	
+	private static long next( long state, int tag ) { return ( state & ~TAG_MASK ) + ( 1 << TAG_BITS ) | tag; }
+	
+	private static long state( long[] slots, int i ) { return ( long ) SLOTS.getAcquire( slots, i * 3 + 2 ); }
+	
+	private static boolean casState( long[] slots, int i, long expected, long state ) { return SLOTS.compareAndSet( slots, i * 3 + 2, expected, state ); }
+	
+	private static long key( long[] slots, int i ) { return ( long ) SLOTS.getAcquire( slots, i * 3 ); }
+	
+	private static long value( long[] slots, int i ) { return ( long ) SLOTS.getAcquire( slots, i * 3 + 1 ); }
+	
+	/**
+	 * Returns {@code true} if a value read between the state words {@code s1} and {@code s2} of the same slot was
+	 * current at some moment in between: the state did not change, or it only advanced through a resize.
+	 */
+	private static boolean stable( long s1, long s2 ) {
+		if( s1 == s2 ) return true;
+		long steps = ( s2 >>> TAG_BITS ) - ( s1 >>> TAG_BITS );
+		return tag( s1 ) == LIVE && ( tag( s2 ) == COPYING && steps == 1 || tag( s2 ) == MOVED && steps == 2 ) ||
+		       tag( s1 ) == COPYING && tag( s2 ) == MOVED && steps == 1;
+	}
+	
+	/**
+	 * Returns the index of the slot in {@code t} that holds or would hold the key: its claimed slot, the first
+	 * never-claimed slot of its probe sequence, or -1 if the table has neither.
+	 */
+	private int slot( Table t, long key ) {
+		if( key == 0 ) return t.length();
+		long[] slots = t.slots;
+		for( int i = hash_K.hash( key ) & t.mask, n = 0; n <= t.mask; i = i + 1 & t.mask, n++ ) {
+			long k = key( slots, i );
+			if( k == key || k == 0 ) return i;
+		}
+		return -1;
+	}
+	
+	/**
+	 * Returns the value mapped to the key, or {@code defaultValue} if the key is absent. Wait-free.
+	 *
+	 * @param key          The key.
+	 * @param defaultValue The value returned if the key is absent.
+	 * @return The mapped value, or {@code defaultValue}.
+	 */
+	public long get( long key, long defaultValue ) {
+		for( Table t = table; t != null; t = t.next ) {
+			int i = slot( t, key );
+			if( i == -1 ) continue;
+			long[] slots = t.slots;
+			long   s1    = state( slots, i );
+			switch( tag( s1 ) ) {
+				case MOVED:
+					continue;
+				case LIVE:
+				case COPYING:
+					if( key( slots, i ) != key && key != 0 ) return defaultValue;
+					long value = value( slots, i );
+					return stable( s1, state( slots, i ) ) ?
+					       value :
+					       defaultValue;
+				default:
+					return defaultValue;
+			}
+		}
+		return defaultValue;
+	}
+	
+	/**
+	 * Returns the value mapped to the key, or {@code defaultValue} if the key is absent. Wait-free, as {@link #get}.
+	 */
+	@Override
+	public long getOrDefault( long key, long defaultValue ) { return get( key, defaultValue ); }
+	
+	/**
+	 * Looks up the keys one at a time with the wait-free {@link #get}. See
+	 * {@link LongLongMap.R#getAll(long[], int, int, long[], long)}.
+	 */
+	@Override
+	public int getAll( long[] src, int from, int len, long[] dst, long missingValue ) {
+		int found = 0;
+		for( int end = from + len; from < end; from++ ) {
+			long value = get( src[ from ], missingValue );
+			dst[ from ] = value;
+			if( value != missingValue || get( src[ from ], ~missingValue ) != ~missingValue ) found++; // a key may map to missingValue itself
+		}
+		return found;
+	}
+	
+	@Override
+	public long tokenOf( Long key ) {
+		return key == null ?
+		       ( ( boolean ) HAS_NULL_KEY.getAcquire( this ) ?
+		         token( NULL_KEY_INDEX ) :
+		         INVALID_TOKEN ) :
+		       tokenOf( ( long ) key );
+	}
+	
+	@Override
+	public long tokenOf( long key ) {
+		for( Table t = table; t != null; t = t.next ) {
+			int i = slot( t, key );
+			if( i == -1 ) continue;
+			long s = state( t.slots, i );
+			switch( tag( s ) ) {
+				case MOVED:
+					continue;
+				case LIVE:
+				case COPYING:
+					return key( t.slots, i ) == key || key == 0 ?
+					       ( long ) t.id << VERSION_SHIFT | i :
+					       INVALID_TOKEN;
+				default:
+					return INVALID_TOKEN;
+			}
+		}
+		return INVALID_TOKEN;
+	}
+	
+	@Override
+	protected long token( int index ) { return ( long ) table.id << VERSION_SHIFT | index; }
+	
+	@Override
+	public long token( final long token ) {
+		if( token == INVALID_TOKEN ) throw new IllegalArgumentException( "Invalid token argument: INVALID_TOKEN" );
+		if( version( token ) != table.id ) throw new ConcurrentModificationException( "Concurrent operations not supported." );
+		
+		int index = index( token );
+		if( index == NULL_KEY_INDEX ) return INVALID_TOKEN;
+		
+		return ( index = unsafe_token( index ) ) == -1 ?
+		       hasNullKey() ?
+		       token( NULL_KEY_INDEX ) :
+		       INVALID_TOKEN :
+		       token( index );
+	}
+	
+	/**
+	 * Returns the table a token refers to. Raw slot indices, as passed by {@link #unsafe_token(int)} iteration, refer to
+	 * the oldest live table.
+	 *
+	 * @throws ConcurrentModificationException If the token's table has been replaced by a completed resize.
+	 */
+	private Table table( long token ) {
+		int id = version( token );
+		for( Table t = table; t != null; t = t.next )
+			if( id == 0 || t.id == id ) return t;
+		throw new ConcurrentModificationException( "The table of the token was replaced by a resize." );
+	}
+	
+	@Override
+	public long key( long token ) {
+		int i = index( token );
+		Table t = table( token );
+		return i == t.length() ?
+		       0 :
+		       key( t.slots, i );
+	}
+	
+	@Override
+	public long value( long token ) {
+		return isKeyNull( token ) ?
+		       ( long ) NULL_KEY_VALUE.getAcquire( this ) :
+		       value( table( token ).slots, index( token ) );
+	}
+	
+	@Override
+	protected int _count() { return count; }
+	
+	@Override
+	public int length() { return table.length(); }
+	
+	@Override
+	public boolean hasNullKey() { return ( boolean ) HAS_NULL_KEY.getAcquire( this ); }
+	
+	@Override
+	public long nullKeyValue() { return ( long ) NULL_KEY_VALUE.getAcquire( this ); }
+	
+	@Override
+	public int size() {
+		return _count() + (
+				hasNullKey() ?
+				1 :
+				0 );
+	}
+	
+	/**
+	 * Returns the index of the next present entry of the oldest live table after the given one, in table order.
+	 * Entries already moved by an in-progress resize are not visited.
+	 *
+	 * @param token The current slot index, or -1 to start from the beginning.
+	 * @return The index of the next present entry, or -1 if there are no more non-null keys.
+	 */
+	@Override
+	public int unsafe_token( int token ) {
+		Table t = table;
+		for( int i = token + 1; i <= t.length(); i++ ) {
+			int tag = tag( state( t.slots, i ) );
+			if( tag == LIVE || tag == COPYING ) return i;
+		}
+		return -1;
+	}
+	
+	@Override
+	public boolean containsValue( long value ) {
+		if( hasNullKey() && nullKeyValue() == value ) return true;
+		for( int token = -1; ( token = unsafe_token( token ) ) != -1; )
+			if( value( token ) == value ) return true;
+		return false;
+	}
+	
+	/**
+	 * Walks the live table, as {@link #unsafe_token(int)} does, splitting off growing batches: the slots of the table
+	 * have gaps, and the {@code keys} array of {@link LongLongMap.R} is not used here.
+	 */
+	@Override
+	public Spliterator.OfLong spliterator() { return Array.spliterator( size() - ( hasNullKey() ? 1 : 0 ), this::unsafe_token, ( int token ) -> key( token ) ); }
+	
+	@Override
+	public Spliterator.OfLong valuesSpliterator() { return Array.spliterator( size() - ( hasNullKey() ? 1 : 0 ), this::unsafe_token, ( int token ) -> value( token ) ); }
+	
+	/**
+	 * Walks the live table, as {@link #unsafe_token(int)} does: the {@code keys} array of {@link LongLongMap.R} is not used here.
+	 */
+	@Override
+	public void forEach( LongLongMap.Consumer action ) {
+		for( int token = -1; ( token = unsafe_token( token ) ) != -1; )
+			action.accept( key( token ), value( token ) );
+	}
+	
+	@Override
+	public void forEachKey( LongLongMap.KeyConsumer action ) {
+		for( int token = -1; ( token = unsafe_token( token ) ) != -1; )
+			action.accept( key( token ) );
+	}
+	
+	@Override
+	public void forEachValue( LongLongMap.ValueConsumer action ) {
+		for( int token = -1; ( token = unsafe_token( token ) ) != -1; )
+			action.accept( value( token ) );
+	}
+	
+	@Override
+	public boolean forEachWhile( LongLongMap.Predicate predicate ) {
+		for( int token = -1; ( token = unsafe_token( token ) ) != -1; )
+			if( !predicate.test( key( token ), value( token ) ) ) return false;
+		return true;
+	}
+	
+	@Override
+	public void toJSON( JsonWriter json ) {
+		json.preallocate( size() * 10 );
+		json.enterObject();
+		
+		if( hasNullKey() ) json.name().value( nullKeyValue() );
+		
+		for( int token = -1; ( token = unsafe_token( token ) ) != -1; )
+		     json.name( key( token ) ).value( value( token ) );
+		
+		json.exitObject();
+	}
+	
+	/**
+	 * Associates the value with the boxed key, which may be {@code null}.
+	 *
+	 * @param key   The key, or {@code null}.
+	 * @param value The value.
+	 * @return {@code true} if the key was absent, {@code false} if its value was replaced.
+	 */
+	public boolean put( Long key, long value ) {
+		if( key != null ) return put( ( long ) key, value );
+		synchronized( nullKeyLock ) {
+			boolean ret = !hasNullKey;
+			NULL_KEY_VALUE.setRelease( this, value );
+			HAS_NULL_KEY.setRelease( this, true );
+			return ret;
+		}
+	}
+	
+	/**
+	 * Associates the value with the key.
+	 *
+	 * @param key   The key.
+	 * @param value The value.
+	 * @return {@code true} if the key was absent, {@code false} if its value was replaced.
+	 */
+	public boolean put( long key, long value ) {
+		for( ; ; ) {
+			Table  t     = writable();
+			long[] slots = t.slots;
+			int    i     = slot( t, key );
+			
+			if( i == -1 || i != t.length() && key( slots, i ) != key ) { // the never-claimed slot may have been taken by another key
+				if( !claim( t, i, key ) ) continue;
+				i = slot( t, key );
+			}
+			
+			for( ; ; ) {
+				long s = state( slots, i );
+				switch( tag( s ) ) {
+					case LIVE:
+						long old = value( slots, i );
+						if( !SLOTS.compareAndSet( slots, i * 3 + 1, old, value ) ) continue;
+						if( state( slots, i ) == s ) return false;
+						continue; // raced with a removal or a resize: apply again under the new state
+					case ABSENT:
+						long busy = next( s, BUSY );
+						if( !casState( slots, i, s, busy ) ) continue;
+						SLOTS.setRelease( slots, i * 3 + 1, value );
+						SLOTS.setRelease( slots, i * 3 + 2, next( busy, LIVE ) );
+						COUNT.incrementAndGet( this );
+						return true;
+					case MOVED:
+						break;
+					default:
+						Thread.onSpinWait();
+						continue;
+				}
+				break;
+			}
+		}
+	}
+	
+	/**
+	 * Claims the never-claimed slot {@code i} of {@code t} for the key, starting a resize instead if the table has
+	 * reached its threshold.
+	 *
+	 * @return {@code true} if the key now owns a slot of {@code t}, {@code false} if the caller must start over.
+	 */
+	private boolean claim( Table t, int i, long key ) {
+		if( i == -1 ) {
+			resize( t, 0 );
+			return false;
+		}
+		if( t.threshold <= Table.CLAIMED.getAndIncrement( t ) ) {
+			Table.CLAIMED.decrementAndGet( t );
+			resize( t, 0 );
+			return false;
+		}
+		
+		for( long[] slots = t.slots; ; i = i + 1 & t.mask ) {
+			long k = key( slots, i );
+			if( k == 0 && SLOTS.compareAndSet( slots, i * 3, 0L, key ) ) return true;
+			if( key( slots, i ) == key ) {
+				Table.CLAIMED.decrementAndGet( t ); // claimed by a concurrent writer of the same key
+				return true;
+			}
+		}
+	}
+	
+	/**
+	 * Removes the boxed key, which may be {@code null}.
+	 *
+	 * @param key The key, or {@code null}.
+	 * @return {@code true} if the key was present.
+	 */
+	public boolean remove( Long key ) {
+		if( key != null ) return remove( ( long ) key );
+		synchronized( nullKeyLock ) {
+			if( !hasNullKey ) return false;
+			HAS_NULL_KEY.setRelease( this, false );
+			return true;
+		}
+	}
+	
+	/**
+	 * Removes the key.
+	 *
+	 * @param key The key.
+	 * @return {@code true} if the key was present.
+	 */
+	public boolean remove( long key ) {
+		for( ; ; ) {
+			Table  t     = writable();
+			long[] slots = t.slots;
+			int    i     = slot( t, key );
+			if( i == -1 ) {
+				if( t.next == null ) return false;
+				continue;
+			}
+			if( i != t.length() && key( slots, i ) != key ) {
+				if( tag( state( slots, i ) ) == MOVED ) continue; // the key may already be in a newer table
+				return false;
+			}
+			
+			for( ; ; ) {
+				long s = state( slots, i );
+				switch( tag( s ) ) {
+					case LIVE:
+						if( !casState( slots, i, s, next( s, ABSENT ) ) ) continue;
+						COUNT.decrementAndGet( this );
+						return true;
+					case ABSENT:
+						return false;
+					case MOVED:
+						break;
+					default:
+						Thread.onSpinWait();
+						continue;
+				}
+				break;
+			}
+		}
+	}
+	
+	/**
+	 * Removes all entries. Concurrent writers finish against the old table or see the new one, never a mix.
+	 */
+	public void clear() {
+		synchronized( nullKeyLock ) { HAS_NULL_KEY.setRelease( this, false ); }
+		for( Table t; ; ) {
+			t = writable();
+			if( Table.NEXT.compareAndSet( t, null, new Table( t.length(), t.id + 1, true ) ) ) {
+				migrate( t );
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * Ensures that the map can hold at least {@code capacity} keys without resizing.
+	 *
+	 * @param capacity The desired capacity.
+	 * @return The table length.
+	 */
+	public int ensureCapacity( int capacity ) {
+		Table t = writable();
+		if( t.threshold < capacity ) resize( t, capacity );
+		return length();
+	}
+	
+	/**
+	 * Returns the newest table, after helping every pending resize to completion.
+	 */
+	private Table writable() {
+		for( Table t = table; ; t = table ) {
+			if( t.next == null ) return t;
+			migrate( t );
+		}
+	}
+	
+	/**
+	 * Starts a resize of {@code t}, if none is pending, and helps it complete. The new table is never shorter, so the
+	 * entries being copied always fit. If at most half of the threshold holds present keys, the length is kept and the
+	 * resize only drops the slots of removed keys.
+	 *
+	 * @param t        The table to replace.
+	 * @param capacity The minimum number of keys the new table must accept.
+	 */
+	private void resize( Table t, int capacity ) {
+		if( t.next == null ) {
+			int length = Math.max( t.length(), tableSize( Math.max( capacity, ( long ) count * 2 ) ) );
+			if( length == t.length() && t.threshold < count * 2 ) length <<= 1;
+			if( MAX_LENGTH < length ) throw new IllegalStateException( "Table length cannot exceed " + MAX_LENGTH );
+			Table.NEXT.compareAndSet( t, null, new Table( length, t.id + 1, false ) );
+		}
+		migrate( t );
+	}
+	
+	/**
+	 * Migrates every slot of {@code t} into {@code t.next}, sharing the work with other writers chunk by chunk,
+	 * and retires {@code t}.
+	 */
+	private void migrate( Table t ) {
+		Table next  = t.next;
+		int   total = t.length() + 1;
+		
+		for( int from; t.cursor < total && ( from = Table.CURSOR.getAndAdd( t, CHUNK ) ) < total; )
+			for( int i = from, to = Math.min( total, from + CHUNK ); i < to; i++ ) migrate( t, next, i );
+		
+		// Chunks handed to other writers may still be in progress: finish any slot they have not reached yet.
+		for( int i = 0; i < total; i++ )
+			if( tag( state( t.slots, i ) ) != MOVED ) migrate( t, next, i );
+		
+		TABLE.compareAndSet( this, t, next );
+	}
+	
+	/**
+	 * Moves slot {@code i} of {@code t} into {@code next}.
+	 */
+	private void migrate( Table t, Table next, int i ) {
+		for( long[] slots = t.slots; ; ) {
+			long s = state( slots, i );
+			switch( tag( s ) ) {
+				case MOVED:
+					return;
+				case ABSENT:
+					if( casState( slots, i, s, next( s, MOVED ) ) ) return;
+					continue;
+				case LIVE:
+					if( next.cleared ) {
+						if( !casState( slots, i, s, next( s, MOVED ) ) ) continue;
+						COUNT.decrementAndGet( this );
+						return;
+					}
+					long copying = next( s, COPYING );
+					if( !casState( slots, i, s, copying ) ) continue;
+					copy( next, key( slots, i ), value( slots, i ) );
+					SLOTS.setRelease( slots, i * 3 + 2, next( copying, MOVED ) );
+					return;
+				default:
+					Thread.onSpinWait();
+			}
+		}
+	}
+	
+	/**
+	 * Inserts a migrated entry into a table that no writer updates until the migration completes.
+	 */
+	private void copy( Table t, long key, long value ) {
+		long[] slots = t.slots;
+		int    i     = slot( t, key );
+		if( i != t.length() ) {
+			while( !SLOTS.compareAndSet( slots, i * 3, 0L, key ) ) i = slot( t, key );
+			Table.CLAIMED.incrementAndGet( t );
+		}
+		SLOTS.setRelease( slots, i * 3 + 1, value );
+		SLOTS.setRelease( slots, i * 3 + 2, next( state( slots, i ), LIVE ) );
+	}
+	
+	/**
+	 * Returns a snapshot copy of this map.
+	 *
+	 * @return A new map with the entries present during the copy.
+	 */
+	@Override
+	public ConcurrentLongLongMap clone() {
+		ConcurrentLongLongMap dst = new ConcurrentLongLongMap( size() );
+		if( hasNullKey() ) dst.put( null, nullKeyValue() );
+		for( int token = -1; ( token = unsafe_token( token ) ) != -1; )
+		     dst.put( key( token ), value( token ) );
+		return dst;
+	}
+}
@@ -0,0 +1,231 @@
+// Copyright 2025 Chikirev Sirguy, Unirail Group
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+// For inquiries, please contact: al8v5C6HU4UtqE9@gmail.com
+// GitHub Repository: https://github.com/AdHoc-Protocol
+package org.unirail.collections;
+
+import org.unirail.JsonWriter;
+
+import java.util.Arrays;
+
+/**
+ * A Count-Min sketch: approximate occurrence counts of primitive keys in a fixed {@code int[]} of counters,
+ * however many distinct keys the stream has.
+ * <p>
+ * The counters form {@code depth} rows of {@code width} counters. A key increments one counter per row, chosen by a
+ * 64-bit hash of the key, and its estimate is the smallest of those counters. The estimate never undercounts; with
+ * {@code width = e / epsilon} and {@code depth = ln( 1 / delta )}, as chosen by {@link #of(double, double)}, it
+ * overcounts by more than {@code epsilon * total()} with probability at most {@code delta}.
+ * <p>
+ * {@link #add(long, int)} uses the conservative update: only the counters below the new estimate are raised, to it,
+ * which keeps the overcount of light keys much lower than incrementing every row. Counters saturate at
+ * {@link Integer#MAX_VALUE}.
+ * <p>
+ * Sketches of the same dimensions {@link #merge(CountMinSketch)} by adding their counters, for example to combine
+ * per-thread sketches. After a merge the estimates still never undercount, but can overcount somewhat more than a single
+ * conservatively updated sketch of the whole stream.
+ */
+public class CountMinSketch implements Cloneable, JsonWriter.Source {
+	
+	/**
+	 * The counters, row after row.
+	 */
+	protected int[] counters;
+	
+	/**
+	 * The number of counters per row, a power of two.
+	 */
+	protected final int width;
+	/**
+	 * The number of rows.
+	 */
+	protected final int depth;
+	
+	/**
+	 * The sum of all added counts.
+	 */
+	protected long total;
+	
+	/**
+	 * Constructs an empty sketch.
+	 *
+	 * @param width The number of counters per row, rounded up to a power of two.
+	 * @param depth The number of rows.
+	 * @throws IllegalArgumentException If {@code width} or {@code depth} is not positive, or the sketch needs more than
+	 *                                  {@code 2^30} counters.
+	 */
+	public CountMinSketch( int width, int depth ) {
+		if( width < 1 || depth < 1 ) throw new IllegalArgumentException( "width and depth must be positive" );
+		this.width = ( int ) Array.nextPowerOf2( width );
+		this.depth = depth;
+		if( ( long ) this.width * depth > 1 << 30 ) throw new IllegalArgumentException( "width * depth is greater than 2^30" );
+		counters = new int[ this.width * depth ];
+	}
+	
+	/**
+	 * Constructs an empty sketch that overcounts by more than {@code epsilon * total()} with probability at most {@code delta}.
+	 *
+	 * @param epsilon The relative error, such as {@code 0.001}.
+	 * @param delta   The probability of exceeding it, such as {@code 0.01}.
+	 * @return A new sketch.
+	 */
+	public static CountMinSketch of( double epsilon, double delta ) {
+		if( !( 0 < epsilon && epsilon < 1 ) || !( 0 < delta && delta < 1 ) ) throw new IllegalArgumentException( "epsilon and delta must be in (0, 1)" );
+		return new CountMinSketch( ( int ) Math.ceil( Math.E / epsilon ), ( int ) Math.ceil( Math.log( 1 / delta ) ) );
+	}
+	
+	public int width() { return width; }
+	
+	public int depth() { return depth; }
+	
+	/**
+	 * Returns the sum of all added counts, the {@code N} of the error bound.
+	 *
+	 * @return the total count
+	 */
+	public long total() { return total; }
+	
+	/**
+	 * Counts one occurrence of the key.
+	 *
+	 * @param key The key.
+	 * @return The new estimate of the key.
+	 */
+	public int add( long key ) { return add( key, 1 ); }
+	
+	/**
+	 * Counts one occurrence of the key.
+	 *
+	 * @param key The key.
+	 * @return The new estimate of the key.
+	 */
+	public int add( int key ) { return add( ( long ) key, 1 ); }
+	
+	/**
+	 * Counts {@code count} occurrences of the key with the conservative update.
+	 *
+	 * @param key   The key.
+	 * @param count The number of occurrences, not negative.
+	 * @return The new estimate of the key.
+	 * @throws IllegalArgumentException If {@code count} is negative.
+	 */
+	public int add( long key, int count ) {
+		if( count < 0 ) throw new IllegalArgumentException( "count is negative" );
+		total += count;
+		
+		long hash = Array.avalanche( key );
+		int  h1   = ( int ) hash;
+		int  h2   = ( int ) ( hash >>> 32 ) | 1;
+		int  mask = width - 1;
+		
+		int min = Integer.MAX_VALUE;
+		for( int row = 0, h = h1; row < depth; row++, h += h2 )
+		     min = Math.min( min, counters[ row * width + ( h & mask ) ] );
+		
+		int estimate = ( int ) Math.min( Integer.MAX_VALUE, ( long ) min + count );
+		for( int row = 0, h = h1; row < depth; row++, h += h2 ) {
+			int i = row * width + ( h & mask );
+			if( counters[ i ] < estimate ) counters[ i ] = estimate;
+		}
+		return estimate;
+	}
+	
+	/**
+	 * Returns the estimated number of occurrences of the key: never less than the true count.
+	 *
+	 * @param key The key.
+	 * @return The estimate.
+	 */
+	public int estimate( long key ) {
+		long hash = Array.avalanche( key );
+		int  h2   = ( int ) ( hash >>> 32 ) | 1;
+		int  mask = width - 1;
+		
+		int min = Integer.MAX_VALUE;
+		for( int row = 0, h = ( int ) hash; row < depth; row++, h += h2 )
+		     min = Math.min( min, counters[ row * width + ( h & mask ) ] );
+		return min;
+	}
+	
+	/**
+	 * Returns the estimated number of occurrences of the key: never less than the true count.
+	 *
+	 * @param key The key.
+	 * @return The estimate.
+	 */
+	public int estimate( int key ) { return estimate( ( long ) key ); }
+	
+	/**
+	 * Adds the counters of another sketch of the same dimensions to this one.
+	 *
+	 * @param other The sketch to merge.
+	 * @throws IllegalArgumentException If the dimensions differ.
+	 */
+	public void merge( CountMinSketch other ) {
+		if( other.width != width || other.depth != depth ) throw new IllegalArgumentException( "Sketches of different dimensions cannot be merged." );
+		for( int i = 0; i < counters.length; i++ )
+		     counters[ i ] = ( int ) Math.min( Integer.MAX_VALUE, ( long ) counters[ i ] + other.counters[ i ] );
+		total += other.total;
+	}
+	
+	/**
+	 * Resets all counters to zero.
+	 */
+	public void clear() {
+		Arrays.fill( counters, 0 );
+		total = 0;
+	}
+	
+	@Override
+	public int hashCode() { return Array.finalizeHash( Array.hash( Array.hash( Array.hash( width ), depth ), counters, 0, counters.length ), counters.length ); }
+	
+	@Override
+	public boolean equals( Object obj ) {
+		if( obj == this ) return true;
+		if( !( obj instanceof CountMinSketch ) ) return false;
+		CountMinSketch other = ( CountMinSketch ) obj;
+		return width == other.width && depth == other.depth && total == other.total && Arrays.equals( counters, other.counters );
+	}
+	
+	@Override
+	public CountMinSketch clone() {
+		try {
+			CountMinSketch cloned = ( CountMinSketch ) super.clone();
+			cloned.counters = counters.clone();
+			return cloned;
+		} catch( CloneNotSupportedException e ) {
+			throw new InternalError( e );
+		}
+	}
+	
+	/**
+	 * Writes the dimensions, the total and the counters, row after row, as a JSON object.
+	 *
+	 * @param json The JsonWriter to write to.
+	 */
+	@Override
+	public void toJSON( JsonWriter json ) {
+		json.preallocate( counters.length * 4 + 64 );
+		json.enterObject()
+		    .name( "width" ).value( width )
+		    .name( "depth" ).value( depth )
+		    .name( "total" ).value( total )
+		    .name( "counters" ).value( counters )
+		    .exitObject();
+	}
+	
+	@Override
+	public String toString() { return toJSON(); }
+}
\ No newline at end of file
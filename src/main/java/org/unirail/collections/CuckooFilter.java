@@ -0,0 +1,406 @@
+// Copyright 2025 Chikirev Sirguy, Unirail Group
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+// For inquiries, please contact: al8v5C6HU4UtqE9@gmail.com
+// GitHub Repository: https://github.com/AdHoc-Protocol
+package org.unirail.collections;
+
+import org.unirail.JsonWriter;
+
+import java.util.Arrays;
+
+/**
+ * A cuckoo filter of primitive keys: like {@link BlockedBloomFilter} it answers "definitely absent" or "maybe present",
+ * but keys can also be {@link #remove(long) removed}. About 17 bits per key at 95% load, with a false positive rate
+ * of about {@code 8 / 2^16}.
+ * <p>
+ * Every key is represented by a 16-bit fingerprint of its 64-bit hash, stored in one of two candidate buckets: the bucket
+ * of the hash and a hash of the fingerprint minus that bucket, modulo the number of buckets, so either bucket can be
+ * computed from the other and the fingerprint. Hashes are mapped to buckets by a multiply-shift range reduction instead
+ * of a mask, so the number of buckets need not be a power of two and the filter is sized to the 95% load exactly. A
+ * bucket is one {@code long} word of four 16-bit fingerprints, {@code 0} marking an empty one, so a query reads two words
+ * and compares all four fingerprints of each word at once.
+ * <p>
+ * When both buckets are full, a random fingerprint of one of them is moved to its other bucket, which may move another,
+ * up to {@link #MAX_KICKS} times. If that does not free a place, the moves are undone and {@link #put(long)} returns
+ * {@code false}: the filter is too full, and no key is lost.
+ * <p>
+ * A key must only be removed if it was added, or the fingerprint of another key sharing its buckets may be removed instead.
+ * {@link #words()} and {@link #of(long[])} serialize and restore the raw words.
+ */
+public class CuckooFilter implements Cloneable, JsonWriter.Source {
+	
+	/**
+	 * The number of fingerprint moves tried before {@link #put(long)} gives up.
+	 */
+	public static final int MAX_KICKS = 500;
+	
+	/**
+	 * The number of keys that {@link #mightContain(long[], int, int, BitList.RW)} hashes ahead before testing them.
+	 */
+	public static final int BATCH = 64;
+	
+	/**
+	 * The per-thread batch buffer of {@link #mightContain(long[], int, int, BitList.RW)}: {@link #BATCH} hashes, then
+	 * their {@link #BATCH} first words. Per thread rather than per filter, so concurrent queries stay safe.
+	 */
+	private static final ThreadLocal< long[] > SCRATCH = ThreadLocal.withInitial( () -> new long[ BATCH * 2 ] );
+	
+	private static final long LANES = 0x0001_0001_0001_0001L;
+	private static final long HIGHS = 0x8000_8000_8000_8000L;
+	
+	/**
+	 * The buckets, four 16-bit fingerprints per word.
+	 */
+	protected final long[] words;
+	/**
+	 * The number of stored fingerprints.
+	 */
+	protected int count;
+	
+	/**
+	 * The buckets and lanes of the moves of the current insertion, to undo them if it fails.
+	 */
+	private final int[] kickedBuckets = new int[ MAX_KICKS ];
+	private final int[] kickedLanes   = new int[ MAX_KICKS ];
+	/**
+	 * The xorshift state that chooses the fingerprints to move.
+	 */
+	private long random = 0x9E3779B97F4A7C15L;
+	
+	/**
+	 * Constructs an empty filter with room for the expected number of keys at 95% load.
+	 *
+	 * @param expectedKeys The number of keys the filter is sized for.
+	 * @throws IllegalArgumentException If {@code expectedKeys} is negative or needs more than {@code 2^30} buckets.
+	 */
+	public CuckooFilter( long expectedKeys ) {
+		if( expectedKeys < 0 ) throw new IllegalArgumentException( "expectedKeys is less than 0." );
+		long buckets = Math.max( 2, ( long ) Math.ceil( expectedKeys / ( 4 * 0.95 ) ) );
+		if( 1 << 30 < buckets ) throw new IllegalArgumentException( "The filter needs more than 2^30 buckets." );
+		words = new long[ ( int ) buckets ];
+	}
+	
+	/**
+	 * Restores a filter from its raw words.
+	 *
+	 * @param words The words, as returned by {@link #words()}; used, not copied.
+	 * @return The filter.
+	 * @throws IllegalArgumentException If there are fewer than 2 words.
+	 */
+	public static CuckooFilter of( long[] words ) { return new CuckooFilter( words ); }
+	
+	protected CuckooFilter( long[] words ) {
+		if( words.length < 2 ) throw new IllegalArgumentException( "The number of words must be greater than 1." );
+		this.words = words;
+		for( long word : words )
+			for( int lane = 0; lane < 4; lane++ )
+				if( ( word >>> ( lane << 4 ) & 0xFFFF ) != 0 ) count++;
+	}
+	
+	/**
+	 * Returns the raw words, four 16-bit fingerprints each, for serialization. The array is the filter's own.
+	 *
+	 * @return The words.
+	 */
+	public long[] words() { return words; }
+	
+	/**
+	 * Returns the number of stored keys.
+	 *
+	 * @return the number of keys
+	 */
+	public int size() { return count; }
+	
+	public boolean isEmpty() { return count == 0; }
+	
+	/**
+	 * Returns the number of keys the filter holds when every bucket is full.
+	 *
+	 * @return the capacity of the filter
+	 */
+	public int length() { return words.length * 4; }
+	
+	private static int fingerprint( long hash ) {
+		int fp = ( int ) hash & 0xFFFF;
+		return fp == 0 ?
+		       1 :
+		       fp;
+	}
+	
+	private int bucket( long hash ) { return ( int ) ( ( hash >>> 32 ) * words.length >>> 32 ); }
+	
+	/**
+	 * Returns the other candidate bucket of the fingerprint: the bucket of the fingerprint's hash minus the given one,
+	 * modulo the number of buckets. Applied twice it returns the given bucket.
+	 */
+	private int alternate( int bucket, int fp ) {
+		int other = bucket( Array.avalanche( ( long ) fp ) ) - bucket;
+		return other < 0 ?
+		       other + words.length :
+		       other;
+	}
+	
+	/**
+	 * Returns {@code true} if the word holds the 16-bit value in one of its lanes.
+	 */
+	private static boolean has( long word, int fp ) {
+		long x = word ^ fp * LANES;
+		return ( x - LANES & ~x & HIGHS ) != 0;
+	}
+	
+	/**
+	 * Returns the lowest lane of the word that holds the 16-bit value, or -1.
+	 */
+	private static int lane( long word, int fp ) {
+		long x     = word ^ fp * LANES;
+		long found = x - LANES & ~x & HIGHS;
+		return found == 0 ?
+		       -1 :
+		       Long.numberOfTrailingZeros( found ) >>> 4;
+	}
+	
+	private int get( int bucket, int lane ) { return ( int ) ( words[ bucket ] >>> ( lane << 4 ) ) & 0xFFFF; }
+	
+	private void set( int bucket, int lane, int fp ) {
+		int shift = lane << 4;
+		words[ bucket ] = words[ bucket ] & ~( 0xFFFFL << shift ) | ( long ) fp << shift;
+	}
+	
+	/**
+	 * Puts the fingerprint into an empty lane of the bucket.
+	 *
+	 * @return {@code true} if the bucket had an empty lane.
+	 */
+	private boolean add( int bucket, int fp ) {
+		int lane = lane( words[ bucket ], 0 );
+		if( lane == -1 ) return false;
+		set( bucket, lane, fp );
+		return true;
+	}
+	
+	/**
+	 * Adds a key.
+	 *
+	 * @param key The key.
+	 * @return {@code true} if the key was added, {@code false} if the filter is too full.
+	 */
+	public boolean put( long key ) {
+		long hash = Array.avalanche( key );
+		return put( bucket( hash ), fingerprint( hash ) );
+	}
+	
+	/**
+	 * Adds a key.
+	 *
+	 * @param key The key.
+	 * @return {@code true} if the key was added, {@code false} if the filter is too full.
+	 */
+	public boolean put( int key ) { return put( ( long ) key ); }
+	
+	private boolean put( int i1, int fp ) {
+		int i2 = alternate( i1, fp );
+		if( add( i1, fp ) || add( i2, fp ) ) {
+			count++;
+			return true;
+		}
+		
+		int bucket = ( nextRandom() & 1 ) == 0 ?
+		             i1 :
+		             i2;
+		int carried = fp;
+		for( int kick = 0; kick < MAX_KICKS; kick++ ) {
+			int lane    = nextRandom() & 3;
+			int evicted = get( bucket, lane );
+			set( bucket, lane, carried );
+			kickedBuckets[ kick ] = bucket;
+			kickedLanes[ kick ]   = lane;
+			
+			carried = evicted;
+			bucket  = alternate( bucket, carried );
+			if( add( bucket, carried ) ) {
+				count++;
+				return true;
+			}
+		}
+		
+		for( int kick = MAX_KICKS - 1; -1 < kick; kick-- ) { // undo the moves
+			int held = get( kickedBuckets[ kick ], kickedLanes[ kick ] );
+			set( kickedBuckets[ kick ], kickedLanes[ kick ], carried );
+			carried = held;
+		}
+		return false;
+	}
+	
+	private int nextRandom() {
+		random ^= random << 13;
+		random ^= random >>> 7;
+		random ^= random << 17;
+		return ( int ) random;
+	}
+	
+	/**
+	 * Returns {@code false} if the key is certainly not in the filter, {@code true} if it may be.
+	 *
+	 * @param key The key.
+	 * @return {@code true} if the key may be present.
+	 */
+	public boolean mightContain( long key ) {
+		long hash = Array.avalanche( key );
+		int  fp   = fingerprint( hash );
+		int  i1   = bucket( hash );
+		return has( words[ i1 ], fp ) || has( words[ alternate( i1, fp ) ], fp );
+	}
+	
+	/**
+	 * Returns {@code false} if the key is certainly not in the filter, {@code true} if it may be.
+	 *
+	 * @param key The key.
+	 * @return {@code true} if the key may be present.
+	 */
+	public boolean mightContain( int key ) { return mightContain( ( long ) key ); }
+	
+	/**
+	 * Tests every key: bit {@code i} of {@code result} is set to the {@link #mightContain(long)} answer for {@code keys[ i ]}.
+	 *
+	 * @param keys   The keys.
+	 * @param result The answers, one bit per key.
+	 * @return The number of keys that may be present.
+	 */
+	public int mightContain( long[] keys, BitList.RW result ) { return mightContain( keys, 0, keys.length, result ); }
+	
+	/**
+	 * Tests a range of keys: bit {@code i} of {@code result} is set to the {@link #mightContain(long)} answer for
+	 * {@code keys[ from + i ]}. The keys are processed in batches of {@link #BATCH}: the first bucket of every key of the
+	 * batch is loaded before any key is tested, so the cache misses of the batch overlap instead of following one another.
+	 *
+	 * @param keys   The keys.
+	 * @param from   The index of the first key.
+	 * @param len    The number of keys.
+	 * @param result The answers, one bit per key.
+	 * @return The number of keys that may be present.
+	 */
+	public int mightContain( long[] keys, int from, int len, BitList.RW result ) {
+		int    found   = 0;
+		long[] scratch = SCRATCH.get(); // the hashes of the batch, then the first words they load
+		
+		for( int start = 0; start < len; start += BATCH ) {
+			int n = Math.min( BATCH, len - start );
+			
+			for( int i = 0; i < n; i++ ) {
+				long hash = Array.avalanche( keys[ from + start + i ] );
+				scratch[ i ]         = hash;
+				scratch[ BATCH + i ] = words[ bucket( hash ) ];
+			}
+			
+			for( int i = 0; i < n; i++ ) {
+				int fp = fingerprint( scratch[ i ] );
+				if( has( scratch[ BATCH + i ], fp ) || has( words[ alternate( bucket( scratch[ i ] ), fp ) ], fp ) ) {
+					result.set1( start + i );
+					found++;
+				}
+				else result.set( start + i, false );
+			}
+		}
+		return found;
+	}
+	
+	/**
+	 * Removes one occurrence of a key that was added.
+	 *
+	 * @param key The key.
+	 * @return {@code true} if a fingerprint of the key was found and removed.
+	 */
+	public boolean remove( long key ) {
+		long hash = Array.avalanche( key );
+		int  fp   = fingerprint( hash );
+		int  i1   = bucket( hash );
+		
+		for( int bucket = i1, i = 0; i < 2; i++, bucket = alternate( i1, fp ) ) {
+			int lane = lane( words[ bucket ], fp );
+			if( lane != -1 ) {
+				set( bucket, lane, 0 );
+				count--;
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Removes one occurrence of a key that was added.
+	 *
+	 * @param key The key.
+	 * @return {@code true} if a fingerprint of the key was found and removed.
+	 */
+	public boolean remove( int key ) { return remove( ( long ) key ); }
+	
+	/**
+	 * Adds the keys of another filter with the same number of buckets by inserting its fingerprints. Cuckoo buckets cannot
+	 * be OR-ed like Bloom filter words.
+	 *
+	 * @param other The filter to merge.
+	 * @return The number of fingerprints that did not fit.
+	 * @throws IllegalArgumentException If the filters differ in the number of buckets.
+	 */
+	public int putAll( CuckooFilter other ) {
+		if( other.words.length != words.length ) throw new IllegalArgumentException( "Filters of different sizes cannot be merged." );
+		int failed = 0;
+		for( int bucket = 0; bucket < words.length; bucket++ )
+			for( int lane = 0; lane < 4; lane++ ) {
+				int fp = other.get( bucket, lane );
+				if( fp != 0 && !put( bucket, fp ) ) failed++;
+			}
+		return failed;
+	}
+	
+	/**
+	 * Removes all keys.
+	 */
+	public void clear() {
+		Arrays.fill( words, 0 );
+		count = 0;
+	}
+	
+	@Override
+	public int hashCode() { return Array.finalizeHash( Array.hash( count, words, 0, words.length ), words.length ); }
+	
+	@Override
+	public boolean equals( Object obj ) {
+		if( obj == this ) return true;
+		if( !( obj instanceof CuckooFilter ) ) return false;
+		CuckooFilter other = ( CuckooFilter ) obj;
+		return count == other.count && Arrays.equals( words, other.words );
+	}
+	
+	@Override
+	public CuckooFilter clone() { return new CuckooFilter( words.clone() ); }
+	
+	/**
+	 * Writes the number of keys and the raw words as a JSON object.
+	 *
+	 * @param json The JsonWriter to write to.
+	 */
+	@Override
+	public void toJSON( JsonWriter json ) {
+		json.preallocate( words.length * 20 + 32 );
+		json.enterObject()
+		    .name( "size" ).value( count )
+		    .name( "words" ).value( words )
+		    .exitObject();
+	}
+	
+	@Override
+	public String toString() { return toJSON(); }
+}
\ No newline at end of file
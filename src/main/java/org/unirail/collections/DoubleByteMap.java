@@ -20,6 +20,11 @@ import org.unirail.JsonWriter;
 
 import java.util.Arrays;
 import java.util.ConcurrentModificationException;
+import java.util.Spliterator;
+import java.util.function.Function;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
 
 
 /**
@@ -145,6 +150,62 @@ import java.util.ConcurrentModificationException;
  */
 public interface DoubleByteMap {
 	
+	/**
+	 * Computes the value of an absent key for {@link RW#computeIfAbsent(double, Mapping)}.
+	 */
+	@FunctionalInterface
+	interface Mapping {
+		byte apply( double key );
+	}
+	
+	/**
+	 * Computes the new value of a present key for {@link RW#computeIfPresent(double, Remapping)}.
+	 */
+	@FunctionalInterface
+	interface Remapping {
+		byte apply( double key, byte value );
+	}
+	
+	/**
+	 * Combines the current value of a present key with a given value for {@link RW#merge(double, byte, Merging)}.
+	 */
+	@FunctionalInterface
+	interface Merging {
+		byte apply( byte oldValue, byte value );
+	}
+	
+	/**
+	 * Receives the entries visited by {@link R#forEach(Consumer)}.
+	 */
+	@FunctionalInterface
+	interface Consumer {
+		void accept( double key, byte value );
+	}
+	
+	/**
+	 * Tests the entries visited by {@link R#forEachWhile(Predicate)}.
+	 */
+	@FunctionalInterface
+	interface Predicate {
+		boolean test( double key, byte value );
+	}
+	
+	/**
+	 * Receives the keys visited by {@link R#forEachKey(KeyConsumer)}.
+	 */
+	@FunctionalInterface
+	interface KeyConsumer {
+		void accept( double key );
+	}
+	
+	/**
+	 * Receives the values visited by {@link R#forEachValue(ValueConsumer)}.
+	 */
+	@FunctionalInterface
+	interface ValueConsumer {
+		void accept( byte value );
+	}
+	
 	
 	abstract class R implements Cloneable, JsonWriter.Source {
 		
@@ -162,12 +223,31 @@ public interface DoubleByteMap {
 		 * A value of 0 indicates an empty bucket.
 		 */
 		protected int[]             _buckets;
+		/**
+		 * The {@link Array#modMultiplier(int)} of {@code _buckets.length}, used by {@link #bucketIndex(int)}
+		 * to reduce hashes to bucket indices without an integer division.
+		 */
+		protected long              _bucketsMultiplier;
 		/**
 		 * The array used to link entries in collision chains within the {@code lo Region}.
 		 * Each element `links[i]` stores the index of the next entry in the chain,
 		 * or an index >= `_lo_Size` if it points to a terminal node in the {@code hi Region}.
 		 */
 		protected int[]             links = Array.EqualHashOf._ints.O;
+		
+		/**
+		 * The strategy that hashes keys into buckets. Defaults to {@link Array.Hash#IDENTITY};
+		 * replace it with {@link RW#hash_K(Array.Hash)} for keys whose low bits are poorly distributed.
+		 */
+		protected Array.Hash hash_K = Array.Hash.IDENTITY;
+		
+		/**
+		 * Returns the strategy currently used to hash keys into buckets.
+		 *
+		 * @return The key hashing strategy.
+		 */
+		public Array.Hash hash_K() { return hash_K; }
+		
 		/**
 		 * The array storing the keys of the map entries.
 		 * Keys for {@code lo Region} entries are at indices `0` to `_lo_Size - 1`.
@@ -330,7 +410,7 @@ public interface DoubleByteMap {
 		public long tokenOf( double key ) {
 			
 			if( _buckets == null || _count() == 0 ) return INVALID_TOKEN;
-			int index = (_buckets[ bucketIndex( Array.hash( key ) ) ] ) - 1;
+			int index = (_buckets[ bucketIndex( hash_K.hash( key ) ) ] ) - 1;
 			if( index < 0 ) return INVALID_TOKEN;
 			
 			for( int collisions = 0; ; ) {
@@ -342,6 +422,21 @@ public interface DoubleByteMap {
 		}
 		
 		
+		/**
+		 * Returns the value of the specified primitive key, or {@code defaultValue} if the key is absent.
+		 *
+		 * @param key          The primitive key to search for.
+		 * @param defaultValue The value to return if the key is absent.
+		 * @return The value of the key, or {@code defaultValue}.
+		 */
+		public byte getOrDefault( double key, byte defaultValue ) {
+			long token = tokenOf( key );
+			return token == INVALID_TOKEN ?
+			       defaultValue :
+			       value( token );
+		}
+		
+		
 		/**
 		 * Returns the token for the first non-null key-value mapping in this map according to
 		 * the internal iteration order. If only the null key is present, a token for the null key is returned.
@@ -465,6 +560,111 @@ public interface DoubleByteMap {
 					values[ index( token ) ] );
 		}
 		
+		/**
+		 * Returns a spliterator over the keys of the map, the null key excluded; check {@link #hasNullKey()}.
+		 * It splits the occupied slots of the {@code lo Region} and {@code hi Region} in halves, as if they were one
+		 * array, and reports {@code DISTINCT}, {@code SIZED}, {@code SUBSIZED} and {@code NONNULL}. The map must not be
+		 * modified while it is in use.
+		 *
+		 * @return A spliterator over the keys.
+		 */
+		public Spliterator.OfDouble spliterator() {
+			int lo  = _lo_Size;
+			int gap = _count() == 0 ?
+			          0 :
+			          keys.length - _hi_Size - lo; // skips the free slots between the regions
+			return new Array.DoubleSpliterator( 0, _count(), Spliterator.DISTINCT | Spliterator.NONNULL, i -> key( i < lo ? i : i + gap ) );
+		}
+		
+		/**
+		 * Returns a sequential {@link DoubleStream} over the keys of the map, the null key excluded, without boxing. Call
+		 * {@code parallel()} on it to run it on the common fork-join pool. The map must not be modified while the stream
+		 * is in use.
+		 *
+		 * @return A stream over the keys.
+		 */
+		public DoubleStream keys() { return StreamSupport.doubleStream( spliterator(), false ); }
+		
+		/**
+		 * Returns a spliterator over the values of the map, in the order of {@link #spliterator()}, the value of
+		 * the null key excluded. It splits as {@link #spliterator()} does and reports {@code SIZED}, {@code SUBSIZED}
+		 * and {@code NONNULL}.
+		 *
+		 * @return A spliterator over the values.
+		 */
+		public Spliterator.OfInt valuesSpliterator() {
+			int lo  = _lo_Size;
+			int gap = _count() == 0 ?
+			          0 :
+			          keys.length - _hi_Size - lo; // skips the free slots between the regions
+			return new Array.IntSpliterator( 0, _count(), Spliterator.NONNULL, i -> value( i < lo ? i : i + gap ) );
+		}
+		
+		/**
+		 * Returns a sequential {@link IntStream} over the values of the map, in the order of {@link #keys()}, the value of
+		 * the null key excluded, without boxing. Call {@code parallel()} on it to run it on the common fork-join pool. The
+		 * map must not be modified while the stream is in use.
+		 *
+		 * @return A stream over the values.
+		 */
+		public IntStream values() { return StreamSupport.intStream( valuesSpliterator(), false ); }
+		
+		/**
+		 * Passes every entry to the action, the null key excluded. Loops directly over the lo and hi regions of the key
+		 * and value arrays, without tokens or version checks, so the action must not modify the map.
+		 *
+		 * @param action The receiver of the entries.
+		 */
+		public void forEach( Consumer action ) {
+			if( _count() == 0 ) return;
+			for( int i = 0; i < _lo_Size; i++ )
+				action.accept( keys[ i ], values[ i ] );
+			for( int i = keys.length - _hi_Size; i < keys.length; i++ )
+				action.accept( keys[ i ], values[ i ] );
+		}
+		
+		/**
+		 * Passes every key to the action, the null key excluded, in the order of {@link #forEach(Consumer)}.
+		 *
+		 * @param action The receiver of the keys.
+		 */
+		public void forEachKey( KeyConsumer action ) {
+			if( _count() == 0 ) return;
+			for( int i = 0; i < _lo_Size; i++ )
+				action.accept( keys[ i ] );
+			for( int i = keys.length - _hi_Size; i < keys.length; i++ )
+				action.accept( keys[ i ] );
+		}
+		
+		/**
+		 * Passes every value to the action, the value of the null key excluded, in the order of
+		 * {@link #forEach(Consumer)}.
+		 *
+		 * @param action The receiver of the values.
+		 */
+		public void forEachValue( ValueConsumer action ) {
+			if( _count() == 0 ) return;
+			for( int i = 0; i < _lo_Size; i++ )
+				action.accept( values[ i ] );
+			for( int i = keys.length - _hi_Size; i < keys.length; i++ )
+				action.accept( values[ i ] );
+		}
+		
+		/**
+		 * Passes the entries to the predicate, in the order of {@link #forEach(Consumer)}, until it returns {@code false}.
+		 *
+		 * @param predicate The test of the entries.
+		 * @return {@code true} if the predicate accepted every entry, {@code false} if it stopped the iteration.
+		 */
+		public boolean forEachWhile( Predicate predicate ) {
+			if( _count() == 0 ) return true;
+			for( int i = 0; i < _lo_Size; i++ )
+				if( !predicate.test( keys[ i ], values[ i ] ) ) return false;
+			for( int i = keys.length - _hi_Size; i < keys.length; i++ )
+				if( !predicate.test( keys[ i ], values[ i ] ) ) return false;
+			return true;
+		}
+		
 		
 		@Override
 		/**
@@ -584,7 +784,7 @@ public interface DoubleByteMap {
 		 * @param hash The hash value of a key.
 		 * @return The computed bucket index.
 		 */
-		protected int bucketIndex( int hash ) { return ( hash & 0x7FFF_FFFF ) % _buckets.length; }
+		protected int bucketIndex( int hash ) { return Array.mod( hash & 0x7FFF_FFFF, _bucketsMultiplier, _buckets.length ); }
 		
 		/**
 		 * Creates a token from an internal array index. The token encodes the map's current version
@@ -620,6 +820,29 @@ public interface DoubleByteMap {
 	 */
 	class RW extends R {
 		
+		/**
+		 * The length of a collision chain that, when exceeded during an insertion, triggers a rehash
+		 * with the strategy supplied by {@link #forceNewHashCodes}.
+		 */
+		protected static final int                        HashCollisionThreshold = 100;
+		/**
+		 * An optional function that, when set, provides a new key hashing strategy once an insertion walks a
+		 * collision chain longer than {@link #HashCollisionThreshold}, e.g. {@code h -> Array.Hash.random()}.
+		 * This counters hash-flooding with keys crafted against the current strategy.
+		 */
+		public                Function< Array.Hash, Array.Hash > forceNewHashCodes      = null;
+		
+		/**
+		 * Replaces the strategy used to hash keys into buckets and redistributes the current entries under it.
+		 * This is a structural modification that invalidates all outstanding tokens.
+		 *
+		 * @param hash_K The new key hashing strategy, e.g. {@link Array.Hash#MURMUR} or {@link Array.Hash#random()}.
+		 */
+		public void hash_K( Array.Hash hash_K ) {
+			this.hash_K = hash_K;
+			if( _buckets != null ) resize( keys.length );
+		}
+		
 		/**
 		 * Constructs an empty {@code IntIntMap.RW} instance with a default initial capacity (7).
 		 */
@@ -645,6 +868,7 @@ public interface DoubleByteMap {
 			_version++;
 			
 			_buckets = new int[ capacity ];
+			_bucketsMultiplier = Array.modMultiplier( capacity );
 			keys     = new double[ capacity ];
 			values   = new byte[ capacity ];
 			_lo_Size = 0;
@@ -697,23 +921,72 @@ public interface DoubleByteMap {
 			if( _buckets == null ) initialize( 7 );
 			else if( _count() == keys.length ) resize( Array.prime( keys.length * 2 ) );
 			
-			int bucketIndex = bucketIndex( Array.hash( key ) );
-			int index       = _buckets[ bucketIndex ] - 1;
+			return put( key, value, bucketIndex( hash_K.hash( key ) ) );
+		}
+		
+		/**
+		 * Associates the value with the key in the given bucket of the current arrays, which must have room for one more entry.
+		 *
+		 * @param key         The key.
+		 * @param value       The value.
+		 * @param bucketIndex The bucket of the key, as computed by {@link #bucketIndex(int)}.
+		 * @return {@code true} if a new key was added, {@code false} if an existing key's value was updated.
+		 */
+		private boolean put( double key, byte value, int bucketIndex ) {
+			int index = find( key, bucketIndex );
+			if( index < 0 ) {
+				insert( key, value, bucketIndex, ~index );
+				return true;// Key was new
+			}
+			
+			values[ index ] = ( byte ) value;// Update value
+			_version++;
+			return false;
+		}
+		
+		/**
+		 * Walks the collision chain of the given bucket looking for the key.
+		 *
+		 * @param key         The key.
+		 * @param bucketIndex The bucket of the key, as computed by {@link #bucketIndex(int)}.
+		 * @return The index of the key's entry, or, if the key is absent, the bitwise complement of the number of
+		 *         collisions walked past, to be passed to {@link #insert}.
+		 */
+		private int find( double key, int bucketIndex ) {
+			int index = _buckets[ bucketIndex ] - 1;
+			if( index == -1 ) return ~0;
+			
+			for( int collisions = 0; ; ) {
+				if( keys[ index ] == ( double ) key ) return index;
+				if( _lo_Size <= index ) return ~collisions;
+				index = links[ index ];
+				
+				if( _lo_Size + 1 < collisions++ ) throw new ConcurrentModificationException( "Concurrent operations not supported." );
+			}
+		}
+		
+		/**
+		 * Adds an absent key to the given bucket of the current arrays, which must have room for one more entry.
+		 *
+		 * @param key         The key, known to be absent.
+		 * @param value       The value.
+		 * @param bucketIndex The bucket of the key, as computed by {@link #bucketIndex(int)}.
+		 * @param collisions  The number of collisions reported by {@link #find}.
+		 * @return The index of the new entry.
+		 */
+		private int insert( double key, byte value, int bucketIndex, int collisions ) {
+			int index = _buckets[ bucketIndex ] - 1;
 			int dst_index;
 			
 			if( index == -1 )  // Bucket is empty: place new entry in {@code hi Region}
 				dst_index = keys.length - 1 - _hi_Size++; // Add to the "bottom" of {@code hi Region}
 			else {
-				for( int i = index, collisions = 0; ; ) {
-					if( keys[ i ] == ( double ) key ) {
-						values[ i ] = ( byte ) value;// Update value
-						_version++;
-						return false;// Key was not new
+				if( HashCollisionThreshold < collisions && forceNewHashCodes != null ) {
+					Array.Hash hash = forceNewHashCodes.apply( hash_K );
+					if( hash != hash_K ) {
+						hash_K( hash );
+						return insert( key, value, bucketIndex( hash_K.hash( key ) ), 0 );
 					}
-					if( _lo_Size <= i ) break;
-					i = links[ i ];
-					
-					if( _lo_Size + 1 < collisions++ ) throw new ConcurrentModificationException( "Concurrent operations not supported." );
 				}
 				
 				( links.length == ( dst_index = _lo_Size++ ) ?
@@ -725,10 +998,136 @@ public interface DoubleByteMap {
 			values[ dst_index ]     = ( byte ) value;
 			_buckets[ bucketIndex ] = ( int ) ( dst_index + 1 );
 			_version++;
+			return dst_index;
+		}
+		
+		
+		/**
+		 * Associates the value with the key only if the key is absent. The key is looked up once.
+		 *
+		 * @param key   The key.
+		 * @param value The value to associate with an absent key.
+		 * @return {@code true} if the key was added, {@code false} if it was present and its value left unchanged.
+		 */
+		public boolean putIfAbsent( double key, byte value ) {
+			if( _buckets == null ) initialize( 7 );
+			else if( _count() == keys.length ) resize( Array.prime( keys.length * 2 ) );
+			
+			int bucketIndex = bucketIndex( hash_K.hash( key ) );
+			int index       = find( key, bucketIndex );
+			if( -1 < index ) return false;
+			
+			insert( key, value, bucketIndex, ~index );
 			return true;
 		}
 		
 		
+		/**
+		 * Adds {@code delta} to the value of the key, associating an absent key with {@code delta}.
+		 * The key is looked up once, so counting is a single call instead of {@code tokenOf} followed by {@code put}.
+		 *
+		 * @param key   The key.
+		 * @param delta The amount to add.
+		 * @return The new value of the key.
+		 */
+		public byte addTo( double key, byte delta ) {
+			if( _buckets == null ) initialize( 7 );
+			else if( _count() == keys.length ) resize( Array.prime( keys.length * 2 ) );
+			
+			int bucketIndex = bucketIndex( hash_K.hash( key ) );
+			int index       = find( key, bucketIndex );
+			if( index < 0 ) {
+				insert( key, delta, bucketIndex, ~index );
+				return delta;
+			}
+			
+			_version++;
+			return values[ index ] += delta;
+		}
+		
+		
+		/**
+		 * Returns the value of the key, first associating an absent key with the value computed by {@code mapping}.
+		 * The key is looked up once.
+		 *
+		 * @param key     The key.
+		 * @param mapping Computes the value of an absent key. It must not modify this map.
+		 * @return The current, or the newly computed, value of the key.
+		 * @throws ConcurrentModificationException if {@code mapping} modified this map.
+		 */
+		public byte computeIfAbsent( double key, Mapping mapping ) {
+			if( _buckets == null ) initialize( 7 );
+			else if( _count() == keys.length ) resize( Array.prime( keys.length * 2 ) );
+			
+			int bucketIndex = bucketIndex( hash_K.hash( key ) );
+			int index       = find( key, bucketIndex );
+			if( -1 < index ) return values[ index ];
+			
+			int  version = _version;
+			byte value   = mapping.apply( key );
+			if( version != _version ) throw new ConcurrentModificationException( "The mapping function modified the map." );
+			
+			insert( key, value, bucketIndex, ~index );
+			return value;
+		}
+		
+		
+		/**
+		 * Replaces the value of a present key with the value computed by {@code remapping}. The key is looked up once.
+		 * An absent key is left absent.
+		 *
+		 * @param key       The key.
+		 * @param remapping Computes the new value from the key and its current value. It must not modify this map.
+		 * @return {@code true} if the key was present and its value replaced.
+		 * @throws ConcurrentModificationException if {@code remapping} modified this map.
+		 */
+		public boolean computeIfPresent( double key, Remapping remapping ) {
+			if( _buckets == null ) return false;
+			
+			int index = find( key, bucketIndex( hash_K.hash( key ) ) );
+			if( index < 0 ) return false;
+			
+			int  version = _version;
+			byte value   = remapping.apply( key, values[ index ] );
+			if( version != _version ) throw new ConcurrentModificationException( "The remapping function modified the map." );
+			
+			values[ index ] = ( byte ) value;
+			_version++;
+			return true;
+		}
+		
+		
+		/**
+		 * Associates an absent key with {@code value}, or replaces the value of a present key with the result of
+		 * {@code merging} its current value with {@code value}. The key is looked up once.
+		 *
+		 * @param key     The key.
+		 * @param value   The value to associate with an absent key, or to merge with the current one.
+		 * @param merging Combines the current value with {@code value}. It must not modify this map.
+		 * @return The new value of the key.
+		 * @throws ConcurrentModificationException if {@code merging} modified this map.
+		 */
+		public byte merge( double key, byte value, Merging merging ) {
+			if( _buckets == null ) initialize( 7 );
+			else if( _count() == keys.length ) resize( Array.prime( keys.length * 2 ) );
+			
+			int bucketIndex = bucketIndex( hash_K.hash( key ) );
+			int index       = find( key, bucketIndex );
+			if( index < 0 ) {
+				insert( key, value, bucketIndex, ~index );
+				return value;
+			}
+			
+			int  version = _version;
+			byte merged  = merging.apply( values[ index ], value );
+			if( version != _version ) throw new ConcurrentModificationException( "The merging function modified the map." );
+			
+			values[ index ] = ( byte ) merged;
+			_version++;
+			return merged;
+		}
+		
+		
 		/**
 		 * Removes the mapping for the specified boxed key from this map if present.
 		 * If the key is {@code null}, the null key mapping is removed.
@@ -776,7 +1175,7 @@ public interface DoubleByteMap {
 		private void move( int src, int dst ) {
 			
 			if( src == dst ) return;
-			int bucketIndex = bucketIndex( Array.hash( keys[ src ] ) );
+			int bucketIndex = bucketIndex( hash_K.hash( keys[ src ] ) );
 			int index       = _buckets[ bucketIndex ] - 1;
 			
 			if( index == src ) _buckets[ bucketIndex ] = ( int ) ( dst + 1 );
@@ -801,7 +1200,7 @@ public interface DoubleByteMap {
 		 */
 		public boolean remove( double key ) {
 			if( _count() == 0 ) return false;
-			int removeBucketIndex = bucketIndex( Array.hash( key ) );
+			int removeBucketIndex = bucketIndex( hash_K.hash( key ) );
 			int removeIndex       = _buckets[ removeBucketIndex ] - 1;
 			if( removeIndex < 0 ) return false;
 			
@@ -964,7 +1363,7 @@ public interface DoubleByteMap {
 		 * @param value The value to copy.
 		 */
 		private void copy( double key, byte value ) {
-			int bucketIndex = bucketIndex( Array.hash( key ) );
+			int bucketIndex = bucketIndex( hash_K.hash( key ) );
 			int index       = _buckets[ bucketIndex ] - 1;
 			int dst_index;
 			
@@ -972,7 +1371,7 @@ public interface DoubleByteMap {
 				dst_index = keys.length - 1 - _hi_Size++;
 			else ( links.length == _lo_Size ?
 				  links = Arrays.copyOf( links, Math.max( 16, Math.min( _lo_Size * 2, keys.length ) ) ) :
-				  links )[ dst_index = _lo_Size++ ] = ( char ) ( index );
+				  links )[ dst_index = _lo_Size++ ] = index;
 			
 			keys[ dst_index ]       = key;
 			values[ dst_index ]     = value;
@@ -21,6 +21,10 @@ import org.unirail.JsonWriter;
 
 import java.util.Arrays;
 import java.util.ConcurrentModificationException;
+import java.util.Spliterator;
+import java.util.function.Function;
+import java.util.stream.DoubleStream;
+import java.util.stream.StreamSupport;
 
 /**
  * A specialized map for mapping primitive `int` keys to primitive `int` values,
@@ -71,6 +75,38 @@ import java.util.ConcurrentModificationException;
  */
 public interface DoubleIntNullMap {
 	
+	/**
+	 * Computes the value of an absent key for {@link RW#computeIfAbsent(double, Mapping)}.
+	 */
+	@FunctionalInterface
+	interface Mapping {
+		int apply( double key );
+	}
+
+	/**
+	 * Computes the new value of a present key for {@link RW#computeIfPresent(double, Remapping)}.
+	 */
+	@FunctionalInterface
+	interface Remapping {
+		int apply( double key, int value );
+	}
+
+	/**
+	 * Combines the current value of a present key with a given value for {@link RW#merge(double, int, Merging)}.
+	 */
+	@FunctionalInterface
+	interface Merging {
+		int apply( int oldValue, int value );
+	}
+
+	/**
+	 * Receives the keys visited by {@link R#forEachKey(KeyConsumer)}.
+	 */
+	@FunctionalInterface
+	interface KeyConsumer {
+		void accept( double key );
+	}
+	
 	/**
 	 * An abstract base class providing read-only operations for the dual-region hash map.
 	 * It implements the core functionalities and state management, offering methods for
@@ -99,11 +135,30 @@ public interface DoubleIntNullMap {
 		 * is the 0-based index of the head of a collision chain. A value of `0` indicates an empty bucket.
 		 */
 		protected int[]                  _buckets;
+		/**
+		 * The {@link Array#modMultiplier(int)} of {@code _buckets.length}, used by {@link #bucketIndex(int)}
+		 * to reduce hashes to bucket indices without an integer division.
+		 */
+		protected long                   _bucketsMultiplier;
 		/**
 		 * An array for collision chaining. For an entry at index `i` in the `lo Region`,
 		 * `links[i]` stores the 0-based index of the next element in its collision chain.
 		 */
 		protected int[]                  links = Array.EqualHashOf._ints.O;
+		
+		/**
+		 * The strategy that hashes keys into buckets. Defaults to {@link Array.Hash#IDENTITY};
+		 * replace it with {@link RW#hash_K(Array.Hash)} for keys whose low bits are poorly distributed.
+		 */
+		protected Array.Hash hash_K = Array.Hash.IDENTITY;
+		
+		/**
+		 * Returns the strategy currently used to hash keys into buckets.
+		 *
+		 * @return The key hashing strategy.
+		 */
+		public Array.Hash hash_K() { return hash_K; }
+		
 		/**
 		 * Stores the primitive keys of the map. This array is logically divided into a `lo Region`
 		 * (for collision-involved entries) and a `hi Region` (for non-colliding entries).
@@ -321,7 +376,7 @@ public interface DoubleIntNullMap {
 		public long tokenOf( double key ) {
 			
 			if( _buckets == null || _count() == 0 ) return INVALID_TOKEN;
-			int index = _buckets[ bucketIndex( Array.hash( key ) ) ] - 1;
+			int index = _buckets[ bucketIndex( hash_K.hash( key ) ) ] - 1;
 			if( index < 0 ) return INVALID_TOKEN;
 			
 			for( int collisions = 0; ; ) {
@@ -333,6 +388,21 @@ public interface DoubleIntNullMap {
 		}
 		
 		
+		/**
+		 * Returns the value of the specified primitive key, or `defaultValue` if the key is absent or mapped to null.
+		 *
+		 * @param key          The primitive key to search for.
+		 * @param defaultValue The value to return if the key is absent or mapped to null.
+		 * @return The value of the key, or `defaultValue`.
+		 */
+		public int getOrDefault( double key, int defaultValue ) {
+			long token = tokenOf( key );
+			return token == INVALID_TOKEN || !hasValue( token ) ?
+			       defaultValue :
+			       value( token );
+		}
+		
+		
 		/**
 		 * Returns the token for the first entry in the iteration order.
 		 * Subsequent entries can be accessed by passing the returned token to {@link #token(long)}.
@@ -451,6 +521,45 @@ public interface DoubleIntNullMap {
 			return ( double )  keys[ index( token ) ];
 		}
 		
+		/**
+		 * Returns a spliterator over the keys of the map, the null key excluded; check {@link #hasNullKey()}.
+		 * It splits the occupied slots of the {@code lo Region} and {@code hi Region} in halves, as if they were one
+		 * array, and reports {@code DISTINCT}, {@code SIZED}, {@code SUBSIZED} and {@code NONNULL}. The map must not be
+		 * modified while it is in use.
+		 *
+		 * @return A spliterator over the keys.
+		 */
+		public Spliterator.OfDouble spliterator() {
+			int lo  = _lo_Size;
+			int gap = _count() == 0 ?
+			          0 :
+			          keys.length - _hi_Size - lo; // skips the free slots between the regions
+			return new Array.DoubleSpliterator( 0, _count(), Spliterator.DISTINCT | Spliterator.NONNULL, i -> key( i < lo ? i : i + gap ) );
+		}
+		
+		/**
+		 * Returns a sequential {@link DoubleStream} over the keys of the map, the null key excluded, without boxing. Call
+		 * {@code parallel()} on it to run it on the common fork-join pool. The map must not be modified while the stream
+		 * is in use.
+		 *
+		 * @return A stream over the keys.
+		 */
+		public DoubleStream keys() { return StreamSupport.doubleStream( spliterator(), false ); }
+		
+		/**
+		 * Passes every key to the action, the null key excluded. Loops directly over the lo and hi regions of the key
+		 * array, without tokens or version checks, so the action must not modify the map.
+		 *
+		 * @param action The receiver of the keys.
+		 */
+		public void forEachKey( KeyConsumer action ) {
+			if( _count() == 0 ) return;
+			for( int i = 0; i < _lo_Size; i++ )
+				action.accept( keys[ i ] );
+			for( int i = keys.length - _hi_Size; i < keys.length; i++ )
+				action.accept( keys[ i ] );
+		}
+		
 		/**
 		 * Returns `true` if the entry associated with the given token has a non-null value.
 		 *
@@ -613,7 +722,7 @@ public interface DoubleIntNullMap {
 		 * @param hash The hash code of a key.
 		 * @return The index in the `_buckets` array.
 		 */
-		protected int bucketIndex( int hash ) { return ( hash & 0x7FFF_FFFF ) % _buckets.length; }
+		protected int bucketIndex( int hash ) { return Array.mod( hash & 0x7FFF_FFFF, _bucketsMultiplier, _buckets.length ); }
 		
 		
 		/**
@@ -654,6 +763,29 @@ public interface DoubleIntNullMap {
 	 */
 	class RW extends R {
 		
+		/**
+		 * The length of a collision chain that, when exceeded during an insertion, triggers a rehash
+		 * with the strategy supplied by {@link #forceNewHashCodes}.
+		 */
+		protected static final int                        HashCollisionThreshold = 100;
+		/**
+		 * An optional function that, when set, provides a new key hashing strategy once an insertion walks a
+		 * collision chain longer than {@link #HashCollisionThreshold}, e.g. {@code h -> Array.Hash.random()}.
+		 * This counters hash-flooding with keys crafted against the current strategy.
+		 */
+		public                Function< Array.Hash, Array.Hash > forceNewHashCodes      = null;
+		
+		/**
+		 * Replaces the strategy used to hash keys into buckets and redistributes the current entries under it.
+		 * This is a structural modification that invalidates all outstanding tokens.
+		 *
+		 * @param hash_K The new key hashing strategy, e.g. {@link Array.Hash#MURMUR} or {@link Array.Hash#random()}.
+		 */
+		public void hash_K( Array.Hash hash_K ) {
+			this.hash_K = hash_K;
+			if( _buckets != null ) resize( keys.length );
+		}
+		
 		
 		/**
 		 * Constructs an empty map with a default initial capacity.
@@ -683,6 +815,7 @@ public interface DoubleIntNullMap {
 			_version++;
 			
 			_buckets = new int[ capacity ];
+			_bucketsMultiplier = Array.modMultiplier( capacity );
 			keys     = new double[ capacity ];
 			values   = new int[ capacity ];
 			nulls    = new long[ capacity + 63 >> 6 ];
@@ -834,34 +967,71 @@ public interface DoubleIntNullMap {
 		 *                                         collision chain traversal.
 		 */
 		private boolean put( double key, int value, boolean hasValue ) {
-			
-			
 			if( _buckets == null ) initialize( 7 );
 			else if( _count() == keys.length ) resize( Array.prime( keys.length * 2 ) );
 			
-			int bucketIndex = bucketIndex( Array.hash( key ) );
-			int index       = _buckets[ bucketIndex ] - 1;
+			int bucketIndex = bucketIndex( hash_K.hash( key ) );
+			int index       = find( key, bucketIndex );
+			if( index < 0 ) {
+				insert( key, value, hasValue, bucketIndex, ~index );
+				return true;
+			}
+			
+			if( hasValue ) {
+				values[ index ] = value;
+				nulls[ index >> 6 ] |= 1L << index;
+			}
+			else
+				nulls[ index >> 6 ] &= ~( 1L << index );
+			
+			_version++;
+			return false;
+		}
+		
+		/**
+		 * Walks the collision chain of the given bucket looking for the key.
+		 *
+		 * @param key         The key.
+		 * @param bucketIndex The bucket of the key, as computed by {@link #bucketIndex(int)}.
+		 * @return The index of the key's entry, or, if the key is absent, the bitwise complement of the number of
+		 *         collisions walked past, to be passed to {@link #insert}.
+		 */
+		private int find( double key, int bucketIndex ) {
+			int index = _buckets[ bucketIndex ] - 1;
+			if( index == -1 ) return ~0;
+			
+			for( int collisions = 0; ; ) {
+				if( keys[ index ] == key ) return index;
+				if( _lo_Size <= index ) return ~collisions;
+				index = links[ index ];
+				
+				if( _lo_Size + 1 < collisions++ ) throw new ConcurrentModificationException( "Concurrent operations not supported." );
+			}
+		}
+		
+		/**
+		 * Adds an absent key to the given bucket of the current arrays, which must have room for one more entry.
+		 *
+		 * @param key         The key, known to be absent.
+		 * @param value       The value.
+		 * @param hasValue    `true` to map the key to `value`, `false` to map it to null.
+		 * @param bucketIndex The bucket of the key, as computed by {@link #bucketIndex(int)}.
+		 * @param collisions  The number of collisions reported by {@link #find}.
+		 * @return The index of the new entry.
+		 */
+		private int insert( double key, int value, boolean hasValue, int bucketIndex, int collisions ) {
+			int index = _buckets[ bucketIndex ] - 1;
 			int dst_index;
 			
 			if( index == -1 )
 				dst_index = keys.length - 1 - _hi_Size++;
 			else {
-				for( int i = index, collisions = 0; ; ) {
-					if( keys[ i ] == ( double ) key ) {
-						if( hasValue ) {
-							values[ i ] = ( int ) value;
-							nulls[ i >> 6 ] |= 1L << i;
-						}
-						else
-							nulls[ i >> 6 ] &= ~( 1L << i );
-						
-						_version++;
-						return false;
+				if( HashCollisionThreshold < collisions && forceNewHashCodes != null ) {
+					Array.Hash hash = forceNewHashCodes.apply( hash_K );
+					if( hash != hash_K ) {
+						hash_K( hash );
+						return insert( key, value, hasValue, bucketIndex( hash_K.hash( key ) ), 0 );
 					}
-					if( _lo_Size <= i ) break;
-					i = links[ i ];
-					
-					if( _lo_Size + 1 < collisions++ ) throw new ConcurrentModificationException( "Concurrent operations not supported." );
 				}
 				
 				( links.length == ( dst_index = _lo_Size++ ) ?
@@ -869,9 +1039,9 @@ public interface DoubleIntNullMap {
 				  links )[ dst_index ] = index; // New entry points to the old head
 			}
 			
-			keys[ dst_index ] = ( double ) key;
+			keys[ dst_index ] = key;
 			if( hasValue ) {
-				values[ dst_index ] = ( int ) value;
+				values[ dst_index ] = value;
 				nulls[ dst_index >> 6 ] |= 1L << dst_index;
 			}
 			else
@@ -879,10 +1049,149 @@ public interface DoubleIntNullMap {
 			
 			_buckets[ bucketIndex ] = ( int ) ( dst_index + 1 );
 			_version++;
+			return dst_index;
+		}
+		
+		/**
+		 * Maps the present key at the given index to a non-null value.
+		 *
+		 * @param index The index of the key's entry.
+		 * @param value The value.
+		 * @return The value, as stored.
+		 */
+		private int set( int index, int value ) {
+			nulls[ index >> 6 ] |= 1L << index;
+			_version++;
+			return values[ index ] = value;
+		}
+		
+		
+		/**
+		 * Associates the value with the key only if the key is absent or mapped to null. The key is looked up once.
+		 *
+		 * @param key   The key.
+		 * @param value The value to associate with the key.
+		 * @return `true` if the value was associated, `false` if the key was mapped to a non-null value, left unchanged.
+		 */
+		public boolean putIfAbsent( double key, int value ) {
+			if( _buckets == null ) initialize( 7 );
+			else if( _count() == keys.length ) resize( Array.prime( keys.length * 2 ) );
+			
+			int bucketIndex = bucketIndex( hash_K.hash( key ) );
+			int index       = find( key, bucketIndex );
+			if( index < 0 ) insert( key, value, true, bucketIndex, ~index );
+			else if( ( nulls[ index >> 6 ] & 1L << index ) == 0 ) set( index, value );
+			else return false;
+			return true;
+		}
+		
+		
+		/**
+		 * Adds `delta` to the value of the key, associating a key that is absent or mapped to null with `delta`.
+		 * The key is looked up once, so counting is a single call instead of `tokenOf` followed by `put`.
+		 *
+		 * @param key   The key.
+		 * @param delta The amount to add.
+		 * @return The new value of the key.
+		 */
+		public int addTo( double key, int delta ) {
+			if( _buckets == null ) initialize( 7 );
+			else if( _count() == keys.length ) resize( Array.prime( keys.length * 2 ) );
+			
+			int bucketIndex = bucketIndex( hash_K.hash( key ) );
+			int index       = find( key, bucketIndex );
+			if( index < 0 ) {
+				insert( key, delta, true, bucketIndex, ~index );
+				return delta;
+			}
+			if( ( nulls[ index >> 6 ] & 1L << index ) == 0 ) return set( index, delta );
+			
+			_version++;
+			return ( values[ index ] += delta );
+		}
+		
+		
+		/**
+		 * Returns the non-null value of the key, first associating a key that is absent or mapped to null with the
+		 * value computed by `mapping`. The key is looked up once.
+		 *
+		 * @param key     The key.
+		 * @param mapping Computes the value of a key that is absent or mapped to null. It must not modify this map.
+		 * @return The current, or the newly computed, value of the key.
+		 * @throws ConcurrentModificationException if `mapping` modified this map.
+		 */
+		public int computeIfAbsent( double key, Mapping mapping ) {
+			if( _buckets == null ) initialize( 7 );
+			else if( _count() == keys.length ) resize( Array.prime( keys.length * 2 ) );
+			
+			int bucketIndex = bucketIndex( hash_K.hash( key ) );
+			int index       = find( key, bucketIndex );
+			if( -1 < index && ( nulls[ index >> 6 ] & 1L << index ) != 0 ) return values[ index ];
+			
+			int version = _version;
+			int value   = mapping.apply( key );
+			if( version != _version ) throw new ConcurrentModificationException( "The mapping function modified the map." );
+			
+			if( -1 < index ) return set( index, value );
+			insert( key, value, true, bucketIndex, ~index );
+			return value;
+		}
+		
+		
+		/**
+		 * Replaces the non-null value of a key with the value computed by `remapping`. The key is looked up once.
+		 * A key that is absent or mapped to null is left as it is.
+		 *
+		 * @param key       The key.
+		 * @param remapping Computes the new value from the key and its current value. It must not modify this map.
+		 * @return `true` if the key was mapped to a non-null value, now replaced.
+		 * @throws ConcurrentModificationException if `remapping` modified this map.
+		 */
+		public boolean computeIfPresent( double key, Remapping remapping ) {
+			if( _buckets == null ) return false;
+			
+			int index = find( key, bucketIndex( hash_K.hash( key ) ) );
+			if( index < 0 || ( nulls[ index >> 6 ] & 1L << index ) == 0 ) return false;
+			
+			int version = _version;
+			int value   = remapping.apply( key, values[ index ] );
+			if( version != _version ) throw new ConcurrentModificationException( "The remapping function modified the map." );
+			
+			set( index, value );
 			return true;
 		}
 		
 		
+		/**
+		 * Associates a key that is absent or mapped to null with `value`, or replaces the non-null value of a key with
+		 * the result of `merging` it with `value`. The key is looked up once.
+		 *
+		 * @param key     The key.
+		 * @param value   The value to associate with a key that is absent or mapped to null, or to merge with the current one.
+		 * @param merging Combines the current value with `value`. It must not modify this map.
+		 * @return The new value of the key.
+		 * @throws ConcurrentModificationException if `merging` modified this map.
+		 */
+		public int merge( double key, int value, Merging merging ) {
+			if( _buckets == null ) initialize( 7 );
+			else if( _count() == keys.length ) resize( Array.prime( keys.length * 2 ) );
+			
+			int bucketIndex = bucketIndex( hash_K.hash( key ) );
+			int index       = find( key, bucketIndex );
+			if( index < 0 ) {
+				insert( key, value, true, bucketIndex, ~index );
+				return value;
+			}
+			if( ( nulls[ index >> 6 ] & 1L << index ) == 0 ) return set( index, value );
+			
+			int version = _version;
+			int merged  = merging.apply( values[ index ], value );
+			if( version != _version ) throw new ConcurrentModificationException( "The merging function modified the map." );
+			
+			return set( index, merged );
+		}
+		
+		
 		/**
 		 * Removes the mapping for the specified boxed key from this map if present.
 		 *
@@ -921,7 +1230,7 @@ public interface DoubleIntNullMap {
 		private void move( int src, int dst ) {
 			
 			if( src == dst ) return;
-			int bucketIndex = bucketIndex( Array.hash( keys[ src ] ) );
+			int bucketIndex = bucketIndex( hash_K.hash( keys[ src ] ) );
 			int index       = _buckets[ bucketIndex ] - 1;
 			
 			if( index == src ) _buckets[ bucketIndex ] = ( int ) ( dst + 1 );
@@ -963,7 +1272,7 @@ public interface DoubleIntNullMap {
 			
 			
 			if( _count() == 0 ) return false;
-			int removeBucketIndex = bucketIndex( Array.hash( key ) );
+			int removeBucketIndex = bucketIndex( hash_K.hash( key ) );
 			int removeIndex       = _buckets[ removeBucketIndex ] - 1;
 			if( removeIndex < 0 ) return false;
 			
@@ -1108,23 +1417,15 @@ public interface DoubleIntNullMap {
 			if( links.length < 0xFF && links.length < _buckets.length ) links = _buckets;//reuse buckets as links
 			initialize( newSize );
 			
-			long bits = 0;
-			int  b    = 0;
-			
-			
 			for( int i = 0; i < old_lo_Size; i++ )
-				if( ( ( i < b << 6 ?
-				        bits :
-				        ( bits = old_nulls[ b++ >> 6 ] ) ) & 1L << i ) != 0 )
+				if( ( old_nulls[ i >> 6 ] & 1L << i ) != 0 )
 					copy( ( double ) old_keys[ i ], ( int ) old_values[ i ], true );
 				else
 					copy( ( double ) old_keys[ i ], ( int ) 0, false );
 			
 			
 			for( int i = old_keys.length - old_hi_Size; i < old_keys.length; i++ )
-				if( ( ( i < b << 6 ?
-				        bits :
-				        ( bits = old_nulls[ b++ >> 6 ] ) ) & 1L << i ) != 0 )
+				if( ( old_nulls[ i >> 6 ] & 1L << i ) != 0 )
 					copy( ( double ) old_keys[ i ], ( int ) old_values[ i ], true );
 				else
 					copy( ( double ) old_keys[ i ], ( int ) 0, false );
@@ -1142,7 +1443,7 @@ public interface DoubleIntNullMap {
 		 * @param hasValue `true` if mapping to a non-null value, `false` for conceptual null.
 		 */
 		private void copy( double key, int value, boolean hasValue ) {
-			int bucketIndex = bucketIndex( Array.hash( key ) );
+			int bucketIndex = bucketIndex( hash_K.hash( key ) );
 			int index       = _buckets[ bucketIndex ] - 1;
 			int dst_index;
 			
@@ -1150,7 +1451,7 @@ public interface DoubleIntNullMap {
 				dst_index = keys.length - 1 - _hi_Size++;
 			else ( links.length == _lo_Size ?
 			       links = Arrays.copyOf( links, Math.max( 16, Math.min( _lo_Size * 2, keys.length ) ) ) :
-			       links )[ dst_index = _lo_Size++ ] = ( char ) ( index );
+			       links )[ dst_index = _lo_Size++ ] = index;
 			
 			keys[ dst_index ] = key;
 			if( hasValue ) {
@@ -0,0 +1,732 @@
+// Copyright 2025 Chikirev Sirguy, Unirail Group
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+// For inquiries, please contact: al8v5C6HU4UtqE9@gmail.com
+// GitHub Repository: https://github.com/AdHoc-Protocol
+package org.unirail.collections;
+
+import org.unirail.JsonWriter;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+
+/**
+ * A map from primitive {@code long} keys to primitive {@code long} values where every entry carries a primitive
+ * deadline, read from a {@link Clock}, after which it is removed.
+ * <p>
+ * Expired entries are removed by a hierarchical timing wheel, advanced to the current time on every
+ * {@link #put}, {@link #addTo}, {@link #tokenOf}, {@link #get} and {@link #expire()} call, so no sweeper thread is needed.
+ * The cost of an advance is proportional to the number of entries that expire or move down a level and of the
+ * non-empty buckets reached, whatever the time passed, and the table is never scanned. Lookups also compare the deadline of the entry they find with
+ * the current time, so an entry is never returned after its deadline, whatever the tick resolution.
+ *
+ * <h3>Storage:</h3>
+ * Entries live in slots of the parallel {@code keys}, {@code values} and {@code deadlines} arrays and keep their slot
+ * until removed; removed slots are reused through a free list. Keys are found through buckets and collision chains of
+ * 1-based slots, as in {@link LongLongMap}.
+ *
+ * <h3>Timing wheel:</h3>
+ * {@code LEVELS} levels of {@code 64} buckets, each bucket a doubly linked list of slots in the {@code wheelPrev} and
+ * {@code wheelNext} arrays. A bucket of level {@code L} spans {@code 64^L} ticks. An entry due in {@code delta} ticks is
+ * linked into the level whose span covers {@code delta}; when the wheel reaches a bucket of an upper level, its entries
+ * move to lower levels, and the entries of a reached level-0 bucket expire. Deadlines beyond the wheel wait in an
+ * overflow list, revisited once per wheel revolution. A {@code long} mask per level marks the non-empty buckets, so an
+ * advance jumps straight to the next tick that reaches a non-empty bucket of any level, skipping the idle ticks.
+ * <p>
+ * The map is not thread-safe.
+ */
+public class ExpiringLongLongMap implements JsonWriter.Source {
+	
+	/**
+	 * The source of the current time. Deadlines and time-to-live arguments are in its units.
+	 */
+	@FunctionalInterface
+	public interface Clock {
+		long now();
+		
+		/**
+		 * {@link System#currentTimeMillis()}.
+		 */
+		Clock MILLIS = System::currentTimeMillis;
+		
+		/**
+		 * {@link System#nanoTime()}.
+		 */
+		Clock NANOS = System::nanoTime;
+	}
+	
+	/**
+	 * Receives the entries removed because their deadline passed.
+	 */
+	@FunctionalInterface
+	public interface Expired {
+		void expired( long key, long value );
+	}
+	
+	protected static final int LEVELS   = 4;
+	protected static final int BITS     = 6;
+	protected static final int OVERFLOW = LEVELS << BITS;
+	
+	/**
+	 * A special token value indicating that a key was not found or no more elements exist.
+	 */
+	public static final long INVALID_TOKEN = -1L;
+	
+	protected static final int VERSION_SHIFT = 32;
+	
+	protected long[] keys      = Array.EqualHashOf._longs.O;
+	protected long[] values    = Array.EqualHashOf._longs.O;
+	/**
+	 * The deadline of each slot, in clock units.
+	 */
+	protected long[] deadlines = Array.EqualHashOf._longs.O;
+	
+	/**
+	 * The heads of the collision chains: 1-based slots, {@code 0} for an empty bucket.
+	 */
+	protected int[] _buckets = Array.EqualHashOf._ints.O;
+	protected long  _bucketsMultiplier;
+	/**
+	 * The next slot, 1-based, in the collision chain of each slot.
+	 */
+	protected int[] links    = Array.EqualHashOf._ints.O;
+	
+	/**
+	 * The previous slot of each slot in its wheel bucket, or -1.
+	 */
+	protected int[] wheelPrev = Array.EqualHashOf._ints.O;
+	/**
+	 * The next slot of each slot in its wheel bucket, or -1. For a free slot, the next free slot.
+	 */
+	protected int[] wheelNext = Array.EqualHashOf._ints.O;
+	/**
+	 * The wheel bucket of each slot: {@code level << 6 | bucket}, or {@code OVERFLOW}; -1 for a free slot.
+	 */
+	protected int[] wheelAt   = Array.EqualHashOf._ints.O;
+	
+	/**
+	 * The first slot of every wheel bucket and of the overflow list, or -1.
+	 */
+	protected final int[]  wheel = new int[ OVERFLOW + 1 ];
+	/**
+	 * The non-empty buckets of each level, one bit per bucket.
+	 */
+	protected final long[] masks = new long[ LEVELS ];
+	
+	/**
+	 * The clock units per tick.
+	 */
+	protected final long  tick;
+	protected final Clock clock;
+	/**
+	 * The last tick the wheel has processed.
+	 */
+	protected long currentTick;
+	
+	protected Expired expired;
+	
+	/**
+	 * The number of slots ever used; slots from here on have never held an entry.
+	 */
+	protected int used;
+	/**
+	 * The first free slot below {@code used}, or -1.
+	 */
+	protected int free = -1;
+	protected int _count;
+	protected int _version;
+	
+	protected Array.Hash hash_K = Array.Hash.IDENTITY;
+	
+	/**
+	 * Constructs an empty map on {@link Clock#MILLIS} with a one-millisecond tick.
+	 *
+	 * @param capacity The initial capacity of the map.
+	 */
+	public ExpiringLongLongMap( int capacity ) { this( capacity, Clock.MILLIS, 1 ); }
+	
+	/**
+	 * Constructs an empty map.
+	 *
+	 * @param capacity The initial capacity of the map.
+	 * @param clock    The source of the current time.
+	 * @param tick     The resolution of the timing wheel in clock units: entries are removed by the wheel at most one tick
+	 *                 after their deadline. A coarser tick lets the wheel reach further and skip more idle time.
+	 * @throws IllegalArgumentException If {@code tick} is not positive or {@code capacity} is negative.
+	 */
+	public ExpiringLongLongMap( int capacity, Clock clock, long tick ) {
+		if( tick < 1 ) throw new IllegalArgumentException( "tick must be positive" );
+		if( capacity < 0 ) throw new IllegalArgumentException( "capacity is less than 0." );
+		this.clock  = clock;
+		this.tick   = tick;
+		currentTick = Math.floorDiv( clock.now(), tick );
+		Arrays.fill( wheel, -1 );
+		if( 0 < capacity ) resize( capacity );
+	}
+	
+	/**
+	 * Sets the receiver of the entries removed because their deadline passed.
+	 *
+	 * @param expired The receiver, or {@code null} for none.
+	 */
+	public void expired( Expired expired ) { this.expired = expired; }
+	
+	/**
+	 * Returns the number of entries, including entries whose deadline has passed but that the wheel has not reached yet.
+	 * Call {@link #expire()} first for an exact count.
+	 *
+	 * @return the number of entries
+	 */
+	public int size() { return _count; }
+	
+	public boolean isEmpty() { return _count == 0; }
+	
+	/**
+	 * Returns the number of entries the map holds before its arrays grow.
+	 *
+	 * @return the current capacity of the internal arrays
+	 */
+	public int length() { return keys.length; }
+	
+	/**
+	 * Removes the entries whose deadline has passed.
+	 *
+	 * @return The number of removed entries.
+	 */
+	public int expire() { return advance( clock.now() ); }
+	
+	/**
+	 * Returns {@code true} if the key is present and not expired.
+	 *
+	 * @param key The key.
+	 * @return {@code true} if the key is present.
+	 */
+	public boolean containsKey( long key ) { return tokenOf( key ) != INVALID_TOKEN; }
+	
+	/**
+	 * Returns the value of the key, or {@code defaultValue} if the key is absent or expired.
+	 *
+	 * @param key          The key.
+	 * @param defaultValue The value to return if the key is absent.
+	 * @return The value of the key, or {@code defaultValue}.
+	 */
+	public long get( long key, long defaultValue ) {
+		long token = tokenOf( key );
+		return token == INVALID_TOKEN ?
+		       defaultValue :
+		       values[ index( token ) ];
+	}
+	
+	/**
+	 * Returns a token for the entry of the key, or {@code INVALID_TOKEN} if the key is absent or expired.
+	 * Advances the timing wheel first, which may invalidate tokens held by the caller.
+	 *
+	 * @param key The key to search for.
+	 * @return A token for the entry, or {@code INVALID_TOKEN}.
+	 */
+	public long tokenOf( long key ) {
+		long now = clock.now();
+		advance( now );
+		
+		int slot = find( key );
+		if( slot == -1 ) return INVALID_TOKEN;
+		if( deadlines[ slot ] <= now ) { // due within the current tick
+			expire( slot );
+			return INVALID_TOKEN;
+		}
+		return token( slot );
+	}
+	
+	/**
+	 * Returns the token of the first entry, or {@code INVALID_TOKEN} if the map is empty. Iteration does not advance the
+	 * wheel, so call {@link #expire()} first to leave expired entries out.
+	 *
+	 * @return The token of the first entry, or {@code INVALID_TOKEN}.
+	 */
+	public long token() {
+		int slot = unsafe_token( -1 );
+		return slot == -1 ?
+		       INVALID_TOKEN :
+		       token( slot );
+	}
+	
+	/**
+	 * Returns the token of the entry after the given one, or {@code INVALID_TOKEN} if there are no more entries.
+	 *
+	 * @param token The current token. Must not be {@code INVALID_TOKEN}.
+	 * @return The token of the next entry, or {@code INVALID_TOKEN}.
+	 * @throws IllegalArgumentException        If the provided token is {@code INVALID_TOKEN}.
+	 * @throws ConcurrentModificationException If the map has been modified since the token was acquired.
+	 */
+	public long token( final long token ) {
+		if( token == INVALID_TOKEN ) throw new IllegalArgumentException( "Invalid token argument: INVALID_TOKEN" );
+		if( version( token ) != _version ) throw new ConcurrentModificationException( "Concurrent operations not supported." );
+		
+		int slot = unsafe_token( index( token ) );
+		return slot == -1 ?
+		       INVALID_TOKEN :
+		       token( slot );
+	}
+	
+	/**
+	 * Returns the next occupied slot after the given one, without version checks.
+	 *
+	 * @param token The current slot (or -1 to start from the beginning).
+	 * @return The next slot, or -1 if there are no more entries.
+	 */
+	public int unsafe_token( int token ) {
+		while( ++token < used )
+			if( wheelAt[ token ] != -1 ) return token;
+		return -1;
+	}
+	
+	public long key( long token ) { return keys[ index( token ) ]; }
+	
+	public long value( long token ) { return values[ index( token ) ]; }
+	
+	/**
+	 * Returns the deadline of the entry of the given token.
+	 *
+	 * @param token The token of an entry.
+	 * @return The deadline in clock units.
+	 */
+	public long deadline( long token ) { return deadlines[ index( token ) ]; }
+	
+	/**
+	 * Passes every entry to the action, in slot order. Loops directly over the slots in use, without tokens or version
+	 * checks, so the action must not modify the map. Like iteration by tokens, it does not advance the wheel, so call
+	 * {@link #expire()} first to leave expired entries out.
+	 *
+	 * @param action The receiver of the entries.
+	 */
+	public void forEach( LongLongMap.Consumer action ) {
+		for( int slot = 0; slot < used; slot++ )
+			if( wheelAt[ slot ] != -1 ) action.accept( keys[ slot ], values[ slot ] );
+	}
+	
+	/**
+	 * Passes every key to the action, in the order of {@link #forEach(LongLongMap.Consumer)}.
+	 *
+	 * @param action The receiver of the keys.
+	 */
+	public void forEachKey( LongLongMap.KeyConsumer action ) {
+		for( int slot = 0; slot < used; slot++ )
+			if( wheelAt[ slot ] != -1 ) action.accept( keys[ slot ] );
+	}
+	
+	/**
+	 * Passes every value to the action, in the order of {@link #forEach(LongLongMap.Consumer)}.
+	 *
+	 * @param action The receiver of the values.
+	 */
+	public void forEachValue( LongLongMap.ValueConsumer action ) {
+		for( int slot = 0; slot < used; slot++ )
+			if( wheelAt[ slot ] != -1 ) action.accept( values[ slot ] );
+	}
+	
+	/**
+	 * Passes the entries to the predicate, in the order of {@link #forEach(LongLongMap.Consumer)}, until it returns
+	 * {@code false}.
+	 *
+	 * @param predicate The test of the entries.
+	 * @return {@code true} if the predicate accepted every entry, {@code false} if it stopped the iteration.
+	 */
+	public boolean forEachWhile( LongLongMap.Predicate predicate ) {
+		for( int slot = 0; slot < used; slot++ )
+			if( wheelAt[ slot ] != -1 && !predicate.test( keys[ slot ], values[ slot ] ) ) return false;
+		return true;
+	}
+	
+	/**
+	 * Associates the value with the key for {@code ttl} clock units from now, replacing the value and the deadline of a present key.
+	 *
+	 * @param key   The key.
+	 * @param value The value.
+	 * @param ttl   The time to live; a non-positive one removes the key.
+	 * @return {@code true} if the key was added.
+	 */
+	public boolean put( long key, long value, long ttl ) {
+		long now = clock.now();
+		advance( now );
+		return putUntil( key, value, expiry( now, ttl ), now );
+	}
+	
+	/**
+	 * Associates the value with the key until the given deadline, replacing the value and the deadline of a present key.
+	 *
+	 * @param key      The key.
+	 * @param value    The value.
+	 * @param deadline The deadline in clock units; one that has passed removes the key.
+	 * @return {@code true} if the key was added.
+	 */
+	public boolean putUntil( long key, long value, long deadline ) {
+		long now = clock.now();
+		advance( now );
+		return putUntil( key, value, deadline, now );
+	}
+	
+	private boolean putUntil( long key, long value, long deadline, long now ) {
+		int slot = find( key );
+		if( slot != -1 && deadlines[ slot ] <= now ) { // due within the current tick
+			expire( slot );
+			slot = -1;
+		}
+		if( deadline <= now ) {
+			if( slot != -1 ) remove( slot );
+			return false;
+		}
+		
+		if( slot != -1 ) {
+			values[ slot ] = value;
+			reschedule( slot, deadline );
+			_version++;
+			return false;
+		}
+		
+		add( key, value, deadline );
+		return true;
+	}
+	
+	/**
+	 * Adds {@code delta} to the value of the key, keeping its deadline, or adds the key with the value {@code delta}
+	 * for {@code ttl} clock units from now: a fixed-window counter for rate limiting.
+	 *
+	 * @param key   The key.
+	 * @param delta The amount to add.
+	 * @param ttl   The time to live of a new key.
+	 * @return The new value.
+	 */
+	public long addTo( long key, long delta, long ttl ) {
+		long now = clock.now();
+		advance( now );
+		
+		int slot = find( key );
+		if( slot != -1 && deadlines[ slot ] <= now ) {
+			expire( slot );
+			slot = -1;
+		}
+		if( slot == -1 ) {
+			if( 0 < ttl ) add( key, delta, expiry( now, ttl ) );
+			return delta;
+		}
+		_version++;
+		return values[ slot ] += delta;
+	}
+	
+	/**
+	 * Sets the deadline of a present key to {@code ttl} clock units from now.
+	 *
+	 * @param key The key.
+	 * @param ttl The new time to live; a non-positive one removes the key.
+	 * @return {@code true} if the key was present and not expired.
+	 */
+	public boolean touch( long key, long ttl ) {
+		long token = tokenOf( key );
+		if( token == INVALID_TOKEN ) return false;
+		
+		int slot = index( token );
+		if( ttl < 1 ) remove( slot );
+		else reschedule( slot, expiry( clock.now(), ttl ) );
+		return true;
+	}
+	
+	/**
+	 * Removes the entry of the key. The expiry listener is not called.
+	 *
+	 * @param key The key.
+	 * @return {@code true} if the key was present.
+	 */
+	public boolean remove( long key ) {
+		int slot = find( key );
+		if( slot == -1 ) return false;
+		remove( slot );
+		return true;
+	}
+	
+	/**
+	 * Removes all entries, keeping the allocated arrays.
+	 */
+	public void clear() {
+		_version++;
+		if( _count == 0 ) return;
+		Arrays.fill( _buckets, 0 );
+		Arrays.fill( wheel, -1 );
+		Arrays.fill( masks, 0 );
+		used   = 0;
+		free   = -1;
+		_count = 0;
+	}
+	
+	/**
+	 * Returns the deadline {@code ttl} clock units after {@code now}, saturated at {@code Long.MAX_VALUE} rather than
+	 * wrapping around to the past; a non-positive {@code ttl} gives {@code now}, which has passed.
+	 */
+	private static long expiry( long now, long ttl ) {
+		return ttl < 1 ?
+		       now :
+		       Long.MAX_VALUE - ttl < now ?
+		       Long.MAX_VALUE :
+		       now + ttl;
+	}
+	
+	/**
+	 * Advances the timing wheel to the tick of {@code now}, removing the entries that expire on the way.
+	 *
+	 * @return The number of removed entries.
+	 */
+	protected int advance( long now ) {
+		long target = Math.floorDiv( now, tick );
+		if( target <= currentTick ) return 0;
+		if( _count == 0 ) {
+			currentTick = target;
+			return 0;
+		}
+		
+		int removed = 0;
+		while( currentTick < target ) {
+			currentTick = nextTick( target );
+			
+			if( ( currentTick & ( 1 << BITS ) - 1 ) == 0 ) cascade();
+			
+			int bucket = ( int ) ( currentTick & ( 1 << BITS ) - 1 );
+			if( ( masks[ 0 ] & 1L << bucket ) != 0 ) removed += expireBucket( bucket );
+			
+			if( _count == 0 ) {
+				currentTick = target;
+				break;
+			}
+		}
+		return removed;
+	}
+	
+	/**
+	 * Returns the next tick with work, or {@code target} if there is none before it: the earliest tick, over all
+	 * levels, that reaches a non-empty bucket, and the next wheel revolution while the overflow list is not empty.
+	 * Idle ticks, and idle revolutions of the lower levels, are skipped in one step.
+	 */
+	private long nextTick( long target ) {
+		long next = target;
+		for( int level = 0; level < LEVELS; level++ )
+			if( masks[ level ] != 0 ) {
+				long reached = ( currentTick >> BITS * level ) + 1; // the next bucket index this level reaches
+				long tick    = reached + Long.numberOfTrailingZeros( Long.rotateRight( masks[ level ], ( int ) ( reached & ( 1 << BITS ) - 1 ) ) ) << BITS * level;
+				if( currentTick < tick && tick < next ) next = tick; // a tick that wrapped around is past any target
+			}
+		
+		if( wheel[ OVERFLOW ] != -1 ) {
+			long tick = ( currentTick >> BITS * LEVELS ) + 1 << BITS * LEVELS;
+			if( currentTick < tick && tick < next ) next = tick;
+		}
+		return next;
+	}
+	
+	/**
+	 * Moves the entries of the upper-level buckets reached at {@code currentTick}, a multiple of 64, to lower levels,
+	 * from the overflow list down.
+	 */
+	private void cascade() {
+		if( ( currentTick & ( 1L << BITS * LEVELS ) - 1 ) == 0 ) relink( OVERFLOW );
+		
+		for( int level = LEVELS - 1; 0 < level; level-- )
+			if( ( currentTick & ( 1L << BITS * level ) - 1 ) == 0 ) {
+				int bucket = ( int ) ( currentTick >>> BITS * level & ( 1 << BITS ) - 1 );
+				if( ( masks[ level ] & 1L << bucket ) != 0 ) relink( level << BITS | bucket );
+			}
+	}
+	
+	/**
+	 * Detaches the list of a wheel position and schedules each of its entries anew.
+	 */
+	private void relink( int at ) {
+		int slot = wheel[ at ];
+		wheel[ at ] = -1;
+		if( at != OVERFLOW ) masks[ at >>> BITS ] &= ~( 1L << ( at & ( 1 << BITS ) - 1 ) );
+		
+		while( slot != -1 ) {
+			int next = wheelNext[ slot ];
+			schedule( slot );
+			slot = next;
+		}
+	}
+	
+	/**
+	 * Removes the entries of the level-0 bucket of {@code currentTick}.
+	 */
+	private int expireBucket( int bucket ) {
+		int removed = 0;
+		for( int slot = wheel[ bucket ], next; slot != -1; slot = next ) {
+			next = wheelNext[ slot ];
+			expire( slot );
+			removed++;
+		}
+		return removed;
+	}
+	
+	private void expire( int slot ) {
+		long key   = keys[ slot ];
+		long value = values[ slot ];
+		remove( slot );
+		if( expired != null ) expired.expired( key, value );
+	}
+	
+	/**
+	 * Returns the tick by which an entry with the deadline must be removed: the first tick not earlier than the deadline.
+	 */
+	private long ticks( long deadline ) { return -Math.floorDiv( -deadline, tick ); }
+	
+	/**
+	 * Links the slot into the wheel position of its deadline.
+	 */
+	private void schedule( int slot ) {
+		long due   = ticks( deadlines[ slot ] );
+		long delta = due - currentTick;
+		int  at;
+		if( due <= currentTick ) at = ( int ) ( currentTick & ( 1 << BITS ) - 1 ); // due now: the bucket being expired
+		else {
+			int level = ( 63 - Long.numberOfLeadingZeros( delta ) ) / BITS; // a delta that wrapped around is negative: past the wheel
+			at = level < LEVELS ?
+			     level << BITS | ( int ) ( due >>> BITS * level & ( 1 << BITS ) - 1 ) :
+			     OVERFLOW;
+		}
+		
+		wheelAt[ slot ]   = at;
+		wheelPrev[ slot ] = -1;
+		wheelNext[ slot ] = wheel[ at ];
+		if( wheel[ at ] != -1 ) wheelPrev[ wheel[ at ] ] = slot;
+		wheel[ at ] = slot;
+		if( at != OVERFLOW ) masks[ at >>> BITS ] |= 1L << ( at & ( 1 << BITS ) - 1 );
+	}
+	
+	/**
+	 * Takes the slot out of its wheel position.
+	 */
+	private void unschedule( int slot ) {
+		int at = wheelAt[ slot ];
+		int p  = wheelPrev[ slot ];
+		int n  = wheelNext[ slot ];
+		if( p == -1 ) {
+			wheel[ at ] = n;
+			if( n == -1 && at != OVERFLOW ) masks[ at >>> BITS ] &= ~( 1L << ( at & ( 1 << BITS ) - 1 ) );
+		}
+		else wheelNext[ p ] = n;
+		if( n != -1 ) wheelPrev[ n ] = p;
+	}
+	
+	private void reschedule( int slot, long deadline ) {
+		unschedule( slot );
+		deadlines[ slot ] = deadline;
+		schedule( slot );
+	}
+	
+	private void add( long key, long value, long deadline ) {
+		int slot;
+		if( free != -1 ) {
+			slot = free;
+			free = wheelNext[ slot ];
+		}
+		else {
+			if( used == keys.length ) resize( Math.max( 16, keys.length * 2 ) );
+			slot = used++;
+		}
+		
+		keys[ slot ]      = key;
+		values[ slot ]    = value;
+		deadlines[ slot ] = deadline;
+		int bucket = bucketIndex( hash_K.hash( key ) );
+		links[ slot ]      = _buckets[ bucket ];
+		_buckets[ bucket ] = slot + 1;
+		schedule( slot );
+		_count++;
+		_version++;
+	}
+	
+	private void remove( int slot ) {
+		int bucket = bucketIndex( hash_K.hash( keys[ slot ] ) );
+		if( _buckets[ bucket ] == slot + 1 ) _buckets[ bucket ] = links[ slot ];
+		else {
+			int at = _buckets[ bucket ] - 1;
+			while( links[ at ] != slot + 1 ) at = links[ at ] - 1;
+			links[ at ] = links[ slot ];
+		}
+		
+		unschedule( slot );
+		wheelAt[ slot ]   = -1;
+		wheelNext[ slot ] = free;
+		free              = slot;
+		_count--;
+		_version++;
+	}
+	
+	/**
+	 * Returns the slot of the key, or -1.
+	 */
+	protected int find( long key ) {
+		if( _count == 0 ) return -1;
+		for( int slot = _buckets[ bucketIndex( hash_K.hash( key ) ) ] - 1, collisions = 0; slot != -1; slot = links[ slot ] - 1 ) {
+			if( keys[ slot ] == key ) return slot;
+			if( _count < ++collisions ) throw new ConcurrentModificationException( "Concurrent operations not supported." );
+		}
+		return -1;
+	}
+	
+	protected int bucketIndex( int hash ) { return Array.mod( hash & 0x7FFF_FFFF, _bucketsMultiplier, _buckets.length ); }
+	
+	/**
+	 * Grows the slot arrays, keeping every entry in its slot, and rebuilds the collision chains.
+	 */
+	private void resize( int length ) {
+		keys      = Arrays.copyOf( keys, length );
+		values    = Arrays.copyOf( values, length );
+		deadlines = Arrays.copyOf( deadlines, length );
+		links     = Arrays.copyOf( links, length );
+		wheelPrev = Arrays.copyOf( wheelPrev, length );
+		wheelNext = Arrays.copyOf( wheelNext, length );
+		wheelAt   = Arrays.copyOf( wheelAt, length );
+		
+		int buckets = Array.prime( length );
+		_buckets           = new int[ buckets ];
+		_bucketsMultiplier = Array.modMultiplier( buckets );
+		for( int slot = 0; slot < used; slot++ )
+			if( wheelAt[ slot ] != -1 ) {
+				int bucket = bucketIndex( hash_K.hash( keys[ slot ] ) );
+				links[ slot ]      = _buckets[ bucket ];
+				_buckets[ bucket ] = slot + 1;
+			}
+		_version++;
+	}
+	
+	protected long token( int slot ) { return ( long ) _version << VERSION_SHIFT | slot; }
+	
+	protected int index( long token ) { return ( int ) token; }
+	
+	protected int version( long token ) { return ( int ) ( token >>> VERSION_SHIFT ); }
+	
+	/**
+	 * Writes the entries as a JSON object of keys and values. Entries whose deadline has passed but that the wheel has not
+	 * reached yet are included.
+	 *
+	 * @param json The JsonWriter to write to.
+	 */
+	@Override
+	public void toJSON( JsonWriter json ) {
+		json.preallocate( _count * 20 );
+		json.enterObject();
+		for( int slot = -1; ( slot = unsafe_token( slot ) ) != -1; )
+		     json.name( keys[ slot ] ).value( values[ slot ] );
+		json.exitObject();
+	}
+	
+	@Override
+	public String toString() { return toJSON(); }
+}
\ No newline at end of file
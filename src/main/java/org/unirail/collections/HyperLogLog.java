@@ -0,0 +1,285 @@
+// Copyright 2025 Chikirev Sirguy, Unirail Group
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+// For inquiries, please contact: al8v5C6HU4UtqE9@gmail.com
+// GitHub Repository: https://github.com/AdHoc-Protocol
+package org.unirail.collections;
+
+import org.unirail.JsonWriter;
+
+/**
+ * A HyperLogLog++ distinct counter: estimates the number of distinct primitive keys added in memory that does not grow
+ * with the cardinality. The standard error is about {@code 1.04 / sqrt( 2^precision )}, 0.8% at the default precision 14.
+ * <p>
+ * Every key is hashed to 64 bits. The first {@code precision} bits select a register, and the register keeps the
+ * largest position of the first 1 bit among the remaining bits of its keys.
+ *
+ * <h3>Sparse and dense representations:</h3>
+ * <ul>
+ * <li>While few registers are set, the sketch is sparse: an {@link IntIntMap.RW} from register indices at the higher
+ *     precision {@code 25} to their values. The estimate is then linear counting over {@code 2^25} registers, which is
+ *     nearly exact for small cardinalities.</li>
+ * <li>When the sparse map would take more memory than the dense registers, it is converted, once and for good, to
+ *     {@code 2^precision} 6-bit registers in a {@link BitsList.RW}. The estimate is then linear counting while registers
+ *     are empty and the raw estimate is below {@code 5/2} of their number or the linear count is below the empirical
+ *     thresholds of HyperLogLog++, and the harmonic mean of the registers above.</li>
+ * </ul>
+ * <p>
+ * Counters of the same precision {@link #merge(HyperLogLog)} by taking the maximum of each register, which gives exactly
+ * the counter of the union of their streams, for example to combine per-thread counters.
+ */
+public class HyperLogLog implements Cloneable, JsonWriter.Source {
+	
+	/**
+	 * The register index bits of the sparse representation.
+	 */
+	protected static final int SPARSE_PRECISION = 25;
+	
+	/**
+	 * The number of register index bits, 4 to 18.
+	 */
+	protected final int precision;
+	
+	/**
+	 * The sparse registers: index at {@link #SPARSE_PRECISION} bits to value; {@code null} once dense.
+	 */
+	protected IntIntMap.RW  sparse;
+	/**
+	 * The dense 6-bit registers; {@code null} while sparse.
+	 */
+	protected BitsList.RW   dense;
+	
+	/**
+	 * Linear counting is trusted up to these counts, for precision 4 to 18 (from the HyperLogLog++ paper).
+	 */
+	private static final int[] THRESHOLDS = { 10, 20, 40, 80, 220, 400, 900, 1800, 3100, 6500, 11500, 20000, 50000, 120000, 350000 };
+	
+	/**
+	 * Constructs an empty counter with precision 14: 16384 registers, 12 KB when dense.
+	 */
+	public HyperLogLog() { this( 14 ); }
+	
+	/**
+	 * Constructs an empty counter.
+	 *
+	 * @param precision The number of register index bits, 4 to 18.
+	 * @throws IllegalArgumentException If {@code precision} is out of range.
+	 */
+	public HyperLogLog( int precision ) {
+		if( precision < 4 || 18 < precision ) throw new IllegalArgumentException( "precision must be in the range 4 to 18" );
+		this.precision = precision;
+		sparse         = new IntIntMap.RW();
+	}
+	
+	public int precision() { return precision; }
+	
+	/**
+	 * Returns {@code true} while the counter keeps sparse registers.
+	 *
+	 * @return {@code true} if the representation is sparse
+	 */
+	public boolean isSparse() { return sparse != null; }
+	
+	/**
+	 * Adds a key.
+	 *
+	 * @param key The key.
+	 */
+	public void add( int key ) { add( ( long ) key ); }
+	
+	/**
+	 * Adds a key.
+	 *
+	 * @param key The key.
+	 */
+	public void add( long key ) {
+		long hash = Array.avalanche( key );
+		
+		if( sparse == null ) {
+			int index = ( int ) ( hash >>> 64 - precision );
+			int rho   = Long.numberOfLeadingZeros( hash << precision | 1L << precision - 1 ) + 1;
+			if( dense.get( index ) < rho ) dense.set1( index, rho );
+			return;
+		}
+		
+		int index = ( int ) ( hash >>> 64 - SPARSE_PRECISION );
+		int rho   = Long.numberOfLeadingZeros( hash << SPARSE_PRECISION | 1L << SPARSE_PRECISION - 1 ) + 1;
+		if( sparse.getOrDefault( index, 0 ) < rho ) {
+			sparse.put( index, rho );
+			if( sparseLimit() < sparse.size() ) densify();
+		}
+	}
+	
+	/**
+	 * The sparse size above which the dense registers take less memory: a sparse entry costs about 12 bytes, a dense
+	 * register 6 bits.
+	 */
+	private int sparseLimit() { return ( 1 << precision ) * 6 / 8 / 12; }
+	
+	/**
+	 * Converts the sparse registers to dense ones.
+	 */
+	protected void densify() {
+		dense = new BitsList.RW( 6, 1 << precision );
+		dense.size( 1 << precision );
+		
+		for( long token = sparse.token(); token != IntIntMap.R.INVALID_TOKEN; token = sparse.token( token ) )
+			setDense( sparse.key( token ), sparse.value( token ) );
+		sparse = null;
+	}
+	
+	/**
+	 * Raises the dense register of a sparse register to the value the key that set the sparse register would give it.
+	 */
+	private void setDense( int sparseIndex, int sparseRho ) {
+		int extra = SPARSE_PRECISION - precision;
+		int low   = sparseIndex & ( 1 << extra ) - 1; // the bits that follow the dense index
+		int rho   = low == 0 ?
+		            extra + sparseRho :
+		            extra - ( 31 - Integer.numberOfLeadingZeros( low ) );
+		int index = sparseIndex >>> extra;
+		if( dense.get( index ) < rho ) dense.set1( index, rho );
+	}
+	
+	/**
+	 * Returns the estimated number of distinct keys added.
+	 *
+	 * @return The estimate.
+	 */
+	public long estimate() {
+		if( sparse != null ) {
+			long m = 1L << SPARSE_PRECISION;
+			return Math.round( m * Math.log( ( double ) m / ( m - sparse.size() ) ) );
+		}
+		
+		int    m     = 1 << precision;
+		double sum   = 0;
+		int    zeros = 0;
+		for( int i = 0; i < m; i++ ) {
+			int register = dense.get( i );
+			if( register == 0 ) zeros++;
+			sum += Double.longBitsToDouble( 1023L - register << 52 ); // 2^-register
+		}
+		
+		double alpha = m == 16 ?
+		               0.673 :
+		               m == 32 ?
+		               0.697 :
+		               m == 64 ?
+		               0.709 :
+		               0.7213 / ( 1 + 1.079 / m );
+		double raw = alpha * m * m / sum;
+		
+		// without the empirical bias tables of HyperLogLog++, the raw estimate is trusted only above 5m/2
+		if( zeros != 0 ) {
+			double linear = m * Math.log( ( double ) m / zeros );
+			if( raw <= 2.5 * m || linear <= THRESHOLDS[ precision - 4 ] ) return Math.round( linear );
+		}
+		
+		return Math.round( raw );
+	}
+	
+	/**
+	 * Adds the keys of another counter of the same precision to this one, by taking the maximum of each register.
+	 *
+	 * @param other The counter to merge.
+	 * @throws IllegalArgumentException If the precisions differ.
+	 */
+	public void merge( HyperLogLog other ) {
+		if( other.precision != precision ) throw new IllegalArgumentException( "Counters of different precision cannot be merged." );
+		
+		if( other.sparse != null ) {
+			IntIntMap.RW src = other.sparse;
+			for( long token = src.token(); token != IntIntMap.R.INVALID_TOKEN; token = src.token( token ) )
+				if( sparse == null ) setDense( src.key( token ), src.value( token ) );
+				else if( sparse.getOrDefault( src.key( token ), 0 ) < src.value( token ) ) {
+					sparse.put( src.key( token ), src.value( token ) );
+					if( sparseLimit() < sparse.size() ) densify();
+				}
+			return;
+		}
+		
+		if( sparse != null ) densify();
+		for( int i = 0, m = 1 << precision; i < m; i++ ) {
+			int register = other.dense.get( i );
+			if( dense.get( i ) < register ) dense.set1( i, register );
+		}
+	}
+	
+	/**
+	 * Forgets all keys and returns to the sparse representation.
+	 */
+	public void clear() {
+		dense  = null;
+		sparse = new IntIntMap.RW();
+	}
+	
+	@Override
+	public int hashCode() {
+		return Array.finalizeHash( Array.hash( Array.hash( precision ), sparse != null ?
+		                                                                sparse.hashCode() :
+		                                                                dense.hashCode() ), 1 << precision );
+	}
+	
+	/**
+	 * Compares the precision, the representation and the registers. Counters that saw the same keys in any order are
+	 * equal; a counter that {@link #merge merged} its way to the same registers may still differ in representation.
+	 *
+	 * @param obj The object to compare with.
+	 * @return {@code true} if {@code obj} is a counter with the same registers.
+	 */
+	@Override
+	public boolean equals( Object obj ) {
+		if( obj == this ) return true;
+		if( !( obj instanceof HyperLogLog ) ) return false;
+		HyperLogLog other = ( HyperLogLog ) obj;
+		return precision == other.precision && ( sparse != null ?
+		                                         sparse.equals( other.sparse ) :
+		                                         dense.equals( other.dense ) );
+	}
+	
+	@Override
+	public HyperLogLog clone() {
+		try {
+			HyperLogLog cloned = ( HyperLogLog ) super.clone();
+			if( sparse != null ) cloned.sparse = sparse.clone();
+			if( dense != null ) cloned.dense = dense.clone();
+			return cloned;
+		} catch( CloneNotSupportedException e ) {
+			throw new InternalError( e );
+		}
+	}
+	
+	/**
+	 * Writes the precision, the representation, the estimate and the registers as a JSON object. The registers are an
+	 * object from {@link #SPARSE_PRECISION}-bit register index to value while sparse, and an array of
+	 * {@code 2^precision} values once dense.
+	 *
+	 * @param json The JsonWriter to write to.
+	 */
+	@Override
+	public void toJSON( JsonWriter json ) {
+		json.enterObject()
+		    .name( "precision" ).value( precision )
+		    .name( "sparse" ).value( sparse != null )
+		    .name( "estimate" ).value( estimate() )
+		    .name( "registers" ).value( sparse != null ?
+		                                ( JsonWriter.Source ) sparse :
+		                                dense )
+		    .exitObject();
+	}
+	
+	@Override
+	public String toString() { return toJSON(); }
+}
\ No newline at end of file
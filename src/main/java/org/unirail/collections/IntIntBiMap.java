@@ -0,0 +1,765 @@
+// Copyright 2025 Chikirev Sirguy, Unirail Group
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+// For inquiries, please contact: al8v5C6HU4UtqE9@gmail.com
+// GitHub Repository: https://github.com/AdHoc-Protocol
+package org.unirail.collections;
+
+import org.unirail.JsonWriter;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Spliterator;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+
+/**
+ * A bidirectional map between primitive keys and primitive values: every value belongs to at most one key,
+ * so a value is translated back to its key with one hash probe, as with {@link R#keyOf(int, int)}, instead of
+ * the linear scan of {@link IntIntMap.R#containsValue(int)}.
+ * <p>
+ * The entries are kept densely in the {@code keys} and {@code values} arrays, at indices {@code 0} to {@code size() - 1};
+ * a removed entry is replaced by the last one. Two hash indexes share those arrays:
+ * <ul>
+ * <li>the forward index: {@code kBuckets} and the {@code kLinks} chains, over {@code keys};</li>
+ * <li>the inverse index: {@code vBuckets} and the {@code vLinks} chains, over {@code values}.</li>
+ * </ul>
+ * Buckets and links hold 1-based entry indices, {@code 0} ends a chain. All six arrays have the same prime length,
+ * so an entry costs six {@code int}s, against eight for two {@link IntIntMap} instances that keep the same pairs
+ * in both directions, and the pair is stored once, so the directions cannot drift apart.
+ * <p>
+ * {@link RW#put(int, int)} rejects a value that already belongs to another key with an {@link IllegalArgumentException};
+ * {@link RW#forcePut(int, int)} removes that entry first.
+ */
+public interface IntIntBiMap {
+	
+	/**
+	 * Receives the entries visited by {@link R#forEach(Consumer)}.
+	 */
+	@FunctionalInterface
+	interface Consumer {
+		void accept( int key, int value );
+	}
+	
+	/**
+	 * Tests the entries visited by {@link R#forEachWhile(Predicate)}.
+	 */
+	@FunctionalInterface
+	interface Predicate {
+		boolean test( int key, int value );
+	}
+	
+	/**
+	 * Receives the keys visited by {@link R#forEachKey(KeyConsumer)}.
+	 */
+	@FunctionalInterface
+	interface KeyConsumer {
+		void accept( int key );
+	}
+	
+	/**
+	 * Receives the values visited by {@link R#forEachValue(ValueConsumer)}.
+	 */
+	@FunctionalInterface
+	interface ValueConsumer {
+		void accept( int value );
+	}
+	
+	
+	abstract class R implements Cloneable, JsonWriter.Source {
+		
+		/**
+		 * The keys of the entries.
+		 */
+		protected int[] keys     = Array.EqualHashOf._ints.O;
+		/**
+		 * The values of the entries, at the indices of their keys.
+		 */
+		protected int[] values   = Array.EqualHashOf._ints.O;
+		/**
+		 * The heads of the forward chains: 1-based indices of entries, {@code 0} for an empty bucket.
+		 */
+		protected int[] kBuckets = Array.EqualHashOf._ints.O;
+		/**
+		 * The next entry, 1-based, in the forward chain of each entry.
+		 */
+		protected int[] kLinks   = Array.EqualHashOf._ints.O;
+		/**
+		 * The heads of the inverse chains: 1-based indices of entries, {@code 0} for an empty bucket.
+		 */
+		protected int[] vBuckets = Array.EqualHashOf._ints.O;
+		/**
+		 * The next entry, 1-based, in the inverse chain of each entry.
+		 */
+		protected int[] vLinks   = Array.EqualHashOf._ints.O;
+		
+		/**
+		 * The {@link Array#modMultiplier(int)} of the bucket arrays length, used by {@link #bucketIndex(int)}.
+		 */
+		protected long _bucketsMultiplier;
+		
+		/**
+		 * The strategy that hashes keys into forward buckets. Defaults to {@link Array.Hash#IDENTITY}.
+		 */
+		protected Array.Hash hash_K = Array.Hash.IDENTITY;
+		/**
+		 * The strategy that hashes values into inverse buckets. Defaults to {@link Array.Hash#IDENTITY}.
+		 */
+		protected Array.Hash hash_V = Array.Hash.IDENTITY;
+		
+		/**
+		 * The number of entries.
+		 */
+		protected int _count;
+		
+		/**
+		 * The current version of the map, incremented on modifications.
+		 * Used to detect concurrent modifications during iteration.
+		 */
+		protected int _version;
+		
+		/**
+		 * The bit shift used to encode the map's version into a token.
+		 */
+		protected static final int VERSION_SHIFT = 32;
+		
+		/**
+		 * A special token value indicating that a key was not found or no more elements exist.
+		 */
+		public static final long INVALID_TOKEN = -1L;
+		
+		/**
+		 * Returns {@code true} if this map contains no entries.
+		 *
+		 * @return {@code true} if this map contains no entries
+		 */
+		public boolean isEmpty() { return _count == 0; }
+		
+		/**
+		 * Returns the number of entries in this map.
+		 *
+		 * @return the number of entries in this map
+		 */
+		public int size() { return _count; }
+		
+		/**
+		 * Returns the number of entries the map holds before its arrays grow.
+		 *
+		 * @return the current capacity of the internal arrays
+		 */
+		public int length() { return keys.length; }
+		
+		/**
+		 * Returns {@code true} if this map contains the specified key.
+		 *
+		 * @param key The key whose presence is to be tested.
+		 * @return {@code true} if the key is present.
+		 */
+		public boolean containsKey( int key ) { return -1 < findKey( key ); }
+		
+		/**
+		 * Returns {@code true} if a key maps to the specified value. Takes one probe of the inverse index.
+		 *
+		 * @param value The value whose presence is to be tested.
+		 * @return {@code true} if the value is present.
+		 */
+		public boolean containsValue( int value ) { return -1 < findValue( value ); }
+		
+		/**
+		 * Returns the value of the specified key, or {@code defaultValue} if the key is absent.
+		 *
+		 * @param key          The key.
+		 * @param defaultValue The value to return if the key is absent.
+		 * @return The value of the key, or {@code defaultValue}.
+		 */
+		public int getOrDefault( int key, int defaultValue ) {
+			int i = findKey( key );
+			return i == -1 ?
+			       defaultValue :
+			       values[ i ];
+		}
+		
+		/**
+		 * Returns the key of the specified value, or {@code defaultKey} if no key maps to it. Takes one probe of the inverse index.
+		 *
+		 * @param value      The value.
+		 * @param defaultKey The key to return if the value is absent.
+		 * @return The key of the value, or {@code defaultKey}.
+		 */
+		public int keyOf( int value, int defaultKey ) {
+			int i = findValue( value );
+			return i == -1 ?
+			       defaultKey :
+			       keys[ i ];
+		}
+		
+		/**
+		 * Returns a token for the entry of the specified key, or {@code INVALID_TOKEN} if the key is absent.
+		 *
+		 * @param key The key to search for.
+		 * @return A token for the entry, or {@code INVALID_TOKEN}.
+		 */
+		public long tokenOf( int key ) {
+			int i = findKey( key );
+			return i == -1 ?
+			       INVALID_TOKEN :
+			       token( i );
+		}
+		
+		/**
+		 * Returns a token for the entry of the specified value, or {@code INVALID_TOKEN} if the value is absent.
+		 *
+		 * @param value The value to search for.
+		 * @return A token for the entry, or {@code INVALID_TOKEN}.
+		 */
+		public long tokenOfValue( int value ) {
+			int i = findValue( value );
+			return i == -1 ?
+			       INVALID_TOKEN :
+			       token( i );
+		}
+		
+		/**
+		 * Returns the token of the first entry, or {@code INVALID_TOKEN} if the map is empty.
+		 *
+		 * @return The token of the first entry, or {@code INVALID_TOKEN}.
+		 */
+		public long token() {
+			return _count == 0 ?
+			       INVALID_TOKEN :
+			       token( 0 );
+		}
+		
+		/**
+		 * Returns the token of the entry after the given one, or {@code INVALID_TOKEN} if there are no more entries.
+		 *
+		 * @param token The current token. Must not be {@code INVALID_TOKEN}.
+		 * @return The token of the next entry, or {@code INVALID_TOKEN}.
+		 * @throws IllegalArgumentException        If the provided token is {@code INVALID_TOKEN}.
+		 * @throws ConcurrentModificationException If the map has been modified since the token was acquired.
+		 */
+		public long token( final long token ) {
+			if( token == INVALID_TOKEN ) throw new IllegalArgumentException( "Invalid token argument: INVALID_TOKEN" );
+			if( version( token ) != _version ) throw new ConcurrentModificationException( "Concurrent operations not supported." );
+			
+			int i = unsafe_token( index( token ) );
+			return i == -1 ?
+			       INVALID_TOKEN :
+			       token( i );
+		}
+		
+		/**
+		 * Returns the index of the entry after the given index, without version checks.
+		 *
+		 * @param token The current index (or -1 to start from the beginning).
+		 * @return The next index, or -1 if there are no more entries.
+		 */
+		public int unsafe_token( final int token ) {
+			return token + 1 < _count ?
+			       token + 1 :
+			       -1;
+		}
+		
+		/**
+		 * Returns the key of the entry of the given token.
+		 *
+		 * @param token The token of an entry.
+		 * @return The key.
+		 */
+		public int key( long token ) { return keys[ index( token ) ]; }
+		
+		/**
+		 * Returns the value of the entry of the given token.
+		 *
+		 * @param token The token of an entry.
+		 * @return The value.
+		 */
+		public int value( long token ) { return values[ index( token ) ]; }
+		
+		/**
+		 * Returns a spliterator over the keys of the map. It splits the dense entry arrays in halves and reports
+		 * {@code DISTINCT}, {@code SIZED}, {@code SUBSIZED} and {@code NONNULL}. The map must not be modified while it is
+		 * in use.
+		 *
+		 * @return A spliterator over the keys.
+		 */
+		public Spliterator.OfInt spliterator() {
+			return new Array.IntSpliterator( 0, _count, Spliterator.DISTINCT | Spliterator.NONNULL, i -> key( i ) );
+		}
+		
+		/**
+		 * Returns a sequential {@link IntStream} over the keys of the map, without boxing. Call {@code parallel()} on it to
+		 * run it on the common fork-join pool. The map must not be modified while the stream is in use.
+		 *
+		 * @return A stream over the keys.
+		 */
+		public IntStream keys() { return StreamSupport.intStream( spliterator(), false ); }
+		
+		/**
+		 * Returns a spliterator over the values of the map, in the order of {@link #spliterator()}. It splits as
+		 * {@link #spliterator()} does and reports {@code DISTINCT}, {@code SIZED}, {@code SUBSIZED} and {@code NONNULL}.
+		 *
+		 * @return A spliterator over the values.
+		 */
+		public Spliterator.OfInt valuesSpliterator() {
+			return new Array.IntSpliterator( 0, _count, Spliterator.DISTINCT | Spliterator.NONNULL, i -> value( i ) );
+		}
+		
+		/**
+		 * Returns a sequential {@link IntStream} over the values of the map, in the order of {@link #keys()}, without
+		 * boxing. Call {@code parallel()} on it to run it on the common fork-join pool. The map must not be modified while
+		 * the stream is in use.
+		 *
+		 * @return A stream over the values.
+		 */
+		public IntStream values() { return StreamSupport.intStream( valuesSpliterator(), false ); }
+		
+		/**
+		 * Passes every entry to the action. Loops directly over the dense key and value arrays, without tokens or version
+		 * checks, so the action must not modify the map.
+		 *
+		 * @param action The receiver of the entries.
+		 */
+		public void forEach( Consumer action ) {
+			for( int i = 0; i < _count; i++ )
+				action.accept( keys[ i ], values[ i ] );
+		}
+		
+		/**
+		 * Passes every key to the action, in the order of {@link #forEach(Consumer)}.
+		 *
+		 * @param action The receiver of the keys.
+		 */
+		public void forEachKey( KeyConsumer action ) {
+			for( int i = 0; i < _count; i++ )
+				action.accept( keys[ i ] );
+		}
+		
+		/**
+		 * Passes every value to the action, in the order of {@link #forEach(Consumer)}.
+		 *
+		 * @param action The receiver of the values.
+		 */
+		public void forEachValue( ValueConsumer action ) {
+			for( int i = 0; i < _count; i++ )
+				action.accept( values[ i ] );
+		}
+		
+		/**
+		 * Passes the entries to the predicate, in the order of {@link #forEach(Consumer)}, until it returns {@code false}.
+		 *
+		 * @param predicate The test of the entries.
+		 * @return {@code true} if the predicate accepted every entry, {@code false} if it stopped the iteration.
+		 */
+		public boolean forEachWhile( Predicate predicate ) {
+			for( int i = 0; i < _count; i++ )
+				if( !predicate.test( keys[ i ], values[ i ] ) ) return false;
+			return true;
+		}
+		
+		/**
+		 * Returns the index of the entry of the key, or -1.
+		 */
+		protected int findKey( int key ) {
+			if( _count == 0 ) return -1;
+			for( int i = kBuckets[ bucketIndex( hash_K.hash( key ) ) ] - 1, collisions = 0; i != -1; i = kLinks[ i ] - 1 ) {
+				if( keys[ i ] == key ) return i;
+				if( _count < ++collisions ) throw new ConcurrentModificationException( "Concurrent operations not supported." );
+			}
+			return -1;
+		}
+		
+		/**
+		 * Returns the index of the entry of the value, or -1.
+		 */
+		protected int findValue( int value ) {
+			if( _count == 0 ) return -1;
+			for( int i = vBuckets[ bucketIndex( hash_V.hash( value ) ) ] - 1, collisions = 0; i != -1; i = vLinks[ i ] - 1 ) {
+				if( values[ i ] == value ) return i;
+				if( _count < ++collisions ) throw new ConcurrentModificationException( "Concurrent operations not supported." );
+			}
+			return -1;
+		}
+		
+		/**
+		 * Reduces a hash to a bucket index with {@link Array#mod(int, long, int)}.
+		 *
+		 * @param hash The hash of a key or a value.
+		 * @return The bucket index.
+		 */
+		protected int bucketIndex( int hash ) { return Array.mod( hash & 0x7FFF_FFFF, _bucketsMultiplier, kBuckets.length ); }
+		
+		@Override
+		public int hashCode() {
+			int a = 0, b = 0, c = 1;
+			
+			for( int i = 0; i < _count; i++ ) {
+				int h = Array.mix( seed, Array.hash( keys[ i ] ) );
+				h = Array.mix( h, Array.hash( values[ i ] ) );
+				h = Array.finalizeHash( h, 2 );
+				a += h;
+				b ^= h;
+				c *= h | 1;
+			}
+			return Array.finalizeHash( Array.mixLast( Array.mix( Array.mix( seed, a ), b ), c ), size() );
+		}
+		
+		/**
+		 * A seed value used for hash code calculations.
+		 */
+		private static final int seed = R.class.hashCode();
+		
+		@Override
+		public boolean equals( Object obj ) { return obj != null && getClass() == obj.getClass() && equals( ( R ) obj ); }
+		
+		/**
+		 * Compares the specified map with this map for equality: both must hold the same pairs.
+		 *
+		 * @param other The map to be compared for equality with this map.
+		 * @return {@code true} if the specified map is equal to this map.
+		 */
+		public boolean equals( R other ) {
+			if( other == this ) return true;
+			if( other == null || other._count != _count ) return false;
+			
+			for( int i = 0; i < _count; i++ ) {
+				int j = other.findKey( keys[ i ] );
+				if( j == -1 || other.values[ j ] != values[ i ] ) return false;
+			}
+			return true;
+		}
+		
+		/**
+		 * Creates and returns a shallow copy of this map. The internal arrays are cloned.
+		 *
+		 * @return A copy of this map.
+		 */
+		@Override
+		public R clone() {
+			try {
+				R cloned = ( R ) super.clone();
+				cloned.keys     = keys.clone();
+				cloned.values   = values.clone();
+				cloned.kBuckets = kBuckets.clone();
+				cloned.kLinks   = kLinks.clone();
+				cloned.vBuckets = vBuckets.clone();
+				cloned.vLinks   = vLinks.clone();
+				return cloned;
+			} catch( CloneNotSupportedException e ) {
+				throw new InternalError( e );
+			}
+		}
+		
+		/**
+		 * Returns a string representation of this map. This method delegates to {@link #toJSON()}
+		 * for a JSON-formatted output.
+		 *
+		 * @return a string representation of this map
+		 */
+		@Override
+		public String toString() { return toJSON(); }
+		
+		/**
+		 * Writes the JSON representation of this map to the given {@link JsonWriter}.
+		 *
+		 * @param json The JsonWriter to write to.
+		 */
+		@Override
+		public void toJSON( JsonWriter json ) {
+			json.preallocate( _count * 10 );
+			json.enterObject();
+			
+			for( int i = 0; i < _count; i++ )
+			     json.name( keys[ i ] ).value( values[ i ] );
+			
+			json.exitObject();
+		}
+		
+		/**
+		 * Creates a token from an entry index. The token encodes the map's current version and the index.
+		 *
+		 * @param index The index of the entry.
+		 * @return A long token combining version and index.
+		 */
+		protected long token( int index ) { return ( long ) _version << VERSION_SHIFT | ( index ); }
+		
+		/**
+		 * Extracts the entry index from a token.
+		 *
+		 * @param token The long token.
+		 * @return The index.
+		 */
+		protected int index( long token ) { return ( int ) ( token ); }
+		
+		/**
+		 * Extracts the version from a token.
+		 *
+		 * @param token The long token.
+		 * @return The version encoded in the token.
+		 */
+		protected int version( long token ) { return ( int ) ( token >>> VERSION_SHIFT ); }
+	}
+	
+	/**
+	 * A mutable {@link IntIntBiMap}.
+	 */
+	class RW extends R {
+		
+		/**
+		 * Constructs an empty map.
+		 */
+		public RW() { this( 0 ); }
+		
+		/**
+		 * Constructs an empty map with room for the specified number of entries.
+		 *
+		 * @param capacity The initial capacity of the map.
+		 */
+		public RW( int capacity ) { if( capacity > 0 ) initialize( Array.prime( capacity ) ); }
+		
+		/**
+		 * Sets the strategy that hashes keys into forward buckets and rebuilds the forward index.
+		 *
+		 * @param hash_K The key hashing strategy.
+		 */
+		public void hash_K( Array.Hash hash_K ) {
+			this.hash_K = hash_K;
+			if( 0 < keys.length ) resize( keys.length );
+		}
+		
+		/**
+		 * Sets the strategy that hashes values into inverse buckets and rebuilds the inverse index.
+		 *
+		 * @param hash_V The value hashing strategy.
+		 */
+		public void hash_V( Array.Hash hash_V ) {
+			this.hash_V = hash_V;
+			if( 0 < keys.length ) resize( keys.length );
+		}
+		
+		private int initialize( int capacity ) {
+			_version++;
+			
+			keys               = new int[ capacity ];
+			values             = new int[ capacity ];
+			kBuckets           = new int[ capacity ];
+			kLinks             = new int[ capacity ];
+			vBuckets           = new int[ capacity ];
+			vLinks             = new int[ capacity ];
+			_bucketsMultiplier = Array.modMultiplier( capacity );
+			_count             = 0;
+			return capacity;
+		}
+		
+		/**
+		 * Associates the value with the key. If the key is present, its value is replaced.
+		 *
+		 * @param key   The key.
+		 * @param value The value, which must not belong to another key.
+		 * @return {@code true} if the key was added, {@code false} if its value was replaced.
+		 * @throws IllegalArgumentException if the value belongs to another key.
+		 */
+		public boolean put( int key, int value ) {
+			int k = findKey( key );
+			int v = findValue( value );
+			if( v != -1 && v != k ) throw new IllegalArgumentException( "The value " + value + " already belongs to the key " + keys[ v ] + "." );
+			return put( key, value, k, v );
+		}
+		
+		/**
+		 * Associates the value with the key, first removing the entry of another key that holds the value.
+		 *
+		 * @param key   The key.
+		 * @param value The value.
+		 * @return {@code true} if the key was added, {@code false} if its value was replaced.
+		 */
+		public boolean forcePut( int key, int value ) {
+			int v = findValue( value );
+			if( v != -1 && keys[ v ] != key ) {
+				removeAt( v );
+				v = -1;
+			}
+			return put( key, value, findKey( key ), v );
+		}
+		
+		/**
+		 * Associates the value with the key, given the entry of the key {@code k} and the entry of the value {@code v},
+		 * which is either absent or {@code k}.
+		 */
+		private boolean put( int key, int value, int k, int v ) {
+			if( k != -1 ) {
+				if( v == k ) return false;
+				unlink( vBuckets, vLinks, bucketIndex( hash_V.hash( values[ k ] ) ), k );
+				values[ k ] = value;
+				link( vBuckets, vLinks, bucketIndex( hash_V.hash( value ) ), k );
+				_version++;
+				return false;
+			}
+			
+			if( _count == keys.length ) resize( Array.prime( Math.max( 7, keys.length * 2 ) ) );
+			
+			int i = _count++;
+			keys[ i ]   = key;
+			values[ i ] = value;
+			link( kBuckets, kLinks, bucketIndex( hash_K.hash( key ) ), i );
+			link( vBuckets, vLinks, bucketIndex( hash_V.hash( value ) ), i );
+			_version++;
+			return true;
+		}
+		
+		/**
+		 * Removes the entry of the specified key.
+		 *
+		 * @param key The key.
+		 * @return {@code true} if the key was present.
+		 */
+		public boolean remove( int key ) {
+			int i = findKey( key );
+			if( i == -1 ) return false;
+			removeAt( i );
+			return true;
+		}
+		
+		/**
+		 * Removes the entry of the specified value.
+		 *
+		 * @param value The value.
+		 * @return {@code true} if the value was present.
+		 */
+		public boolean removeValue( int value ) {
+			int i = findValue( value );
+			if( i == -1 ) return false;
+			removeAt( i );
+			return true;
+		}
+		
+		/**
+		 * Removes the entry at index {@code i} and moves the last entry into its place.
+		 */
+		private void removeAt( int i ) {
+			unlink( kBuckets, kLinks, bucketIndex( hash_K.hash( keys[ i ] ) ), i );
+			unlink( vBuckets, vLinks, bucketIndex( hash_V.hash( values[ i ] ) ), i );
+			
+			int last = --_count;
+			if( i != last ) {
+				relink( kBuckets, kLinks, bucketIndex( hash_K.hash( keys[ last ] ) ), last, i );
+				relink( vBuckets, vLinks, bucketIndex( hash_V.hash( values[ last ] ) ), last, i );
+				keys[ i ]   = keys[ last ];
+				values[ i ] = values[ last ];
+			}
+			_version++;
+		}
+		
+		/**
+		 * Pushes entry {@code i} onto the chain of the bucket.
+		 */
+		private static void link( int[] buckets, int[] links, int bucket, int i ) {
+			links[ i ]        = buckets[ bucket ];
+			buckets[ bucket ] = i + 1;
+		}
+		
+		/**
+		 * Takes entry {@code i} out of the chain of the bucket.
+		 */
+		private static void unlink( int[] buckets, int[] links, int bucket, int i ) {
+			if( buckets[ bucket ] == i + 1 ) {
+				buckets[ bucket ] = links[ i ];
+				return;
+			}
+			int prev = buckets[ bucket ] - 1;
+			while( links[ prev ] != i + 1 ) prev = links[ prev ] - 1;
+			links[ prev ] = links[ i ];
+		}
+		
+		/**
+		 * Replaces entry {@code src} with entry {@code dst} in the chain of the bucket.
+		 */
+		private static void relink( int[] buckets, int[] links, int bucket, int src, int dst ) {
+			links[ dst ] = links[ src ];
+			if( buckets[ bucket ] == src + 1 ) {
+				buckets[ bucket ] = dst + 1;
+				return;
+			}
+			int prev = buckets[ bucket ] - 1;
+			while( links[ prev ] != src + 1 ) prev = links[ prev ] - 1;
+			links[ prev ] = dst + 1;
+		}
+		
+		/**
+		 * Removes all entries, keeping the allocated arrays.
+		 */
+		public void clear() {
+			_version++;
+			if( _count == 0 ) return;
+			Arrays.fill( kBuckets, 0 );
+			Arrays.fill( vBuckets, 0 );
+			_count = 0;
+		}
+		
+		/**
+		 * Ensures that this map holds at least the specified number of entries without growing its arrays.
+		 *
+		 * @param capacity The minimum desired capacity.
+		 * @return The new actual capacity of the internal arrays.
+		 */
+		public int ensureCapacity( int capacity ) {
+			return capacity <= keys.length ?
+			       keys.length :
+			       resize( Array.prime( capacity ) );
+		}
+		
+		/**
+		 * Reduces the capacity of the map to its current size.
+		 */
+		public void trim() { trim( _count ); }
+		
+		/**
+		 * Reduces the capacity of the map to the smallest prime not less than the specified capacity, if it is larger.
+		 *
+		 * @param capacity The target capacity.
+		 */
+		public void trim( int capacity ) {
+			if( capacity < _count ) throw new IllegalArgumentException( "capacity is less than Count." );
+			if( keys.length <= ( capacity = Array.prime( Math.max( capacity, 1 ) ) ) ) return;
+			resize( capacity );
+		}
+		
+		/**
+		 * Moves the entries into arrays of the given length and rebuilds both indexes. The entries keep their indices.
+		 *
+		 * @param length The new length of the arrays.
+		 * @return The new length.
+		 */
+		private int resize( int length ) {
+			int[] old_keys   = keys;
+			int[] old_values = values;
+			int   count      = _count;
+			
+			initialize( length );
+			
+			System.arraycopy( old_keys, 0, keys, 0, count );
+			System.arraycopy( old_values, 0, values, 0, count );
+			for( int i = 0; i < count; i++ ) {
+				link( kBuckets, kLinks, bucketIndex( hash_K.hash( keys[ i ] ) ), i );
+				link( vBuckets, vLinks, bucketIndex( hash_V.hash( values[ i ] ) ), i );
+			}
+			_count = count;
+			return length;
+		}
+		
+		@Override
+		public RW clone() { return ( RW ) super.clone(); }
+	}
+}
\ No newline at end of file
@@ -20,6 +20,10 @@ import org.unirail.JsonWriter;
 
 import java.util.Arrays;
 import java.util.ConcurrentModificationException;
+import java.util.Spliterator;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
 
 
 /**
@@ -145,6 +149,62 @@ import java.util.ConcurrentModificationException;
  */
 public interface IntIntMap {
 	
+	/**
+	 * Computes the value of an absent key for {@link RW#computeIfAbsent(int, Mapping)}.
+	 */
+	@FunctionalInterface
+	interface Mapping {
+		int apply( int key );
+	}
+	
+	/**
+	 * Computes the new value of a present key for {@link RW#computeIfPresent(int, Remapping)}.
+	 */
+	@FunctionalInterface
+	interface Remapping {
+		int apply( int key, int value );
+	}
+	
+	/**
+	 * Combines the current value of a present key with a given value for {@link RW#merge(int, int, Merging)}.
+	 */
+	@FunctionalInterface
+	interface Merging {
+		int apply( int oldValue, int value );
+	}
+	
+	/**
+	 * Receives the entries visited by {@link R#forEach(Consumer)}.
+	 */
+	@FunctionalInterface
+	interface Consumer {
+		void accept( int key, int value );
+	}
+	
+	/**
+	 * Tests the entries visited by {@link R#forEachWhile(Predicate)}.
+	 */
+	@FunctionalInterface
+	interface Predicate {
+		boolean test( int key, int value );
+	}
+	
+	/**
+	 * Receives the keys visited by {@link R#forEachKey(KeyConsumer)}.
+	 */
+	@FunctionalInterface
+	interface KeyConsumer {
+		void accept( int key );
+	}
+	
+	/**
+	 * Receives the values visited by {@link R#forEachValue(ValueConsumer)}.
+	 */
+	@FunctionalInterface
+	interface ValueConsumer {
+		void accept( int value );
+	}
+	
 	
 	abstract class R implements Cloneable, JsonWriter.Source {
 		
@@ -162,12 +222,31 @@ public interface IntIntMap {
 		 * A value of 0 indicates an empty bucket.
 		 */
 		protected int[]             _buckets;
+		/**
+		 * The {@link Array#modMultiplier(int)} of {@code _buckets.length}, used by {@link #bucketIndex(int)}
+		 * to reduce hashes to bucket indices without an integer division.
+		 */
+		protected long              _bucketsMultiplier;
 		/**
 		 * The array used to link entries in collision chains within the {@code lo Region}.
 		 * Each element `links[i]` stores the index of the next entry in the chain,
 		 * or an index >= `_lo_Size` if it points to a terminal node in the {@code hi Region}.
 		 */
 		protected int[]             links = Array.EqualHashOf._ints.O;
+		
+		/**
+		 * The strategy that hashes keys into buckets. Defaults to {@link Array.Hash#IDENTITY};
+		 * replace it with {@link RW#hash_K(Array.Hash)} for keys whose low bits are poorly distributed.
+		 */
+		protected Array.Hash hash_K = Array.Hash.IDENTITY;
+		
+		/**
+		 * Returns the strategy currently used to hash keys into buckets.
+		 *
+		 * @return The key hashing strategy.
+		 */
+		public Array.Hash hash_K() { return hash_K; }
+		
 		/**
 		 * The array storing the keys of the map entries.
 		 * Keys for {@code lo Region} entries are at indices `0` to `_lo_Size - 1`.
@@ -216,6 +295,11 @@ public interface IntIntMap {
 		 */
 		public static final long INVALID_TOKEN = -1L;
 		
+		/**
+		 * The number of keys that {@code getAll} and {@code putAll} hash ahead before resolving them.
+		 */
+		public static final int BATCH = 64;
+		
 		/**
 		 * Returns {@code true} if this map contains no key-value mappings.
 		 *
@@ -330,7 +414,7 @@ public interface IntIntMap {
 		public long tokenOf( int key ) {
 			
 			if( _buckets == null || _count() == 0 ) return INVALID_TOKEN;
-			int index = (_buckets[ bucketIndex( Array.hash( key ) ) ] ) - 1;
+			int index = (_buckets[ bucketIndex( hash_K.hash( key ) ) ] ) - 1;
 			if( index < 0 ) return INVALID_TOKEN;
 			
 			for( int collisions = 0; ; ) {
@@ -342,6 +426,81 @@ public interface IntIntMap {
 		}
 		
 		
+		/**
+		 * Returns the value of the specified primitive key, or {@code defaultValue} if the key is absent.
+		 *
+		 * @param key          The primitive key to search for.
+		 * @param defaultValue The value to return if the key is absent.
+		 * @return The value of the key, or {@code defaultValue}.
+		 */
+		public int getOrDefault( int key, int defaultValue ) {
+			long token = tokenOf( key );
+			return token == INVALID_TOKEN ?
+			       defaultValue :
+			       value( token );
+		}
+		
+		
+		/**
+		 * Looks up the keys of the given range and writes their values to the same indices of {@code dst}, or
+		 * {@code missingValue} for absent keys.
+		 * <p>
+		 * The keys are processed in batches of {@link #BATCH}: the buckets of the whole batch are loaded first, then the
+		 * keys are resolved against them, so the cache misses of independent lookups overlap instead of following one another.
+		 *
+		 * @param src          The keys to look up.
+		 * @param from         The index of the first key.
+		 * @param len          The number of keys.
+		 * @param dst          Receives the values, at the indices of their keys.
+		 * @param missingValue The value written for absent keys.
+		 * @return The number of keys found.
+		 */
+		public int getAll( int[] src, int from, int len, int[] dst, int missingValue ) {
+			if( _buckets == null || _count() == 0 ) {
+				Arrays.fill( dst, from, from + len, missingValue );
+				return 0;
+			}
+			
+			int   found = 0;
+			int[] heads = new int[ Math.min( len, BATCH ) ];
+			
+			for( int end = from + len; from < end; from += heads.length ) {
+				int n = Math.min( heads.length, end - from );
+				
+				for( int i = 0; i < n; i++ ) heads[ i ] = _buckets[ bucketIndex( hash_K.hash( src[ from + i ] ) ) ];
+				
+				for( int i = 0; i < n; i++ ) {
+					int key   = src[ from + i ];
+					int value = missingValue;
+					
+					for( int index = heads[ i ] - 1, collisions = 0; index != -1; index = links[ index ] ) {
+						if( keys[ index ] == key ) {
+							value = values[ index ];
+							found++;
+							break;
+						}
+						if( _lo_Size <= index ) break; //terminal node
+						if( _lo_Size < ++collisions ) throw new ConcurrentModificationException( "Concurrent operations not supported." );
+					}
+					
+					dst[ from + i ] = value;
+				}
+			}
+			return found;
+		}
+		
+		/**
+		 * Looks up all keys of {@code src} and writes their values to the same indices of {@code dst}, or
+		 * {@code missingValue} for absent keys.
+		 *
+		 * @param src          The keys to look up.
+		 * @param dst          Receives the values, at the indices of their keys.
+		 * @param missingValue The value written for absent keys.
+		 * @return The number of keys found.
+		 */
+		public int getAll( int[] src, int[] dst, int missingValue ) { return getAll( src, 0, src.length, dst, missingValue ); }
+		
+		
 		/**
 		 * Returns the token for the first non-null key-value mapping in this map according to
 		 * the internal iteration order. If only the null key is present, a token for the null key is returned.
@@ -465,6 +624,111 @@ public interface IntIntMap {
 					values[ index( token ) ] );
 		}
 		
+		/**
+		 * Returns a spliterator over the keys of the map, the null key excluded; check {@link #hasNullKey()}.
+		 * It splits the occupied slots of the {@code lo Region} and {@code hi Region} in halves, as if they were one
+		 * array, and reports {@code DISTINCT}, {@code SIZED}, {@code SUBSIZED} and {@code NONNULL}. The map must not be
+		 * modified while it is in use.
+		 *
+		 * @return A spliterator over the keys.
+		 */
+		public Spliterator.OfInt spliterator() {
+			int lo  = _lo_Size;
+			int gap = _count() == 0 ?
+			          0 :
+			          keys.length - _hi_Size - lo; // skips the free slots between the regions
+			return new Array.IntSpliterator( 0, _count(), Spliterator.DISTINCT | Spliterator.NONNULL, i -> key( i < lo ? i : i + gap ) );
+		}
+		
+		/**
+		 * Returns a sequential {@link IntStream} over the keys of the map, the null key excluded, without boxing. Call
+		 * {@code parallel()} on it to run it on the common fork-join pool. The map must not be modified while the stream
+		 * is in use.
+		 *
+		 * @return A stream over the keys.
+		 */
+		public IntStream keys() { return StreamSupport.intStream( spliterator(), false ); }
+		
+		/**
+		 * Returns a spliterator over the values of the map, in the order of {@link #spliterator()}, the value of
+		 * the null key excluded. It splits as {@link #spliterator()} does and reports {@code SIZED}, {@code SUBSIZED}
+		 * and {@code NONNULL}.
+		 *
+		 * @return A spliterator over the values.
+		 */
+		public Spliterator.OfInt valuesSpliterator() {
+			int lo  = _lo_Size;
+			int gap = _count() == 0 ?
+			          0 :
+			          keys.length - _hi_Size - lo; // skips the free slots between the regions
+			return new Array.IntSpliterator( 0, _count(), Spliterator.NONNULL, i -> value( i < lo ? i : i + gap ) );
+		}
+		
+		/**
+		 * Returns a sequential {@link IntStream} over the values of the map, in the order of {@link #keys()}, the value of
+		 * the null key excluded, without boxing. Call {@code parallel()} on it to run it on the common fork-join pool. The
+		 * map must not be modified while the stream is in use.
+		 *
+		 * @return A stream over the values.
+		 */
+		public IntStream values() { return StreamSupport.intStream( valuesSpliterator(), false ); }
+		
+		/**
+		 * Passes every entry to the action, the null key excluded. Loops directly over the lo and hi regions of the key
+		 * and value arrays, without tokens or version checks, so the action must not modify the map.
+		 *
+		 * @param action The receiver of the entries.
+		 */
+		public void forEach( Consumer action ) {
+			if( _count() == 0 ) return;
+			for( int i = 0; i < _lo_Size; i++ )
+				action.accept( keys[ i ], values[ i ] );
+			for( int i = keys.length - _hi_Size; i < keys.length; i++ )
+				action.accept( keys[ i ], values[ i ] );
+		}
+		
+		/**
+		 * Passes every key to the action, the null key excluded, in the order of {@link #forEach(Consumer)}.
+		 *
+		 * @param action The receiver of the keys.
+		 */
+		public void forEachKey( KeyConsumer action ) {
+			if( _count() == 0 ) return;
+			for( int i = 0; i < _lo_Size; i++ )
+				action.accept( keys[ i ] );
+			for( int i = keys.length - _hi_Size; i < keys.length; i++ )
+				action.accept( keys[ i ] );
+		}
+		
+		/**
+		 * Passes every value to the action, the value of the null key excluded, in the order of
+		 * {@link #forEach(Consumer)}.
+		 *
+		 * @param action The receiver of the values.
+		 */
+		public void forEachValue( ValueConsumer action ) {
+			if( _count() == 0 ) return;
+			for( int i = 0; i < _lo_Size; i++ )
+				action.accept( values[ i ] );
+			for( int i = keys.length - _hi_Size; i < keys.length; i++ )
+				action.accept( values[ i ] );
+		}
+		
+		/**
+		 * Passes the entries to the predicate, in the order of {@link #forEach(Consumer)}, until it returns {@code false}.
+		 *
+		 * @param predicate The test of the entries.
+		 * @return {@code true} if the predicate accepted every entry, {@code false} if it stopped the iteration.
+		 */
+		public boolean forEachWhile( Predicate predicate ) {
+			if( _count() == 0 ) return true;
+			for( int i = 0; i < _lo_Size; i++ )
+				if( !predicate.test( keys[ i ], values[ i ] ) ) return false;
+			for( int i = keys.length - _hi_Size; i < keys.length; i++ )
+				if( !predicate.test( keys[ i ], values[ i ] ) ) return false;
+			return true;
+		}
+		
 		
 		@Override
 		/**
@@ -476,7 +740,7 @@ public interface IntIntMap {
 		public int hashCode() {
 			int a = 0, b = 0, c = 1;
 			for( int token = -1; ( token = unsafe_token( token ) ) != -1; ) {
-				int h = Array.mix( seed, Array.hash( keys[ token ] ) );
+				int h = Array.mix( seed, Array.hash( key( token ) ) );
 				h = Array.mix( h, Array.hash( value( token ) ) );
 				h = Array.finalizeHash( h, 2 );
 				a += h;
@@ -584,7 +848,7 @@ public interface IntIntMap {
 		 * @param hash The hash value of a key.
 		 * @return The computed bucket index.
 		 */
-		protected int bucketIndex( int hash ) { return ( hash & 0x7FFF_FFFF ) % _buckets.length; }
+		protected int bucketIndex( int hash ) { return Array.mod( hash & 0x7FFF_FFFF, _bucketsMultiplier, _buckets.length ); }
 		
 		/**
 		 * Creates a token from an internal array index. The token encodes the map's current version
@@ -620,6 +884,29 @@ public interface IntIntMap {
 	 */
 	class RW extends R {
 		
+		/**
+		 * The length of a collision chain that, when exceeded during an insertion, triggers a rehash
+		 * with the strategy supplied by {@link #forceNewHashCodes}.
+		 */
+		protected static final int                        HashCollisionThreshold = 100;
+		/**
+		 * An optional function that, when set, provides a new key hashing strategy once an insertion walks a
+		 * collision chain longer than {@link #HashCollisionThreshold}, e.g. {@code h -> Array.Hash.random()}.
+		 * This counters hash-flooding with keys crafted against the current strategy.
+		 */
+		public                Function< Array.Hash, Array.Hash > forceNewHashCodes      = null;
+		
+		/**
+		 * Replaces the strategy used to hash keys into buckets and redistributes the current entries under it.
+		 * This is a structural modification that invalidates all outstanding tokens.
+		 *
+		 * @param hash_K The new key hashing strategy, e.g. {@link Array.Hash#MURMUR} or {@link Array.Hash#random()}.
+		 */
+		public void hash_K( Array.Hash hash_K ) {
+			this.hash_K = hash_K;
+			if( _buckets != null ) resize( keys.length );
+		}
+		
 		/**
 		 * Constructs an empty {@code IntIntMap.RW} instance with a default initial capacity (7).
 		 */
@@ -645,6 +932,7 @@ public interface IntIntMap {
 			_version++;
 			
 			_buckets = new int[ capacity ];
+			_bucketsMultiplier = Array.modMultiplier( capacity );
 			keys     = new int[ capacity ];
 			values   = new int[ capacity ];
 			_lo_Size = 0;
@@ -697,23 +985,72 @@ public interface IntIntMap {
 			if( _buckets == null ) initialize( 7 );
 			else if( _count() == keys.length ) resize( Array.prime( keys.length * 2 ) );
 			
-			int bucketIndex = bucketIndex( Array.hash( key ) );
-			int index       = _buckets[ bucketIndex ] - 1;
+			return put( key, value, bucketIndex( hash_K.hash( key ) ) );
+		}
+		
+		/**
+		 * Associates the value with the key in the given bucket of the current arrays, which must have room for one more entry.
+		 *
+		 * @param key         The key.
+		 * @param value       The value.
+		 * @param bucketIndex The bucket of the key, as computed by {@link #bucketIndex(int)}.
+		 * @return {@code true} if a new key was added, {@code false} if an existing key's value was updated.
+		 */
+		private boolean put( int key, int value, int bucketIndex ) {
+			int index = find( key, bucketIndex );
+			if( index < 0 ) {
+				insert( key, value, bucketIndex, ~index );
+				return true;// Key was new
+			}
+			
+			values[ index ] = ( int ) value;// Update value
+			_version++;
+			return false;
+		}
+		
+		/**
+		 * Walks the collision chain of the given bucket looking for the key.
+		 *
+		 * @param key         The key.
+		 * @param bucketIndex The bucket of the key, as computed by {@link #bucketIndex(int)}.
+		 * @return The index of the key's entry, or, if the key is absent, the bitwise complement of the number of
+		 *         collisions walked past, to be passed to {@link #insert}.
+		 */
+		private int find( int key, int bucketIndex ) {
+			int index = _buckets[ bucketIndex ] - 1;
+			if( index == -1 ) return ~0;
+			
+			for( int collisions = 0; ; ) {
+				if( keys[ index ] == ( int ) key ) return index;
+				if( _lo_Size <= index ) return ~collisions;
+				index = links[ index ];
+				
+				if( _lo_Size + 1 < collisions++ ) throw new ConcurrentModificationException( "Concurrent operations not supported." );
+			}
+		}
+		
+		/**
+		 * Adds an absent key to the given bucket of the current arrays, which must have room for one more entry.
+		 *
+		 * @param key         The key, known to be absent.
+		 * @param value       The value.
+		 * @param bucketIndex The bucket of the key, as computed by {@link #bucketIndex(int)}.
+		 * @param collisions  The number of collisions reported by {@link #find}.
+		 * @return The index of the new entry.
+		 */
+		private int insert( int key, int value, int bucketIndex, int collisions ) {
+			int index = _buckets[ bucketIndex ] - 1;
 			int dst_index;
 			
 			if( index == -1 )  // Bucket is empty: place new entry in {@code hi Region}
 				dst_index = keys.length - 1 - _hi_Size++; // Add to the "bottom" of {@code hi Region}
 			else {
-				for( int i = index, collisions = 0; ; ) {
-					if( keys[ i ] == ( int ) key ) {
-						values[ i ] = ( int ) value;// Update value
-						_version++;
-						return false;// Key was not new
+				if( HashCollisionThreshold < collisions && forceNewHashCodes != null ) {
+					Array.Hash hash = forceNewHashCodes.apply( hash_K );
+					if( hash != hash_K ) {
+						hash_K( hash );
+						return insert( key, value, bucketIndex( hash_K.hash( key ) ), 0 );
 					}
-					if( _lo_Size <= i ) break;
-					i = links[ i ];
-					
-					if( _lo_Size + 1 < collisions++ ) throw new ConcurrentModificationException( "Concurrent operations not supported." );
 				}
 				
 				( links.length == ( dst_index = _lo_Size++ ) ?
@@ -725,10 +1062,184 @@ public interface IntIntMap {
 			values[ dst_index ]     = ( int ) value;
 			_buckets[ bucketIndex ] = ( int ) ( dst_index + 1 );
 			_version++;
+			return dst_index;
+		}
+		
+		
+		/**
+		 * Associates the value with the key only if the key is absent. The key is looked up once.
+		 *
+		 * @param key   The key.
+		 * @param value The value to associate with an absent key.
+		 * @return {@code true} if the key was added, {@code false} if it was present and its value left unchanged.
+		 */
+		public boolean putIfAbsent( int key, int value ) {
+			if( _buckets == null ) initialize( 7 );
+			else if( _count() == keys.length ) resize( Array.prime( keys.length * 2 ) );
+			
+			int bucketIndex = bucketIndex( hash_K.hash( key ) );
+			int index       = find( key, bucketIndex );
+			if( -1 < index ) return false;
+			
+			insert( key, value, bucketIndex, ~index );
+			return true;
+		}
+		
+		
+		/**
+		 * Adds {@code delta} to the value of the key, associating an absent key with {@code delta}.
+		 * The key is looked up once, so counting is a single call instead of {@code tokenOf} followed by {@code put}.
+		 *
+		 * @param key   The key.
+		 * @param delta The amount to add.
+		 * @return The new value of the key.
+		 */
+		public int addTo( int key, int delta ) {
+			if( _buckets == null ) initialize( 7 );
+			else if( _count() == keys.length ) resize( Array.prime( keys.length * 2 ) );
+			
+			int bucketIndex = bucketIndex( hash_K.hash( key ) );
+			int index       = find( key, bucketIndex );
+			if( index < 0 ) {
+				insert( key, delta, bucketIndex, ~index );
+				return delta;
+			}
+			
+			_version++;
+			return values[ index ] += delta;
+		}
+		
+		
+		/**
+		 * Returns the value of the key, first associating an absent key with the value computed by {@code mapping}.
+		 * The key is looked up once.
+		 *
+		 * @param key     The key.
+		 * @param mapping Computes the value of an absent key. It must not modify this map.
+		 * @return The current, or the newly computed, value of the key.
+		 * @throws ConcurrentModificationException if {@code mapping} modified this map.
+		 */
+		public int computeIfAbsent( int key, Mapping mapping ) {
+			if( _buckets == null ) initialize( 7 );
+			else if( _count() == keys.length ) resize( Array.prime( keys.length * 2 ) );
+			
+			int bucketIndex = bucketIndex( hash_K.hash( key ) );
+			int index       = find( key, bucketIndex );
+			if( -1 < index ) return values[ index ];
+			
+			int version = _version;
+			int value   = mapping.apply( key );
+			if( version != _version ) throw new ConcurrentModificationException( "The mapping function modified the map." );
+			
+			insert( key, value, bucketIndex, ~index );
+			return value;
+		}
+		
+		
+		/**
+		 * Replaces the value of a present key with the value computed by {@code remapping}. The key is looked up once.
+		 * An absent key is left absent.
+		 *
+		 * @param key       The key.
+		 * @param remapping Computes the new value from the key and its current value. It must not modify this map.
+		 * @return {@code true} if the key was present and its value replaced.
+		 * @throws ConcurrentModificationException if {@code remapping} modified this map.
+		 */
+		public boolean computeIfPresent( int key, Remapping remapping ) {
+			if( _buckets == null ) return false;
+			
+			int index = find( key, bucketIndex( hash_K.hash( key ) ) );
+			if( index < 0 ) return false;
+			
+			int version = _version;
+			int value   = remapping.apply( key, values[ index ] );
+			if( version != _version ) throw new ConcurrentModificationException( "The remapping function modified the map." );
+			
+			values[ index ] = ( int ) value;
+			_version++;
 			return true;
 		}
 		
 		
+		/**
+		 * Associates an absent key with {@code value}, or replaces the value of a present key with the result of
+		 * {@code merging} its current value with {@code value}. The key is looked up once.
+		 *
+		 * @param key     The key.
+		 * @param value   The value to associate with an absent key, or to merge with the current one.
+		 * @param merging Combines the current value with {@code value}. It must not modify this map.
+		 * @return The new value of the key.
+		 * @throws ConcurrentModificationException if {@code merging} modified this map.
+		 */
+		public int merge( int key, int value, Merging merging ) {
+			if( _buckets == null ) initialize( 7 );
+			else if( _count() == keys.length ) resize( Array.prime( keys.length * 2 ) );
+			
+			int bucketIndex = bucketIndex( hash_K.hash( key ) );
+			int index       = find( key, bucketIndex );
+			if( index < 0 ) {
+				insert( key, value, bucketIndex, ~index );
+				return value;
+			}
+			
+			int version = _version;
+			int merged  = merging.apply( values[ index ], value );
+			if( version != _version ) throw new ConcurrentModificationException( "The merging function modified the map." );
+			
+			values[ index ] = ( int ) merged;
+			_version++;
+			return merged;
+		}
+		
+		
+		/**
+		 * Associates the values with the keys of the given range, as if by {@code put( src_keys[ i ], src_values[ i ] )}
+		 * for every {@code i} from {@code from} to {@code from + len - 1}.
+		 * <p>
+		 * The keys are processed in batches of {@link #BATCH}: the buckets of the whole batch are computed and loaded
+		 * first, then the keys are resolved against them, so the memory accesses of independent keys overlap.
+		 *
+		 * @param src_keys   The keys.
+		 * @param src_values The values, at the same indices as their keys.
+		 * @param from       The index of the first key.
+		 * @param len        The number of keys.
+		 * @return The number of keys that were added, not updated.
+		 */
+		public int putAll( int[] src_keys, int[] src_values, int from, int len ) {
+			int   added   = 0;
+			int[] buckets = new int[ Math.min( len, BATCH ) ];
+			int[] heads   = new int[ buckets.length ];
+			
+			for( int end = from + len; from < end; ) {
+				if( _buckets == null ) initialize( 7 );
+				int[] table = _buckets;
+				int   n     = Math.min( buckets.length, end - from );
+				
+				for( int i = 0; i < n; i++ ) heads[ i ] = table[ buckets[ i ] = bucketIndex( hash_K.hash( src_keys[ from + i ] ) ) ];
+				
+				// Bucket heads are re-read by put(), as earlier keys of the batch may have changed them.
+				// A resize or a new hash strategy invalidates the rest of the batch: it is hashed again.
+				for( int i = 0; i < n && table == _buckets; i++, from++ ) {
+					if( _count() == keys.length ) {
+						resize( Array.prime( keys.length * 2 ) );
+						break;
+					}
+					if( put( src_keys[ from ], src_values[ from ], buckets[ i ] ) ) added++;
+				}
+			}
+			return added;
+		}
+		
+		/**
+		 * Associates the values with the keys, as if by {@code put( src_keys[ i ], src_values[ i ] )} for every index of {@code src_keys}.
+		 *
+		 * @param src_keys   The keys.
+		 * @param src_values The values, at the same indices as their keys.
+		 * @return The number of keys that were added, not updated.
+		 */
+		public int putAll( int[] src_keys, int[] src_values ) { return putAll( src_keys, src_values, 0, src_keys.length ); }
+		
+		
 		/**
 		 * Removes the mapping for the specified boxed key from this map if present.
 		 * If the key is {@code null}, the null key mapping is removed.
@@ -776,7 +1287,7 @@ public interface IntIntMap {
 		private void move( int src, int dst ) {
 			
 			if( src == dst ) return;
-			int bucketIndex = bucketIndex( Array.hash( keys[ src ] ) );
+			int bucketIndex = bucketIndex( hash_K.hash( keys[ src ] ) );
 			int index       = _buckets[ bucketIndex ] - 1;
 			
 			if( index == src ) _buckets[ bucketIndex ] = ( int ) ( dst + 1 );
@@ -801,7 +1312,7 @@ public interface IntIntMap {
 		 */
 		public boolean remove( int key ) {
 			if( _count() == 0 ) return false;
-			int removeBucketIndex = bucketIndex( Array.hash( key ) );
+			int removeBucketIndex = bucketIndex( hash_K.hash( key ) );
 			int removeIndex       = _buckets[ removeBucketIndex ] - 1;
 			if( removeIndex < 0 ) return false;
 			
@@ -963,8 +1474,8 @@ public interface IntIntMap {
 		 * @param key   The key to copy.
 		 * @param value The value to copy.
 		 */
-		private void copy( int key, int value ) {
-			int bucketIndex = bucketIndex( Array.hash( key ) );
+		protected void copy( int key, int value ) {
+			int bucketIndex = bucketIndex( hash_K.hash( key ) );
 			int index       = _buckets[ bucketIndex ] - 1;
 			int dst_index;
 			
@@ -972,13 +1483,28 @@ public interface IntIntMap {
 				dst_index = keys.length - 1 - _hi_Size++;
 			else ( links.length == _lo_Size ?
 				  links = Arrays.copyOf( links, Math.max( 16, Math.min( _lo_Size * 2, keys.length ) ) ) :
-				  links )[ dst_index = _lo_Size++ ] = ( char ) ( index );
+				  links )[ dst_index = _lo_Size++ ] = index;
 			
 			keys[ dst_index ]       = key;
 			values[ dst_index ]     = value;
 			_buckets[ bucketIndex ] = ( int ) ( dst_index + 1 );
 		}
 		
+		/**
+		 * Returns an immutable, exact-size snapshot of this map for read-only use, see {@link Frozen}.
+		 *
+		 * @return The frozen snapshot, indexed with buckets.
+		 */
+		public Frozen freeze() { return new Frozen( this, false ); }
+		
+		/**
+		 * Returns an immutable, exact-size snapshot of this map for read-only use, see {@link Frozen}.
+		 *
+		 * @param perfect {@code true} to index the snapshot with a minimal perfect hash, so every lookup probes one slot.
+		 * @return The frozen snapshot.
+		 */
+		public Frozen freeze( boolean perfect ) { return new Frozen( this, perfect ); }
+		
 		/**
 		 * Creates and returns a shallow copy of this map. The internal arrays are cloned,
 		 * but the primitive elements within those arrays are copied by value.
@@ -988,4 +1514,2438 @@ public interface IntIntMap {
 		@Override
 		public RW clone() { return ( RW ) super.clone(); }
 	}
+
+	/**
+	 * An alternative read-write engine for {@link IntIntMap} that replaces the prime-sized, chained
+	 * {@code lo}/{@code hi} region layout with a power-of-two open-addressing table.
+	 * <p>
+	 * Because it extends {@link RW}, an instance can be assigned wherever an {@code IntIntMap.RW} or
+	 * {@code IntIntMap.R} is expected, so a hot map is switched by changing only its constructor call:
+	 * <pre>{@code
+	 * IntIntMap.RW map = new IntIntMap.Open( 1024 ); // was: new IntIntMap.RW( 1024 )
+	 * }</pre>
+	 *
+	 * <h3>Layout</h3>
+	 * <ul>
+	 * <li>Keys and values live in one interleaved {@code slots} array: the key of slot {@code i} is at
+	 *     {@code slots[ i * 2 ]} and its value at {@code slots[ i * 2 + 1 ]}, so a successful probe
+	 *     touches a single cache line.</li>
+	 * <li>The table length is a power of two; the home slot of a key is {@code hash_K.hash( key ) & mask},
+	 *     no integer division is performed.</li>
+	 * <li>A key of {@code 0} marks an empty slot. The real {@code 0} key, if present, is kept in the
+	 *     extra slot at index {@code mask + 1}, past the end of the probed table.</li>
+	 * <li>Collisions are resolved by linear probing. Removal uses backward-shift deletion, so the
+	 *     table never contains tombstones and probe sequences stay short.</li>
+	 * </ul>
+	 *
+	 * <h3>Tokens</h3>
+	 * The token protocol is the same as for {@link RW}: a token encodes the map version and the slot index.
+	 * Iteration walks occupied slots in table order, then the {@code 0} key slot, then the null key.
+	 */
+	class Open extends RW {
+
+		/**
+		 * Interleaved key/value storage. Slot {@code i} keeps its key at {@code i * 2} and its value at {@code i * 2 + 1}.
+		 * The slot at index {@code mask + 1} is reserved for the {@code 0} key.
+		 */
+		protected int[] slots;
+
+		/**
+		 * The table length minus one. The table length is always a power of two.
+		 */
+		protected int mask;
+
+		/**
+		 * The number of non-zero keys stored in the probed part of the table.
+		 */
+		protected int assigned;
+
+		/**
+		 * Indicates whether the {@code 0} key is present in its reserved slot.
+		 */
+		protected boolean hasZeroKey;
+
+		/**
+		 * The number of assigned slots at which the table is doubled.
+		 */
+		private int resizeAt;
+
+		/**
+		 * The maximum fraction of the table that may be occupied before it is doubled.
+		 */
+		protected static final float LOAD_FACTOR = 0.75f;
+
+		/**
+		 * The largest supported table length.
+		 */
+		protected static final int MAX_LENGTH = 1 << 29;
+
+		/**
+		 * Constructs an empty open-addressing map with a default initial capacity.
+		 */
+		public Open() { this( 0 ); }
+
+		/**
+		 * Constructs an empty open-addressing map able to hold {@code capacity} keys without resizing.
+		 *
+		 * @param capacity The expected number of keys.
+		 */
+		public Open( int capacity ) {
+			hash_K = Array.Hash.MURMUR;
+			if( capacity > 0 ) allocate( tableSize( capacity ) );
+		}
+
+		/**
+		 * Returns the power-of-two table length needed to hold {@code capacity} keys under {@link #LOAD_FACTOR}.
+		 */
+		private static int tableSize( int capacity ) {
+			return ( int ) Math.min( MAX_LENGTH, Math.max( 8, Array.nextPowerOf2( ( long ) Math.ceil( capacity / LOAD_FACTOR ) ) ) );
+		}
+
+		/**
+		 * Allocates an empty table of the given power-of-two length. Invalidates all tokens.
+		 */
+		private void allocate( int length ) {
+			_version++;
+			slots      = new int[ length + 1 << 1 ];
+			mask       = length - 1;
+			assigned   = 0;
+			hasZeroKey = false;
+			resizeAt   = Math.min( mask, ( int ) Math.ceil( length * LOAD_FACTOR ) );
+		}
+
+		/**
+		 * Returns the home slot of the given key. The key hashing strategy must spread entropy into the low bits,
+		 * which is why this engine defaults to {@link Array.Hash#MURMUR} instead of {@link Array.Hash#IDENTITY}.
+		 */
+		protected int slot( int key ) { return hash_K.hash( key ) & mask; }
+
+		@Override
+		protected int _count() {
+			return assigned + (
+					hasZeroKey ?
+					1 :
+					0 );
+		}
+
+		@Override
+		public int length() {
+			return slots == null ?
+			       0 :
+			       mask + 1;
+		}
+
+		@Override
+		public boolean containsValue( int value ) {
+			if( hasNullKey && nullKeyValue == value ) return true;
+			for( int token = -1; ( token = unsafe_token( token ) ) != -1; )
+				if( slots[ ( token << 1 ) + 1 ] == value ) return true;
+			return false;
+		}
+
+		@Override
+		public long tokenOf( int key ) {
+			if( slots == null ) return INVALID_TOKEN;
+			if( key == 0 ) return hasZeroKey ?
+			                      token( mask + 1 ) :
+			                      INVALID_TOKEN;
+
+			int i = slot( key );
+			for( int k; ( k = slots[ i << 1 ] ) != 0; i = i + 1 & mask )
+				if( k == key ) return token( i );
+
+			return INVALID_TOKEN;
+		}
+
+		/**
+		 * Returns the index of the next occupied slot after the given one, scanning the probed table first
+		 * and the reserved {@code 0} key slot last.
+		 *
+		 * @param token The current slot index, or -1 to start from the beginning.
+		 * @return The index of the next occupied slot, or -1 if there are no more non-null keys.
+		 */
+		@Override
+		public int unsafe_token( int token ) {
+			if( slots == null ) return -1;
+
+			final int zero = mask + 1;
+			if( zero <= token ) return -1;
+
+			if( assigned != 0 )
+				for( int i = token + 1; i < zero; i++ )
+					if( slots[ i << 1 ] != 0 ) return i;
+
+			return hasZeroKey ?
+			       zero :
+			       -1;
+		}
+		
+		@Override
+		public Spliterator.OfInt spliterator() { return Array.spliterator( size() - ( hasNullKey() ? 1 : 0 ), this::unsafe_token, this::key ); }
+		
+		@Override
+		public Spliterator.OfInt valuesSpliterator() { return Array.spliterator( size() - ( hasNullKey() ? 1 : 0 ), this::unsafe_token, this::value ); }
+
+		@Override
+		public void forEach( Consumer action ) {
+			for( int t = -1; ( t = unsafe_token( t ) ) != -1; )
+				action.accept( key( t ), value( t ) );
+		}
+
+		@Override
+		public void forEachKey( KeyConsumer action ) {
+			for( int t = -1; ( t = unsafe_token( t ) ) != -1; )
+				action.accept( key( t ) );
+		}
+
+		@Override
+		public void forEachValue( ValueConsumer action ) {
+			for( int t = -1; ( t = unsafe_token( t ) ) != -1; )
+				action.accept( value( t ) );
+		}
+
+		@Override
+		public boolean forEachWhile( Predicate predicate ) {
+			for( int t = -1; ( t = unsafe_token( t ) ) != -1; )
+				if( !predicate.test( key( t ), value( t ) ) ) return false;
+			return true;
+		}
+
+		@Override
+		public int key( long token ) { return slots[ index( token ) << 1 ]; }
+
+		@Override
+		public int value( long token ) {
+			return isKeyNull( token ) ?
+			       nullKeyValue :
+			       slots[ ( index( token ) << 1 ) + 1 ];
+		}
+
+		@Override
+		public void toJSON( JsonWriter json ) {
+			json.preallocate( size() * 10 );
+			json.enterObject();
+
+			if( hasNullKey ) json.name().value( nullKeyValue );
+
+			for( int token = -1; ( token = unsafe_token( token ) ) != -1; )
+			     json.name( slots[ token << 1 ] ).value( slots[ ( token << 1 ) + 1 ] );
+
+			json.exitObject();
+		}
+
+		@Override
+		public boolean put( int key, int value ) {
+			if( slots == null ) allocate( 8 );
+			else if( resizeAt <= assigned ) rehash( mask + 1 << 1 );
+
+			if( key == 0 ) {
+				boolean ret = !hasZeroKey;
+				hasZeroKey                 = true;
+				slots[ mask + 1 << 1 | 1 ] = value;
+				_version++;
+				return ret;
+			}
+
+			int i = slot( key ), probes = 0;
+			for( int k; ( k = slots[ i << 1 ] ) != 0; i = i + 1 & mask, probes++ )
+				if( k == key ) {
+					slots[ ( i << 1 ) + 1 ] = value;
+					_version++;
+					return false;
+				}
+			
+			if( HashCollisionThreshold < probes && forceNewHashCodes != null ) {
+				Array.Hash hash = forceNewHashCodes.apply( hash_K );
+				if( hash != hash_K ) {
+					hash_K( hash );
+					return put( key, value );
+				}
+			}
+
+			slots[ i << 1 ]         = key;
+			slots[ ( i << 1 ) + 1 ] = value;
+			assigned++;
+			_version++;
+			return true;
+		}
+
+		/**
+		 * Allocates the table, or doubles it if it is full, ahead of adding a key.
+		 */
+		private void reserve() {
+			if( slots == null ) allocate( 8 );
+			else if( resizeAt <= assigned ) rehash( mask + 1 << 1 );
+		}
+
+		/**
+		 * Returns the slot of the key, or, if the key is absent, the bitwise complement of the slot it would be added at.
+		 * The {@code 0} key is found at its reserved slot {@code mask + 1}. The table must be allocated.
+		 */
+		private int find( int key ) {
+			if( key == 0 ) return hasZeroKey ?
+			                      mask + 1 :
+			                      ~( mask + 1 );
+
+			int i = slot( key );
+			for( int k; ( k = slots[ i << 1 ] ) != 0; i = i + 1 & mask )
+				if( k == key ) return i;
+
+			return ~i;
+		}
+
+		/**
+		 * Adds an absent key at slot {@code i}, as returned by {@link #find(int)}. The table must have room for one more key.
+		 */
+		private void add( int key, int value, int i ) {
+			if( i == mask + 1 ) hasZeroKey = true;
+			else {
+				if( HashCollisionThreshold < ( i - slot( key ) & mask ) && forceNewHashCodes != null ) {
+					Array.Hash hash = forceNewHashCodes.apply( hash_K );
+					if( hash != hash_K ) {
+						hash_K( hash );
+						i = ~find( key );
+					}
+				}
+				slots[ i << 1 ] = key;
+				assigned++;
+			}
+			slots[ ( i << 1 ) + 1 ] = value;
+			_version++;
+		}
+
+		@Override
+		public boolean putIfAbsent( int key, int value ) {
+			reserve();
+			int i = find( key );
+			if( -1 < i ) return false;
+
+			add( key, value, ~i );
+			return true;
+		}
+
+		@Override
+		public int addTo( int key, int delta ) {
+			reserve();
+			int i = find( key );
+			if( i < 0 ) {
+				add( key, delta, ~i );
+				return delta;
+			}
+
+			_version++;
+			return slots[ ( i << 1 ) + 1 ] += delta;
+		}
+
+		@Override
+		public int computeIfAbsent( int key, Mapping mapping ) {
+			reserve();
+			int i = find( key );
+			if( -1 < i ) return slots[ ( i << 1 ) + 1 ];
+
+			int version = _version;
+			int value   = mapping.apply( key );
+			if( version != _version ) throw new ConcurrentModificationException( "The mapping function modified the map." );
+
+			add( key, value, ~i );
+			return value;
+		}
+
+		@Override
+		public boolean computeIfPresent( int key, Remapping remapping ) {
+			if( slots == null ) return false;
+			int i = find( key );
+			if( i < 0 ) return false;
+
+			int version = _version;
+			int value   = remapping.apply( key, slots[ ( i << 1 ) + 1 ] );
+			if( version != _version ) throw new ConcurrentModificationException( "The remapping function modified the map." );
+
+			slots[ ( i << 1 ) + 1 ] = value;
+			_version++;
+			return true;
+		}
+
+		@Override
+		public int merge( int key, int value, Merging merging ) {
+			reserve();
+			int i = find( key );
+			if( i < 0 ) {
+				add( key, value, ~i );
+				return value;
+			}
+
+			int version = _version;
+			int merged  = merging.apply( slots[ ( i << 1 ) + 1 ], value );
+			if( version != _version ) throw new ConcurrentModificationException( "The merging function modified the map." );
+
+			slots[ ( i << 1 ) + 1 ] = merged;
+			_version++;
+			return merged;
+		}
+
+		@Override
+		public boolean remove( int key ) {
+			if( slots == null ) return false;
+
+			if( key == 0 ) {
+				if( !hasZeroKey ) return false;
+				hasZeroKey = false;
+				_version++;
+				return true;
+			}
+
+			int i = slot( key );
+			for( int k; ( k = slots[ i << 1 ] ) != 0; i = i + 1 & mask )
+				if( k == key ) {
+					shiftKeys( i );
+					assigned--;
+					_version++;
+					return true;
+				}
+
+			return false;
+		}
+
+		/**
+		 * Closes the gap left at slot {@code gap} by moving back every following entry of the same probe run
+		 * whose home slot does not lie cyclically in {@code (gap, current]}.
+		 */
+		private void shiftKeys( int gap ) {
+			for( int i = gap; ; ) {
+				int k;
+				if( ( k = slots[ ( i = i + 1 & mask ) << 1 ] ) == 0 ) break;
+
+				int home = slot( k );
+				if( gap <= i ?
+				    gap < home && home <= i :
+				    gap < home || home <= i ) continue;
+
+				slots[ gap << 1 ]         = k;
+				slots[ ( gap << 1 ) + 1 ] = slots[ ( i << 1 ) + 1 ];
+				gap                       = i;
+			}
+			slots[ gap << 1 ] = 0;
+		}
+
+		@Override
+		public void hash_K( Array.Hash hash_K ) {
+			this.hash_K = hash_K;
+			if( slots != null ) rehash( mask + 1 );
+		}
+		
+		@Override
+		public void clear() {
+			_version++;
+			hasNullKey = false;
+			if( slots == null || _count() == 0 ) return;
+			Arrays.fill( slots, 0 );
+			assigned   = 0;
+			hasZeroKey = false;
+		}
+
+		@Override
+		public int ensureCapacity( int capacity ) {
+			if( slots == null ) allocate( tableSize( capacity ) );
+			else if( resizeAt < capacity ) rehash( tableSize( capacity ) );
+			return length();
+		}
+
+		@Override
+		public void trim( int capacity ) {
+			if( capacity < _count() ) throw new IllegalArgumentException( "capacity is less than Count." );
+			if( slots == null ) return;
+			int length = tableSize( Math.max( capacity, assigned ) );
+			if( length < mask + 1 ) rehash( length );
+		}
+
+		/**
+		 * Re-inserts every entry into a new table of the given power-of-two length. Invalidates all tokens.
+		 */
+		private void rehash( int length ) {
+			if( MAX_LENGTH < length ) throw new IllegalStateException( "Table length cannot exceed " + MAX_LENGTH );
+			int[]   old        = slots;
+			int     old_length = mask + 1;
+			boolean zero       = hasZeroKey;
+
+			allocate( length );
+
+			for( int i = 0; i < old_length; i++ ) {
+				int k = old[ i << 1 ];
+				if( k != 0 ) {
+					int j = slot( k );
+					while( slots[ j << 1 ] != 0 ) j = j + 1 & mask;
+					slots[ j << 1 ]         = k;
+					slots[ ( j << 1 ) + 1 ] = old[ ( i << 1 ) + 1 ];
+					assigned++;
+				}
+			}
+
+			if( zero ) {
+				hasZeroKey                 = true;
+				slots[ mask + 1 << 1 | 1 ] = old[ old_length << 1 | 1 ];
+			}
+		}
+
+		/**
+		 * Looks up the keys one at a time. See {@link R#getAll(int[], int, int, int[], int)}.
+		 */
+		@Override
+		public int getAll( int[] src, int from, int len, int[] dst, int missingValue ) {
+			int found = 0;
+			for( int end = from + len; from < end; from++ ) {
+				long token = tokenOf( src[ from ] );
+				if( token == INVALID_TOKEN ) dst[ from ] = missingValue;
+				else {
+					dst[ from ] = value( token );
+					found++;
+				}
+			}
+			return found;
+		}
+		
+		/**
+		 * Puts the keys one at a time. See {@link RW#putAll(int[], int[], int, int)}.
+		 */
+		@Override
+		public int putAll( int[] src_keys, int[] src_values, int from, int len ) {
+			int added = 0;
+			for( int end = from + len; from < end; from++ )
+				if( put( src_keys[ from ], src_values[ from ] ) ) added++;
+			return added;
+		}
+		
+		@Override
+		public Open clone() {
+			Open dst = ( Open ) super.clone();
+			if( slots != null ) dst.slots = slots.clone();
+			return dst;
+		}
+	}
+	
+	/**
+	 * A read-write engine for {@link IntIntMap} that spreads the cost of a resize over the following operations.
+	 * <p>
+	 * {@link RW} grows by re-inserting every entry in one call, which stalls the caller for a time proportional to the
+	 * map size. This engine keeps the same chained {@code lo}/{@code hi} region layout but, when the map is full, only
+	 * allocates the larger arrays and keeps the old ones. Every later {@code put} or {@code remove} of a non-null key
+	 * first migrates the old bucket of its key and then a bounded number of further old buckets, {@code migrationStep}
+	 * per call, until the old arrays are drained and released.
+	 * <pre>{@code
+	 * IntIntMap.RW map = new IntIntMap.Incremental( 1024 ); // was: new IntIntMap.RW( 1024 )
+	 * }</pre>
+	 *
+	 * <h3>While a migration is pending</h3>
+	 * <ul>
+	 * <li>Lookups consult the new table first and then the old one. A key is never present in both: its old bucket is
+	 *     migrated before it is inserted into or removed from the new table.</li>
+	 * <li>A migrated old bucket is cleared, so an old entry is pending while the bucket of its key is not empty.</li>
+	 * <li>Tokens address new entries by their index and pending old entries by {@code length() + index}. Iteration walks the
+	 *     new table, then the pending old entries, then the null key. Migration only happens inside {@code put} and
+	 *     {@code remove}, which change the version, so an iteration without modifications sees every entry exactly once.</li>
+	 * <li>{@link #ensureCapacity(int)}, {@link #trim(int)} and {@link #hash_K(Array.Hash)} complete the pending migration first.</li>
+	 * </ul>
+	 * The arrays of the new table are still allocated in one step, and both tables are kept in memory until the migration completes.
+	 */
+	class Incremental extends RW {
+		
+		/**
+		 * The number of old buckets migrated by each {@code put} or {@code remove}, in addition to the bucket of its key.
+		 */
+		public final int migrationStep;
+		
+		/**
+		 * The buckets of the old table. A migrated bucket is set to 0. {@code null} if no migration is pending.
+		 */
+		protected int[] old_buckets;
+		/**
+		 * The {@link Array#modMultiplier(int)} of {@code old_buckets.length}.
+		 */
+		protected long  old_bucketsMultiplier;
+		/**
+		 * The keys of the old table.
+		 */
+		protected int[] old_keys;
+		/**
+		 * The values of the old table.
+		 */
+		protected int[] old_values;
+		/**
+		 * The collision chain links of the old {@code lo Region}.
+		 */
+		protected int[] old_links;
+		/**
+		 * The size of the old {@code lo Region}.
+		 */
+		protected int   old_lo_Size;
+		/**
+		 * The size of the old {@code hi Region}.
+		 */
+		protected int   old_hi_Size;
+		/**
+		 * The number of old entries not migrated yet.
+		 */
+		protected int   old_count;
+		/**
+		 * The next old bucket to migrate in order.
+		 */
+		protected int   migrated;
+		
+		/**
+		 * Constructs an empty map with a default initial capacity, migrating 8 buckets per operation.
+		 */
+		public Incremental() { this( 0 ); }
+		
+		/**
+		 * Constructs an empty map with the specified initial capacity, migrating 8 buckets per operation.
+		 *
+		 * @param capacity The initial capacity.
+		 */
+		public Incremental( int capacity ) { this( capacity, 8 ); }
+		
+		/**
+		 * Constructs an empty map with the specified initial capacity and migration step.
+		 *
+		 * @param capacity      The initial capacity.
+		 * @param migrationStep The number of old buckets migrated by each {@code put} or {@code remove}.
+		 * @throws IllegalArgumentException If {@code migrationStep} is less than 1.
+		 */
+		public Incremental( int capacity, int migrationStep ) {
+			super( capacity );
+			if( migrationStep < 1 ) throw new IllegalArgumentException( "migrationStep is less than 1." );
+			this.migrationStep = migrationStep;
+		}
+		
+		/**
+		 * Returns {@code true} if a resize has not finished migrating the old table yet.
+		 *
+		 * @return {@code true} while both tables are in use.
+		 */
+		public boolean migrating() { return old_keys != null; }
+		
+		@Override
+		protected int _count() { return _lo_Size + _hi_Size + old_count; }
+		
+		/**
+		 * Returns the old bucket of a key hash.
+		 */
+		private int oldBucketIndex( int hash ) { return Array.mod( hash & 0x7FFF_FFFF, old_bucketsMultiplier, old_buckets.length ); }
+		
+		/**
+		 * Returns {@code true} if the old entry at {@code index} has not been migrated yet.
+		 */
+		private boolean pending( int index ) { return old_buckets[ oldBucketIndex( hash_K.hash( old_keys[ index ] ) ) ] != 0; }
+		
+		@Override
+		public long tokenOf( int key ) {
+			long token = super.tokenOf( key );
+			if( token != INVALID_TOKEN || old_keys == null ) return token;
+			
+			int index = old_buckets[ oldBucketIndex( hash_K.hash( key ) ) ] - 1;
+			if( index < 0 ) return INVALID_TOKEN;
+			
+			for( int collisions = 0; ; ) {
+				if( old_keys[ index ] == key ) return token( keys.length + index );
+				if( old_lo_Size <= index ) return INVALID_TOKEN; //terminal node
+				index = old_links[ index ];
+				if( old_lo_Size < ++collisions ) throw new ConcurrentModificationException( "Concurrent operations not supported." );
+			}
+		}
+		
+		/**
+		 * Returns the index of the next entry after the given one: the entries of the new table come first, then the
+		 * pending entries of the old table at {@code length() + index}.
+		 *
+		 * @param token The current index, or -1 to start from the beginning.
+		 * @return The index of the next entry, or -1 if there are no more non-null keys.
+		 */
+		@Override
+		public int unsafe_token( final int token ) {
+			if( old_keys == null ) return super.unsafe_token( token );
+			
+			int length = keys.length;
+			if( token < length ) {
+				int index = super.unsafe_token( token );
+				if( index != -1 ) return index;
+			}
+			
+			int i = Math.max( token + 1 - length, 0 );
+			for( ; i < old_lo_Size; i++ )
+				if( pending( i ) ) return length + i;
+			
+			for( i = Math.max( i, old_keys.length - old_hi_Size ); i < old_keys.length; i++ )
+				if( pending( i ) ) return length + i;
+			
+			return -1;
+		}
+		
+		@Override
+		public Spliterator.OfInt spliterator() {
+			return old_keys == null ?
+			       super.spliterator() :
+			       Array.spliterator( size() - ( hasNullKey() ? 1 : 0 ), this::unsafe_token, this::key );
+		}
+		
+		@Override
+		public Spliterator.OfInt valuesSpliterator() {
+			return old_keys == null ?
+			       super.valuesSpliterator() :
+			       Array.spliterator( size() - ( hasNullKey() ? 1 : 0 ), this::unsafe_token, this::value );
+		}
+		
+		@Override
+		public void forEach( Consumer action ) {
+			for( int t = -1; ( t = unsafe_token( t ) ) != -1; )
+				action.accept( key( t ), value( t ) );
+		}
+		
+		@Override
+		public void forEachKey( KeyConsumer action ) {
+			for( int t = -1; ( t = unsafe_token( t ) ) != -1; )
+				action.accept( key( t ) );
+		}
+		
+		@Override
+		public void forEachValue( ValueConsumer action ) {
+			for( int t = -1; ( t = unsafe_token( t ) ) != -1; )
+				action.accept( value( t ) );
+		}
+		
+		@Override
+		public boolean forEachWhile( Predicate predicate ) {
+			for( int t = -1; ( t = unsafe_token( t ) ) != -1; )
+				if( !predicate.test( key( t ), value( t ) ) ) return false;
+			return true;
+		}
+		
+		@Override
+		public int key( long token ) {
+			int index = index( token );
+			return index < keys.length ?
+			       keys[ index ] :
+			       old_keys[ index - keys.length ];
+		}
+		
+		@Override
+		public int value( long token ) {
+			if( isKeyNull( token ) ) return nullKeyValue;
+			int index = index( token );
+			return index < keys.length ?
+			       values[ index ] :
+			       old_values[ index - keys.length ];
+		}
+		
+		@Override
+		public boolean containsValue( int value ) {
+			if( super.containsValue( value ) ) return true;
+			if( old_keys == null ) return false;
+			
+			for( int token = keys.length - 1; ( token = unsafe_token( token ) ) != -1; )
+				if( old_values[ token - keys.length ] == value ) return true;
+			
+			return false;
+		}
+		
+		@Override
+		public void toJSON( JsonWriter json ) {
+			json.preallocate( size() * 10 );
+			json.enterObject();
+			
+			if( hasNullKey ) json.name().value( nullKeyValue );
+			
+			for( int token = -1; ( token = unsafe_token( token ) ) != -1; )
+			     json.name( key( token ) ).value( value( token ) );
+			
+			json.exitObject();
+		}
+		
+		@Override
+		public boolean put( int key, int value ) {
+			if( _buckets != null ) {
+				if( _count() == keys.length ) {
+					completeMigration();
+					startMigration( Array.prime( keys.length * 2 ) );
+				}
+				if( old_keys != null ) migrate( key );
+			}
+			return super.put( key, value );
+		}
+		
+		/**
+		 * Starts a migration if the map is full and advances a pending one by the key's bucket, as {@link #put(int, int)} does
+		 * ahead of adding a key.
+		 */
+		private void reserve( int key ) {
+			if( _buckets == null ) return;
+			if( _count() == keys.length ) {
+				completeMigration();
+				startMigration( Array.prime( keys.length * 2 ) );
+			}
+			if( old_keys != null ) migrate( key );
+		}
+		
+		@Override
+		public boolean putIfAbsent( int key, int value ) {
+			reserve( key );
+			return super.putIfAbsent( key, value );
+		}
+		
+		@Override
+		public int addTo( int key, int delta ) {
+			reserve( key );
+			return super.addTo( key, delta );
+		}
+		
+		@Override
+		public int computeIfAbsent( int key, Mapping mapping ) {
+			reserve( key );
+			return super.computeIfAbsent( key, mapping );
+		}
+		
+		@Override
+		public boolean computeIfPresent( int key, Remapping remapping ) {
+			if( old_keys != null ) migrate( key );
+			return super.computeIfPresent( key, remapping );
+		}
+		
+		@Override
+		public int merge( int key, int value, Merging merging ) {
+			reserve( key );
+			return super.merge( key, value, merging );
+		}
+		
+		@Override
+		public boolean remove( int key ) {
+			if( old_keys != null ) migrate( key );
+			return super.remove( key );
+		}
+		
+		@Override
+		public void clear() {
+			super.clear();
+			release();
+		}
+		
+		@Override
+		public int ensureCapacity( int capacity ) {
+			if( capacity <= length() || _buckets == null ) return super.ensureCapacity( capacity );
+			completeMigration();
+			startMigration( Array.prime( capacity ) );
+			return length();
+		}
+		
+		@Override
+		public void trim( int capacity ) {
+			completeMigration();
+			super.trim( capacity );
+		}
+		
+		@Override
+		public void hash_K( Array.Hash hash_K ) {
+			completeMigration();
+			super.hash_K( hash_K );
+		}
+		
+		/**
+		 * Keeps the current arrays as the old table and installs empty arrays of the given capacity as the new one.
+		 * Invalidates all tokens.
+		 */
+		private void startMigration( int capacity ) {
+			old_buckets           = _buckets;
+			old_bucketsMultiplier = _bucketsMultiplier;
+			old_keys              = keys;
+			old_values            = values;
+			old_links             = links;
+			old_lo_Size           = _lo_Size;
+			old_hi_Size           = _hi_Size;
+			old_count             = _lo_Size + _hi_Size;
+			migrated              = 0;
+			
+			_buckets           = new int[ capacity ];
+			_bucketsMultiplier = Array.modMultiplier( capacity );
+			keys               = new int[ capacity ];
+			values             = new int[ capacity ];
+			links              = Array.EqualHashOf._ints.O;
+			_lo_Size           = 0;
+			_hi_Size           = 0;
+			_version++;
+			
+			if( old_count == 0 ) release();
+		}
+		
+		/**
+		 * Migrates the old bucket of the key, then the next {@link #migrationStep} old buckets in order.
+		 * Invalidates all tokens.
+		 */
+		private void migrate( int key ) {
+			migrateBucket( oldBucketIndex( hash_K.hash( key ) ) );
+			for( int n = migrationStep; 0 < n-- && migrated < old_buckets.length; ) migrateBucket( migrated++ );
+			_version++;
+			if( old_count == 0 ) release();
+		}
+		
+		/**
+		 * Moves every entry of the old bucket into the new table and clears the bucket.
+		 */
+		private void migrateBucket( int bucket ) {
+			int index = old_buckets[ bucket ] - 1;
+			if( index < 0 ) return;
+			old_buckets[ bucket ] = 0;
+			
+			for( ; ; index = old_links[ index ] ) {
+				copy( old_keys[ index ], old_values[ index ] );
+				old_count--;
+				if( old_lo_Size <= index ) return; //terminal node
+			}
+		}
+		
+		/**
+		 * Migrates all remaining old buckets at once. Invalidates all tokens if a migration was pending.
+		 */
+		private void completeMigration() {
+			if( old_keys == null ) return;
+			while( 0 < old_count ) migrateBucket( migrated++ );
+			_version++;
+			release();
+		}
+		
+		/**
+		 * Drops the old table.
+		 */
+		private void release() {
+			old_buckets = null;
+			old_keys    = null;
+			old_values  = null;
+			old_links   = null;
+			old_count   = 0;
+		}
+		
+		/**
+		 * Looks up the keys one at a time while a migration is pending. See {@link R#getAll(int[], int, int, int[], int)}.
+		 */
+		@Override
+		public int getAll( int[] src, int from, int len, int[] dst, int missingValue ) {
+			if( old_keys == null ) return super.getAll( src, from, len, dst, missingValue );
+			
+			int found = 0;
+			for( int end = from + len; from < end; from++ ) {
+				long token = tokenOf( src[ from ] );
+				if( token == INVALID_TOKEN ) dst[ from ] = missingValue;
+				else {
+					dst[ from ] = value( token );
+					found++;
+				}
+			}
+			return found;
+		}
+		
+		/**
+		 * Puts the keys one at a time, so every insertion migrates its share of the old table. See {@link RW#putAll(int[], int[], int, int)}.
+		 */
+		@Override
+		public int putAll( int[] src_keys, int[] src_values, int from, int len ) {
+			int added = 0;
+			for( int end = from + len; from < end; from++ )
+				if( put( src_keys[ from ], src_values[ from ] ) ) added++;
+			return added;
+		}
+		
+		@Override
+		public Incremental clone() {
+			Incremental dst = ( Incremental ) super.clone();
+			if( old_buckets != null ) dst.old_buckets = old_buckets.clone(); // the other old arrays are never written
+			return dst;
+		}
+	}
+	
+	/**
+	 * An immutable, read-optimized snapshot of a map, returned by {@link RW#freeze()} for maps that are built once
+	 * and then only read.
+	 * <p>
+	 * The entries live in exact-size {@code keys} and {@code values} arrays with no {@code links}, no slack capacity
+	 * and no {@code lo Region}: the whole arrays are the {@code hi Region}, so iteration and the other inherited
+	 * {@link R} methods work unchanged. Keys are located through one of two indexes:
+	 * <ul>
+	 * <li><b>Bucketed</b> ({@code freeze()}): the entries are grouped by bucket, one bucket per entry, and
+	 *     the entries of bucket {@code b} are the contiguous run from {@code offsets[ b ]} to {@code offsets[ b + 1 ] - 1}.</li>
+	 * <li><b>Perfect</b> ({@code freeze( true )}): a minimal perfect hash in the CHD (compress, hash, displace) style.
+	 *     The keys are split into buckets of about {@link #LAMBDA} keys and every bucket keeps the seed that sends
+	 *     its keys to distinct free slots, so a lookup reads one seed and probes exactly one slot.
+	 *     Building it takes longer, on the order of a second per million keys.</li>
+	 * </ul>
+	 * Nothing in a frozen map changes after construction and lookups do not write, so once it is safely published
+	 * (through a {@code final} or {@code volatile} field, for example) any number of threads may read it without
+	 * synchronization. Its tokens never expire.
+	 */
+	class Frozen extends R {
+		
+		/**
+		 * The average number of keys per bucket of the perfect hash.
+		 */
+		protected static final int LAMBDA = 4;
+		
+		/**
+		 * The bucketed index: the entries of bucket {@code b} are at {@code offsets[ b ]} to {@code offsets[ b + 1 ] - 1}.
+		 * {@code null} if the perfect index is used.
+		 */
+		protected final int[] offsets;
+		
+		/**
+		 * The perfect index: the key of bucket {@code b} is at {@code slot( key, seeds[ b ], keys.length )}.
+		 * {@code null} if the bucketed index is used.
+		 */
+		protected final int[] seeds;
+		
+		/**
+		 * Freezes a copy of the given map with the bucketed index.
+		 *
+		 * @param src The map to copy.
+		 */
+		public Frozen( R src ) { this( src, false ); }
+		
+		/**
+		 * Freezes a copy of the given map.
+		 *
+		 * @param src     The map to copy.
+		 * @param perfect {@code true} to index the keys with a minimal perfect hash, {@code false} to index them with buckets.
+		 */
+		public Frozen( R src, boolean perfect ) {
+			hasNullKey   = src.hasNullKey;
+			nullKeyValue = src.nullKeyValue;
+			
+			int   count      = src._count();
+			int[] src_keys   = new int[ count ];
+			int[] src_values = new int[ count ];
+			for( int token = -1, i = 0; ( token = src.unsafe_token( token ) ) != -1; i++ ) {
+				src_keys[ i ]   = src.key( token );
+				src_values[ i ] = src.value( token );
+			}
+			
+			keys     = new int[ count ];
+			values   = new int[ count ];
+			_hi_Size = count;
+			
+			offsets = perfect ?
+			          null :
+			          group( src_keys, src_values );
+			seeds   = perfect ?
+			          displace( src_keys, src_values ) :
+			          null;
+		}
+		
+		/**
+		 * Returns the bucket of the key, one of {@code buckets}.
+		 */
+		protected static int bucket( int key, int buckets ) { return reduce( Array.avalanche( key ), buckets ); }
+		
+		/**
+		 * Returns the slot of the key under the given seed, one of {@code slots}.
+		 */
+		protected static int slot( int key, int seed, int slots ) { return reduce( Array.avalanche( key ^ seed * 0x9E37_79B9 ), slots ); }
+		
+		/**
+		 * Maps a well-mixed hash uniformly onto {@code [0, range)} with a multiplication instead of a division.
+		 */
+		private static int reduce( int hash, int range ) { return ( int ) ( ( hash & 0xFFFF_FFFFL ) * range >>> 32 ); }
+		
+		/**
+		 * Places the entries grouped by bucket and returns the bucket offsets.
+		 */
+		private int[] group( int[] src_keys, int[] src_values ) {
+			int   buckets = src_keys.length; // One bucket per entry keeps the runs short
+			int[] offsets = new int[ buckets + 1 ];
+			
+			for( int key : src_keys ) offsets[ bucket( key, buckets ) + 1 ]++;
+			for( int b = 0; b < buckets; b++ ) offsets[ b + 1 ] += offsets[ b ];
+			
+			int[] next = Arrays.copyOf( offsets, buckets );
+			for( int i = 0; i < src_keys.length; i++ ) {
+				int dst = next[ bucket( src_keys[ i ], buckets ) ]++;
+				keys[ dst ]   = src_keys[ i ];
+				values[ dst ] = src_values[ i ];
+			}
+			return offsets;
+		}
+		
+		/**
+		 * Places the entries by a minimal perfect hash and returns the seed of every bucket.
+		 * The largest buckets are placed first, while most slots are still free; every bucket then tries seeds
+		 * {@code 1, 2, ...} until all of its keys land in distinct free slots.
+		 */
+		private int[] displace( int[] src_keys, int[] src_values ) {
+			int   count   = src_keys.length;
+			int   buckets = ( count + LAMBDA - 1 ) / LAMBDA;
+			int[] seeds   = new int[ buckets ];
+			
+			// Group the entry indices by bucket
+			int[] start = new int[ buckets + 1 ];
+			for( int key : src_keys ) start[ bucket( key, buckets ) + 1 ]++;
+			
+			int max = 0;
+			for( int b = 0; b < buckets; b++ ) {
+				max = Math.max( max, start[ b + 1 ] );
+				start[ b + 1 ] += start[ b ];
+			}
+			
+			int[] entries = new int[ count ];
+			int[] next    = Arrays.copyOf( start, buckets );
+			for( int i = 0; i < count; i++ ) entries[ next[ bucket( src_keys[ i ], buckets ) ]++ ] = i;
+			
+			// Order the buckets by descending size
+			int[] by_size = new int[ max + 2 ];
+			for( int b = 0; b < buckets; b++ ) by_size[ max - ( start[ b + 1 ] - start[ b ] ) + 1 ]++;
+			for( int s = 0; s <= max; s++ ) by_size[ s + 1 ] += by_size[ s ];
+			
+			int[] order = new int[ buckets ];
+			for( int b = 0; b < buckets; b++ ) order[ by_size[ max - ( start[ b + 1 ] - start[ b ] ) ]++ ] = b;
+			
+			long[] taken = new long[ count + 63 >>> 6 ];
+			int[]  slots = new int[ max ];
+			
+			for( int b : order ) {
+				int from = start[ b ];
+				int size = start[ b + 1 ] - from;
+				if( size == 0 ) break; // Only empty buckets are left
+				
+				for( int seed = 1; ; seed++ ) {
+					int placed = 0;
+					for( int s; placed < size; slots[ placed++ ] = s ) {
+						s = slot( src_keys[ entries[ from + placed ] ], seed, count );
+						if( ( taken[ s >>> 6 ] & 1L << s ) != 0 ) break;
+						taken[ s >>> 6 ] |= 1L << s;
+					}
+					
+					if( placed == size ) {
+						seeds[ b ] = seed;
+						for( int j = 0; j < size; j++ ) {
+							keys[ slots[ j ] ]   = src_keys[ entries[ from + j ] ];
+							values[ slots[ j ] ] = src_values[ entries[ from + j ] ];
+						}
+						break;
+					}
+					
+					while( 0 < placed ) { // Release the tentative slots
+						int s = slots[ --placed ];
+						taken[ s >>> 6 ] &= ~( 1L << s );
+					}
+				}
+			}
+			return seeds;
+		}
+		
+		@Override
+		public long tokenOf( int key ) {
+			if( _count() == 0 ) return INVALID_TOKEN;
+			
+			if( seeds != null ) {
+				int i = slot( key, seeds[ bucket( key, seeds.length ) ], keys.length );
+				return keys[ i ] == key ?
+				       token( i ) :
+				       INVALID_TOKEN;
+			}
+			
+			int b = bucket( key, offsets.length - 1 );
+			for( int i = offsets[ b ], end = offsets[ b + 1 ]; i < end; i++ )
+				if( keys[ i ] == key ) return token( i );
+			
+			return INVALID_TOKEN;
+		}
+		
+		@Override
+		public int getAll( int[] src, int from, int len, int[] dst, int missingValue ) {
+			int found = 0;
+			for( int end = from + len; from < end; from++ ) {
+				long token = tokenOf( src[ from ] );
+				if( token == INVALID_TOKEN ) dst[ from ] = missingValue;
+				else {
+					dst[ from ] = values[ index( token ) ];
+					found++;
+				}
+			}
+			return found;
+		}
+		
+		@Override
+		public Frozen clone() { return ( Frozen ) super.clone(); }
+	}
+	
+	/**
+	 * A read-write engine for {@link IntIntMap} that keeps its buckets, links, keys and values in native memory outside
+	 * the Java heap, for maps so large that garbage-collector marking and card-table upkeep of their arrays hurt.
+	 * <p>
+	 * The layout and algorithms are those of {@link RW}: prime-sized buckets, the {@code lo}/{@code hi} regions and
+	 * the same token protocol, so iteration order, tokens, {@code toJSON} and the whole {@link R}/{@link RW} API
+	 * behave the same and moving a map off-heap only changes its constructor call:
+	 * <pre>{@code
+	 * try( IntIntMap.OffHeap map = new IntIntMap.OffHeap( 300_000_000 ) ) {
+	 *     ...
+	 * }
+	 * }</pre>
+	 * The arrays are {@link Memory} blocks of direct buffers, which count against {@code -XX:MaxDirectMemorySize}. It
+	 * defaults to the maximum heap size, so a map larger than the heap needs it raised, e.g.
+	 * {@code -XX:MaxDirectMemorySize=16g}. {@link #close()} releases the native memory at once; the map is then empty
+	 * and allocates anew on the next insertion. A resize releases the old arrays as soon as their entries are moved.
+	 * {@link #clone()} copies the native memory, so every clone has to be closed too. The inherited {@code _buckets},
+	 * {@code links}, {@code keys} and {@code values} arrays stay unused.
+	 */
+	class OffHeap extends RW implements AutoCloseable {
+		
+		/**
+		 * The native {@code int} array of 1-based chain heads, {@code capacity} long, or {@code null} if no memory is held.
+		 */
+		protected Memory native_buckets;
+		
+		/**
+		 * The native {@code int} array of {@code lo Region} links, {@code links_capacity} long.
+		 */
+		protected Memory native_links;
+		
+		/**
+		 * The native {@code int} array of keys, {@code capacity} long.
+		 */
+		protected Memory native_keys;
+		
+		/**
+		 * The native {@code int} array of values, {@code capacity} long.
+		 */
+		protected Memory native_values;
+		
+		/**
+		 * The length of the native bucket, key and value arrays.
+		 */
+		protected int capacity;
+		
+		/**
+		 * The length of the native links array.
+		 */
+		protected int links_capacity;
+		
+		/**
+		 * Constructs an empty off-heap map with a default initial capacity.
+		 */
+		public OffHeap() { this( 0 ); }
+		
+		/**
+		 * Constructs an empty off-heap map with the specified initial capacity.
+		 *
+		 * @param capacity The initial capacity.
+		 */
+		public OffHeap( int capacity ) { if( capacity > 0 ) allocate( Array.prime( capacity ) ); }
+		
+		/**
+		 * Allocates empty native arrays of the given capacity, releasing none of the current ones. Invalidates all tokens.
+		 */
+		protected void allocate( int capacity ) {
+			_version++;
+			
+			native_buckets     = Memory.allocate( ( long ) capacity << 2 );
+			native_keys        = Memory.allocate( ( long ) capacity << 2 );
+			native_values      = Memory.allocate( ( long ) capacity << 2 );
+			this.capacity      = capacity;
+			_bucketsMultiplier = Array.modMultiplier( capacity );
+			_lo_Size           = 0;
+			_hi_Size           = 0;
+		}
+		
+		/**
+		 * Releases the native memory. The map is left empty, and allocates anew on the next insertion.
+		 */
+		@Override
+		public void close() {
+			Memory.free( native_buckets );
+			Memory.free( native_links );
+			Memory.free( native_keys );
+			Memory.free( native_values );
+			native_buckets = native_links = native_keys = native_values = null;
+			capacity       = links_capacity = 0;
+			_lo_Size       = 0;
+			_hi_Size       = 0;
+			hasNullKey     = false;
+			_version++;
+		}
+		
+		/**
+		 * Reads and writes the bucket, link, key and value arrays. Every access to the arrays goes through these
+		 * accessors and through {@link #allocate(int)}, {@link #growLinks()}, {@link #resize(int)}, {@link #clear()},
+		 * {@link #trim(int)}, {@link #close()} and {@link #clone()}, which subclasses keeping the arrays elsewhere override.
+		 */
+		protected int head( int bucketIndex ) { return Memory.getInt( native_buckets, bucketIndex ); }
+		
+		protected void head( int bucketIndex, int index ) { Memory.putInt( native_buckets, bucketIndex, index ); }
+		
+		protected int link( int index ) { return Memory.getInt( native_links, index ); }
+		
+		protected void link( int index, int next ) { Memory.putInt( native_links, index, next ); }
+		
+		protected int keyAt( int index ) { return Memory.getInt( native_keys, index ); }
+		
+		protected void keyAt( int index, int key ) { Memory.putInt( native_keys, index, key ); }
+		
+		protected int valueAt( int index ) { return Memory.getInt( native_values, index ); }
+		
+		protected void valueAt( int index, int value ) { Memory.putInt( native_values, index, value ); }
+		
+		@Override
+		protected int bucketIndex( int hash ) { return Array.mod( hash & 0x7FFF_FFFF, _bucketsMultiplier, capacity ); }
+		
+		@Override
+		public int length() { return capacity; }
+		
+		@Override
+		public boolean containsValue( int value ) {
+			if( hasNullKey && nullKeyValue == value ) return true;
+			
+			for( int i = 0; i < _lo_Size; i++ )
+				if( valueAt( i ) == value ) return true;
+			
+			for( int i = capacity - _hi_Size; i < capacity; i++ )
+				if( valueAt( i ) == value ) return true;
+			
+			return false;
+		}
+		
+		@Override
+		public long tokenOf( int key ) {
+			if( capacity == 0 || _count() == 0 ) return INVALID_TOKEN;
+			int index = head( bucketIndex( hash_K.hash( key ) ) ) - 1;
+			if( index < 0 ) return INVALID_TOKEN;
+			
+			for( int collisions = 0; ; ) {
+				if( keyAt( index ) == key ) return token( index );
+				if( _lo_Size <= index ) return INVALID_TOKEN; //terminal node
+				index = link( index );
+				if( _lo_Size < ++collisions ) throw new ConcurrentModificationException( "Concurrent operations not supported." );
+			}
+		}
+		
+		@Override
+		public int getAll( int[] src, int from, int len, int[] dst, int missingValue ) {
+			int found = 0;
+			for( int end = from + len; from < end; from++ ) {
+				long token = tokenOf( src[ from ] );
+				if( token == INVALID_TOKEN ) dst[ from ] = missingValue;
+				else {
+					dst[ from ] = valueAt( index( token ) );
+					found++;
+				}
+			}
+			return found;
+		}
+		
+		@Override
+		public int unsafe_token( final int token ) {
+			if( _count() == 0 ) return -1;
+			int i         = token + 1;
+			int lowest_hi = capacity - _hi_Size;
+			
+			return i < _lo_Size ?
+			       i :
+			       i < lowest_hi ?
+			       _hi_Size == 0 ?
+			       -1 :
+			       lowest_hi :
+			       i < capacity ?
+			       i :
+			       -1;
+		}
+		
+		@Override
+		public Spliterator.OfInt spliterator() { return Array.spliterator( size() - ( hasNullKey() ? 1 : 0 ), this::unsafe_token, this::key ); }
+		
+		@Override
+		public Spliterator.OfInt valuesSpliterator() { return Array.spliterator( size() - ( hasNullKey() ? 1 : 0 ), this::unsafe_token, this::value ); }
+		
+		@Override
+		public void forEach( Consumer action ) {
+			for( int t = -1; ( t = unsafe_token( t ) ) != -1; )
+				action.accept( key( t ), value( t ) );
+		}
+		
+		@Override
+		public void forEachKey( KeyConsumer action ) {
+			for( int t = -1; ( t = unsafe_token( t ) ) != -1; )
+				action.accept( key( t ) );
+		}
+		
+		@Override
+		public void forEachValue( ValueConsumer action ) {
+			for( int t = -1; ( t = unsafe_token( t ) ) != -1; )
+				action.accept( value( t ) );
+		}
+		
+		@Override
+		public boolean forEachWhile( Predicate predicate ) {
+			for( int t = -1; ( t = unsafe_token( t ) ) != -1; )
+				if( !predicate.test( key( t ), value( t ) ) ) return false;
+			return true;
+		}
+		
+		@Override
+		public int key( long token ) { return keyAt( index( token ) ); }
+		
+		@Override
+		public int value( long token ) {
+			return isKeyNull( token ) ?
+			       nullKeyValue :
+			       valueAt( index( token ) );
+		}
+		
+		@Override
+		public void toJSON( JsonWriter json ) {
+			json.preallocate( size() * 10 );
+			json.enterObject();
+			
+			if( hasNullKey ) json.name().value( nullKeyValue );
+			
+			for( int token = -1; ( token = unsafe_token( token ) ) != -1; )
+			     json.name( keyAt( token ) ).value( valueAt( token ) );
+			
+			json.exitObject();
+		}
+		
+		@Override
+		public void hash_K( Array.Hash hash_K ) {
+			this.hash_K = hash_K;
+			if( capacity != 0 ) resize( capacity );
+		}
+		
+		/**
+		 * Allocates the native arrays, or grows them if they are full, ahead of adding a key.
+		 */
+		private void reserve() {
+			if( capacity == 0 ) allocate( 7 );
+			else if( _count() == capacity ) resize( Array.prime( capacity * 2 ) );
+		}
+		
+		/**
+		 * Walks the collision chain of the given bucket looking for the key, as {@code RW} does.
+		 *
+		 * @return The index of the key's entry, or, if the key is absent, the bitwise complement of the number of
+		 *         collisions walked past, to be passed to {@link #insert}.
+		 */
+		private int find( int key, int bucketIndex ) {
+			int index = head( bucketIndex ) - 1;
+			if( index == -1 ) return ~0;
+			
+			for( int collisions = 0; ; ) {
+				if( keyAt( index ) == key ) return index;
+				if( _lo_Size <= index ) return ~collisions;
+				index = link( index );
+				
+				if( _lo_Size + 1 < collisions++ ) throw new ConcurrentModificationException( "Concurrent operations not supported." );
+			}
+		}
+		
+		/**
+		 * Adds an absent key to the given bucket, which must have room for one more entry, as {@code RW} does.
+		 *
+		 * @return The index of the new entry.
+		 */
+		private int insert( int key, int value, int bucketIndex, int collisions ) {
+			int index = head( bucketIndex ) - 1;
+			int dst_index;
+			
+			if( index == -1 )  // Bucket is empty: place new entry in {@code hi Region}
+				dst_index = capacity - 1 - _hi_Size++; // Add to the "bottom" of {@code hi Region}
+			else {
+				if( HashCollisionThreshold < collisions && forceNewHashCodes != null ) {
+					Array.Hash hash = forceNewHashCodes.apply( hash_K );
+					if( hash != hash_K ) {
+						hash_K( hash );
+						return insert( key, value, bucketIndex( hash_K.hash( key ) ), 0 );
+					}
+				}
+				
+				if( links_capacity == ( dst_index = _lo_Size++ ) ) growLinks();
+				link( dst_index, index ); // New entry points to the old head
+			}
+			
+			keyAt( dst_index, key );
+			valueAt( dst_index, value );
+			head( bucketIndex, dst_index + 1 );
+			_version++;
+			return dst_index;
+		}
+		
+		/**
+		 * Grows the native links array for the next {@code lo Region} entry.
+		 */
+		protected void growLinks() {
+			links_capacity = Math.max( 16, Math.min( _lo_Size * 2, capacity ) );
+			native_links   = Memory.reallocate( native_links, ( long ) links_capacity << 2 );
+		}
+		
+		@Override
+		public boolean put( int key, int value ) {
+			reserve();
+			
+			int bucketIndex = bucketIndex( hash_K.hash( key ) );
+			int index       = find( key, bucketIndex );
+			if( index < 0 ) {
+				insert( key, value, bucketIndex, ~index );
+				return true;// Key was new
+			}
+			
+			valueAt( index, value );// Update value
+			_version++;
+			return false;
+		}
+		
+		@Override
+		public int putAll( int[] src_keys, int[] src_values, int from, int len ) {
+			int added = 0;
+			for( int end = from + len; from < end; from++ )
+				if( put( src_keys[ from ], src_values[ from ] ) ) added++;
+			return added;
+		}
+		
+		@Override
+		public boolean putIfAbsent( int key, int value ) {
+			reserve();
+			
+			int bucketIndex = bucketIndex( hash_K.hash( key ) );
+			int index       = find( key, bucketIndex );
+			if( -1 < index ) return false;
+			
+			insert( key, value, bucketIndex, ~index );
+			return true;
+		}
+		
+		@Override
+		public int addTo( int key, int delta ) {
+			reserve();
+			
+			int bucketIndex = bucketIndex( hash_K.hash( key ) );
+			int index       = find( key, bucketIndex );
+			if( index < 0 ) {
+				insert( key, delta, bucketIndex, ~index );
+				return delta;
+			}
+			
+			int value = ( int ) ( valueAt( index ) + delta );
+			valueAt( index, value );
+			_version++;
+			return value;
+		}
+		
+		@Override
+		public int computeIfAbsent( int key, Mapping mapping ) {
+			reserve();
+			
+			int bucketIndex = bucketIndex( hash_K.hash( key ) );
+			int index       = find( key, bucketIndex );
+			if( -1 < index ) return valueAt( index );
+			
+			int version = _version;
+			int value = mapping.apply( key );
+			if( version != _version ) throw new ConcurrentModificationException( "The mapping function modified the map." );
+			
+			insert( key, value, bucketIndex, ~index );
+			return value;
+		}
+		
+		@Override
+		public boolean computeIfPresent( int key, Remapping remapping ) {
+			if( capacity == 0 ) return false;
+			
+			int index = find( key, bucketIndex( hash_K.hash( key ) ) );
+			if( index < 0 ) return false;
+			
+			int version = _version;
+			int value = remapping.apply( key, valueAt( index ) );
+			if( version != _version ) throw new ConcurrentModificationException( "The remapping function modified the map." );
+			
+			valueAt( index, value );
+			_version++;
+			return true;
+		}
+		
+		@Override
+		public int merge( int key, int value, Merging merging ) {
+			reserve();
+			
+			int bucketIndex = bucketIndex( hash_K.hash( key ) );
+			int index       = find( key, bucketIndex );
+			if( index < 0 ) {
+				insert( key, value, bucketIndex, ~index );
+				return value;
+			}
+			
+			int version = _version;
+			int merged = merging.apply( valueAt( index ), value );
+			if( version != _version ) throw new ConcurrentModificationException( "The merging function modified the map." );
+			
+			valueAt( index, merged );
+			_version++;
+			return merged;
+		}
+		
+		/**
+		 * Relocates the entry at {@code src} to {@code dst} within the same region and repoints the bucket or link
+		 * that referenced it, as {@code RW} does when compacting after a removal.
+		 */
+		private void move( int src, int dst ) {
+			if( src == dst ) return;
+			int bucketIndex = bucketIndex( hash_K.hash( keyAt( src ) ) );
+			int index       = head( bucketIndex ) - 1;
+			
+			if( index == src ) head( bucketIndex, dst + 1 );
+			else {
+				while( link( index ) != src )
+					index = link( index );
+				
+				link( index, dst );
+			}
+			if( src < _lo_Size ) link( dst, link( src ) );
+			
+			keyAt( dst, keyAt( src ) );
+			valueAt( dst, valueAt( src ) );
+		}
+		
+		@Override
+		public boolean remove( int key ) {
+			if( _count() == 0 ) return false;
+			int removeBucketIndex = bucketIndex( hash_K.hash( key ) );
+			int removeIndex       = head( removeBucketIndex ) - 1;
+			if( removeIndex < 0 ) return false;
+			
+			if( _lo_Size <= removeIndex ) {// Entry is in {@code hi Region}
+				if( keyAt( removeIndex ) != key ) return false;
+				
+				move( capacity - _hi_Size, removeIndex );
+				_hi_Size--;
+				head( removeBucketIndex, 0 );
+				_version++;
+				return true;
+			}
+			
+			// Entry is in {@code lo Region} (collision chain)
+			int next = link( removeIndex );
+			if( keyAt( removeIndex ) == key ) head( removeBucketIndex, next + 1 );
+			else {
+				int last = removeIndex;
+				if( keyAt( removeIndex = next ) == key )// The key is found at 'SecondNode'
+					if( removeIndex < _lo_Size ) link( last, link( removeIndex ) );
+					else {
+						// 'SecondNode' is the terminal node in the hi Region: it takes the head's entry instead
+						keyAt( removeIndex, keyAt( last ) );
+						valueAt( removeIndex, valueAt( last ) );
+						head( removeBucketIndex, removeIndex + 1 );
+						removeIndex = last;
+					}
+				else if( _lo_Size <= removeIndex ) return false;
+				else
+					for( int collisions = 0; ; ) {
+						int prev = last;
+						
+						if( keyAt( removeIndex = link( last = removeIndex ) ) == key ) {
+							if( removeIndex < _lo_Size ) link( last, link( removeIndex ) );
+							else {
+								keyAt( removeIndex, keyAt( last ) );
+								valueAt( removeIndex, valueAt( last ) );
+								link( prev, removeIndex );
+								removeIndex = last;
+							}
+							break;
+						}
+						if( _lo_Size <= removeIndex ) return false;
+						if( _lo_Size + 1 < collisions++ ) throw new ConcurrentModificationException( "Concurrent operations not supported." );
+					}
+			}
+			
+			move( _lo_Size - 1, removeIndex );
+			_lo_Size--;
+			_version++;
+			return true;
+		}
+		
+		@Override
+		public void clear() {
+			_version++;
+			
+			hasNullKey = false;
+			
+			if( _count() == 0 ) return;
+			Memory.clear( native_buckets, ( long ) capacity << 2 );
+			_lo_Size = 0;
+			_hi_Size = 0;
+		}
+		
+		@Override
+		public int ensureCapacity( int capacity ) {
+			if( capacity <= length() ) return length();
+			if( capacity == 0 ) allocate( capacity );
+			else resize( Array.prime( capacity ) );
+			return length();
+		}
+		
+		@Override
+		public void trim( int capacity ) {
+			if( capacity < _count() ) throw new IllegalArgumentException( "capacity is less than Count." );
+			if( length() <= ( capacity = Array.prime( Math.max( capacity, size() ) ) ) ) return;
+			
+			resize( capacity );
+			
+			if( _lo_Size < links_capacity ) native_links = Memory.reallocate( native_links, ( long ) ( links_capacity = _lo_Size ) << 2 );
+		}
+		
+		/**
+		 * Re-inserts every entry into new native arrays of the given capacity and releases the old ones.
+		 * Invalidates all tokens.
+		 */
+		protected void resize( int capacity ) {
+			Memory old_buckets  = native_buckets;
+			Memory old_keys     = native_keys;
+			Memory old_values   = native_values;
+			int    old_capacity = this.capacity;
+			int    old_lo_Size  = _lo_Size;
+			int    old_hi_Size  = _hi_Size;
+			
+			allocate( capacity );
+			
+			for( int i = 0; i < old_lo_Size; i++ )
+			     copy( Memory.getInt( old_keys, i ), Memory.getInt( old_values, i ) );
+			
+			for( int i = old_capacity - old_hi_Size; i < old_capacity; i++ )
+			     copy( Memory.getInt( old_keys, i ), Memory.getInt( old_values, i ) );
+			
+			Memory.free( old_buckets );
+			Memory.free( old_keys );
+			Memory.free( old_values );
+		}
+		
+		/**
+		 * Places an entry into the arrays during a resize, without checking for an existing key.
+		 */
+		@Override
+		protected void copy( int key, int value ) {
+			int bucketIndex = bucketIndex( hash_K.hash( key ) );
+			int index       = head( bucketIndex ) - 1;
+			int dst_index;
+			
+			if( index == -1 ) dst_index = capacity - 1 - _hi_Size++;
+			else {
+				if( links_capacity == ( dst_index = _lo_Size++ ) ) growLinks();
+				link( dst_index, index );
+			}
+			
+			keyAt( dst_index, key );
+			valueAt( dst_index, value );
+			head( bucketIndex, dst_index + 1 );
+		}
+		
+		/**
+		 * Returns a copy of this map with its own native memory, which has to be closed separately.
+		 */
+		@Override
+		public OffHeap clone() {
+			OffHeap dst = ( OffHeap ) super.clone();
+			dst.native_buckets = Memory.copy( native_buckets, ( long ) capacity << 2 );
+			dst.native_links   = Memory.copy( native_links, ( long ) links_capacity << 2 );
+			dst.native_keys    = Memory.copy( native_keys, ( long ) capacity << 2 );
+			dst.native_values  = Memory.copy( native_values, ( long ) capacity << 2 );
+			return dst;
+		}
+	}
+	
+	/**
+	 * The read side of {@link Persistent} and {@link Transient}: a hash array mapped trie in the compressed (CHAMP) layout.
+	 * <p>
+	 * Every node consumes {@link #BITS} bits of the key hash and keeps two bitmaps over the 32 digits: {@code dataMap}
+	 * marks the digits holding an entry inline, in the node's exact-size primitive {@code keys} and {@code values} arrays,
+	 * and {@code nodeMap} the digits holding a child node. The slot of a digit is the number of lower bits set in its bitmap.
+	 * The hash is a bijective mix of the key, so two keys never share a whole hash and the trie needs no collision nodes.
+	 * A child always holds at least two entries: a removal that leaves one pulls it up into the parent.
+	 * <p>
+	 * Nodes are never modified once shared, so a new version made by {@code put} or {@code remove} copies only the
+	 * nodes on the path to the key, about {@code log32( size )} of them, and shares all the others.
+	 *
+	 * <h3>Tokens</h3>
+	 * A token encodes the position of its entry in the iteration order: the entries of a node first, then the entries
+	 * below its children, digit by digit. Every node records the number of entries below it, so {@link #tokenOf},
+	 * {@link #key} and {@link #value} find a position in {@code O( log32( size ) )} steps, and so does every step of an
+	 * iteration by tokens. {@code toJSON} and {@code containsValue} walk the trie directly.
+	 */
+	abstract class Trie extends R {
+		
+		/**
+		 * The number of hash bits consumed per trie level.
+		 */
+		protected static final int BITS = 5;
+		
+		/**
+		 * A trie node. It is only modified in place by the {@link Transient} edit session that created it.
+		 */
+		protected static final class Node {
+			int    dataMap;
+			int    nodeMap;
+			int[]  keys;
+			int[]  values;
+			Node[] nodes;
+			/**
+			 * The number of entries in this node and below it.
+			 */
+			int    size;
+			/**
+			 * The edit session of the {@link Transient} that created this node and may modify it in place, or {@code null}.
+			 */
+			final Object owner;
+			
+			Node( int dataMap, int nodeMap, int[] keys, int[] values, Node[] nodes, int size, Object owner ) {
+				this.dataMap = dataMap;
+				this.nodeMap = nodeMap;
+				this.keys    = keys;
+				this.values  = values;
+				this.nodes   = nodes;
+				this.size    = size;
+				this.owner   = owner;
+			}
+		}
+		
+		protected static final Node[] NO_NODES = new Node[ 0 ];
+		
+		/**
+		 * The root of an empty map.
+		 */
+		protected static final Node EMPTY = new Node( 0, 0, Array.EqualHashOf._ints.O, Array.EqualHashOf._ints.O, NO_NODES, 0, null );
+		
+		/**
+		 * The root node.
+		 */
+		protected Node root = EMPTY;
+		
+		/**
+		 * Mixes the key into the hash that selects its path. The mix is bijective, so distinct keys never collide.
+		 */
+		protected static int hash( int key ) { return Array.avalanche( key ); }
+		
+		/**
+		 * Returns the bit of the hash digit at the given level shift.
+		 */
+		protected static int bit( int hash, int shift ) { return 1 << ( hash >>> shift & 31 ); }
+		
+		/**
+		 * Returns the slot of the bit in the bitmap: the number of lower bits set.
+		 */
+		protected static int slot( int map, int bit ) { return Integer.bitCount( map & bit - 1 ); }
+		
+		@Override
+		protected int _count() { return root.size; }
+		
+		@Override
+		public int length() { return root.size; }
+		
+		@Override
+		public boolean containsValue( int value ) { return hasNullKey && nullKeyValue == value || containsValue( root, value ); }
+		
+		private static boolean containsValue( Node node, int value ) {
+			for( int v : node.values )
+				if( v == value ) return true;
+			for( Node child : node.nodes )
+				if( containsValue( child, value ) ) return true;
+			return false;
+		}
+		
+		@Override
+		public long tokenOf( int key ) {
+			int  hash     = hash( key );
+			int  position = 0;
+			Node node     = root;
+			for( int shift = 0; ; shift += BITS ) {
+				int bit = bit( hash, shift );
+				if( ( node.dataMap & bit ) != 0 ) {
+					int i = slot( node.dataMap, bit );
+					return node.keys[ i ] == key ?
+					       token( position + i ) :
+					       INVALID_TOKEN;
+				}
+				if( ( node.nodeMap & bit ) == 0 ) return INVALID_TOKEN;
+				
+				position += node.keys.length;
+				int j = slot( node.nodeMap, bit );
+				for( int c = 0; c < j; c++ ) position += node.nodes[ c ].size;
+				node = node.nodes[ j ];
+			}
+		}
+		
+		@Override
+		public int getOrDefault( int key, int defaultValue ) {
+			int  hash = hash( key );
+			Node node = root;
+			for( int shift = 0; ; shift += BITS ) {
+				int bit = bit( hash, shift );
+				if( ( node.dataMap & bit ) != 0 ) {
+					int i = slot( node.dataMap, bit );
+					return node.keys[ i ] == key ?
+					       node.values[ i ] :
+					       defaultValue;
+				}
+				if( ( node.nodeMap & bit ) == 0 ) return defaultValue;
+				node = node.nodes[ slot( node.nodeMap, bit ) ];
+			}
+		}
+		
+		@Override
+		public int getAll( int[] src, int from, int len, int[] dst, int missingValue ) {
+			int found = 0;
+			for( int end = from + len; from < end; from++ ) {
+				long token = tokenOf( src[ from ] );
+				if( token == INVALID_TOKEN ) dst[ from ] = missingValue;
+				else {
+					dst[ from ] = value( token );
+					found++;
+				}
+			}
+			return found;
+		}
+		
+		/**
+		 * Returns the index of the next entry in the iteration order: the position after the given one.
+		 *
+		 * @param token The current position (or -1 to start from the beginning).
+		 * @return The next position, or -1 if no more non-null entries.
+		 */
+		@Override
+		public int unsafe_token( int token ) {
+			return token + 1 < root.size ?
+			       token + 1 :
+			       -1;
+		}
+		
+		@Override
+		public Spliterator.OfInt spliterator() { return Array.spliterator( size() - ( hasNullKey() ? 1 : 0 ), this::unsafe_token, this::key ); }
+		
+		@Override
+		public Spliterator.OfInt valuesSpliterator() { return Array.spliterator( size() - ( hasNullKey() ? 1 : 0 ), this::unsafe_token, this::value ); }
+		
+		@Override
+		public void forEach( Consumer action ) {
+			for( int t = -1; ( t = unsafe_token( t ) ) != -1; )
+				action.accept( key( t ), value( t ) );
+		}
+		
+		@Override
+		public void forEachKey( KeyConsumer action ) {
+			for( int t = -1; ( t = unsafe_token( t ) ) != -1; )
+				action.accept( key( t ) );
+		}
+		
+		@Override
+		public void forEachValue( ValueConsumer action ) {
+			for( int t = -1; ( t = unsafe_token( t ) ) != -1; )
+				action.accept( value( t ) );
+		}
+		
+		@Override
+		public boolean forEachWhile( Predicate predicate ) {
+			for( int t = -1; ( t = unsafe_token( t ) ) != -1; )
+				if( !predicate.test( key( t ), value( t ) ) ) return false;
+			return true;
+		}
+		
+		@Override
+		public int key( long token ) { return at( index( token ), true ); }
+		
+		@Override
+		public int value( long token ) {
+			return isKeyNull( token ) ?
+			       nullKeyValue :
+			       at( index( token ), false );
+		}
+		
+		/**
+		 * Returns the key or the value of the entry at the given position in the iteration order.
+		 */
+		private int at( int position, boolean key ) {
+			for( Node node = root; ; ) {
+				if( position < node.keys.length ) return key ?
+				                                         node.keys[ position ] :
+				                                         node.values[ position ];
+				position -= node.keys.length;
+				
+				Node[] nodes = node.nodes;
+				int    c     = 0;
+				while( nodes[ c ].size <= position ) position -= nodes[ c++ ].size;
+				node = nodes[ c ];
+			}
+		}
+		
+		@Override
+		public void toJSON( JsonWriter json ) {
+			json.preallocate( size() * 10 );
+			json.enterObject();
+			
+			if( hasNullKey ) json.name().value( nullKeyValue );
+			toJSON( root, json );
+			
+			json.exitObject();
+		}
+		
+		private static void toJSON( Node node, JsonWriter json ) {
+			for( int i = 0; i < node.keys.length; i++ ) json.name( node.keys[ i ] ).value( node.values[ i ] );
+			for( Node child : node.nodes ) toJSON( child, json );
+		}
+		
+		/**
+		 * Associates the value with the key below {@code node}, copying the nodes on the path that {@code owner} does not own.
+		 *
+		 * @return The node replacing {@code node}: {@code node} itself if nothing changed or it was modified in place.
+		 */
+		protected static Node put( Node node, int key, int value, int hash, int shift, Object owner ) {
+			int bit = bit( hash, shift );
+			
+			if( ( node.dataMap & bit ) != 0 ) {
+				int i = slot( node.dataMap, bit );
+				int k = node.keys[ i ];
+				
+				if( k == key ) {
+					if( node.values[ i ] == value ) return node;
+					Node dst = owned( node, owner ) ?
+					           node :
+					           new Node( node.dataMap, node.nodeMap, node.keys, node.values.clone(), owner == null ?
+					                                                                                 node.nodes :
+					                                                                                 node.nodes.clone(), node.size, owner );
+					dst.values[ i ] = value;
+					return dst;
+				}
+				
+				// The digit is taken by another key: push both down into a new child
+				Node child = pair( k, node.values[ i ], hash( k ), key, value, hash, shift + BITS, owner );
+				return set( node, owner, node.dataMap ^ bit, node.nodeMap | bit,
+				            remove( node.keys, i ), remove( node.values, i ),
+				            insert( node.nodes, slot( node.nodeMap, bit ), child ), node.size + 1 );
+			}
+			
+			if( ( node.nodeMap & bit ) != 0 ) {
+				int  j     = slot( node.nodeMap, bit );
+				Node child = node.nodes[ j ];
+				int  size  = child.size;
+				Node sub   = put( child, key, value, hash, shift + BITS, owner );
+				if( sub == child && sub.size == size ) return node;
+				
+				Node dst = owned( node, owner ) ?
+				           node :
+				           new Node( node.dataMap, node.nodeMap, node.keys, owner == null ?
+				                                                            node.values :
+				                                                            node.values.clone(), node.nodes.clone(), node.size, owner );
+				dst.nodes[ j ] = sub;
+				dst.size += sub.size - size;
+				return dst;
+			}
+			
+			int i = slot( node.dataMap, bit );
+			return set( node, owner, node.dataMap | bit, node.nodeMap,
+			            insert( node.keys, i, key ), insert( node.values, i, value ), node.nodes, node.size + 1 );
+		}
+		
+		/**
+		 * Removes the key below {@code node}, copying the nodes on the path that {@code owner} does not own.
+		 *
+		 * @return The node replacing {@code node}: {@code node} itself if the key is absent or it was modified in place.
+		 */
+		protected static Node remove( Node node, int key, int hash, int shift, Object owner ) {
+			int bit = bit( hash, shift );
+			
+			if( ( node.dataMap & bit ) != 0 ) {
+				int i = slot( node.dataMap, bit );
+				if( node.keys[ i ] != key ) return node;
+				return set( node, owner, node.dataMap ^ bit, node.nodeMap,
+				            remove( node.keys, i ), remove( node.values, i ), node.nodes, node.size - 1 );
+			}
+			
+			if( ( node.nodeMap & bit ) == 0 ) return node;
+			
+			int  j     = slot( node.nodeMap, bit );
+			Node child = node.nodes[ j ];
+			int  size  = child.size;
+			Node sub   = remove( child, key, hash, shift + BITS, owner );
+			if( sub == child && sub.size == size ) return node;
+			
+			if( sub.size == 1 ) { // pull the last entry of the child up into this node
+				int i = slot( node.dataMap, bit );
+				return set( node, owner, node.dataMap | bit, node.nodeMap ^ bit,
+				            insert( node.keys, i, sub.keys[ 0 ] ), insert( node.values, i, sub.values[ 0 ] ),
+				            remove( node.nodes, j ), node.size - 1 );
+			}
+			
+			Node dst = owned( node, owner ) ?
+			           node :
+			           new Node( node.dataMap, node.nodeMap, node.keys, owner == null ?
+			                                                            node.values :
+			                                                            node.values.clone(), node.nodes.clone(), node.size, owner );
+			dst.nodes[ j ] = sub;
+			dst.size--;
+			return dst;
+		}
+		
+		/**
+		 * Returns a node holding the two entries, nested as deep as their hashes share digits.
+		 */
+		private static Node pair( int key1, int value1, int hash1, int key2, int value2, int hash2, int shift, Object owner ) {
+			int bit1 = bit( hash1, shift );
+			int bit2 = bit( hash2, shift );
+			
+			if( bit1 == bit2 ) return new Node( 0, bit1, Array.EqualHashOf._ints.O, Array.EqualHashOf._ints.O,
+			                                    new Node[]{ pair( key1, value1, hash1, key2, value2, hash2, shift + BITS, owner ) }, 2, owner );
+			
+			return Integer.compareUnsigned( bit1, bit2 ) < 0 ?
+			       new Node( bit1 | bit2, 0, new int[]{ key1, key2 }, new int[]{ value1, value2 }, NO_NODES, 2, owner ) :
+			       new Node( bit1 | bit2, 0, new int[]{ key2, key1 }, new int[]{ value2, value1 }, NO_NODES, 2, owner );
+		}
+		
+		private static boolean owned( Node node, Object owner ) { return owner != null && node.owner == owner; }
+		
+		/**
+		 * Updates {@code node} in place if {@code owner} owns it, otherwise returns a new node with the given content.
+		 * <p>
+		 * A node owned by an edit session never shares its {@code values} and {@code nodes} arrays, which the session
+		 * modifies in place; its {@code keys} are only ever replaced, so they may be shared.
+		 */
+		private static Node set( Node node, Object owner, int dataMap, int nodeMap, int[] keys, int[] values, Node[] nodes, int size ) {
+			if( !owned( node, owner ) ) {
+				if( owner != null ) { // the values and nodes of an owned node are its own, to be modified in place
+					if( values == node.values ) values = values.clone();
+					if( nodes == node.nodes ) nodes = nodes.clone();
+				}
+				return new Node( dataMap, nodeMap, keys, values, nodes, size, owner );
+			}
+			node.dataMap = dataMap;
+			node.nodeMap = nodeMap;
+			node.keys    = keys;
+			node.values  = values;
+			node.nodes   = nodes;
+			node.size    = size;
+			return node;
+		}
+		
+		private static int[] insert( int[] src, int i, int value ) {
+			int[] dst = new int[ src.length + 1 ];
+			System.arraycopy( src, 0, dst, 0, i );
+			dst[ i ] = value;
+			System.arraycopy( src, i, dst, i + 1, src.length - i );
+			return dst;
+		}
+		
+		private static int[] remove( int[] src, int i ) {
+			if( src.length == 1 ) return Array.EqualHashOf._ints.O;
+			int[] dst = new int[ src.length - 1 ];
+			System.arraycopy( src, 0, dst, 0, i );
+			System.arraycopy( src, i + 1, dst, i, dst.length - i );
+			return dst;
+		}
+		
+		private static Node[] insert( Node[] src, int i, Node node ) {
+			Node[] dst = new Node[ src.length + 1 ];
+			System.arraycopy( src, 0, dst, 0, i );
+			dst[ i ] = node;
+			System.arraycopy( src, i, dst, i + 1, src.length - i );
+			return dst;
+		}
+		
+		private static Node[] remove( Node[] src, int i ) {
+			if( src.length == 1 ) return NO_NODES;
+			Node[] dst = new Node[ src.length - 1 ];
+			System.arraycopy( src, 0, dst, 0, i );
+			System.arraycopy( src, i + 1, dst, i, dst.length - i );
+			return dst;
+		}
+	}
+	
+	/**
+	 * An immutable, persistent map: {@code put} and {@code remove} leave it unchanged and return a new version that
+	 * shares all but {@code O( log32( size ) )} nodes with it, so taking a snapshot costs nothing and keeping many
+	 * versions costs only their differences. It is the structure for read transactions that need snapshot isolation
+	 * from a map that keeps changing:
+	 * <pre>{@code
+	 * volatile IntIntMap.Persistent config = new IntIntMap.Persistent();
+	 *
+	 * IntIntMap.Persistent snapshot = config;     // a read transaction: a reference copy, no cloning
+	 * config = config.put( key, value );          // an update: the snapshot stays unchanged
+	 * }</pre>
+	 * Bulk updates go through a {@link Transient}, from {@link #edit()}, which modifies in place the nodes it has
+	 * already copied, then seals them into a new version with {@link Transient#persistent()}.
+	 * <p>
+	 * Once safely published, a version may be read by any number of threads without synchronization. Its tokens never
+	 * expire; tokens of another version are rejected only if it has a different version number.
+	 */
+	class Persistent extends Trie {
+		
+		/**
+		 * Constructs an empty map.
+		 */
+		public Persistent() { }
+		
+		/**
+		 * Constructs a persistent copy of the given map.
+		 *
+		 * @param src The map to copy.
+		 */
+		public Persistent( R src ) {
+			Transient dst = new Transient();
+			for( int token = -1; ( token = src.unsafe_token( token ) ) != -1; ) dst.put( src.key( src.token( token ) ), src.value( src.token( token ) ) );
+			root         = dst.root;
+			hasNullKey   = src.hasNullKey;
+			nullKeyValue = src.nullKeyValue;
+		}
+		
+		Persistent( Node root, boolean hasNullKey, int nullKeyValue, int version ) {
+			this.root         = root;
+			this.hasNullKey   = hasNullKey;
+			this.nullKeyValue = nullKeyValue;
+			_version          = version;
+		}
+		
+		/**
+		 * Returns a version of this map with the specified value associated with the specified boxed key.
+		 * If the key is {@code null}, the null key mapping is updated or added.
+		 *
+		 * @param key   The key with which the specified value is to be associated.
+		 * @param value The value to be associated with the specified key.
+		 * @return The new version, or this map if it already holds the mapping.
+		 */
+		public Persistent put(  Integer key, int value ) {
+			return key == null ?
+			       put( value ) :
+			       put( ( int ) ( key + 0 ), value );
+		}
+		
+		/**
+		 * Returns a version of this map with the specified value associated with the {@code null} key.
+		 *
+		 * @param value The value to be associated with the null key.
+		 * @return The new version, or this map if it already holds the mapping.
+		 */
+		public Persistent put( int value ) {
+			return hasNullKey && nullKeyValue == value ?
+			       this :
+			       new Persistent( root, true, value, _version + 1 );
+		}
+		
+		/**
+		 * Returns a version of this map with the specified value associated with the specified primitive key.
+		 *
+		 * @param key   The key with which the specified value is to be associated.
+		 * @param value The value to be associated with the specified key.
+		 * @return The new version, or this map if it already holds the mapping.
+		 */
+		public Persistent put( int key, int value ) {
+			Node root = put( this.root, key, value, hash( key ), 0, null );
+			return root == this.root ?
+			       this :
+			       new Persistent( root, hasNullKey, nullKeyValue, _version + 1 );
+		}
+		
+		/**
+		 * Returns a version of this map with the keys of the given range associated with the values at the same indices,
+		 * built in one {@link Transient} edit session.
+		 *
+		 * @param src_keys   The keys.
+		 * @param src_values The values, at the indices of their keys.
+		 * @param from       The index of the first entry.
+		 * @param len        The number of entries.
+		 * @return The new version, or this map if it already holds every mapping.
+		 */
+		public Persistent putAll( int[] src_keys, int[] src_values, int from, int len ) {
+			Transient dst = edit();
+			for( int end = from + len; from < end; from++ ) dst.put( src_keys[ from ], src_values[ from ] );
+			return dst.root == root ?
+			       this :
+			       dst.persistent();
+		}
+		
+		/**
+		 * Returns a version of this map without the mapping for the specified boxed key.
+		 * If the key is {@code null}, the null key mapping is removed.
+		 *
+		 * @param key The key whose mapping is to be removed.
+		 * @return The new version, or this map if the key is absent.
+		 */
+		public Persistent remove(  Integer key ) {
+			return key == null ?
+			       removeNullKey() :
+			       remove( ( int ) ( key + 0 ) );
+		}
+		
+		/**
+		 * Returns a version of this map without the mapping for the {@code null} key.
+		 *
+		 * @return The new version, or this map if the null key is absent.
+		 */
+		public Persistent removeNullKey() {
+			return hasNullKey ?
+			       new Persistent( root, false, ( int ) 0, _version + 1 ) :
+			       this;
+		}
+		
+		/**
+		 * Returns a version of this map without the mapping for the specified primitive key.
+		 *
+		 * @param key The key whose mapping is to be removed.
+		 * @return The new version, or this map if the key is absent.
+		 */
+		public Persistent remove( int key ) {
+			Node root = remove( this.root, key, hash( key ), 0, null );
+			return root == this.root ?
+			       this :
+			       new Persistent( root, hasNullKey, nullKeyValue, _version + 1 );
+		}
+		
+		/**
+		 * Starts a batch edit of this map. This map itself stays unchanged.
+		 *
+		 * @return A {@link Transient} holding the mappings of this map.
+		 */
+		public Transient edit() { return new Transient( this ); }
+		
+		/**
+		 * Returns a copy sharing every node with this map, which is as good as this map itself.
+		 */
+		@Override
+		public Persistent clone() { return ( Persistent ) super.clone(); }
+	}
+	
+	/**
+	 * A mutable map over the trie of a {@link Persistent}, for bulk updates. It copies a shared node the first time it
+	 * modifies it and modifies its own copies in place afterwards, so a batch of {@code n} updates allocates about
+	 * {@code n} nodes instead of {@code n * log32( size )}. {@link #persistent()} returns the edited mappings as a
+	 * new version; the edit may go on afterwards, copying the nodes it now shares with that version anew.
+	 * <p>
+	 * A transient is not thread-safe. It implements the whole {@link R} read API.
+	 */
+	class Transient extends Trie {
+		
+		/**
+		 * The identity of the current edit session: the nodes it has copied, which it may modify in place, carry it.
+		 */
+		private Object owner = new Object();
+		
+		/**
+		 * Constructs an empty map.
+		 */
+		public Transient() { }
+		
+		/**
+		 * Constructs a mutable map starting from the mappings of the given version.
+		 *
+		 * @param src The version to edit.
+		 */
+		public Transient( Persistent src ) {
+			root         = src.root;
+			hasNullKey   = src.hasNullKey;
+			nullKeyValue = src.nullKeyValue;
+			_version     = src._version;
+		}
+		
+		/**
+		 * Associates the specified value with the specified boxed key in this map.
+		 * If the key is {@code null}, the null key mapping is updated or added.
+		 *
+		 * @param key   The key with which the specified value is to be associated.
+		 * @param value The value to be associated with the specified key.
+		 * @return {@code true} if a new key was added, {@code false} if an existing key's value was updated.
+		 */
+		public boolean put(  Integer key, int value ) {
+			return key == null ?
+			       put( value ) :
+			       put( ( int ) ( key + 0 ), value );
+		}
+		
+		/**
+		 * Associates the specified value with the {@code null} key in this map.
+		 *
+		 * @param value The value to be associated with the null key.
+		 * @return {@code true} if the null key mapping was added, {@code false} if its value was updated.
+		 */
+		public boolean put( int value ) {
+			boolean ret = !hasNullKey;
+			hasNullKey   = true;
+			nullKeyValue = value;
+			_version++;
+			return ret;
+		}
+		
+		/**
+		 * Associates the specified value with the specified primitive key in this map.
+		 *
+		 * @param key   The key with which the specified value is to be associated.
+		 * @param value The value to be associated with the specified key.
+		 * @return {@code true} if a new key was added, {@code false} if an existing key's value was updated.
+		 */
+		public boolean put( int key, int value ) {
+			int size = root.size;
+			root = put( root, key, value, hash( key ), 0, owner );
+			_version++;
+			return size < root.size;
+		}
+		
+		/**
+		 * Removes the mapping for the specified boxed key from this map if present.
+		 * If the key is {@code null}, the null key mapping is removed.
+		 *
+		 * @param key The key whose mapping is to be removed from the map.
+		 * @return {@code true} if the map contained a mapping for the specified key.
+		 */
+		public boolean remove(  Integer key ) {
+			return key == null ?
+			       removeNullKey() :
+			       remove( ( int ) ( key + 0 ) );
+		}
+		
+		/**
+		 * Removes the mapping for the {@code null} key from this map if present.
+		 *
+		 * @return {@code true} if the null key mapping was present and removed.
+		 */
+		public boolean removeNullKey() {
+			if( !hasNullKey ) return false;
+			hasNullKey = false;
+			_version++;
+			return true;
+		}
+		
+		/**
+		 * Removes the mapping for the specified primitive key from this map if present.
+		 *
+		 * @param key The primitive key whose mapping is to be removed from the map.
+		 * @return {@code true} if the map contained a mapping for the specified key.
+		 */
+		public boolean remove( int key ) {
+			int size = root.size;
+			root = remove( root, key, hash( key ), 0, owner );
+			if( root.size == size ) return false;
+			if( root.size == 0 ) root = EMPTY;
+			_version++;
+			return true;
+		}
+		
+		/**
+		 * Removes all of the mappings from this map.
+		 */
+		public void clear() {
+			_version++;
+			hasNullKey = false;
+			root       = EMPTY;
+		}
+		
+		/**
+		 * Returns the current mappings as a new persistent version. Later edits do not affect it.
+		 *
+		 * @return The new version.
+		 */
+		public Persistent persistent() {
+			owner = new Object(); // the nodes copied so far are shared with the version from now on
+			return new Persistent( root, hasNullKey, nullKeyValue, ++_version );
+		}
+		
+		/**
+		 * Returns an independent copy. Both maps copy the nodes they share anew before modifying them.
+		 */
+		@Override
+		public Transient clone() {
+			Transient dst = ( Transient ) super.clone();
+			owner     = new Object();
+			dst.owner = new Object();
+			return dst;
+		}
+	}
 }
\ No newline at end of file
@@ -0,0 +1,817 @@
+// Copyright 2025 Chikirev Sirguy, Unirail Group
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+// For inquiries, please contact: al8v5C6HU4UtqE9@gmail.com
+// GitHub Repository: https://github.com/AdHoc-Protocol
+package org.unirail.collections;
+
+import org.unirail.JsonWriter;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Spliterator;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+
+/**
+ * A multimap from primitive keys to sequences of primitive values, for 1:N relationships such as
+ * order&rarr;fills or node&rarr;edges, without a list object per key.
+ * <p>
+ * All values live in one {@code values} array. Each key owns a slab of it: a run that starts at
+ * {@code starts[ slot ]}, holds {@code sizes[ slot ]} values in insertion order and has room for
+ * {@code capacities[ slot ]}. The keys are numbered by dense slots through an {@link IntIntMap.RW} index.
+ *
+ * <h3>Building and compacting:</h3>
+ * <ul>
+ * <li>A key starts with a small slab. A full slab is extended in place if it is the last one, otherwise moved,
+ *     with double the room, to the end of the used part of {@code values}; the space it leaves is dead.</li>
+ * <li>When {@code values} is full and at least half of it is dead, the slabs are packed together in slot order
+ *     instead of growing the array.</li>
+ * <li>{@link RW#compact()} packs the slabs without any spare room, which gives the compressed sparse row (CSR)
+ *     layout: the values of slot {@code s} are {@code values[ starts[ s ] ]} up to {@code values[ starts[ s + 1 ] - 1 ]}.</li>
+ * <li>{@link RW#RW(IntList.R, IntList.R)} builds that layout directly from parallel key and value lists with
+ *     a counting sort, in two passes and with no slab moves.</li>
+ * </ul>
+ *
+ * <h3>Access:</h3>
+ * {@link R#valuesOf(int)} returns the values of a key as a range of indices into {@link R#array()}, packed into a
+ * {@code long} and unpacked with {@link R#from(long)} and {@link R#to(long)}:
+ * <pre>{@code
+ * long range = fills.valuesOf( orderId );
+ * for( int i = IntIntMultiMap.R.from( range ), end = IntIntMultiMap.R.to( range ); i < end; i++ ) process( fills.value( i ) );
+ * }</pre>
+ * The keys are iterated with tokens, as in the maps of this package, and {@link R#valuesOf(long)} gives the range of a key token.
+ * Ranges are valid until the next modification.
+ */
+public interface IntIntMultiMap {
+	
+	/**
+	 * Receives the pairs visited by {@link R#forEach(Consumer)}.
+	 */
+	@FunctionalInterface
+	interface Consumer {
+		void accept( int key, int value );
+	}
+	
+	/**
+	 * Tests the pairs visited by {@link R#forEachWhile(Predicate)}.
+	 */
+	@FunctionalInterface
+	interface Predicate {
+		boolean test( int key, int value );
+	}
+	
+	/**
+	 * Receives the keys visited by {@link R#forEachKey(KeyConsumer)}.
+	 */
+	@FunctionalInterface
+	interface KeyConsumer {
+		void accept( int key );
+	}
+	
+	/**
+	 * Receives the values visited by {@link R#forEachValue(ValueConsumer)}.
+	 */
+	@FunctionalInterface
+	interface ValueConsumer {
+		void accept( int value );
+	}
+	
+	
+	abstract class R implements Cloneable, JsonWriter.Source {
+		
+		/**
+		 * Maps every key to its slot.
+		 */
+		protected IntIntMap.RW index = new IntIntMap.RW();
+		
+		/**
+		 * The key of each slot.
+		 */
+		protected int[] keys       = Array.EqualHashOf._ints.O;
+		/**
+		 * The index in {@code values} where the slab of each slot starts.
+		 */
+		protected int[] starts     = Array.EqualHashOf._ints.O;
+		/**
+		 * The number of values of each slot.
+		 */
+		protected int[] sizes      = Array.EqualHashOf._ints.O;
+		/**
+		 * The number of values the slab of each slot has room for.
+		 */
+		protected int[] capacities = Array.EqualHashOf._ints.O;
+		/**
+		 * The number of keys, which occupy slots {@code 0} to {@code slots - 1}.
+		 */
+		protected int   slots;
+		
+		/**
+		 * The slabs of all keys.
+		 */
+		protected int[] values = Array.EqualHashOf._ints.O;
+		/**
+		 * The end of the used part of {@code values}: new slabs are placed from here.
+		 */
+		protected int   end;
+		/**
+		 * The number of elements of {@code values} below {@code end} that no slab covers.
+		 */
+		protected int   dead;
+		
+		/**
+		 * The total number of values.
+		 */
+		protected int _count;
+		
+		/**
+		 * The current version of the multimap, incremented on modifications.
+		 * Used to detect concurrent modifications during iteration.
+		 */
+		protected int _version;
+		
+		/**
+		 * The bit shift used to encode the multimap's version into a token.
+		 */
+		protected static final int VERSION_SHIFT = 32;
+		
+		/**
+		 * A special token value indicating that a key was not found or no more elements exist.
+		 */
+		public static final long INVALID_TOKEN = -1L;
+		
+		/**
+		 * The range of an absent key: empty.
+		 */
+		public static final long EMPTY_RANGE = 0L;
+		
+		/**
+		 * Returns {@code true} if this multimap contains no keys.
+		 *
+		 * @return {@code true} if this multimap contains no keys
+		 */
+		public boolean isEmpty() { return slots == 0; }
+		
+		/**
+		 * Returns the total number of values of all keys.
+		 *
+		 * @return the number of key-value pairs
+		 */
+		public int size() { return _count; }
+		
+		/**
+		 * Returns the number of distinct keys.
+		 *
+		 * @return the number of keys
+		 */
+		public int keysCount() { return slots; }
+		
+		/**
+		 * Returns the length of the values array, used and unused.
+		 *
+		 * @return the capacity for values
+		 */
+		public int length() { return values.length; }
+		
+		/**
+		 * Provides direct access to the values array, which the ranges of {@link #valuesOf(int)} index.
+		 * <p>
+		 * Warning: Modifying this array directly may corrupt the multimap's state and should be avoided.
+		 *
+		 * @return The values array.
+		 */
+		public int[] array() { return values; }
+		
+		/**
+		 * Returns {@code true} if this multimap has values for the specified key.
+		 *
+		 * @param key The key whose presence is to be tested.
+		 * @return {@code true} if the key is present.
+		 */
+		public boolean containsKey( int key ) { return index.containsKey( key ); }
+		
+		/**
+		 * Returns {@code true} if the specified key has the specified value.
+		 *
+		 * @param key   The key.
+		 * @param value The value to look for among the values of the key.
+		 * @return {@code true} if the key has the value.
+		 */
+		public boolean contains( int key, int value ) {
+			int slot = index.getOrDefault( key, -1 );
+			return slot != -1 && -1 < Array.indexOf( values, value, starts[ slot ], starts[ slot ] + sizes[ slot ] );
+		}
+		
+		/**
+		 * Returns the number of values of the specified key.
+		 *
+		 * @param key The key.
+		 * @return The number of values, 0 if the key is absent.
+		 */
+		public int count( int key ) {
+			int slot = index.getOrDefault( key, -1 );
+			return slot == -1 ?
+			       0 :
+			       sizes[ slot ];
+		}
+		
+		/**
+		 * Returns the values of the specified key as a range of indices into {@link #array()}, in insertion order.
+		 * The range is valid until the next modification.
+		 *
+		 * @param key The key.
+		 * @return The range, to be unpacked with {@link #from(long)} and {@link #to(long)}; {@link #EMPTY_RANGE} if the key is absent.
+		 */
+		public long valuesOf( int key ) {
+			int slot = index.getOrDefault( key, -1 );
+			return slot == -1 ?
+			       EMPTY_RANGE :
+			       range( slot );
+		}
+		
+		/**
+		 * Copies the values of the specified key into {@code dst}.
+		 *
+		 * @param key       The key.
+		 * @param dst       The destination array.
+		 * @param dst_index The index in {@code dst} of the first value.
+		 * @return The number of values copied: all values of the key, or as many as fit.
+		 */
+		public int valuesOf( int key, int[] dst, int dst_index ) {
+			int slot = index.getOrDefault( key, -1 );
+			if( slot == -1 ) return 0;
+			int len = Math.min( sizes[ slot ], dst.length - dst_index );
+			System.arraycopy( values, starts[ slot ], dst, dst_index, len );
+			return len;
+		}
+		
+		/**
+		 * Returns the values of the key of the given token as a range of indices into {@link #array()}.
+		 *
+		 * @param token The token of a key.
+		 * @return The range, to be unpacked with {@link #from(long)} and {@link #to(long)}.
+		 * @throws ConcurrentModificationException If the multimap has been modified since the token was acquired.
+		 */
+		public long valuesOf( long token ) {
+			if( version( token ) != _version ) throw new ConcurrentModificationException( "Concurrent operations not supported." );
+			return range( index( token ) );
+		}
+		
+		protected long range( int slot ) { return ( long ) starts[ slot ] << 32 | starts[ slot ] + sizes[ slot ]; }
+		
+		/**
+		 * Returns the first index of a range.
+		 *
+		 * @param range A range returned by {@code valuesOf}.
+		 * @return The index of the first value.
+		 */
+		public static int from( long range ) { return ( int ) ( range >>> 32 ); }
+		
+		/**
+		 * Returns the index after the last index of a range.
+		 *
+		 * @param range A range returned by {@code valuesOf}.
+		 * @return The index past the last value.
+		 */
+		public static int to( long range ) { return ( int ) range; }
+		
+		/**
+		 * Returns the value at the given index of {@link #array()}.
+		 *
+		 * @param index An index within a range returned by {@code valuesOf}.
+		 * @return The value.
+		 */
+		public int value( int index ) { return values[ index ]; }
+		
+		/**
+		 * Returns a token for the specified key, or {@code INVALID_TOKEN} if the key is absent.
+		 *
+		 * @param key The key to search for.
+		 * @return A token for the key, or {@code INVALID_TOKEN}.
+		 */
+		public long tokenOf( int key ) {
+			int slot = index.getOrDefault( key, -1 );
+			return slot == -1 ?
+			       INVALID_TOKEN :
+			       token( slot );
+		}
+		
+		/**
+		 * Returns the token of the first key, or {@code INVALID_TOKEN} if the multimap is empty.
+		 *
+		 * @return The token of the first key, or {@code INVALID_TOKEN}.
+		 */
+		public long token() {
+			return slots == 0 ?
+			       INVALID_TOKEN :
+			       token( 0 );
+		}
+		
+		/**
+		 * Returns the token of the key after the given one, or {@code INVALID_TOKEN} if there are no more keys.
+		 *
+		 * @param token The current token. Must not be {@code INVALID_TOKEN}.
+		 * @return The token of the next key, or {@code INVALID_TOKEN}.
+		 * @throws IllegalArgumentException        If the provided token is {@code INVALID_TOKEN}.
+		 * @throws ConcurrentModificationException If the multimap has been modified since the token was acquired.
+		 */
+		public long token( final long token ) {
+			if( token == INVALID_TOKEN ) throw new IllegalArgumentException( "Invalid token argument: INVALID_TOKEN" );
+			if( version( token ) != _version ) throw new ConcurrentModificationException( "Concurrent operations not supported." );
+			
+			int slot = unsafe_token( index( token ) );
+			return slot == -1 ?
+			       INVALID_TOKEN :
+			       token( slot );
+		}
+		
+		/**
+		 * Returns the slot of the key after the given slot, without version checks.
+		 *
+		 * @param token The current slot (or -1 to start from the beginning).
+		 * @return The next slot, or -1 if there are no more keys.
+		 */
+		public int unsafe_token( final int token ) {
+			return token + 1 < slots ?
+			       token + 1 :
+			       -1;
+		}
+		
+		/**
+		 * Returns the key of the given token.
+		 *
+		 * @param token The token of a key.
+		 * @return The key.
+		 */
+		public int key( long token ) { return keys[ index( token ) ]; }
+		
+		/**
+		 * Returns the number of values of the key of the given token.
+		 *
+		 * @param token The token of a key.
+		 * @return The number of values.
+		 */
+		public int count( long token ) { return sizes[ index( token ) ]; }
+		
+		/**
+		 * Returns a sequential {@link IntStream} over the distinct keys of the map, without boxing. It splits the slots in
+		 * halves, so {@code keys().parallel()} divides them evenly on the common fork-join pool. The map must not be
+		 * modified while the stream is in use.
+		 *
+		 * @return A stream over the keys.
+		 */
+		public IntStream keys() {
+			int[] keys = this.keys;
+			return StreamSupport.intStream( new Array.IntSpliterator( 0, slots, Spliterator.DISTINCT | Spliterator.NONNULL, i -> keys[ i ] ), false );
+		}
+		
+		/**
+		 * Passes every key-value pair to the action, key after key, the values of a key in insertion order. Loops
+		 * directly over the slabs of the values array, without tokens, so the action must not modify the map.
+		 *
+		 * @param action The receiver of the pairs.
+		 */
+		public void forEach( Consumer action ) {
+			for( int slot = 0; slot < slots; slot++ )
+				for( int i = starts[ slot ], end = i + sizes[ slot ]; i < end; i++ )
+					action.accept( keys[ slot ], values[ i ] );
+		}
+		
+		/**
+		 * Passes every distinct key to the action, in the order of {@link #forEach(Consumer)}.
+		 *
+		 * @param action The receiver of the keys.
+		 */
+		public void forEachKey( KeyConsumer action ) {
+			for( int slot = 0; slot < slots; slot++ ) action.accept( keys[ slot ] );
+		}
+		
+		/**
+		 * Passes every value to the action, in the order of {@link #forEach(Consumer)}.
+		 *
+		 * @param action The receiver of the values.
+		 */
+		public void forEachValue( ValueConsumer action ) {
+			for( int slot = 0; slot < slots; slot++ )
+				for( int i = starts[ slot ], end = i + sizes[ slot ]; i < end; i++ )
+					action.accept( values[ i ] );
+		}
+		
+		/**
+		 * Passes the pairs to the predicate, in the order of {@link #forEach(Consumer)}, until it returns {@code false}.
+		 *
+		 * @param predicate The test of the pairs.
+		 * @return {@code true} if the predicate accepted every pair, {@code false} if it stopped the iteration.
+		 */
+		public boolean forEachWhile( Predicate predicate ) {
+			for( int slot = 0; slot < slots; slot++ )
+				for( int i = starts[ slot ], end = i + sizes[ slot ]; i < end; i++ )
+					if( !predicate.test( keys[ slot ], values[ i ] ) ) return false;
+			return true;
+		}
+		
+		@Override
+		public int hashCode() {
+			int h = 0;
+			for( int slot = 0; slot < slots; slot++ )
+			     h += Array.mix( Array.hash( keys[ slot ] ), Array.hash( Array.hash( seed, sizes[ slot ] ), values, starts[ slot ], starts[ slot ] + sizes[ slot ] ) );
+			return Array.finalizeHash( h, slots );
+		}
+		
+		/**
+		 * A seed value used for hash code calculations.
+		 */
+		private static final int seed = R.class.hashCode();
+		
+		@Override
+		public boolean equals( Object obj ) { return obj != null && getClass() == obj.getClass() && equals( ( R ) obj ); }
+		
+		/**
+		 * Compares the specified multimap with this one for equality: both must have the same keys, and every key
+		 * the same values in the same order.
+		 *
+		 * @param other The multimap to be compared for equality with this one.
+		 * @return {@code true} if the specified multimap is equal to this one.
+		 */
+		public boolean equals( R other ) {
+			if( other == this ) return true;
+			if( other == null || slots != other.slots || _count != other._count ) return false;
+			
+			for( int slot = 0; slot < slots; slot++ ) {
+				int s = other.index.getOrDefault( keys[ slot ], -1 );
+				if( s == -1 || sizes[ slot ] != other.sizes[ s ] ||
+				    !Arrays.equals( values, starts[ slot ], starts[ slot ] + sizes[ slot ], other.values, other.starts[ s ], other.starts[ s ] + sizes[ slot ] ) )
+					return false;
+			}
+			return true;
+		}
+		
+		/**
+		 * Creates and returns a copy of this multimap. The index and the internal arrays are cloned.
+		 *
+		 * @return A copy of this multimap.
+		 */
+		@Override
+		public R clone() {
+			try {
+				R cloned = ( R ) super.clone();
+				cloned.index      = index.clone();
+				cloned.keys       = keys.clone();
+				cloned.starts     = starts.clone();
+				cloned.sizes      = sizes.clone();
+				cloned.capacities = capacities.clone();
+				cloned.values     = values.clone();
+				return cloned;
+			} catch( CloneNotSupportedException e ) {
+				throw new InternalError( e );
+			}
+		}
+		
+		/**
+		 * Returns a string representation of this multimap. This method delegates to {@link #toJSON()}
+		 * for a JSON-formatted output.
+		 *
+		 * @return a string representation of this multimap
+		 */
+		@Override
+		public String toString() { return toJSON(); }
+		
+		/**
+		 * Writes the JSON representation of this multimap to the given {@link JsonWriter}:
+		 * an object with the keys as names and arrays of their values.
+		 *
+		 * @param json The JsonWriter to write to.
+		 */
+		@Override
+		public void toJSON( JsonWriter json ) {
+			json.preallocate( slots * 10 + _count * 5 );
+			json.enterObject();
+			
+			for( int slot = 0; slot < slots; slot++ ) {
+				json.name( keys[ slot ] ).enterArray();
+				for( int i = starts[ slot ], end = i + sizes[ slot ]; i < end; i++ ) json.value( values[ i ] );
+				json.exitArray();
+			}
+			
+			json.exitObject();
+		}
+		
+		/**
+		 * Creates a token from a slot. The token encodes the multimap's current version and the slot.
+		 *
+		 * @param slot The slot.
+		 * @return A long token combining version and slot.
+		 */
+		protected long token( int slot ) { return ( long ) _version << VERSION_SHIFT | ( slot ); }
+		
+		/**
+		 * Extracts the slot from a token.
+		 *
+		 * @param token The long token.
+		 * @return The slot.
+		 */
+		protected int index( long token ) { return ( int ) ( token ); }
+		
+		/**
+		 * Extracts the version from a token.
+		 *
+		 * @param token The long token.
+		 * @return The version encoded in the token.
+		 */
+		protected int version( long token ) { return ( int ) ( token >>> VERSION_SHIFT ); }
+	}
+	
+	/**
+	 * A mutable {@link IntIntMultiMap}.
+	 */
+	class RW extends R {
+		
+		/**
+		 * The room of the slab a new key gets.
+		 */
+		protected static final int FIRST_SLAB = 2;
+		
+		/**
+		 * Constructs an empty multimap.
+		 */
+		public RW() { this( 0, 0 ); }
+		
+		/**
+		 * Constructs an empty multimap with room for the specified numbers of keys and values.
+		 *
+		 * @param keys   The expected number of keys.
+		 * @param values The expected total number of values.
+		 */
+		public RW( int keys, int values ) {
+			if( 0 < keys ) {
+				index = new IntIntMap.RW( keys );
+				slotsCapacity( keys );
+			}
+			if( 0 < values ) this.values = new int[ values ];
+		}
+		
+		/**
+		 * Builds a multimap in the compact CSR layout from parallel lists: the value at every index of {@code src_values}
+		 * belongs to the key at the same index of {@code src_keys}. The values of each key keep their order in the lists.
+		 *
+		 * @param src_keys   The keys, one per value.
+		 * @param src_values The values.
+		 * @throws IllegalArgumentException if the lists differ in size.
+		 */
+		public RW( IntList.R src_keys, IntList.R src_values ) {
+			int count = src_keys.size();
+			if( count != src_values.size() ) throw new IllegalArgumentException( "src_keys and src_values differ in size." );
+			
+			// First pass: number the keys and count their values
+			int[] slot_of = new int[ count ];
+			for( int i = 0; i < count; i++ ) {
+				int key  = src_keys.get( i );
+				int slot = index.getOrDefault( key, -1 );
+				if( slot == -1 ) {
+					if( slots == keys.length ) slotsCapacity( Math.max( 16, slots * 2 ) );
+					index.put( key, slot = slots++ );
+					keys[ slot ] = key;
+				}
+				sizes[ slot ]++;
+				slot_of[ i ] = slot;
+			}
+			
+			for( int slot = 0, start = 0; slot < slots; start += sizes[ slot++ ] ) {
+				starts[ slot ]     = start;
+				capacities[ slot ] = sizes[ slot ];
+			}
+			
+			// Second pass: scatter the values
+			values = new int[ count ];
+			int[] next = Arrays.copyOf( starts, slots );
+			for( int i = 0; i < count; i++ ) values[ next[ slot_of[ i ] ]++ ] = src_values.get( i );
+			
+			end    = count;
+			_count = count;
+		}
+		
+		private void slotsCapacity( int capacity ) {
+			keys       = Arrays.copyOf( keys, capacity );
+			starts     = Arrays.copyOf( starts, capacity );
+			sizes      = Arrays.copyOf( sizes, capacity );
+			capacities = Arrays.copyOf( capacities, capacity );
+		}
+		
+		/**
+		 * Appends the value to the values of the key, adding the key if it is absent.
+		 *
+		 * @param key   The key.
+		 * @param value The value to append.
+		 * @return {@code true} if the key was added, {@code false} if it already had values.
+		 */
+		public boolean put( int key, int value ) {
+			int     slot  = index.getOrDefault( key, -1 );
+			boolean added = slot == -1;
+			if( added ) slot = add( key, FIRST_SLAB );
+			else if( sizes[ slot ] == capacities[ slot ] ) grow( slot, sizes[ slot ] + 1 );
+			
+			values[ starts[ slot ] + sizes[ slot ]++ ] = value;
+			_count++;
+			_version++;
+			return added;
+		}
+		
+		/**
+		 * Appends values of the given range to the values of the key, adding the key if it is absent.
+		 *
+		 * @param key       The key.
+		 * @param src       The values to append.
+		 * @param src_index The index of the first value in {@code src}.
+		 * @param len       The number of values.
+		 * @return {@code true} if the key was added, {@code false} if it already had values.
+		 */
+		public boolean putAll( int key, int[] src, int src_index, int len ) {
+			if( len < 1 ) return false;
+			
+			int     slot  = index.getOrDefault( key, -1 );
+			boolean added = slot == -1;
+			if( added ) slot = add( key, Math.max( FIRST_SLAB, len ) );
+			else if( capacities[ slot ] < sizes[ slot ] + len ) grow( slot, sizes[ slot ] + len );
+			
+			System.arraycopy( src, src_index, values, starts[ slot ] + sizes[ slot ], len );
+			sizes[ slot ] += len;
+			_count += len;
+			_version++;
+			return added;
+		}
+		
+		/**
+		 * Appends every value of {@code src_values} to the key at the same index of {@code src_keys}.
+		 *
+		 * @param src_keys   The keys, one per value.
+		 * @param src_values The values.
+		 * @throws IllegalArgumentException if the lists differ in size.
+		 */
+		public void putAll( IntList.R src_keys, IntList.R src_values ) {
+			if( src_keys.size() != src_values.size() ) throw new IllegalArgumentException( "src_keys and src_values differ in size." );
+			for( int i = 0, size = src_keys.size(); i < size; i++ ) put( src_keys.get( i ), src_values.get( i ) );
+		}
+		
+		/**
+		 * Adds a key with an empty slab of the given room.
+		 *
+		 * @return The slot of the key.
+		 */
+		private int add( int key, int room ) {
+			if( slots == keys.length ) slotsCapacity( Math.max( 16, slots * 2 ) );
+			
+			int slot = slots++;
+			index.put( key, slot );
+			keys[ slot ]       = key;
+			sizes[ slot ]      = 0;
+			capacities[ slot ] = 0;
+			starts[ slot ]     = end;
+			grow( slot, room );
+			return slot;
+		}
+		
+		/**
+		 * Gives the slab of the slot room for at least {@code room} values: extends it in place if it ends the used
+		 * part of {@code values}, otherwise moves it to the end with double the room.
+		 */
+		private void grow( int slot, int room ) {
+			room = Math.max( room, capacities[ slot ] * 2 );
+			
+			if( starts[ slot ] + capacities[ slot ] == end ) { // the last slab: extend in place
+				reserve( room - capacities[ slot ] );
+				if( starts[ slot ] + capacities[ slot ] == end ) { // still the last after a possible packing
+					capacities[ slot ] = room;
+					end                = starts[ slot ] + room;
+					return;
+				}
+			}
+			
+			reserve( room );
+			
+			System.arraycopy( values, starts[ slot ], values, end, sizes[ slot ] );
+			dead += capacities[ slot ];
+			starts[ slot ]     = end;
+			capacities[ slot ] = room;
+			end += room;
+		}
+		
+		/**
+		 * Makes room for {@code extra} more values past {@code end}: packs the slabs if at least half of the used part
+		 * is dead and that frees enough, otherwise grows {@code values}.
+		 */
+		private void reserve( int extra ) {
+			if( end + extra <= values.length ) return;
+			if( values.length / 2 <= dead && end - dead + extra <= values.length ) pack( false, values.length );
+			else pack( false, Math.max( end - dead + extra, values.length + ( values.length >> 1 ) ) );
+		}
+		
+		/**
+		 * Rewrites the slabs in slot order into a values array of the given length, dropping the dead space.
+		 *
+		 * @param exact  {@code true} to drop the spare room of the slabs too.
+		 * @param length The length of the new values array.
+		 */
+		private void pack( boolean exact, int length ) {
+			int[] dst = new int[ length ];
+			int   at  = 0;
+			for( int slot = 0; slot < slots; slot++ ) {
+				System.arraycopy( values, starts[ slot ], dst, at, sizes[ slot ] );
+				starts[ slot ] = at;
+				if( exact ) capacities[ slot ] = sizes[ slot ];
+				at += capacities[ slot ];
+			}
+			values = dst;
+			end    = at;
+			dead   = 0;
+		}
+		
+		/**
+		 * Packs the slabs in slot order without spare room into an exact-size values array, which gives the compressed
+		 * sparse row layout. The next value added to a key moves its slab to the end. Invalidates all ranges.
+		 */
+		public void compact() {
+			_version++;
+			
+			pack( true, _count );
+		}
+		
+		/**
+		 * Removes the first occurrence of the value from the values of the key. A key left without values is removed.
+		 *
+		 * @param key   The key.
+		 * @param value The value to remove.
+		 * @return {@code true} if the key had the value.
+		 */
+		public boolean remove( int key, int value ) {
+			int slot = index.getOrDefault( key, -1 );
+			if( slot == -1 ) return false;
+			
+			int start = starts[ slot ];
+			int size  = sizes[ slot ];
+			int i     = Array.indexOf( values, value, start, start + size );
+			if( i == -1 ) return false;
+			
+			if( size == 1 ) return remove( key );
+			
+			System.arraycopy( values, i + 1, values, i, start + size - i - 1 );
+			sizes[ slot ] = size - 1;
+			_count--;
+			_version++;
+			return true;
+		}
+		
+		/**
+		 * Removes the key and all of its values. The last slot moves into the slot of the key, so the tokens of the last key change.
+		 *
+		 * @param key The key to remove.
+		 * @return {@code true} if the key was present.
+		 */
+		public boolean remove( int key ) {
+			int slot = index.getOrDefault( key, -1 );
+			if( slot == -1 ) return false;
+			
+			index.remove( key );
+			_count -= sizes[ slot ];
+			if( starts[ slot ] + capacities[ slot ] == end ) end = starts[ slot ];
+			else dead += capacities[ slot ];
+			
+			int last = --slots;
+			if( slot != last ) {
+				keys[ slot ]       = keys[ last ];
+				starts[ slot ]     = starts[ last ];
+				sizes[ slot ]      = sizes[ last ];
+				capacities[ slot ] = capacities[ last ];
+				index.put( keys[ slot ], slot );
+			}
+			_version++;
+			return true;
+		}
+		
+		/**
+		 * Removes all keys and values, keeping the allocated arrays.
+		 */
+		public void clear() {
+			_version++;
+			index.clear();
+			slots  = 0;
+			end    = 0;
+			dead   = 0;
+			_count = 0;
+		}
+		
+		@Override
+		public RW clone() { return ( RW ) super.clone(); }
+	}
+}
\ No newline at end of file
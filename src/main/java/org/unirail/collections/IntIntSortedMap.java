@@ -0,0 +1,1824 @@
+// Copyright 2025 Chikirev Sirguy, Unirail Group
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+// For inquiries, please contact: al8v5C6HU4UtqE9@gmail.com
+// GitHub Repository: https://github.com/AdHoc-Protocol
+package org.unirail.collections;
+
+import org.unirail.JsonWriter;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Spliterator;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+
+/**
+ * A sorted map for mapping primitive keys to primitive values, kept in a B+-tree.
+ * <p>
+ * Unlike the hash maps of this package, it iterates its keys in ascending order and answers ordered queries:
+ * the nearest keys with {@link R#floorToken}, {@link R#ceilingToken}, {@link R#lowerToken} and {@link R#higherToken},
+ * the position of a key with {@link R#rank} and the key at a position with {@link R#select}, and live range views
+ * with {@link R#headMap}, {@link R#tailMap} and {@link R#subMap}.
+ *
+ * <h3>Layout:</h3>
+ * The tree lives in flat primitive arrays, without node objects, so it costs no object headers or pointers per node
+ * and a node is a few adjacent cache lines.
+ * <ul>
+ * <li><b>Leaves:</b> leaf {@code l} keeps up to {@link R#LEAF} entries, sorted by key, in `keys` and `values` from
+ *     index {@code l * LEAF}. A token is simply the index of its entry. Leaves are linked in key order through
+ *     `leafNext` and `leafPrev`, so ordered scans read contiguous memory and step from leaf to leaf without climbing
+ *     the tree.</li>
+ * <li><b>Internal nodes:</b> node {@code n} keeps up to {@link R#NODE} children from index {@code n * NODE} of
+ *     `children`, the number of entries below each child at the same index of `counts`, and the separating keys in
+ *     `separators`: every key below child {@code i + 1} is greater than or equal to separator {@code i}, every key
+ *     below child {@code i} is less than it. Lookups pick the child with a binary search of the separators;
+ *     {@code rank} and {@code select} sum the counts on the way down.</li>
+ * <li>Freed leaves and nodes are recycled through free lists.</li>
+ * </ul>
+ *
+ * <h4>Insertion and removal:</h4>
+ * A full leaf is split in two halves, except that a key appended past the end of the last leaf starts a new leaf,
+ * so keys inserted in ascending order, such as timestamps or sequence numbers, fill their leaves completely.
+ * A leaf or node left less than half full by a removal borrows entries from a sibling, or merges with it if both fit
+ * into one. {@link RW#trim()} rebuilds the tree with full leaves.
+ */
+public interface IntIntSortedMap {
+	
+	/**
+	 * Receives the entries visited by {@link R#forEach(Consumer)}.
+	 */
+	@FunctionalInterface
+	interface Consumer {
+		void accept( int key, int value );
+	}
+	
+	/**
+	 * Tests the entries visited by {@link R#forEachWhile(Predicate)}.
+	 */
+	@FunctionalInterface
+	interface Predicate {
+		boolean test( int key, int value );
+	}
+	
+	/**
+	 * Receives the keys visited by {@link R#forEachKey(KeyConsumer)}.
+	 */
+	@FunctionalInterface
+	interface KeyConsumer {
+		void accept( int key );
+	}
+	
+	/**
+	 * Receives the values visited by {@link R#forEachValue(ValueConsumer)}.
+	 */
+	@FunctionalInterface
+	interface ValueConsumer {
+		void accept( int value );
+	}
+	
+	
+	abstract class R implements Cloneable, JsonWriter.Source {
+		
+		/**
+		 * Indicates whether the map contains a mapping for the null key.
+		 */
+		protected boolean hasNullKey;
+		/**
+		 * The value associated with the null key, if {@code hasNullKey} is {@code true}.
+		 */
+		protected int nullKeyValue;
+		
+		/**
+		 * The maximum number of entries of a leaf.
+		 */
+		public static final    int LEAF       = 64;
+		/**
+		 * {@code log2( LEAF )}: the index of an entry is {@code leaf << LEAF_SHIFT | slot}.
+		 */
+		protected static final int LEAF_SHIFT = 6;
+		/**
+		 * The maximum number of children of an internal node.
+		 */
+		public static final    int NODE       = 64;
+		/**
+		 * The maximum height of the tree: every node but the root has at least {@code NODE / 2} children.
+		 */
+		protected static final int MAX_HEIGHT = 8;
+		
+		/**
+		 * The keys of the leaves. Leaf {@code l} keeps its keys, sorted, from index {@code l * LEAF}.
+		 */
+		protected int[] keys;
+		/**
+		 * The values of the leaves, at the indices of their keys.
+		 */
+		protected int[] values;
+		/**
+		 * The number of entries of each leaf.
+		 */
+		protected int[] leafSize;
+		/**
+		 * The next leaf in key order of each leaf, or -1 for the last leaf.
+		 */
+		protected int[] leafNext;
+		/**
+		 * The previous leaf in key order of each leaf, or -1 for the first leaf.
+		 */
+		protected int[] leafPrev;
+		
+		/**
+		 * The separating keys of the internal nodes. Node {@code n} keeps {@code nodeSize[ n ] - 1} keys from index {@code n * NODE}.
+		 */
+		protected int[] separators;
+		/**
+		 * The children of the internal nodes: leaves for the nodes just above the leaves, internal nodes otherwise.
+		 */
+		protected int[] children;
+		/**
+		 * The number of entries below each child, at the index of the child.
+		 */
+		protected int[] counts;
+		/**
+		 * The number of children of each internal node.
+		 */
+		protected int[] nodeSize;
+		
+		/**
+		 * The root: a leaf if {@code height} is 0, an internal node otherwise.
+		 */
+		protected int root;
+		/**
+		 * The number of internal node levels above the leaves.
+		 */
+		protected int height;
+		/**
+		 * The leaf holding the smallest keys.
+		 */
+		protected int firstLeaf;
+		/**
+		 * The leaf holding the largest keys.
+		 */
+		protected int lastLeaf;
+		
+		/**
+		 * The number of non-null keys.
+		 */
+		protected int _count;
+		
+		protected int _count() { return _count; }
+		
+		/**
+		 * The current version of the map, incremented on modifications.
+		 * Used to detect concurrent modifications during iteration.
+		 */
+		protected int _version;
+		
+		/**
+		 * The bit shift used to encode the map's version into a token.
+		 */
+		protected static final int VERSION_SHIFT = 32;
+		
+		/**
+		 * A special index used within a token to represent the null key mapping.
+		 */
+		protected static final int NULL_KEY_INDEX = 0x7FFF_FFFF;
+		
+		/**
+		 * A special token value indicating that a key was not found or no more elements exist.
+		 */
+		public static final long INVALID_TOKEN = -1L;
+		
+		/**
+		 * Returns {@code true} if this map contains no key-value mappings.
+		 *
+		 * @return {@code true} if this map contains no key-value mappings
+		 */
+		public boolean isEmpty() { return size() == 0; }
+		
+		
+		/**
+		 * Returns the number of key-value mappings in this map, including the null key mapping if present.
+		 *
+		 * @return the number of key-value mappings in this map
+		 */
+		public int size() {
+			return
+					_count + (
+							hasNullKey ?
+							1 :
+							0 );
+		}
+		
+		/**
+		 * Returns the number of key-value mappings in this map, including the null key mapping if present.
+		 * This is equivalent to {@link #size()}.
+		 *
+		 * @return the number of key-value mappings in this map
+		 */
+		public int count() { return size(); }
+		
+		/**
+		 * Returns the number of entries the allocated leaves can hold.
+		 *
+		 * @return the current capacity of the leaves
+		 */
+		public int length() {
+			return keys == null ?
+			       0 :
+			       keys.length;
+		}
+		
+		
+		/**
+		 * Returns {@code true} if this map contains a mapping for the specified key.
+		 * This method handles both null and non-null keys.
+		 *
+		 * @param key The key whose presence in this map is to be tested.
+		 * @return {@code true} if this map contains a mapping for the specified key.
+		 */
+		public boolean containsKey(  Integer  key ) { return tokenOf( key ) != INVALID_TOKEN; }
+		
+		
+		/**
+		 * Returns {@code true} if this map contains a mapping for the specified primitive key.
+		 *
+		 * @param key The primitive key whose presence in this map is to be tested.
+		 * @return {@code true} if this map contains a mapping for the specified key.
+		 */
+		public boolean containsKey( int key ) { return tokenOf( key ) != INVALID_TOKEN; }
+		
+		
+		/**
+		 * Returns {@code true} if this map maps one or more keys to the specified value.
+		 *
+		 * @param value The value whose presence in this map is to be tested.
+		 * @return {@code true} if this map maps one or more keys to the specified value.
+		 */
+		public boolean containsValue( int value ) {
+			if( hasNullKey && nullKeyValue == value ) return true;
+			
+			if( _count != 0 )
+				for( int leaf = firstLeaf; leaf != -1; leaf = leafNext[ leaf ] )
+					for( int i = leaf << LEAF_SHIFT, end = i + leafSize[ leaf ]; i < end; i++ )
+						if( values[ i ] == value ) return true;
+			
+			return false;
+		}
+		
+		
+		/**
+		 * Returns a token representing the mapping for the specified boxed key, or {@code INVALID_TOKEN}
+		 * if this map contains no mapping for the key.
+		 *
+		 * @param key The key to search for.
+		 * @return A token for the mapping, or {@code INVALID_TOKEN} if not found.
+		 */
+		public long tokenOf(  Integer  key ) {
+			return key == null ?
+			       ( hasNullKey ?
+			         token( NULL_KEY_INDEX ) :
+			         INVALID_TOKEN ) :
+			       tokenOf( ( int ) key );
+		}
+		
+		
+		/**
+		 * Returns a token representing the mapping for the specified primitive key, or {@code INVALID_TOKEN}
+		 * if this map contains no mapping for the key.
+		 *
+		 * @param key The primitive key to search for.
+		 * @return A token for the mapping, or {@code INVALID_TOKEN} if not found.
+		 */
+		public long tokenOf( int key ) {
+			if( _count == 0 ) return INVALID_TOKEN;
+			
+			int leaf = leafOf( key );
+			int from = leaf << LEAF_SHIFT;
+			int slot = lowerBound( keys, from, leafSize[ leaf ], key );
+			
+			return slot < leafSize[ leaf ] && keys[ from + slot ] == key ?
+			       token( from + slot ) :
+			       INVALID_TOKEN;
+		}
+		
+		
+		/**
+		 * Returns the value of the specified primitive key, or {@code defaultValue} if the key is absent.
+		 *
+		 * @param key          The primitive key to search for.
+		 * @param defaultValue The value to return if the key is absent.
+		 * @return The value of the key, or {@code defaultValue}.
+		 */
+		public int getOrDefault( int key, int defaultValue ) {
+			long token = tokenOf( key );
+			return token == INVALID_TOKEN ?
+			       defaultValue :
+			       value( token );
+		}
+		
+		
+		/**
+		 * Returns the token of the greatest key less than or equal to the given key, or {@code INVALID_TOKEN} if there is none.
+		 *
+		 * @param key The key.
+		 * @return The token of the found entry, or {@code INVALID_TOKEN}.
+		 */
+		public long floorToken( int key ) {
+			if( _count == 0 ) return INVALID_TOKEN;
+			int leaf = leafOf( key );
+			return before( leaf, upperBound( keys, leaf << LEAF_SHIFT, leafSize[ leaf ], key ) );
+		}
+		
+		/**
+		 * Returns the token of the greatest key strictly less than the given key, or {@code INVALID_TOKEN} if there is none.
+		 *
+		 * @param key The key.
+		 * @return The token of the found entry, or {@code INVALID_TOKEN}.
+		 */
+		public long lowerToken( int key ) {
+			if( _count == 0 ) return INVALID_TOKEN;
+			int leaf = leafOf( key );
+			return before( leaf, lowerBound( keys, leaf << LEAF_SHIFT, leafSize[ leaf ], key ) );
+		}
+		
+		/**
+		 * Returns the token of the least key greater than or equal to the given key, or {@code INVALID_TOKEN} if there is none.
+		 *
+		 * @param key The key.
+		 * @return The token of the found entry, or {@code INVALID_TOKEN}.
+		 */
+		public long ceilingToken( int key ) {
+			if( _count == 0 ) return INVALID_TOKEN;
+			int leaf = leafOf( key );
+			return at( leaf, lowerBound( keys, leaf << LEAF_SHIFT, leafSize[ leaf ], key ) );
+		}
+		
+		/**
+		 * Returns the token of the least key strictly greater than the given key, or {@code INVALID_TOKEN} if there is none.
+		 *
+		 * @param key The key.
+		 * @return The token of the found entry, or {@code INVALID_TOKEN}.
+		 */
+		public long higherToken( int key ) {
+			if( _count == 0 ) return INVALID_TOKEN;
+			int leaf = leafOf( key );
+			return at( leaf, upperBound( keys, leaf << LEAF_SHIFT, leafSize[ leaf ], key ) );
+		}
+		
+		/**
+		 * Returns the greatest key less than or equal to the given key, or {@code notFound} if there is none.
+		 *
+		 * @param key      The key.
+		 * @param notFound The value to return if there is no such key.
+		 * @return The found key, or {@code notFound}.
+		 */
+		public int floorKey( int key, int notFound ) {
+			long token = floorToken( key );
+			return token == INVALID_TOKEN ?
+			       notFound :
+			       key( token );
+		}
+		
+		/**
+		 * Returns the least key greater than or equal to the given key, or {@code notFound} if there is none.
+		 *
+		 * @param key      The key.
+		 * @param notFound The value to return if there is no such key.
+		 * @return The found key, or {@code notFound}.
+		 */
+		public int ceilingKey( int key, int notFound ) {
+			long token = ceilingToken( key );
+			return token == INVALID_TOKEN ?
+			       notFound :
+			       key( token );
+		}
+		
+		/**
+		 * Returns the token of the entry at {@code slot} of {@code leaf}, or of the first entry of the following leaf if
+		 * {@code slot} is past the end of {@code leaf}.
+		 */
+		private long at( int leaf, int slot ) {
+			if( slot < leafSize[ leaf ] ) return token( leaf << LEAF_SHIFT | slot );
+			return ( leaf = leafNext[ leaf ] ) == -1 ?
+			       INVALID_TOKEN :
+			       token( leaf << LEAF_SHIFT );
+		}
+		
+		/**
+		 * Returns the token of the entry before {@code slot} of {@code leaf}, or of the last entry of the preceding leaf if
+		 * {@code slot} is 0.
+		 */
+		private long before( int leaf, int slot ) {
+			if( 0 < slot ) return token( ( leaf << LEAF_SHIFT ) + slot - 1 );
+			return ( leaf = leafPrev[ leaf ] ) == -1 ?
+			       INVALID_TOKEN :
+			       token( ( leaf << LEAF_SHIFT ) + leafSize[ leaf ] - 1 );
+		}
+		
+		
+		/**
+		 * Returns the number of non-null keys less than or equal to the given key.
+		 * <p>
+		 * Ranks count inclusively, as {@link BitList.R#rank} and {@link IntRoaringSet.R#rank} do: a present key ranks
+		 * from 1, so {@code rank( key( select( index ) ) ) == index + 1}.
+		 *
+		 * @param key The key, which does not need to be in the map.
+		 * @return The number of non-null keys that are {@code <= key}, from 0 to the number of non-null keys.
+		 */
+		public int rank( int key ) {
+			if( _count == 0 ) return 0;
+			
+			int rank = 0;
+			int node = root;
+			for( int level = height; 0 < level; level-- ) {
+				int from  = node * NODE;
+				int child = upperBound( separators, from, nodeSize[ node ] - 1, key );
+				for( int i = from, end = from + child; i < end; i++ ) rank += counts[ i ];
+				node = children[ from + child ];
+			}
+			return rank + upperBound( keys, node << LEAF_SHIFT, leafSize[ node ], key );
+		}
+		
+		/**
+		 * Returns the token of the non-null key at the given position in the ascending order of keys, the inverse of
+		 * {@link #rank}: {@code rank( key( select( rank ) ) ) == rank + 1}.
+		 *
+		 * @param rank The position, from 0 to the number of non-null keys minus one.
+		 * @return The token of the key at the position.
+		 * @throws IndexOutOfBoundsException if the position is out of range.
+		 */
+		public long select( int rank ) {
+			if( rank < 0 || _count <= rank ) throw new IndexOutOfBoundsException( "rank " + rank + " is out of range [0, " + _count + ")" );
+			
+			int node = root;
+			for( int level = height; 0 < level; level-- ) {
+				int i = node * NODE;
+				while( counts[ i ] <= rank ) rank -= counts[ i++ ];
+				node = children[ i ];
+			}
+			return token( node << LEAF_SHIFT | rank );
+		}
+		
+		
+		/**
+		 * Returns the token for the entry with the smallest non-null key.
+		 * If only the null key is present, a token for the null key is returned.
+		 * If the map is empty, {@code INVALID_TOKEN} is returned.
+		 *
+		 * @return The token for the first entry, or {@code INVALID_TOKEN}.
+		 */
+		public long token() {
+			int index = unsafe_token( -1 );
+			
+			return index == -1 ?
+			       hasNullKey ?
+			       token( NULL_KEY_INDEX ) :
+			       INVALID_TOKEN :
+			       token( index );
+		}
+		
+		
+		/**
+		 * Returns the token for the entry with the next greater non-null key after the given token.
+		 * If there are no more non-null entries, it returns a token for the null key if present,
+		 * otherwise {@code INVALID_TOKEN}.
+		 *
+		 * @param token The current token. Must not be {@code INVALID_TOKEN}.
+		 * @return The token for the next entry, or {@code INVALID_TOKEN} if no more entries.
+		 * @throws IllegalArgumentException        If the provided token is {@code INVALID_TOKEN}.
+		 * @throws ConcurrentModificationException If the map has been modified since the token was acquired.
+		 */
+		public long token( final long token ) {
+			if( token == INVALID_TOKEN ) throw new IllegalArgumentException( "Invalid token argument: INVALID_TOKEN" );
+			if( version( token ) != _version ) throw new ConcurrentModificationException( "Concurrent operations not supported." );
+			
+			int index = index( token );
+			if( index == NULL_KEY_INDEX ) return INVALID_TOKEN;
+			
+			return ( index = unsafe_token( index ) ) == -1 ?
+			       hasNullKey ?
+			       token( NULL_KEY_INDEX ) :
+			       INVALID_TOKEN :
+			       token( index );
+		}
+		
+		/**
+		 * Returns the token for the entry with the greatest non-null key, or {@code INVALID_TOKEN} if there is none.
+		 *
+		 * @return The token for the last non-null entry, or {@code INVALID_TOKEN}.
+		 */
+		public long lastToken() {
+			return _count == 0 ?
+			       INVALID_TOKEN :
+			       token( ( lastLeaf << LEAF_SHIFT ) + leafSize[ lastLeaf ] - 1 );
+		}
+		
+		/**
+		 * Returns the token for the entry with the next smaller non-null key before the given token, to iterate in
+		 * descending order from {@link #lastToken()}.
+		 *
+		 * @param token The current token of a non-null key. Must not be {@code INVALID_TOKEN}.
+		 * @return The token for the previous entry, or {@code INVALID_TOKEN} if no more entries.
+		 * @throws IllegalArgumentException        If the provided token is {@code INVALID_TOKEN} or the null key token.
+		 * @throws ConcurrentModificationException If the map has been modified since the token was acquired.
+		 */
+		public long prevToken( final long token ) {
+			if( token == INVALID_TOKEN || isKeyNull( token ) ) throw new IllegalArgumentException( "Invalid token argument: " + token );
+			if( version( token ) != _version ) throw new ConcurrentModificationException( "Concurrent operations not supported." );
+			
+			int index = index( token );
+			return before( index >>> LEAF_SHIFT, index & LEAF - 1 );
+		}
+		
+		
+		/**
+		 * Returns the internal array index for the entry with the next greater non-null key after the given index.
+		 * This method does not perform version checks and is intended for internal use or highly optimized iteration
+		 * where version consistency is managed externally.
+		 * <p>
+		 * Iteration walks the entries of each leaf, then follows {@code leafNext} to the next leaf.
+		 *
+		 * @param token The current internal index (or -1 to start from the beginning).
+		 * @return The internal index of the next entry, or -1 if no more non-null entries.
+		 */
+		public int unsafe_token( final int token ) {
+			if( _count == 0 ) return -1;
+			if( token == -1 ) return firstLeaf << LEAF_SHIFT;
+			
+			int leaf = token >>> LEAF_SHIFT;
+			if( ( token & LEAF - 1 ) + 1 < leafSize[ leaf ] ) return token + 1;
+			
+			return ( leaf = leafNext[ leaf ] ) == -1 ?
+			       -1 :
+			       leaf << LEAF_SHIFT;
+		}
+		
+		
+		/**
+		 * Returns {@code true} if this map contains a mapping for the {@code null} key.
+		 *
+		 * @return {@code true} if the null key is present.
+		 */
+		public boolean hasNullKey() { return hasNullKey; }
+		
+		
+		/**
+		 * Returns the value to which the {@code null} key is mapped.
+		 * It is recommended to call {@link #hasNullKey()} first to ensure the null key is present.
+		 *
+		 * @return The value associated with the null key.
+		 */
+		public int nullKeyValue() { return nullKeyValue; }
+		
+		
+		/**
+		 * Checks if the given token represents the mapping for the {@code null} key.
+		 *
+		 * @param token The token to check.
+		 * @return {@code true} if the token represents the null key mapping.
+		 */
+		public boolean isKeyNull( long token ) { return index( token ) == NULL_KEY_INDEX; }
+		
+		
+		/**
+		 * Returns the primitive key associated with the given token.
+		 * It is recommended to check {@link #isKeyNull(long)} before calling this method,
+		 * as calling it with a token for the null key will result in an {@code ArrayIndexOutOfBoundsException}.
+		 *
+		 * @param token The token representing a non-null key-value mapping.
+		 * @return The primitive key.
+		 */
+		public int key( long token ) { return keys[ index( token ) ]; }
+		
+		
+		/**
+		 * Returns the primitive value associated with the given token.
+		 *
+		 * @param token The token representing a key-value mapping (can be for the null key).
+		 * @return The primitive value.
+		 */
+		public int value( long token ) {
+			return isKeyNull( token ) ?
+			       nullKeyValue :
+			       values[ index( token ) ];
+		}
+		
+		/**
+		 * Returns a spliterator over the keys of the map in ascending order, the null key excluded; check
+		 * {@link #hasNullKey()}. The leaves are only partly filled, so it walks them with {@link #unsafe_token(int)},
+		 * splitting off growing batches, and reports {@code SIZED}, {@code SUBSIZED} and {@code NONNULL}. The map must
+		 * not be modified while it is in use.
+		 *
+		 * @return A spliterator over the keys.
+		 */
+		public Spliterator.OfInt spliterator() { return Array.spliterator( size() - ( hasNullKey() ? 1 : 0 ), this::unsafe_token, this::key ); }
+		
+		/**
+		 * Returns a sequential {@link IntStream} over the keys of the map, the null key excluded, without boxing. Call
+		 * {@code parallel()} on it to run it on the common fork-join pool. The map must not be modified while the stream
+		 * is in use.
+		 *
+		 * @return A stream over the keys.
+		 */
+		public IntStream keys() { return StreamSupport.intStream( spliterator(), false ); }
+		
+		/**
+		 * Returns a spliterator over the values of the map, in the order of {@link #spliterator()}, the value of
+		 * the null key excluded. It splits as {@link #spliterator()} does and reports {@code SIZED}, {@code SUBSIZED}
+		 * and {@code NONNULL}.
+		 *
+		 * @return A spliterator over the values.
+		 */
+		public Spliterator.OfInt valuesSpliterator() { return Array.spliterator( size() - ( hasNullKey() ? 1 : 0 ), this::unsafe_token, this::value ); }
+		
+		/**
+		 * Returns a sequential {@link IntStream} over the values of the map, in the order of {@link #keys()}, the value of
+		 * the null key excluded, without boxing. Call {@code parallel()} on it to run it on the common fork-join pool. The
+		 * map must not be modified while the stream is in use.
+		 *
+		 * @return A stream over the values.
+		 */
+		public IntStream values() { return StreamSupport.intStream( valuesSpliterator(), false ); }
+		
+		/**
+		 * Passes every entry to the action, the null key excluded. Walks the leaves in ascending key order, without tokens
+		 * or version checks, so the action must not modify the map.
+		 *
+		 * @param action The receiver of the entries.
+		 */
+		public void forEach( Consumer action ) {
+			if( _count == 0 ) return;
+			for( int leaf = firstLeaf; leaf != -1; leaf = leafNext[ leaf ] )
+				for( int i = leaf << LEAF_SHIFT, end = i + leafSize[ leaf ]; i < end; i++ )
+					action.accept( keys[ i ], values[ i ] );
+		}
+		
+		/**
+		 * Passes every key to the action, the null key excluded, in the order of {@link #forEach(Consumer)}.
+		 *
+		 * @param action The receiver of the keys.
+		 */
+		public void forEachKey( KeyConsumer action ) {
+			if( _count == 0 ) return;
+			for( int leaf = firstLeaf; leaf != -1; leaf = leafNext[ leaf ] )
+				for( int i = leaf << LEAF_SHIFT, end = i + leafSize[ leaf ]; i < end; i++ )
+					action.accept( keys[ i ] );
+		}
+		
+		/**
+		 * Passes every value to the action, the value of the null key excluded, in the order of
+		 * {@link #forEach(Consumer)}.
+		 *
+		 * @param action The receiver of the values.
+		 */
+		public void forEachValue( ValueConsumer action ) {
+			if( _count == 0 ) return;
+			for( int leaf = firstLeaf; leaf != -1; leaf = leafNext[ leaf ] )
+				for( int i = leaf << LEAF_SHIFT, end = i + leafSize[ leaf ]; i < end; i++ )
+					action.accept( values[ i ] );
+		}
+		
+		/**
+		 * Passes the entries to the predicate, in the order of {@link #forEach(Consumer)}, until it returns {@code false}.
+		 *
+		 * @param predicate The test of the entries.
+		 * @return {@code true} if the predicate accepted every entry, {@code false} if it stopped the iteration.
+		 */
+		public boolean forEachWhile( Predicate predicate ) {
+			if( _count == 0 ) return true;
+			for( int leaf = firstLeaf; leaf != -1; leaf = leafNext[ leaf ] )
+				for( int i = leaf << LEAF_SHIFT, end = i + leafSize[ leaf ]; i < end; i++ )
+					if( !predicate.test( keys[ i ], values[ i ] ) ) return false;
+			return true;
+		}
+		
+		
+		/**
+		 * Returns a live view of the keys less than (or equal to, if {@code inclusive}) {@code toKey}.
+		 *
+		 * @param toKey     The upper bound.
+		 * @param inclusive {@code true} if the upper bound is included.
+		 * @return The view.
+		 */
+		public View headMap( int toKey, boolean inclusive ) { return new View( this, false, 0, false, true, toKey, inclusive ); }
+		
+		/**
+		 * Returns a live view of the keys greater than (or equal to, if {@code inclusive}) {@code fromKey}.
+		 *
+		 * @param fromKey   The lower bound.
+		 * @param inclusive {@code true} if the lower bound is included.
+		 * @return The view.
+		 */
+		public View tailMap( int fromKey, boolean inclusive ) { return new View( this, true, fromKey, inclusive, false, 0, false ); }
+		
+		/**
+		 * Returns a live view of the keys from {@code fromKey} to {@code toKey}.
+		 *
+		 * @param fromKey       The lower bound.
+		 * @param fromInclusive {@code true} if the lower bound is included.
+		 * @param toKey         The upper bound.
+		 * @param toInclusive   {@code true} if the upper bound is included.
+		 * @return The view.
+		 * @throws IllegalArgumentException if {@code fromKey} is greater than {@code toKey}.
+		 */
+		public View subMap( int fromKey, boolean fromInclusive, int toKey, boolean toInclusive ) {
+			if( toKey < fromKey ) throw new IllegalArgumentException( "fromKey > toKey" );
+			return new View( this, true, fromKey, fromInclusive, true, toKey, toInclusive );
+		}
+		
+		
+		/**
+		 * Returns the leaf whose key range covers the given key.
+		 */
+		protected int leafOf( int key ) {
+			int node = root;
+			for( int level = height; 0 < level; level-- ) {
+				int from = node * NODE;
+				node = children[ from + upperBound( separators, from, nodeSize[ node ] - 1, key ) ];
+			}
+			return node;
+		}
+		
+		/**
+		 * Returns the number of leading elements of the sorted range {@code src[ from, from + size )} that are less than {@code key}.
+		 */
+		protected static int lowerBound( int[] src, int from, int size, int key ) {
+			if( size == 0 ) return 0;
+			int base = from;
+			for( int n = size; 1 < n; n -= n >>> 1 ) // branch-free: the comparison compiles to a conditional move
+			     base = src[ base + ( n >>> 1 ) ] < key ?
+			            base + ( n >>> 1 ) :
+			            base;
+			return base - from + (
+					src[ base ] < key ?
+					1 :
+					0 );
+		}
+		
+		/**
+		 * Returns the number of leading elements of the sorted range {@code src[ from, from + size )} that are less than or equal to {@code key}.
+		 */
+		protected static int upperBound( int[] src, int from, int size, int key ) {
+			if( size == 0 ) return 0;
+			int base = from;
+			for( int n = size; 1 < n; n -= n >>> 1 ) // branch-free: the comparison compiles to a conditional move
+			     base = src[ base + ( n >>> 1 ) ] <= key ?
+			            base + ( n >>> 1 ) :
+			            base;
+			return base - from + (
+					src[ base ] <= key ?
+					1 :
+					0 );
+		}
+		
+		
+		@Override
+		/**
+		 * Computes a hash code for this map.
+		 * The hash code is derived from the hash codes of all key-value pairs in the map.
+		 *
+		 * @return A hash code for this map.
+		 */
+		public int hashCode() {
+			int a = 0, b = 0, c = 1;
+			for( int token = -1; ( token = unsafe_token( token ) ) != -1; ) {
+				int h = Array.mix( seed, Array.hash( keys[ token ] ) );
+				h = Array.mix( h, Array.hash( values[ token ] ) );
+				h = Array.finalizeHash( h, 2 );
+				a += h;
+				b ^= h;
+				c *= h | 1;
+			}
+			
+			if( hasNullKey ) {
+				int h = Array.hash( seed );
+				h = Array.mix( h, Array.hash( nullKeyValue ) );
+				h = Array.finalizeHash( h, 2 );
+				a += h;
+				b ^= h;
+				c *= h | 1;
+			}
+			
+			return Array.finalizeHash( Array.mixLast( Array.mix( Array.mix( seed, a ), b ), c ), size() );
+		}
+		
+		/**
+		 * A seed value used for hash code calculations.
+		 */
+		private static final int seed = R.class.hashCode();
+		
+		@Override
+		public boolean equals( Object obj ) { return obj != null && getClass() == obj.getClass() && equals( ( R ) obj ); }
+		
+		
+		/**
+		 * Compares the specified map with this map for equality. Both maps are walked in key order side by side.
+		 *
+		 * @param other The map to be compared for equality with this map.
+		 * @return {@code true} if the specified map holds the same key-value mappings as this map.
+		 */
+		public boolean equals( R other ) {
+			if( other == this ) return true;
+			if( other == null ||
+			    hasNullKey != other.hasNullKey ||
+			    ( hasNullKey && nullKeyValue != other.nullKeyValue ) || size() != other.size() )
+				return false;
+			
+			for( int token = -1, t = -1; ( token = unsafe_token( token ) ) != -1; ) {
+				t = other.unsafe_token( t );
+				if( keys[ token ] != other.keys[ t ] || values[ token ] != other.values[ t ] ) return false;
+			}
+			return true;
+		}
+		
+		
+		/**
+		 * Creates and returns a copy of this map. The internal arrays are cloned.
+		 *
+		 * @return A copy of this map.
+		 */
+		@Override
+		public R clone() {
+			try {
+				R cloned = ( R ) super.clone();
+				if( keys != null ) {
+					cloned.keys     = keys.clone();
+					cloned.values   = values.clone();
+					cloned.leafSize = leafSize.clone();
+					cloned.leafNext = leafNext.clone();
+					cloned.leafPrev = leafPrev.clone();
+				}
+				if( children != null ) {
+					cloned.separators = separators.clone();
+					cloned.children   = children.clone();
+					cloned.counts     = counts.clone();
+					cloned.nodeSize   = nodeSize.clone();
+				}
+				return cloned;
+			} catch( CloneNotSupportedException e ) {
+				throw new InternalError( e );
+			}
+		}
+		
+		/**
+		 * Returns a string representation of this map. This method delegates to {@link #toJSON()}
+		 * for a JSON-formatted output.
+		 *
+		 * @return a string representation of this map
+		 */
+		@Override
+		public String toString() { return toJSON(); }
+		
+		/**
+		 * Writes the JSON representation of this map to the given {@link JsonWriter}, with the keys in ascending order.
+		 * Keys are output as JSON names (or 'null' for the null key) and values as their corresponding JSON values.
+		 *
+		 * @param json The JsonWriter to write to.
+		 */
+		@Override
+		public void toJSON( JsonWriter json ) {
+			json.preallocate( size() * 10 );
+			json.enterObject();
+			
+			if( hasNullKey ) json.name().value( nullKeyValue );
+			
+			for( int token = -1; ( token = unsafe_token( token ) ) != -1; )
+			     json.name( keys[ token ] ).value( values[ token ] );
+			
+			json.exitObject();
+		}
+		
+		/**
+		 * Creates a token from an internal array index. The token encodes the map's current version
+		 * and the index.
+		 *
+		 * @param index The internal array index.
+		 * @return A long token combining version and index.
+		 */
+		protected long token( int index ) { return ( long ) _version << VERSION_SHIFT | ( index ); }
+		
+		/**
+		 * Extracts the internal array index from a token.
+		 *
+		 * @param token The long token.
+		 * @return The internal array index.
+		 */
+		protected int index( long token ) { return ( int ) ( token ); }
+		
+		/**
+		 * Extracts the version from a token.
+		 *
+		 * @param token The long token.
+		 * @return The version encoded in the token.
+		 */
+		protected int version( long token ) { return ( int ) ( token >>> VERSION_SHIFT ); }
+	}
+	
+	/**
+	 * A live, read-only view of the keys of a map within a range, as returned by {@link R#headMap}, {@link R#tailMap}
+	 * and {@link R#subMap}. It reflects later modifications of the map, and its tokens are tokens of the map.
+	 * The null key is outside of every range.
+	 */
+	class View implements JsonWriter.Source {
+		
+		/**
+		 * The viewed map.
+		 */
+		public final R map;
+		
+		private final boolean hasFrom, fromInclusive, hasTo, toInclusive;
+		private final int    from, to;
+		
+		View( R map, boolean hasFrom, int from, boolean fromInclusive, boolean hasTo, int to, boolean toInclusive ) {
+			this.map           = map;
+			this.hasFrom       = hasFrom;
+			this.from          = from;
+			this.fromInclusive = fromInclusive;
+			this.hasTo         = hasTo;
+			this.to            = to;
+			this.toInclusive   = toInclusive;
+		}
+		
+		/**
+		 * Returns {@code true} if the given key lies within the range of this view.
+		 *
+		 * @param key The key.
+		 * @return {@code true} if the key is within the range.
+		 */
+		public boolean inRange( int key ) { return !tooLow( key ) && !tooHigh( key ); }
+		
+		private boolean tooLow( int key ) {
+			return hasFrom && ( fromInclusive ?
+			                    key < from :
+			                    key <= from );
+		}
+		
+		private boolean tooHigh( int key ) {
+			return hasTo && ( toInclusive ?
+			                  to < key :
+			                  to <= key );
+		}
+		
+		/**
+		 * Returns the number of keys within the range, computed from two {@link R#rank} lookups.
+		 *
+		 * @return The number of keys within the range.
+		 */
+		public int size() {
+			int lo = !hasFrom ?
+			         0 :
+			         fromInclusive ?
+			         rankBelow( from ) :
+			         map.rank( from );
+			int hi = !hasTo ?
+			         map._count :
+			         toInclusive ?
+			         map.rank( to ) :
+			         rankBelow( to );
+			return Math.max( 0, hi - lo );
+		}
+		
+		/**
+		 * Returns the number of keys strictly less than the given key.
+		 */
+		private int rankBelow( int key ) {
+			return map.rank( key ) - (
+					map.tokenOf( key ) == R.INVALID_TOKEN ?
+					0 :
+					1 );
+		}
+		
+		/**
+		 * Returns {@code true} if there are no keys within the range.
+		 *
+		 * @return {@code true} if the view is empty.
+		 */
+		public boolean isEmpty() { return token() == R.INVALID_TOKEN; }
+		
+		/**
+		 * Returns {@code true} if the key is within the range and present in the map.
+		 *
+		 * @param key The key.
+		 * @return {@code true} if the view contains the key.
+		 */
+		public boolean containsKey( int key ) { return tokenOf( key ) != R.INVALID_TOKEN; }
+		
+		/**
+		 * Returns the token of the key if it is within the range and present in the map, otherwise {@code INVALID_TOKEN}.
+		 *
+		 * @param key The key.
+		 * @return The token of the key, or {@code INVALID_TOKEN}.
+		 */
+		public long tokenOf( int key ) {
+			return inRange( key ) ?
+			       map.tokenOf( key ) :
+			       R.INVALID_TOKEN;
+		}
+		
+		/**
+		 * Returns the token of the smallest key within the range, or {@code INVALID_TOKEN} if there is none.
+		 *
+		 * @return The token of the first entry, or {@code INVALID_TOKEN}.
+		 */
+		public long token() {
+			long token = !hasFrom ?
+			             map.token() :
+			             fromInclusive ?
+			             map.ceilingToken( from ) :
+			             map.higherToken( from );
+			return token == R.INVALID_TOKEN || map.isKeyNull( token ) ?
+			       R.INVALID_TOKEN :
+			       bounded( token );
+		}
+		
+		/**
+		 * Returns the token of the next greater key within the range after the given token, or {@code INVALID_TOKEN}
+		 * if there is none.
+		 *
+		 * @param token The current token. Must not be {@code INVALID_TOKEN}.
+		 * @return The token of the next entry, or {@code INVALID_TOKEN}.
+		 * @throws ConcurrentModificationException If the map has been modified since the token was acquired.
+		 */
+		public long token( long token ) {
+			token = map.token( token );
+			return token == R.INVALID_TOKEN || map.isKeyNull( token ) ?
+			       R.INVALID_TOKEN :
+			       bounded( token );
+		}
+		
+		/**
+		 * Returns the token of the greatest key within the range, or {@code INVALID_TOKEN} if there is none.
+		 *
+		 * @return The token of the last entry, or {@code INVALID_TOKEN}.
+		 */
+		public long lastToken() {
+			long token = !hasTo ?
+			             map.lastToken() :
+			             toInclusive ?
+			             map.floorToken( to ) :
+			             map.lowerToken( to );
+			return token == R.INVALID_TOKEN || tooLow( map.key( token ) ) ?
+			       R.INVALID_TOKEN :
+			       token;
+		}
+		
+		/**
+		 * Returns the token of the next smaller key within the range before the given token, or {@code INVALID_TOKEN}
+		 * if there is none.
+		 *
+		 * @param token The current token. Must not be {@code INVALID_TOKEN}.
+		 * @return The token of the previous entry, or {@code INVALID_TOKEN}.
+		 * @throws ConcurrentModificationException If the map has been modified since the token was acquired.
+		 */
+		public long prevToken( long token ) {
+			token = map.prevToken( token );
+			return token == R.INVALID_TOKEN || tooLow( map.key( token ) ) ?
+			       R.INVALID_TOKEN :
+			       token;
+		}
+		
+		private long bounded( long token ) {
+			return token == R.INVALID_TOKEN || tooHigh( map.key( token ) ) ?
+			       R.INVALID_TOKEN :
+			       token;
+		}
+		
+		/**
+		 * Returns the key of the given token.
+		 *
+		 * @param token The token of an entry within the range.
+		 * @return The key.
+		 */
+		public int key( long token ) { return map.key( token ); }
+		
+		/**
+		 * Returns the value of the given token.
+		 *
+		 * @param token The token of an entry within the range.
+		 * @return The value.
+		 */
+		public int value( long token ) { return map.value( token ); }
+		
+		@Override
+		public String toString() { return toJSON(); }
+		
+		@Override
+		public void toJSON( JsonWriter json ) {
+			json.enterObject();
+			
+			for( long token = token(); token != R.INVALID_TOKEN; token = token( token ) )
+			     json.name( map.key( token ) ).value( map.value( token ) );
+			
+			json.exitObject();
+		}
+	}
+	
+	/**
+	 * A concrete mutable implementation of {@link IntIntSortedMap.R} that allows adding,
+	 * removing, and updating key-value mappings for primitive keys and values.
+	 * This class manages splitting, rebalancing and the leaf and node pools.
+	 */
+	class RW extends R {
+		
+		/**
+		 * The number of leaves handed out, free ones included.
+		 */
+		protected int leaves;
+		/**
+		 * The head of the free leaves list, linked through {@code leafNext}, or -1.
+		 */
+		protected int freeLeaf = -1;
+		/**
+		 * The number of internal nodes handed out, free ones included.
+		 */
+		protected int nodes;
+		/**
+		 * The head of the free nodes list, linked through the first child slot, or -1.
+		 */
+		protected int freeNode = -1;
+		
+		/**
+		 * The internal nodes on the path from the root to the current leaf, by level from the root.
+		 */
+		private int[] path  = new int[ MAX_HEIGHT ];
+		/**
+		 * The child taken at each node of {@link #path}.
+		 */
+		private int[] taken = new int[ MAX_HEIGHT ];
+		
+		/**
+		 * Constructs an empty {@code RW} with a default initial capacity.
+		 */
+		public RW() { this( 0 ); }
+		
+		/**
+		 * Constructs an empty {@code RW} with the specified initial capacity.
+		 *
+		 * @param capacity The initial number of entries the map can hold without allocating.
+		 */
+		public RW( int capacity ) { if( capacity > 0 ) ensureCapacity( capacity ); }
+		
+		
+		/**
+		 * Associates the specified value with the specified boxed key in this map.
+		 * If the map previously contained a mapping for the key, the old value is replaced.
+		 * If the key is {@code null}, the null key mapping is updated or added.
+		 *
+		 * @param key   The key with which the specified value is to be associated.
+		 * @param value The value to be associated with the specified key.
+		 * @return {@code true} if a new key was added, {@code false} if an existing key's value was updated.
+		 */
+		public boolean put(  Integer  key, int value ) {
+			return key == null ?
+			       put( value ) :
+			       put( ( int ) key, value );
+		}
+		
+		
+		/**
+		 * Associates the specified value with the {@code null} key in this map.
+		 * If the map previously contained a mapping for the null key, the old value is replaced.
+		 *
+		 * @param value The value to be associated with the null key.
+		 * @return {@code true} if the null key mapping was added, {@code false} if its value was updated.
+		 */
+		public boolean put( int value ) {
+			boolean ret = !hasNullKey;
+			hasNullKey   = true;
+			nullKeyValue = value;
+			_version++;
+			return ret;
+		}
+		
+		
+		/**
+		 * Associates the specified value with the specified primitive key in this map.
+		 * If the map previously contained a mapping for the key, the old value is replaced.
+		 *
+		 * @param key   The key with which the specified value is to be associated.
+		 * @param value The value to be associated with the specified key.
+		 * @return {@code true} if a new key was added, {@code false} if an existing key's value was updated.
+		 */
+		public boolean put( int key, int value ) {
+			if( keys == null ) ensureCapacity( LEAF );
+			
+			int leaf = descend( key );
+			int from = leaf << LEAF_SHIFT;
+			int size = leafSize[ leaf ];
+			int slot = lowerBound( keys, from, size, key );
+			
+			_version++;
+			if( slot < size && keys[ from + slot ] == key ) {
+				values[ from + slot ] = value;
+				return false;
+			}
+			
+			_count++;
+			for( int level = 0; level < height; level++ ) counts[ path[ level ] * NODE + taken[ level ] ]++;
+			
+			if( size < LEAF ) {
+				insert( from, size, slot, key, value );
+				leafSize[ leaf ] = size + 1;
+				return true;
+			}
+			
+			int right = newLeaf();
+			int dst = right << LEAF_SHIFT;
+			
+			if( slot == LEAF && leafNext[ leaf ] == -1 ) { // an append past the last key starts a new leaf
+				keys[ dst ]       = key;
+				values[ dst ]     = value;
+				leafSize[ right ] = 1;
+			}
+			else {
+				int half = LEAF / 2;
+				System.arraycopy( keys, from + half, keys, dst, LEAF - half );
+				System.arraycopy( values, from + half, values, dst, LEAF - half );
+				leafSize[ leaf ]  = half;
+				leafSize[ right ] = LEAF - half;
+				
+				if( slot <= half ) {
+					insert( from, half, slot, key, value );
+					leafSize[ leaf ]++;
+				}
+				else {
+					insert( dst, LEAF - half, slot - half, key, value );
+					leafSize[ right ]++;
+				}
+			}
+			
+			int next = leafNext[ leaf ];
+			leafNext[ right ] = next;
+			leafPrev[ right ] = leaf;
+			leafNext[ leaf ]  = right;
+			if( next == -1 ) lastLeaf = right;
+			else leafPrev[ next ] = right;
+			
+			addChild( height - 1, leaf, leafSize[ leaf ], keys[ dst ], right, leafSize[ right ] );
+			return true;
+		}
+		
+		/**
+		 * Inserts the entry at {@code slot} of the {@code size} entries starting at {@code from}, shifting the following ones.
+		 */
+		private void insert( int from, int size, int slot, int key, int value ) {
+			int i = from + slot;
+			System.arraycopy( keys, i, keys, i + 1, size - slot );
+			System.arraycopy( values, i, values, i + 1, size - slot );
+			keys[ i ]   = key;
+			values[ i ] = value;
+		}
+		
+		/**
+		 * Walks from the root to the leaf covering the key, recording the nodes and the children taken in {@link #path}
+		 * and {@link #taken}.
+		 *
+		 * @return The leaf.
+		 */
+		private int descend( int key ) {
+			int node = root;
+			for( int level = 0; level < height; level++ ) {
+				int from  = node * NODE;
+				int child = upperBound( separators, from, nodeSize[ node ] - 1, key );
+				path[ level ]  = node;
+				taken[ level ] = child;
+				node           = children[ from + child ];
+			}
+			return node;
+		}
+		
+		/**
+		 * Inserts {@code right}, which was split off {@code left}, into the parent of {@code left} at the given level,
+		 * splitting full parents up to the root and growing a new root if the root itself was split.
+		 *
+		 * @param level      The level of the parent in {@link #path}, -1 if {@code left} is the root.
+		 * @param left       The node or leaf that was split.
+		 * @param leftCount  The number of entries below {@code left}.
+		 * @param separator  The least key below {@code right}.
+		 * @param right      The new node or leaf.
+		 * @param rightCount The number of entries below {@code right}.
+		 */
+		private void addChild( int level, int left, int leftCount, int separator, int right, int rightCount ) {
+			for( ; ; level-- ) {
+				if( level < 0 ) {
+					int node = newNode();
+					int from = node * NODE;
+					children[ from ]     = left;
+					children[ from + 1 ] = right;
+					counts[ from ]       = leftCount;
+					counts[ from + 1 ]   = rightCount;
+					separators[ from ]   = separator;
+					nodeSize[ node ]     = 2;
+					root                 = node;
+					height++;
+					return;
+				}
+				
+				int node = path[ level ];
+				int from = node * NODE;
+				int slot = taken[ level ];
+				int size = nodeSize[ node ];
+				counts[ from + slot ] = leftCount;
+				
+				if( size < NODE ) {
+					System.arraycopy( separators, from + slot, separators, from + slot + 1, size - 1 - slot );
+					System.arraycopy( children, from + slot + 1, children, from + slot + 2, size - 1 - slot );
+					System.arraycopy( counts, from + slot + 1, counts, from + slot + 2, size - 1 - slot );
+					separators[ from + slot ]   = separator;
+					children[ from + slot + 1 ] = right;
+					counts[ from + slot + 1 ]   = rightCount;
+					nodeSize[ node ]            = size + 1;
+					return;
+				}
+				
+				// Split the full node: lay out its NODE + 1 children in temporary arrays, keep the lower half, move the upper half to a new node.
+				int[] seps = new int[ NODE ];
+				int[] kids = new int[ NODE + 1 ];
+				int[] cnts = new int[ NODE + 1 ];
+				System.arraycopy( separators, from, seps, 0, slot );
+				seps[ slot ] = separator;
+				System.arraycopy( separators, from + slot, seps, slot + 1, NODE - 1 - slot );
+				System.arraycopy( children, from, kids, 0, slot + 1 );
+				kids[ slot + 1 ] = right;
+				System.arraycopy( children, from + slot + 1, kids, slot + 2, NODE - 1 - slot );
+				System.arraycopy( counts, from, cnts, 0, slot + 1 );
+				cnts[ slot + 1 ] = rightCount;
+				System.arraycopy( counts, from + slot + 1, cnts, slot + 2, NODE - 1 - slot );
+				
+				int sibling = newNode();
+				from = node * NODE;
+				int dst  = sibling * NODE;
+				int half = ( NODE + 1 ) / 2 + 1;
+				
+				System.arraycopy( seps, 0, separators, from, half - 1 );
+				System.arraycopy( kids, 0, children, from, half );
+				System.arraycopy( cnts, 0, counts, from, half );
+				nodeSize[ node ] = half;
+				
+				System.arraycopy( seps, half, separators, dst, NODE - half );
+				System.arraycopy( kids, half, children, dst, NODE + 1 - half );
+				System.arraycopy( cnts, half, counts, dst, NODE + 1 - half );
+				nodeSize[ sibling ] = NODE + 1 - half;
+				
+				left       = node;
+				leftCount  = sum( cnts, 0, half );
+				separator  = seps[ half - 1 ];
+				right      = sibling;
+				rightCount = sum( cnts, half, NODE + 1 );
+			}
+		}
+		
+		private static int sum( int[] src, int from, int to ) {
+			int sum = 0;
+			while( from < to ) sum += src[ from++ ];
+			return sum;
+		}
+		
+		
+		/**
+		 * Removes the mapping for the specified boxed key from this map if present.
+		 * If the key is {@code null}, the null key mapping is removed.
+		 *
+		 * @param key The key whose mapping is to be removed from the map.
+		 * @return {@code true} if the map contained a mapping for the specified key.
+		 */
+		public boolean remove(  Integer  key ) {
+			return key == null ?
+			       removeNullKey() :
+			       remove( ( int ) key );
+		}
+		
+		
+		/**
+		 * Removes the mapping for the {@code null} key from this map if present.
+		 *
+		 * @return {@code true} if the null key mapping was present and removed.
+		 */
+		public boolean removeNullKey() {
+			if( !hasNullKey ) return false;
+			hasNullKey = false;
+			_version++;
+			return true;
+		}
+		
+		
+		/**
+		 * Removes the mapping for the specified primitive key from this map if present.
+		 *
+		 * @param key The primitive key whose mapping is to be removed from the map.
+		 * @return {@code true} if the map contained a mapping for the specified key.
+		 */
+		public boolean remove( int key ) {
+			if( _count == 0 ) return false;
+			
+			int leaf = descend( key );
+			int from = leaf << LEAF_SHIFT;
+			int size = leafSize[ leaf ];
+			int slot = lowerBound( keys, from, size, key );
+			if( size <= slot || keys[ from + slot ] != key ) return false;
+			
+			_version++;
+			_count--;
+			for( int level = 0; level < height; level++ ) counts[ path[ level ] * NODE + taken[ level ] ]--;
+			
+			int i = from + slot;
+			System.arraycopy( keys, i + 1, keys, i, size - 1 - slot );
+			System.arraycopy( values, i + 1, values, i, size - 1 - slot );
+			leafSize[ leaf ] = --size;
+			
+			if( height == 0 || LEAF / 2 <= size ) return true;
+			
+			// Rebalance the leaf, then every node left underfull by a merge below it, up to the root.
+			for( int level = height - 1; rebalance( level ) && 0 < level && nodeSize[ path[ level ] ] < NODE / 2; ) level--;
+			
+			while( 0 < height && nodeSize[ root ] == 1 ) {
+				int old = root;
+				root = children[ old * NODE ];
+				height--;
+				freeNode( old );
+			}
+			return true;
+		}
+		
+		/**
+		 * Rebalances the child taken at {@code path[ level ]} with an adjacent sibling: moves entries from the sibling
+		 * if the two do not fit into one, otherwise merges them and removes the right one from the parent.
+		 *
+		 * @param level The level of the parent in {@link #path}.
+		 * @return {@code true} if the children were merged, so the parent lost a child.
+		 */
+		private boolean rebalance( int level ) {
+			int parent = path[ level ];
+			int from   = parent * NODE;
+			int slot   = taken[ level ];
+			if( slot == nodeSize[ parent ] - 1 ) slot--; // the last child pairs with its left sibling
+			
+			int left  = children[ from + slot ];
+			int right = children[ from + slot + 1 ];
+			boolean merged = level == height - 1 ?
+			                 rebalanceLeaves( left, right ) :
+			                 rebalanceNodes( left, right, separators[ from + slot ] );
+			
+			if( merged ) {
+				int size = nodeSize[ parent ];
+				counts[ from + slot ] += counts[ from + slot + 1 ];
+				System.arraycopy( separators, from + slot + 1, separators, from + slot, size - 2 - slot );
+				System.arraycopy( children, from + slot + 2, children, from + slot + 1, size - 2 - slot );
+				System.arraycopy( counts, from + slot + 2, counts, from + slot + 1, size - 2 - slot );
+				nodeSize[ parent ] = size - 1;
+				return true;
+			}
+			
+			if( level == height - 1 ) {
+				counts[ from + slot ]     = leafSize[ left ];
+				counts[ from + slot + 1 ] = leafSize[ right ];
+				separators[ from + slot ] = keys[ right << LEAF_SHIFT ];
+			}
+			else {
+				counts[ from + slot ]     = sum( counts, left * NODE, left * NODE + nodeSize[ left ] );
+				counts[ from + slot + 1 ] = sum( counts, right * NODE, right * NODE + nodeSize[ right ] );
+				separators[ from + slot ] = pending;
+			}
+			return false;
+		}
+		
+		/**
+		 * The separator that {@link #rebalanceNodes} moved up into the parent.
+		 */
+		private int pending;
+		
+		/**
+		 * Merges two adjacent leaves into the left one if they fit, otherwise evens out their entries.
+		 *
+		 * @return {@code true} if the leaves were merged and the right one freed.
+		 */
+		private boolean rebalanceLeaves( int left, int right ) {
+			int leftSize  = leafSize[ left ];
+			int rightSize = leafSize[ right ];
+			int l         = left << LEAF_SHIFT;
+			int r         = right << LEAF_SHIFT;
+			
+			if( leftSize + rightSize <= LEAF ) {
+				System.arraycopy( keys, r, keys, l + leftSize, rightSize );
+				System.arraycopy( values, r, values, l + leftSize, rightSize );
+				leafSize[ left ] = leftSize + rightSize;
+				
+				int next = leafNext[ right ];
+				leafNext[ left ] = next;
+				if( next == -1 ) lastLeaf = left;
+				else leafPrev[ next ] = left;
+				
+				freeLeaf( right );
+				return true;
+			}
+			
+			int half = ( leftSize + rightSize ) / 2;
+			if( leftSize < half ) { // move the first entries of the right leaf to the end of the left one
+				int n = half - leftSize;
+				System.arraycopy( keys, r, keys, l + leftSize, n );
+				System.arraycopy( values, r, values, l + leftSize, n );
+				System.arraycopy( keys, r + n, keys, r, rightSize - n );
+				System.arraycopy( values, r + n, values, r, rightSize - n );
+				leafSize[ left ]  = half;
+				leafSize[ right ] = rightSize - n;
+			}
+			else { // move the last entries of the left leaf to the front of the right one
+				int n = leftSize - half;
+				System.arraycopy( keys, r, keys, r + n, rightSize );
+				System.arraycopy( values, r, values, r + n, rightSize );
+				System.arraycopy( keys, l + half, keys, r, n );
+				System.arraycopy( values, l + half, values, r, n );
+				leafSize[ left ]  = half;
+				leafSize[ right ] = rightSize + n;
+			}
+			return false;
+		}
+		
+		/**
+		 * Merges two adjacent internal nodes into the left one, pulling down their separator, if they fit; otherwise
+		 * evens out their children and leaves the new separator in {@link #pending}.
+		 *
+		 * @return {@code true} if the nodes were merged and the right one freed.
+		 */
+		private boolean rebalanceNodes( int left, int right, int separator ) {
+			int leftSize  = nodeSize[ left ];
+			int rightSize = nodeSize[ right ];
+			int total     = leftSize + rightSize;
+			int l         = left * NODE;
+			int r         = right * NODE;
+			
+			if( total <= NODE ) {
+				separators[ l + leftSize - 1 ] = separator;
+				System.arraycopy( separators, r, separators, l + leftSize, rightSize - 1 );
+				System.arraycopy( children, r, children, l + leftSize, rightSize );
+				System.arraycopy( counts, r, counts, l + leftSize, rightSize );
+				nodeSize[ left ] = total;
+				freeNode( right );
+				return true;
+			}
+			
+			// Lay out both nodes with their separator between them, then cut the sequence in two even halves.
+			int[] seps = new int[ total - 1 ];
+			int[] kids = new int[ total ];
+			int[] cnts = new int[ total ];
+			System.arraycopy( separators, l, seps, 0, leftSize - 1 );
+			seps[ leftSize - 1 ] = separator;
+			System.arraycopy( separators, r, seps, leftSize, rightSize - 1 );
+			System.arraycopy( children, l, kids, 0, leftSize );
+			System.arraycopy( children, r, kids, leftSize, rightSize );
+			System.arraycopy( counts, l, cnts, 0, leftSize );
+			System.arraycopy( counts, r, cnts, leftSize, rightSize );
+			
+			int half = total / 2;
+			System.arraycopy( seps, 0, separators, l, half - 1 );
+			System.arraycopy( kids, 0, children, l, half );
+			System.arraycopy( cnts, 0, counts, l, half );
+			nodeSize[ left ] = half;
+			
+			pending = seps[ half - 1 ];
+			
+			System.arraycopy( seps, half, separators, r, total - half - 1 );
+			System.arraycopy( kids, half, children, r, total - half );
+			System.arraycopy( cnts, half, counts, r, total - half );
+			nodeSize[ right ] = total - half;
+			return false;
+		}
+		
+		
+		/**
+		 * Takes a leaf from the free list, or a new one from the pool, growing the pool if it is exhausted.
+		 */
+		private int newLeaf() {
+			int leaf = freeLeaf;
+			if( leaf != -1 ) freeLeaf = leafNext[ leaf ];
+			else {
+				if( leafSize.length == leaves ) growLeaves( leaves * 2 );
+				leaf = leaves++;
+			}
+			leafSize[ leaf ] = 0;
+			return leaf;
+		}
+		
+		private void freeLeaf( int leaf ) {
+			leafNext[ leaf ] = freeLeaf;
+			freeLeaf         = leaf;
+		}
+		
+		private void growLeaves( int capacity ) {
+			keys     = Arrays.copyOf( keys, capacity << LEAF_SHIFT );
+			values   = Arrays.copyOf( values, capacity << LEAF_SHIFT );
+			leafSize = Arrays.copyOf( leafSize, capacity );
+			leafNext = Arrays.copyOf( leafNext, capacity );
+			leafPrev = Arrays.copyOf( leafPrev, capacity );
+		}
+		
+		/**
+		 * Takes an internal node from the free list, or a new one from the pool, growing the pool if it is exhausted.
+		 */
+		private int newNode() {
+			int node = freeNode;
+			if( node != -1 ) freeNode = children[ node * NODE ];
+			else {
+				if( children == null ) growNodes( 4 );
+				else if( nodeSize.length == nodes ) growNodes( nodes * 2 );
+				node = nodes++;
+			}
+			nodeSize[ node ] = 0;
+			return node;
+		}
+		
+		private void freeNode( int node ) {
+			children[ node * NODE ] = freeNode;
+			freeNode                = node;
+		}
+		
+		private void growNodes( int capacity ) {
+			if( children == null ) {
+				separators = new int[ capacity * NODE ];
+				children   = new int[ capacity * NODE ];
+				counts     = new int[ capacity * NODE ];
+				nodeSize   = new int[ capacity ];
+				return;
+			}
+			separators = Arrays.copyOf( separators, capacity * NODE );
+			children   = Arrays.copyOf( children, capacity * NODE );
+			counts     = Arrays.copyOf( counts, capacity * NODE );
+			nodeSize   = Arrays.copyOf( nodeSize, capacity );
+		}
+		
+		
+		/**
+		 * Removes all of the mappings from this map, keeping the allocated pools.
+		 * The map will be empty after this call returns.
+		 */
+		public void clear() {
+			_version++;
+			
+			hasNullKey = false;
+			
+			if( keys == null ) return;
+			reset();
+		}
+		
+		/**
+		 * Makes the tree a single empty leaf and returns every other leaf and node to the pools.
+		 */
+		private void reset() {
+			_count    = 0;
+			height    = 0;
+			root      = 0;
+			firstLeaf = 0;
+			lastLeaf  = 0;
+			leaves    = 1;
+			freeLeaf  = -1;
+			nodes     = 0;
+			freeNode  = -1;
+			
+			leafSize[ 0 ] = 0;
+			leafNext[ 0 ] = -1;
+			leafPrev[ 0 ] = -1;
+		}
+		
+		
+		/**
+		 * Ensures that this map can store at least the specified number of entries without growing its leaf pool,
+		 * even with every leaf half full.
+		 *
+		 * @param capacity The minimum desired capacity.
+		 * @return The new actual capacity of the leaves.
+		 */
+		public int ensureCapacity( int capacity ) {
+			int leaves = Math.max( 1, ( capacity + LEAF / 2 - 1 ) / ( LEAF / 2 ) );
+			if( keys == null ) {
+				keys     = new int[ leaves << LEAF_SHIFT ];
+				values   = new int[ leaves << LEAF_SHIFT ];
+				leafSize = new int[ leaves ];
+				leafNext = new int[ leaves ];
+				leafPrev = new int[ leaves ];
+				reset();
+			}
+			else if( leafSize.length < leaves ) growLeaves( leaves );
+			return length();
+		}
+		
+		
+		/**
+		 * Rebuilds the tree with full leaves and nodes and releases the unused part of the pools.
+		 */
+		public void trim() { trim( size() ); }
+		
+		
+		/**
+		 * Rebuilds the tree with full leaves and nodes, so the leaves hold the entries in key order, and shrinks the
+		 * pools to fit, keeping room for at least {@code capacity} entries. Invalidates all tokens.
+		 *
+		 * @param capacity The target capacity.
+		 */
+		public void trim( int capacity ) {
+			if( capacity < _count ) throw new IllegalArgumentException( "capacity is less than Count." );
+			if( keys == null ) return;
+			
+			_version++;
+			
+			int[] src_keys   = new int[ _count ];
+			int[] src_values = new int[ _count ];
+			for( int token = -1, i = 0; ( token = unsafe_token( token ) ) != -1; i++ ) {
+				src_keys[ i ]   = keys[ token ];
+				src_values[ i ] = values[ token ];
+			}
+			
+			int leaves = Math.max( 1, ( Math.max( capacity, _count ) + LEAF - 1 ) >> LEAF_SHIFT );
+			keys       = new int[ leaves << LEAF_SHIFT ];
+			values     = new int[ leaves << LEAF_SHIFT ];
+			leafSize   = new int[ leaves ];
+			leafNext   = new int[ leaves ];
+			leafPrev   = new int[ leaves ];
+			separators = null;
+			children   = null;
+			counts     = null;
+			nodeSize   = null;
+			reset();
+			
+			build( src_keys, src_values, src_keys.length );
+		}
+		
+		/**
+		 * Fills the empty tree from keys in strictly ascending order, packing the leaves and nodes full.
+		 */
+		private void build( int[] src_keys, int[] src_values, int count ) {
+			if( count == 0 ) return;
+			
+			int n = ( count + LEAF - 1 ) >> LEAF_SHIFT;
+			if( leafSize.length < n ) growLeaves( n );
+			System.arraycopy( src_keys, 0, keys, 0, count );
+			System.arraycopy( src_values, 0, values, 0, count );
+			for( int leaf = 0; leaf < n; leaf++ ) {
+				leafSize[ leaf ] = Math.min( LEAF, count - ( leaf << LEAF_SHIFT ) );
+				leafNext[ leaf ] = leaf + 1 < n ?
+				                   leaf + 1 :
+				                   -1;
+				leafPrev[ leaf ] = leaf - 1;
+			}
+			leaves   = n;
+			lastLeaf = n - 1;
+			_count   = count;
+			
+			// Build each level above from the level below: `level` holds the nodes or leaves, their counts and least keys.
+			int[] level = new int[ n ];
+			int[] sizes = new int[ n ];
+			int[] least = new int[ n ];
+			for( int leaf = 0; leaf < n; leaf++ ) {
+				level[ leaf ] = leaf;
+				sizes[ leaf ] = leafSize[ leaf ];
+				least[ leaf ] = keys[ leaf << LEAF_SHIFT ];
+			}
+			
+			while( 1 < n ) {
+				int m = ( n + NODE - 1 ) / NODE;
+				
+				for( int i = 0, c = 0; i < m; i++ ) {
+					int node = newNode();
+					int from = node * NODE;
+					int take = ( n - c ) / ( m - i ); // spread the children evenly among the remaining nodes
+					int sum  = 0;
+					int first = least[ c ];
+					for( int j = 0; j < take; j++, c++ ) {
+						children[ from + j ] = level[ c ];
+						counts[ from + j ]   = sizes[ c ];
+						if( 0 < j ) separators[ from + j - 1 ] = least[ c ];
+						sum += sizes[ c ];
+					}
+					nodeSize[ node ] = take;
+					level[ i ]       = node;
+					sizes[ i ]       = sum;
+					least[ i ]       = first;
+				}
+				n = m;
+				height++;
+			}
+			root = level[ 0 ];
+		}
+		
+		
+		@Override
+		public RW clone() {
+			RW dst = ( RW ) super.clone();
+			dst.path  = new int[ MAX_HEIGHT ];
+			dst.taken = new int[ MAX_HEIGHT ];
+			return dst;
+		}
+	}
+}
\ No newline at end of file
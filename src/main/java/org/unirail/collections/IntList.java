@@ -20,12 +20,31 @@ package org.unirail.collections;
 import org.unirail.JsonWriter;
 
 import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
 
 /**
  * Defines a contract for a list specifically designed for primitive values.
  */
 public interface IntList {
 	
+	/**
+	 * Receives the values visited by {@link R#forEach(Consumer)}.
+	 */
+	@FunctionalInterface
+	interface Consumer {
+		void accept( int value );
+	}
+	
+	/**
+	 * Tests the values visited by {@link R#forEachWhile(Predicate)}.
+	 */
+	@FunctionalInterface
+	interface Predicate {
+		boolean test( int value );
+	}
+	
 	/**
 	 * Read-only base class for a primitive value list implementation providing core functionality.
 	 */
@@ -172,6 +191,51 @@ public interface IntList {
 		 */
 		public int lastIndexOf( int value ) { return Array.lastIndexOf( values, ( int ) value, 0, size ); }
 		
+		/**
+		 * Returns a spliterator over the elements of the list, in order. It splits the index range in halves and reports
+		 * {@code ORDERED}, {@code SIZED}, {@code SUBSIZED} and {@code NONNULL}. The list must not be modified while it is in use.
+		 *
+		 * @return A spliterator over the elements.
+		 */
+		public Spliterator.OfInt spliterator() { return new Array.IntSpliterator( 0, size, Spliterator.ORDERED | Spliterator.NONNULL, this::get ); }
+		
+		/**
+		 * Returns a sequential {@link IntStream} over the elements of the list, without boxing.
+		 *
+		 * @return A stream over the elements.
+		 */
+		public IntStream stream() { return StreamSupport.intStream( spliterator(), false ); }
+		
+		/**
+		 * Returns a parallel {@link IntStream} over the elements of the list, which runs on the common fork-join pool.
+		 *
+		 * @return A parallel stream over the elements.
+		 */
+		public IntStream parallelStream() { return StreamSupport.intStream( spliterator(), true ); }
+		
+		/**
+		 * Passes every value to the action, in order. Loops directly over the values array, without tokens or version checks, so the
+		 * action must not modify the list.
+		 *
+		 * @param action The receiver of the values.
+		 */
+		public void forEach( Consumer action ) {
+			for( int i = 0; i < size; i++ )
+				action.accept( values[ i ] );
+		}
+		
+		/**
+		 * Passes the values to the predicate, in the order of {@link #forEach(Consumer)}, until it returns {@code false}.
+		 *
+		 * @param predicate The test of the values.
+		 * @return {@code true} if the predicate accepted every value, {@code false} if it stopped the iteration.
+		 */
+		public boolean forEachWhile( Predicate predicate ) {
+			for( int i = 0; i < size; i++ )
+				if( !predicate.test( values[ i ] ) ) return false;
+			return true;
+		}
+		
 		/**
 		 * Compares this list with another object for equality.
 		 *
@@ -20,6 +20,10 @@ import org.unirail.JsonWriter;
 
 import java.util.Arrays;
 import java.util.ConcurrentModificationException;
+import java.util.Spliterator;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
 
 /**
  * A specialized map for mapping primitive `int` keys to object values, using a memory-efficient,
@@ -79,6 +83,38 @@ import java.util.ConcurrentModificationException;
  */
 public interface IntObjectMap {
 	
+	/**
+	 * Receives the entries visited by {@link R#forEach(Consumer)}.
+	 */
+	@FunctionalInterface
+	interface Consumer< V > {
+		void accept( int key, V value );
+	}
+	
+	/**
+	 * Tests the entries visited by {@link R#forEachWhile(Predicate)}.
+	 */
+	@FunctionalInterface
+	interface Predicate< V > {
+		boolean test( int key, V value );
+	}
+	
+	/**
+	 * Receives the keys visited by {@link R#forEachKey(KeyConsumer)}.
+	 */
+	@FunctionalInterface
+	interface KeyConsumer {
+		void accept( int key );
+	}
+	
+	/**
+	 * Receives the values visited by {@link R#forEachValue(ValueConsumer)}.
+	 */
+	@FunctionalInterface
+	interface ValueConsumer< V > {
+		void accept( V value );
+	}
+	
 	/**
 	 * An abstract base class providing read-only operations for the dual-region hash map.
 	 * It implements the core functionalities and state management, offering methods for
@@ -102,11 +138,30 @@ public interface IntObjectMap {
 		 * is the 0-based index of the head of a collision chain. A value of `0` indicates an empty bucket.
 		 */
 		protected int[]         _buckets;
+		/**
+		 * The {@link Array#modMultiplier(int)} of {@code _buckets.length}, used by {@link #bucketIndex(int)}
+		 * to reduce hashes to bucket indices without an integer division.
+		 */
+		protected long          _bucketsMultiplier;
 		/**
 		 * An array used for collision chaining. For an entry at index `i` in the `lo Region`,
 		 * `links[i]` stores the 0-based index of the next element in the same collision chain.
 		 */
 		protected int[]         links= Array.EqualHashOf._ints.O;
+		
+		/**
+		 * The strategy that hashes keys into buckets. Defaults to {@link Array.Hash#IDENTITY};
+		 * replace it with {@link RW#hash_K(Array.Hash)} for keys whose low bits are poorly distributed.
+		 */
+		protected Array.Hash hash_K = Array.Hash.IDENTITY;
+		
+		/**
+		 * Returns the strategy currently used to hash keys into buckets.
+		 *
+		 * @return The key hashing strategy.
+		 */
+		public Array.Hash hash_K() { return hash_K; }
+		
 		/**
 		 * Stores the primitive keys of the map. This array is logically divided into a `lo Region`
 		 * (for collision-involved entries) and a `hi Region` (for non-colliding entries).
@@ -283,7 +338,7 @@ public interface IntObjectMap {
 		 */
 		public long tokenOf( int key ) {
 			if( _buckets == null || _count() == 0 ) return INVALID_TOKEN;
-			int index = ( _buckets[ bucketIndex( Array.hash( key ) ) ] ) - 1;
+			int index = ( _buckets[ bucketIndex( hash_K.hash( key ) ) ] ) - 1;
 			if( index < 0 ) return INVALID_TOKEN;
 			
 			for( int collisions = 0; ; ) {
@@ -416,6 +471,87 @@ public interface IntObjectMap {
 					values[ index( token ) ];
 		}
 		
+		/**
+		 * Returns a spliterator over the keys of the map, the null key excluded; check {@link #hasNullKey()}.
+		 * It splits the occupied slots of the {@code lo Region} and {@code hi Region} in halves, as if they were one
+		 * array, and reports {@code DISTINCT}, {@code SIZED}, {@code SUBSIZED} and {@code NONNULL}. The map must not be
+		 * modified while it is in use.
+		 *
+		 * @return A spliterator over the keys.
+		 */
+		public Spliterator.OfInt spliterator() {
+			int lo  = _lo_Size;
+			int gap = _count() == 0 ?
+			          0 :
+			          keys.length - _hi_Size - lo; // skips the free slots between the regions
+			return new Array.IntSpliterator( 0, _count(), Spliterator.DISTINCT | Spliterator.NONNULL, i -> key( i < lo ? i : i + gap ) );
+		}
+		
+		/**
+		 * Returns a sequential {@link IntStream} over the keys of the map, the null key excluded, without boxing. Call
+		 * {@code parallel()} on it to run it on the common fork-join pool. The map must not be modified while the stream
+		 * is in use.
+		 *
+		 * @return A stream over the keys.
+		 */
+		public IntStream keys() { return StreamSupport.intStream( spliterator(), false ); }
+		
+		/**
+		 * Passes every entry to the action, the null key excluded. Loops directly over the lo and hi regions of the key
+		 * and value arrays, without tokens or version checks, so the action must not modify the map.
+		 *
+		 * @param action The receiver of the entries.
+		 */
+		public void forEach( Consumer< ? super V > action ) {
+			if( _count() == 0 ) return;
+			for( int i = 0; i < _lo_Size; i++ )
+				action.accept( keys[ i ], values[ i ] );
+			for( int i = keys.length - _hi_Size; i < keys.length; i++ )
+				action.accept( keys[ i ], values[ i ] );
+		}
+		
+		/**
+		 * Passes every key to the action, the null key excluded, in the order of {@link #forEach(Consumer)}.
+		 *
+		 * @param action The receiver of the keys.
+		 */
+		public void forEachKey( KeyConsumer action ) {
+			if( _count() == 0 ) return;
+			for( int i = 0; i < _lo_Size; i++ )
+				action.accept( keys[ i ] );
+			for( int i = keys.length - _hi_Size; i < keys.length; i++ )
+				action.accept( keys[ i ] );
+		}
+		
+		/**
+		 * Passes every value to the action, the value of the null key excluded, in the order of
+		 * {@link #forEach(Consumer)}.
+		 *
+		 * @param action The receiver of the values.
+		 */
+		public void forEachValue( ValueConsumer< ? super V > action ) {
+			if( _count() == 0 ) return;
+			for( int i = 0; i < _lo_Size; i++ )
+				action.accept( values[ i ] );
+			for( int i = keys.length - _hi_Size; i < keys.length; i++ )
+				action.accept( values[ i ] );
+		}
+		
+		/**
+		 * Passes the entries to the predicate, in the order of {@link #forEach(Consumer)}, until it returns {@code false}.
+		 *
+		 * @param predicate The test of the entries.
+		 * @return {@code true} if the predicate accepted every entry, {@code false} if it stopped the iteration.
+		 */
+		public boolean forEachWhile( Predicate< ? super V > predicate ) {
+			if( _count() == 0 ) return true;
+			for( int i = 0; i < _lo_Size; i++ )
+				if( !predicate.test( keys[ i ], values[ i ] ) ) return false;
+			for( int i = keys.length - _hi_Size; i < keys.length; i++ )
+				if( !predicate.test( keys[ i ], values[ i ] ) ) return false;
+			return true;
+		}
+		
 		/**
 		 * Returns the value to which the specified boxed key is mapped,
 		 * or `null` if this map contains no mapping for the key.
@@ -610,7 +746,7 @@ public interface IntObjectMap {
 		 * @param hash The hash code of a key.
 		 * @return The index in the `_buckets` array.
 		 */
-		protected int bucketIndex( int hash ) { return ( hash & 0x7FFF_FFFF ) % _buckets.length; }
+		protected int bucketIndex( int hash ) { return Array.mod( hash & 0x7FFF_FFFF, _bucketsMultiplier, _buckets.length ); }
 		
 		/**
 		 * Packs an internal array index and the current map version into a single `long` token.
@@ -648,6 +784,29 @@ public interface IntObjectMap {
 	 */
 	class RW< V > extends R< V > {
 		
+		/**
+		 * The length of a collision chain that, when exceeded during an insertion, triggers a rehash
+		 * with the strategy supplied by {@link #forceNewHashCodes}.
+		 */
+		protected static final int                        HashCollisionThreshold = 100;
+		/**
+		 * An optional function that, when set, provides a new key hashing strategy once an insertion walks a
+		 * collision chain longer than {@link #HashCollisionThreshold}, e.g. {@code h -> Array.Hash.random()}.
+		 * This counters hash-flooding with keys crafted against the current strategy.
+		 */
+		public                Function< Array.Hash, Array.Hash > forceNewHashCodes      = null;
+		
+		/**
+		 * Replaces the strategy used to hash keys into buckets and redistributes the current entries under it.
+		 * This is a structural modification that invalidates all outstanding tokens.
+		 *
+		 * @param hash_K The new key hashing strategy, e.g. {@link Array.Hash#MURMUR} or {@link Array.Hash#random()}.
+		 */
+		public void hash_K( Array.Hash hash_K ) {
+			this.hash_K = hash_K;
+			if( _buckets != null ) resize( keys.length );
+		}
+		
 		/**
 		 * Constructs an empty map with a default initial capacity and value strategy.
 		 *
@@ -693,6 +852,7 @@ public interface IntObjectMap {
 			_version++;
 			
 			_buckets = new int[ capacity ];
+			_bucketsMultiplier = Array.modMultiplier( capacity );
 			keys     = new int[ capacity ];
 			values   = equal_hash_V.copyOf( null, capacity );
 			_lo_Size = 0;
@@ -753,14 +913,15 @@ public interface IntObjectMap {
 			if( _buckets == null ) initialize( 7 );
 			else if( _count() == keys.length ) resize( Array.prime( keys.length * 2 ) );
 			
-			int bucketIndex = bucketIndex( Array.hash( key ) );
+			int bucketIndex = bucketIndex( hash_K.hash( key ) );
 			int index       = _buckets[ bucketIndex ] - 1;
 			int dst_index;
 			
 			if( index == -1 )
 				dst_index = keys.length - 1 - _hi_Size++;
 			else {
-				for( int i = index, collisions = 0; ; ) {
+				int collisions = 0;
+				for( int i = index; ; ) {
 					if( keys[ i ] == ( int ) key ) {
 						values[ i ] = value;
 						_version++;
@@ -772,6 +933,14 @@ public interface IntObjectMap {
 					if( _lo_Size + 1 < collisions++ ) throw new ConcurrentModificationException( "Concurrent operations not supported." );
 				}
 				
+				if( HashCollisionThreshold < collisions && forceNewHashCodes != null ) {
+					Array.Hash hash = forceNewHashCodes.apply( hash_K );
+					if( hash != hash_K ) {
+						hash_K( hash );
+						return put( key, value );
+					}
+				}
+				
 				( links.length == ( dst_index = _lo_Size++ ) ?
 				  links = Arrays.copyOf( links, Math.max( 16, Math.min( _lo_Size * 2, keys.length ) ) ) :
 				  links )[ dst_index ] = index; // New entry points to the old head
@@ -821,7 +990,7 @@ public interface IntObjectMap {
 		 */
 		private void move( int src, int dst ) {
 			if( src == dst ) return;
-			int bucketIndex = bucketIndex( Array.hash( keys[ src ] ) );
+			int bucketIndex = bucketIndex( hash_K.hash( keys[ src ] ) );
 			int index       = _buckets[ bucketIndex ] - 1;
 			
 			if( index == src ) _buckets[ bucketIndex ] = ( int ) ( dst + 1 );
@@ -852,7 +1021,7 @@ public interface IntObjectMap {
 		 */
 		public V remove( int key ) {
 			if( _count() == 0 ) return null;
-			int removeBucketIndex = bucketIndex( Array.hash( key ) );
+			int removeBucketIndex = bucketIndex( hash_K.hash( key ) );
 			int removeIndex       = _buckets[ removeBucketIndex ] - 1;
 			if( removeIndex < 0 ) return null;
 			
@@ -1009,14 +1178,14 @@ public interface IntObjectMap {
 		 * @param value The value to copy.
 		 */
 		private void copy( int key, V value ) {
-			int bucketIndex = bucketIndex( Array.hash( key ) );
+			int bucketIndex = bucketIndex( hash_K.hash( key ) );
 			int index       = _buckets[ bucketIndex ] - 1;
 			int dst_index;
 			
 			if( index == -1 ) dst_index = keys.length - 1 - _hi_Size++;
 			else ( links.length == _lo_Size ?
 				  links = Arrays.copyOf( links, Math.max( 16, Math.min( _lo_Size * 2, keys.length ) ) ) :
-				  links )[ dst_index = _lo_Size++ ] = ( char ) ( index );
+				  links )[ dst_index = _lo_Size++ ] = index;
 			
 			keys[ dst_index ]       = key;
 			values[ dst_index ]     = value;
@@ -1052,4 +1221,402 @@ public interface IntObjectMap {
 	 */
 	@SuppressWarnings( "unchecked" )
 	static < V > Array.EqualHashOf< RW< V > > equal_hash() { return ( Array.EqualHashOf< RW< V > > ) RW.OBJECT; }
+	
+	/**
+	 * A read-write engine for {@link IntObjectMap} in the style of SwissTable, meant for maps with tens of millions of entries,
+	 * where following a collision chain costs a cache miss per hop.
+	 * <p>
+	 * It extends {@link RW}, so read-only consumers keep using {@link R} and a map switches engines by changing
+	 * only its constructor call:
+	 * <pre>{@code
+	 * IntObjectMap.RW< String > map = new IntObjectMap.Swiss<>( String.class, 1 << 24 ); // was: new IntObjectMap.RW<>( String.class, 1 << 24 )
+	 * }</pre>
+	 *
+	 * <h3>Layout</h3>
+	 * <ul>
+	 * <li>Slots are grouped by eight. The control bytes of a group are packed into one {@code long} of {@code ctrl}:
+	 *     byte {@code j} of {@code ctrl[ g ]} describes slot {@code g * 8 + j} of {@code keys} and {@code values}.</li>
+	 * <li>A control byte is {@link #EMPTY}, {@link #DELETED}, or, for an occupied slot, the low 7 bits of the key's hash.</li>
+	 * <li>A lookup selects a group from the remaining hash bits and compares the 7-bit tag against all eight control
+	 *     bytes at once with SWAR arithmetic on the {@code long}. Only slots whose tag matches touch {@code keys}.
+	 *     The lookup moves to the next group of a triangular sequence until a group with an {@link #EMPTY} byte is seen.</li>
+	 * <li>At most 7/8 of the slots are occupied or deleted, so every probe sequence reaches an empty slot.</li>
+	 * </ul>
+	 *
+	 * <h3>Tokens</h3>
+	 * The token protocol is the same as for {@link RW}: a token encodes the map version and the slot index.
+	 * Iteration walks occupied slots in table order, then the null key.
+	 *
+	 * @param <V> The type of values stored in the map.
+	 */
+	class Swiss< V > extends RW< V > {
+		
+		/**
+		 * Control bytes, eight slots per {@code long}, slot {@code g * 8 + j} in byte {@code j} of {@code ctrl[ g ]}.
+		 */
+		protected long[] ctrl;
+		
+		/**
+		 * The number of groups minus one. The number of groups is always a power of two.
+		 */
+		protected int groupMask;
+		
+		/**
+		 * The number of occupied slots.
+		 */
+		protected int assigned;
+		
+		/**
+		 * The number of {@link #EMPTY} slots that may still be filled before the table is rebuilt.
+		 */
+		private int growthLeft;
+		
+		/**
+		 * Control byte of a slot that has never been occupied. Terminates probe sequences.
+		 */
+		protected static final int EMPTY = 0x80;
+		
+		/**
+		 * Control byte of a slot whose entry was removed. Probe sequences continue past it.
+		 */
+		protected static final int DELETED = 0xFE;
+		
+		/**
+		 * The number of slots in a group, one per byte of a {@code long}.
+		 */
+		protected static final int GROUP_WIDTH = 8;
+		
+		/**
+		 * The largest supported number of groups.
+		 */
+		protected static final int MAX_GROUPS = 1 << 26;
+		
+		private static final long LSB       = 0x0101_0101_0101_0101L;
+		private static final long MSB       = 0x8080_8080_8080_8080L;
+		private static final long ALL_EMPTY = LSB * EMPTY;
+		
+		/**
+		 * Constructs an empty map with a default initial capacity and value strategy.
+		 *
+		 * @param clazzV A `Class` object representing the value type, used for array creation.
+		 */
+		public Swiss( Class< V > clazzV ) { this( Array.get( clazzV ), 0 ); }
+		
+		/**
+		 * Constructs an empty map able to hold {@code capacity} entries without resizing, with the default value strategy.
+		 *
+		 * @param clazzV   A `Class` object representing the value type.
+		 * @param capacity The expected number of entries.
+		 */
+		public Swiss( Class< V > clazzV, int capacity ) { this( Array.get( clazzV ), capacity ); }
+		
+		/**
+		 * Constructs an empty map with a default capacity and a custom value strategy.
+		 *
+		 * @param equal_hash_V The strategy for comparing and hashing values.
+		 */
+		public Swiss( Array.EqualHashOf< V > equal_hash_V ) { this( equal_hash_V, 0 ); }
+		
+		/**
+		 * Constructs an empty map able to hold {@code capacity} entries without resizing, with a custom value strategy.
+		 *
+		 * @param equal_hash_V The strategy for comparing and hashing values.
+		 * @param capacity     The expected number of entries.
+		 */
+		public Swiss( Array.EqualHashOf< V > equal_hash_V, int capacity ) {
+			super( equal_hash_V, 0 );
+			hash_K = Array.Hash.MURMUR;
+			if( capacity > 0 ) allocate( groups( capacity ) );
+		}
+		
+		/**
+		 * Returns the power-of-two number of groups needed to hold {@code capacity} entries at 7/8 load.
+		 */
+		private static int groups( int capacity ) {
+			long slots = ( long ) capacity * GROUP_WIDTH / 7 + 1;
+			return ( int ) Math.min( MAX_GROUPS, Array.nextPowerOf2( ( slots + GROUP_WIDTH - 1 ) / GROUP_WIDTH ) );
+		}
+		
+		/**
+		 * Allocates an empty table with the given power-of-two number of groups. Invalidates all tokens.
+		 */
+		private void allocate( int groups ) {
+			_version++;
+			int slots = groups * GROUP_WIDTH;
+			ctrl = new long[ groups ];
+			Arrays.fill( ctrl, ALL_EMPTY );
+			keys       = new int[ slots ];
+			values     = equal_hash_V.copyOf( null, slots );
+			groupMask  = groups - 1;
+			assigned   = 0;
+			growthLeft = slots - slots / 8;
+		}
+		
+		/**
+		 * Returns a word with the high bit set in every byte of {@code group} equal to {@code tag}.
+		 * A byte next to a true match may be reported as a false positive; callers confirm by comparing keys.
+		 */
+		private static long match( long group, int tag ) {
+			long x = group ^ LSB * tag;
+			return x - LSB & ~x & MSB;
+		}
+		
+		/**
+		 * Returns a word with the high bit set in every {@link #EMPTY} byte of {@code group}.
+		 */
+		private static long matchEmpty( long group ) { return group & ~group << 6 & MSB; }
+		
+		/**
+		 * Returns the control byte of the given slot.
+		 */
+		private int ctrlAt( int slot ) { return ( int ) ( ctrl[ slot >>> 3 ] >>> ( ( slot & 7 ) << 3 ) ) & 0xFF; }
+		
+		/**
+		 * Sets the control byte of the given slot.
+		 */
+		private void ctrlAt( int slot, int value ) {
+			int shift = ( slot & 7 ) << 3;
+			ctrl[ slot >>> 3 ] = ctrl[ slot >>> 3 ] & ~( 0xFFL << shift ) | ( long ) value << shift;
+		}
+		
+		@Override
+		protected int _count() { return assigned; }
+		
+		@Override
+		public int length() {
+			return ctrl == null ?
+			       0 :
+			       ctrl.length * GROUP_WIDTH;
+		}
+		
+		@Override
+		@SuppressWarnings( "unchecked" )
+		public boolean containsValue( Object value ) {
+			V v;
+			try { v = ( V ) value; } catch( Exception e ) { return false; }
+			if( hasNullKey && equal_hash_V.equals( nullKeyValue, v ) ) return true;
+			for( int token = -1; ( token = unsafe_token( token ) ) != -1; )
+				if( equal_hash_V.equals( values[ token ], v ) ) return true;
+			return false;
+		}
+		
+		@Override
+		public long tokenOf( int key ) {
+			if( assigned == 0 ) return INVALID_TOKEN;
+			
+			int hash = hash_K.hash( key ), tag = hash & 0x7F;
+			for( int g = hash >>> 7 & groupMask, step = 0; ; g = g + ++step & groupMask ) {
+				long group = ctrl[ g ];
+				for( long m = match( group, tag ); m != 0; m &= m - 1 ) {
+					int i = g << 3 | Long.numberOfTrailingZeros( m ) >>> 3;
+					if( keys[ i ] == key ) return token( i );
+				}
+				if( matchEmpty( group ) != 0 ) return INVALID_TOKEN;
+			}
+		}
+		
+		/**
+		 * Returns the index of the next occupied slot after the given one, in table order.
+		 *
+		 * @param token The current slot index, or -1 to start from the beginning.
+		 * @return The index of the next occupied slot, or -1 if there are no more non-null keys.
+		 */
+		@Override
+		public int unsafe_token( int token ) {
+			return assigned == 0 ?
+			       -1 :
+			       next( ctrl, token );
+		}
+		
+		@Override
+		public Spliterator.OfInt spliterator() { return Array.spliterator( size() - ( hasNullKey() ? 1 : 0 ), this::unsafe_token, this::key ); }
+		
+		@Override
+		public void forEach( Consumer< ? super V > action ) {
+			for( int t = -1; ( t = unsafe_token( t ) ) != -1; )
+				action.accept( key( t ), value( t ) );
+		}
+		
+		@Override
+		public void forEachKey( KeyConsumer action ) {
+			for( int t = -1; ( t = unsafe_token( t ) ) != -1; )
+				action.accept( key( t ) );
+		}
+		
+		@Override
+		public void forEachValue( ValueConsumer< ? super V > action ) {
+			for( int t = -1; ( t = unsafe_token( t ) ) != -1; )
+				action.accept( value( t ) );
+		}
+		
+		@Override
+		public boolean forEachWhile( Predicate< ? super V > predicate ) {
+			for( int t = -1; ( t = unsafe_token( t ) ) != -1; )
+				if( !predicate.test( key( t ), value( t ) ) ) return false;
+			return true;
+		}
+		
+		@Override
+		public void toJSON( JsonWriter json ) {
+			json.preallocate( size() * 15 );
+			json.enterObject();
+			
+			if( hasNullKey ) json.name().value( nullKeyValue );
+			
+			for( int token = -1; ( token = unsafe_token( token ) ) != -1; )
+			     json.name( keys[ token ] ).value( values[ token ] );
+			
+			json.exitObject();
+		}
+		
+		@Override
+		public boolean put( int key, V value ) {
+			if( ctrl == null ) allocate( 1 );
+			
+			int hash = hash_K.hash( key ), tag = hash & 0x7F, probes = 0;
+			for( int g = hash >>> 7 & groupMask, step = 0; ; g = g + ++step & groupMask, probes += GROUP_WIDTH ) {
+				long group = ctrl[ g ];
+				for( long m = match( group, tag ); m != 0; m &= m - 1 ) {
+					int i = g << 3 | Long.numberOfTrailingZeros( m ) >>> 3;
+					if( keys[ i ] == key ) {
+						values[ i ] = value;
+						_version++;
+						return false;
+					}
+				}
+				if( matchEmpty( group ) != 0 ) break;
+			}
+			
+			if( HashCollisionThreshold < probes && forceNewHashCodes != null ) {
+				Array.Hash h = forceNewHashCodes.apply( hash_K );
+				if( h != hash_K ) {
+					hash_K( h );
+					return put( key, value );
+				}
+			}
+			
+			int i = findInsertSlot( hash );
+			if( growthLeft == 0 && ctrlAt( i ) == EMPTY ) {
+				rehash( assigned < length() / 16 * 7 ? // mostly DELETED slots: drop them without growing
+				        ctrl.length :
+				        ctrl.length << 1 );
+				i = findInsertSlot( hash );
+			}
+			
+			if( ctrlAt( i ) == EMPTY ) growthLeft--;
+			ctrlAt( i, tag );
+			keys[ i ]   = key;
+			values[ i ] = value;
+			assigned++;
+			_version++;
+			return true;
+		}
+		
+		/**
+		 * Returns the first {@link #EMPTY} or {@link #DELETED} slot on the probe sequence of the given hash.
+		 */
+		private int findInsertSlot( int hash ) {
+			for( int g = hash >>> 7 & groupMask, step = 0; ; g = g + ++step & groupMask ) {
+				long free = ctrl[ g ] & MSB;
+				if( free != 0 ) return g << 3 | Long.numberOfTrailingZeros( free ) >>> 3;
+			}
+		}
+		
+		@Override
+		public V remove( int key ) {
+			long token = tokenOf( key );
+			if( token == INVALID_TOKEN ) return null;
+			
+			int i        = index( token );
+			V   oldValue = values[ i ];
+			values[ i ] = null;
+			
+			// A group that still has an EMPTY byte stops every lookup reaching it, so the slot can become EMPTY too.
+			if( matchEmpty( ctrl[ i >>> 3 ] ) != 0 ) {
+				ctrlAt( i, EMPTY );
+				growthLeft++;
+			}
+			else ctrlAt( i, DELETED );
+			
+			assigned--;
+			_version++;
+			return oldValue;
+		}
+		
+		@Override
+		public void hash_K( Array.Hash hash_K ) {
+			this.hash_K = hash_K;
+			if( ctrl != null ) rehash( ctrl.length );
+		}
+		
+		@Override
+		public void clear() {
+			_version++;
+			hasNullKey   = false;
+			nullKeyValue = null;
+			if( ctrl == null ) return;
+			Arrays.fill( ctrl, ALL_EMPTY );
+			Arrays.fill( values, null );
+			int slots = ctrl.length * GROUP_WIDTH;
+			assigned   = 0;
+			growthLeft = slots - slots / 8;
+		}
+		
+		@Override
+		public int ensureCapacity( int capacity ) {
+			if( capacity < 0 ) throw new IllegalArgumentException( "capacity is less than 0." );
+			if( ctrl == null ) allocate( groups( capacity ) );
+			else if( ctrl.length < groups( capacity ) ) rehash( groups( capacity ) );
+			return length();
+		}
+		
+		@Override
+		public void trim( int capacity ) {
+			if( capacity < _count() ) throw new IllegalArgumentException( "capacity is less than Count." );
+			if( ctrl == null ) return;
+			int groups = groups( Math.max( capacity, assigned ) );
+			if( groups < ctrl.length ) rehash( groups );
+		}
+		
+		/**
+		 * Re-inserts every entry into a new table with the given power-of-two number of groups,
+		 * which also drops all {@link #DELETED} slots. Invalidates all tokens.
+		 */
+		private void rehash( int groups ) {
+			if( MAX_GROUPS < groups ) throw new IllegalStateException( "Group count cannot exceed " + MAX_GROUPS );
+			long[] old_ctrl   = ctrl;
+			int[]  old_keys   = keys;
+			V[]    old_values = values;
+			
+			allocate( groups );
+			
+			for( int i = -1; ( i = next( old_ctrl, i ) ) != -1; ) {
+				int hash = hash_K.hash( old_keys[ i ] ), j = findInsertSlot( hash );
+				ctrlAt( j, hash & 0x7F );
+				keys[ j ]   = old_keys[ i ];
+				values[ j ] = old_values[ i ];
+				assigned++;
+				growthLeft--;
+			}
+		}
+		
+		/**
+		 * Returns the index of the next occupied slot of {@code ctrl} after {@code i}, or -1.
+		 */
+		private static int next( long[] ctrl, int i ) {
+			if( ctrl.length <= ++i >>> 3 ) return -1;
+			for( long full = ~ctrl[ i >>> 3 ] & MSB & -1L << ( ( i & 7 ) << 3 ); ; full = ~ctrl[ i >>> 3 ] & MSB ) {
+				if( full != 0 ) return i & ~7 | Long.numberOfTrailingZeros( full ) >>> 3;
+				if( ctrl.length <= ( i = ( i & ~7 ) + GROUP_WIDTH ) >>> 3 ) return -1;
+			}
+		}
+		
+		@Override
+		@SuppressWarnings( "unchecked" )
+		public Swiss< V > clone() {
+			Swiss< V > dst = ( Swiss< V > ) super.clone();
+			if( ctrl != null ) dst.ctrl = ctrl.clone();
+			return dst;
+		}
+	}
 }
\ No newline at end of file
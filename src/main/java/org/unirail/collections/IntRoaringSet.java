@@ -0,0 +1,1210 @@
+// Copyright 2025 Chikirev Sirguy, Unirail Group
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+// For inquiries, please contact: al8v5C6HU4UtqE9@gmail.com
+// GitHub Repository: https://github.com/AdHoc-Protocol
+
+package org.unirail.collections;
+
+import org.unirail.JsonWriter;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A compressed, ordered set of primitive `int` keys in the style of Roaring bitmaps: a few bytes per key, or a fraction of
+ * a byte for dense ranges, instead of the 12+ bytes per key of the hash table of {@link IntSet}.
+ * <p>
+ * The key space is split by the high 16 bits of the keys into chunks of 65536 keys. Every non-empty chunk has one
+ * container holding the low 16 bits of its keys, in the representation that suits its content:
+ * <ul>
+ * <li><b>{@code ARRAY}:</b> a sorted {@code char[]} of up to {@link R#ARRAY_MAX} keys, 2 bytes per key.</li>
+ * <li><b>{@code BITMAP}:</b> a flat 65536-bit {@code long[]}, like the dense phase of {@link CharSet}: 8 KB, for chunks of
+ *     more than {@link R#ARRAY_MAX} keys.</li>
+ * <li><b>{@code RUN}:</b> a sorted {@code char[]} of {@code start, length - 1} pairs, 4 bytes per range of consecutive keys.</li>
+ * </ul>
+ * Insertions and removals switch between {@code ARRAY} and {@code BITMAP} at {@link R#ARRAY_MAX} keys. {@code RUN}
+ * containers are produced by {@link RW#optimize()}, which gives every container its smallest representation, and are
+ * kept by insertions and removals while they stay below {@link R#RUNS_MAX} ranges.
+ * <p>
+ * The containers are kept in ascending order of their high 16 bits, so keys are ordered as signed {@code int}s:
+ * tokens iterate them in ascending order, and {@link R#rank(int)} and {@link R#select(int)} convert between keys and
+ * their positions. {@link RW#and(R)}, {@link RW#or(R)}, {@link RW#andNot(R)} and {@link RW#xor(R)} combine sets
+ * container by container, word by word for bitmaps.
+ * <p>
+ * The null key is not supported.
+ */
+public interface IntRoaringSet {
+	
+	/**
+	 * Receives the keys visited by {@link R#forEach(Consumer)}.
+	 */
+	@FunctionalInterface
+	interface Consumer {
+		void accept( int key );
+	}
+	
+	/**
+	 * Tests the keys visited by {@link R#forEachWhile(Predicate)}.
+	 */
+	@FunctionalInterface
+	interface Predicate {
+		boolean test( int key );
+	}
+	
+	/**
+	 * A read-only abstract base class holding the containers and implementing queries, ordered iteration and serialization.
+	 */
+	abstract class R implements JsonWriter.Source, Cloneable {
+		
+		/**
+		 * Container kinds.
+		 */
+		protected static final byte ARRAY = 0, BITMAP = 1, RUN = 2;
+		
+		/**
+		 * The largest number of keys in an {@code ARRAY} container; one more and it takes more memory than a {@code BITMAP}.
+		 */
+		public static final int ARRAY_MAX = 4096;
+		/**
+		 * The largest number of ranges in a {@code RUN} container; one more and it takes more memory than a {@code BITMAP}.
+		 */
+		public static final int RUNS_MAX  = 2048;
+		
+		protected static final int BITMAP_WORDS = 1024;
+		
+		/**
+		 * The high 16 bits of the keys of every container, with the sign bit flipped so that {@code char} order is signed
+		 * {@code int} order. Sorted.
+		 */
+		protected char[]   highs   = new char[ 0 ];
+		protected byte[]   kinds   = new byte[ 0 ];
+		/**
+		 * The sorted low 16 bits of an {@code ARRAY} container, or the {@code start, length - 1} pairs of a {@code RUN} one.
+		 */
+		protected char[][] lows    = new char[ 0 ][];
+		/**
+		 * The 1024 words of a {@code BITMAP} container.
+		 */
+		protected long[][] bitmaps = new long[ 0 ][];
+		/**
+		 * The used length of {@link #lows}: the number of keys of an {@code ARRAY} container, twice the number of ranges of
+		 * a {@code RUN} one.
+		 */
+		protected int[]    sizes   = new int[ 0 ];
+		/**
+		 * The number of keys of every container.
+		 */
+		protected int[]    cards   = new int[ 0 ];
+		protected int      containers;
+		
+		protected int _count;
+		protected int _version;
+		
+		protected static final int VERSION_SHIFT = 32;
+		
+		/**
+		 * A constant representing an invalid or non-existent token, returned when a key is not found
+		 * or at the end of an iteration.
+		 */
+		public static final long INVALID_TOKEN = -1L;
+		
+		/**
+		 * Returns the number of keys in this set.
+		 *
+		 * @return the number of keys in this set.
+		 */
+		public int size() { return _count; }
+		
+		/**
+		 * Returns the number of keys in this set. This is an alias for {@link #size()}.
+		 *
+		 * @return the number of keys in this set.
+		 */
+		public int count() { return _count; }
+		
+		/**
+		 * Returns {@code true} if this set contains no keys.
+		 *
+		 * @return {@code true} if this set contains no keys.
+		 */
+		public boolean isEmpty() { return _count == 0; }
+		
+		/**
+		 * Returns the number of containers, one per non-empty chunk of 65536 keys.
+		 *
+		 * @return the number of containers.
+		 */
+		public int containers() { return containers; }
+		
+		protected static char high( int key ) { return ( char ) ( key >>> 16 ^ 0x8000 ); }
+		
+		protected static int key( char high, int low ) { return ( high ^ 0x8000 ) << 16 | low; }
+		
+		/**
+		 * Returns the index of the container of the high bits, or {@code -(insertion point) - 1} if there is none.
+		 */
+		protected int containerOf( char high ) {
+			int lo = 0, hi = containers - 1;
+			while( lo <= hi ) {
+				int  mid = lo + hi >>> 1;
+				char h   = highs[ mid ];
+				if( h < high ) lo = mid + 1;
+				else if( high < h ) hi = mid - 1;
+				else return mid;
+			}
+			return -( lo + 1 );
+		}
+		
+		/**
+		 * Returns the index of the last range of a {@code RUN} container that starts at or before {@code low}, or -1.
+		 */
+		protected static int runOf( char[] runs, int size, int low ) {
+			int lo = 0, hi = ( size >> 1 ) - 1;
+			while( lo <= hi ) {
+				int mid = lo + hi >>> 1;
+				if( runs[ mid << 1 ] <= low ) lo = mid + 1;
+				else hi = mid - 1;
+			}
+			return hi;
+		}
+		
+		protected boolean containsLow( int ci, int low ) {
+			switch( kinds[ ci ] ) {
+				case ARRAY:
+					return -1 < Arrays.binarySearch( lows[ ci ], 0, sizes[ ci ], ( char ) low );
+				case BITMAP:
+					return ( bitmaps[ ci ][ low >>> 6 ] & 1L << low ) != 0;
+				default:
+					char[] runs = lows[ ci ];
+					int r = runOf( runs, sizes[ ci ], low );
+					return r != -1 && low <= runs[ r << 1 ] + runs[ ( r << 1 ) + 1 ];
+			}
+		}
+		
+		/**
+		 * Returns {@code true} if this set contains the specified boxed key.
+		 *
+		 * @param key the boxed key to check for; {@code null} is never contained.
+		 * @return {@code true} if this set contains the specified key.
+		 */
+		public boolean contains( Integer key ) { return key != null && contains( ( int ) key ); }
+		
+		/**
+		 * Returns {@code true} if this set contains the specified primitive key.
+		 *
+		 * @param key the primitive key to check for.
+		 * @return {@code true} if this set contains the specified key.
+		 */
+		public boolean contains( int key ) {
+			int ci = containerOf( high( key ) );
+			return -1 < ci && containsLow( ci, key & 0xFFFF );
+		}
+		
+		/**
+		 * Returns a token for the specified boxed key if it exists in the set.
+		 *
+		 * @param key the boxed key to find; {@code null} is never found.
+		 * @return a valid token if the key is in the set, otherwise {@link #INVALID_TOKEN}.
+		 */
+		public long tokenOf( Integer key ) {
+			return key == null ?
+			       INVALID_TOKEN :
+			       tokenOf( ( int ) key );
+		}
+		
+		/**
+		 * Returns a "token" representing the location of the specified primitive key.
+		 * This token can be used for fast key retrieval via {@link #key(long)}, to continue the ordered iteration from the
+		 * key via {@link #token(long)}, and includes a version stamp to detect concurrent modifications.
+		 *
+		 * @param key The primitive key to find.
+		 * @return A {@code long} token for the key, or {@link #INVALID_TOKEN} if the key is not found.
+		 */
+		public long tokenOf( int key ) {
+			int ci = containerOf( high( key ) );
+			if( ci < 0 ) return INVALID_TOKEN;
+			
+			int low = key & 0xFFFF;
+			if( kinds[ ci ] == ARRAY ) {
+				int pos = Arrays.binarySearch( lows[ ci ], 0, sizes[ ci ], ( char ) low );
+				return pos < 0 ?
+				       INVALID_TOKEN :
+				       token( ci, pos );
+			}
+			return containsLow( ci, low ) ?
+			       token( ci, low ) :
+			       INVALID_TOKEN;
+		}
+		
+		/**
+		 * Returns the token of the smallest key.
+		 * Subsequent keys, in ascending order, can be accessed by passing the returned token to {@link #token(long)}.
+		 *
+		 * @return The token of the smallest key, or {@link #INVALID_TOKEN} if the set is empty.
+		 */
+		public long token() {
+			return containers == 0 ?
+			       INVALID_TOKEN :
+			       token( 0, first( 0 ) );
+		}
+		
+		/**
+		 * Returns the token of the next larger key.
+		 *
+		 * @param token The current token from a previous call to {@link #token()}, {@link #token(long)} or {@link #tokenOf(int)}.
+		 * @return The token of the next key, or {@link #INVALID_TOKEN} if there are no more keys.
+		 * @throws IllegalArgumentException        if the input token is {@link #INVALID_TOKEN}.
+		 * @throws ConcurrentModificationException if the set was structurally modified after the token was issued.
+		 */
+		public long token( final long token ) {
+			if( token == INVALID_TOKEN ) throw new IllegalArgumentException( "Invalid token argument: INVALID_TOKEN" );
+			if( version( token ) != _version ) throw new ConcurrentModificationException( "Concurrent operations not supported." );
+			
+			int ci  = ( int ) token >>> 16;
+			int pos = next( ci, ( int ) token & 0xFFFF );
+			return pos != -1 ?
+			       token( ci, pos ) :
+			       ci + 1 < containers ?
+			       token( ci + 1, first( ci + 1 ) ) :
+			       INVALID_TOKEN;
+		}
+		
+		/**
+		 * Returns the primitive key associated with the given token.
+		 *
+		 * @param token The token obtained from iteration or {@link #tokenOf}.
+		 * @return The primitive key at the token's location.
+		 */
+		public int key( long token ) {
+			int ci = ( int ) token >>> 16;
+			return key( highs[ ci ], low( ci, ( int ) token & 0xFFFF ) );
+		}
+		
+		/**
+		 * The position of a key inside its container, as kept in tokens: the index in the array of an {@code ARRAY}
+		 * container, the low bits themselves otherwise.
+		 */
+		protected int low( int ci, int pos ) {
+			return kinds[ ci ] == ARRAY ?
+			       lows[ ci ][ pos ] :
+			       pos;
+		}
+		
+		protected int first( int ci ) {
+			switch( kinds[ ci ] ) {
+				case ARRAY:
+					return 0;
+				case BITMAP:
+					return next1( bitmaps[ ci ], 0 );
+				default:
+					return lows[ ci ][ 0 ];
+			}
+		}
+		
+		/**
+		 * Returns the position that follows {@code pos} in the container, or -1.
+		 */
+		protected int next( int ci, int pos ) {
+			switch( kinds[ ci ] ) {
+				case ARRAY:
+					return pos + 1 < sizes[ ci ] ?
+					       pos + 1 :
+					       -1;
+				case BITMAP:
+					return pos == 0xFFFF ?
+					       -1 :
+					       next1( bitmaps[ ci ], pos + 1 );
+				default:
+					if( pos == 0xFFFF ) return -1;
+					char[] runs = lows[ ci ];
+					int low = pos + 1;
+					int r   = runOf( runs, sizes[ ci ], low );
+					if( r != -1 && low <= runs[ r << 1 ] + runs[ ( r << 1 ) + 1 ] ) return low;
+					return r + 1 < sizes[ ci ] >> 1 ?
+					       runs[ r + 1 << 1 ] :
+					       -1;
+			}
+		}
+		
+		/**
+		 * Returns the index of the first set bit at or after {@code bit}, or -1.
+		 */
+		protected static int next1( long[] words, int bit ) {
+			int  w    = bit >>> 6;
+			long word = words[ w ] & -1L << bit;
+			while( word == 0 )
+				if( ++w == BITMAP_WORDS ) return -1;
+				else word = words[ w ];
+			return w << 6 | Long.numberOfTrailingZeros( word );
+		}
+		
+		/**
+		 * Returns the number of keys less than or equal to the specified key.
+		 * <p>
+		 * Ranks count inclusively, as {@link BitList.R#rank} and {@link IntIntSortedMap.R#rank} do: a present key ranks
+		 * from 1, so {@code rank( select( index ) ) == index + 1}.
+		 *
+		 * @param key The key, which does not need to be in the set.
+		 * @return The number of keys in the set that are {@code <= key}.
+		 */
+		public int rank( int key ) {
+			int ci  = containerOf( high( key ) );
+			int end = ci < 0 ?
+			          -ci - 1 :
+			          ci;
+			int sum = 0;
+			for( int i = 0; i < end; i++ ) sum += cards[ i ];
+			if( ci < 0 ) return sum;
+			
+			int low = key & 0xFFFF;
+			switch( kinds[ ci ] ) {
+				case ARRAY:
+					int pos = Arrays.binarySearch( lows[ ci ], 0, sizes[ ci ], ( char ) low );
+					return sum + ( pos < 0 ?
+					               -pos - 1 :
+					               pos + 1 );
+				case BITMAP:
+					long[] words = bitmaps[ ci ];
+					int w = low >>> 6;
+					for( int i = 0; i < w; i++ ) sum += Long.bitCount( words[ i ] );
+					return sum + Long.bitCount( words[ w ] & -1L >>> 63 - ( low & 63 ) );
+				default:
+					char[] runs = lows[ ci ];
+					for( int i = 0, size = sizes[ ci ]; i < size && runs[ i ] <= low; i += 2 )
+					     sum += Math.min( runs[ i ] + runs[ i + 1 ], low ) - runs[ i ] + 1;
+					return sum;
+			}
+		}
+		
+		/**
+		 * Returns the key at the specified position of the ascending order of the keys, the inverse of {@link #rank(int)}:
+		 * {@code rank( select( index ) ) == index + 1}.
+		 *
+		 * @param index The 0-based position.
+		 * @return The key at the position.
+		 * @throws IndexOutOfBoundsException If {@code index} is negative or not less than {@link #size()}.
+		 */
+		public int select( int index ) {
+			if( index < 0 || _count <= index ) throw new IndexOutOfBoundsException( "Index: " + index + ", Size: " + _count );
+			
+			int ci = 0;
+			for( ; cards[ ci ] <= index; ci++ ) index -= cards[ ci ];
+			
+			switch( kinds[ ci ] ) {
+				case ARRAY:
+					return key( highs[ ci ], lows[ ci ][ index ] );
+				case BITMAP:
+					long[] words = bitmaps[ ci ];
+					int w = 0;
+					for( int bits; ( bits = Long.bitCount( words[ w ] ) ) <= index; w++ ) index -= bits;
+					long word = words[ w ];
+					for( ; 0 < index; index-- ) word &= word - 1;
+					return key( highs[ ci ], w << 6 | Long.numberOfTrailingZeros( word ) );
+				default:
+					char[] runs = lows[ ci ];
+					int i = 0;
+					for( ; runs[ i + 1 ] < index; i += 2 ) index -= runs[ i + 1 ] + 1;
+					return key( highs[ ci ], runs[ i ] + index );
+			}
+		}
+		
+		/**
+		 * Copies the keys, in ascending order, into an array.
+		 *
+		 * @param dst The destination array; a larger one is allocated if it is {@code null} or too small.
+		 * @return The array holding the keys.
+		 */
+		public int[] toArray( int[] dst ) {
+			if( dst == null || dst.length < _count ) dst = new int[ _count ];
+			int i = 0;
+			for( int ci = 0; ci < containers; ci++ )
+				for( int pos = first( ci ); pos != -1; pos = next( ci, pos ) )
+				     dst[ i++ ] = key( highs[ ci ], low( ci, pos ) );
+			return dst;
+		}
+		
+		/**
+		 * Returns a {@code long[1024]} with the keys of a container as bits; a copy for a {@code BITMAP} container.
+		 */
+		protected long[] bitmapOf( int ci ) {
+			switch( kinds[ ci ] ) {
+				case BITMAP:
+					return bitmaps[ ci ].clone();
+				case ARRAY:
+					long[] words = new long[ BITMAP_WORDS ];
+					char[] array = lows[ ci ];
+					for( int i = 0, size = sizes[ ci ]; i < size; i++ ) words[ array[ i ] >>> 6 ] |= 1L << array[ i ];
+					return words;
+				default:
+					words = new long[ BITMAP_WORDS ];
+					char[] runs = lows[ ci ];
+					for( int i = 0, size = sizes[ ci ]; i < size; i += 2 ) set1( words, runs[ i ], runs[ i ] + runs[ i + 1 ] );
+					return words;
+			}
+		}
+		
+		/**
+		 * Sets the bits from {@code from} to {@code to}, inclusive.
+		 */
+		protected static void set1( long[] words, int from, int to ) {
+			int  fw = from >>> 6, tw = to >>> 6;
+			long fm = -1L << from, tm = -1L >>> 63 - ( to & 63 );
+			if( fw == tw ) words[ fw ] |= fm & tm;
+			else {
+				words[ fw ] |= fm;
+				for( int w = fw + 1; w < tw; w++ ) words[ w ] = -1L;
+				words[ tw ] |= tm;
+			}
+		}
+		
+		/**
+		 * Returns a spliterator over the keys in ascending order. It splits the containers in halves, so every part holds
+		 * whole containers, and reports {@code ORDERED}, {@code SORTED}, {@code DISTINCT}, {@code SIZED}, {@code SUBSIZED}
+		 * and {@code NONNULL}. The set must not be modified while it is in use.
+		 *
+		 * @return A spliterator over the keys.
+		 */
+		public Spliterator.OfInt spliterator() { return new Keys( 0, containers, _count ); }
+		
+		/**
+		 * Returns a sequential {@link IntStream} over the keys in ascending order, without boxing.
+		 *
+		 * @return A stream over the keys.
+		 */
+		public IntStream stream() { return StreamSupport.intStream( spliterator(), false ); }
+		
+		/**
+		 * Returns a parallel {@link IntStream} over the keys, which runs on the common fork-join pool.
+		 *
+		 * @return A parallel stream over the keys.
+		 */
+		public IntStream parallelStream() { return StreamSupport.intStream( spliterator(), true ); }
+		
+		/**
+		 * Passes every key to the action in ascending order. Loops directly over the containers, without tokens or version
+		 * checks, so the action must not modify the set.
+		 *
+		 * @param action The receiver of the keys.
+		 */
+		public void forEach( Consumer action ) {
+			for( int ci = 0; ci < containers; ci++ )
+				for( int pos = first( ci ); pos != -1; pos = next( ci, pos ) )
+					action.accept( key( highs[ ci ], low( ci, pos ) ) );
+		}
+		
+		/**
+		 * Passes the keys to the predicate, in ascending order, until it returns {@code false}.
+		 *
+		 * @param predicate The test of the keys.
+		 * @return {@code true} if the predicate accepted every key, {@code false} if it stopped the iteration.
+		 */
+		public boolean forEachWhile( Predicate predicate ) {
+			for( int ci = 0; ci < containers; ci++ )
+				for( int pos = first( ci ); pos != -1; pos = next( ci, pos ) )
+					if( !predicate.test( key( highs[ ci ], low( ci, pos ) ) ) ) return false;
+			return true;
+		}
+		
+		/**
+		 * The keys of the containers {@code [ci, to)}: {@code pos} is the position of the last key taken from container
+		 * {@code ci}, {@code -2} before its first key.
+		 */
+		private final class Keys implements Spliterator.OfInt {
+			private       int  ci;
+			private       int  pos = -2;
+			private final int  to;
+			private       long size;
+			
+			Keys( int ci, int to, long size ) {
+				this.ci   = ci;
+				this.to   = to;
+				this.size = size;
+			}
+			
+			@Override
+			public boolean tryAdvance( IntConsumer action ) {
+				for( ; ci < to; ci++, pos = -2 ) {
+					pos = pos == -2 ?
+					      first( ci ) :
+					      next( ci, pos );
+					if( pos == -1 ) continue;
+					size--;
+					action.accept( key( highs[ ci ], low( ci, pos ) ) );
+					return true;
+				}
+				return false;
+			}
+			
+			@Override
+			public void forEachRemaining( IntConsumer action ) {
+				for( ; ci < to; ci++, pos = -2 ) {
+					char high = highs[ ci ];
+					for( pos = pos == -2 ?
+					           first( ci ) :
+					           next( ci, pos ); pos != -1; pos = next( ci, pos ) )
+						action.accept( key( high, low( ci, pos ) ) );
+				}
+				size = 0;
+			}
+			
+			@Override
+			public Keys trySplit() {
+				int mid = ( pos == -2 ?
+				            ci :
+				            ci + 1 ) + to >>> 1;
+				if( mid <= ci || to <= mid ) return null;
+				
+				long rest = 0; // the keys of the containers [mid, to) stay here
+				for( int i = mid; i < to; i++ ) rest += cards[ i ];
+				
+				Keys prefix = new Keys( ci, mid, size - rest );
+				prefix.pos = pos;
+				ci         = mid;
+				pos        = -2;
+				size       = rest;
+				return prefix;
+			}
+			
+			@Override
+			public long estimateSize() { return size; }
+			
+			@Override
+			public int characteristics() { return ORDERED | SORTED | DISTINCT | SIZED | SUBSIZED | NONNULL; }
+			
+			@Override
+			public Comparator< ? super Integer > getComparator() { return null; }
+		}
+		
+		/**
+		 * Computes the hash code of this set from its keys in ascending order, independent of the container representations.
+		 *
+		 * @return the hash code value for this set.
+		 */
+		@Override
+		public int hashCode() {
+			int h = seed;
+			for( int ci = 0; ci < containers; ci++ )
+				for( int pos = first( ci ); pos != -1; pos = next( ci, pos ) )
+				     h = Array.mix( h, Array.hash( key( highs[ ci ], low( ci, pos ) ) ) );
+			return Array.finalizeHash( h, _count );
+		}
+		
+		/**
+		 * A static seed used in `hashCode` calculation to improve hash distribution.
+		 */
+		private static final int seed = R.class.hashCode();
+		
+		@Override
+		public boolean equals( Object obj ) { return obj != null && getClass() == obj.getClass() && equals( ( R ) obj ); }
+		
+		/**
+		 * Compares this set with another {@code IntRoaringSet.R} for equality, whatever the container representations.
+		 *
+		 * @param other the other set to compare against.
+		 * @return `true` if the sets contain the exact same keys.
+		 */
+		public boolean equals( R other ) {
+			if( other == this ) return true;
+			if( other == null || other._count != _count || other.containers != containers ) return false;
+			
+			for( int ci = 0; ci < containers; ci++ ) {
+				if( highs[ ci ] != other.highs[ ci ] || cards[ ci ] != other.cards[ ci ] ) return false;
+				for( int pos = first( ci ); pos != -1; pos = next( ci, pos ) )
+					if( !other.containsLow( ci, low( ci, pos ) ) ) return false;
+			}
+			return true;
+		}
+		
+		/**
+		 * Creates and returns a deep copy of this set.
+		 *
+		 * @return A deep copy of this set.
+		 */
+		@Override
+		public R clone() {
+			try {
+				R cloned = ( R ) super.clone();
+				cloned.highs   = highs.clone();
+				cloned.kinds   = kinds.clone();
+				cloned.sizes   = sizes.clone();
+				cloned.cards   = cards.clone();
+				cloned.lows    = lows.clone();
+				cloned.bitmaps = bitmaps.clone();
+				for( int ci = 0; ci < containers; ci++ )
+					if( lows[ ci ] != null ) cloned.lows[ ci ] = lows[ ci ].clone();
+					else cloned.bitmaps[ ci ] = bitmaps[ ci ].clone();
+				return cloned;
+			} catch( CloneNotSupportedException e ) {
+				throw new InternalError( e );
+			}
+		}
+		
+		/**
+		 * Returns a string representation of the set in JSON array format, keys in ascending order.
+		 *
+		 * @return A JSON string representing the set.
+		 */
+		@Override
+		public String toString() { return toJSON(); }
+		
+		/**
+		 * Writes the keys of this set, in ascending order, to a {@link JsonWriter} as a JSON array.
+		 *
+		 * @param json the {@link JsonWriter} to write to.
+		 */
+		@Override
+		public void toJSON( JsonWriter json ) {
+			json.preallocate( _count * 5 );
+			json.enterArray();
+			for( int ci = 0; ci < containers; ci++ )
+				for( int pos = first( ci ); pos != -1; pos = next( ci, pos ) )
+				     json.value( key( highs[ ci ], low( ci, pos ) ) );
+			json.exitArray();
+		}
+		
+		/**
+		 * Packs a container index, a position inside the container and the current version into a token.
+		 */
+		protected long token( int ci, int pos ) { return ( long ) _version << VERSION_SHIFT | ( ci << 16 | pos ) & 0xFFFF_FFFFL; }
+		
+		protected int version( long token ) { return ( int ) ( token >>> VERSION_SHIFT ); }
+	}
+	
+	/**
+	 * A read-write implementation, extending the read-only base class {@link R} with insertion, removal, in-place set
+	 * algebra and representation optimization.
+	 */
+	class RW extends R {
+		
+		/**
+		 * Constructs an empty set.
+		 */
+		public RW() { this( 0 ); }
+		
+		/**
+		 * Constructs an empty set with room for the specified number of containers.
+		 *
+		 * @param containers The initial number of containers, one per non-empty chunk of 65536 keys.
+		 */
+		public RW( int containers ) { if( 0 < containers ) resize( containers ); }
+		
+		/**
+		 * Constructs a set holding the keys of an {@link IntSet}.
+		 *
+		 * @param src The set to copy.
+		 * @throws IllegalArgumentException If {@code src} holds the null key.
+		 */
+		public RW( IntSet.R src ) {
+			if( src.hasNullKey() ) throw new IllegalArgumentException( "The null key is not supported." );
+			int[] keys = new int[ src.size() ];
+			int   i    = 0;
+			for( long token = src.token(); token != IntSet.R.INVALID_TOKEN; token = src.token( token ) ) keys[ i++ ] = src.key( token );
+			Arrays.sort( keys );
+			for( int key : keys ) add( key ); // ascending keys append to the last container
+		}
+		
+		/**
+		 * Adds the specified primitive key to this set if it is not already present.
+		 *
+		 * @param key the primitive key to add.
+		 * @return {@code true} if the set did not already contain the key.
+		 */
+		public boolean add( int key ) {
+			char high = high( key );
+			int  low  = key & 0xFFFF;
+			int  ci   = containerOf( high );
+			
+			if( ci < 0 ) {
+				insert( -ci - 1, high, ARRAY, new char[]{ ( char ) low }, null, 1, 1 );
+				return true;
+			}
+			
+			switch( kinds[ ci ] ) {
+				case ARRAY:
+					char[] array = lows[ ci ];
+					int size = sizes[ ci ];
+					int pos = Arrays.binarySearch( array, 0, size, ( char ) low );
+					if( -1 < pos ) return false;
+					
+					if( size == ARRAY_MAX ) {
+						asBitmap( ci );
+						bitmaps[ ci ][ low >>> 6 ] |= 1L << low;
+					}
+					else {
+						pos = -pos - 1;
+						if( size == array.length ) lows[ ci ] = array = Arrays.copyOf( array, Math.min( ARRAY_MAX, size * 2 ) );
+						System.arraycopy( array, pos, array, pos + 1, size - pos );
+						array[ pos ] = ( char ) low;
+						sizes[ ci ]++;
+					}
+					break;
+				case BITMAP:
+					long[] words = bitmaps[ ci ];
+					if( ( words[ low >>> 6 ] & 1L << low ) != 0 ) return false;
+					words[ low >>> 6 ] |= 1L << low;
+					break;
+				default:
+					if( !addToRun( ci, low ) ) return false;
+			}
+			
+			cards[ ci ]++;
+			_count++;
+			_version++;
+			return true;
+		}
+		
+		private boolean addToRun( int ci, int low ) {
+			char[] runs = lows[ ci ];
+			int    r    = runOf( runs, sizes[ ci ], low );
+			int    at   = r << 1;
+			if( r != -1 && low <= runs[ at ] + runs[ at + 1 ] ) return false;
+			
+			boolean joinPrev = r != -1 && runs[ at ] + runs[ at + 1 ] + 1 == low;
+			boolean joinNext = at + 2 < sizes[ ci ] && runs[ at + 2 ] == low + 1;
+			
+			if( joinPrev && joinNext ) { // the key fills the gap between two ranges
+				runs[ at + 1 ] += runs[ at + 3 ] + 2;
+				System.arraycopy( runs, at + 4, runs, at + 2, sizes[ ci ] - at - 4 );
+				sizes[ ci ] -= 2;
+			}
+			else if( joinPrev ) runs[ at + 1 ]++;
+			else if( joinNext ) {
+				runs[ at + 2 ]--;
+				runs[ at + 3 ]++;
+			}
+			else insertRun( ci, at + 2, low, 0 );
+			return true;
+		}
+		
+		private void insertRun( int ci, int at, int start, int lengthMinus1 ) {
+			char[] runs = lows[ ci ];
+			int    size = sizes[ ci ];
+			if( size == runs.length ) lows[ ci ] = runs = Arrays.copyOf( runs, Math.max( 4, size * 2 ) );
+			System.arraycopy( runs, at, runs, at + 2, size - at );
+			runs[ at ]     = ( char ) start;
+			runs[ at + 1 ] = ( char ) lengthMinus1;
+			sizes[ ci ]    = size + 2;
+			if( RUNS_MAX < sizes[ ci ] >> 1 ) asBitmap( ci );
+		}
+		
+		/**
+		 * Removes the specified primitive key from this set if it is present.
+		 *
+		 * @param key the primitive key to remove.
+		 * @return {@code true} if the set contained the key.
+		 */
+		public boolean remove( int key ) {
+			int ci = containerOf( high( key ) );
+			if( ci < 0 ) return false;
+			int low = key & 0xFFFF;
+			
+			switch( kinds[ ci ] ) {
+				case ARRAY:
+					char[] array = lows[ ci ];
+					int pos = Arrays.binarySearch( array, 0, sizes[ ci ], ( char ) low );
+					if( pos < 0 ) return false;
+					System.arraycopy( array, pos + 1, array, pos, --sizes[ ci ] - pos );
+					break;
+				case BITMAP:
+					long[] words = bitmaps[ ci ];
+					if( ( words[ low >>> 6 ] & 1L << low ) == 0 ) return false;
+					words[ low >>> 6 ] &= ~( 1L << low );
+					break;
+				default:
+					if( !removeFromRun( ci, low ) ) return false;
+			}
+			
+			_count--;
+			_version++;
+			if( --cards[ ci ] == 0 ) remove( ci, 1 );
+			else if( cards[ ci ] == ARRAY_MAX && kinds[ ci ] == BITMAP ) asArray( ci );
+			return true;
+		}
+		
+		private boolean removeFromRun( int ci, int low ) {
+			char[] runs = lows[ ci ];
+			int    r    = runOf( runs, sizes[ ci ], low );
+			if( r == -1 ) return false;
+			int at    = r << 1;
+			int start = runs[ at ];
+			int end   = start + runs[ at + 1 ];
+			if( end < low ) return false;
+			
+			if( start == end ) {
+				System.arraycopy( runs, at + 2, runs, at, sizes[ ci ] - at - 2 );
+				sizes[ ci ] -= 2;
+			}
+			else if( low == start ) {
+				runs[ at ]++;
+				runs[ at + 1 ]--;
+			}
+			else if( low == end ) runs[ at + 1 ]--;
+			else { // split the range around the key
+				runs[ at + 1 ] = ( char ) ( low - 1 - start );
+				insertRun( ci, at + 2, low + 1, end - low - 1 );
+			}
+			return true;
+		}
+		
+		/**
+		 * Removes all keys from this set.
+		 */
+		public void clear() {
+			Arrays.fill( lows, 0, containers, null );
+			Arrays.fill( bitmaps, 0, containers, null );
+			containers = 0;
+			_count     = 0;
+			_version++;
+		}
+		
+		/**
+		 * Keeps only the keys that are also in the other set.
+		 *
+		 * @param and The other set.
+		 * @return This set.
+		 */
+		public RW and( R and ) { return apply( and, AND ); }
+		
+		/**
+		 * Adds the keys of the other set.
+		 *
+		 * @param or The other set.
+		 * @return This set.
+		 */
+		public RW or( R or ) { return apply( or, OR ); }
+		
+		/**
+		 * Removes the keys of the other set.
+		 *
+		 * @param not The other set.
+		 * @return This set.
+		 */
+		public RW andNot( R not ) { return apply( not, AND_NOT ); }
+		
+		/**
+		 * Keeps the keys that are in exactly one of the two sets.
+		 *
+		 * @param xor The other set.
+		 * @return This set.
+		 */
+		public RW xor( R xor ) { return apply( xor, XOR ); }
+		
+		private static final int AND = 0, OR = 1, AND_NOT = 2, XOR = 3;
+		
+		/**
+		 * Merges the two sorted container lists into a new one: containers of one side only are kept or dropped
+		 * whole, those of both sides are combined.
+		 */
+		private RW apply( R other, int op ) {
+			if( other == this ) {
+				if( op == AND_NOT || op == XOR ) clear();
+				return this;
+			}
+			
+			RW  dst = new RW( op == AND || op == AND_NOT ?
+			                  containers :
+			                  containers + other.containers );
+			int i   = 0, j = 0;
+			while( i < containers || j < other.containers ) {
+				int c = i == containers ?
+				        1 :
+				        j == other.containers ?
+				        -1 :
+				        Character.compare( highs[ i ], other.highs[ j ] );
+				
+				if( c < 0 ) {
+					if( op != AND ) dst.append( highs[ i ], kinds[ i ], lows[ i ], bitmaps[ i ], sizes[ i ], cards[ i ] );
+					i++;
+				}
+				else if( 0 < c ) {
+					if( op == OR || op == XOR ) dst.append( other.highs[ j ], other.kinds[ j ],
+					                                        other.lows[ j ] == null ?
+					                                        null :
+					                                        other.lows[ j ].clone(),
+					                                        other.bitmaps[ j ] == null ?
+					                                        null :
+					                                        other.bitmaps[ j ].clone(), other.sizes[ j ], other.cards[ j ] );
+					j++;
+				}
+				else dst.combine( highs[ i ], this, i++, other, j++, op );
+			}
+			
+			highs      = dst.highs;
+			kinds      = dst.kinds;
+			lows       = dst.lows;
+			bitmaps    = dst.bitmaps;
+			sizes      = dst.sizes;
+			cards      = dst.cards;
+			containers = dst.containers;
+			_count     = dst._count;
+			_version++;
+			return this;
+		}
+		
+		/**
+		 * Appends the combination of container {@code i} of {@code a}, which is discarded after, and container {@code j}
+		 * of {@code b}, which is left intact. Arrays are filtered or merged; anything else goes through bitmaps.
+		 */
+		private void combine( char high, R a, int i, R b, int j, int op ) {
+			byte ka = a.kinds[ i ], kb = b.kinds[ j ];
+			
+			if( op == AND || op == AND_NOT ) {
+				if( ka == ARRAY ) {
+					filter( high, a, i, b, j, op == AND );
+					return;
+				}
+				if( op == AND && kb == ARRAY ) {
+					filter( high, b, j, a, i, true );
+					return;
+				}
+			}
+			else if( ka == ARRAY && kb == ARRAY ) {
+				merge( high, a.lows[ i ], a.sizes[ i ], b.lows[ j ], b.sizes[ j ], op == XOR );
+				return;
+			}
+			
+			long[] words = ka == BITMAP ?
+			               a.bitmaps[ i ] :
+			               a.bitmapOf( i );
+			long[] other = kb == BITMAP ?
+			               b.bitmaps[ j ] :
+			               b.bitmapOf( j );
+			switch( op ) {
+				case AND:
+					for( int w = 0; w < BITMAP_WORDS; w++ ) words[ w ] &= other[ w ];
+					break;
+				case OR:
+					for( int w = 0; w < BITMAP_WORDS; w++ ) words[ w ] |= other[ w ];
+					break;
+				case AND_NOT:
+					for( int w = 0; w < BITMAP_WORDS; w++ ) words[ w ] &= ~other[ w ];
+					break;
+				default:
+					for( int w = 0; w < BITMAP_WORDS; w++ ) words[ w ] ^= other[ w ];
+			}
+			appendBitmap( high, words );
+		}
+		
+		/**
+		 * Appends the keys of an {@code ARRAY} container that are ({@code keep == true}) or are not in the other container.
+		 */
+		private void filter( char high, R src, int i, R by, int j, boolean keep ) {
+			char[] array = src.lows[ i ];
+			int    size  = src.sizes[ i ];
+			char[] kept  = new char[ size ];
+			int    n     = 0;
+			for( int k = 0; k < size; k++ )
+				if( by.containsLow( j, array[ k ] ) == keep ) kept[ n++ ] = array[ k ];
+			if( 0 < n ) append( high, ARRAY, kept, null, n, n );
+		}
+		
+		/**
+		 * Appends the union, or the symmetric difference, of two {@code ARRAY} containers.
+		 */
+		private void merge( char high, char[] a, int na, char[] b, int nb, boolean xor ) {
+			char[] merged = new char[ na + nb ];
+			int    n      = 0, i = 0, j = 0;
+			while( i < na && j < nb )
+				if( a[ i ] < b[ j ] ) merged[ n++ ] = a[ i++ ];
+				else if( b[ j ] < a[ i ] ) merged[ n++ ] = b[ j++ ];
+				else {
+					if( !xor ) merged[ n++ ] = a[ i ];
+					i++;
+					j++;
+				}
+			while( i < na ) merged[ n++ ] = a[ i++ ];
+			while( j < nb ) merged[ n++ ] = b[ j++ ];
+			
+			if( n == 0 ) return;
+			if( n <= ARRAY_MAX ) {
+				append( high, ARRAY, merged, null, n, n );
+				return;
+			}
+			long[] words = new long[ BITMAP_WORDS ];
+			for( int k = 0; k < n; k++ ) words[ merged[ k ] >>> 6 ] |= 1L << merged[ k ];
+			append( high, BITMAP, null, words, 0, n );
+		}
+		
+		/**
+		 * Appends a bitmap result as an {@code ARRAY} container if it is small enough, or nothing if it is empty.
+		 */
+		private void appendBitmap( char high, long[] words ) {
+			int card = 0;
+			for( long word : words ) card += Long.bitCount( word );
+			if( card == 0 ) return;
+			if( ARRAY_MAX < card ) append( high, BITMAP, null, words, 0, card );
+			else append( high, ARRAY, arrayOf( words, card ), null, card, card );
+		}
+		
+		private static char[] arrayOf( long[] words, int card ) {
+			char[] array = new char[ card ];
+			for( int w = 0, n = 0; n < card; w++ )
+				for( long word = words[ w ]; word != 0; word &= word - 1 )
+				     array[ n++ ] = ( char ) ( w << 6 | Long.numberOfTrailingZeros( word ) );
+			return array;
+		}
+		
+		private void asBitmap( int ci ) {
+			bitmaps[ ci ] = bitmapOf( ci );
+			lows[ ci ]    = null;
+			kinds[ ci ]   = BITMAP;
+			sizes[ ci ]   = 0;
+		}
+		
+		private void asArray( int ci ) {
+			char[] array = new char[ cards[ ci ] ];
+			int    n     = 0;
+			for( int pos = first( ci ); pos != -1; pos = next( ci, pos ) ) array[ n++ ] = ( char ) low( ci, pos );
+			lows[ ci ]    = array;
+			bitmaps[ ci ] = null;
+			kinds[ ci ]   = ARRAY;
+			sizes[ ci ]   = n;
+		}
+		
+		private void asRuns( int ci, int runs ) {
+			char[] pairs = new char[ runs * 2 ];
+			int    n     = 0;
+			for( int pos = first( ci ), prev = -2; pos != -1; pos = next( ci, pos ) ) {
+				int low = low( ci, pos );
+				if( low == prev + 1 ) pairs[ n - 1 ]++;
+				else {
+					pairs[ n++ ] = ( char ) low;
+					pairs[ n++ ] = 0;
+				}
+				prev = low;
+			}
+			lows[ ci ]    = pairs;
+			bitmaps[ ci ] = null;
+			kinds[ ci ]   = RUN;
+			sizes[ ci ]   = n;
+		}
+		
+		/**
+		 * Returns the number of ranges of consecutive keys in a container.
+		 */
+		private int runs( int ci ) {
+			switch( kinds[ ci ] ) {
+				case ARRAY:
+					char[] array = lows[ ci ];
+					int runs = 1;
+					for( int i = 1, size = sizes[ ci ]; i < size; i++ )
+						if( array[ i ] != array[ i - 1 ] + 1 ) runs++;
+					return runs;
+				case BITMAP:
+					long[] words = bitmaps[ ci ];
+					runs = 0;
+					long carry = 0;
+					for( long word : words ) {
+						runs += Long.bitCount( word & ~( word << 1 | carry ) ); // bits that start a range
+						carry = word >>> 63;
+					}
+					return runs;
+				default:
+					return sizes[ ci ] >> 1;
+			}
+		}
+		
+		/**
+		 * Gives every container its smallest representation, {@code RUN} containers included, and trims the arrays of
+		 * {@code ARRAY} and {@code RUN} containers to their content. Worth calling once a set has been built.
+		 */
+		public void optimize() {
+			for( int ci = 0; ci < containers; ci++ ) {
+				int card      = cards[ ci ];
+				int runs      = runs( ci );
+				int runBytes  = runs * 4;
+				int bestBytes = card <= ARRAY_MAX ?
+				                card * 2 :
+				                BITMAP_WORDS * 8;
+				
+				if( runBytes < bestBytes ) {
+					if( kinds[ ci ] != RUN || lows[ ci ].length != sizes[ ci ] ) asRuns( ci, runs );
+				}
+				else if( card <= ARRAY_MAX ) {
+					if( kinds[ ci ] != ARRAY || lows[ ci ].length != card ) asArray( ci );
+				}
+				else if( kinds[ ci ] != BITMAP ) asBitmap( ci );
+			}
+			if( containers < highs.length ) resize( containers );
+			_version++;
+		}
+		
+		private void append( char high, byte kind, char[] lows, long[] bitmap, int size, int card ) {
+			if( containers == highs.length ) resize( Math.max( 4, containers * 2 ) );
+			highs[ containers ]   = high;
+			kinds[ containers ]   = kind;
+			this.lows[ containers ] = lows;
+			bitmaps[ containers ] = bitmap;
+			sizes[ containers ]   = size;
+			cards[ containers ]   = card;
+			containers++;
+			_count += card;
+		}
+		
+		private void insert( int ci, char high, byte kind, char[] lows, long[] bitmap, int size, int card ) {
+			if( containers == highs.length ) resize( Math.max( 4, containers * 2 ) );
+			int tail = containers - ci;
+			System.arraycopy( highs, ci, highs, ci + 1, tail );
+			System.arraycopy( kinds, ci, kinds, ci + 1, tail );
+			System.arraycopy( this.lows, ci, this.lows, ci + 1, tail );
+			System.arraycopy( bitmaps, ci, bitmaps, ci + 1, tail );
+			System.arraycopy( sizes, ci, sizes, ci + 1, tail );
+			System.arraycopy( cards, ci, cards, ci + 1, tail );
+			containers++;
+			
+			highs[ ci ]     = high;
+			kinds[ ci ]     = kind;
+			this.lows[ ci ] = lows;
+			bitmaps[ ci ]   = bitmap;
+			sizes[ ci ]     = size;
+			cards[ ci ]     = card;
+			_count += card;
+			_version++;
+		}
+		
+		/**
+		 * Removes {@code n} containers starting at {@code ci}; their keys must already be subtracted from {@code _count}.
+		 */
+		private void remove( int ci, int n ) {
+			int tail = containers - ci - n;
+			System.arraycopy( highs, ci + n, highs, ci, tail );
+			System.arraycopy( kinds, ci + n, kinds, ci, tail );
+			System.arraycopy( lows, ci + n, lows, ci, tail );
+			System.arraycopy( bitmaps, ci + n, bitmaps, ci, tail );
+			System.arraycopy( sizes, ci + n, sizes, ci, tail );
+			System.arraycopy( cards, ci + n, cards, ci, tail );
+			containers -= n;
+			Arrays.fill( lows, containers, containers + n, null );
+			Arrays.fill( bitmaps, containers, containers + n, null );
+		}
+		
+		private void resize( int length ) {
+			highs   = Arrays.copyOf( highs, length );
+			kinds   = Arrays.copyOf( kinds, length );
+			lows    = Arrays.copyOf( lows, length );
+			bitmaps = Arrays.copyOf( bitmaps, length );
+			sizes   = Arrays.copyOf( sizes, length );
+			cards   = Arrays.copyOf( cards, length );
+		}
+		
+		@Override
+		public RW clone() { return ( RW ) super.clone(); }
+	}
+}
\ No newline at end of file
@@ -20,6 +20,11 @@ import org.unirail.JsonWriter;
 
 import java.util.Arrays;
 import java.util.ConcurrentModificationException;
+import java.util.Spliterator;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
 
 
 /**
@@ -145,6 +150,62 @@ import java.util.ConcurrentModificationException;
  */
 public interface LongIntMap {
 	
+	/**
+	 * Computes the value of an absent key for {@link RW#computeIfAbsent(long, Mapping)}.
+	 */
+	@FunctionalInterface
+	interface Mapping {
+		int apply( long key );
+	}
+	
+	/**
+	 * Computes the new value of a present key for {@link RW#computeIfPresent(long, Remapping)}.
+	 */
+	@FunctionalInterface
+	interface Remapping {
+		int apply( long key, int value );
+	}
+	
+	/**
+	 * Combines the current value of a present key with a given value for {@link RW#merge(long, int, Merging)}.
+	 */
+	@FunctionalInterface
+	interface Merging {
+		int apply( int oldValue, int value );
+	}
+	
+	/**
+	 * Receives the entries visited by {@link R#forEach(Consumer)}.
+	 */
+	@FunctionalInterface
+	interface Consumer {
+		void accept( long key, int value );
+	}
+	
+	/**
+	 * Tests the entries visited by {@link R#forEachWhile(Predicate)}.
+	 */
+	@FunctionalInterface
+	interface Predicate {
+		boolean test( long key, int value );
+	}
+	
+	/**
+	 * Receives the keys visited by {@link R#forEachKey(KeyConsumer)}.
+	 */
+	@FunctionalInterface
+	interface KeyConsumer {
+		void accept( long key );
+	}
+	
+	/**
+	 * Receives the values visited by {@link R#forEachValue(ValueConsumer)}.
+	 */
+	@FunctionalInterface
+	interface ValueConsumer {
+		void accept( int value );
+	}
+	
 	
 	abstract class R implements Cloneable, JsonWriter.Source {
 		
@@ -162,12 +223,31 @@ public interface LongIntMap {
 		 * A value of 0 indicates an empty bucket.
 		 */
 		protected int[]             _buckets;
+		/**
+		 * The {@link Array#modMultiplier(int)} of {@code _buckets.length}, used by {@link #bucketIndex(int)}
+		 * to reduce hashes to bucket indices without an integer division.
+		 */
+		protected long              _bucketsMultiplier;
 		/**
 		 * The array used to link entries in collision chains within the {@code lo Region}.
 		 * Each element `links[i]` stores the index of the next entry in the chain,
 		 * or an index >= `_lo_Size` if it points to a terminal node in the {@code hi Region}.
 		 */
 		protected int[]             links = Array.EqualHashOf._ints.O;
+		
+		/**
+		 * The strategy that hashes keys into buckets. Defaults to {@link Array.Hash#IDENTITY};
+		 * replace it with {@link RW#hash_K(Array.Hash)} for keys whose low bits are poorly distributed.
+		 */
+		protected Array.Hash hash_K = Array.Hash.IDENTITY;
+		
+		/**
+		 * Returns the strategy currently used to hash keys into buckets.
+		 *
+		 * @return The key hashing strategy.
+		 */
+		public Array.Hash hash_K() { return hash_K; }
+		
 		/**
 		 * The array storing the keys of the map entries.
 		 * Keys for {@code lo Region} entries are at indices `0` to `_lo_Size - 1`.
@@ -216,6 +296,11 @@ public interface LongIntMap {
 		 */
 		public static final long INVALID_TOKEN = -1L;
 		
+		/**
+		 * The number of keys that {@code getAll} and {@code putAll} hash ahead before resolving them.
+		 */
+		public static final int BATCH = 64;
+		
 		/**
 		 * Returns {@code true} if this map contains no key-value mappings.
 		 *
@@ -330,7 +415,7 @@ public interface LongIntMap {
 		public long tokenOf( long key ) {
 			
 			if( _buckets == null || _count() == 0 ) return INVALID_TOKEN;
-			int index = (_buckets[ bucketIndex( Array.hash( key ) ) ] ) - 1;
+			int index = (_buckets[ bucketIndex( hash_K.hash( key ) ) ] ) - 1;
 			if( index < 0 ) return INVALID_TOKEN;
 			
 			for( int collisions = 0; ; ) {
@@ -342,6 +427,81 @@ public interface LongIntMap {
 		}
 		
 		
+		/**
+		 * Returns the value of the specified primitive key, or {@code defaultValue} if the key is absent.
+		 *
+		 * @param key          The primitive key to search for.
+		 * @param defaultValue The value to return if the key is absent.
+		 * @return The value of the key, or {@code defaultValue}.
+		 */
+		public int getOrDefault( long key, int defaultValue ) {
+			long token = tokenOf( key );
+			return token == INVALID_TOKEN ?
+			       defaultValue :
+			       value( token );
+		}
+		
+		
+		/**
+		 * Looks up the keys of the given range and writes their values to the same indices of {@code dst}, or
+		 * {@code missingValue} for absent keys.
+		 * <p>
+		 * The keys are processed in batches of {@link #BATCH}: the buckets of the whole batch are loaded first, then the
+		 * keys are resolved against them, so the cache misses of independent lookups overlap instead of following one another.
+		 *
+		 * @param src          The keys to look up.
+		 * @param from         The index of the first key.
+		 * @param len          The number of keys.
+		 * @param dst          Receives the values, at the indices of their keys.
+		 * @param missingValue The value written for absent keys.
+		 * @return The number of keys found.
+		 */
+		public int getAll( long[] src, int from, int len, int[] dst, int missingValue ) {
+			if( _buckets == null || _count() == 0 ) {
+				Arrays.fill( dst, from, from + len, missingValue );
+				return 0;
+			}
+			
+			int   found = 0;
+			int[] heads = new int[ Math.min( len, BATCH ) ];
+			
+			for( int end = from + len; from < end; from += heads.length ) {
+				int n = Math.min( heads.length, end - from );
+				
+				for( int i = 0; i < n; i++ ) heads[ i ] = _buckets[ bucketIndex( hash_K.hash( src[ from + i ] ) ) ];
+				
+				for( int i = 0; i < n; i++ ) {
+					long key   = src[ from + i ];
+					int value = missingValue;
+					
+					for( int index = heads[ i ] - 1, collisions = 0; index != -1; index = links[ index ] ) {
+						if( keys[ index ] == key ) {
+							value = values[ index ];
+							found++;
+							break;
+						}
+						if( _lo_Size <= index ) break; //terminal node
+						if( _lo_Size < ++collisions ) throw new ConcurrentModificationException( "Concurrent operations not supported." );
+					}
+					
+					dst[ from + i ] = value;
+				}
+			}
+			return found;
+		}
+		
+		/**
+		 * Looks up all keys of {@code src} and writes their values to the same indices of {@code dst}, or
+		 * {@code missingValue} for absent keys.
+		 *
+		 * @param src          The keys to look up.
+		 * @param dst          Receives the values, at the indices of their keys.
+		 * @param missingValue The value written for absent keys.
+		 * @return The number of keys found.
+		 */
+		public int getAll( long[] src, int[] dst, int missingValue ) { return getAll( src, 0, src.length, dst, missingValue ); }
+		
+		
 		/**
 		 * Returns the token for the first non-null key-value mapping in this map according to
 		 * the internal iteration order. If only the null key is present, a token for the null key is returned.
@@ -465,6 +625,111 @@ public interface LongIntMap {
 					values[ index( token ) ] );
 		}
 		
+		/**
+		 * Returns a spliterator over the keys of the map, the null key excluded; check {@link #hasNullKey()}.
+		 * It splits the occupied slots of the {@code lo Region} and {@code hi Region} in halves, as if they were one
+		 * array, and reports {@code DISTINCT}, {@code SIZED}, {@code SUBSIZED} and {@code NONNULL}. The map must not be
+		 * modified while it is in use.
+		 *
+		 * @return A spliterator over the keys.
+		 */
+		public Spliterator.OfLong spliterator() {
+			int lo  = _lo_Size;
+			int gap = _count() == 0 ?
+			          0 :
+			          keys.length - _hi_Size - lo; // skips the free slots between the regions
+			return new Array.LongSpliterator( 0, _count(), Spliterator.DISTINCT | Spliterator.NONNULL, i -> key( i < lo ? i : i + gap ) );
+		}
+		
+		/**
+		 * Returns a sequential {@link LongStream} over the keys of the map, the null key excluded, without boxing. Call
+		 * {@code parallel()} on it to run it on the common fork-join pool. The map must not be modified while the stream
+		 * is in use.
+		 *
+		 * @return A stream over the keys.
+		 */
+		public LongStream keys() { return StreamSupport.longStream( spliterator(), false ); }
+		
+		/**
+		 * Returns a spliterator over the values of the map, in the order of {@link #spliterator()}, the value of
+		 * the null key excluded. It splits as {@link #spliterator()} does and reports {@code SIZED}, {@code SUBSIZED}
+		 * and {@code NONNULL}.
+		 *
+		 * @return A spliterator over the values.
+		 */
+		public Spliterator.OfInt valuesSpliterator() {
+			int lo  = _lo_Size;
+			int gap = _count() == 0 ?
+			          0 :
+			          keys.length - _hi_Size - lo; // skips the free slots between the regions
+			return new Array.IntSpliterator( 0, _count(), Spliterator.NONNULL, i -> value( i < lo ? i : i + gap ) );
+		}
+		
+		/**
+		 * Returns a sequential {@link IntStream} over the values of the map, in the order of {@link #keys()}, the value of
+		 * the null key excluded, without boxing. Call {@code parallel()} on it to run it on the common fork-join pool. The
+		 * map must not be modified while the stream is in use.
+		 *
+		 * @return A stream over the values.
+		 */
+		public IntStream values() { return StreamSupport.intStream( valuesSpliterator(), false ); }
+		
+		/**
+		 * Passes every entry to the action, the null key excluded. Loops directly over the lo and hi regions of the key
+		 * and value arrays, without tokens or version checks, so the action must not modify the map.
+		 *
+		 * @param action The receiver of the entries.
+		 */
+		public void forEach( Consumer action ) {
+			if( _count() == 0 ) return;
+			for( int i = 0; i < _lo_Size; i++ )
+				action.accept( keys[ i ], values[ i ] );
+			for( int i = keys.length - _hi_Size; i < keys.length; i++ )
+				action.accept( keys[ i ], values[ i ] );
+		}
+		
+		/**
+		 * Passes every key to the action, the null key excluded, in the order of {@link #forEach(Consumer)}.
+		 *
+		 * @param action The receiver of the keys.
+		 */
+		public void forEachKey( KeyConsumer action ) {
+			if( _count() == 0 ) return;
+			for( int i = 0; i < _lo_Size; i++ )
+				action.accept( keys[ i ] );
+			for( int i = keys.length - _hi_Size; i < keys.length; i++ )
+				action.accept( keys[ i ] );
+		}
+		
+		/**
+		 * Passes every value to the action, the value of the null key excluded, in the order of
+		 * {@link #forEach(Consumer)}.
+		 *
+		 * @param action The receiver of the values.
+		 */
+		public void forEachValue( ValueConsumer action ) {
+			if( _count() == 0 ) return;
+			for( int i = 0; i < _lo_Size; i++ )
+				action.accept( values[ i ] );
+			for( int i = keys.length - _hi_Size; i < keys.length; i++ )
+				action.accept( values[ i ] );
+		}
+		
+		/**
+		 * Passes the entries to the predicate, in the order of {@link #forEach(Consumer)}, until it returns {@code false}.
+		 *
+		 * @param predicate The test of the entries.
+		 * @return {@code true} if the predicate accepted every entry, {@code false} if it stopped the iteration.
+		 */
+		public boolean forEachWhile( Predicate predicate ) {
+			if( _count() == 0 ) return true;
+			for( int i = 0; i < _lo_Size; i++ )
+				if( !predicate.test( keys[ i ], values[ i ] ) ) return false;
+			for( int i = keys.length - _hi_Size; i < keys.length; i++ )
+				if( !predicate.test( keys[ i ], values[ i ] ) ) return false;
+			return true;
+		}
+		
 		
 		@Override
 		/**
@@ -584,7 +849,7 @@ public interface LongIntMap {
 		 * @param hash The hash value of a key.
 		 * @return The computed bucket index.
 		 */
-		protected int bucketIndex( int hash ) { return ( hash & 0x7FFF_FFFF ) % _buckets.length; }
+		protected int bucketIndex( int hash ) { return Array.mod( hash & 0x7FFF_FFFF, _bucketsMultiplier, _buckets.length ); }
 		
 		/**
 		 * Creates a token from an internal array index. The token encodes the map's current version
@@ -620,6 +885,29 @@ public interface LongIntMap {
 	 */
 	class RW extends R {
 		
+		/**
+		 * The length of a collision chain that, when exceeded during an insertion, triggers a rehash
+		 * with the strategy supplied by {@link #forceNewHashCodes}.
+		 */
+		protected static final int                        HashCollisionThreshold = 100;
+		/**
+		 * An optional function that, when set, provides a new key hashing strategy once an insertion walks a
+		 * collision chain longer than {@link #HashCollisionThreshold}, e.g. {@code h -> Array.Hash.random()}.
+		 * This counters hash-flooding with keys crafted against the current strategy.
+		 */
+		public                Function< Array.Hash, Array.Hash > forceNewHashCodes      = null;
+		
+		/**
+		 * Replaces the strategy used to hash keys into buckets and redistributes the current entries under it.
+		 * This is a structural modification that invalidates all outstanding tokens.
+		 *
+		 * @param hash_K The new key hashing strategy, e.g. {@link Array.Hash#MURMUR} or {@link Array.Hash#random()}.
+		 */
+		public void hash_K( Array.Hash hash_K ) {
+			this.hash_K = hash_K;
+			if( _buckets != null ) resize( keys.length );
+		}
+		
 		/**
 		 * Constructs an empty {@code IntIntMap.RW} instance with a default initial capacity (7).
 		 */
@@ -645,6 +933,7 @@ public interface LongIntMap {
 			_version++;
 			
 			_buckets = new int[ capacity ];
+			_bucketsMultiplier = Array.modMultiplier( capacity );
 			keys     = new long[ capacity ];
 			values   = new int[ capacity ];
 			_lo_Size = 0;
@@ -697,23 +986,72 @@ public interface LongIntMap {
 			if( _buckets == null ) initialize( 7 );
 			else if( _count() == keys.length ) resize( Array.prime( keys.length * 2 ) );
 			
-			int bucketIndex = bucketIndex( Array.hash( key ) );
-			int index       = _buckets[ bucketIndex ] - 1;
+			return put( key, value, bucketIndex( hash_K.hash( key ) ) );
+		}
+		
+		/**
+		 * Associates the value with the key in the given bucket of the current arrays, which must have room for one more entry.
+		 *
+		 * @param key         The key.
+		 * @param value       The value.
+		 * @param bucketIndex The bucket of the key, as computed by {@link #bucketIndex(int)}.
+		 * @return {@code true} if a new key was added, {@code false} if an existing key's value was updated.
+		 */
+		private boolean put( long key, int value, int bucketIndex ) {
+			int index = find( key, bucketIndex );
+			if( index < 0 ) {
+				insert( key, value, bucketIndex, ~index );
+				return true;// Key was new
+			}
+			
+			values[ index ] = ( int ) value;// Update value
+			_version++;
+			return false;
+		}
+		
+		/**
+		 * Walks the collision chain of the given bucket looking for the key.
+		 *
+		 * @param key         The key.
+		 * @param bucketIndex The bucket of the key, as computed by {@link #bucketIndex(int)}.
+		 * @return The index of the key's entry, or, if the key is absent, the bitwise complement of the number of
+		 *         collisions walked past, to be passed to {@link #insert}.
+		 */
+		private int find( long key, int bucketIndex ) {
+			int index = _buckets[ bucketIndex ] - 1;
+			if( index == -1 ) return ~0;
+			
+			for( int collisions = 0; ; ) {
+				if( keys[ index ] == ( long ) key ) return index;
+				if( _lo_Size <= index ) return ~collisions;
+				index = links[ index ];
+				
+				if( _lo_Size + 1 < collisions++ ) throw new ConcurrentModificationException( "Concurrent operations not supported." );
+			}
+		}
+		
+		/**
+		 * Adds an absent key to the given bucket of the current arrays, which must have room for one more entry.
+		 *
+		 * @param key         The key, known to be absent.
+		 * @param value       The value.
+		 * @param bucketIndex The bucket of the key, as computed by {@link #bucketIndex(int)}.
+		 * @param collisions  The number of collisions reported by {@link #find}.
+		 * @return The index of the new entry.
+		 */
+		private int insert( long key, int value, int bucketIndex, int collisions ) {
+			int index = _buckets[ bucketIndex ] - 1;
 			int dst_index;
 			
 			if( index == -1 )  // Bucket is empty: place new entry in {@code hi Region}
 				dst_index = keys.length - 1 - _hi_Size++; // Add to the "bottom" of {@code hi Region}
 			else {
-				for( int i = index, collisions = 0; ; ) {
-					if( keys[ i ] == ( long ) key ) {
-						values[ i ] = ( int ) value;// Update value
-						_version++;
-						return false;// Key was not new
+				if( HashCollisionThreshold < collisions && forceNewHashCodes != null ) {
+					Array.Hash hash = forceNewHashCodes.apply( hash_K );
+					if( hash != hash_K ) {
+						hash_K( hash );
+						return insert( key, value, bucketIndex( hash_K.hash( key ) ), 0 );
 					}
-					if( _lo_Size <= i ) break;
-					i = links[ i ];
-					
-					if( _lo_Size + 1 < collisions++ ) throw new ConcurrentModificationException( "Concurrent operations not supported." );
 				}
 				
 				( links.length == ( dst_index = _lo_Size++ ) ?
@@ -725,10 +1063,184 @@ public interface LongIntMap {
 			values[ dst_index ]     = ( int ) value;
 			_buckets[ bucketIndex ] = ( int ) ( dst_index + 1 );
 			_version++;
+			return dst_index;
+		}
+		
+		
+		/**
+		 * Associates the value with the key only if the key is absent. The key is looked up once.
+		 *
+		 * @param key   The key.
+		 * @param value The value to associate with an absent key.
+		 * @return {@code true} if the key was added, {@code false} if it was present and its value left unchanged.
+		 */
+		public boolean putIfAbsent( long key, int value ) {
+			if( _buckets == null ) initialize( 7 );
+			else if( _count() == keys.length ) resize( Array.prime( keys.length * 2 ) );
+			
+			int bucketIndex = bucketIndex( hash_K.hash( key ) );
+			int index       = find( key, bucketIndex );
+			if( -1 < index ) return false;
+			
+			insert( key, value, bucketIndex, ~index );
+			return true;
+		}
+		
+		
+		/**
+		 * Adds {@code delta} to the value of the key, associating an absent key with {@code delta}.
+		 * The key is looked up once, so counting is a single call instead of {@code tokenOf} followed by {@code put}.
+		 *
+		 * @param key   The key.
+		 * @param delta The amount to add.
+		 * @return The new value of the key.
+		 */
+		public int addTo( long key, int delta ) {
+			if( _buckets == null ) initialize( 7 );
+			else if( _count() == keys.length ) resize( Array.prime( keys.length * 2 ) );
+			
+			int bucketIndex = bucketIndex( hash_K.hash( key ) );
+			int index       = find( key, bucketIndex );
+			if( index < 0 ) {
+				insert( key, delta, bucketIndex, ~index );
+				return delta;
+			}
+			
+			_version++;
+			return values[ index ] += delta;
+		}
+		
+		
+		/**
+		 * Returns the value of the key, first associating an absent key with the value computed by {@code mapping}.
+		 * The key is looked up once.
+		 *
+		 * @param key     The key.
+		 * @param mapping Computes the value of an absent key. It must not modify this map.
+		 * @return The current, or the newly computed, value of the key.
+		 * @throws ConcurrentModificationException if {@code mapping} modified this map.
+		 */
+		public int computeIfAbsent( long key, Mapping mapping ) {
+			if( _buckets == null ) initialize( 7 );
+			else if( _count() == keys.length ) resize( Array.prime( keys.length * 2 ) );
+			
+			int bucketIndex = bucketIndex( hash_K.hash( key ) );
+			int index       = find( key, bucketIndex );
+			if( -1 < index ) return values[ index ];
+			
+			int version = _version;
+			int value   = mapping.apply( key );
+			if( version != _version ) throw new ConcurrentModificationException( "The mapping function modified the map." );
+			
+			insert( key, value, bucketIndex, ~index );
+			return value;
+		}
+		
+		
+		/**
+		 * Replaces the value of a present key with the value computed by {@code remapping}. The key is looked up once.
+		 * An absent key is left absent.
+		 *
+		 * @param key       The key.
+		 * @param remapping Computes the new value from the key and its current value. It must not modify this map.
+		 * @return {@code true} if the key was present and its value replaced.
+		 * @throws ConcurrentModificationException if {@code remapping} modified this map.
+		 */
+		public boolean computeIfPresent( long key, Remapping remapping ) {
+			if( _buckets == null ) return false;
+			
+			int index = find( key, bucketIndex( hash_K.hash( key ) ) );
+			if( index < 0 ) return false;
+			
+			int version = _version;
+			int value   = remapping.apply( key, values[ index ] );
+			if( version != _version ) throw new ConcurrentModificationException( "The remapping function modified the map." );
+			
+			values[ index ] = ( int ) value;
+			_version++;
 			return true;
 		}
 		
 		
+		/**
+		 * Associates an absent key with {@code value}, or replaces the value of a present key with the result of
+		 * {@code merging} its current value with {@code value}. The key is looked up once.
+		 *
+		 * @param key     The key.
+		 * @param value   The value to associate with an absent key, or to merge with the current one.
+		 * @param merging Combines the current value with {@code value}. It must not modify this map.
+		 * @return The new value of the key.
+		 * @throws ConcurrentModificationException if {@code merging} modified this map.
+		 */
+		public int merge( long key, int value, Merging merging ) {
+			if( _buckets == null ) initialize( 7 );
+			else if( _count() == keys.length ) resize( Array.prime( keys.length * 2 ) );
+			
+			int bucketIndex = bucketIndex( hash_K.hash( key ) );
+			int index       = find( key, bucketIndex );
+			if( index < 0 ) {
+				insert( key, value, bucketIndex, ~index );
+				return value;
+			}
+			
+			int version = _version;
+			int merged  = merging.apply( values[ index ], value );
+			if( version != _version ) throw new ConcurrentModificationException( "The merging function modified the map." );
+			
+			values[ index ] = ( int ) merged;
+			_version++;
+			return merged;
+		}
+		
+		
+		/**
+		 * Associates the values with the keys of the given range, as if by {@code put( src_keys[ i ], src_values[ i ] )}
+		 * for every {@code i} from {@code from} to {@code from + len - 1}.
+		 * <p>
+		 * The keys are processed in batches of {@link #BATCH}: the buckets of the whole batch are computed and loaded
+		 * first, then the keys are resolved against them, so the memory accesses of independent keys overlap.
+		 *
+		 * @param src_keys   The keys.
+		 * @param src_values The values, at the same indices as their keys.
+		 * @param from       The index of the first key.
+		 * @param len        The number of keys.
+		 * @return The number of keys that were added, not updated.
+		 */
+		public int putAll( long[] src_keys, int[] src_values, int from, int len ) {
+			int   added   = 0;
+			int[] buckets = new int[ Math.min( len, BATCH ) ];
+			int[] heads   = new int[ buckets.length ];
+			
+			for( int end = from + len; from < end; ) {
+				if( _buckets == null ) initialize( 7 );
+				int[] table = _buckets;
+				int   n     = Math.min( buckets.length, end - from );
+				
+				for( int i = 0; i < n; i++ ) heads[ i ] = table[ buckets[ i ] = bucketIndex( hash_K.hash( src_keys[ from + i ] ) ) ];
+				
+				// Bucket heads are re-read by put(), as earlier keys of the batch may have changed them.
+				// A resize or a new hash strategy invalidates the rest of the batch: it is hashed again.
+				for( int i = 0; i < n && table == _buckets; i++, from++ ) {
+					if( _count() == keys.length ) {
+						resize( Array.prime( keys.length * 2 ) );
+						break;
+					}
+					if( put( src_keys[ from ], src_values[ from ], buckets[ i ] ) ) added++;
+				}
+			}
+			return added;
+		}
+		
+		/**
+		 * Associates the values with the keys, as if by {@code put( src_keys[ i ], src_values[ i ] )} for every index of {@code src_keys}.
+		 *
+		 * @param src_keys   The keys.
+		 * @param src_values The values, at the same indices as their keys.
+		 * @return The number of keys that were added, not updated.
+		 */
+		public int putAll( long[] src_keys, int[] src_values ) { return putAll( src_keys, src_values, 0, src_keys.length ); }
+		
+		
 		/**
 		 * Removes the mapping for the specified boxed key from this map if present.
 		 * If the key is {@code null}, the null key mapping is removed.
@@ -776,7 +1288,7 @@ public interface LongIntMap {
 		private void move( int src, int dst ) {
 			
 			if( src == dst ) return;
-			int bucketIndex = bucketIndex( Array.hash( keys[ src ] ) );
+			int bucketIndex = bucketIndex( hash_K.hash( keys[ src ] ) );
 			int index       = _buckets[ bucketIndex ] - 1;
 			
 			if( index == src ) _buckets[ bucketIndex ] = ( int ) ( dst + 1 );
@@ -801,7 +1313,7 @@ public interface LongIntMap {
 		 */
 		public boolean remove( long key ) {
 			if( _count() == 0 ) return false;
-			int removeBucketIndex = bucketIndex( Array.hash( key ) );
+			int removeBucketIndex = bucketIndex( hash_K.hash( key ) );
 			int removeIndex       = _buckets[ removeBucketIndex ] - 1;
 			if( removeIndex < 0 ) return false;
 			
@@ -964,7 +1476,7 @@ public interface LongIntMap {
 		 * @param value The value to copy.
 		 */
 		private void copy( long key, int value ) {
-			int bucketIndex = bucketIndex( Array.hash( key ) );
+			int bucketIndex = bucketIndex( hash_K.hash( key ) );
 			int index       = _buckets[ bucketIndex ] - 1;
 			int dst_index;
 			
@@ -972,7 +1484,7 @@ public interface LongIntMap {
 				dst_index = keys.length - 1 - _hi_Size++;
 			else ( links.length == _lo_Size ?
 				  links = Arrays.copyOf( links, Math.max( 16, Math.min( _lo_Size * 2, keys.length ) ) ) :
-				  links )[ dst_index = _lo_Size++ ] = ( char ) ( index );
+				  links )[ dst_index = _lo_Size++ ] = index;
 			
 			keys[ dst_index ]       = key;
 			values[ dst_index ]     = value;
@@ -988,4 +1500,582 @@ public interface LongIntMap {
 		@Override
 		public RW clone() { return ( RW ) super.clone(); }
 	}
+	
+	/**
+	 * A read-write engine for {@link LongIntMap} that keeps its buckets, links, keys and values in native memory outside
+	 * the Java heap, for maps so large that garbage-collector marking and card-table upkeep of their arrays hurt.
+	 * <p>
+	 * The layout and algorithms are those of {@link RW}: prime-sized buckets, the {@code lo}/{@code hi} regions and
+	 * the same token protocol, so iteration order, tokens, {@code toJSON} and the whole {@link R}/{@link RW} API
+	 * behave the same and moving a map off-heap only changes its constructor call:
+	 * <pre>{@code
+	 * try( LongIntMap.OffHeap map = new LongIntMap.OffHeap( 300_000_000 ) ) {
+	 *     ...
+	 * }
+	 * }</pre>
+	 * The arrays are {@link Memory} blocks of direct buffers, which count against {@code -XX:MaxDirectMemorySize}. It
+	 * defaults to the maximum heap size, so a map larger than the heap needs it raised, e.g.
+	 * {@code -XX:MaxDirectMemorySize=16g}. {@link #close()} releases the native memory at once; the map is then empty
+	 * and allocates anew on the next insertion. A resize releases the old arrays as soon as their entries are moved.
+	 * {@link #clone()} copies the native memory, so every clone has to be closed too. The inherited {@code _buckets},
+	 * {@code links}, {@code keys} and {@code values} arrays stay unused.
+	 */
+	class OffHeap extends RW implements AutoCloseable {
+		
+		/**
+		 * The native {@code int} array of 1-based chain heads, {@code capacity} long, or {@code null} if no memory is held.
+		 */
+		protected Memory native_buckets;
+		
+		/**
+		 * The native {@code int} array of {@code lo Region} links, {@code links_capacity} long.
+		 */
+		protected Memory native_links;
+		
+		/**
+		 * The native {@code long} array of keys, {@code capacity} long.
+		 */
+		protected Memory native_keys;
+		
+		/**
+		 * The native {@code int} array of values, {@code capacity} long.
+		 */
+		protected Memory native_values;
+		
+		/**
+		 * The length of the native bucket, key and value arrays.
+		 */
+		protected int capacity;
+		
+		/**
+		 * The length of the native links array.
+		 */
+		protected int links_capacity;
+		
+		/**
+		 * Constructs an empty off-heap map with a default initial capacity.
+		 */
+		public OffHeap() { this( 0 ); }
+		
+		/**
+		 * Constructs an empty off-heap map with the specified initial capacity.
+		 *
+		 * @param capacity The initial capacity.
+		 */
+		public OffHeap( int capacity ) { if( capacity > 0 ) allocate( Array.prime( capacity ) ); }
+		
+		/**
+		 * Allocates empty native arrays of the given capacity, releasing none of the current ones. Invalidates all tokens.
+		 */
+		protected void allocate( int capacity ) {
+			_version++;
+			
+			native_buckets     = Memory.allocate( ( long ) capacity << 2 );
+			native_keys        = Memory.allocate( ( long ) capacity << 3 );
+			native_values      = Memory.allocate( ( long ) capacity << 2 );
+			this.capacity      = capacity;
+			_bucketsMultiplier = Array.modMultiplier( capacity );
+			_lo_Size           = 0;
+			_hi_Size           = 0;
+		}
+		
+		/**
+		 * Releases the native memory. The map is left empty, and allocates anew on the next insertion.
+		 */
+		@Override
+		public void close() {
+			Memory.free( native_buckets );
+			Memory.free( native_links );
+			Memory.free( native_keys );
+			Memory.free( native_values );
+			native_buckets = native_links = native_keys = native_values = null;
+			capacity       = links_capacity = 0;
+			_lo_Size       = 0;
+			_hi_Size       = 0;
+			hasNullKey     = false;
+			_version++;
+		}
+		
+		/**
+		 * Reads and writes the bucket, link, key and value arrays. Every access to the arrays goes through these
+		 * accessors and through {@link #allocate(int)}, {@link #growLinks()}, {@link #resize(int)}, {@link #clear()},
+		 * {@link #trim(int)}, {@link #close()} and {@link #clone()}, which subclasses keeping the arrays elsewhere override.
+		 */
+		protected int head( int bucketIndex ) { return Memory.getInt( native_buckets, bucketIndex ); }
+		
+		protected void head( int bucketIndex, int index ) { Memory.putInt( native_buckets, bucketIndex, index ); }
+		
+		protected int link( int index ) { return Memory.getInt( native_links, index ); }
+		
+		protected void link( int index, int next ) { Memory.putInt( native_links, index, next ); }
+		
+		protected long keyAt( int index ) { return Memory.getLong( native_keys, index ); }
+		
+		protected void keyAt( int index, long key ) { Memory.putLong( native_keys, index, key ); }
+		
+		protected int valueAt( int index ) { return Memory.getInt( native_values, index ); }
+		
+		protected void valueAt( int index, int value ) { Memory.putInt( native_values, index, value ); }
+		
+		@Override
+		protected int bucketIndex( int hash ) { return Array.mod( hash & 0x7FFF_FFFF, _bucketsMultiplier, capacity ); }
+		
+		@Override
+		public int length() { return capacity; }
+		
+		@Override
+		public boolean containsValue( int value ) {
+			if( hasNullKey && nullKeyValue == value ) return true;
+			
+			for( int i = 0; i < _lo_Size; i++ )
+				if( valueAt( i ) == value ) return true;
+			
+			for( int i = capacity - _hi_Size; i < capacity; i++ )
+				if( valueAt( i ) == value ) return true;
+			
+			return false;
+		}
+		
+		@Override
+		public long tokenOf( long key ) {
+			if( capacity == 0 || _count() == 0 ) return INVALID_TOKEN;
+			int index = head( bucketIndex( hash_K.hash( key ) ) ) - 1;
+			if( index < 0 ) return INVALID_TOKEN;
+			
+			for( int collisions = 0; ; ) {
+				if( keyAt( index ) == key ) return token( index );
+				if( _lo_Size <= index ) return INVALID_TOKEN; //terminal node
+				index = link( index );
+				if( _lo_Size < ++collisions ) throw new ConcurrentModificationException( "Concurrent operations not supported." );
+			}
+		}
+		
+		@Override
+		public int getAll( long[] src, int from, int len, int[] dst, int missingValue ) {
+			int found = 0;
+			for( int end = from + len; from < end; from++ ) {
+				long token = tokenOf( src[ from ] );
+				if( token == INVALID_TOKEN ) dst[ from ] = missingValue;
+				else {
+					dst[ from ] = valueAt( index( token ) );
+					found++;
+				}
+			}
+			return found;
+		}
+		
+		@Override
+		public int unsafe_token( final int token ) {
+			if( _count() == 0 ) return -1;
+			int i         = token + 1;
+			int lowest_hi = capacity - _hi_Size;
+			
+			return i < _lo_Size ?
+			       i :
+			       i < lowest_hi ?
+			       _hi_Size == 0 ?
+			       -1 :
+			       lowest_hi :
+			       i < capacity ?
+			       i :
+			       -1;
+		}
+		
+		@Override
+		public Spliterator.OfLong spliterator() { return Array.spliterator( size() - ( hasNullKey() ? 1 : 0 ), this::unsafe_token, this::key ); }
+		
+		@Override
+		public Spliterator.OfInt valuesSpliterator() { return Array.spliterator( size() - ( hasNullKey() ? 1 : 0 ), this::unsafe_token, this::value ); }
+		
+		@Override
+		public void forEach( Consumer action ) {
+			for( int t = -1; ( t = unsafe_token( t ) ) != -1; )
+				action.accept( key( t ), value( t ) );
+		}
+		
+		@Override
+		public void forEachKey( KeyConsumer action ) {
+			for( int t = -1; ( t = unsafe_token( t ) ) != -1; )
+				action.accept( key( t ) );
+		}
+		
+		@Override
+		public void forEachValue( ValueConsumer action ) {
+			for( int t = -1; ( t = unsafe_token( t ) ) != -1; )
+				action.accept( value( t ) );
+		}
+		
+		@Override
+		public boolean forEachWhile( Predicate predicate ) {
+			for( int t = -1; ( t = unsafe_token( t ) ) != -1; )
+				if( !predicate.test( key( t ), value( t ) ) ) return false;
+			return true;
+		}
+		
+		@Override
+		public long key( long token ) { return keyAt( index( token ) ); }
+		
+		@Override
+		public int value( long token ) {
+			return isKeyNull( token ) ?
+			       nullKeyValue :
+			       valueAt( index( token ) );
+		}
+		
+		@Override
+		public void toJSON( JsonWriter json ) {
+			json.preallocate( size() * 10 );
+			json.enterObject();
+			
+			if( hasNullKey ) json.name().value( nullKeyValue );
+			
+			for( int token = -1; ( token = unsafe_token( token ) ) != -1; )
+			     json.name( keyAt( token ) ).value( valueAt( token ) );
+			
+			json.exitObject();
+		}
+		
+		@Override
+		public void hash_K( Array.Hash hash_K ) {
+			this.hash_K = hash_K;
+			if( capacity != 0 ) resize( capacity );
+		}
+		
+		/**
+		 * Allocates the native arrays, or grows them if they are full, ahead of adding a key.
+		 */
+		private void reserve() {
+			if( capacity == 0 ) allocate( 7 );
+			else if( _count() == capacity ) resize( Array.prime( capacity * 2 ) );
+		}
+		
+		/**
+		 * Walks the collision chain of the given bucket looking for the key, as {@code RW} does.
+		 *
+		 * @return The index of the key's entry, or, if the key is absent, the bitwise complement of the number of
+		 *         collisions walked past, to be passed to {@link #insert}.
+		 */
+		private int find( long key, int bucketIndex ) {
+			int index = head( bucketIndex ) - 1;
+			if( index == -1 ) return ~0;
+			
+			for( int collisions = 0; ; ) {
+				if( keyAt( index ) == key ) return index;
+				if( _lo_Size <= index ) return ~collisions;
+				index = link( index );
+				
+				if( _lo_Size + 1 < collisions++ ) throw new ConcurrentModificationException( "Concurrent operations not supported." );
+			}
+		}
+		
+		/**
+		 * Adds an absent key to the given bucket, which must have room for one more entry, as {@code RW} does.
+		 *
+		 * @return The index of the new entry.
+		 */
+		private int insert( long key, int value, int bucketIndex, int collisions ) {
+			int index = head( bucketIndex ) - 1;
+			int dst_index;
+			
+			if( index == -1 )  // Bucket is empty: place new entry in {@code hi Region}
+				dst_index = capacity - 1 - _hi_Size++; // Add to the "bottom" of {@code hi Region}
+			else {
+				if( HashCollisionThreshold < collisions && forceNewHashCodes != null ) {
+					Array.Hash hash = forceNewHashCodes.apply( hash_K );
+					if( hash != hash_K ) {
+						hash_K( hash );
+						return insert( key, value, bucketIndex( hash_K.hash( key ) ), 0 );
+					}
+				}
+				
+				if( links_capacity == ( dst_index = _lo_Size++ ) ) growLinks();
+				link( dst_index, index ); // New entry points to the old head
+			}
+			
+			keyAt( dst_index, key );
+			valueAt( dst_index, value );
+			head( bucketIndex, dst_index + 1 );
+			_version++;
+			return dst_index;
+		}
+		
+		/**
+		 * Grows the native links array for the next {@code lo Region} entry.
+		 */
+		protected void growLinks() {
+			links_capacity = Math.max( 16, Math.min( _lo_Size * 2, capacity ) );
+			native_links   = Memory.reallocate( native_links, ( long ) links_capacity << 2 );
+		}
+		
+		@Override
+		public boolean put( long key, int value ) {
+			reserve();
+			
+			int bucketIndex = bucketIndex( hash_K.hash( key ) );
+			int index       = find( key, bucketIndex );
+			if( index < 0 ) {
+				insert( key, value, bucketIndex, ~index );
+				return true;// Key was new
+			}
+			
+			valueAt( index, value );// Update value
+			_version++;
+			return false;
+		}
+		
+		@Override
+		public int putAll( long[] src_keys, int[] src_values, int from, int len ) {
+			int added = 0;
+			for( int end = from + len; from < end; from++ )
+				if( put( src_keys[ from ], src_values[ from ] ) ) added++;
+			return added;
+		}
+		
+		@Override
+		public boolean putIfAbsent( long key, int value ) {
+			reserve();
+			
+			int bucketIndex = bucketIndex( hash_K.hash( key ) );
+			int index       = find( key, bucketIndex );
+			if( -1 < index ) return false;
+			
+			insert( key, value, bucketIndex, ~index );
+			return true;
+		}
+		
+		@Override
+		public int addTo( long key, int delta ) {
+			reserve();
+			
+			int bucketIndex = bucketIndex( hash_K.hash( key ) );
+			int index       = find( key, bucketIndex );
+			if( index < 0 ) {
+				insert( key, delta, bucketIndex, ~index );
+				return delta;
+			}
+			
+			int value = ( int ) ( valueAt( index ) + delta );
+			valueAt( index, value );
+			_version++;
+			return value;
+		}
+		
+		@Override
+		public int computeIfAbsent( long key, Mapping mapping ) {
+			reserve();
+			
+			int bucketIndex = bucketIndex( hash_K.hash( key ) );
+			int index       = find( key, bucketIndex );
+			if( -1 < index ) return valueAt( index );
+			
+			int version = _version;
+			int value = mapping.apply( key );
+			if( version != _version ) throw new ConcurrentModificationException( "The mapping function modified the map." );
+			
+			insert( key, value, bucketIndex, ~index );
+			return value;
+		}
+		
+		@Override
+		public boolean computeIfPresent( long key, Remapping remapping ) {
+			if( capacity == 0 ) return false;
+			
+			int index = find( key, bucketIndex( hash_K.hash( key ) ) );
+			if( index < 0 ) return false;
+			
+			int version = _version;
+			int value = remapping.apply( key, valueAt( index ) );
+			if( version != _version ) throw new ConcurrentModificationException( "The remapping function modified the map." );
+			
+			valueAt( index, value );
+			_version++;
+			return true;
+		}
+		
+		@Override
+		public int merge( long key, int value, Merging merging ) {
+			reserve();
+			
+			int bucketIndex = bucketIndex( hash_K.hash( key ) );
+			int index       = find( key, bucketIndex );
+			if( index < 0 ) {
+				insert( key, value, bucketIndex, ~index );
+				return value;
+			}
+			
+			int version = _version;
+			int merged = merging.apply( valueAt( index ), value );
+			if( version != _version ) throw new ConcurrentModificationException( "The merging function modified the map." );
+			
+			valueAt( index, merged );
+			_version++;
+			return merged;
+		}
+		
+		/**
+		 * Relocates the entry at {@code src} to {@code dst} within the same region and repoints the bucket or link
+		 * that referenced it, as {@code RW} does when compacting after a removal.
+		 */
+		private void move( int src, int dst ) {
+			if( src == dst ) return;
+			int bucketIndex = bucketIndex( hash_K.hash( keyAt( src ) ) );
+			int index       = head( bucketIndex ) - 1;
+			
+			if( index == src ) head( bucketIndex, dst + 1 );
+			else {
+				while( link( index ) != src )
+					index = link( index );
+				
+				link( index, dst );
+			}
+			if( src < _lo_Size ) link( dst, link( src ) );
+			
+			keyAt( dst, keyAt( src ) );
+			valueAt( dst, valueAt( src ) );
+		}
+		
+		@Override
+		public boolean remove( long key ) {
+			if( _count() == 0 ) return false;
+			int removeBucketIndex = bucketIndex( hash_K.hash( key ) );
+			int removeIndex       = head( removeBucketIndex ) - 1;
+			if( removeIndex < 0 ) return false;
+			
+			if( _lo_Size <= removeIndex ) {// Entry is in {@code hi Region}
+				if( keyAt( removeIndex ) != key ) return false;
+				
+				move( capacity - _hi_Size, removeIndex );
+				_hi_Size--;
+				head( removeBucketIndex, 0 );
+				_version++;
+				return true;
+			}
+			
+			// Entry is in {@code lo Region} (collision chain)
+			int next = link( removeIndex );
+			if( keyAt( removeIndex ) == key ) head( removeBucketIndex, next + 1 );
+			else {
+				int last = removeIndex;
+				if( keyAt( removeIndex = next ) == key )// The key is found at 'SecondNode'
+					if( removeIndex < _lo_Size ) link( last, link( removeIndex ) );
+					else {
+						// 'SecondNode' is the terminal node in the hi Region: it takes the head's entry instead
+						keyAt( removeIndex, keyAt( last ) );
+						valueAt( removeIndex, valueAt( last ) );
+						head( removeBucketIndex, removeIndex + 1 );
+						removeIndex = last;
+					}
+				else if( _lo_Size <= removeIndex ) return false;
+				else
+					for( int collisions = 0; ; ) {
+						int prev = last;
+						
+						if( keyAt( removeIndex = link( last = removeIndex ) ) == key ) {
+							if( removeIndex < _lo_Size ) link( last, link( removeIndex ) );
+							else {
+								keyAt( removeIndex, keyAt( last ) );
+								valueAt( removeIndex, valueAt( last ) );
+								link( prev, removeIndex );
+								removeIndex = last;
+							}
+							break;
+						}
+						if( _lo_Size <= removeIndex ) return false;
+						if( _lo_Size + 1 < collisions++ ) throw new ConcurrentModificationException( "Concurrent operations not supported." );
+					}
+			}
+			
+			move( _lo_Size - 1, removeIndex );
+			_lo_Size--;
+			_version++;
+			return true;
+		}
+		
+		@Override
+		public void clear() {
+			_version++;
+			
+			hasNullKey = false;
+			
+			if( _count() == 0 ) return;
+			Memory.clear( native_buckets, ( long ) capacity << 2 );
+			_lo_Size = 0;
+			_hi_Size = 0;
+		}
+		
+		@Override
+		public int ensureCapacity( int capacity ) {
+			if( capacity <= length() ) return length();
+			if( capacity == 0 ) allocate( capacity );
+			else resize( Array.prime( capacity ) );
+			return length();
+		}
+		
+		@Override
+		public void trim( int capacity ) {
+			if( capacity < _count() ) throw new IllegalArgumentException( "capacity is less than Count." );
+			if( length() <= ( capacity = Array.prime( Math.max( capacity, size() ) ) ) ) return;
+			
+			resize( capacity );
+			
+			if( _lo_Size < links_capacity ) native_links = Memory.reallocate( native_links, ( long ) ( links_capacity = _lo_Size ) << 2 );
+		}
+		
+		/**
+		 * Re-inserts every entry into new native arrays of the given capacity and releases the old ones.
+		 * Invalidates all tokens.
+		 */
+		protected void resize( int capacity ) {
+			Memory old_buckets  = native_buckets;
+			Memory old_keys     = native_keys;
+			Memory old_values   = native_values;
+			int    old_capacity = this.capacity;
+			int    old_lo_Size  = _lo_Size;
+			int    old_hi_Size  = _hi_Size;
+			
+			allocate( capacity );
+			
+			for( int i = 0; i < old_lo_Size; i++ )
+			     copy( Memory.getLong( old_keys, i ), Memory.getInt( old_values, i ) );
+			
+			for( int i = old_capacity - old_hi_Size; i < old_capacity; i++ )
+			     copy( Memory.getLong( old_keys, i ), Memory.getInt( old_values, i ) );
+			
+			Memory.free( old_buckets );
+			Memory.free( old_keys );
+			Memory.free( old_values );
+		}
+		
+		/**
+		 * Places an entry into the arrays during a resize, without checking for an existing key.
+		 */
+		protected void copy( long key, int value ) {
+			int bucketIndex = bucketIndex( hash_K.hash( key ) );
+			int index       = head( bucketIndex ) - 1;
+			int dst_index;
+			
+			if( index == -1 ) dst_index = capacity - 1 - _hi_Size++;
+			else {
+				if( links_capacity == ( dst_index = _lo_Size++ ) ) growLinks();
+				link( dst_index, index );
+			}
+			
+			keyAt( dst_index, key );
+			valueAt( dst_index, value );
+			head( bucketIndex, dst_index + 1 );
+		}
+		
+		/**
+		 * Returns a copy of this map with its own native memory, which has to be closed separately.
+		 */
+		@Override
+		public OffHeap clone() {
+			OffHeap dst = ( OffHeap ) super.clone();
+			dst.native_buckets = Memory.copy( native_buckets, ( long ) capacity << 2 );
+			dst.native_links   = Memory.copy( native_links, ( long ) links_capacity << 2 );
+			dst.native_keys    = Memory.copy( native_keys, ( long ) capacity << 3 );
+			dst.native_values  = Memory.copy( native_values, ( long ) capacity << 2 );
+			return dst;
+		}
+	}
 }
\ No newline at end of file
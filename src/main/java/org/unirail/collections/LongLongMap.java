@@ -18,8 +18,21 @@ package org.unirail.collections;
 
 import org.unirail.JsonWriter;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 import java.util.ConcurrentModificationException;
+import java.util.Spliterator;
+import java.util.function.Function;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+import java.util.zip.CRC32C;
 
 
 /**
@@ -145,6 +158,62 @@ import java.util.ConcurrentModificationException;
  */
 public interface LongLongMap {
 	
+	/**
+	 * Computes the value of an absent key for {@link RW#computeIfAbsent(long, Mapping)}.
+	 */
+	@FunctionalInterface
+	interface Mapping {
+		long apply( long key );
+	}
+	
+	/**
+	 * Computes the new value of a present key for {@link RW#computeIfPresent(long, Remapping)}.
+	 */
+	@FunctionalInterface
+	interface Remapping {
+		long apply( long key, long value );
+	}
+	
+	/**
+	 * Combines the current value of a present key with a given value for {@link RW#merge(long, long, Merging)}.
+	 */
+	@FunctionalInterface
+	interface Merging {
+		long apply( long oldValue, long value );
+	}
+	
+	/**
+	 * Receives the entries visited by {@link R#forEach(Consumer)}.
+	 */
+	@FunctionalInterface
+	interface Consumer {
+		void accept( long key, long value );
+	}
+	
+	/**
+	 * Tests the entries visited by {@link R#forEachWhile(Predicate)}.
+	 */
+	@FunctionalInterface
+	interface Predicate {
+		boolean test( long key, long value );
+	}
+	
+	/**
+	 * Receives the keys visited by {@link R#forEachKey(KeyConsumer)}.
+	 */
+	@FunctionalInterface
+	interface KeyConsumer {
+		void accept( long key );
+	}
+	
+	/**
+	 * Receives the values visited by {@link R#forEachValue(ValueConsumer)}.
+	 */
+	@FunctionalInterface
+	interface ValueConsumer {
+		void accept( long value );
+	}
+	
 	
 	abstract class R implements Cloneable, JsonWriter.Source {
 		
@@ -162,12 +231,31 @@ public interface LongLongMap {
 		 * A value of 0 indicates an empty bucket.
 		 */
 		protected int[]             _buckets;
+		/**
+		 * The {@link Array#modMultiplier(int)} of {@code _buckets.length}, used by {@link #bucketIndex(int)}
+		 * to reduce hashes to bucket indices without an integer division.
+		 */
+		protected long              _bucketsMultiplier;
 		/**
 		 * The array used to link entries in collision chains within the {@code lo Region}.
 		 * Each element `links[i]` stores the index of the next entry in the chain,
 		 * or an index >= `_lo_Size` if it points to a terminal node in the {@code hi Region}.
 		 */
 		protected int[]             links = Array.EqualHashOf._ints.O;
+		
+		/**
+		 * The strategy that hashes keys into buckets. Defaults to {@link Array.Hash#IDENTITY};
+		 * replace it with {@link RW#hash_K(Array.Hash)} for keys whose low bits are poorly distributed.
+		 */
+		protected Array.Hash hash_K = Array.Hash.IDENTITY;
+		
+		/**
+		 * Returns the strategy currently used to hash keys into buckets.
+		 *
+		 * @return The key hashing strategy.
+		 */
+		public Array.Hash hash_K() { return hash_K; }
+		
 		/**
 		 * The array storing the keys of the map entries.
 		 * Keys for {@code lo Region} entries are at indices `0` to `_lo_Size - 1`.
@@ -216,6 +304,11 @@ public interface LongLongMap {
 		 */
 		public static final long INVALID_TOKEN = -1L;
 		
+		/**
+		 * The number of keys that {@code getAll} and {@code putAll} hash ahead before resolving them.
+		 */
+		public static final int BATCH = 64;
+		
 		/**
 		 * Returns {@code true} if this map contains no key-value mappings.
 		 *
@@ -330,7 +423,7 @@ public interface LongLongMap {
 		public long tokenOf( long key ) {
 			
 			if( _buckets == null || _count() == 0 ) return INVALID_TOKEN;
-			int index = (_buckets[ bucketIndex( Array.hash( key ) ) ] ) - 1;
+			int index = (_buckets[ bucketIndex( hash_K.hash( key ) ) ] ) - 1;
 			if( index < 0 ) return INVALID_TOKEN;
 			
 			for( int collisions = 0; ; ) {
@@ -342,6 +435,81 @@ public interface LongLongMap {
 		}
 		
 		
+		/**
+		 * Returns the value of the specified primitive key, or {@code defaultValue} if the key is absent.
+		 *
+		 * @param key          The primitive key to search for.
+		 * @param defaultValue The value to return if the key is absent.
+		 * @return The value of the key, or {@code defaultValue}.
+		 */
+		public long getOrDefault( long key, long defaultValue ) {
+			long token = tokenOf( key );
+			return token == INVALID_TOKEN ?
+			       defaultValue :
+			       value( token );
+		}
+		
+		
+		/**
+		 * Looks up the keys of the given range and writes their values to the same indices of {@code dst}, or
+		 * {@code missingValue} for absent keys.
+		 * <p>
+		 * The keys are processed in batches of {@link #BATCH}: the buckets of the whole batch are loaded first, then the
+		 * keys are resolved against them, so the cache misses of independent lookups overlap instead of following one another.
+		 *
+		 * @param src          The keys to look up.
+		 * @param from         The index of the first key.
+		 * @param len          The number of keys.
+		 * @param dst          Receives the values, at the indices of their keys.
+		 * @param missingValue The value written for absent keys.
+		 * @return The number of keys found.
+		 */
+		public int getAll( long[] src, int from, int len, long[] dst, long missingValue ) {
+			if( _buckets == null || _count() == 0 ) {
+				Arrays.fill( dst, from, from + len, missingValue );
+				return 0;
+			}
+			
+			int   found = 0;
+			int[] heads = new int[ Math.min( len, BATCH ) ];
+			
+			for( int end = from + len; from < end; from += heads.length ) {
+				int n = Math.min( heads.length, end - from );
+				
+				for( int i = 0; i < n; i++ ) heads[ i ] = _buckets[ bucketIndex( hash_K.hash( src[ from + i ] ) ) ];
+				
+				for( int i = 0; i < n; i++ ) {
+					long key   = src[ from + i ];
+					long value = missingValue;
+					
+					for( int index = heads[ i ] - 1, collisions = 0; index != -1; index = links[ index ] ) {
+						if( keys[ index ] == key ) {
+							value = values[ index ];
+							found++;
+							break;
+						}
+						if( _lo_Size <= index ) break; //terminal node
+						if( _lo_Size < ++collisions ) throw new ConcurrentModificationException( "Concurrent operations not supported." );
+					}
+					
+					dst[ from + i ] = value;
+				}
+			}
+			return found;
+		}
+		
+		/**
+		 * Looks up all keys of {@code src} and writes their values to the same indices of {@code dst}, or
+		 * {@code missingValue} for absent keys.
+		 *
+		 * @param src          The keys to look up.
+		 * @param dst          Receives the values, at the indices of their keys.
+		 * @param missingValue The value written for absent keys.
+		 * @return The number of keys found.
+		 */
+		public int getAll( long[] src, long[] dst, long missingValue ) { return getAll( src, 0, src.length, dst, missingValue ); }
+		
+		
 		/**
 		 * Returns the token for the first non-null key-value mapping in this map according to
 		 * the internal iteration order. If only the null key is present, a token for the null key is returned.
@@ -465,6 +633,111 @@ public interface LongLongMap {
 					values[ index( token ) ] );
 		}
 		
+		/**
+		 * Returns a spliterator over the keys of the map, the null key excluded; check {@link #hasNullKey()}.
+		 * It splits the occupied slots of the {@code lo Region} and {@code hi Region} in halves, as if they were one
+		 * array, and reports {@code DISTINCT}, {@code SIZED}, {@code SUBSIZED} and {@code NONNULL}. The map must not be
+		 * modified while it is in use.
+		 *
+		 * @return A spliterator over the keys.
+		 */
+		public Spliterator.OfLong spliterator() {
+			int lo  = _lo_Size;
+			int gap = _count() == 0 ?
+			          0 :
+			          keys.length - _hi_Size - lo; // skips the free slots between the regions
+			return new Array.LongSpliterator( 0, _count(), Spliterator.DISTINCT | Spliterator.NONNULL, i -> key( i < lo ? i : i + gap ) );
+		}
+		
+		/**
+		 * Returns a sequential {@link LongStream} over the keys of the map, the null key excluded, without boxing. Call
+		 * {@code parallel()} on it to run it on the common fork-join pool. The map must not be modified while the stream
+		 * is in use.
+		 *
+		 * @return A stream over the keys.
+		 */
+		public LongStream keys() { return StreamSupport.longStream( spliterator(), false ); }
+		
+		/**
+		 * Returns a spliterator over the values of the map, in the order of {@link #spliterator()}, the value of
+		 * the null key excluded. It splits as {@link #spliterator()} does and reports {@code SIZED}, {@code SUBSIZED}
+		 * and {@code NONNULL}.
+		 *
+		 * @return A spliterator over the values.
+		 */
+		public Spliterator.OfLong valuesSpliterator() {
+			int lo  = _lo_Size;
+			int gap = _count() == 0 ?
+			          0 :
+			          keys.length - _hi_Size - lo; // skips the free slots between the regions
+			return new Array.LongSpliterator( 0, _count(), Spliterator.NONNULL, i -> value( i < lo ? i : i + gap ) );
+		}
+		
+		/**
+		 * Returns a sequential {@link LongStream} over the values of the map, in the order of {@link #keys()}, the value
+		 * of the null key excluded, without boxing. Call {@code parallel()} on it to run it on the common fork-join pool.
+		 * The map must not be modified while the stream is in use.
+		 *
+		 * @return A stream over the values.
+		 */
+		public LongStream values() { return StreamSupport.longStream( valuesSpliterator(), false ); }
+		
+		/**
+		 * Passes every entry to the action, the null key excluded. Loops directly over the lo and hi regions of the key
+		 * and value arrays, without tokens or version checks, so the action must not modify the map.
+		 *
+		 * @param action The receiver of the entries.
+		 */
+		public void forEach( Consumer action ) {
+			if( _count() == 0 ) return;
+			for( int i = 0; i < _lo_Size; i++ )
+				action.accept( keys[ i ], values[ i ] );
+			for( int i = keys.length - _hi_Size; i < keys.length; i++ )
+				action.accept( keys[ i ], values[ i ] );
+		}
+		
+		/**
+		 * Passes every key to the action, the null key excluded, in the order of {@link #forEach(Consumer)}.
+		 *
+		 * @param action The receiver of the keys.
+		 */
+		public void forEachKey( KeyConsumer action ) {
+			if( _count() == 0 ) return;
+			for( int i = 0; i < _lo_Size; i++ )
+				action.accept( keys[ i ] );
+			for( int i = keys.length - _hi_Size; i < keys.length; i++ )
+				action.accept( keys[ i ] );
+		}
+		
+		/**
+		 * Passes every value to the action, the value of the null key excluded, in the order of
+		 * {@link #forEach(Consumer)}.
+		 *
+		 * @param action The receiver of the values.
+		 */
+		public void forEachValue( ValueConsumer action ) {
+			if( _count() == 0 ) return;
+			for( int i = 0; i < _lo_Size; i++ )
+				action.accept( values[ i ] );
+			for( int i = keys.length - _hi_Size; i < keys.length; i++ )
+				action.accept( values[ i ] );
+		}
+		
+		/**
+		 * Passes the entries to the predicate, in the order of {@link #forEach(Consumer)}, until it returns {@code false}.
+		 *
+		 * @param predicate The test of the entries.
+		 * @return {@code true} if the predicate accepted every entry, {@code false} if it stopped the iteration.
+		 */
+		public boolean forEachWhile( Predicate predicate ) {
+			if( _count() == 0 ) return true;
+			for( int i = 0; i < _lo_Size; i++ )
+				if( !predicate.test( keys[ i ], values[ i ] ) ) return false;
+			for( int i = keys.length - _hi_Size; i < keys.length; i++ )
+				if( !predicate.test( keys[ i ], values[ i ] ) ) return false;
+			return true;
+		}
+		
 		
 		@Override
 		/**
@@ -476,7 +749,7 @@ public interface LongLongMap {
 		public int hashCode() {
 			int a = 0, b = 0, c = 1;
 			for( int token = -1; ( token = unsafe_token( token ) ) != -1; ) {
-				int h = Array.mix( seed, Array.hash( keys[ token ] ) );
+				int h = Array.mix( seed, Array.hash( key( token ) ) );
 				h = Array.mix( h, Array.hash( value( token ) ) );
 				h = Array.finalizeHash( h, 2 );
 				a += h;
@@ -584,7 +857,7 @@ public interface LongLongMap {
 		 * @param hash The hash value of a key.
 		 * @return The computed bucket index.
 		 */
-		protected int bucketIndex( int hash ) { return ( hash & 0x7FFF_FFFF ) % _buckets.length; }
+		protected int bucketIndex( int hash ) { return Array.mod( hash & 0x7FFF_FFFF, _bucketsMultiplier, _buckets.length ); }
 		
 		/**
 		 * Creates a token from an internal array index. The token encodes the map's current version
@@ -620,6 +893,29 @@ public interface LongLongMap {
 	 */
 	class RW extends R {
 		
+		/**
+		 * The length of a collision chain that, when exceeded during an insertion, triggers a rehash
+		 * with the strategy supplied by {@link #forceNewHashCodes}.
+		 */
+		protected static final int                        HashCollisionThreshold = 100;
+		/**
+		 * An optional function that, when set, provides a new key hashing strategy once an insertion walks a
+		 * collision chain longer than {@link #HashCollisionThreshold}, e.g. {@code h -> Array.Hash.random()}.
+		 * This counters hash-flooding with keys crafted against the current strategy.
+		 */
+		public                Function< Array.Hash, Array.Hash > forceNewHashCodes      = null;
+		
+		/**
+		 * Replaces the strategy used to hash keys into buckets and redistributes the current entries under it.
+		 * This is a structural modification that invalidates all outstanding tokens.
+		 *
+		 * @param hash_K The new key hashing strategy, e.g. {@link Array.Hash#MURMUR} or {@link Array.Hash#random()}.
+		 */
+		public void hash_K( Array.Hash hash_K ) {
+			this.hash_K = hash_K;
+			if( _buckets != null ) resize( keys.length );
+		}
+		
 		/**
 		 * Constructs an empty {@code IntIntMap.RW} instance with a default initial capacity (7).
 		 */
@@ -645,6 +941,7 @@ public interface LongLongMap {
 			_version++;
 			
 			_buckets = new int[ capacity ];
+			_bucketsMultiplier = Array.modMultiplier( capacity );
 			keys     = new long[ capacity ];
 			values   = new long[ capacity ];
 			_lo_Size = 0;
@@ -697,23 +994,72 @@ public interface LongLongMap {
 			if( _buckets == null ) initialize( 7 );
 			else if( _count() == keys.length ) resize( Array.prime( keys.length * 2 ) );
 			
-			int bucketIndex = bucketIndex( Array.hash( key ) );
-			int index       = _buckets[ bucketIndex ] - 1;
+			return put( key, value, bucketIndex( hash_K.hash( key ) ) );
+		}
+		
+		/**
+		 * Associates the value with the key in the given bucket of the current arrays, which must have room for one more entry.
+		 *
+		 * @param key         The key.
+		 * @param value       The value.
+		 * @param bucketIndex The bucket of the key, as computed by {@link #bucketIndex(int)}.
+		 * @return {@code true} if a new key was added, {@code false} if an existing key's value was updated.
+		 */
+		private boolean put( long key, long value, int bucketIndex ) {
+			int index = find( key, bucketIndex );
+			if( index < 0 ) {
+				insert( key, value, bucketIndex, ~index );
+				return true;// Key was new
+			}
+			
+			values[ index ] = ( long ) value;// Update value
+			_version++;
+			return false;
+		}
+		
+		/**
+		 * Walks the collision chain of the given bucket looking for the key.
+		 *
+		 * @param key         The key.
+		 * @param bucketIndex The bucket of the key, as computed by {@link #bucketIndex(int)}.
+		 * @return The index of the key's entry, or, if the key is absent, the bitwise complement of the number of
+		 *         collisions walked past, to be passed to {@link #insert}.
+		 */
+		private int find( long key, int bucketIndex ) {
+			int index = _buckets[ bucketIndex ] - 1;
+			if( index == -1 ) return ~0;
+			
+			for( int collisions = 0; ; ) {
+				if( keys[ index ] == ( long ) key ) return index;
+				if( _lo_Size <= index ) return ~collisions;
+				index = links[ index ];
+				
+				if( _lo_Size + 1 < collisions++ ) throw new ConcurrentModificationException( "Concurrent operations not supported." );
+			}
+		}
+		
+		/**
+		 * Adds an absent key to the given bucket of the current arrays, which must have room for one more entry.
+		 *
+		 * @param key         The key, known to be absent.
+		 * @param value       The value.
+		 * @param bucketIndex The bucket of the key, as computed by {@link #bucketIndex(int)}.
+		 * @param collisions  The number of collisions reported by {@link #find}.
+		 * @return The index of the new entry.
+		 */
+		private int insert( long key, long value, int bucketIndex, int collisions ) {
+			int index = _buckets[ bucketIndex ] - 1;
 			int dst_index;
 			
 			if( index == -1 )  // Bucket is empty: place new entry in {@code hi Region}
 				dst_index = keys.length - 1 - _hi_Size++; // Add to the "bottom" of {@code hi Region}
 			else {
-				for( int i = index, collisions = 0; ; ) {
-					if( keys[ i ] == ( long ) key ) {
-						values[ i ] = ( long ) value;// Update value
-						_version++;
-						return false;// Key was not new
+				if( HashCollisionThreshold < collisions && forceNewHashCodes != null ) {
+					Array.Hash hash = forceNewHashCodes.apply( hash_K );
+					if( hash != hash_K ) {
+						hash_K( hash );
+						return insert( key, value, bucketIndex( hash_K.hash( key ) ), 0 );
 					}
-					if( _lo_Size <= i ) break;
-					i = links[ i ];
-					
-					if( _lo_Size + 1 < collisions++ ) throw new ConcurrentModificationException( "Concurrent operations not supported." );
 				}
 				
 				( links.length == ( dst_index = _lo_Size++ ) ?
@@ -725,10 +1071,184 @@ public interface LongLongMap {
 			values[ dst_index ]     = ( long ) value;
 			_buckets[ bucketIndex ] = ( int ) ( dst_index + 1 );
 			_version++;
+			return dst_index;
+		}
+		
+		
+		/**
+		 * Associates the value with the key only if the key is absent. The key is looked up once.
+		 *
+		 * @param key   The key.
+		 * @param value The value to associate with an absent key.
+		 * @return {@code true} if the key was added, {@code false} if it was present and its value left unchanged.
+		 */
+		public boolean putIfAbsent( long key, long value ) {
+			if( _buckets == null ) initialize( 7 );
+			else if( _count() == keys.length ) resize( Array.prime( keys.length * 2 ) );
+			
+			int bucketIndex = bucketIndex( hash_K.hash( key ) );
+			int index       = find( key, bucketIndex );
+			if( -1 < index ) return false;
+			
+			insert( key, value, bucketIndex, ~index );
+			return true;
+		}
+		
+		
+		/**
+		 * Adds {@code delta} to the value of the key, associating an absent key with {@code delta}.
+		 * The key is looked up once, so counting is a single call instead of {@code tokenOf} followed by {@code put}.
+		 *
+		 * @param key   The key.
+		 * @param delta The amount to add.
+		 * @return The new value of the key.
+		 */
+		public long addTo( long key, long delta ) {
+			if( _buckets == null ) initialize( 7 );
+			else if( _count() == keys.length ) resize( Array.prime( keys.length * 2 ) );
+			
+			int bucketIndex = bucketIndex( hash_K.hash( key ) );
+			int index       = find( key, bucketIndex );
+			if( index < 0 ) {
+				insert( key, delta, bucketIndex, ~index );
+				return delta;
+			}
+			
+			_version++;
+			return values[ index ] += delta;
+		}
+		
+		
+		/**
+		 * Returns the value of the key, first associating an absent key with the value computed by {@code mapping}.
+		 * The key is looked up once.
+		 *
+		 * @param key     The key.
+		 * @param mapping Computes the value of an absent key. It must not modify this map.
+		 * @return The current, or the newly computed, value of the key.
+		 * @throws ConcurrentModificationException if {@code mapping} modified this map.
+		 */
+		public long computeIfAbsent( long key, Mapping mapping ) {
+			if( _buckets == null ) initialize( 7 );
+			else if( _count() == keys.length ) resize( Array.prime( keys.length * 2 ) );
+			
+			int bucketIndex = bucketIndex( hash_K.hash( key ) );
+			int index       = find( key, bucketIndex );
+			if( -1 < index ) return values[ index ];
+			
+			int  version = _version;
+			long value   = mapping.apply( key );
+			if( version != _version ) throw new ConcurrentModificationException( "The mapping function modified the map." );
+			
+			insert( key, value, bucketIndex, ~index );
+			return value;
+		}
+		
+		
+		/**
+		 * Replaces the value of a present key with the value computed by {@code remapping}. The key is looked up once.
+		 * An absent key is left absent.
+		 *
+		 * @param key       The key.
+		 * @param remapping Computes the new value from the key and its current value. It must not modify this map.
+		 * @return {@code true} if the key was present and its value replaced.
+		 * @throws ConcurrentModificationException if {@code remapping} modified this map.
+		 */
+		public boolean computeIfPresent( long key, Remapping remapping ) {
+			if( _buckets == null ) return false;
+			
+			int index = find( key, bucketIndex( hash_K.hash( key ) ) );
+			if( index < 0 ) return false;
+			
+			int  version = _version;
+			long value   = remapping.apply( key, values[ index ] );
+			if( version != _version ) throw new ConcurrentModificationException( "The remapping function modified the map." );
+			
+			values[ index ] = ( long ) value;
+			_version++;
 			return true;
 		}
 		
 		
+		/**
+		 * Associates an absent key with {@code value}, or replaces the value of a present key with the result of
+		 * {@code merging} its current value with {@code value}. The key is looked up once.
+		 *
+		 * @param key     The key.
+		 * @param value   The value to associate with an absent key, or to merge with the current one.
+		 * @param merging Combines the current value with {@code value}. It must not modify this map.
+		 * @return The new value of the key.
+		 * @throws ConcurrentModificationException if {@code merging} modified this map.
+		 */
+		public long merge( long key, long value, Merging merging ) {
+			if( _buckets == null ) initialize( 7 );
+			else if( _count() == keys.length ) resize( Array.prime( keys.length * 2 ) );
+			
+			int bucketIndex = bucketIndex( hash_K.hash( key ) );
+			int index       = find( key, bucketIndex );
+			if( index < 0 ) {
+				insert( key, value, bucketIndex, ~index );
+				return value;
+			}
+			
+			int  version = _version;
+			long merged  = merging.apply( values[ index ], value );
+			if( version != _version ) throw new ConcurrentModificationException( "The merging function modified the map." );
+			
+			values[ index ] = ( long ) merged;
+			_version++;
+			return merged;
+		}
+		
+		
+		/**
+		 * Associates the values with the keys of the given range, as if by {@code put( src_keys[ i ], src_values[ i ] )}
+		 * for every {@code i} from {@code from} to {@code from + len - 1}.
+		 * <p>
+		 * The keys are processed in batches of {@link #BATCH}: the buckets of the whole batch are computed and loaded
+		 * first, then the keys are resolved against them, so the memory accesses of independent keys overlap.
+		 *
+		 * @param src_keys   The keys.
+		 * @param src_values The values, at the same indices as their keys.
+		 * @param from       The index of the first key.
+		 * @param len        The number of keys.
+		 * @return The number of keys that were added, not updated.
+		 */
+		public int putAll( long[] src_keys, long[] src_values, int from, int len ) {
+			int   added   = 0;
+			int[] buckets = new int[ Math.min( len, BATCH ) ];
+			int[] heads   = new int[ buckets.length ];
+			
+			for( int end = from + len; from < end; ) {
+				if( _buckets == null ) initialize( 7 );
+				int[] table = _buckets;
+				int   n     = Math.min( buckets.length, end - from );
+				
+				for( int i = 0; i < n; i++ ) heads[ i ] = table[ buckets[ i ] = bucketIndex( hash_K.hash( src_keys[ from + i ] ) ) ];
+				
+				// Bucket heads are re-read by put(), as earlier keys of the batch may have changed them.
+				// A resize or a new hash strategy invalidates the rest of the batch: it is hashed again.
+				for( int i = 0; i < n && table == _buckets; i++, from++ ) {
+					if( _count() == keys.length ) {
+						resize( Array.prime( keys.length * 2 ) );
+						break;
+					}
+					if( put( src_keys[ from ], src_values[ from ], buckets[ i ] ) ) added++;
+				}
+			}
+			return added;
+		}
+		
+		/**
+		 * Associates the values with the keys, as if by {@code put( src_keys[ i ], src_values[ i ] )} for every index of {@code src_keys}.
+		 *
+		 * @param src_keys   The keys.
+		 * @param src_values The values, at the same indices as their keys.
+		 * @return The number of keys that were added, not updated.
+		 */
+		public int putAll( long[] src_keys, long[] src_values ) { return putAll( src_keys, src_values, 0, src_keys.length ); }
+		
+		
 		/**
 		 * Removes the mapping for the specified boxed key from this map if present.
 		 * If the key is {@code null}, the null key mapping is removed.
@@ -776,7 +1296,7 @@ public interface LongLongMap {
 		private void move( int src, int dst ) {
 			
 			if( src == dst ) return;
-			int bucketIndex = bucketIndex( Array.hash( keys[ src ] ) );
+			int bucketIndex = bucketIndex( hash_K.hash( keys[ src ] ) );
 			int index       = _buckets[ bucketIndex ] - 1;
 			
 			if( index == src ) _buckets[ bucketIndex ] = ( int ) ( dst + 1 );
@@ -801,7 +1321,7 @@ public interface LongLongMap {
 		 */
 		public boolean remove( long key ) {
 			if( _count() == 0 ) return false;
-			int removeBucketIndex = bucketIndex( Array.hash( key ) );
+			int removeBucketIndex = bucketIndex( hash_K.hash( key ) );
 			int removeIndex       = _buckets[ removeBucketIndex ] - 1;
 			if( removeIndex < 0 ) return false;
 			
@@ -964,7 +1484,7 @@ public interface LongLongMap {
 		 * @param value The value to copy.
 		 */
 		private void copy( long key, long value ) {
-			int bucketIndex = bucketIndex( Array.hash( key ) );
+			int bucketIndex = bucketIndex( hash_K.hash( key ) );
 			int index       = _buckets[ bucketIndex ] - 1;
 			int dst_index;
 			
@@ -972,7 +1492,7 @@ public interface LongLongMap {
 				dst_index = keys.length - 1 - _hi_Size++;
 			else ( links.length == _lo_Size ?
 				  links = Arrays.copyOf( links, Math.max( 16, Math.min( _lo_Size * 2, keys.length ) ) ) :
-				  links )[ dst_index = _lo_Size++ ] = ( char ) ( index );
+				  links )[ dst_index = _lo_Size++ ] = index;
 			
 			keys[ dst_index ]       = key;
 			values[ dst_index ]     = value;
@@ -988,4 +1508,2795 @@ public interface LongLongMap {
 		@Override
 		public RW clone() { return ( RW ) super.clone(); }
 	}
+
+	/**
+	 * An alternative read-write engine for {@link LongLongMap} that replaces the prime-sized, chained
+	 * {@code lo}/{@code hi} region layout with a power-of-two open-addressing table.
+	 * <p>
+	 * Because it extends {@link RW}, an instance can be assigned wherever an {@code LongLongMap.RW} or
+	 * {@code LongLongMap.R} is expected, so a hot map is switched by changing only its constructor call:
+	 * <pre>{@code
+	 * LongLongMap.RW map = new LongLongMap.Open( 1024 ); // was: new LongLongMap.RW( 1024 )
+	 * }</pre>
+	 *
+	 * <h3>Layout</h3>
+	 * <ul>
+	 * <li>Keys and values live in one interleaved {@code slots} array: the key of slot {@code i} is at
+	 *     {@code slots[ i * 2 ]} and its value at {@code slots[ i * 2 + 1 ]}, so a successful probe
+	 *     touches a single cache line.</li>
+	 * <li>The table length is a power of two; the home slot of a key is {@code hash_K.hash( key ) & mask},
+	 *     no integer division is performed.</li>
+	 * <li>A key of {@code 0} marks an empty slot. The real {@code 0} key, if present, is kept in the
+	 *     extra slot at index {@code mask + 1}, past the end of the probed table.</li>
+	 * <li>Collisions are resolved by linear probing. Removal uses backward-shift deletion, so the
+	 *     table never contains tombstones and probe sequences stay short.</li>
+	 * </ul>
+	 *
+	 * <h3>Tokens</h3>
+	 * The token protocol is the same as for {@link RW}: a token encodes the map version and the slot index.
+	 * Iteration walks occupied slots in table order, then the {@code 0} key slot, then the null key.
+	 */
+	class Open extends RW {
+
+		/**
+		 * Interleaved key/value storage. Slot {@code i} keeps its key at {@code i * 2} and its value at {@code i * 2 + 1}.
+		 * The slot at index {@code mask + 1} is reserved for the {@code 0} key.
+		 */
+		protected long[] slots;
+
+		/**
+		 * The table length minus one. The table length is always a power of two.
+		 */
+		protected int mask;
+
+		/**
+		 * The number of non-zero keys stored in the probed part of the table.
+		 */
+		protected int assigned;
+
+		/**
+		 * Indicates whether the {@code 0} key is present in its reserved slot.
+		 */
+		protected boolean hasZeroKey;
+
+		/**
+		 * The number of assigned slots at which the table is doubled.
+		 */
+		private int resizeAt;
+
+		/**
+		 * The maximum fraction of the table that may be occupied before it is doubled.
+		 */
+		protected static final float LOAD_FACTOR = 0.75f;
+
+		/**
+		 * The largest supported table length.
+		 */
+		protected static final int MAX_LENGTH = 1 << 29;
+
+		/**
+		 * Constructs an empty open-addressing map with a default initial capacity.
+		 */
+		public Open() { this( 0 ); }
+
+		/**
+		 * Constructs an empty open-addressing map able to hold {@code capacity} keys without resizing.
+		 *
+		 * @param capacity The expected number of keys.
+		 */
+		public Open( int capacity ) {
+			hash_K = Array.Hash.MURMUR;
+			if( capacity > 0 ) allocate( tableSize( capacity ) );
+		}
+
+		/**
+		 * Returns the power-of-two table length needed to hold {@code capacity} keys under {@link #LOAD_FACTOR}.
+		 */
+		private static int tableSize( int capacity ) {
+			return ( int ) Math.min( MAX_LENGTH, Math.max( 8, Array.nextPowerOf2( ( long ) Math.ceil( capacity / LOAD_FACTOR ) ) ) );
+		}
+
+		/**
+		 * Allocates an empty table of the given power-of-two length. Invalidates all tokens.
+		 */
+		private void allocate( int length ) {
+			_version++;
+			slots      = new long[ length + 1 << 1 ];
+			mask       = length - 1;
+			assigned   = 0;
+			hasZeroKey = false;
+			resizeAt   = Math.min( mask, ( int ) Math.ceil( length * LOAD_FACTOR ) );
+		}
+
+		/**
+		 * Returns the home slot of the given key. The key hashing strategy must spread entropy into the low bits,
+		 * which is why this engine defaults to {@link Array.Hash#MURMUR} instead of {@link Array.Hash#IDENTITY}.
+		 */
+		protected int slot( long key ) { return hash_K.hash( key ) & mask; }
+
+		@Override
+		protected int _count() {
+			return assigned + (
+					hasZeroKey ?
+					1 :
+					0 );
+		}
+
+		@Override
+		public int length() {
+			return slots == null ?
+			       0 :
+			       mask + 1;
+		}
+
+		@Override
+		public boolean containsValue( long value ) {
+			if( hasNullKey && nullKeyValue == value ) return true;
+			for( int token = -1; ( token = unsafe_token( token ) ) != -1; )
+				if( slots[ ( token << 1 ) + 1 ] == value ) return true;
+			return false;
+		}
+
+		@Override
+		public long tokenOf( long key ) {
+			if( slots == null ) return INVALID_TOKEN;
+			if( key == 0 ) return hasZeroKey ?
+			                      token( mask + 1 ) :
+			                      INVALID_TOKEN;
+
+			int i = slot( key );
+			for( long k; ( k = slots[ i << 1 ] ) != 0; i = i + 1 & mask )
+				if( k == key ) return token( i );
+
+			return INVALID_TOKEN;
+		}
+
+		/**
+		 * Returns the index of the next occupied slot after the given one, scanning the probed table first
+		 * and the reserved {@code 0} key slot last.
+		 *
+		 * @param token The current slot index, or -1 to start from the beginning.
+		 * @return The index of the next occupied slot, or -1 if there are no more non-null keys.
+		 */
+		@Override
+		public int unsafe_token( int token ) {
+			if( slots == null ) return -1;
+
+			final int zero = mask + 1;
+			if( zero <= token ) return -1;
+
+			if( assigned != 0 )
+				for( int i = token + 1; i < zero; i++ )
+					if( slots[ i << 1 ] != 0 ) return i;
+
+			return hasZeroKey ?
+			       zero :
+			       -1;
+		}
+		
+		@Override
+		public Spliterator.OfLong spliterator() { return Array.spliterator( size() - ( hasNullKey() ? 1 : 0 ), this::unsafe_token, this::key ); }
+		
+		@Override
+		public Spliterator.OfLong valuesSpliterator() { return Array.spliterator( size() - ( hasNullKey() ? 1 : 0 ), this::unsafe_token, this::value ); }
+
+		@Override
+		public void forEach( Consumer action ) {
+			for( int t = -1; ( t = unsafe_token( t ) ) != -1; )
+				action.accept( key( t ), value( t ) );
+		}
+
+		@Override
+		public void forEachKey( KeyConsumer action ) {
+			for( int t = -1; ( t = unsafe_token( t ) ) != -1; )
+				action.accept( key( t ) );
+		}
+
+		@Override
+		public void forEachValue( ValueConsumer action ) {
+			for( int t = -1; ( t = unsafe_token( t ) ) != -1; )
+				action.accept( value( t ) );
+		}
+
+		@Override
+		public boolean forEachWhile( Predicate predicate ) {
+			for( int t = -1; ( t = unsafe_token( t ) ) != -1; )
+				if( !predicate.test( key( t ), value( t ) ) ) return false;
+			return true;
+		}
+
+		@Override
+		public long key( long token ) { return slots[ index( token ) << 1 ]; }
+
+		@Override
+		public long value( long token ) {
+			return isKeyNull( token ) ?
+			       nullKeyValue :
+			       slots[ ( index( token ) << 1 ) + 1 ];
+		}
+
+		@Override
+		public void toJSON( JsonWriter json ) {
+			json.preallocate( size() * 10 );
+			json.enterObject();
+
+			if( hasNullKey ) json.name().value( nullKeyValue );
+
+			for( int token = -1; ( token = unsafe_token( token ) ) != -1; )
+			     json.name( slots[ token << 1 ] ).value( slots[ ( token << 1 ) + 1 ] );
+
+			json.exitObject();
+		}
+
+		@Override
+		public boolean put( long key, long value ) {
+			if( slots == null ) allocate( 8 );
+			else if( resizeAt <= assigned ) rehash( mask + 1 << 1 );
+
+			if( key == 0 ) {
+				boolean ret = !hasZeroKey;
+				hasZeroKey                 = true;
+				slots[ mask + 1 << 1 | 1 ] = value;
+				_version++;
+				return ret;
+			}
+
+			int i = slot( key ), probes = 0;
+			for( long k; ( k = slots[ i << 1 ] ) != 0; i = i + 1 & mask, probes++ )
+				if( k == key ) {
+					slots[ ( i << 1 ) + 1 ] = value;
+					_version++;
+					return false;
+				}
+			
+			if( HashCollisionThreshold < probes && forceNewHashCodes != null ) {
+				Array.Hash hash = forceNewHashCodes.apply( hash_K );
+				if( hash != hash_K ) {
+					hash_K( hash );
+					return put( key, value );
+				}
+			}
+
+			slots[ i << 1 ]         = key;
+			slots[ ( i << 1 ) + 1 ] = value;
+			assigned++;
+			_version++;
+			return true;
+		}
+
+		/**
+		 * Allocates the table, or doubles it if it is full, ahead of adding a key.
+		 */
+		private void reserve() {
+			if( slots == null ) allocate( 8 );
+			else if( resizeAt <= assigned ) rehash( mask + 1 << 1 );
+		}
+
+		/**
+		 * Returns the slot of the key, or, if the key is absent, the bitwise complement of the slot it would be added at.
+		 * The {@code 0} key is found at its reserved slot {@code mask + 1}. The table must be allocated.
+		 */
+		private int find( long key ) {
+			if( key == 0 ) return hasZeroKey ?
+			                      mask + 1 :
+			                      ~( mask + 1 );
+
+			int i = slot( key );
+			for( long k; ( k = slots[ i << 1 ] ) != 0; i = i + 1 & mask )
+				if( k == key ) return i;
+
+			return ~i;
+		}
+
+		/**
+		 * Adds an absent key at slot {@code i}, as returned by {@link #find(long)}. The table must have room for one more key.
+		 */
+		private void add( long key, long value, int i ) {
+			if( i == mask + 1 ) hasZeroKey = true;
+			else {
+				if( HashCollisionThreshold < ( i - slot( key ) & mask ) && forceNewHashCodes != null ) {
+					Array.Hash hash = forceNewHashCodes.apply( hash_K );
+					if( hash != hash_K ) {
+						hash_K( hash );
+						i = ~find( key );
+					}
+				}
+				slots[ i << 1 ] = key;
+				assigned++;
+			}
+			slots[ ( i << 1 ) + 1 ] = value;
+			_version++;
+		}
+
+		@Override
+		public boolean putIfAbsent( long key, long value ) {
+			reserve();
+			int i = find( key );
+			if( -1 < i ) return false;
+
+			add( key, value, ~i );
+			return true;
+		}
+
+		@Override
+		public long addTo( long key, long delta ) {
+			reserve();
+			int i = find( key );
+			if( i < 0 ) {
+				add( key, delta, ~i );
+				return delta;
+			}
+
+			_version++;
+			return slots[ ( i << 1 ) + 1 ] += delta;
+		}
+
+		@Override
+		public long computeIfAbsent( long key, Mapping mapping ) {
+			reserve();
+			int i = find( key );
+			if( -1 < i ) return slots[ ( i << 1 ) + 1 ];
+
+			int  version = _version;
+			long value   = mapping.apply( key );
+			if( version != _version ) throw new ConcurrentModificationException( "The mapping function modified the map." );
+
+			add( key, value, ~i );
+			return value;
+		}
+
+		@Override
+		public boolean computeIfPresent( long key, Remapping remapping ) {
+			if( slots == null ) return false;
+			int i = find( key );
+			if( i < 0 ) return false;
+
+			int  version = _version;
+			long value   = remapping.apply( key, slots[ ( i << 1 ) + 1 ] );
+			if( version != _version ) throw new ConcurrentModificationException( "The remapping function modified the map." );
+
+			slots[ ( i << 1 ) + 1 ] = value;
+			_version++;
+			return true;
+		}
+
+		@Override
+		public long merge( long key, long value, Merging merging ) {
+			reserve();
+			int i = find( key );
+			if( i < 0 ) {
+				add( key, value, ~i );
+				return value;
+			}
+
+			int  version = _version;
+			long merged  = merging.apply( slots[ ( i << 1 ) + 1 ], value );
+			if( version != _version ) throw new ConcurrentModificationException( "The merging function modified the map." );
+
+			slots[ ( i << 1 ) + 1 ] = merged;
+			_version++;
+			return merged;
+		}
+
+		@Override
+		public boolean remove( long key ) {
+			if( slots == null ) return false;
+
+			if( key == 0 ) {
+				if( !hasZeroKey ) return false;
+				hasZeroKey = false;
+				_version++;
+				return true;
+			}
+
+			int i = slot( key );
+			for( long k; ( k = slots[ i << 1 ] ) != 0; i = i + 1 & mask )
+				if( k == key ) {
+					shiftKeys( i );
+					assigned--;
+					_version++;
+					return true;
+				}
+
+			return false;
+		}
+
+		/**
+		 * Closes the gap left at slot {@code gap} by moving back every following entry of the same probe run
+		 * whose home slot does not lie cyclically in {@code (gap, current]}.
+		 */
+		private void shiftKeys( int gap ) {
+			for( int i = gap; ; ) {
+				long k;
+				if( ( k = slots[ ( i = i + 1 & mask ) << 1 ] ) == 0 ) break;
+
+				int home = slot( k );
+				if( gap <= i ?
+				    gap < home && home <= i :
+				    gap < home || home <= i ) continue;
+
+				slots[ gap << 1 ]         = k;
+				slots[ ( gap << 1 ) + 1 ] = slots[ ( i << 1 ) + 1 ];
+				gap                       = i;
+			}
+			slots[ gap << 1 ] = 0;
+		}
+
+		@Override
+		public void hash_K( Array.Hash hash_K ) {
+			this.hash_K = hash_K;
+			if( slots != null ) rehash( mask + 1 );
+		}
+		
+		@Override
+		public void clear() {
+			_version++;
+			hasNullKey = false;
+			if( slots == null || _count() == 0 ) return;
+			Arrays.fill( slots, 0 );
+			assigned   = 0;
+			hasZeroKey = false;
+		}
+
+		@Override
+		public int ensureCapacity( int capacity ) {
+			if( slots == null ) allocate( tableSize( capacity ) );
+			else if( resizeAt < capacity ) rehash( tableSize( capacity ) );
+			return length();
+		}
+
+		@Override
+		public void trim( int capacity ) {
+			if( capacity < _count() ) throw new IllegalArgumentException( "capacity is less than Count." );
+			if( slots == null ) return;
+			int length = tableSize( Math.max( capacity, assigned ) );
+			if( length < mask + 1 ) rehash( length );
+		}
+
+		/**
+		 * Re-inserts every entry into a new table of the given power-of-two length. Invalidates all tokens.
+		 */
+		private void rehash( int length ) {
+			if( MAX_LENGTH < length ) throw new IllegalStateException( "Table length cannot exceed " + MAX_LENGTH );
+			long[]  old        = slots;
+			int     old_length = mask + 1;
+			boolean zero       = hasZeroKey;
+
+			allocate( length );
+
+			for( int i = 0; i < old_length; i++ ) {
+				long k = old[ i << 1 ];
+				if( k != 0 ) {
+					int j = slot( k );
+					while( slots[ j << 1 ] != 0 ) j = j + 1 & mask;
+					slots[ j << 1 ]         = k;
+					slots[ ( j << 1 ) + 1 ] = old[ ( i << 1 ) + 1 ];
+					assigned++;
+				}
+			}
+
+			if( zero ) {
+				hasZeroKey                 = true;
+				slots[ mask + 1 << 1 | 1 ] = old[ old_length << 1 | 1 ];
+			}
+		}
+
+		/**
+		 * Looks up the keys one at a time. See {@link R#getAll(long[], int, int, long[], long)}.
+		 */
+		@Override
+		public int getAll( long[] src, int from, int len, long[] dst, long missingValue ) {
+			int found = 0;
+			for( int end = from + len; from < end; from++ ) {
+				long token = tokenOf( src[ from ] );
+				if( token == INVALID_TOKEN ) dst[ from ] = missingValue;
+				else {
+					dst[ from ] = value( token );
+					found++;
+				}
+			}
+			return found;
+		}
+		
+		/**
+		 * Puts the keys one at a time. See {@link RW#putAll(long[], long[], int, int)}.
+		 */
+		@Override
+		public int putAll( long[] src_keys, long[] src_values, int from, int len ) {
+			int added = 0;
+			for( int end = from + len; from < end; from++ )
+				if( put( src_keys[ from ], src_values[ from ] ) ) added++;
+			return added;
+		}
+		
+		@Override
+		public Open clone() {
+			Open dst = ( Open ) super.clone();
+			if( slots != null ) dst.slots = slots.clone();
+			return dst;
+		}
+	}
+	
+	/**
+	 * A Robin Hood hashing read-write engine for {@link LongLongMap}, meant for maps that run at high load factors
+	 * and see many removals.
+	 * <p>
+	 * Like {@link Open}, it extends {@link RW}, so it is selected by changing only the constructor call:
+	 * <pre>{@code
+	 * LongLongMap.RW map = new LongLongMap.RobinHood( 1024, 0.9f ); // was: new LongLongMap.RW( 1024 )
+	 * }</pre>
+	 *
+	 * <h3>Layout</h3>
+	 * <ul>
+	 * <li>Keys and values live in one interleaved {@code slots} array, as in {@link Open}.</li>
+	 * <li>A parallel {@code distances} array keeps, per slot, the probe distance of its entry from its home slot
+	 *     plus one; {@code 0} marks an empty slot, so every key, including {@code 0}, is stored in the table.</li>
+	 * <li>On insertion an entry that has travelled further from its home slot takes the place of a "richer" one,
+	 *     which keeps the variance of probe lengths low even above 90% load.</li>
+	 * <li>A lookup compares keys only at slots whose distance equals the current probe length and stops as soon as
+	 *     it meets an entry closer to its home than the probe, so unsuccessful lookups terminate early.</li>
+	 * <li>Removal shifts the following entries of the cluster back by one slot, so the table never contains
+	 *     tombstones and removal cost does not depend on the history of the map.</li>
+	 * <li>Probe distances are bytes. A longer probe doubles the table only when its load calls for it; in a sparse table
+	 *     it is a cluster of colliding hashes, so the keys are rehashed with a new, randomly seeded strategy instead.</li>
+	 * </ul>
+	 *
+	 * <h3>Tokens</h3>
+	 * The token protocol is the same as for {@link RW}: a token encodes the map version and the slot index.
+	 * Iteration walks occupied slots in table order, then the null key.
+	 */
+	class RobinHood extends RW {
+		
+		/**
+		 * Interleaved key/value storage. Slot {@code i} keeps its key at {@code i * 2} and its value at {@code i * 2 + 1}.
+		 */
+		protected long[] slots;
+		
+		/**
+		 * Probe distance plus one of the entry in each slot, read as an unsigned byte. {@code 0} marks an empty slot.
+		 */
+		protected byte[] distances;
+		
+		/**
+		 * The table length minus one. The table length is always a power of two.
+		 */
+		protected int mask;
+		
+		/**
+		 * The number of occupied slots.
+		 */
+		protected int assigned;
+		
+		/**
+		 * The maximum fraction of the table that may be occupied before it is doubled.
+		 */
+		protected final float loadFactor;
+		
+		/**
+		 * The number of assigned slots at which the table is doubled.
+		 */
+		private int resizeAt;
+		
+		/**
+		 * The default load factor. Robin Hood probing keeps lookups short well above the load of linear probing.
+		 */
+		protected static final float DEFAULT_LOAD_FACTOR = 0.9f;
+		
+		/**
+		 * The largest probe distance plus one that fits a {@code distances} element. A longer probe {@link #relieve() relieves} the table.
+		 */
+		protected static final int MAX_DISTANCE = 0xFF;
+		
+		/**
+		 * The largest supported table length.
+		 */
+		protected static final int MAX_LENGTH = 1 << 29;
+		
+		/**
+		 * The number of hash strategies tried in a row on a cluster of colliding keys before giving up.
+		 */
+		protected static final int MAX_RESEEDS = 8;
+		
+		/**
+		 * The hash strategies tried so far for the current insertion, see {@link #relieve()}.
+		 */
+		private int reseeds;
+		
+		/**
+		 * Constructs an empty Robin Hood map with a default initial capacity and load factor.
+		 */
+		public RobinHood() { this( 0 ); }
+		
+		/**
+		 * Constructs an empty Robin Hood map able to hold {@code capacity} keys without resizing, with the default load factor.
+		 *
+		 * @param capacity The expected number of keys.
+		 */
+		public RobinHood( int capacity ) { this( capacity, DEFAULT_LOAD_FACTOR ); }
+		
+		/**
+		 * Constructs an empty Robin Hood map able to hold {@code capacity} keys without resizing.
+		 *
+		 * @param capacity   The expected number of keys.
+		 * @param loadFactor The maximum occupied fraction of the table, in {@code (0, 1)}.
+		 * @throws IllegalArgumentException If {@code loadFactor} is out of range.
+		 */
+		public RobinHood( int capacity, float loadFactor ) {
+			if( !( 0 < loadFactor && loadFactor < 1 ) ) throw new IllegalArgumentException( "loadFactor must be in (0, 1): " + loadFactor );
+			this.loadFactor = loadFactor;
+			hash_K          = Array.Hash.MURMUR;
+			if( capacity > 0 ) allocate( tableSize( capacity ) );
+		}
+		
+		/**
+		 * Returns the power-of-two table length needed to hold {@code capacity} keys under {@link #loadFactor}.
+		 */
+		private int tableSize( int capacity ) {
+			return ( int ) Math.min( MAX_LENGTH, Math.max( 8, Array.nextPowerOf2( ( long ) Math.ceil( capacity / ( double ) loadFactor ) ) ) );
+		}
+		
+		/**
+		 * Allocates an empty table of the given power-of-two length. Invalidates all tokens.
+		 */
+		private void allocate( int length ) {
+			_version++;
+			slots     = new long[ length << 1 ];
+			distances = new byte[ length ];
+			mask      = length - 1;
+			assigned  = 0;
+			resizeAt  = Math.min( mask, ( int ) Math.ceil( length * ( double ) loadFactor ) );
+		}
+		
+		/**
+		 * Returns the home slot of the given key. The key hashing strategy must spread entropy into the low bits,
+		 * which is why this engine defaults to {@link Array.Hash#MURMUR} instead of {@link Array.Hash#IDENTITY}.
+		 */
+		protected int slot( long key ) { return hash_K.hash( key ) & mask; }
+		
+		@Override
+		protected int _count() { return assigned; }
+		
+		@Override
+		public int length() {
+			return slots == null ?
+			       0 :
+			       mask + 1;
+		}
+		
+		@Override
+		public boolean containsValue( long value ) {
+			if( hasNullKey && nullKeyValue == value ) return true;
+			for( int token = -1; ( token = unsafe_token( token ) ) != -1; )
+				if( slots[ ( token << 1 ) + 1 ] == value ) return true;
+			return false;
+		}
+		
+		@Override
+		public long tokenOf( long key ) {
+			if( assigned == 0 ) return INVALID_TOKEN;
+			
+			for( int i = slot( key ), d = 1; ; i = i + 1 & mask, d++ ) {
+				int dist = distances[ i ] & 0xFF;
+				if( dist < d ) return INVALID_TOKEN; // empty slot, or a richer entry: the key would have displaced it
+				if( dist == d && slots[ i << 1 ] == key ) return token( i );
+			}
+		}
+		
+		/**
+		 * Returns the index of the next occupied slot after the given one, in table order.
+		 *
+		 * @param token The current slot index, or -1 to start from the beginning.
+		 * @return The index of the next occupied slot, or -1 if there are no more non-null keys.
+		 */
+		@Override
+		public int unsafe_token( int token ) {
+			if( assigned == 0 ) return -1;
+			for( int i = token + 1; i <= mask; i++ )
+				if( distances[ i ] != 0 ) return i;
+			return -1;
+		}
+		
+		@Override
+		public Spliterator.OfLong spliterator() { return Array.spliterator( size() - ( hasNullKey() ? 1 : 0 ), this::unsafe_token, this::key ); }
+		
+		@Override
+		public Spliterator.OfLong valuesSpliterator() { return Array.spliterator( size() - ( hasNullKey() ? 1 : 0 ), this::unsafe_token, this::value ); }
+		
+		@Override
+		public void forEach( Consumer action ) {
+			for( int t = -1; ( t = unsafe_token( t ) ) != -1; )
+				action.accept( key( t ), value( t ) );
+		}
+		
+		@Override
+		public void forEachKey( KeyConsumer action ) {
+			for( int t = -1; ( t = unsafe_token( t ) ) != -1; )
+				action.accept( key( t ) );
+		}
+		
+		@Override
+		public void forEachValue( ValueConsumer action ) {
+			for( int t = -1; ( t = unsafe_token( t ) ) != -1; )
+				action.accept( value( t ) );
+		}
+		
+		@Override
+		public boolean forEachWhile( Predicate predicate ) {
+			for( int t = -1; ( t = unsafe_token( t ) ) != -1; )
+				if( !predicate.test( key( t ), value( t ) ) ) return false;
+			return true;
+		}
+		
+		@Override
+		public long key( long token ) { return slots[ index( token ) << 1 ]; }
+		
+		@Override
+		public long value( long token ) {
+			return isKeyNull( token ) ?
+			       nullKeyValue :
+			       slots[ ( index( token ) << 1 ) + 1 ];
+		}
+		
+		@Override
+		public void toJSON( JsonWriter json ) {
+			json.preallocate( size() * 10 );
+			json.enterObject();
+			
+			if( hasNullKey ) json.name().value( nullKeyValue );
+			
+			for( int token = -1; ( token = unsafe_token( token ) ) != -1; )
+			     json.name( slots[ token << 1 ] ).value( slots[ ( token << 1 ) + 1 ] );
+			
+			json.exitObject();
+		}
+		
+		@Override
+		public boolean put( long key, long value ) {
+			if( slots == null ) allocate( 8 );
+			else if( resizeAt <= assigned ) rehash( mask + 1 << 1 );
+			
+			int i = slot( key ), d = 1;
+			for( int dist; d <= ( dist = distances[ i ] & 0xFF ); i = i + 1 & mask, d++ )
+				if( dist == d && slots[ i << 1 ] == key ) {
+					slots[ ( i << 1 ) + 1 ] = value;
+					_version++;
+					return false;
+				}
+			
+			if( HashCollisionThreshold < d && forceNewHashCodes != null ) {
+				Array.Hash hash = forceNewHashCodes.apply( hash_K );
+				if( hash != hash_K ) {
+					hash_K( hash );
+					return put( key, value );
+				}
+			}
+			
+			insert( key, value, i, d );
+			reseeds = 0;
+			_version++;
+			return true;
+		}
+		
+		/**
+		 * Places a new entry at slot {@code i}, which is at probe distance {@code d - 1} from the entry's home slot.
+		 * Every richer entry met on the way is displaced and carried forward. If a carried entry would exceed
+		 * {@link #MAX_DISTANCE}, the table is {@link #relieve() relieved} and the carried entry is inserted anew.
+		 */
+		private void insert( long key, long value, int i, int d ) {
+			for( ; ; i = i + 1 & mask, d++ ) {
+				if( MAX_DISTANCE < d ) {
+					relieve();
+					int j = slot( key ), dj = 1;
+					for( ; dj <= ( distances[ j ] & 0xFF ); j = j + 1 & mask ) dj++;
+					insert( key, value, j, dj );
+					return;
+				}
+				
+				int dist = distances[ i ] & 0xFF;
+				if( dist == 0 ) {
+					slots[ i << 1 ]         = key;
+					slots[ ( i << 1 ) + 1 ] = value;
+					distances[ i ]          = ( byte ) d;
+					assigned++;
+					return;
+				}
+				
+				if( dist < d ) { // rob the richer entry of its slot and carry it on
+					long k = slots[ i << 1 ];
+					long v = slots[ ( i << 1 ) + 1 ];
+					slots[ i << 1 ]         = key;
+					slots[ ( i << 1 ) + 1 ] = value;
+					distances[ i ]          = ( byte ) d;
+					key                     = k;
+					value                   = v;
+					d                       = dist;
+				}
+			}
+		}
+		
+		/**
+		 * Makes room for a probe longer than {@link #MAX_DISTANCE}. A table loaded above half its {@link #loadFactor} is
+		 * doubled. Below that, the long probe is a cluster of keys with colliding hashes, which a larger table would keep
+		 * together, so the table is rehashed at the same length with a new strategy: the one from
+		 * {@link #forceNewHashCodes}, if it gives one, otherwise a {@link Array.Hash#random() randomly seeded} one.
+		 *
+		 * @throws IllegalStateException If {@link #MAX_RESEEDS} strategies in a row fail to break up the cluster.
+		 */
+		private void relieve() {
+			if( resizeAt >> 1 <= assigned ) {
+				rehash( mask + 1 << 1 );
+				return;
+			}
+			
+			if( MAX_RESEEDS < ++reseeds ) throw new IllegalStateException( "More than " + MAX_DISTANCE + " keys collide under " + MAX_RESEEDS + " hash strategies." );
+			Array.Hash hash = forceNewHashCodes == null ?
+			                  null :
+			                  forceNewHashCodes.apply( hash_K );
+			hash_K = hash == null || hash == hash_K ?
+			         Array.Hash.random() :
+			         hash;
+			rehash( mask + 1 );
+		}
+		
+		/**
+		 * Allocates the table, or doubles it if it is full, ahead of adding a key.
+		 */
+		private void reserve() {
+			if( slots == null ) allocate( 8 );
+			else if( resizeAt <= assigned ) rehash( mask + 1 << 1 );
+		}
+		
+		/**
+		 * Returns the slot of the key, or, if the key is absent, the bitwise complement of the slot where its probe
+		 * stopped. The table must be allocated.
+		 */
+		private int find( long key ) {
+			int i = slot( key );
+			for( int d = 1, dist; d <= ( dist = distances[ i ] & 0xFF ); i = i + 1 & mask, d++ )
+				if( dist == d && slots[ i << 1 ] == key ) return i;
+			
+			return ~i;
+		}
+		
+		/**
+		 * Adds an absent key at slot {@code i}, as returned by {@link #find(long)}. The table must have room for one more key.
+		 */
+		private void add( long key, long value, int i ) {
+			int d = ( i - slot( key ) & mask ) + 1;
+			if( HashCollisionThreshold < d && forceNewHashCodes != null ) {
+				Array.Hash hash = forceNewHashCodes.apply( hash_K );
+				if( hash != hash_K ) {
+					hash_K( hash );
+					d = ( ( i = ~find( key ) ) - slot( key ) & mask ) + 1;
+				}
+			}
+			
+			insert( key, value, i, d );
+			reseeds = 0;
+			_version++;
+		}
+		
+		@Override
+		public boolean putIfAbsent( long key, long value ) {
+			reserve();
+			int i = find( key );
+			if( -1 < i ) return false;
+		
+			add( key, value, ~i );
+			return true;
+		}
+		
+		@Override
+		public long addTo( long key, long delta ) {
+			reserve();
+			int i = find( key );
+			if( i < 0 ) {
+				add( key, delta, ~i );
+				return delta;
+			}
+		
+			_version++;
+			return slots[ ( i << 1 ) + 1 ] += delta;
+		}
+		
+		@Override
+		public long computeIfAbsent( long key, Mapping mapping ) {
+			reserve();
+			int i = find( key );
+			if( -1 < i ) return slots[ ( i << 1 ) + 1 ];
+		
+			int  version = _version;
+			long value   = mapping.apply( key );
+			if( version != _version ) throw new ConcurrentModificationException( "The mapping function modified the map." );
+		
+			add( key, value, ~i );
+			return value;
+		}
+		
+		@Override
+		public boolean computeIfPresent( long key, Remapping remapping ) {
+			if( slots == null ) return false;
+			int i = find( key );
+			if( i < 0 ) return false;
+		
+			int  version = _version;
+			long value   = remapping.apply( key, slots[ ( i << 1 ) + 1 ] );
+			if( version != _version ) throw new ConcurrentModificationException( "The remapping function modified the map." );
+		
+			slots[ ( i << 1 ) + 1 ] = value;
+			_version++;
+			return true;
+		}
+		
+		@Override
+		public long merge( long key, long value, Merging merging ) {
+			reserve();
+			int i = find( key );
+			if( i < 0 ) {
+				add( key, value, ~i );
+				return value;
+			}
+		
+			int  version = _version;
+			long merged  = merging.apply( slots[ ( i << 1 ) + 1 ], value );
+			if( version != _version ) throw new ConcurrentModificationException( "The merging function modified the map." );
+		
+			slots[ ( i << 1 ) + 1 ] = merged;
+			_version++;
+			return merged;
+		}
+		
+		@Override
+		public boolean remove( long key ) {
+			if( assigned == 0 ) return false;
+			
+			for( int i = slot( key ), d = 1; ; i = i + 1 & mask, d++ ) {
+				int dist = distances[ i ] & 0xFF;
+				if( dist < d ) return false;
+				if( dist == d && slots[ i << 1 ] == key ) {
+					shiftBack( i );
+					assigned--;
+					_version++;
+					return true;
+				}
+			}
+		}
+		
+		/**
+		 * Closes the gap at slot {@code gap} by moving every following entry of the cluster one slot back,
+		 * until an empty slot or an entry sitting in its home slot is reached.
+		 */
+		private void shiftBack( int gap ) {
+			for( int i = gap + 1 & mask, dist; 1 < ( dist = distances[ i ] & 0xFF ); gap = i, i = i + 1 & mask ) {
+				slots[ gap << 1 ]         = slots[ i << 1 ];
+				slots[ ( gap << 1 ) + 1 ] = slots[ ( i << 1 ) + 1 ];
+				distances[ gap ]          = ( byte ) ( dist - 1 );
+			}
+			distances[ gap ] = 0;
+		}
+		
+		@Override
+		public void hash_K( Array.Hash hash_K ) {
+			this.hash_K = hash_K;
+			if( slots != null ) rehash( mask + 1 );
+		}
+		
+		@Override
+		public void clear() {
+			_version++;
+			hasNullKey = false;
+			if( assigned == 0 ) return;
+			Arrays.fill( distances, ( byte ) 0 );
+			assigned = 0;
+		}
+		
+		@Override
+		public int ensureCapacity( int capacity ) {
+			if( slots == null ) allocate( tableSize( capacity ) );
+			else if( resizeAt < capacity ) rehash( tableSize( capacity ) );
+			return length();
+		}
+		
+		@Override
+		public void trim( int capacity ) {
+			if( capacity < _count() ) throw new IllegalArgumentException( "capacity is less than Count." );
+			if( slots == null ) return;
+			int length = tableSize( Math.max( capacity, assigned ) );
+			if( length < mask + 1 ) rehash( length );
+		}
+		
+		/**
+		 * Re-inserts every entry into a new table of the given power-of-two length. Invalidates all tokens.
+		 */
+		private void rehash( int length ) {
+			if( MAX_LENGTH < length ) throw new IllegalStateException( "Table length cannot exceed " + MAX_LENGTH );
+			long[] old_slots     = slots;
+			byte[] old_distances = distances;
+			
+			allocate( length );
+			
+			for( int i = 0; i < old_distances.length; i++ )
+				if( old_distances[ i ] != 0 ) {
+					long k = old_slots[ i << 1 ];
+					int  j = slot( k ), d = 1;
+					for( ; d <= ( distances[ j ] & 0xFF ); j = j + 1 & mask ) d++;
+					insert( k, old_slots[ ( i << 1 ) + 1 ], j, d );
+				}
+		}
+		
+		/**
+		 * Looks up the keys one at a time. See {@link R#getAll(long[], int, int, long[], long)}.
+		 */
+		@Override
+		public int getAll( long[] src, int from, int len, long[] dst, long missingValue ) {
+			int found = 0;
+			for( int end = from + len; from < end; from++ ) {
+				long token = tokenOf( src[ from ] );
+				if( token == INVALID_TOKEN ) dst[ from ] = missingValue;
+				else {
+					dst[ from ] = value( token );
+					found++;
+				}
+			}
+			return found;
+		}
+		
+		/**
+		 * Puts the keys one at a time. See {@link RW#putAll(long[], long[], int, int)}.
+		 */
+		@Override
+		public int putAll( long[] src_keys, long[] src_values, int from, int len ) {
+			int added = 0;
+			for( int end = from + len; from < end; from++ )
+				if( put( src_keys[ from ], src_values[ from ] ) ) added++;
+			return added;
+		}
+		
+		@Override
+		public RobinHood clone() {
+			RobinHood dst = ( RobinHood ) super.clone();
+			if( slots != null ) {
+				dst.slots     = slots.clone();
+				dst.distances = distances.clone();
+			}
+			return dst;
+		}
+	}
+	
+	/**
+	 * A read-write engine for {@link LongLongMap} that keeps its buckets, links, keys and values in native memory outside
+	 * the Java heap, for maps so large that garbage-collector marking and card-table upkeep of their arrays hurt.
+	 * <p>
+	 * The layout and algorithms are those of {@link RW}: prime-sized buckets, the {@code lo}/{@code hi} regions and
+	 * the same token protocol, so iteration order, tokens, {@code toJSON} and the whole {@link R}/{@link RW} API
+	 * behave the same and moving a map off-heap only changes its constructor call:
+	 * <pre>{@code
+	 * try( LongLongMap.OffHeap map = new LongLongMap.OffHeap( 300_000_000 ) ) {
+	 *     ...
+	 * }
+	 * }</pre>
+	 * The arrays are {@link Memory} blocks of direct buffers, which count against {@code -XX:MaxDirectMemorySize}. It
+	 * defaults to the maximum heap size, so a map larger than the heap needs it raised, e.g.
+	 * {@code -XX:MaxDirectMemorySize=16g}. {@link #close()} releases the native memory at once; the map is then empty
+	 * and allocates anew on the next insertion. A resize releases the old arrays as soon as their entries are moved.
+	 * {@link #clone()} copies the native memory, so every clone has to be closed too. The inherited {@code _buckets},
+	 * {@code links}, {@code keys} and {@code values} arrays stay unused.
+	 */
+	class OffHeap extends RW implements AutoCloseable {
+		
+		/**
+		 * The native {@code int} array of 1-based chain heads, {@code capacity} long, or {@code null} if no memory is held.
+		 */
+		protected Memory native_buckets;
+		
+		/**
+		 * The native {@code int} array of {@code lo Region} links, {@code links_capacity} long.
+		 */
+		protected Memory native_links;
+		
+		/**
+		 * The native {@code long} array of keys, {@code capacity} long.
+		 */
+		protected Memory native_keys;
+		
+		/**
+		 * The native {@code long} array of values, {@code capacity} long.
+		 */
+		protected Memory native_values;
+		
+		/**
+		 * The length of the native bucket, key and value arrays.
+		 */
+		protected int capacity;
+		
+		/**
+		 * The length of the native links array.
+		 */
+		protected int links_capacity;
+		
+		/**
+		 * Constructs an empty off-heap map with a default initial capacity.
+		 */
+		public OffHeap() { this( 0 ); }
+		
+		/**
+		 * Constructs an empty off-heap map with the specified initial capacity.
+		 *
+		 * @param capacity The initial capacity.
+		 */
+		public OffHeap( int capacity ) { if( capacity > 0 ) allocate( Array.prime( capacity ) ); }
+		
+		/**
+		 * Allocates empty native arrays of the given capacity, releasing none of the current ones. Invalidates all tokens.
+		 */
+		protected void allocate( int capacity ) {
+			_version++;
+			
+			native_buckets     = Memory.allocate( ( long ) capacity << 2 );
+			native_keys        = Memory.allocate( ( long ) capacity << 3 );
+			native_values      = Memory.allocate( ( long ) capacity << 3 );
+			this.capacity      = capacity;
+			_bucketsMultiplier = Array.modMultiplier( capacity );
+			_lo_Size           = 0;
+			_hi_Size           = 0;
+		}
+		
+		/**
+		 * Releases the native memory. The map is left empty, and allocates anew on the next insertion.
+		 */
+		@Override
+		public void close() {
+			Memory.free( native_buckets );
+			Memory.free( native_links );
+			Memory.free( native_keys );
+			Memory.free( native_values );
+			native_buckets = native_links = native_keys = native_values = null;
+			capacity       = links_capacity = 0;
+			_lo_Size       = 0;
+			_hi_Size       = 0;
+			hasNullKey     = false;
+			_version++;
+		}
+		
+		/**
+		 * Reads and writes the bucket, link, key and value arrays. Every access to the arrays goes through these
+		 * accessors and through {@link #allocate(int)}, {@link #growLinks()}, {@link #resize(int)}, {@link #clear()},
+		 * {@link #trim(int)}, {@link #close()} and {@link #clone()}, which subclasses keeping the arrays elsewhere override.
+		 */
+		protected int head( int bucketIndex ) { return Memory.getInt( native_buckets, bucketIndex ); }
+		
+		protected void head( int bucketIndex, int index ) { Memory.putInt( native_buckets, bucketIndex, index ); }
+		
+		protected int link( int index ) { return Memory.getInt( native_links, index ); }
+		
+		protected void link( int index, int next ) { Memory.putInt( native_links, index, next ); }
+		
+		protected long keyAt( int index ) { return Memory.getLong( native_keys, index ); }
+		
+		protected void keyAt( int index, long key ) { Memory.putLong( native_keys, index, key ); }
+		
+		protected long valueAt( int index ) { return Memory.getLong( native_values, index ); }
+		
+		protected void valueAt( int index, long value ) { Memory.putLong( native_values, index, value ); }
+		
+		@Override
+		protected int bucketIndex( int hash ) { return Array.mod( hash & 0x7FFF_FFFF, _bucketsMultiplier, capacity ); }
+		
+		@Override
+		public int length() { return capacity; }
+		
+		@Override
+		public boolean containsValue( long value ) {
+			if( hasNullKey && nullKeyValue == value ) return true;
+			
+			for( int i = 0; i < _lo_Size; i++ )
+				if( valueAt( i ) == value ) return true;
+			
+			for( int i = capacity - _hi_Size; i < capacity; i++ )
+				if( valueAt( i ) == value ) return true;
+			
+			return false;
+		}
+		
+		@Override
+		public long tokenOf( long key ) {
+			if( capacity == 0 || _count() == 0 ) return INVALID_TOKEN;
+			int index = head( bucketIndex( hash_K.hash( key ) ) ) - 1;
+			if( index < 0 ) return INVALID_TOKEN;
+			
+			for( int collisions = 0; ; ) {
+				if( keyAt( index ) == key ) return token( index );
+				if( _lo_Size <= index ) return INVALID_TOKEN; //terminal node
+				index = link( index );
+				if( _lo_Size < ++collisions ) throw new ConcurrentModificationException( "Concurrent operations not supported." );
+			}
+		}
+		
+		@Override
+		public int getAll( long[] src, int from, int len, long[] dst, long missingValue ) {
+			int found = 0;
+			for( int end = from + len; from < end; from++ ) {
+				long token = tokenOf( src[ from ] );
+				if( token == INVALID_TOKEN ) dst[ from ] = missingValue;
+				else {
+					dst[ from ] = valueAt( index( token ) );
+					found++;
+				}
+			}
+			return found;
+		}
+		
+		@Override
+		public int unsafe_token( final int token ) {
+			if( _count() == 0 ) return -1;
+			int i         = token + 1;
+			int lowest_hi = capacity - _hi_Size;
+			
+			return i < _lo_Size ?
+			       i :
+			       i < lowest_hi ?
+			       _hi_Size == 0 ?
+			       -1 :
+			       lowest_hi :
+			       i < capacity ?
+			       i :
+			       -1;
+		}
+		
+		@Override
+		public Spliterator.OfLong spliterator() { return Array.spliterator( size() - ( hasNullKey() ? 1 : 0 ), this::unsafe_token, this::key ); }
+		
+		@Override
+		public Spliterator.OfLong valuesSpliterator() { return Array.spliterator( size() - ( hasNullKey() ? 1 : 0 ), this::unsafe_token, this::value ); }
+		
+		@Override
+		public void forEach( Consumer action ) {
+			for( int t = -1; ( t = unsafe_token( t ) ) != -1; )
+				action.accept( key( t ), value( t ) );
+		}
+		
+		@Override
+		public void forEachKey( KeyConsumer action ) {
+			for( int t = -1; ( t = unsafe_token( t ) ) != -1; )
+				action.accept( key( t ) );
+		}
+		
+		@Override
+		public void forEachValue( ValueConsumer action ) {
+			for( int t = -1; ( t = unsafe_token( t ) ) != -1; )
+				action.accept( value( t ) );
+		}
+		
+		@Override
+		public boolean forEachWhile( Predicate predicate ) {
+			for( int t = -1; ( t = unsafe_token( t ) ) != -1; )
+				if( !predicate.test( key( t ), value( t ) ) ) return false;
+			return true;
+		}
+		
+		@Override
+		public long key( long token ) { return keyAt( index( token ) ); }
+		
+		@Override
+		public long value( long token ) {
+			return isKeyNull( token ) ?
+			       nullKeyValue :
+			       valueAt( index( token ) );
+		}
+		
+		@Override
+		public void toJSON( JsonWriter json ) {
+			json.preallocate( size() * 10 );
+			json.enterObject();
+			
+			if( hasNullKey ) json.name().value( nullKeyValue );
+			
+			for( int token = -1; ( token = unsafe_token( token ) ) != -1; )
+			     json.name( keyAt( token ) ).value( valueAt( token ) );
+			
+			json.exitObject();
+		}
+		
+		@Override
+		public void hash_K( Array.Hash hash_K ) {
+			this.hash_K = hash_K;
+			if( capacity != 0 ) resize( capacity );
+		}
+		
+		/**
+		 * Allocates the native arrays, or grows them if they are full, ahead of adding a key.
+		 */
+		private void reserve() {
+			if( capacity == 0 ) allocate( 7 );
+			else if( _count() == capacity ) resize( Array.prime( capacity * 2 ) );
+		}
+		
+		/**
+		 * Walks the collision chain of the given bucket looking for the key, as {@code RW} does.
+		 *
+		 * @return The index of the key's entry, or, if the key is absent, the bitwise complement of the number of
+		 *         collisions walked past, to be passed to {@link #insert}.
+		 */
+		private int find( long key, int bucketIndex ) {
+			int index = head( bucketIndex ) - 1;
+			if( index == -1 ) return ~0;
+			
+			for( int collisions = 0; ; ) {
+				if( keyAt( index ) == key ) return index;
+				if( _lo_Size <= index ) return ~collisions;
+				index = link( index );
+				
+				if( _lo_Size + 1 < collisions++ ) throw new ConcurrentModificationException( "Concurrent operations not supported." );
+			}
+		}
+		
+		/**
+		 * Adds an absent key to the given bucket, which must have room for one more entry, as {@code RW} does.
+		 *
+		 * @return The index of the new entry.
+		 */
+		private int insert( long key, long value, int bucketIndex, int collisions ) {
+			int index = head( bucketIndex ) - 1;
+			int dst_index;
+			
+			if( index == -1 )  // Bucket is empty: place new entry in {@code hi Region}
+				dst_index = capacity - 1 - _hi_Size++; // Add to the "bottom" of {@code hi Region}
+			else {
+				if( HashCollisionThreshold < collisions && forceNewHashCodes != null ) {
+					Array.Hash hash = forceNewHashCodes.apply( hash_K );
+					if( hash != hash_K ) {
+						hash_K( hash );
+						return insert( key, value, bucketIndex( hash_K.hash( key ) ), 0 );
+					}
+				}
+				
+				if( links_capacity == ( dst_index = _lo_Size++ ) ) growLinks();
+				link( dst_index, index ); // New entry points to the old head
+			}
+			
+			keyAt( dst_index, key );
+			valueAt( dst_index, value );
+			head( bucketIndex, dst_index + 1 );
+			_version++;
+			return dst_index;
+		}
+		
+		/**
+		 * Grows the native links array for the next {@code lo Region} entry.
+		 */
+		protected void growLinks() {
+			links_capacity = Math.max( 16, Math.min( _lo_Size * 2, capacity ) );
+			native_links   = Memory.reallocate( native_links, ( long ) links_capacity << 2 );
+		}
+		
+		@Override
+		public boolean put( long key, long value ) {
+			reserve();
+			
+			int bucketIndex = bucketIndex( hash_K.hash( key ) );
+			int index       = find( key, bucketIndex );
+			if( index < 0 ) {
+				insert( key, value, bucketIndex, ~index );
+				return true;// Key was new
+			}
+			
+			valueAt( index, value );// Update value
+			_version++;
+			return false;
+		}
+		
+		@Override
+		public int putAll( long[] src_keys, long[] src_values, int from, int len ) {
+			int added = 0;
+			for( int end = from + len; from < end; from++ )
+				if( put( src_keys[ from ], src_values[ from ] ) ) added++;
+			return added;
+		}
+		
+		@Override
+		public boolean putIfAbsent( long key, long value ) {
+			reserve();
+			
+			int bucketIndex = bucketIndex( hash_K.hash( key ) );
+			int index       = find( key, bucketIndex );
+			if( -1 < index ) return false;
+			
+			insert( key, value, bucketIndex, ~index );
+			return true;
+		}
+		
+		@Override
+		public long addTo( long key, long delta ) {
+			reserve();
+			
+			int bucketIndex = bucketIndex( hash_K.hash( key ) );
+			int index       = find( key, bucketIndex );
+			if( index < 0 ) {
+				insert( key, delta, bucketIndex, ~index );
+				return delta;
+			}
+			
+			long value = ( long ) ( valueAt( index ) + delta );
+			valueAt( index, value );
+			_version++;
+			return value;
+		}
+		
+		@Override
+		public long computeIfAbsent( long key, Mapping mapping ) {
+			reserve();
+			
+			int bucketIndex = bucketIndex( hash_K.hash( key ) );
+			int index       = find( key, bucketIndex );
+			if( -1 < index ) return valueAt( index );
+			
+			int version = _version;
+			long value = mapping.apply( key );
+			if( version != _version ) throw new ConcurrentModificationException( "The mapping function modified the map." );
+			
+			insert( key, value, bucketIndex, ~index );
+			return value;
+		}
+		
+		@Override
+		public boolean computeIfPresent( long key, Remapping remapping ) {
+			if( capacity == 0 ) return false;
+			
+			int index = find( key, bucketIndex( hash_K.hash( key ) ) );
+			if( index < 0 ) return false;
+			
+			int version = _version;
+			long value = remapping.apply( key, valueAt( index ) );
+			if( version != _version ) throw new ConcurrentModificationException( "The remapping function modified the map." );
+			
+			valueAt( index, value );
+			_version++;
+			return true;
+		}
+		
+		@Override
+		public long merge( long key, long value, Merging merging ) {
+			reserve();
+			
+			int bucketIndex = bucketIndex( hash_K.hash( key ) );
+			int index       = find( key, bucketIndex );
+			if( index < 0 ) {
+				insert( key, value, bucketIndex, ~index );
+				return value;
+			}
+			
+			int version = _version;
+			long merged = merging.apply( valueAt( index ), value );
+			if( version != _version ) throw new ConcurrentModificationException( "The merging function modified the map." );
+			
+			valueAt( index, merged );
+			_version++;
+			return merged;
+		}
+		
+		/**
+		 * Relocates the entry at {@code src} to {@code dst} within the same region and repoints the bucket or link
+		 * that referenced it, as {@code RW} does when compacting after a removal.
+		 */
+		private void move( int src, int dst ) {
+			if( src == dst ) return;
+			int bucketIndex = bucketIndex( hash_K.hash( keyAt( src ) ) );
+			int index       = head( bucketIndex ) - 1;
+			
+			if( index == src ) head( bucketIndex, dst + 1 );
+			else {
+				while( link( index ) != src )
+					index = link( index );
+				
+				link( index, dst );
+			}
+			if( src < _lo_Size ) link( dst, link( src ) );
+			
+			keyAt( dst, keyAt( src ) );
+			valueAt( dst, valueAt( src ) );
+		}
+		
+		@Override
+		public boolean remove( long key ) {
+			if( _count() == 0 ) return false;
+			int removeBucketIndex = bucketIndex( hash_K.hash( key ) );
+			int removeIndex       = head( removeBucketIndex ) - 1;
+			if( removeIndex < 0 ) return false;
+			
+			if( _lo_Size <= removeIndex ) {// Entry is in {@code hi Region}
+				if( keyAt( removeIndex ) != key ) return false;
+				
+				move( capacity - _hi_Size, removeIndex );
+				_hi_Size--;
+				head( removeBucketIndex, 0 );
+				_version++;
+				return true;
+			}
+			
+			// Entry is in {@code lo Region} (collision chain)
+			int next = link( removeIndex );
+			if( keyAt( removeIndex ) == key ) head( removeBucketIndex, next + 1 );
+			else {
+				int last = removeIndex;
+				if( keyAt( removeIndex = next ) == key )// The key is found at 'SecondNode'
+					if( removeIndex < _lo_Size ) link( last, link( removeIndex ) );
+					else {
+						// 'SecondNode' is the terminal node in the hi Region: it takes the head's entry instead
+						keyAt( removeIndex, keyAt( last ) );
+						valueAt( removeIndex, valueAt( last ) );
+						head( removeBucketIndex, removeIndex + 1 );
+						removeIndex = last;
+					}
+				else if( _lo_Size <= removeIndex ) return false;
+				else
+					for( int collisions = 0; ; ) {
+						int prev = last;
+						
+						if( keyAt( removeIndex = link( last = removeIndex ) ) == key ) {
+							if( removeIndex < _lo_Size ) link( last, link( removeIndex ) );
+							else {
+								keyAt( removeIndex, keyAt( last ) );
+								valueAt( removeIndex, valueAt( last ) );
+								link( prev, removeIndex );
+								removeIndex = last;
+							}
+							break;
+						}
+						if( _lo_Size <= removeIndex ) return false;
+						if( _lo_Size + 1 < collisions++ ) throw new ConcurrentModificationException( "Concurrent operations not supported." );
+					}
+			}
+			
+			move( _lo_Size - 1, removeIndex );
+			_lo_Size--;
+			_version++;
+			return true;
+		}
+		
+		@Override
+		public void clear() {
+			_version++;
+			
+			hasNullKey = false;
+			
+			if( _count() == 0 ) return;
+			Memory.clear( native_buckets, ( long ) capacity << 2 );
+			_lo_Size = 0;
+			_hi_Size = 0;
+		}
+		
+		@Override
+		public int ensureCapacity( int capacity ) {
+			if( capacity <= length() ) return length();
+			if( capacity == 0 ) allocate( capacity );
+			else resize( Array.prime( capacity ) );
+			return length();
+		}
+		
+		@Override
+		public void trim( int capacity ) {
+			if( capacity < _count() ) throw new IllegalArgumentException( "capacity is less than Count." );
+			if( length() <= ( capacity = Array.prime( Math.max( capacity, size() ) ) ) ) return;
+			
+			resize( capacity );
+			
+			if( _lo_Size < links_capacity ) native_links = Memory.reallocate( native_links, ( long ) ( links_capacity = _lo_Size ) << 2 );
+		}
+		
+		/**
+		 * Re-inserts every entry into new native arrays of the given capacity and releases the old ones.
+		 * Invalidates all tokens.
+		 */
+		protected void resize( int capacity ) {
+			Memory old_buckets  = native_buckets;
+			Memory old_keys     = native_keys;
+			Memory old_values   = native_values;
+			int    old_capacity = this.capacity;
+			int    old_lo_Size  = _lo_Size;
+			int    old_hi_Size  = _hi_Size;
+			
+			allocate( capacity );
+			
+			for( int i = 0; i < old_lo_Size; i++ )
+			     copy( Memory.getLong( old_keys, i ), Memory.getLong( old_values, i ) );
+			
+			for( int i = old_capacity - old_hi_Size; i < old_capacity; i++ )
+			     copy( Memory.getLong( old_keys, i ), Memory.getLong( old_values, i ) );
+			
+			Memory.free( old_buckets );
+			Memory.free( old_keys );
+			Memory.free( old_values );
+		}
+		
+		/**
+		 * Places an entry into the arrays during a resize, without checking for an existing key.
+		 */
+		protected void copy( long key, long value ) {
+			int bucketIndex = bucketIndex( hash_K.hash( key ) );
+			int index       = head( bucketIndex ) - 1;
+			int dst_index;
+			
+			if( index == -1 ) dst_index = capacity - 1 - _hi_Size++;
+			else {
+				if( links_capacity == ( dst_index = _lo_Size++ ) ) growLinks();
+				link( dst_index, index );
+			}
+			
+			keyAt( dst_index, key );
+			valueAt( dst_index, value );
+			head( bucketIndex, dst_index + 1 );
+		}
+		
+		/**
+		 * Returns a copy of this map with its own native memory, which has to be closed separately.
+		 */
+		@Override
+		public OffHeap clone() {
+			OffHeap dst = ( OffHeap ) super.clone();
+			dst.native_buckets = Memory.copy( native_buckets, ( long ) capacity << 2 );
+			dst.native_links   = Memory.copy( native_links, ( long ) links_capacity << 2 );
+			dst.native_keys    = Memory.copy( native_keys, ( long ) capacity << 3 );
+			dst.native_values  = Memory.copy( native_values, ( long ) capacity << 3 );
+			return dst;
+		}
+	}
+	
+	/**
+	 * A persistent {@link LongLongMap} whose file is the hash table itself: opening it maps the file into memory and
+	 * validates its header, with no rebuilding, so a restart costs no more than the pages it touches.
+	 * <p>
+	 * It is an {@link OffHeap} engine whose buckets, links, keys and values live in the mapped file instead of
+	 * allocated native memory, so iteration, tokens, {@code toJSON} and the whole {@link R}/{@link RW} API are the same.
+	 *
+	 * <h3>File format</h3>
+	 * All numbers are little-endian. A {@value #HEADER} bytes header holds:
+	 * <ul>
+	 * <li>{@code 0}: the {@link #MAGIC} number; {@code 8}: the {@link #FORMAT} version;</li>
+	 * <li>{@code 12}: the capacity; {@code 16} and {@code 20}: the sizes of the {@code lo} and {@code hi} regions;</li>
+	 * <li>{@code 24}: the key hashing strategy, {@code 0} for {@link Array.Hash#IDENTITY}, {@code 1} for
+	 *     {@link Array.Hash#MURMUR} and {@code 2} for {@link Array.Hash#FIBONACCI};</li>
+	 * <li>{@code 28}: {@code 1} if the null key is present; {@code 32}: the value of the null key;</li>
+	 * <li>{@code 40}: the map version; {@code 48}: the CRC32C checksum of the rest of the header and of the arrays.</li>
+	 * </ul>
+	 * It is followed by the {@code int} bucket and link arrays and the {@code long} key and value arrays, each
+	 * {@code capacity} long, so the file is {@code 64 + 24 * capacity} bytes.
+	 *
+	 * <h3>Modes</h3>
+	 * A map opened read-only may be opened by any number of processes at once, which then share the pages of the file.
+	 * Its modifying methods throw {@link UnsupportedOperationException}. A map opened read-write must be the only
+	 * one open on its file. Its modifications reach the mapped pages at once, but the header and checksum are only
+	 * written by {@link #force()} and {@link #close()}, so a file left by a process that failed before forcing its last
+	 * modifications fails the checksum test of {@link #open(Path, boolean)}.
+	 */
+	class Mapped extends OffHeap {
+		
+		/**
+		 * Identifies a {@code LongLongMap} file.
+		 */
+		public static final long MAGIC = 0x314D_4C4C_5249_4E55L; // "UNIRLLM1"
+		
+		/**
+		 * The version of the file format.
+		 */
+		public static final int FORMAT = 1;
+		
+		/**
+		 * The size of the file header in bytes.
+		 */
+		public static final int HEADER = 64;
+		
+		private static final int CAPACITY = 12, LO_SIZE = 16, HI_SIZE = 20, HASH = 24, HAS_NULL_KEY = 28, NULL_KEY_VALUE = 32, VERSION = 40, CHECKSUM = 48;
+		
+		/**
+		 * The file is mapped in chunks of {@code 1 << CHUNK_SHIFT} bytes, since a single mapping cannot exceed 2 GB.
+		 * The arrays are aligned to their element size, so no element crosses a chunk boundary.
+		 */
+		private static final int CHUNK_SHIFT = 30;
+		
+		private static final long CHUNK_MASK = ( 1L << CHUNK_SHIFT ) - 1;
+		
+		/**
+		 * The file, open until {@link #close()}.
+		 */
+		protected final FileChannel channel;
+		
+		/**
+		 * Indicates whether the map was opened read-write.
+		 */
+		public final boolean writable;
+		
+		/**
+		 * The mapped chunks of the file.
+		 */
+		protected MappedByteBuffer[] chunks = new MappedByteBuffer[ 0 ];
+		
+		private Mapped( FileChannel channel, boolean writable ) {
+			this.channel  = channel;
+			this.writable = writable;
+		}
+		
+		/**
+		 * Creates a new map file, replacing any existing file at the path, and opens it read-write.
+		 *
+		 * @param path     The file.
+		 * @param capacity The initial capacity.
+		 * @return The open, empty map.
+		 * @throws IOException if the file cannot be created or mapped.
+		 */
+		public static Mapped create( Path path, int capacity ) throws IOException {
+			FileChannel channel = FileChannel.open( path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE );
+			try {
+				Mapped map = new Mapped( channel, true );
+				map.allocate( Array.prime( Math.max( 1, capacity ) ) );
+				map.force();
+				return map;
+			} catch( UncheckedIOException e ) {
+				channel.close();
+				throw e.getCause();
+			} catch( RuntimeException e ) {
+				channel.close();
+				throw e;
+			}
+		}
+		
+		/**
+		 * Opens an existing map file and verifies its checksum.
+		 *
+		 * @param path     The file.
+		 * @param writable {@code true} to open the map read-write, {@code false} to open it read-only.
+		 * @return The open map.
+		 * @throws IOException if the file cannot be mapped, is not a valid map file, or fails the checksum test.
+		 */
+		public static Mapped open( Path path, boolean writable ) throws IOException { return open( path, writable, true ); }
+		
+		/**
+		 * Opens an existing map file.
+		 *
+		 * @param path     The file.
+		 * @param writable {@code true} to open the map read-write, {@code false} to open it read-only.
+		 * @param verify   {@code true} to verify the checksum, which reads the whole file; {@code false} to check only the header.
+		 * @return The open map.
+		 * @throws IOException if the file cannot be mapped, is not a valid map file, or fails the checksum test.
+		 */
+		public static Mapped open( Path path, boolean writable, boolean verify ) throws IOException {
+			FileChannel channel = writable ?
+			                      FileChannel.open( path, StandardOpenOption.READ, StandardOpenOption.WRITE ) :
+			                      FileChannel.open( path, StandardOpenOption.READ );
+			try {
+				Mapped map = new Mapped( channel, writable );
+				map.load( verify );
+				return map;
+			} catch( IOException | RuntimeException e ) {
+				channel.close();
+				throw e;
+			}
+		}
+		
+		/**
+		 * Maps the file and restores the map from its header.
+		 */
+		private void load( boolean verify ) throws IOException {
+			long size = channel.size();
+			if( size < HEADER ) throw new IOException( "Not a LongLongMap file: too short." );
+			map( size );
+			
+			if( getLong( 0 ) != MAGIC ) throw new IOException( "Not a LongLongMap file: bad magic number." );
+			if( getInt( 8 ) != FORMAT ) throw new IOException( "Unsupported LongLongMap file format " + getInt( 8 ) + "." );
+			
+			int capacity = getInt( CAPACITY );
+			int lo_Size  = getInt( LO_SIZE );
+			int hi_Size  = getInt( HI_SIZE );
+			int hash     = getInt( HASH );
+			if( capacity <= 0 || size != HEADER + 24L * capacity || lo_Size < 0 || hi_Size < 0 || capacity < lo_Size + hi_Size || hash < 0 || 2 < hash )
+				throw new IOException( "Corrupted LongLongMap file header." );
+			if( verify && getLong( CHECKSUM ) != checksum() )
+				throw new IOException( "LongLongMap file checksum mismatch: the file is damaged or was not forced after its last modification." );
+			
+			this.capacity      = capacity;
+			links_capacity     = capacity;
+			_bucketsMultiplier = Array.modMultiplier( capacity );
+			_lo_Size           = lo_Size;
+			_hi_Size           = hi_Size;
+			hash_K             = hash == 0 ?
+			                     Array.Hash.IDENTITY :
+			                     hash == 1 ?
+			                     Array.Hash.MURMUR :
+			                     Array.Hash.FIBONACCI;
+			hasNullKey         = getInt( HAS_NULL_KEY ) != 0;
+			nullKeyValue       = getLong( NULL_KEY_VALUE );
+			_version           = ( int ) getLong( VERSION );
+		}
+		
+		/**
+		 * Maps the first {@code size} bytes of the file, extending the file if needed, after unmapping the current chunks.
+		 */
+		private void map( long size ) throws IOException {
+			unmap();
+			MappedByteBuffer[] chunks = new MappedByteBuffer[ ( int ) ( size + CHUNK_MASK >>> CHUNK_SHIFT ) ];
+			for( int i = 0; i < chunks.length; i++ ) {
+				long position = ( long ) i << CHUNK_SHIFT;
+				chunks[ i ] = channel.map( writable ?
+				                           FileChannel.MapMode.READ_WRITE :
+				                           FileChannel.MapMode.READ_ONLY, position, Math.min( CHUNK_MASK + 1, size - position ) );
+				chunks[ i ].order( ByteOrder.LITTLE_ENDIAN );
+			}
+			this.chunks = chunks;
+		}
+		
+		/**
+		 * Releases the mapped chunks.
+		 */
+		private void unmap() {
+			for( MappedByteBuffer chunk : chunks ) Memory.unmap( chunk );
+			chunks = new MappedByteBuffer[ 0 ];
+		}
+		
+		private int getInt( long position ) { return chunks[ ( int ) ( position >>> CHUNK_SHIFT ) ].getInt( ( int ) ( position & CHUNK_MASK ) ); }
+		
+		private void putInt( long position, int value ) { chunks[ ( int ) ( position >>> CHUNK_SHIFT ) ].putInt( ( int ) ( position & CHUNK_MASK ), value ); }
+		
+		private long getLong( long position ) { return chunks[ ( int ) ( position >>> CHUNK_SHIFT ) ].getLong( ( int ) ( position & CHUNK_MASK ) ); }
+		
+		private void putLong( long position, long value ) { chunks[ ( int ) ( position >>> CHUNK_SHIFT ) ].putLong( ( int ) ( position & CHUNK_MASK ), value ); }
+		
+		@Override
+		protected int head( int bucketIndex ) { return getInt( HEADER + ( ( long ) bucketIndex << 2 ) ); }
+		
+		@Override
+		protected void head( int bucketIndex, int index ) { putInt( HEADER + ( ( long ) bucketIndex << 2 ), index ); }
+		
+		@Override
+		protected int link( int index ) { return getInt( HEADER + ( ( long ) capacity + index << 2 ) ); }
+		
+		@Override
+		protected void link( int index, int next ) { putInt( HEADER + ( ( long ) capacity + index << 2 ), next ); }
+		
+		@Override
+		protected long keyAt( int index ) { return getLong( HEADER + ( ( long ) capacity + index << 3 ) ); }
+		
+		@Override
+		protected void keyAt( int index, long key ) { putLong( HEADER + ( ( long ) capacity + index << 3 ), key ); }
+		
+		@Override
+		protected long valueAt( int index ) { return getLong( HEADER + ( ( long ) capacity * 2 + index << 3 ) ); }
+		
+		@Override
+		protected void valueAt( int index, long value ) { putLong( HEADER + ( ( long ) capacity * 2 + index << 3 ), value ); }
+		
+		/**
+		 * Returns the CRC32C of the header up to the checksum field and of the arrays.
+		 */
+		private long checksum() {
+			CRC32C crc = new CRC32C();
+			for( int i = 0; i < chunks.length; i++ ) {
+				ByteBuffer chunk = chunks[ i ].duplicate();
+				if( i == 0 ) {
+					crc.update( chunk.limit( CHECKSUM ) );
+					chunk.clear().position( HEADER );
+				}
+				crc.update( chunk );
+			}
+			return crc.getValue();
+		}
+		
+		/**
+		 * Writes the header and checksum and forces every change to the file onto the storage device.
+		 *
+		 * @throws UnsupportedOperationException if the map is read-only.
+		 */
+		public void force() {
+			checkWritable();
+			putLong( 0, MAGIC );
+			putInt( 8, FORMAT );
+			putInt( CAPACITY, capacity );
+			putInt( LO_SIZE, _lo_Size );
+			putInt( HI_SIZE, _hi_Size );
+			putInt( HASH, hash_K == Array.Hash.IDENTITY ?
+			              0 :
+			              hash_K == Array.Hash.MURMUR ?
+			              1 :
+			              2 );
+			putInt( HAS_NULL_KEY, hasNullKey ?
+			                      1 :
+			                      0 );
+			putLong( NULL_KEY_VALUE, nullKeyValue );
+			putLong( VERSION, _version );
+			putLong( CHECKSUM, checksum() );
+			
+			for( MappedByteBuffer chunk : chunks ) chunk.force();
+		}
+		
+		/**
+		 * Forces a read-write map, then unmaps and closes the file. The map must not be used afterwards.
+		 */
+		@Override
+		public void close() {
+			if( !channel.isOpen() ) return;
+			try {
+				if( writable ) force();
+				unmap();
+				channel.close();
+			} catch( IOException e ) {
+				throw new UncheckedIOException( e );
+			}
+			capacity = links_capacity = 0;
+		}
+		
+		private void checkWritable() {
+			if( !writable ) throw new UnsupportedOperationException( "The map file is opened read-only." );
+		}
+		
+		/**
+		 * Resizes the file to hold {@code capacity} entries and clears it, mapping it anew. Invalidates all tokens.
+		 */
+		@Override
+		protected void allocate( int capacity ) {
+			_version++;
+			
+			long size = HEADER + 24L * capacity;
+			try {
+				unmap();
+				if( size < channel.size() ) channel.truncate( size );
+				map( size );
+			} catch( IOException e ) {
+				throw new UncheckedIOException( e );
+			}
+			
+			for( long position = HEADER, end = HEADER + ( ( long ) capacity << 2 ); position < end; position += 4 ) putInt( position, 0 );
+			
+			this.capacity      = capacity;
+			links_capacity     = capacity;
+			_bucketsMultiplier = Array.modMultiplier( capacity );
+			_lo_Size           = 0;
+			_hi_Size           = 0;
+		}
+		
+		/**
+		 * Never called: the links array always spans the whole capacity.
+		 */
+		@Override
+		protected void growLinks() { throw new IllegalStateException( "The links array of a mapped map cannot grow." ); }
+		
+		/**
+		 * Re-inserts every entry into the file resized to {@code capacity} entries, staging them in native memory.
+		 * Invalidates all tokens.
+		 */
+		@Override
+		protected void resize( int capacity ) {
+			int    count  = _count();
+			Memory staged = Memory.allocate( ( long ) count << 4 );
+			try {
+				for( int token = -1, i = 0; ( token = unsafe_token( token ) ) != -1; i += 2 ) {
+					Memory.putLong( staged, i, keyAt( token ) );
+					Memory.putLong( staged, i + 1, valueAt( token ) );
+				}
+				
+				allocate( capacity );
+				
+				for( int i = 0; i < count * 2; i += 2 )
+				     copy( Memory.getLong( staged, i ), Memory.getLong( staged, i + 1 ) );
+			} finally {
+				Memory.free( staged );
+			}
+		}
+		
+		@Override
+		public void trim( int capacity ) {
+			checkWritable();
+			if( capacity < _count() ) throw new IllegalArgumentException( "capacity is less than Count." );
+			if( length() <= ( capacity = Array.prime( Math.max( capacity, size() ) ) ) ) return;
+			resize( capacity );
+		}
+		
+		/**
+		 * {@inheritDoc} Only {@link Array.Hash#IDENTITY}, {@link Array.Hash#MURMUR} and {@link Array.Hash#FIBONACCI}
+		 * can be recorded in the file.
+		 *
+		 * @throws IllegalArgumentException if the strategy cannot be recorded in the file.
+		 */
+		@Override
+		public void hash_K( Array.Hash hash_K ) {
+			checkWritable();
+			if( hash_K != Array.Hash.IDENTITY && hash_K != Array.Hash.MURMUR && hash_K != Array.Hash.FIBONACCI )
+				throw new IllegalArgumentException( "Only Array.Hash.IDENTITY, MURMUR and FIBONACCI can be recorded in a map file." );
+			super.hash_K( hash_K );
+		}
+		
+		@Override
+		public void clear() {
+			checkWritable();
+			_version++;
+			
+			hasNullKey = false;
+			
+			if( _count() == 0 ) return;
+			for( long position = HEADER, end = HEADER + ( ( long ) capacity << 2 ); position < end; position += 4 ) putInt( position, 0 );
+			_lo_Size = 0;
+			_hi_Size = 0;
+		}
+		
+		@Override
+		public boolean put( long value ) {
+			checkWritable();
+			return super.put( value );
+		}
+		
+		@Override
+		public boolean removeNullKey() {
+			checkWritable();
+			return super.removeNullKey();
+		}
+		
+		@Override
+		public boolean put( long key, long value ) {
+			checkWritable();
+			return super.put( key, value );
+		}
+		
+		@Override
+		public int putAll( long[] src_keys, long[] src_values, int from, int len ) {
+			checkWritable();
+			return super.putAll( src_keys, src_values, from, len );
+		}
+		
+		@Override
+		public boolean putIfAbsent( long key, long value ) {
+			checkWritable();
+			return super.putIfAbsent( key, value );
+		}
+		
+		@Override
+		public long addTo( long key, long delta ) {
+			checkWritable();
+			return super.addTo( key, delta );
+		}
+		
+		@Override
+		public long computeIfAbsent( long key, Mapping mapping ) {
+			checkWritable();
+			return super.computeIfAbsent( key, mapping );
+		}
+		
+		@Override
+		public boolean computeIfPresent( long key, Remapping remapping ) {
+			checkWritable();
+			return super.computeIfPresent( key, remapping );
+		}
+		
+		@Override
+		public long merge( long key, long value, Merging merging ) {
+			checkWritable();
+			return super.merge( key, value, merging );
+		}
+		
+		@Override
+		public boolean remove( long key ) {
+			checkWritable();
+			return super.remove( key );
+		}
+		
+		@Override
+		public int ensureCapacity( int capacity ) {
+			checkWritable();
+			return super.ensureCapacity( capacity );
+		}
+		
+		/**
+		 * Returns an {@link OffHeap} copy of this map, detached from the file, which has to be closed separately.
+		 */
+		@Override
+		public OffHeap clone() {
+			OffHeap dst = new OffHeap( _count() );
+			dst.hash_K( hash_K );
+			for( int token = -1; ( token = unsafe_token( token ) ) != -1; ) dst.put( keyAt( token ), valueAt( token ) );
+			if( hasNullKey ) dst.put( nullKeyValue );
+			return dst;
+		}
+	}
+	
+	/**
+	 * The read side of {@link Persistent} and {@link Transient}: a hash array mapped trie in the compressed (CHAMP) layout.
+	 * <p>
+	 * Every node consumes {@link #BITS} bits of the key hash and keeps two bitmaps over the 32 digits: {@code dataMap}
+	 * marks the digits holding an entry inline, in the node's exact-size primitive {@code keys} and {@code values} arrays,
+	 * and {@code nodeMap} the digits holding a child node. The slot of a digit is the number of lower bits set in its bitmap.
+	 * The hash is a bijective mix of the key, so two keys never share a whole hash and the trie needs no collision nodes.
+	 * A child always holds at least two entries: a removal that leaves one pulls it up into the parent.
+	 * <p>
+	 * Nodes are never modified once shared, so a new version made by {@code put} or {@code remove} copies only the
+	 * nodes on the path to the key, about {@code log32( size )} of them, and shares all the others.
+	 *
+	 * <h3>Tokens</h3>
+	 * A token encodes the position of its entry in the iteration order: the entries of a node first, then the entries
+	 * below its children, digit by digit. Every node records the number of entries below it, so {@link #tokenOf},
+	 * {@link #key} and {@link #value} find a position in {@code O( log32( size ) )} steps, and so does every step of an
+	 * iteration by tokens. {@code toJSON} and {@code containsValue} walk the trie directly.
+	 */
+	abstract class Trie extends R {
+		
+		/**
+		 * The number of hash bits consumed per trie level.
+		 */
+		protected static final int BITS = 5;
+		
+		/**
+		 * A trie node. It is only modified in place by the {@link Transient} edit session that created it.
+		 */
+		protected static final class Node {
+			int    dataMap;
+			int    nodeMap;
+			long[] keys;
+			long[] values;
+			Node[] nodes;
+			/**
+			 * The number of entries in this node and below it.
+			 */
+			int    size;
+			/**
+			 * The edit session of the {@link Transient} that created this node and may modify it in place, or {@code null}.
+			 */
+			final Object owner;
+			
+			Node( int dataMap, int nodeMap, long[] keys, long[] values, Node[] nodes, int size, Object owner ) {
+				this.dataMap = dataMap;
+				this.nodeMap = nodeMap;
+				this.keys    = keys;
+				this.values  = values;
+				this.nodes   = nodes;
+				this.size    = size;
+				this.owner   = owner;
+			}
+		}
+		
+		protected static final Node[] NO_NODES = new Node[ 0 ];
+		
+		/**
+		 * The root of an empty map.
+		 */
+		protected static final Node EMPTY = new Node( 0, 0, Array.EqualHashOf._longs.O, Array.EqualHashOf._longs.O, NO_NODES, 0, null );
+		
+		/**
+		 * The root node.
+		 */
+		protected Node root = EMPTY;
+		
+		/**
+		 * Mixes the key into the hash that selects its path: the MurmurHash3 64-bit finalizer, which is bijective,
+		 * so distinct keys never collide.
+		 */
+		protected static long hash( long key ) {
+			key = ( key ^ key >>> 33 ) * 0xff51afd7ed558ccdL;
+			key = ( key ^ key >>> 33 ) * 0xc4ceb9fe1a85ec53L;
+			return key ^ key >>> 33;
+		}
+		
+		/**
+		 * Returns the bit of the hash digit at the given level shift.
+		 */
+		protected static int bit( long hash, int shift ) { return 1 << ( ( int ) ( hash >>> shift ) & 31 ); }
+		
+		/**
+		 * Returns the slot of the bit in the bitmap: the number of lower bits set.
+		 */
+		protected static int slot( int map, int bit ) { return Integer.bitCount( map & bit - 1 ); }
+		
+		@Override
+		protected int _count() { return root.size; }
+		
+		@Override
+		public int length() { return root.size; }
+		
+		@Override
+		public boolean containsValue( long value ) { return hasNullKey && nullKeyValue == value || containsValue( root, value ); }
+		
+		private static boolean containsValue( Node node, long value ) {
+			for( long v : node.values )
+				if( v == value ) return true;
+			for( Node child : node.nodes )
+				if( containsValue( child, value ) ) return true;
+			return false;
+		}
+		
+		@Override
+		public long tokenOf( long key ) {
+			long hash     = hash( key );
+			int  position = 0;
+			Node node     = root;
+			for( int shift = 0; ; shift += BITS ) {
+				int bit = bit( hash, shift );
+				if( ( node.dataMap & bit ) != 0 ) {
+					int i = slot( node.dataMap, bit );
+					return node.keys[ i ] == key ?
+					       token( position + i ) :
+					       INVALID_TOKEN;
+				}
+				if( ( node.nodeMap & bit ) == 0 ) return INVALID_TOKEN;
+				
+				position += node.keys.length;
+				int j = slot( node.nodeMap, bit );
+				for( int c = 0; c < j; c++ ) position += node.nodes[ c ].size;
+				node = node.nodes[ j ];
+			}
+		}
+		
+		@Override
+		public long getOrDefault( long key, long defaultValue ) {
+			long hash = hash( key );
+			Node node = root;
+			for( int shift = 0; ; shift += BITS ) {
+				int bit = bit( hash, shift );
+				if( ( node.dataMap & bit ) != 0 ) {
+					int i = slot( node.dataMap, bit );
+					return node.keys[ i ] == key ?
+					       node.values[ i ] :
+					       defaultValue;
+				}
+				if( ( node.nodeMap & bit ) == 0 ) return defaultValue;
+				node = node.nodes[ slot( node.nodeMap, bit ) ];
+			}
+		}
+		
+		@Override
+		public int getAll( long[] src, int from, int len, long[] dst, long missingValue ) {
+			int found = 0;
+			for( int end = from + len; from < end; from++ ) {
+				long token = tokenOf( src[ from ] );
+				if( token == INVALID_TOKEN ) dst[ from ] = missingValue;
+				else {
+					dst[ from ] = value( token );
+					found++;
+				}
+			}
+			return found;
+		}
+		
+		/**
+		 * Returns the index of the next entry in the iteration order: the position after the given one.
+		 *
+		 * @param token The current position (or -1 to start from the beginning).
+		 * @return The next position, or -1 if no more non-null entries.
+		 */
+		@Override
+		public int unsafe_token( int token ) {
+			return token + 1 < root.size ?
+			       token + 1 :
+			       -1;
+		}
+		
+		@Override
+		public Spliterator.OfLong spliterator() { return Array.spliterator( size() - ( hasNullKey() ? 1 : 0 ), this::unsafe_token, this::key ); }
+		
+		@Override
+		public Spliterator.OfLong valuesSpliterator() { return Array.spliterator( size() - ( hasNullKey() ? 1 : 0 ), this::unsafe_token, this::value ); }
+		
+		@Override
+		public void forEach( Consumer action ) {
+			for( int t = -1; ( t = unsafe_token( t ) ) != -1; )
+				action.accept( key( t ), value( t ) );
+		}
+		
+		@Override
+		public void forEachKey( KeyConsumer action ) {
+			for( int t = -1; ( t = unsafe_token( t ) ) != -1; )
+				action.accept( key( t ) );
+		}
+		
+		@Override
+		public void forEachValue( ValueConsumer action ) {
+			for( int t = -1; ( t = unsafe_token( t ) ) != -1; )
+				action.accept( value( t ) );
+		}
+		
+		@Override
+		public boolean forEachWhile( Predicate predicate ) {
+			for( int t = -1; ( t = unsafe_token( t ) ) != -1; )
+				if( !predicate.test( key( t ), value( t ) ) ) return false;
+			return true;
+		}
+		
+		@Override
+		public long key( long token ) { return at( index( token ), true ); }
+		
+		@Override
+		public long value( long token ) {
+			return isKeyNull( token ) ?
+			       nullKeyValue :
+			       at( index( token ), false );
+		}
+		
+		/**
+		 * Returns the key or the value of the entry at the given position in the iteration order.
+		 */
+		private long at( int position, boolean key ) {
+			for( Node node = root; ; ) {
+				if( position < node.keys.length ) return key ?
+				                                         node.keys[ position ] :
+				                                         node.values[ position ];
+				position -= node.keys.length;
+				
+				Node[] nodes = node.nodes;
+				int    c     = 0;
+				while( nodes[ c ].size <= position ) position -= nodes[ c++ ].size;
+				node = nodes[ c ];
+			}
+		}
+		
+		@Override
+		public void toJSON( JsonWriter json ) {
+			json.preallocate( size() * 10 );
+			json.enterObject();
+			
+			if( hasNullKey ) json.name().value( nullKeyValue );
+			toJSON( root, json );
+			
+			json.exitObject();
+		}
+		
+		private static void toJSON( Node node, JsonWriter json ) {
+			for( int i = 0; i < node.keys.length; i++ ) json.name( node.keys[ i ] ).value( node.values[ i ] );
+			for( Node child : node.nodes ) toJSON( child, json );
+		}
+		
+		/**
+		 * Associates the value with the key below {@code node}, copying the nodes on the path that {@code owner} does not own.
+		 *
+		 * @return The node replacing {@code node}: {@code node} itself if nothing changed or it was modified in place.
+		 */
+		protected static Node put( Node node, long key, long value, long hash, int shift, Object owner ) {
+			int bit = bit( hash, shift );
+			
+			if( ( node.dataMap & bit ) != 0 ) {
+				int i = slot( node.dataMap, bit );
+				long k = node.keys[ i ];
+				
+				if( k == key ) {
+					if( node.values[ i ] == value ) return node;
+					Node dst = owned( node, owner ) ?
+					           node :
+					           new Node( node.dataMap, node.nodeMap, node.keys, node.values.clone(), owner == null ?
+					                                                                                 node.nodes :
+					                                                                                 node.nodes.clone(), node.size, owner );
+					dst.values[ i ] = value;
+					return dst;
+				}
+				
+				// The digit is taken by another key: push both down into a new child
+				Node child = pair( k, node.values[ i ], hash( k ), key, value, hash, shift + BITS, owner );
+				return set( node, owner, node.dataMap ^ bit, node.nodeMap | bit,
+				            remove( node.keys, i ), remove( node.values, i ),
+				            insert( node.nodes, slot( node.nodeMap, bit ), child ), node.size + 1 );
+			}
+			
+			if( ( node.nodeMap & bit ) != 0 ) {
+				int  j     = slot( node.nodeMap, bit );
+				Node child = node.nodes[ j ];
+				int  size  = child.size;
+				Node sub   = put( child, key, value, hash, shift + BITS, owner );
+				if( sub == child && sub.size == size ) return node;
+				
+				Node dst = owned( node, owner ) ?
+				           node :
+				           new Node( node.dataMap, node.nodeMap, node.keys, owner == null ?
+				                                                            node.values :
+				                                                            node.values.clone(), node.nodes.clone(), node.size, owner );
+				dst.nodes[ j ] = sub;
+				dst.size += sub.size - size;
+				return dst;
+			}
+			
+			int i = slot( node.dataMap, bit );
+			return set( node, owner, node.dataMap | bit, node.nodeMap,
+			            insert( node.keys, i, key ), insert( node.values, i, value ), node.nodes, node.size + 1 );
+		}
+		
+		/**
+		 * Removes the key below {@code node}, copying the nodes on the path that {@code owner} does not own.
+		 *
+		 * @return The node replacing {@code node}: {@code node} itself if the key is absent or it was modified in place.
+		 */
+		protected static Node remove( Node node, long key, long hash, int shift, Object owner ) {
+			int bit = bit( hash, shift );
+			
+			if( ( node.dataMap & bit ) != 0 ) {
+				int i = slot( node.dataMap, bit );
+				if( node.keys[ i ] != key ) return node;
+				return set( node, owner, node.dataMap ^ bit, node.nodeMap,
+				            remove( node.keys, i ), remove( node.values, i ), node.nodes, node.size - 1 );
+			}
+			
+			if( ( node.nodeMap & bit ) == 0 ) return node;
+			
+			int  j     = slot( node.nodeMap, bit );
+			Node child = node.nodes[ j ];
+			int  size  = child.size;
+			Node sub   = remove( child, key, hash, shift + BITS, owner );
+			if( sub == child && sub.size == size ) return node;
+			
+			if( sub.size == 1 ) { // pull the last entry of the child up into this node
+				int i = slot( node.dataMap, bit );
+				return set( node, owner, node.dataMap | bit, node.nodeMap ^ bit,
+				            insert( node.keys, i, sub.keys[ 0 ] ), insert( node.values, i, sub.values[ 0 ] ),
+				            remove( node.nodes, j ), node.size - 1 );
+			}
+			
+			Node dst = owned( node, owner ) ?
+			           node :
+			           new Node( node.dataMap, node.nodeMap, node.keys, owner == null ?
+			                                                            node.values :
+			                                                            node.values.clone(), node.nodes.clone(), node.size, owner );
+			dst.nodes[ j ] = sub;
+			dst.size--;
+			return dst;
+		}
+		
+		/**
+		 * Returns a node holding the two entries, nested as deep as their hashes share digits.
+		 */
+		private static Node pair( long key1, long value1, long hash1, long key2, long value2, long hash2, int shift, Object owner ) {
+			int bit1 = bit( hash1, shift );
+			int bit2 = bit( hash2, shift );
+			
+			if( bit1 == bit2 ) return new Node( 0, bit1, Array.EqualHashOf._longs.O, Array.EqualHashOf._longs.O,
+			                                    new Node[]{ pair( key1, value1, hash1, key2, value2, hash2, shift + BITS, owner ) }, 2, owner );
+			
+			return Integer.compareUnsigned( bit1, bit2 ) < 0 ?
+			       new Node( bit1 | bit2, 0, new long[]{ key1, key2 }, new long[]{ value1, value2 }, NO_NODES, 2, owner ) :
+			       new Node( bit1 | bit2, 0, new long[]{ key2, key1 }, new long[]{ value2, value1 }, NO_NODES, 2, owner );
+		}
+		
+		private static boolean owned( Node node, Object owner ) { return owner != null && node.owner == owner; }
+		
+		/**
+		 * Updates {@code node} in place if {@code owner} owns it, otherwise returns a new node with the given content.
+		 * <p>
+		 * A node owned by an edit session never shares its {@code values} and {@code nodes} arrays, which the session
+		 * modifies in place; its {@code keys} are only ever replaced, so they may be shared.
+		 */
+		private static Node set( Node node, Object owner, int dataMap, int nodeMap, long[] keys, long[] values, Node[] nodes, int size ) {
+			if( !owned( node, owner ) ) {
+				if( owner != null ) { // the values and nodes of an owned node are its own, to be modified in place
+					if( values == node.values ) values = values.clone();
+					if( nodes == node.nodes ) nodes = nodes.clone();
+				}
+				return new Node( dataMap, nodeMap, keys, values, nodes, size, owner );
+			}
+			node.dataMap = dataMap;
+			node.nodeMap = nodeMap;
+			node.keys    = keys;
+			node.values  = values;
+			node.nodes   = nodes;
+			node.size    = size;
+			return node;
+		}
+		
+		private static long[] insert( long[] src, int i, long value ) {
+			long[] dst = new long[ src.length + 1 ];
+			System.arraycopy( src, 0, dst, 0, i );
+			dst[ i ] = value;
+			System.arraycopy( src, i, dst, i + 1, src.length - i );
+			return dst;
+		}
+		
+		private static long[] remove( long[] src, int i ) {
+			if( src.length == 1 ) return Array.EqualHashOf._longs.O;
+			long[] dst = new long[ src.length - 1 ];
+			System.arraycopy( src, 0, dst, 0, i );
+			System.arraycopy( src, i + 1, dst, i, dst.length - i );
+			return dst;
+		}
+		
+		private static Node[] insert( Node[] src, int i, Node node ) {
+			Node[] dst = new Node[ src.length + 1 ];
+			System.arraycopy( src, 0, dst, 0, i );
+			dst[ i ] = node;
+			System.arraycopy( src, i, dst, i + 1, src.length - i );
+			return dst;
+		}
+		
+		private static Node[] remove( Node[] src, int i ) {
+			if( src.length == 1 ) return NO_NODES;
+			Node[] dst = new Node[ src.length - 1 ];
+			System.arraycopy( src, 0, dst, 0, i );
+			System.arraycopy( src, i + 1, dst, i, dst.length - i );
+			return dst;
+		}
+	}
+	
+	/**
+	 * An immutable, persistent map: {@code put} and {@code remove} leave it unchanged and return a new version that
+	 * shares all but {@code O( log32( size ) )} nodes with it, so taking a snapshot costs nothing and keeping many
+	 * versions costs only their differences. It is the structure for read transactions that need snapshot isolation
+	 * from a map that keeps changing:
+	 * <pre>{@code
+	 * volatile LongLongMap.Persistent config = new LongLongMap.Persistent();
+	 *
+	 * LongLongMap.Persistent snapshot = config;     // a read transaction: a reference copy, no cloning
+	 * config = config.put( key, value );          // an update: the snapshot stays unchanged
+	 * }</pre>
+	 * Bulk updates go through a {@link Transient}, from {@link #edit()}, which modifies in place the nodes it has
+	 * already copied, then seals them into a new version with {@link Transient#persistent()}.
+	 * <p>
+	 * Once safely published, a version may be read by any number of threads without synchronization. Its tokens never
+	 * expire; tokens of another version are rejected only if it has a different version number.
+	 */
+	class Persistent extends Trie {
+		
+		/**
+		 * Constructs an empty map.
+		 */
+		public Persistent() { }
+		
+		/**
+		 * Constructs a persistent copy of the given map.
+		 *
+		 * @param src The map to copy.
+		 */
+		public Persistent( R src ) {
+			Transient dst = new Transient();
+			for( int token = -1; ( token = src.unsafe_token( token ) ) != -1; ) dst.put( src.key( src.token( token ) ), src.value( src.token( token ) ) );
+			root         = dst.root;
+			hasNullKey   = src.hasNullKey;
+			nullKeyValue = src.nullKeyValue;
+		}
+		
+		Persistent( Node root, boolean hasNullKey, long nullKeyValue, int version ) {
+			this.root         = root;
+			this.hasNullKey   = hasNullKey;
+			this.nullKeyValue = nullKeyValue;
+			_version          = version;
+		}
+		
+		/**
+		 * Returns a version of this map with the specified value associated with the specified boxed key.
+		 * If the key is {@code null}, the null key mapping is updated or added.
+		 *
+		 * @param key   The key with which the specified value is to be associated.
+		 * @param value The value to be associated with the specified key.
+		 * @return The new version, or this map if it already holds the mapping.
+		 */
+		public Persistent put(  Long key, long value ) {
+			return key == null ?
+			       put( value ) :
+			       put( ( long ) ( key + 0 ), value );
+		}
+		
+		/**
+		 * Returns a version of this map with the specified value associated with the {@code null} key.
+		 *
+		 * @param value The value to be associated with the null key.
+		 * @return The new version, or this map if it already holds the mapping.
+		 */
+		public Persistent put( long value ) {
+			return hasNullKey && nullKeyValue == value ?
+			       this :
+			       new Persistent( root, true, value, _version + 1 );
+		}
+		
+		/**
+		 * Returns a version of this map with the specified value associated with the specified primitive key.
+		 *
+		 * @param key   The key with which the specified value is to be associated.
+		 * @param value The value to be associated with the specified key.
+		 * @return The new version, or this map if it already holds the mapping.
+		 */
+		public Persistent put( long key, long value ) {
+			Node root = put( this.root, key, value, hash( key ), 0, null );
+			return root == this.root ?
+			       this :
+			       new Persistent( root, hasNullKey, nullKeyValue, _version + 1 );
+		}
+		
+		/**
+		 * Returns a version of this map with the keys of the given range associated with the values at the same indices,
+		 * built in one {@link Transient} edit session.
+		 *
+		 * @param src_keys   The keys.
+		 * @param src_values The values, at the indices of their keys.
+		 * @param from       The index of the first entry.
+		 * @param len        The number of entries.
+		 * @return The new version, or this map if it already holds every mapping.
+		 */
+		public Persistent putAll( long[] src_keys, long[] src_values, int from, int len ) {
+			Transient dst = edit();
+			for( int end = from + len; from < end; from++ ) dst.put( src_keys[ from ], src_values[ from ] );
+			return dst.root == root ?
+			       this :
+			       dst.persistent();
+		}
+		
+		/**
+		 * Returns a version of this map without the mapping for the specified boxed key.
+		 * If the key is {@code null}, the null key mapping is removed.
+		 *
+		 * @param key The key whose mapping is to be removed.
+		 * @return The new version, or this map if the key is absent.
+		 */
+		public Persistent remove(  Long key ) {
+			return key == null ?
+			       removeNullKey() :
+			       remove( ( long ) ( key + 0 ) );
+		}
+		
+		/**
+		 * Returns a version of this map without the mapping for the {@code null} key.
+		 *
+		 * @return The new version, or this map if the null key is absent.
+		 */
+		public Persistent removeNullKey() {
+			return hasNullKey ?
+			       new Persistent( root, false, ( long ) 0, _version + 1 ) :
+			       this;
+		}
+		
+		/**
+		 * Returns a version of this map without the mapping for the specified primitive key.
+		 *
+		 * @param key The key whose mapping is to be removed.
+		 * @return The new version, or this map if the key is absent.
+		 */
+		public Persistent remove( long key ) {
+			Node root = remove( this.root, key, hash( key ), 0, null );
+			return root == this.root ?
+			       this :
+			       new Persistent( root, hasNullKey, nullKeyValue, _version + 1 );
+		}
+		
+		/**
+		 * Starts a batch edit of this map. This map itself stays unchanged.
+		 *
+		 * @return A {@link Transient} holding the mappings of this map.
+		 */
+		public Transient edit() { return new Transient( this ); }
+		
+		/**
+		 * Returns a copy sharing every node with this map, which is as good as this map itself.
+		 */
+		@Override
+		public Persistent clone() { return ( Persistent ) super.clone(); }
+	}
+	
+	/**
+	 * A mutable map over the trie of a {@link Persistent}, for bulk updates. It copies a shared node the first time it
+	 * modifies it and modifies its own copies in place afterwards, so a batch of {@code n} updates allocates about
+	 * {@code n} nodes instead of {@code n * log32( size )}. {@link #persistent()} returns the edited mappings as a
+	 * new version; the edit may go on afterwards, copying the nodes it now shares with that version anew.
+	 * <p>
+	 * A transient is not thread-safe. It implements the whole {@link R} read API.
+	 */
+	class Transient extends Trie {
+		
+		/**
+		 * The identity of the current edit session: the nodes it has copied, which it may modify in place, carry it.
+		 */
+		private Object owner = new Object();
+		
+		/**
+		 * Constructs an empty map.
+		 */
+		public Transient() { }
+		
+		/**
+		 * Constructs a mutable map starting from the mappings of the given version.
+		 *
+		 * @param src The version to edit.
+		 */
+		public Transient( Persistent src ) {
+			root         = src.root;
+			hasNullKey   = src.hasNullKey;
+			nullKeyValue = src.nullKeyValue;
+			_version     = src._version;
+		}
+		
+		/**
+		 * Associates the specified value with the specified boxed key in this map.
+		 * If the key is {@code null}, the null key mapping is updated or added.
+		 *
+		 * @param key   The key with which the specified value is to be associated.
+		 * @param value The value to be associated with the specified key.
+		 * @return {@code true} if a new key was added, {@code false} if an existing key's value was updated.
+		 */
+		public boolean put(  Long key, long value ) {
+			return key == null ?
+			       put( value ) :
+			       put( ( long ) ( key + 0 ), value );
+		}
+		
+		/**
+		 * Associates the specified value with the {@code null} key in this map.
+		 *
+		 * @param value The value to be associated with the null key.
+		 * @return {@code true} if the null key mapping was added, {@code false} if its value was updated.
+		 */
+		public boolean put( long value ) {
+			boolean ret = !hasNullKey;
+			hasNullKey   = true;
+			nullKeyValue = value;
+			_version++;
+			return ret;
+		}
+		
+		/**
+		 * Associates the specified value with the specified primitive key in this map.
+		 *
+		 * @param key   The key with which the specified value is to be associated.
+		 * @param value The value to be associated with the specified key.
+		 * @return {@code true} if a new key was added, {@code false} if an existing key's value was updated.
+		 */
+		public boolean put( long key, long value ) {
+			int size = root.size;
+			root = put( root, key, value, hash( key ), 0, owner );
+			_version++;
+			return size < root.size;
+		}
+		
+		/**
+		 * Removes the mapping for the specified boxed key from this map if present.
+		 * If the key is {@code null}, the null key mapping is removed.
+		 *
+		 * @param key The key whose mapping is to be removed from the map.
+		 * @return {@code true} if the map contained a mapping for the specified key.
+		 */
+		public boolean remove(  Long key ) {
+			return key == null ?
+			       removeNullKey() :
+			       remove( ( long ) ( key + 0 ) );
+		}
+		
+		/**
+		 * Removes the mapping for the {@code null} key from this map if present.
+		 *
+		 * @return {@code true} if the null key mapping was present and removed.
+		 */
+		public boolean removeNullKey() {
+			if( !hasNullKey ) return false;
+			hasNullKey = false;
+			_version++;
+			return true;
+		}
+		
+		/**
+		 * Removes the mapping for the specified primitive key from this map if present.
+		 *
+		 * @param key The primitive key whose mapping is to be removed from the map.
+		 * @return {@code true} if the map contained a mapping for the specified key.
+		 */
+		public boolean remove( long key ) {
+			int size = root.size;
+			root = remove( root, key, hash( key ), 0, owner );
+			if( root.size == size ) return false;
+			if( root.size == 0 ) root = EMPTY;
+			_version++;
+			return true;
+		}
+		
+		/**
+		 * Removes all of the mappings from this map.
+		 */
+		public void clear() {
+			_version++;
+			hasNullKey = false;
+			root       = EMPTY;
+		}
+		
+		/**
+		 * Returns the current mappings as a new persistent version. Later edits do not affect it.
+		 *
+		 * @return The new version.
+		 */
+		public Persistent persistent() {
+			owner = new Object(); // the nodes copied so far are shared with the version from now on
+			return new Persistent( root, hasNullKey, nullKeyValue, ++_version );
+		}
+		
+		/**
+		 * Returns an independent copy. Both maps copy the nodes they share anew before modifying them.
+		 */
+		@Override
+		public Transient clone() {
+			Transient dst = ( Transient ) super.clone();
+			owner     = new Object();
+			dst.owner = new Object();
+			return dst;
+		}
+	}
 }
\ No newline at end of file
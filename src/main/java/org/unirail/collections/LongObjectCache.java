@@ -0,0 +1,655 @@
+// Copyright 2025 Chikirev Sirguy, Unirail Group
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+// For inquiries, please contact: al8v5C6HU4UtqE9@gmail.com
+// GitHub Repository: https://github.com/AdHoc-Protocol
+package org.unirail.collections;
+
+import org.unirail.JsonWriter;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+
+/**
+ * A bounded cache from primitive {@code long} keys to object values that evicts entries by a {@link Policy}.
+ * <p>
+ * All storage is allocated by the constructor and never grows: the entries live in fixed slots of the
+ * {@code keys} and {@code values} arrays, found by key through the bucket and collision-chain scheme of
+ * {@link LongObjectMap}, and the recency order is kept as doubly linked lists in the parallel {@code prev} and
+ * {@code next} arrays. There are no entry objects and no boxing, so {@link #get(long)} and {@link #put(long, Object)}
+ * allocate nothing once the cache is built.
+ * <p>
+ * Every slot belongs to one of three segments, each a list from the most to the least recently used entry:
+ * <ul>
+ * <li>{@code WINDOW}: the admission window of {@link Policy#W_TINY_LFU};</li>
+ * <li>{@code PROBATION}: entries seen once since they entered the main space, and all entries of {@link Policy#LRU};</li>
+ * <li>{@code PROTECTED}: entries hit again while on probation.</li>
+ * </ul>
+ * The cache is not thread-safe.
+ */
+public class LongObjectCache< V > implements JsonWriter.Source {
+	
+	/**
+	 * The eviction policies.
+	 */
+	public enum Policy {
+		/**
+		 * Least recently used: one list, the tail is evicted.
+		 */
+		LRU,
+		/**
+		 * Segmented LRU: new entries go on probation (20% of the capacity), a hit there promotes them to the
+		 * protected segment (80%), whose overflow is demoted back to probation. The probation tail is evicted,
+		 * so entries used once cannot flush the entries used repeatedly.
+		 */
+		SLRU,
+		/**
+		 * Window TinyLFU: new entries go to a small LRU window (1% of the capacity); the entry pushed out of the window
+		 * competes with the probation tail of a main SLRU space, and the one of them with the lower estimated access
+		 * frequency, counted by a 4-bit count-min sketch that is halved periodically, is evicted.
+		 */
+		W_TINY_LFU
+	}
+	
+	/**
+	 * Receives the entries evicted to make room for new ones. Not called for {@link #remove(long)} and {@link #clear()}.
+	 */
+	@FunctionalInterface
+	public interface Evicted< V > {
+		void evicted( long key, V value );
+	}
+	
+	protected static final byte WINDOW    = 0;
+	protected static final byte PROBATION = 1;
+	protected static final byte PROTECTED = 2;
+	/**
+	 * The segment of a free slot below {@code used}.
+	 */
+	protected static final byte FREE      = -1;
+	
+	/**
+	 * The eviction policy.
+	 */
+	protected final Policy policy;
+	
+	/**
+	 * The maximum number of entries.
+	 */
+	protected final int capacity;
+	
+	/**
+	 * The key of each slot.
+	 */
+	protected final long[]   keys;
+	/**
+	 * The value of each slot.
+	 */
+	protected final Object[] values;
+	
+	/**
+	 * The heads of the collision chains: 1-based slots, {@code 0} for an empty bucket.
+	 */
+	protected final int[] _buckets;
+	/**
+	 * The {@link Array#modMultiplier(int)} of {@code _buckets.length}.
+	 */
+	protected final long  _bucketsMultiplier;
+	/**
+	 * The next slot, 1-based, in the collision chain of each slot.
+	 */
+	protected final int[] links;
+	
+	/**
+	 * The more recently used neighbour of each slot in its segment list, or -1 for the head.
+	 * For a free slot, unused.
+	 */
+	protected final int[]  prev;
+	/**
+	 * The less recently used neighbour of each slot in its segment list, or -1 for the tail.
+	 * For a free slot, the next free slot.
+	 */
+	protected final int[]  next;
+	/**
+	 * The segment of each slot.
+	 */
+	protected final byte[] segment;
+	
+	/**
+	 * The most recently used slot of each segment, or -1.
+	 */
+	protected final int[] heads = { -1, -1, -1 };
+	/**
+	 * The least recently used slot of each segment, or -1.
+	 */
+	protected final int[] tails = { -1, -1, -1 };
+	/**
+	 * The number of entries of each segment.
+	 */
+	protected final int[] sizes = new int[ 3 ];
+	/**
+	 * The maximum number of entries of the window and protected segments.
+	 */
+	protected final int   windowMax, protectedMax;
+	
+	/**
+	 * The number of slots ever used; slots from here on have never held an entry.
+	 */
+	protected int used;
+	/**
+	 * The first free slot below {@code used}, or -1.
+	 */
+	protected int free = -1;
+	/**
+	 * The number of entries.
+	 */
+	protected int _count;
+	
+	/**
+	 * The strategy that hashes keys into buckets.
+	 */
+	protected final Array.Hash hash_K;
+	
+	/**
+	 * The frequency sketch of {@link Policy#W_TINY_LFU}: sixteen 4-bit counters per element. Empty for other policies.
+	 */
+	protected final long[] sketch;
+	/**
+	 * The number of counter increments after which all counters are halved.
+	 */
+	protected final int    sampleSize;
+	/**
+	 * The number of counter increments since the last halving.
+	 */
+	protected int          additions;
+	
+	/**
+	 * The receiver of evicted entries, or {@code null}.
+	 */
+	protected Evicted< V > evicted;
+	
+	protected long hits, misses, evictions;
+	
+	/**
+	 * Constructs an empty cache.
+	 *
+	 * @param capacity The maximum number of entries.
+	 * @param policy   The eviction policy.
+	 * @throws IllegalArgumentException If {@code capacity} is not positive.
+	 */
+	public LongObjectCache( int capacity, Policy policy ) { this( capacity, policy, Array.Hash.IDENTITY, null ); }
+	
+	/**
+	 * Constructs an empty cache.
+	 *
+	 * @param capacity The maximum number of entries.
+	 * @param policy   The eviction policy.
+	 * @param hash_K   The strategy that hashes keys into buckets.
+	 * @param evicted  The receiver of evicted entries, or {@code null}.
+	 * @throws IllegalArgumentException If {@code capacity} is not positive.
+	 */
+	public LongObjectCache( int capacity, Policy policy, Array.Hash hash_K, Evicted< V > evicted ) {
+		if( capacity < 1 ) throw new IllegalArgumentException( "capacity must be positive" );
+		
+		this.capacity = capacity;
+		this.policy   = policy;
+		this.hash_K   = hash_K;
+		this.evicted  = evicted;
+		
+		keys    = new long[ capacity ];
+		values  = new Object[ capacity ];
+		links   = new int[ capacity ];
+		prev    = new int[ capacity ];
+		next    = new int[ capacity ];
+		segment = new byte[ capacity ];
+		
+		int buckets = Array.prime( capacity );
+		_buckets           = new int[ buckets ];
+		_bucketsMultiplier = Array.modMultiplier( buckets );
+		
+		switch( policy ) {
+			case LRU:
+				windowMax    = 0;
+				protectedMax = 0;
+				sketch       = Array.EqualHashOf._longs.O;
+				sampleSize   = 0;
+				break;
+			case SLRU:
+				windowMax    = 0;
+				protectedMax = capacity - Math.max( 1, capacity / 5 );
+				sketch       = Array.EqualHashOf._longs.O;
+				sampleSize   = 0;
+				break;
+			default:
+				windowMax    = Math.max( 1, capacity / 100 );
+				protectedMax = Math.max( 0, ( capacity - windowMax ) - Math.max( 1, ( capacity - windowMax ) / 5 ) );
+				sketch       = new long[ ( int ) Array.nextPowerOf2( Math.max( 16, capacity ) ) ];
+				sampleSize   = 10 * Math.max( 16, capacity );
+		}
+	}
+	
+	/**
+	 * Sets the receiver of evicted entries.
+	 *
+	 * @param evicted The receiver, or {@code null} for none.
+	 */
+	public void evicted( Evicted< V > evicted ) { this.evicted = evicted; }
+	
+	/**
+	 * Returns the eviction policy.
+	 *
+	 * @return the eviction policy
+	 */
+	public Policy policy() { return policy; }
+	
+	/**
+	 * Returns the maximum number of entries.
+	 *
+	 * @return the capacity of this cache
+	 */
+	public int capacity() { return capacity; }
+	
+	/**
+	 * Returns the number of entries.
+	 *
+	 * @return the number of entries
+	 */
+	public int size() { return _count; }
+	
+	/**
+	 * Returns {@code true} if this cache contains no entries.
+	 *
+	 * @return {@code true} if this cache contains no entries
+	 */
+	public boolean isEmpty() { return _count == 0; }
+	
+	/**
+	 * Returns the number of {@link #get(long)} calls that found their key.
+	 *
+	 * @return the hit count
+	 */
+	public long hits() { return hits; }
+	
+	/**
+	 * Returns the number of {@link #get(long)} calls that did not find their key.
+	 *
+	 * @return the miss count
+	 */
+	public long misses() { return misses; }
+	
+	/**
+	 * Returns the number of entries evicted to make room for new ones.
+	 *
+	 * @return the eviction count
+	 */
+	public long evictions() { return evictions; }
+	
+	/**
+	 * Returns the fraction of {@link #get(long)} calls that found their key, or 0 before the first call.
+	 *
+	 * @return the hit rate
+	 */
+	public double hitRate() {
+		long requests = hits + misses;
+		return requests == 0 ?
+		       0 :
+		       ( double ) hits / requests;
+	}
+	
+	/**
+	 * Resets the hit, miss and eviction counters to zero.
+	 */
+	public void resetStats() { hits = misses = evictions = 0; }
+	
+	/**
+	 * Returns {@code true} if the key is cached. Neither the recency order nor the counters change.
+	 *
+	 * @param key The key.
+	 * @return {@code true} if the key is cached.
+	 */
+	public boolean containsKey( long key ) { return find( key ) != -1; }
+	
+	/**
+	 * Returns the value of the key without touching the recency order or the counters.
+	 *
+	 * @param key The key.
+	 * @return The value, or {@code null} if the key is not cached.
+	 */
+	@SuppressWarnings( "unchecked" )
+	public V peek( long key ) {
+		int slot = find( key );
+		return slot == -1 ?
+		       null :
+		       ( V ) values[ slot ];
+	}
+	
+	/**
+	 * Returns the value of the key and records the access, counting a hit or a miss.
+	 *
+	 * @param key The key.
+	 * @return The value, or {@code null} if the key is not cached.
+	 */
+	public V get( long key ) { return get( key, null ); }
+	
+	/**
+	 * Returns the value of the key and records the access, counting a hit or a miss.
+	 *
+	 * @param key          The key.
+	 * @param defaultValue The value to return if the key is not cached.
+	 * @return The value, or {@code defaultValue} if the key is not cached.
+	 */
+	@SuppressWarnings( "unchecked" )
+	public V get( long key, V defaultValue ) {
+		if( sketch.length != 0 ) increment( key );
+		
+		int slot = find( key );
+		if( slot == -1 ) {
+			misses++;
+			return defaultValue;
+		}
+		hits++;
+		touch( slot );
+		return ( V ) values[ slot ];
+	}
+	
+	/**
+	 * Caches the value under the key, evicting an entry if the cache is full. An existing entry of the key is updated
+	 * and counts as an access.
+	 *
+	 * @param key   The key.
+	 * @param value The value.
+	 * @return The previous value of the key, or {@code null} if the key was not cached.
+	 */
+	@SuppressWarnings( "unchecked" )
+	public V put( long key, V value ) {
+		int slot = find( key );
+		if( slot != -1 ) {
+			V old = ( V ) values[ slot ];
+			values[ slot ] = value;
+			if( sketch.length != 0 ) increment( key );
+			touch( slot );
+			return old;
+		}
+		
+		if( sketch.length != 0 ) increment( key );
+		if( _count == capacity ) evict();
+		
+		if( free != -1 ) {
+			slot = free;
+			free = next[ slot ];
+		}
+		else slot = used++;
+		
+		keys[ slot ]   = key;
+		values[ slot ] = value;
+		int bucket = bucketIndex( hash_K.hash( key ) );
+		links[ slot ]      = _buckets[ bucket ];
+		_buckets[ bucket ] = slot + 1;
+		_count++;
+		
+		if( policy == Policy.W_TINY_LFU ) {
+			push( slot, WINDOW );
+			if( windowMax < sizes[ WINDOW ] ) {
+				int candidate = tails[ WINDOW ];
+				unlink( candidate );
+				push( candidate, PROBATION );
+			}
+		}
+		else push( slot, PROBATION );
+		return null;
+	}
+	
+	/**
+	 * Removes the entry of the key. The eviction listener is not called.
+	 *
+	 * @param key The key.
+	 * @return The removed value, or {@code null} if the key was not cached.
+	 */
+	@SuppressWarnings( "unchecked" )
+	public V remove( long key ) {
+		int slot = find( key );
+		if( slot == -1 ) return null;
+		V value = ( V ) values[ slot ];
+		release( slot );
+		return value;
+	}
+	
+	/**
+	 * Removes all entries. The counters and the frequency sketch are kept.
+	 */
+	public void clear() {
+		Arrays.fill( _buckets, 0 );
+		Arrays.fill( values, 0, used, null );
+		Arrays.fill( heads, -1 );
+		Arrays.fill( tails, -1 );
+		Arrays.fill( sizes, 0 );
+		used   = 0;
+		free   = -1;
+		_count = 0;
+	}
+	
+	/**
+	 * Passes every entry to the action, in slot order. Loops directly over the slots in use, so the action must not
+	 * modify the cache. Neither the recency order nor the counters change.
+	 *
+	 * @param action The receiver of the entries.
+	 */
+	@SuppressWarnings( "unchecked" )
+	public void forEach( LongObjectMap.Consumer< ? super V > action ) {
+		for( int slot = 0; slot < used; slot++ )
+			if( segment[ slot ] != FREE ) action.accept( keys[ slot ], ( V ) values[ slot ] );
+	}
+	
+	/**
+	 * Passes every key to the action, in the order of {@link #forEach(LongObjectMap.Consumer)}.
+	 *
+	 * @param action The receiver of the keys.
+	 */
+	public void forEachKey( LongObjectMap.KeyConsumer action ) {
+		for( int slot = 0; slot < used; slot++ )
+			if( segment[ slot ] != FREE ) action.accept( keys[ slot ] );
+	}
+	
+	/**
+	 * Passes every value to the action, in the order of {@link #forEach(LongObjectMap.Consumer)}.
+	 *
+	 * @param action The receiver of the values.
+	 */
+	@SuppressWarnings( "unchecked" )
+	public void forEachValue( LongObjectMap.ValueConsumer< ? super V > action ) {
+		for( int slot = 0; slot < used; slot++ )
+			if( segment[ slot ] != FREE ) action.accept( ( V ) values[ slot ] );
+	}
+	
+	/**
+	 * Passes the entries to the predicate, in the order of {@link #forEach(LongObjectMap.Consumer)}, until it returns
+	 * {@code false}.
+	 *
+	 * @param predicate The test of the entries.
+	 * @return {@code true} if the predicate accepted every entry, {@code false} if it stopped the iteration.
+	 */
+	@SuppressWarnings( "unchecked" )
+	public boolean forEachWhile( LongObjectMap.Predicate< ? super V > predicate ) {
+		for( int slot = 0; slot < used; slot++ )
+			if( segment[ slot ] != FREE && !predicate.test( keys[ slot ], ( V ) values[ slot ] ) ) return false;
+		return true;
+	}
+	
+	/**
+	 * Returns the slot of the key, or -1.
+	 */
+	protected int find( long key ) {
+		for( int slot = _buckets[ bucketIndex( hash_K.hash( key ) ) ] - 1, collisions = 0; slot != -1; slot = links[ slot ] - 1 ) {
+			if( keys[ slot ] == key ) return slot;
+			if( _count < ++collisions ) throw new ConcurrentModificationException( "Concurrent operations not supported." );
+		}
+		return -1;
+	}
+	
+	protected int bucketIndex( int hash ) { return Array.mod( hash & 0x7FFF_FFFF, _bucketsMultiplier, _buckets.length ); }
+	
+	/**
+	 * Records a hit of the entry in the slot: moves it to the head of its segment, or promotes it from probation.
+	 */
+	protected void touch( int slot ) {
+		if( segment[ slot ] != PROBATION || protectedMax == 0 ) {
+			if( heads[ segment[ slot ] ] == slot ) return;
+			byte seg = segment[ slot ];
+			unlink( slot );
+			push( slot, seg );
+			return;
+		}
+		
+		unlink( slot );
+		push( slot, PROTECTED );
+		if( protectedMax < sizes[ PROTECTED ] ) {
+			int demoted = tails[ PROTECTED ];
+			unlink( demoted );
+			push( demoted, PROBATION );
+		}
+	}
+	
+	/**
+	 * Evicts one entry to free a slot for a new one.
+	 */
+	@SuppressWarnings( "unchecked" )
+	protected void evict() {
+		int victim;
+		if( policy != Policy.W_TINY_LFU ) victim = tails[ PROBATION ] != -1 ?
+		                                           tails[ PROBATION ] :
+		                                           tails[ PROTECTED ];
+		else {
+			int candidate = tails[ WINDOW ];
+			victim = tails[ PROBATION ] != -1 ?
+			         tails[ PROBATION ] :
+			         tails[ PROTECTED ];
+			if( victim == -1 ) victim = candidate; // the main space is empty
+			else if( candidate != -1 && windowMax <= sizes[ WINDOW ] ) {// the window is full: its tail is admitted only if it is more frequent than the victim
+				if( frequency( keys[ victim ] ) < frequency( keys[ candidate ] ) ) {
+					unlink( candidate );
+					push( candidate, PROBATION );
+				}
+				else victim = candidate;
+			}
+		}
+		
+		long key   = keys[ victim ];
+		V    value = ( V ) values[ victim ];
+		release( victim );
+		evictions++;
+		if( evicted != null ) evicted.evicted( key, value );
+	}
+	
+	/**
+	 * Takes the slot out of its chain and its segment list and puts it on the free list.
+	 */
+	private void release( int slot ) {
+		int bucket = bucketIndex( hash_K.hash( keys[ slot ] ) );
+		if( _buckets[ bucket ] == slot + 1 ) _buckets[ bucket ] = links[ slot ];
+		else {
+			int at = _buckets[ bucket ] - 1;
+			while( links[ at ] != slot + 1 ) at = links[ at ] - 1;
+			links[ at ] = links[ slot ];
+		}
+		
+		unlink( slot );
+		values[ slot ]  = null;
+		segment[ slot ] = FREE;
+		next[ slot ]    = free;
+		free            = slot;
+		_count--;
+	}
+	
+	/**
+	 * Makes the slot the head of the segment.
+	 */
+	private void push( int slot, byte seg ) {
+		segment[ slot ] = seg;
+		prev[ slot ]    = -1;
+		next[ slot ]    = heads[ seg ];
+		if( heads[ seg ] == -1 ) tails[ seg ] = slot;
+		else prev[ heads[ seg ] ] = slot;
+		heads[ seg ] = slot;
+		sizes[ seg ]++;
+	}
+	
+	/**
+	 * Takes the slot out of the list of its segment.
+	 */
+	private void unlink( int slot ) {
+		byte seg = segment[ slot ];
+		int  p   = prev[ slot ];
+		int  n   = next[ slot ];
+		if( p == -1 ) heads[ seg ] = n;
+		else next[ p ] = n;
+		if( n == -1 ) tails[ seg ] = p;
+		else prev[ n ] = p;
+		sizes[ seg ]--;
+	}
+	
+	/**
+	 * Increments the four sketch counters of the key, halving all counters every {@code sampleSize} increments.
+	 */
+	private void increment( long key ) {
+		int h = Array.Hash.MURMUR.hash( key );
+		int g = Array.avalanche( h ) | 1;
+		
+		boolean added = false;
+		for( int i = 0; i < 4; i++, h += g ) {
+			int  index = h >>> 4 & sketch.length - 1;
+			int  shift = ( h & 15 ) << 2;
+			long c     = sketch[ index ] >>> shift & 15;
+			if( c < 15 ) {
+				sketch[ index ] += 1L << shift;
+				added = true;
+			}
+		}
+		
+		if( added && ++additions == sampleSize ) {
+			for( int i = 0; i < sketch.length; i++ ) sketch[ i ] = sketch[ i ] >>> 1 & 0x7777_7777_7777_7777L;
+			additions >>>= 1;
+		}
+	}
+	
+	/**
+	 * Returns the estimated access frequency of the key: the smallest of its four sketch counters.
+	 */
+	private int frequency( long key ) {
+		int h = Array.Hash.MURMUR.hash( key );
+		int g = Array.avalanche( h ) | 1;
+		
+		int min = 15;
+		for( int i = 0; i < 4; i++, h += g )
+		     min = Math.min( min, ( int ) ( sketch[ h >>> 4 & sketch.length - 1 ] >>> ( ( h & 15 ) << 2 ) & 15 ) );
+		return min;
+	}
+	
+	/**
+	 * Writes the entries as a JSON object, from the most to the least recently used within each segment:
+	 * window, protected, probation.
+	 *
+	 * @param json The JsonWriter to write to.
+	 */
+	@Override
+	public void toJSON( JsonWriter json ) {
+		json.preallocate( _count * 15 );
+		json.enterObject();
+		for( byte seg : new byte[]{ WINDOW, PROTECTED, PROBATION } )
+			for( int slot = heads[ seg ]; slot != -1; slot = next[ slot ] )
+			     json.name( keys[ slot ] ).value( values[ slot ] );
+		json.exitObject();
+	}
+	
+	@Override
+	public String toString() { return toJSON(); }
+}
\ No newline at end of file
@@ -21,6 +21,10 @@ import org.unirail.JsonWriter;
 
 import java.util.Arrays;
 import java.util.ConcurrentModificationException;
+import java.util.Spliterator;
+import java.util.function.Function;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
 
 /**
  * A specialized set for storing primitive `int` keys, using a memory-efficient,
@@ -81,6 +85,22 @@ import java.util.ConcurrentModificationException;
  */
 public interface LongSet {
 	
+	/**
+	 * Receives the keys visited by {@link R#forEach(Consumer)}.
+	 */
+	@FunctionalInterface
+	interface Consumer {
+		void accept( long key );
+	}
+	
+	/**
+	 * Tests the keys visited by {@link R#forEachWhile(Predicate)}.
+	 */
+	@FunctionalInterface
+	interface Predicate {
+		boolean test( long key );
+	}
+	
 	/**
 	 * A read-only abstract base class that implements the core functionalities and state management for
 	 * the dual-region hash set. It provides methods for querying the set, iteration, and serialization
@@ -106,11 +126,30 @@ public interface LongSet {
 		 * is the 0-based index of the head of a collision chain. A value of `0` indicates an empty bucket.
 		 */
 		protected int[]         _buckets;
+		/**
+		 * The {@link Array#modMultiplier(int)} of {@code _buckets.length}, used by {@link #bucketIndex(int)}
+		 * to reduce hashes to bucket indices without an integer division.
+		 */
+		protected long          _bucketsMultiplier;
 		/**
 		 * An array used for collision chaining. For an entry at index `i` in the `lo Region` of the `keys` array,
 		 * `links[i]` stores the 0-based index of the next element in the same collision chain.
 		 */
 		protected int[]         links = Array.EqualHashOf._ints.O;
+		
+		/**
+		 * The strategy that hashes keys into buckets. Defaults to {@link Array.Hash#IDENTITY};
+		 * replace it with {@link RW#hash_K(Array.Hash)} for keys whose low bits are poorly distributed.
+		 */
+		protected Array.Hash hash_K = Array.Hash.IDENTITY;
+		
+		/**
+		 * Returns the strategy currently used to hash keys into buckets.
+		 *
+		 * @return The key hashing strategy.
+		 */
+		public Array.Hash hash_K() { return hash_K; }
+		
 		/**
 		 * Stores the primitive keys of the set. This array is logically divided into a `lo Region`
 		 * (for collision-involved entries) and a `hi Region` (for non-colliding entries).
@@ -247,7 +286,7 @@ public interface LongSet {
 			
 			if( _buckets == null || _count() == 0 ) return INVALID_TOKEN;
 			
-			int index = ( _buckets[ bucketIndex( Array.hash( key ) ) ] ) - 1;
+			int index = ( _buckets[ bucketIndex( hash_K.hash( key ) ) ] ) - 1;
 			if( index < 0 ) return INVALID_TOKEN;
 			
 			for( int collisions = 0; ; ) {
@@ -406,6 +445,105 @@ public interface LongSet {
 			return true;
 		}
 		
+		/**
+		 * Returns {@code true} if this set contains every key of {@code src}, the null key included.
+		 * The keys of {@code src} are walked directly, without the version checks of token iteration.
+		 *
+		 * @param src the set whose keys are looked up.
+		 * @return {@code true} if {@code src} is a subset of this set.
+		 */
+		public boolean containsAll( R src ) {
+			if( src == this || src == null ) return true;
+			if( size() < src.size() || src.hasNullKey && !hasNullKey ) return false;
+			
+			for( int token = -1; ( token = src.unsafe_token( token ) ) != -1; )
+				if( !contains( ( long ) ( src.keys[ token ] ) ) ) return false;
+			return true;
+		}
+		
+		/**
+		 * Returns {@code true} if this set and {@code other} share at least one key, the null key included.
+		 * The smaller set is walked and its keys are looked up in the larger one.
+		 *
+		 * @param other the set to check against.
+		 * @return {@code true} if the intersection of the two sets is not empty.
+		 */
+		public boolean intersects( R other ) {
+			if( other == null ) return false;
+			if( other == this ) return !isEmpty();
+			if( hasNullKey && other.hasNullKey ) return true;
+			
+			R walk = other._count() < _count() ?
+			         other :
+			         this;
+			R look = walk == this ?
+			         other :
+			         this;
+			for( int token = -1; ( token = walk.unsafe_token( token ) ) != -1; )
+				if( look.contains( ( long ) ( walk.keys[ token ] ) ) ) return true;
+			return false;
+		}
+		
+		/**
+		 * Returns a spliterator over the keys of the set, the null key excluded; check {@link #hasNullKey()}.
+		 * It splits the occupied slots of the {@code lo Region} and {@code hi Region} in halves, as if they were one array, and reports
+		 * {@code DISTINCT}, {@code SIZED}, {@code SUBSIZED} and {@code NONNULL}. The set must not be modified while it is in use.
+		 *
+		 * @return A spliterator over the keys.
+		 */
+		public Spliterator.OfLong spliterator() {
+			long[] keys = this.keys;
+			int    lo   = _lo_Size;
+			int    gap  = _count() == 0 ?
+			              0 :
+			              keys.length - _hi_Size - lo; // skips the free slots between the regions
+			return new Array.LongSpliterator( 0, _count(), Spliterator.DISTINCT | Spliterator.NONNULL, i -> keys[ i < lo ? i : i + gap ] );
+		}
+		
+		/**
+		 * Returns a sequential {@link LongStream} over the keys of the set, the null key excluded, without boxing.
+		 *
+		 * @return A stream over the keys.
+		 */
+		public LongStream stream() { return StreamSupport.longStream( spliterator(), false ); }
+		
+		/**
+		 * Returns a parallel {@link LongStream} over the keys of the set, the null key excluded, which runs on the common
+		 * fork-join pool.
+		 *
+		 * @return A parallel stream over the keys.
+		 */
+		public LongStream parallelStream() { return StreamSupport.longStream( spliterator(), true ); }
+		
+		/**
+		 * Passes every key to the action, the null key excluded. Loops directly over the lo and hi regions of the key
+		 * array, without tokens or version checks, so the action must not modify the set.
+		 *
+		 * @param action The receiver of the keys.
+		 */
+		public void forEach( Consumer action ) {
+			if( _count() == 0 ) return;
+			for( int i = 0; i < _lo_Size; i++ )
+				action.accept( keys[ i ] );
+			for( int i = keys.length - _hi_Size; i < keys.length; i++ )
+				action.accept( keys[ i ] );
+		}
+		
+		/**
+		 * Passes the keys to the predicate, in the order of {@link #forEach(Consumer)}, until it returns {@code false}.
+		 *
+		 * @param predicate The test of the keys.
+		 * @return {@code true} if the predicate accepted every key, {@code false} if it stopped the iteration.
+		 */
+		public boolean forEachWhile( Predicate predicate ) {
+			if( _count() == 0 ) return true;
+			for( int i = 0; i < _lo_Size; i++ )
+				if( !predicate.test( keys[ i ] ) ) return false;
+			for( int i = keys.length - _hi_Size; i < keys.length; i++ )
+				if( !predicate.test( keys[ i ] ) ) return false;
+			return true;
+		}
+		
 		/**
 		 * Creates and returns a deep copy of this set. The internal arrays are cloned,
 		 * making the new set independent of the original.
@@ -461,7 +599,7 @@ public interface LongSet {
 		 * @param hash The hash code of a key.
 		 * @return The index in the {@code _buckets} array.
 		 */
-		protected int bucketIndex( int hash ) { return ( hash & 0x7FFF_FFFF ) % _buckets.length; }
+		protected int bucketIndex( int hash ) { return Array.mod( hash & 0x7FFF_FFFF, _bucketsMultiplier, _buckets.length ); }
 		
 		/**
 		 * Packs an internal array index and the current set version into a single `long` token.
@@ -495,6 +633,29 @@ public interface LongSet {
 	 * and managing its capacity.
 	 */
 	class RW extends R {
+		
+		/**
+		 * The length of a collision chain that, when exceeded during an insertion, triggers a rehash
+		 * with the strategy supplied by {@link #forceNewHashCodes}.
+		 */
+		protected static final int                        HashCollisionThreshold = 100;
+		/**
+		 * An optional function that, when set, provides a new key hashing strategy once an insertion walks a
+		 * collision chain longer than {@link #HashCollisionThreshold}, e.g. {@code h -> Array.Hash.random()}.
+		 * This counters hash-flooding with keys crafted against the current strategy.
+		 */
+		public                Function< Array.Hash, Array.Hash > forceNewHashCodes      = null;
+		
+		/**
+		 * Replaces the strategy used to hash keys into buckets and redistributes the current entries under it.
+		 * This is a structural modification that invalidates all outstanding tokens.
+		 *
+		 * @param hash_K The new key hashing strategy, e.g. {@link Array.Hash#MURMUR} or {@link Array.Hash#random()}.
+		 */
+		public void hash_K( Array.Hash hash_K ) {
+			this.hash_K = hash_K;
+			if( _buckets != null ) resize( keys.length );
+		}
 		/**
 		 * A threshold related to capacity management. In this implementation, it does not trigger
 		 * a strategy change, as only the dual-region hash set is implemented.
@@ -526,6 +687,7 @@ public interface LongSet {
 			_version++;
 			
 			_buckets = new int[ capacity ];
+			_bucketsMultiplier = Array.modMultiplier( capacity );
 			if( links == null ) links = Array.EqualHashOf._ints.O;
 			keys     = new long[ capacity ];
 			_lo_Size = 0;
@@ -564,14 +726,15 @@ public interface LongSet {
 			if( _buckets == null ) initialize( 7 );
 			else if( _count() == keys.length ) resize( Array.prime( keys.length * 2 ) );
 			
-			int bucketIndex = bucketIndex( Array.hash( key ) );
+			int bucketIndex = bucketIndex( hash_K.hash( key ) );
 			int index       = _buckets[ bucketIndex ] - 1;
 			int dst_index;
 			
 			if( index == -1 )
 				dst_index = keys.length - 1 - _hi_Size++;
 			else {
-				for( int i = index, collisions = 0; ; ) {
+				int collisions = 0;
+				for( int i = index; ; ) {
 					if( keys[ i ] == key ) {
 						_version++;
 						return false;
@@ -582,6 +745,14 @@ public interface LongSet {
 					if( _lo_Size + 1 < collisions++ ) throw new ConcurrentModificationException( "Concurrent operations not supported." );
 				}
 				
+				if( HashCollisionThreshold < collisions && forceNewHashCodes != null ) {
+					Array.Hash hash = forceNewHashCodes.apply( hash_K );
+					if( hash != hash_K ) {
+						hash_K( hash );
+						return add( key );
+					}
+				}
+				
 				( links.length == ( dst_index = _lo_Size++ ) ?
 				  links = Arrays.copyOf( links, Math.max( 16, Math.min( _lo_Size * 2, keys.length ) ) ) :
 				  links )[ dst_index ] = index; // New entry points to the old head
@@ -632,7 +803,7 @@ public interface LongSet {
 		 */
 		private void move( int src, int dst ) {
 			if( src == dst ) return;
-			int bucketIndex = bucketIndex( Array.hash( keys[ src ] ) );
+			int bucketIndex = bucketIndex( hash_K.hash( keys[ src ] ) );
 			int index       = _buckets[ bucketIndex ] - 1;
 			
 			if( index == src ) _buckets[ bucketIndex ] = ( int ) ( dst + 1 );
@@ -662,7 +833,7 @@ public interface LongSet {
 		 */
 		public boolean remove( long key ) {
 			if( _count() == 0 ) return false;
-			int removeBucketIndex = bucketIndex( Array.hash( key ) );
+			int removeBucketIndex = bucketIndex( hash_K.hash( key ) );
 			int removeIndex       = _buckets[ removeBucketIndex ] - 1;
 			if( removeIndex < 0 ) return false;
 			
@@ -744,6 +915,106 @@ public interface LongSet {
 		}
 		
 		
+		/**
+		 * Adds every key of {@code src} to this set, the null key included.
+		 * The keys of {@code src} are walked directly, without the version checks of token iteration.
+		 *
+		 * @param src the set whose keys are added.
+		 * @return This set.
+		 */
+		public RW addAll( R src ) {
+			if( src == this || src == null ) return this;
+			if( src.hasNullKey ) addNullKey();
+			if( src._count() == 0 ) return this;
+			
+			ensureCapacity( Math.max( _count(), src._count() ) );
+			for( int token = -1; ( token = src.unsafe_token( token ) ) != -1; )
+			     add( ( long ) ( src.keys[ token ] ) );
+			return this;
+		}
+		
+		/**
+		 * Removes every key of {@code src} from this set, the null key included.
+		 * The smaller set is walked: the keys of {@code src} are removed directly, or the keys of this set are looked up in {@code src}.
+		 *
+		 * @param src the set whose keys are removed.
+		 * @return {@code true} if this set changed.
+		 */
+		public boolean removeAll( R src ) {
+			if( src == null ) return false;
+			if( src == this ) {
+				boolean modified = !isEmpty();
+				clear();
+				return modified;
+			}
+			
+			boolean modified = src.hasNullKey && removeNullKey();
+			if( _count() == 0 || src._count() == 0 ) return modified;
+			if( _count() <= src._count() ) return removeIf( src, true ) || modified;
+			
+			for( int token = -1; ( token = src.unsafe_token( token ) ) != -1; )
+				if( remove( ( long ) ( src.keys[ token ] ) ) ) modified = true;
+			return modified;
+		}
+		
+		/**
+		 * Retains only the keys of this set that are also in {@code src}, the null key included; a {@code null} {@code src}
+		 * clears the set. The smaller set is walked: the keys of this set are looked up in {@code src}, or the keys of
+		 * {@code src} found in this set are collected and this set is refilled with them.
+		 *
+		 * @param src the set whose keys are retained.
+		 * @return {@code true} if this set changed.
+		 */
+		public boolean retainAll( R src ) {
+			if( src == this ) return false;
+			if( src == null ) {
+				boolean modified = !isEmpty();
+				clear();
+				return modified;
+			}
+			
+			boolean modified = hasNullKey && !src.hasNullKey && removeNullKey();
+			if( _count() <= src._count() ) return removeIf( src, false ) || modified;
+			
+			long[] kept = new long[ src._count() ]; // fewer keys than this set has, so it shrinks
+			int    n    = 0;
+			for( int token = -1; ( token = src.unsafe_token( token ) ) != -1; )
+				if( contains( ( long ) ( src.keys[ token ] ) ) ) kept[ n++ ] = src.keys[ token ];
+			
+			boolean nullKey = hasNullKey;
+			clear();
+			hasNullKey = nullKey;
+			for( int i = 0; i < n; i++ ) add( ( long ) ( kept[ i ] ) );
+			return true;
+		}
+		
+		/**
+		 * Removes the non-null keys whose presence in {@code src} is {@code present}. The keys are collected first and
+		 * removed after the walk, as every removal moves another entry into the vacated slot.
+		 */
+		private boolean removeIf( R src, boolean present ) {
+			if( _count() == 0 ) return false;
+			
+			long[] doomed = new long[ 16 ];
+			int   n      = 0;
+			for( int token = -1; ( token = unsafe_token( token ) ) != -1; )
+				if( src.contains( ( long ) ( keys[ token ] ) ) == present ) {
+					if( n == doomed.length ) doomed = Arrays.copyOf( doomed, n * 2 );
+					doomed[ n++ ] = keys[ token ];
+				}
+			if( n == 0 ) return false;
+			
+			if( n == _count() ) {
+				boolean nullKey = hasNullKey;
+				clear();
+				hasNullKey = nullKey;
+				return true;
+			}
+			for( int i = 0; i < n; i++ ) remove( ( long ) ( doomed[ i ] ) );
+			return true;
+		}
+		
+		
 		/**
 		 * Returns an array containing all of the primitive keys in this set.
 		 * If the set contains the null key, it will be represented by `null_substitute`.
@@ -843,7 +1114,7 @@ public interface LongSet {
 		 * @param key The primitive key to copy.
 		 */
 		private void copy( long key ) {
-			int bucketIndex = bucketIndex( Array.hash( key ) );
+			int bucketIndex = bucketIndex( hash_K.hash( key ) );
 			int index       = _buckets[ bucketIndex ] - 1;
 			
 			int dst_index;
@@ -852,7 +1123,7 @@ public interface LongSet {
 				dst_index = keys.length - 1 - _hi_Size++;
 			else ( links.length == _lo_Size ?
 				  links = Arrays.copyOf( links, Math.max( 16, Math.min( _lo_Size * 2, keys.length ) ) ) :
-				  links )[ dst_index = _lo_Size++ ] = ( char ) ( index );
+				  links )[ dst_index = _lo_Size++ ] = index;
 			
 			keys[ dst_index ]       = ( long ) key;
 			_buckets[ bucketIndex ] = ( int ) ( dst_index + 1 );
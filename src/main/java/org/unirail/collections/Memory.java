@@ -0,0 +1,201 @@
+// Copyright 2025 Chikirev Sirguy, Unirail Group
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+// For inquiries, please contact: al8v5C6HU4UtqE9@gmail.com
+// GitHub Repository: https://github.com/AdHoc-Protocol
+
+package org.unirail.collections;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A block of native memory outside the Java heap, used by the {@code OffHeap} map engines such as {@link LongLongMap.OffHeap}.
+ * <p>
+ * A block is a series of direct {@link ByteBuffer} chunks of {@code 1 << CHUNK_SHIFT} bytes in the native byte order,
+ * since a single buffer cannot exceed 2 GB. A block is used as one array of {@code int}s or of {@code long}s, so no
+ * element crosses a chunk boundary. New blocks are zeroed. {@code null} stands for no block and is accepted by
+ * {@link #free(Memory)}, {@link #reallocate(Memory, long)} and {@link #copy(Memory, long)}.
+ * <p>
+ * All live blocks together are bounded by {@code -XX:MaxDirectMemorySize}, which defaults to the maximum heap size.
+ * {@link #free(Memory)} releases a block at once through the cleaner of its buffers, reached with
+ * {@code sun.misc.Unsafe.invokeCleaner} of the {@code jdk.unsupported} module; where that is not available, the
+ * garbage collector releases the block once it is no longer referenced.
+ */
+final class Memory {
+	
+	/**
+	 * {@code sun.misc.Unsafe.invokeCleaner( ByteBuffer )} bound to the {@code Unsafe} instance, or {@code null}. Looked
+	 * up by reflection so that the build does not depend on the internal API.
+	 */
+	private static final MethodHandle INVOKE_CLEANER;
+	
+	static {
+		MethodHandle handle = null;
+		try {
+			Class< ? > unsafe = Class.forName( "sun.misc.Unsafe" );
+			Field      field  = unsafe.getDeclaredField( "theUnsafe" );
+			field.setAccessible( true );
+			handle = MethodHandles.lookup()
+			                      .findVirtual( unsafe, "invokeCleaner", MethodType.methodType( void.class, ByteBuffer.class ) )
+			                      .bindTo( field.get( null ) );
+		} catch( ReflectiveOperationException | RuntimeException e ) {
+			// no jdk.unsupported: blocks are left to the garbage collector
+		}
+		INVOKE_CLEANER = handle;
+	}
+	
+	private static final int CHUNK_SHIFT = 30;
+	
+	private static final long CHUNK_MASK = ( 1L << CHUNK_SHIFT ) - 1;
+	
+	/**
+	 * Zeros copied by {@link #clear(Memory, long)}.
+	 */
+	private static final ByteBuffer ZEROS = ByteBuffer.allocateDirect( 1 << 16 );
+	
+	/**
+	 * The chunks, all but the last {@code 1 << CHUNK_SHIFT} bytes long.
+	 */
+	private final ByteBuffer[] chunks;
+	
+	private Memory( long bytes ) {
+		chunks = new ByteBuffer[ ( int ) ( bytes + CHUNK_MASK >>> CHUNK_SHIFT ) ];
+		for( int i = 0; i < chunks.length; i++ )
+			chunks[ i ] = ByteBuffer.allocateDirect( ( int ) Math.min( CHUNK_MASK + 1, bytes - ( ( long ) i << CHUNK_SHIFT ) ) ).order( ByteOrder.nativeOrder() );
+	}
+	
+	/**
+	 * Allocates a zeroed block.
+	 *
+	 * @param bytes The size of the block in bytes.
+	 * @return The block, or {@code null} if {@code bytes} is {@code 0}.
+	 * @throws OutOfMemoryError if the direct memory limit is reached.
+	 */
+	static Memory allocate( long bytes ) {
+		return bytes == 0 ?
+		       null :
+		       new Memory( bytes );
+	}
+	
+	/**
+	 * Returns a block of a new size with the content of the given one up to the smaller of the two sizes, and releases
+	 * the given one. Bytes past the old size are zero.
+	 *
+	 * @param block The block, or {@code null} to allocate a new one.
+	 * @param bytes The new size in bytes.
+	 * @return The new block, or {@code null} if {@code bytes} is {@code 0}.
+	 */
+	static Memory reallocate( Memory block, long bytes ) {
+		Memory dst = allocate( bytes );
+		if( block != null && dst != null ) copy( block, dst, Math.min( block.bytes(), bytes ) );
+		free( block );
+		return dst;
+	}
+	
+	/**
+	 * Releases the native memory of a block at once. The block must not be used afterwards; its accessors then throw
+	 * {@link NullPointerException}.
+	 *
+	 * @param block The block, or {@code null}.
+	 */
+	static void free( Memory block ) {
+		if( block == null ) return;
+		for( int i = 0; i < block.chunks.length; i++ ) {
+			ByteBuffer chunk = block.chunks[ i ];
+			block.chunks[ i ] = null;
+			unmap( chunk );
+		}
+	}
+	
+	/**
+	 * Releases the native memory or the mapping of a direct buffer at once, if the runtime allows it. The buffer must
+	 * not be used afterwards.
+	 *
+	 * @param buffer A buffer from {@link ByteBuffer#allocateDirect(int)} or {@code FileChannel.map}, not a slice or a
+	 *               duplicate, or {@code null}.
+	 */
+	static void unmap( ByteBuffer buffer ) {
+		if( buffer == null || INVOKE_CLEANER == null ) return;
+		try {
+			INVOKE_CLEANER.invokeExact( buffer );
+		} catch( RuntimeException | Error e ) {
+			throw e;
+		} catch( Throwable e ) {
+			throw new IllegalStateException( e );
+		}
+	}
+	
+	/**
+	 * Returns a new block with the same content as the first {@code bytes} bytes of the given one.
+	 *
+	 * @param block The block to copy, or {@code null}.
+	 * @param bytes The number of bytes to copy.
+	 * @return The copy, or {@code null} if {@code block} is {@code null} or {@code bytes} is {@code 0}.
+	 */
+	static Memory copy( Memory block, long bytes ) {
+		if( block == null || bytes == 0 ) return null;
+		Memory dst = new Memory( bytes );
+		copy( block, dst, bytes );
+		return dst;
+	}
+	
+	private static void copy( Memory src, Memory dst, long bytes ) {
+		for( int i = 0; ( long ) i << CHUNK_SHIFT < bytes; i++ )
+			dst.chunks[ i ].put( 0, src.chunks[ i ], 0, ( int ) Math.min( CHUNK_MASK + 1, bytes - ( ( long ) i << CHUNK_SHIFT ) ) );
+	}
+	
+	/**
+	 * Returns the size of a block in bytes.
+	 */
+	private long bytes() { return ( ( long ) chunks.length - 1 << CHUNK_SHIFT ) + chunks[ chunks.length - 1 ].capacity(); }
+	
+	/**
+	 * Sets the first {@code bytes} bytes of a block to {@code 0}.
+	 *
+	 * @param block The block.
+	 * @param bytes The number of bytes to clear.
+	 */
+	static void clear( Memory block, long bytes ) {
+		for( long position = 0; position < bytes; ) {
+			int n = ( int ) Math.min( ZEROS.capacity(), Math.min( bytes - position, ( CHUNK_MASK + 1 ) - ( position & CHUNK_MASK ) ) );
+			block.chunks[ ( int ) ( position >>> CHUNK_SHIFT ) ].put( ( int ) ( position & CHUNK_MASK ), ZEROS, 0, n );
+			position += n;
+		}
+	}
+	
+	/**
+	 * Reads element {@code index} of a block viewed as an {@code int} array.
+	 */
+	static int getInt( Memory block, int index ) { return block.chunks[ index >>> CHUNK_SHIFT - 2 ].getInt( index << 2 & ( int ) CHUNK_MASK ); }
+	
+	/**
+	 * Writes element {@code index} of a block viewed as an {@code int} array.
+	 */
+	static void putInt( Memory block, int index, int value ) { block.chunks[ index >>> CHUNK_SHIFT - 2 ].putInt( index << 2 & ( int ) CHUNK_MASK, value ); }
+	
+	/**
+	 * Reads element {@code index} of a block viewed as a {@code long} array.
+	 */
+	static long getLong( Memory block, int index ) { return block.chunks[ index >>> CHUNK_SHIFT - 3 ].getLong( index << 3 & ( int ) CHUNK_MASK ); }
+	
+	/**
+	 * Writes element {@code index} of a block viewed as a {@code long} array.
+	 */
+	static void putLong( Memory block, int index, long value ) { block.chunks[ index >>> CHUNK_SHIFT - 3 ].putLong( index << 3 & ( int ) CHUNK_MASK, value ); }
+}
@@ -20,7 +20,10 @@ import org.unirail.JsonWriter;
 
 import java.util.Arrays;
 import java.util.ConcurrentModificationException;
+import java.util.Spliterator;
 import java.util.function.Function;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
 
 /**
  * A generic, high-performance map that stores object keys and memory-efficient, bit-packed integer values.
@@ -50,6 +53,38 @@ import java.util.function.Function;
  */
 public interface ObjectBitsMap {
 	
+	/**
+	 * Receives the entries visited by {@link R#forEach(Consumer)}.
+	 */
+	@FunctionalInterface
+	interface Consumer< K > {
+		void accept( K key, byte value );
+	}
+	
+	/**
+	 * Tests the entries visited by {@link R#forEachWhile(Predicate)}.
+	 */
+	@FunctionalInterface
+	interface Predicate< K > {
+		boolean test( K key, byte value );
+	}
+	
+	/**
+	 * Receives the keys visited by {@link R#forEachKey(KeyConsumer)}.
+	 */
+	@FunctionalInterface
+	interface KeyConsumer< K > {
+		void accept( K key );
+	}
+	
+	/**
+	 * Receives the values visited by {@link R#forEachValue(ValueConsumer)}.
+	 */
+	@FunctionalInterface
+	interface ValueConsumer {
+		void accept( byte value );
+	}
+	
 	/**
 	 * A read-only base class that provides the core data structures and access methods for the map.
 	 * It manages the internal arrays, state, and the token-based iteration system.
@@ -70,6 +105,11 @@ public interface ObjectBitsMap {
 		 * An index of 0 indicates an empty bucket.
 		 */
 		protected int[]       _buckets;
+		/**
+		 * The {@link Array#modMultiplier(int)} of {@code _buckets.length}, used by {@link #bucketIndex(int)}
+		 * to reduce hashes to bucket indices without an integer division.
+		 */
+		protected long        _bucketsMultiplier;
 		/**
 		 * An array storing the cached hash code for each corresponding key in the {@link #keys} array.
 		 */
@@ -360,6 +400,89 @@ public interface ObjectBitsMap {
 			       values.get( index( token ) ); // Handle null key value
 		}
 		
+		/**
+		 * Returns a spliterator over the values of the map, the value of the null key excluded. It splits the occupied
+		 * slots of the {@code lo Region} and {@code hi Region} in halves, as if they were one array, and reports
+		 * {@code SIZED}, {@code SUBSIZED} and {@code NONNULL}. The map must not be modified while it is in use.
+		 *
+		 * @return A spliterator over the values.
+		 */
+		public Spliterator.OfInt valuesSpliterator() {
+			int lo  = _lo_Size;
+			int gap = _count() == 0 ?
+			          0 :
+			          keys.length - _hi_Size - lo; // skips the free slots between the regions
+			return new Array.IntSpliterator( 0, _count(), Spliterator.NONNULL, i -> value( i < lo ? i : i + gap ) );
+		}
+		
+		/**
+		 * Returns a sequential {@link IntStream} over the values of the map, the value of the null key excluded, without
+		 * boxing. Call {@code parallel()} on it to run it on the common fork-join pool. The map must not be modified while
+		 * the stream is in use.
+		 *
+		 * @return A stream over the values.
+		 */
+		public IntStream values() { return StreamSupport.intStream( valuesSpliterator(), false ); }
+		
+		/**
+		 * Passes every entry to the action, the null key first. Loops directly over the lo and hi regions of the key and
+		 * value arrays, without tokens or version checks, so the action must not modify the map.
+		 *
+		 * @param action The receiver of the entries.
+		 */
+		public void forEach( Consumer< ? super K > action ) {
+			if( hasNullKey() ) action.accept( null, nullKeyValue );
+			if( _count() == 0 ) return;
+			for( int i = 0; i < _lo_Size; i++ )
+				action.accept( keys[ i ], values.get( i ) );
+			for( int i = keys.length - _hi_Size; i < keys.length; i++ )
+				action.accept( keys[ i ], values.get( i ) );
+		}
+		
+		/**
+		 * Passes every key to the action, the null key first, in the order of {@link #forEach(Consumer)}.
+		 *
+		 * @param action The receiver of the keys.
+		 */
+		public void forEachKey( KeyConsumer< ? super K > action ) {
+			if( hasNullKey() ) action.accept( null );
+			if( _count() == 0 ) return;
+			for( int i = 0; i < _lo_Size; i++ )
+				action.accept( keys[ i ] );
+			for( int i = keys.length - _hi_Size; i < keys.length; i++ )
+				action.accept( keys[ i ] );
+		}
+		
+		/**
+		 * Passes every value to the action, the null key first, in the order of {@link #forEach(Consumer)}.
+		 *
+		 * @param action The receiver of the values.
+		 */
+		public void forEachValue( ValueConsumer action ) {
+			if( hasNullKey() ) action.accept( nullKeyValue );
+			if( _count() == 0 ) return;
+			for( int i = 0; i < _lo_Size; i++ )
+				action.accept( values.get( i ) );
+			for( int i = keys.length - _hi_Size; i < keys.length; i++ )
+				action.accept( values.get( i ) );
+		}
+		
+		/**
+		 * Passes the entries to the predicate, in the order of {@link #forEach(Consumer)}, until it returns {@code false}.
+		 *
+		 * @param predicate The test of the entries.
+		 * @return {@code true} if the predicate accepted every entry, {@code false} if it stopped the iteration.
+		 */
+		public boolean forEachWhile( Predicate< ? super K > predicate ) {
+			if( hasNullKey() && !predicate.test( null, nullKeyValue ) ) return false;
+			if( _count() == 0 ) return true;
+			for( int i = 0; i < _lo_Size; i++ )
+				if( !predicate.test( keys[ i ], values.get( i ) ) ) return false;
+			for( int i = keys.length - _hi_Size; i < keys.length; i++ )
+				if( !predicate.test( keys[ i ], values.get( i ) ) ) return false;
+			return true;
+		}
+		
 		/**
 		 * Computes the hash code for this map. The hash code is derived from the hash codes
 		 * of its key-value pairs.
@@ -501,7 +624,7 @@ public interface ObjectBitsMap {
 		 * @param hash The hash code.
 		 * @return The index in the {@link #_buckets} array.
 		 */
-		protected int bucketIndex( int hash ) { return ( hash & 0x7FFF_FFFF ) % _buckets.length; } // Ensure positive index within bucket array bounds
+		protected int bucketIndex( int hash ) { return Array.mod( hash & 0x7FFF_FFFF, _bucketsMultiplier, _buckets.length ); } // Ensure positive index within bucket array bounds
 		
 		/**
 		 * Creates a fail-fast token from an internal index and the current version.
@@ -926,6 +1049,7 @@ public interface ObjectBitsMap {
 		private int initialize( int capacity ) {
 			_version++;
 			_buckets = new int[ capacity ];     // Initialize buckets array
+			_bucketsMultiplier = Array.modMultiplier( capacity );
 			hash     = new int[ capacity ];     // Initialize hash array
 			_lo_Size = 0;
 			_hi_Size = 0;
@@ -951,7 +1075,7 @@ public interface ObjectBitsMap {
 				dst_index = keys.length - 1 - _hi_Size++;
 			else ( links.length == _lo_Size ?
 				  links = Arrays.copyOf( links, Math.max( 16, Math.min( _lo_Size * 2, keys.length ) ) ) :
-				  links )[ dst_index = _lo_Size++ ] = ( char ) ( index );
+				  links )[ dst_index = _lo_Size++ ] = index;
 			
 			keys[ dst_index ]      = key; // Store the key
 			this.hash[ dst_index ] = hash; // Store the hash
@@ -51,11 +51,24 @@ import java.util.function.Function;
  */
 public interface ObjectDoubleNullMap {
 	
+	/**
+	 * Receives the keys visited by {@link R#forEachKey(KeyConsumer)}.
+	 */
+	@FunctionalInterface
+	interface KeyConsumer< K > {
+		void accept( K key );
+	}
+	
 	abstract class R< K > implements JsonWriter.Source, Cloneable {
 		protected boolean                hasNullKey;
 		protected boolean                nullKeyHasValue;
 		protected double            nullKeyValue;
 		protected int[]                  _buckets;
+		/**
+		 * The {@link Array#modMultiplier(int)} of {@code _buckets.length}, used by {@link #bucketIndex(int)}
+		 * to reduce hashes to bucket indices without an integer division.
+		 */
+		protected long                   _bucketsMultiplier;
 		protected int[]                  hash; // Replaced hash_nexts
 		protected int[]                  links = Array.EqualHashOf._ints.O; // Replaced hash_nexts
 		protected K[]                    keys;
@@ -368,6 +381,21 @@ public interface ObjectDoubleNullMap {
 			                    values.get( index( token ) ) );
 		}
 		
+		/**
+		 * Passes every key to the action, the null key first. Loops directly over the lo and hi regions of the key array,
+		 * without tokens or version checks, so the action must not modify the map.
+		 *
+		 * @param action The receiver of the keys.
+		 */
+		public void forEachKey( KeyConsumer< ? super K > action ) {
+			if( hasNullKey() ) action.accept( null );
+			if( _count() == 0 ) return;
+			for( int i = 0; i < _lo_Size; i++ )
+				action.accept( keys[ i ] );
+			for( int i = keys.length - _hi_Size; i < keys.length; i++ )
+				action.accept( keys[ i ] );
+		}
+		
 		@Override
 		public int hashCode() {
 			int a = 0, b = 0, c = 1;
@@ -502,7 +530,7 @@ public interface ObjectDoubleNullMap {
 			}
 		}
 		
-		protected int bucketIndex( int hash ) { return ( hash & 0x7FFF_FFFF ) % _buckets.length; }
+		protected int bucketIndex( int hash ) { return Array.mod( hash & 0x7FFF_FFFF, _bucketsMultiplier, _buckets.length ); }
 		
 		// Removed hash(long) and next(long) as hash_nexts is gone
 		
@@ -936,6 +964,7 @@ public interface ObjectDoubleNullMap {
 		private int initialize( int capacity ) {
 			_version++;
 			_buckets = new int[ capacity ];     // Initialize buckets array
+			_bucketsMultiplier = Array.modMultiplier( capacity );
 			hash     = new int[ capacity ];     // Initialize hash array
 			keys     = equal_hash_K.copyOf( null, capacity ); // Initialize keys array
 			values   = new DoubleNullList.RW( capacity, values == null ?
@@ -968,7 +997,7 @@ public interface ObjectDoubleNullMap {
 				dst_index = keys.length - 1 - _hi_Size++;
 			else ( links.length == _lo_Size ?
 			       links = Arrays.copyOf( links, Math.max( 16, Math.min( _lo_Size * 2, keys.length ) ) ) :
-			       links )[ dst_index = _lo_Size++ ] = ( char ) ( index );
+			       links )[ dst_index = _lo_Size++ ] = index;
 			
 			keys[ dst_index ]      = key; // Store the key
 			this.hash[ dst_index ] = hash; // Store the hash
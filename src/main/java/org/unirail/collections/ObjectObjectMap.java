@@ -58,6 +58,11 @@ public interface ObjectObjectMap {
 		 * indicates an empty bucket.
 		 */
 		protected int[] _buckets;
+		/**
+		 * The {@link Array#modMultiplier(int)} of {@code _buckets.length}, used by {@link #bucketIndex(int)}
+		 * to reduce hashes to bucket indices without an integer division.
+		 */
+		protected long  _bucketsMultiplier;
 		
 		/**
 		 * An array storing the cached hash code for each entry, parallel to the {@link #keys} array.
@@ -589,7 +594,7 @@ public interface ObjectObjectMap {
 		 * @param hash The hash code of the key.
 		 * @return The corresponding bucket index in the {@link #_buckets} array.
 		 */
-		protected int bucketIndex( int hash ) { return ( hash & 0x7FFF_FFFF ) % _buckets.length; }
+		protected int bucketIndex( int hash ) { return Array.mod( hash & 0x7FFF_FFFF, _bucketsMultiplier, _buckets.length ); }
 		
 		/**
 		 * Creates a token from an entry index and the current map version.
@@ -1732,6 +1737,7 @@ public interface ObjectObjectMap {
 		private int initialize( int capacity ) {
 			_version++;
 			_buckets = new int[ capacity ];
+			_bucketsMultiplier = Array.modMultiplier( capacity );
 			hash     = new int[ capacity ]; // Initialize hash array
 			keys     = equal_hash_K.copyOf( null, capacity );
 			values   = equal_hash_V.copyOf( null, capacity ); // Initialize values array
@@ -1759,7 +1765,7 @@ public interface ObjectObjectMap {
 				dst_index = keys.length - 1 - _hi_Size++;
 			else ( links.length == _lo_Size ?
 				  links = Arrays.copyOf( links, Math.max( 16, Math.min( _lo_Size * 2, keys.length ) ) ) :
-				  links )[ dst_index = _lo_Size++ ] = ( char ) ( index );
+				  links )[ dst_index = _lo_Size++ ] = index;
 			
 			keys[ dst_index ]       = key; // Store the key
 			this.hash[ dst_index ]  = hash; // Store the hash
@@ -66,6 +66,7 @@ public interface ObjectSet {
 	abstract class R< K > implements java.util.Set< K >, JsonWriter.Source, Cloneable {
 		protected boolean hasNullKey;    // True if the set contains a null key
 		protected int[]   _buckets;       // Hash table buckets (1-based indices to chain heads). Stores 0-based indices plus one.
+		protected long    _bucketsMultiplier;  // Precomputed Array.modMultiplier( _buckets.length ) for division-free bucket indexing.
 		protected int[]   hash;           // Stores hash codes for each entry.
 		protected int[]   links = Array.EqualHashOf._ints.O;          // Stores the 'next' index in collision chains (0-based indices).
 		protected K[]     keys;             // Set elements (keys)
@@ -401,7 +402,7 @@ public interface ObjectSet {
 		 * @param hash The hash code.
 		 * @return The bucket index.
 		 */
-		protected int bucketIndex( int hash ) { return ( hash & 0x7FFF_FFFF ) % _buckets.length; }
+		protected int bucketIndex( int hash ) { return Array.mod( hash & 0x7FFF_FFFF, _bucketsMultiplier, _buckets.length ); }
 		
 		/**
 		 * Creates a token from an index.
@@ -875,6 +876,7 @@ public interface ObjectSet {
 		private int initialize( int capacity ) {
 			_version++;
 			_buckets = new int[ capacity ];
+			_bucketsMultiplier = Array.modMultiplier( capacity );
 			hash     = new int[ capacity ];
 			keys     = equal_hash_K.copyOf( null, capacity );
 			_lo_Size = 0;
@@ -950,7 +952,7 @@ public interface ObjectSet {
 			if( index == -1 ) dst_index = keys.length - 1 - _hi_Size++;
 			else ( links.length == _lo_Size ?
 			       links = Arrays.copyOf( links, Math.max( 16, Math.min( _lo_Size * 2, keys.length ) ) ) :
-			       links )[ dst_index = _lo_Size++ ] = ( char ) ( index );
+			       links )[ dst_index = _lo_Size++ ] = index;
 			
 			keys[ dst_index ]       = key; // Store the key
 			this.hash[ dst_index ]  = hash; // Store the hash
@@ -19,6 +19,10 @@ package org.unirail.collections;
 
 import org.unirail.JsonWriter;
 
+import java.util.Spliterator;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
 /**
  * {@code ByteSet} interface defines the contract for a set that efficiently stores byte values.
  * Implementations of this interface are designed to be memory-compact and optimized for byte data.
@@ -26,6 +30,22 @@ import org.unirail.JsonWriter;
  */
 public interface UByteSet {
 	
+	/**
+	 * Receives the keys visited by {@link R#forEach(Consumer)}.
+	 */
+	@FunctionalInterface
+	interface Consumer {
+		void accept( char key );
+	}
+	
+	/**
+	 * Tests the keys visited by {@link R#forEachWhile(Predicate)}.
+	 */
+	@FunctionalInterface
+	interface Predicate {
+		boolean test( char key );
+	}
+	
 	
 	/**
 	 * {@code R} is an abstract base class that provides a common implementation for {@code ByteSet} interfaces.
@@ -208,6 +228,68 @@ public interface UByteSet {
 			       ( bits[ 3 ] & ( b = subset.bits[ 3 ] ) ) == b;
 		}
 		
+		/**
+		 * Checks if this set and another {@code UByteSet.R} set share at least one element, the null key included.
+		 *
+		 * @param other The {@code UByteSet.R} set to check against.
+		 * @return {@code true} if the intersection of the two sets is not empty, {@code false} otherwise.
+		 */
+		public boolean intersects( R other ) {
+			return other != null &&
+			       ( hasNullKey && other.hasNullKey ||
+			         ( bits[ 0 ] & other.bits[ 0 ] ) != 0 ||
+			         ( bits[ 1 ] & other.bits[ 1 ] ) != 0 ||
+			         ( bits[ 2 ] & other.bits[ 2 ] ) != 0 ||
+			         ( bits[ 3 ] & other.bits[ 3 ] ) != 0 );
+		}
+		
+		/**
+		 * Returns a spliterator over the keys of the set in ascending bit order, the null key excluded; check
+		 * {@link #hasNullKey()}. It walks the set bits with {@link #unsafe_token(int)} and reports {@code DISTINCT},
+		 * {@code SIZED}, {@code SUBSIZED} and {@code NONNULL}. The set must not be modified while it is in use.
+		 *
+		 * @return A spliterator over the keys.
+		 */
+		public Spliterator.OfInt spliterator() { return Array.spliterator( cardinality, this::unsafe_token, this::key ); }
+		
+		/**
+		 * Returns a sequential {@link IntStream} over the keys of the set, the null key excluded, without boxing.
+		 *
+		 * @return A stream over the keys.
+		 */
+		public IntStream stream() { return StreamSupport.intStream( spliterator(), false ); }
+		
+		/**
+		 * Returns a parallel {@link IntStream} over the keys of the set, the null key excluded, which runs on the common
+		 * fork-join pool.
+		 *
+		 * @return A parallel stream over the keys.
+		 */
+		public IntStream parallelStream() { return StreamSupport.intStream( spliterator(), true ); }
+		
+		/**
+		 * Passes every key to the action, the null key excluded. Loops directly over the key bits, without tokens or
+		 * version checks, so the action must not modify the set.
+		 *
+		 * @param action The receiver of the keys.
+		 */
+		public void forEach( Consumer action ) {
+			for( int key = -1; ( key = next1( key ) ) != -1; )
+				action.accept( ( char ) key );
+		}
+		
+		/**
+		 * Passes the keys to the predicate, in the order of {@link #forEach(Consumer)}, until it returns {@code false}.
+		 *
+		 * @param predicate The test of the keys.
+		 * @return {@code true} if the predicate accepted every key, {@code false} if it stopped the iteration.
+		 */
+		public boolean forEachWhile( Predicate predicate ) {
+			for( int key = -1; ( key = next1( key ) ) != -1; )
+				if( !predicate.test( ( char ) key ) ) return false;
+			return true;
+		}
+		
 		/**
 		 * Generates a hash code for this {@code ByteSet.R}.
 		 * The hash code is calculated based on the bitset representation and the presence of a null key, ensuring that sets with the same elements have the same hash code.
@@ -409,12 +491,18 @@ public interface UByteSet {
 		
 		/**
 		 * Retains only the elements in this set that are also present in the specified source set.
-		 * In other words, this operation performs an intersection with the source set.
+		 * In other words, this operation performs an intersection with the source set; a {@code null} source set clears
+		 * this set.
 		 *
 		 * @param src The source {@code ByteSet.R} set to retain elements from.
 		 * @return {@code true} if this set was modified as a result of this operation, {@code false} otherwise.
 		 */
 		public boolean retainAll( R src ) {
+			if( src == null ) {
+				boolean modified = !isEmpty();
+				clear();
+				return modified;
+			}
 			boolean modified = false; // Flag to track if any modification occurred.
 			long    _0, _1, _2, _3, b;
 			
@@ -454,12 +542,13 @@ public interface UByteSet {
 		
 		/**
 		 * Adds all elements from the specified source set to this set.
-		 * This operation performs a union with the source set.
+		 * This operation performs a union with the source set; a {@code null} source set is ignored.
 		 *
 		 * @param src The source {@code ByteSet.R} set to add elements from.
 		 * @return This {@code RW} instance after adding all elements from the source set.
 		 */
 		public RW addAll( R src ) {
+			if( src == null ) return this;
 			boolean modified = false; // Flag to track if any modification occurred.
 			long    _0, _1, _2, _3, b;
 			
@@ -496,6 +585,52 @@ public interface UByteSet {
 			return this;
 		}
 		
+		/**
+		 * Removes all elements of the specified source set from this set.
+		 * This operation performs a difference with the source set; a {@code null} source set is ignored.
+		 *
+		 * @param src The source {@code UByteSet.R} set whose elements are removed.
+		 * @return {@code true} if this set was modified as a result of this operation, {@code false} otherwise.
+		 */
+		public boolean removeAll( R src ) {
+			if( src == null ) return false;
+			boolean modified = false; // Flag to track if any modification occurred.
+			long    _0, _1, _2, _3, b;
+			
+			if( ( ( _0 = bits[ 0 ] ) & ( b = src.bits[ 0 ] ) ) != 0 ) {
+				bits[ 0 ] = _0 &= ~b;
+				            modified = true;
+			}
+			if( ( ( _1 = bits[ 1 ] ) & ( b = src.bits[ 1 ] ) ) != 0 ) {
+				bits[ 1 ] = _1 &= ~b;
+				            modified = true;
+			}
+			if( ( ( _2 = bits[ 2 ] ) & ( b = src.bits[ 2 ] ) ) != 0 ) {
+				bits[ 2 ] = _2 &= ~b;
+				            modified = true;
+			}
+			if( ( ( _3 = bits[ 3 ] ) & ( b = src.bits[ 3 ] ) ) != 0 ) {
+				bits[ 3 ] = _3 &= ~b;
+				            modified = true;
+			}
+			
+			if( modified ) {
+				
+				cardinality = Long.bitCount( _0 ) +
+				              Long.bitCount( _1 ) +
+				              Long.bitCount( _2 ) +
+				              Long.bitCount( _3 );
+				_version++;
+			}
+			
+			if( !hasNullKey || !src.hasNullKey ) return modified;
+			hasNullKey = false;
+			
+			_version++;
+			
+			return true; // Return modification status.
+		}
+		
 		/**
 		 * Creates and returns a shallow copy of this mutable {@code RW} ByteSet.
 		 *
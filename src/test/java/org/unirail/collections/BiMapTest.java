@@ -0,0 +1,80 @@
+package org.unirail.collections;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks {@link IntIntBiMap} against a pair of {@link HashMap}s kept as each other's inverse.
+ */
+class BiMapTest {
+
+	@Test
+	void matchesForwardAndInverseMaps() {
+		SplittableRandom        random  = new SplittableRandom( 41 );
+		Map< Integer, Integer > forward = new HashMap<>();
+		Map< Integer, Integer > inverse = new HashMap<>();
+		IntIntBiMap.RW          map     = new IntIntBiMap.RW();
+		map.hash_V( Array.Hash.MURMUR );
+
+		for( int op = 0; op < 200_000; op++ ) {
+			int key   = random.nextInt( 3_000 );
+			int value = random.nextInt( 3_000 ) * 0x10000; // poorly distributed low bits
+			switch( random.nextInt( 6 ) ) {
+				case 0, 1 -> {
+					Integer owner = inverse.get( value );
+					if( owner != null && owner != key ) {
+						assertThrows( IllegalArgumentException.class, () -> map.put( key, value ) );
+						break;
+					}
+					assertEquals( !forward.containsKey( key ), map.put( key, value ) );
+					put( forward, inverse, key, value );
+				}
+				case 2 -> {
+					Integer owner = inverse.get( value );
+					if( owner != null && owner != key ) {
+						forward.remove( owner );
+						inverse.remove( value );
+					}
+					assertEquals( !forward.containsKey( key ), map.forcePut( key, value ) );
+					put( forward, inverse, key, value );
+				}
+				case 3 -> {
+					Integer old = forward.remove( key );
+					if( old != null ) inverse.remove( old );
+					assertEquals( old != null, map.remove( key ) );
+				}
+				case 4 -> {
+					Integer owner = inverse.remove( value );
+					if( owner != null ) forward.remove( owner );
+					assertEquals( owner != null, map.removeValue( value ) );
+				}
+				default -> {
+					assertEquals( ( int ) forward.getOrDefault( key, -1 ), map.getOrDefault( key, -1 ) );
+					assertEquals( ( int ) inverse.getOrDefault( value, -1 ), map.keyOf( value, -1 ) );
+					assertEquals( inverse.containsKey( value ), map.containsValue( value ) );
+				}
+			}
+			assertEquals( forward.size(), map.size() );
+			assertEquals( inverse.size(), map.size() );
+		}
+
+		Map< Integer, Integer > actual = new HashMap<>();
+		for( long t = map.token(); t != IntIntBiMap.R.INVALID_TOKEN; t = map.token( t ) ) {
+			assertNull( actual.put( map.key( t ), map.value( t ) ) );
+			assertEquals( t, map.tokenOfValue( map.value( t ) ) );
+			assertEquals( t, map.tokenOf( map.key( t ) ) );
+		}
+		assertEquals( forward, actual );
+	}
+
+	private static void put( Map< Integer, Integer > forward, Map< Integer, Integer > inverse, int key, int value ) {
+		Integer old = forward.put( key, value );
+		if( old != null ) inverse.remove( old );
+		inverse.put( value, key );
+	}
+}
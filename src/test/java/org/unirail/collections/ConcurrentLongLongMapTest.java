@@ -0,0 +1,123 @@
+package org.unirail.collections;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the lock-free {@link ConcurrentLongLongMap} against a {@link HashMap} on one thread, and that readers running
+ * alongside writers, through cooperative resizes, only ever see values that were written.
+ */
+class ConcurrentLongLongMapTest {
+
+	private static final int WRITERS = 4, READERS = 4, KEYS = 50_000;
+
+	@Test
+	void matchesHashMapOnOneThread() {
+		SplittableRandom      random   = new SplittableRandom( 141 );
+		Map< Long, Long >     expected = new HashMap<>();
+		ConcurrentLongLongMap map      = new ConcurrentLongLongMap();
+
+		for( int op = 0; op < 300_000; op++ ) {
+			long key   = random.nextInt( 8 ) == 0 ?
+			             0 :
+			             random.nextLong( 20_000 ) - 10_000 << 20;
+			long value = random.nextLong();
+			switch( random.nextInt( 8 ) ) {
+				case 0, 1, 2 -> assertEquals( expected.put( key, value ) == null, map.put( key, value ) );
+				case 3, 4 -> assertEquals( expected.remove( key ) != null, map.remove( key ) );
+				case 5 -> {
+					if( random.nextInt( 20 ) == 0 ) assertEquals( expected.remove( null ) != null, map.remove( ( Long ) null ) );
+					else assertEquals( expected.put( null, value ) == null, map.put( ( Long ) null, value ) );
+				}
+				case 6 -> {
+					if( random.nextInt( 50_000 ) == 0 ) {
+						map.clear();
+						expected.clear();
+					}
+				}
+				default -> {
+					assertEquals( expected.containsKey( key ), map.containsKey( key ) );
+					assertEquals( ( long ) expected.getOrDefault( key, ~value ), map.get( key, ~value ) );
+				}
+			}
+			assertEquals( expected.size(), map.size() );
+		}
+
+		Map< Long, Long > actual = new HashMap<>();
+		for( long t = map.token(); t != LongLongMap.R.INVALID_TOKEN; t = map.token( t ) )
+			assertNull( actual.put( map.isKeyNull( t ) ?
+			                        null :
+			                        map.key( t ), map.value( t ) ) );
+		assertEquals( expected, actual );
+
+		Map< Long, Long > visited = new HashMap<>();
+		map.forEach( ( key, value ) -> assertNull( visited.put( key, value ) ) );
+		if( map.hasNullKey() ) visited.put( null, map.nullKeyValue() );
+		assertEquals( expected, visited );
+
+		ConcurrentLongLongMap copy = map.clone();
+		copy.put( 1, 1 );
+		copy.remove( 0 );
+		assertEquals( expected.size(), map.size() );
+		assertEquals( expected.containsKey( 0L ), map.containsKey( 0 ) );
+		assertEquals( expected.containsKey( 1L ), map.containsKey( 1 ) );
+	}
+
+	@Test
+	void readersSeeOnlyWrittenValuesDuringResizes() throws Exception {
+		ConcurrentLongLongMap map     = new ConcurrentLongLongMap();
+		AtomicBoolean         writing = new AtomicBoolean( true );
+		ExecutorService       threads = Executors.newFixedThreadPool( WRITERS + READERS );
+		try {
+			List< Callable< Void > > readers = new ArrayList<>();
+			for( int r = 0; r < READERS; r++ ) {
+				int seed = r;
+				readers.add( () -> {
+					SplittableRandom random = new SplittableRandom( 150 + seed );
+					while( writing.get() ) {
+						long key   = random.nextLong( WRITERS * ( long ) KEYS ) + 1;
+						long value = map.get( key, -1 );
+						assertTrue( value == -1 || value == key * 3 || value == key * 3 + 1, key + " -> " + value );
+					}
+					return null;
+				} );
+			}
+			List< Future< Void > > reads = new ArrayList<>();
+			for( Callable< Void > reader : readers ) reads.add( threads.submit( reader ) );
+
+			List< Callable< Void > > writers = new ArrayList<>();
+			for( int w = 0; w < WRITERS; w++ ) {
+				long base = w * ( long ) KEYS + 1; // disjoint ranges
+				writers.add( () -> {
+					for( long key = base; key < base + KEYS; key++ ) assertTrue( map.put( key, key * 3 ) );
+					for( long key = base; key < base + KEYS; key++ ) assertFalse( map.put( key, key * 3 + 1 ) );
+					for( long key = base + 1; key < base + KEYS; key += 2 ) assertTrue( map.remove( key ) );
+					return null;
+				} );
+			}
+			for( Future< Void > future : threads.invokeAll( writers ) ) future.get();
+			writing.set( false );
+			for( Future< Void > future : reads ) future.get();
+		} finally {
+			threads.shutdownNow();
+		}
+
+		assertEquals( WRITERS * KEYS / 2, map.size() );
+		for( long key = 1; key <= WRITERS * ( long ) KEYS; key++ )
+			assertEquals( ( key - 1 ) % 2 == 0 ?
+			              key * 3 + 1 :
+			              -1, map.get( key, -1 ) );
+	}
+}
@@ -0,0 +1,137 @@
+package org.unirail.collections;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the lock-striped {@link ConcurrentIntIntMap}, {@link ConcurrentIntLongMap} and {@link ConcurrentIntObjectMap}
+ * against a {@link HashMap} on one thread, and against the totals a {@link HashMap} would reach when several threads
+ * update shared and disjoint keys.
+ */
+class ConcurrentMapTest {
+
+	private static final int THREADS = 8;
+
+	@Test
+	void matchesHashMapOnOneThread() {
+		SplittableRandom        random   = new SplittableRandom( 121 );
+		Map< Integer, Integer > expected = new HashMap<>();
+		ConcurrentIntIntMap     map      = new ConcurrentIntIntMap( 4, 0 );
+
+		for( int op = 0; op < 200_000; op++ ) {
+			int key   = random.nextInt( 10_000 ) - 5_000;
+			int value = random.nextInt();
+			switch( random.nextInt( 6 ) ) {
+				case 0, 1 -> assertEquals( expected.put( key, value ) == null, map.put( key, value ) );
+				case 2 -> assertEquals( expected.putIfAbsent( key, value ) == null, map.putIfAbsent( key, value ) );
+				case 3 -> assertEquals( ( int ) expected.merge( key, value, Integer::sum ), map.addTo( key, value ) );
+				case 4 -> assertEquals( expected.remove( key ) != null, map.remove( key ) );
+				default -> {
+					assertEquals( expected.containsKey( key ), map.containsKey( key ) );
+					assertEquals( ( int ) expected.getOrDefault( key, ~value ), map.get( key, ~value ) );
+				}
+			}
+			assertEquals( expected.size(), map.size() );
+		}
+
+		Map< Integer, Integer > actual = new HashMap<>();
+		map.forEach( ( key, value ) -> assertNull( actual.put( key, value ) ) );
+		assertEquals( expected, actual );
+
+		map.clear();
+		assertTrue( map.isEmpty() );
+	}
+
+	@Test
+	void addToLosesNoUpdatesAcrossThreads() throws Exception {
+		ConcurrentIntIntMap  ints  = new ConcurrentIntIntMap();
+		ConcurrentIntLongMap longs = new ConcurrentIntLongMap( 2, 16 ); // few segments: heavy contention and resizes
+
+		run( thread -> {
+			SplittableRandom random = new SplittableRandom( 130 + thread );
+			for( int i = 0; i < 100_000; i++ ) {
+				int key = random.nextInt( 5_000 );
+				ints.addTo( key, 1 );
+				longs.addTo( key, key );
+			}
+			for( int key = 0; key < 10_000; key++ ) ints.put( thread + 1 << 24 | key, key ); // disjoint ranges
+			for( int key = 0; key < 10_000; key += 2 ) assertTrue( ints.remove( thread + 1 << 24 | key ) );
+		} );
+
+		long hits = 0;
+		for( int key = 0; key < 5_000; key++ ) {
+			int count = ints.get( key, 0 );
+			hits += count;
+			assertEquals( ( long ) count * key, longs.get( key, 0 ) );
+		}
+		assertEquals( THREADS * 100_000L, hits );
+
+		for( int thread = 0; thread < THREADS; thread++ )
+			for( int key = 0; key < 10_000; key++ )
+				assertEquals( key % 2 == 0 ?
+				              -1 :
+				              key, ints.get( thread + 1 << 24 | key, -1 ) );
+		assertEquals( THREADS * 5_000, ints.size() - longs.size() );
+	}
+
+	@Test
+	void putIfAbsentHasOneWinnerPerKey() throws Exception {
+		ConcurrentIntObjectMap< String > map  = new ConcurrentIntObjectMap<>( String.class );
+		int[]                            wins = new int[ THREADS ];
+
+		run( thread -> {
+			for( int key = 0; key < 50_000; key++ )
+				if( map.putIfAbsent( key, Integer.toString( thread ) ) == null ) wins[ thread ]++;
+		} );
+
+		assertEquals( 50_000, map.size() );
+		int[] owned = new int[ THREADS ];
+		map.forEach( ( key, value ) -> owned[ Integer.parseInt( value ) ]++ );
+		int total = 0;
+		for( int thread = 0; thread < THREADS; thread++ ) {
+			assertEquals( wins[ thread ], owned[ thread ] );
+			total += wins[ thread ];
+		}
+		assertEquals( 50_000, total );
+
+		for( int key = 0; key < 50_000; key += 2 ) assertNotNull( map.remove( key ) );
+		assertEquals( 25_000, map.size() );
+		assertNull( map.get( 0 ) );
+		assertEquals( map.get( 1 ), map.putIfAbsent( 1, "x" ) );
+	}
+
+	private interface Task {
+		void run( int thread ) throws Exception;
+	}
+
+	/**
+	 * Runs the task on {@link #THREADS} threads at once and rethrows the first failure.
+	 */
+	private static void run( Task task ) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool( THREADS );
+		try {
+			List< Callable< Void > > calls = new ArrayList<>();
+			for( int thread = 0; thread < THREADS; thread++ ) {
+				int id = thread;
+				calls.add( () -> {
+					task.run( id );
+					return null;
+				} );
+			}
+			for( Future< Void > future : executor.invokeAll( calls ) ) future.get();
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,120 @@
+package org.unirail.collections;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks {@link ExpiringLongLongMap} against a {@link HashMap} of values and deadlines, on a manual clock.
+ */
+class ExpiringLongLongMapTest {
+
+	private long now;
+
+	@Test
+	void matchesReferenceModel() {
+		for( long start : new long[]{ 0, -5_000_000_000L, 1L << 40 } ) {
+			SplittableRandom    random   = new SplittableRandom( start );
+			Map< Long, long[] > expected = new HashMap<>(); // key -> { value, deadline }
+			Map< Long, Long >   fired    = new HashMap<>();
+			now = start;
+			ExpiringLongLongMap map = new ExpiringLongLongMap( 4, () -> now, 1 );
+			map.expired( fired::put );
+
+			for( int op = 0; op < 50_000; op++ ) {
+				long key = random.nextInt( 512 );
+				switch( random.nextInt( 8 ) ) {
+					case 0, 1, 2 -> {
+						long ttl = random.nextInt( 4 ) == 0 ?
+						           random.nextLong( 1L << 36 ) :
+						           random.nextInt( 5000 );
+						map.put( key, op, ttl );
+						if( ttl < 1 ) expected.remove( key ); // a non-positive time to live removes the key
+						else expected.put( key, new long[]{ op, now + ttl } );
+					}
+					case 3 -> {
+						map.remove( key );
+						expected.remove( key );
+					}
+					case 4 -> now += random.nextInt( 3 ) == 0 ?
+					                 random.nextLong( 1L << 32 ) :
+					                 random.nextInt( 300 );
+					default -> {
+						long[] entry = expected.get( key );
+						if( entry != null && entry[ 1 ] <= now ) {
+							expected.remove( key ); // a lookup removes the expired entry it finds
+							entry = null;
+						}
+						assertEquals( entry == null ?
+						              -1 :
+						              entry[ 0 ], map.get( key, -1 ), "get " + key );
+					}
+				}
+
+				if( op % 64 == 0 ) {
+					map.expire(); // puts and lookups advance the wheel too, so entries may have fired since the last check
+					expected.entrySet().removeIf( e -> {
+						if( now < e.getValue()[ 1 ] ) return false;
+						assertEquals( e.getValue()[ 0 ], ( long ) fired.getOrDefault( e.getKey(), -1L ), "expired " + e.getKey() );
+						return true;
+					} );
+					assertEquals( expected.size(), map.size() );
+					fired.clear();
+
+					Map< Long, Long > visited = new HashMap<>();
+					map.forEach( ( k, v ) -> assertNull( visited.put( k, v ) ) );
+					assertEquals( expected.size(), visited.size() );
+					expected.forEach( ( k, entry ) -> assertEquals( entry[ 0 ], ( long ) visited.getOrDefault( k, -1L ) ) );
+					long[] keySum = { 0 };
+					map.forEachKey( k -> keySum[ 0 ] += k );
+					assertEquals( visited.keySet().stream().mapToLong( Long::longValue ).sum(), keySum[ 0 ] );
+				}
+			}
+		}
+	}
+
+	@Test
+	void skipsLongIdleGaps() {
+		now = 0;
+		ExpiringLongLongMap map = new ExpiringLongLongMap( 16, () -> now, 1 );
+		map.put( 1, 10, Long.MAX_VALUE );     // parked in the overflow list
+		map.put( 2, 20, 3_000_000_000_000L ); // parked in the overflow list
+		map.put( 3, 30, 100 );                // level 1
+
+		// one step per 64 idle ticks would take minutes for these gaps
+		assertTimeoutPreemptively( Duration.ofSeconds( 5 ), () -> {
+			now += 10_000_000_000L;
+			assertEquals( -1, map.get( 3, -1 ) );
+			assertEquals( 10, map.get( 1, -1 ) );
+			now += 1_000_000_000_000L;
+			assertEquals( 20, map.get( 2, -1 ) );
+			now += 2_000_000_000_000L;
+			assertEquals( -1, map.get( 2, -1 ) );
+			assertEquals( 10, map.get( 1, -1 ) );
+		} );
+		assertEquals( 1, map.size() );
+	}
+
+	@Test
+	void expiresAtTheDeadlineWithCoarseTicks() {
+		now = 7;
+		ExpiringLongLongMap map = new ExpiringLongLongMap( 0, () -> now, 10 );
+		map.put( 1, 1, 25 ); // deadline 32, removed by the wheel at tick 4
+		map.put( 2, 2, 25 );
+		now = 31;
+		assertEquals( 1, map.get( 1, -1 ) );
+		now = 32;
+		assertEquals( -1, map.get( 1, -1 ) ); // lookups compare the deadline itself
+		assertEquals( 1, map.size() );
+		now = 39;
+		assertEquals( 0, map.expire() );
+		now = 40;
+		assertEquals( 1, map.expire() );
+		assertTrue( map.isEmpty() );
+	}
+}
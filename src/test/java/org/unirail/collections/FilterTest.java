@@ -0,0 +1,102 @@
+package org.unirail.collections;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks {@link BlockedBloomFilter} and {@link CuckooFilter} against a {@link HashSet}: no false negatives, single
+ * and batched lookups agree, and the false positive rate stays near the configured bound.
+ */
+class FilterTest {
+
+	@Test
+	void bloomHasNoFalseNegativesAndBoundedFpp() {
+		SplittableRandom   random   = new SplittableRandom( 61 );
+		Set< Long >        expected = new HashSet<>();
+		BlockedBloomFilter filter   = new BlockedBloomFilter( 100_000, 0.01 );
+
+		while( expected.size() < 100_000 ) {
+			long key = random.nextLong();
+			if( expected.add( key ) ) filter.put( key );
+		}
+		for( long key : expected ) assertTrue( filter.mightContain( key ) );
+
+		long[] absent = new long[ 200_000 ];
+		for( int i = 0; i < absent.length; ) if( !expected.contains( absent[ i ] = random.nextLong() ) ) i++;
+		BitList.RW result = new BitList.RW( absent.length );
+		int        found  = filter.mightContain( absent, result );
+		for( int i = 0; i < absent.length; i++ ) assertEquals( filter.mightContain( absent[ i ] ), result.get( i ) );
+		assertTrue( found < 2 * 0.01 * absent.length, "false positives: " + found );
+
+		BlockedBloomFilter restored = BlockedBloomFilter.of( filter.words().clone(), filter.hashes() );
+		assertEquals( filter, restored );
+		assertEquals( filter.hashCode(), restored.hashCode() );
+	}
+
+	@Test
+	void bloomOrHoldsBothKeySets() {
+		BlockedBloomFilter a = new BlockedBloomFilter( 10_000, 0.01 );
+		BlockedBloomFilter b = new BlockedBloomFilter( 10_000, 0.01 );
+		for( int key = 0; key < 10_000; key++ ) ( key % 2 == 0 ?
+		                                          a :
+		                                          b ).put( key );
+		a.or( b );
+		for( int key = 0; key < 10_000; key++ ) assertTrue( a.mightContain( key ) );
+		assertThrows( IllegalArgumentException.class, () -> a.or( new BlockedBloomFilter( 1_000_000, 0.01 ) ) );
+	}
+
+	@Test
+	void cuckooTracksPutsAndRemoves() {
+		SplittableRandom random   = new SplittableRandom( 62 );
+		Set< Long >      expected = new HashSet<>();
+		CuckooFilter     filter   = new CuckooFilter( 100_000 );
+
+		while( expected.size() < 100_000 ) {
+			long key = random.nextLong();
+			if( expected.add( key ) ) assertTrue( filter.put( key ) );
+		}
+		assertEquals( expected.size(), filter.size() );
+		for( long key : expected ) assertTrue( filter.mightContain( key ) );
+
+		int removed = 0;
+		for( var it = expected.iterator(); it.hasNext(); ) {
+			long key = it.next();
+			if( random.nextBoolean() ) {
+				assertTrue( filter.remove( key ) );
+				it.remove();
+				removed++;
+			}
+		}
+		assertEquals( 100_000 - removed, filter.size() );
+		for( long key : expected ) assertTrue( filter.mightContain( key ) );
+
+		long[] absent = new long[ 200_000 ];
+		for( int i = 0; i < absent.length; ) if( !expected.contains( absent[ i ] = random.nextLong() ) ) i++;
+		BitList.RW result = new BitList.RW( absent.length );
+		int        found  = filter.mightContain( absent, result );
+		for( int i = 0; i < absent.length; i++ ) assertEquals( filter.mightContain( absent[ i ] ), result.get( i ) );
+		assertTrue( found < 0.001 * absent.length, "false positives: " + found ); // 8 lookups of 16-bit fingerprints: ~0.0001
+
+		CuckooFilter restored = CuckooFilter.of( filter.words().clone() );
+		assertEquals( filter.size(), restored.size() );
+		for( long key : expected ) assertTrue( restored.mightContain( key ) );
+	}
+
+	@Test
+	void cuckooPutAllKeepsBothKeySets() {
+		CuckooFilter a = new CuckooFilter( 20_000 );
+		CuckooFilter b = new CuckooFilter( 20_000 );
+		for( int key = 0; key < 16_000; key++ ) assertTrue( ( key % 2 == 0 ?
+		                                                      a :
+		                                                      b ).put( key ) );
+		assertEquals( 0, a.putAll( b ) );
+		assertEquals( 16_000, a.size() );
+		for( int key = 0; key < 16_000; key++ ) assertTrue( a.mightContain( key ) );
+		assertThrows( IllegalArgumentException.class, () -> a.putAll( new CuckooFilter( 100 ) ) );
+	}
+}
@@ -0,0 +1,106 @@
+package org.unirail.collections;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks {@link IntIntMap.Frozen} and {@link LongObjectMap.Frozen}, bucketed and perfect, against the {@link HashMap}
+ * their source was built from, including absent keys and edits of the source after freezing.
+ */
+class FrozenMapTest {
+
+	@Test
+	void intFrozenMatchesHashMap() {
+		SplittableRandom random = new SplittableRandom( 171 );
+		for( int size : new int[]{ 0, 1, 7, 1_000, 100_000 } )
+			for( boolean perfect : new boolean[]{ false, true } ) {
+				Map< Integer, Integer > expected = new HashMap<>();
+				IntIntMap.RW            src      = size % 2 == 0 ?
+				                                   new IntIntMap.RW() :
+				                                   new IntIntMap.Open();
+				while( expected.size() < size ) {
+					int key   = random.nextInt();
+					int value = random.nextInt();
+					expected.put( key, value );
+					src.put( key, value );
+				}
+				if( random.nextBoolean() ) {
+					expected.put( null, 42 );
+					src.put( ( Integer ) null, 42 );
+				}
+
+				IntIntMap.Frozen frozen = src.freeze( perfect );
+				src.clear();
+				src.put( 1, 1 );
+				assertMatches( expected, frozen );
+
+				int[] present = expected.keySet().stream().filter( Objects::nonNull ).mapToInt( Integer::intValue ).toArray();
+				int[] keys    = new int[ 1_000 ];
+				for( int i = 0; i < keys.length; i++ ) keys[ i ] = random.nextInt( 4 ) == 0 || present.length == 0 ?
+				                                                   random.nextInt() :
+				                                                   present[ random.nextInt( present.length ) ];
+				int[] values = new int[ keys.length ];
+				int   found  = frozen.getAll( keys, 0, keys.length, values, 0xDEAD );
+				int   hits   = 0;
+				for( int i = 0; i < keys.length; i++ ) {
+					Integer value = expected.get( keys[ i ] );
+					if( value != null ) hits++;
+					assertEquals( value == null ?
+					              0xDEAD :
+					              value, values[ i ] );
+				}
+				assertEquals( hits, found );
+			}
+	}
+
+	@Test
+	void longFrozenMatchesHashMap() {
+		SplittableRandom random = new SplittableRandom( 172 );
+		for( boolean perfect : new boolean[]{ false, true } ) {
+			Map< Long, String >        expected = new HashMap<>();
+			LongObjectMap.RW< String > src      = new LongObjectMap.RW<>( String.class );
+			for( int i = 0; i < 50_000; i++ ) {
+				long key = random.nextLong( 1_000_000 ) << 32; // zero low halves
+				expected.put( key, Long.toString( key ) );
+				src.put( key, Long.toString( key ) );
+			}
+
+			LongObjectMap.Frozen< String > frozen = src.freeze( perfect );
+			assertEquals( expected.size(), frozen.size() );
+
+			Map< Long, String > actual = new HashMap<>();
+			for( long t = frozen.token(); t != LongObjectMap.R.INVALID_TOKEN; t = frozen.token( t ) ) assertNull( actual.put( frozen.key( t ), frozen.value( t ) ) );
+			assertEquals( expected, actual );
+
+			for( int i = 0; i < 100_000; i++ ) {
+				long key = random.nextLong( 1_000_000 ) << 32 | random.nextInt( 2 );
+				assertEquals( expected.get( key ), frozen.get( key ) );
+			}
+			assertEquals( frozen, frozen.clone() );
+		}
+	}
+
+	private static void assertMatches( Map< Integer, Integer > expected, IntIntMap.R map ) {
+		assertEquals( expected.size(), map.size() );
+		assertEquals( expected.containsKey( null ), map.hasNullKey() );
+
+		Map< Integer, Integer > actual = new HashMap<>();
+		for( long t = map.token(); t != IntIntMap.R.INVALID_TOKEN; t = map.token( t ) )
+			assertNull( actual.put( map.isKeyNull( t ) ?
+			                        null :
+			                        map.key( t ), map.value( t ) ) );
+		assertEquals( expected, actual );
+
+		for( Map.Entry< Integer, Integer > e : expected.entrySet() )
+			if( e.getKey() != null ) {
+				assertEquals( ( int ) e.getValue(), map.getOrDefault( e.getKey(), ~e.getValue() ) );
+				assertEquals( expected.containsKey( e.getKey() + 1 ), map.containsKey( e.getKey() + 1 ) );
+			}
+	}
+}
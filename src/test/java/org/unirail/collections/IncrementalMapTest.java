@@ -0,0 +1,105 @@
+package org.unirail.collections;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks {@link IntIntMap.Incremental} against a {@link HashMap} while resizes are still migrating the old table, and
+ * that a clone taken mid-migration evolves independently of its source.
+ */
+class IncrementalMapTest {
+
+	@Test
+	void matchesHashMapWhileMigrating() {
+		SplittableRandom        random    = new SplittableRandom( 161 );
+		Map< Integer, Integer > expected  = new HashMap<>();
+		IntIntMap.Incremental   map       = new IntIntMap.Incremental( 0, 1 );
+		int                     migrating = 0;
+
+		for( int op = 0; op < 300_000; op++ ) {
+			int key   = random.nextInt( 40_000 ) - 20_000;
+			int value = random.nextInt();
+			switch( random.nextInt( 10 ) ) {
+				case 0, 1, 2, 3 -> assertEquals( expected.put( key, value ) == null, map.put( key, value ) );
+				case 4 -> assertEquals( expected.putIfAbsent( key, value ) == null, map.putIfAbsent( key, value ) );
+				case 5 -> assertEquals( ( int ) expected.merge( key, value, Integer::sum ), map.addTo( key, value ) );
+				case 6 -> assertEquals( expected.remove( key ) != null, map.remove( key ) );
+				case 7 -> {
+					if( random.nextInt( 20 ) == 0 ) assertEquals( expected.remove( null ) != null, map.remove( ( Integer ) null ) );
+					else assertEquals( expected.put( null, value ) == null, map.put( ( Integer ) null, value ) );
+				}
+				default -> {
+					assertEquals( expected.containsKey( key ), map.containsKey( key ) );
+					assertEquals( ( int ) expected.getOrDefault( key, ~value ), map.getOrDefault( key, ~value ) );
+				}
+			}
+			assertEquals( expected.size(), map.size() );
+			if( map.migrating() ) {
+				migrating++;
+				if( migrating % 2_000 == 1 ) assertMatches( expected, map );
+			}
+		}
+		assertTrue( 0 < migrating );
+		assertMatches( expected, map );
+
+		map.trim();
+		assertMatches( expected, map );
+	}
+
+	@Test
+	void cloneMidMigrationIsIndependent() {
+		IntIntMap.Incremental map = new IntIntMap.Incremental( 0, 1 );
+		int                   key = 0;
+		for( ; !map.migrating() || map.size() < 1_000; key++ ) map.put( key, key );
+
+		Map< Integer, Integer > expected = new HashMap<>();
+		for( int k = 0; k < key; k++ ) expected.put( k, k );
+
+		IntIntMap.Incremental copy = map.clone();
+		assertTrue( copy.migrating() );
+		for( int k = 0; k < key; k += 2 ) copy.remove( k );
+		for( int k = key; k < key + 5_000; k++ ) copy.put( k, -k );
+		assertMatches( expected, map );
+
+		for( int k = 0; k < key; k += 3 ) {
+			map.put( k, ~k );
+			expected.put( k, ~k );
+		}
+		assertMatches( expected, map );
+
+		Map< Integer, Integer > copied = new HashMap<>();
+		for( int k = 1; k < key; k += 2 ) copied.put( k, k );
+		for( int k = key; k < key + 5_000; k++ ) copied.put( k, -k );
+		assertMatches( copied, copy );
+
+		assertThrows( IllegalArgumentException.class, () -> new IntIntMap.Incremental( 0, 0 ) );
+	}
+
+	private static void assertMatches( Map< Integer, Integer > expected, IntIntMap.R map ) {
+		assertEquals( expected.size(), map.size() );
+		assertEquals( expected.containsKey( null ), map.hasNullKey() );
+
+		Map< Integer, Integer > actual = new HashMap<>();
+		for( long t = map.token(); t != IntIntMap.R.INVALID_TOKEN; t = map.token( t ) )
+			assertNull( actual.put( map.isKeyNull( t ) ?
+			                        null :
+			                        map.key( t ), map.value( t ) ) );
+		assertEquals( expected, actual );
+
+		Map< Integer, Integer > visited = new HashMap<>();
+		map.forEach( ( key, value ) -> assertNull( visited.put( key, value ) ) );
+		if( map.hasNullKey() ) visited.put( null, map.nullKeyValue() );
+		assertEquals( expected, visited );
+		assertEquals( visited.size() - ( map.hasNullKey() ?
+		                                 1 :
+		                                 0 ), map.keys().count() );
+
+		for( Map.Entry< Integer, Integer > e : expected.entrySet() )
+			if( e.getKey() != null ) assertEquals( ( int ) e.getValue(), map.getOrDefault( e.getKey(), ~e.getValue() ) );
+	}
+}
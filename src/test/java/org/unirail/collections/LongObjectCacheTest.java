@@ -0,0 +1,90 @@
+package org.unirail.collections;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks {@link LongObjectCache}: {@link LongObjectCache.Policy#LRU} against an access-ordered {@link LinkedHashMap},
+ * and the other policies against a {@link HashMap} of the entries neither evicted nor removed.
+ */
+class LongObjectCacheTest {
+
+	@Test
+	void lruMatchesAccessOrderedLinkedHashMap() {
+		int                 capacity = 100;
+		SplittableRandom    random   = new SplittableRandom( 3 );
+		Map< Long, String > expected = new LinkedHashMap<>( 16, 0.75f, true ) {
+			@Override
+			protected boolean removeEldestEntry( Map.Entry< Long, String > eldest ) { return capacity < size(); }
+		};
+		LongObjectCache< String > cache = new LongObjectCache<>( capacity, LongObjectCache.Policy.LRU );
+
+		for( int op = 0; op < 100_000; op++ ) {
+			long key = random.nextInt( 300 );
+			switch( random.nextInt( 5 ) ) {
+				case 0, 1 -> assertEquals( expected.put( key, "v" + op ), cache.put( key, "v" + op ) );
+				case 2 -> assertEquals( expected.remove( key ), cache.remove( key ) );
+				case 3 -> assertEquals( expected.get( key ), cache.get( key ) );
+				default -> assertEquals( expected.containsKey( key ), cache.containsKey( key ) );
+			}
+			assertEquals( expected.size(), cache.size() );
+		}
+		assertContent( expected, cache );
+	}
+
+	@Test
+	void otherPoliciesKeepEveryEntryNotEvicted() {
+		for( LongObjectCache.Policy policy : new LongObjectCache.Policy[]{ LongObjectCache.Policy.SLRU, LongObjectCache.Policy.W_TINY_LFU } ) {
+			SplittableRandom     random   = new SplittableRandom( 7 );
+			Map< Long, Integer > expected = new HashMap<>();
+			LongObjectCache< Integer > cache = new LongObjectCache<>( 64, policy, Array.Hash.MURMUR, ( key, value ) -> assertEquals( expected.remove( key ), value ) );
+
+			for( int op = 0; op < 100_000; op++ ) {
+				long key = random.nextInt( 4 ) == 0 ?
+				           random.nextInt( 1000 ) :
+				           random.nextInt( 40 ); // a hot set that fits, and a cold scan that does not
+				switch( random.nextInt( 4 ) ) {
+					case 0, 1 -> {
+						Integer old = expected.get( key );
+						assertEquals( old, cache.put( key, op ) ); // the listener drops the evicted entry first
+						expected.put( key, op );
+					}
+					case 2 -> assertEquals( expected.remove( key ), cache.remove( key ) );
+					default -> assertEquals( expected.get( key ), cache.get( key ) );
+				}
+				assertTrue( cache.size() <= 64 );
+				assertEquals( expected.size(), cache.size() );
+			}
+			assertContent( expected, cache );
+
+			cache.clear();
+			assertTrue( cache.isEmpty() );
+			cache.forEach( ( key, value ) -> fail( "entry after clear" ) );
+		}
+	}
+
+	private static < V > void assertContent( Map< Long, V > expected, LongObjectCache< V > cache ) {
+		Map< Long, V > visited = new HashMap<>();
+		cache.forEach( ( key, value ) -> assertFalse( visited.containsKey( key ) || visited.put( key, value ) != null ) );
+		assertEquals( expected, visited );
+
+		long[] keys = { 0, 0 };
+		cache.forEachKey( key -> {
+			keys[ 0 ]++;
+			assertTrue( expected.containsKey( key ) );
+		} );
+		cache.forEachValue( value -> keys[ 1 ]++ );
+		assertEquals( expected.size(), keys[ 0 ] );
+		assertEquals( expected.size(), keys[ 1 ] );
+
+		int[] visits = { 0 };
+		assertEquals( expected.isEmpty(), cache.forEachWhile( ( key, value ) -> ++visits[ 0 ] < 3 ) );
+		assertEquals( Math.min( 3, expected.size() ), visits[ 0 ] );
+	}
+}
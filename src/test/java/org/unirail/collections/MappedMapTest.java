@@ -0,0 +1,79 @@
+package org.unirail.collections;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks {@link LongLongMap.Mapped} against a {@link HashMap} across reopenings of its file, and that a read-only
+ * mapping rejects every modification before writing anything.
+ */
+class MappedMapTest {
+
+	@Test
+	void matchesReferenceModelAcrossReopening() throws IOException {
+		Path              path     = Files.createTempFile( "MappedMapTest", ".bin" );
+		SplittableRandom  random   = new SplittableRandom( 5 );
+		Map< Long, Long > expected = new HashMap<>();
+		try {
+			LongLongMap.Mapped map = LongLongMap.Mapped.create( path, 16 );
+			for( int round = 0; round < 4; round++ ) {
+				for( int op = 0; op < 20_000; op++ ) {
+					long key = random.nextInt( 10_000 );
+					switch( random.nextInt( 4 ) ) {
+						case 0, 1 -> assertEquals( expected.put( key, ( long ) op ) == null, map.put( key, op ) );
+						case 2 -> assertEquals( expected.remove( key ) != null, map.remove( key ) );
+						default -> assertEquals( ( long ) expected.getOrDefault( key, -1L ), map.getOrDefault( key, -1 ) );
+					}
+				}
+				map.close();
+
+				map = LongLongMap.Mapped.open( path, true );
+				assertEquals( expected.size(), map.size() );
+				for( Map.Entry< Long, Long > e : expected.entrySet() ) assertEquals( ( long ) e.getValue(), map.getOrDefault( e.getKey(), -1 ) );
+			}
+			map.close();
+		} finally {
+			Files.deleteIfExists( path );
+		}
+	}
+
+	@Test
+	void readOnlyRejectsModifications() throws IOException {
+		Path path = Files.createTempFile( "MappedMapTest", ".bin" );
+		try {
+			try( LongLongMap.Mapped map = LongLongMap.Mapped.create( path, 16 ) ) {
+				for( long key = 0; key < 100; key++ ) map.put( key, key * 3 );
+			}
+			byte[] file = Files.readAllBytes( path );
+
+			try( LongLongMap.Mapped map = LongLongMap.Mapped.open( path, false ) ) {
+				assertThrows( UnsupportedOperationException.class, () -> map.putAll( new long[]{ 1000, 1001 }, new long[]{ 1, 2 } ) );
+				assertThrows( UnsupportedOperationException.class, () -> map.putAll( new long[ 0 ], new long[ 0 ] ) );
+				assertThrows( UnsupportedOperationException.class, () -> map.put( 1000, 1 ) );
+				assertThrows( UnsupportedOperationException.class, () -> map.put( null, 1 ) );
+				assertThrows( UnsupportedOperationException.class, () -> map.putIfAbsent( 1000, 1 ) );
+				assertThrows( UnsupportedOperationException.class, () -> map.addTo( 5, 1 ) );
+				assertThrows( UnsupportedOperationException.class, () -> map.merge( 5, 1, ( a, b ) -> a + b ) );
+				assertThrows( UnsupportedOperationException.class, () -> map.computeIfAbsent( 1000, key -> key ) );
+				assertThrows( UnsupportedOperationException.class, () -> map.computeIfPresent( 5, ( key, value ) -> value + 1 ) );
+				assertThrows( UnsupportedOperationException.class, () -> map.remove( 5 ) );
+				assertThrows( UnsupportedOperationException.class, () -> map.clear() );
+				assertThrows( UnsupportedOperationException.class, () -> map.ensureCapacity( 1000 ) );
+				assertThrows( UnsupportedOperationException.class, () -> map.trim() );
+				assertEquals( 100, map.size() );
+				assertEquals( 15, map.getOrDefault( 5, -1 ) );
+			}
+			assertArrayEquals( file, Files.readAllBytes( path ) );
+		} finally {
+			Files.deleteIfExists( path );
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package org.unirail.collections;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks {@link IntIntMultiMap} against a {@link HashMap} of value lists, through slab growth, packing, compaction
+ * and the CSR-building constructor.
+ */
+class MultiMapTest {
+
+	@Test
+	void matchesMapOfLists() {
+		SplittableRandom                random   = new SplittableRandom( 31 );
+		Map< Integer, List< Integer > > expected = new HashMap<>();
+		IntIntMultiMap.RW               map      = new IntIntMultiMap.RW();
+
+		for( int op = 0; op < 100_000; op++ ) {
+			int key   = random.nextInt( 500 );
+			int value = random.nextInt( 20 );
+			switch( random.nextInt( 10 ) ) {
+				case 0, 1, 2, 3 -> {
+					assertEquals( !expected.containsKey( key ), map.put( key, value ) );
+					expected.computeIfAbsent( key, k -> new ArrayList<>() ).add( value );
+				}
+				case 4 -> {
+					int[] src = new int[ random.nextInt( 40 ) ];
+					for( int i = 0; i < src.length; i++ ) src[ i ] = random.nextInt( 20 );
+					assertEquals( src.length != 0 && !expected.containsKey( key ), map.putAll( key, src, 0, src.length ) );
+					for( int v : src ) expected.computeIfAbsent( key, k -> new ArrayList<>() ).add( v );
+				}
+				case 5, 6 -> {
+					List< Integer > list = expected.get( key );
+					assertEquals( list != null && list.remove( ( Integer ) value ), map.remove( key, value ) );
+					if( list != null && list.isEmpty() ) expected.remove( key );
+				}
+				case 7 -> assertEquals( expected.remove( key ) != null, map.remove( key ) );
+				case 8 -> {
+					if( random.nextInt( 100 ) == 0 ) map.compact();
+				}
+				default -> assertEquals( expected.containsKey( key ) && expected.get( key ).contains( value ), map.contains( key, value ) );
+			}
+			if( op % 5_000 == 0 ) assertMatches( expected, map );
+		}
+		assertMatches( expected, map );
+
+		map.compact();
+		assertMatches( expected, map );
+		assertEquals( map.size(), map.length() );
+	}
+
+	@Test
+	void buildsFromParallelLists() {
+		SplittableRandom                random   = new SplittableRandom( 32 );
+		Map< Integer, List< Integer > > expected = new HashMap<>();
+		IntList.RW                      keys     = new IntList.RW( 0 );
+		IntList.RW                      values   = new IntList.RW( 0 );
+
+		for( int i = 0; i < 20_000; i++ ) {
+			int key   = random.nextInt( 1_000 );
+			int value = random.nextInt();
+			keys.add1( key );
+			values.add1( value );
+			expected.computeIfAbsent( key, k -> new ArrayList<>() ).add( value );
+		}
+
+		IntIntMultiMap.RW map = new IntIntMultiMap.RW( keys, values );
+		assertMatches( expected, map );
+		assertEquals( map.size(), map.length() );
+
+		map.put( 5_000, 1 );
+		expected.computeIfAbsent( 5_000, k -> new ArrayList<>() ).add( 1 );
+		assertMatches( expected, map );
+	}
+
+	private static void assertMatches( Map< Integer, List< Integer > > expected, IntIntMultiMap.RW map ) {
+		assertEquals( expected.size(), map.keysCount() );
+		assertEquals( expected.values().stream().mapToInt( List::size ).sum(), map.size() );
+
+		for( Map.Entry< Integer, List< Integer > > e : expected.entrySet() ) {
+			assertTrue( map.containsKey( e.getKey() ) );
+			assertEquals( e.getValue().size(), map.count( e.getKey() ) );
+
+			long            range  = map.valuesOf( e.getKey() );
+			List< Integer > actual = new ArrayList<>();
+			for( int i = IntIntMultiMap.R.from( range ); i < IntIntMultiMap.R.to( range ); i++ ) actual.add( map.value( i ) );
+			assertEquals( e.getValue(), actual );
+
+			int[] dst = new int[ e.getValue().size() ];
+			assertEquals( dst.length, map.valuesOf( e.getKey(), dst, 0 ) );
+			for( int i = 0; i < dst.length; i++ ) assertEquals( ( int ) e.getValue().get( i ), dst[ i ] );
+		}
+
+		int keys = 0;
+		for( long t = map.token(); t != IntIntMultiMap.R.INVALID_TOKEN; t = map.token( t ), keys++ ) assertEquals( expected.get( map.key( t ) ).size(), map.count( t ) );
+		assertEquals( expected.size(), keys );
+	}
+}
@@ -0,0 +1,75 @@
+package org.unirail.collections;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the {@code OffHeap} engines against a {@link HashMap}, and that {@code close()} releases their native memory.
+ */
+class OffHeapMapTest {
+
+	private static long directMemoryUsed() {
+		for( BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans( BufferPoolMXBean.class ) )
+			if( pool.getName().equals( "direct" ) ) return pool.getMemoryUsed();
+		throw new AssertionError( "no direct buffer pool" );
+	}
+
+	@Test
+	void matchesReferenceModel() {
+		SplittableRandom  random   = new SplittableRandom( 12 );
+		Map< Long, Long > expected = new HashMap<>();
+		try( LongLongMap.OffHeap map = new LongLongMap.OffHeap() ) {
+			for( int op = 0; op < 200_000; op++ ) {
+				long key = random.nextInt( 20_000 ) - 10_000;
+				switch( random.nextInt( 4 ) ) {
+					case 0, 1 -> assertEquals( expected.put( key, ( long ) op ) == null, map.put( key, op ) );
+					case 2 -> assertEquals( expected.remove( key ) != null, map.remove( key ) );
+					default -> assertEquals( ( long ) expected.getOrDefault( key, -1L ), map.getOrDefault( key, -1 ) );
+				}
+			}
+			assertEquals( expected.size(), map.size() );
+
+			LongLongMap.OffHeap copy = map.clone();
+			map.trim( map.size() );
+			expected.forEach( ( key, value ) -> assertEquals( ( long ) value, map.getOrDefault( key, -1 ) ) );
+			assertEquals( map, copy );
+			copy.close();
+		}
+	}
+
+	@Test
+	void matchesReferenceModelWithIntKeys() {
+		SplittableRandom        random   = new SplittableRandom( 34 );
+		Map< Integer, Integer > expected = new HashMap<>();
+		try( IntIntMap.OffHeap map = new IntIntMap.OffHeap( 16 ) ) {
+			for( int op = 0; op < 200_000; op++ ) {
+				int key = random.nextInt( 20_000 );
+				switch( random.nextInt( 4 ) ) {
+					case 0, 1 -> assertEquals( expected.put( key, op ) == null, map.put( key, op ) );
+					case 2 -> assertEquals( expected.remove( key ) != null, map.remove( key ) );
+					default -> assertEquals( ( int ) expected.getOrDefault( key, -1 ), map.getOrDefault( key, -1 ) );
+				}
+			}
+			assertEquals( expected.size(), map.size() );
+		}
+	}
+
+	@Test
+	void closeReleasesNativeMemory() {
+		long before = directMemoryUsed();
+		// without an explicit release, the garbage collector would have to keep up with about 1.5 GB of buffers
+		for( int round = 0; round < 32; round++ )
+			try( LongIntMap.OffHeap map = new LongIntMap.OffHeap() ) {
+				for( long key = 0; key < 1_000_000; key++ ) map.put( key, ( int ) key );
+				assertTrue( before < directMemoryUsed() );
+			}
+		assertTrue( directMemoryUsed() - before <= 1 << 16, "direct memory left after close: " + ( directMemoryUsed() - before ) );
+	}
+}
@@ -0,0 +1,130 @@
+package org.unirail.collections;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the power-of-two open-addressing engines {@link IntIntMap.Open} and {@link LongLongMap.Open} against a
+ * {@link HashMap}, through growth, backward-shift deletion, the reserved {@code 0} key slot and the null key.
+ */
+class OpenMapTest {
+
+	@Test
+	void intOpenMatchesHashMap() {
+		SplittableRandom        random   = new SplittableRandom( 91 );
+		Map< Integer, Integer > expected = new HashMap<>();
+		IntIntMap.Open          map      = new IntIntMap.Open();
+
+		for( int op = 0; op < 300_000; op++ ) {
+			int key   = random.nextInt( 8 ) == 0 ?
+			            0 :
+			            random.nextInt( 6_000 ) - 3_000 << 8; // clustered home slots
+			int value = random.nextInt();
+			switch( random.nextInt( 10 ) ) {
+				case 0, 1, 2 -> assertEquals( expected.put( key, value ) == null, map.put( key, value ) );
+				case 3 -> assertEquals( expected.putIfAbsent( key, value ) == null, map.putIfAbsent( key, value ) );
+				case 4 -> assertEquals( ( int ) expected.merge( key, value, Integer::sum ), map.addTo( key, value ) );
+				case 5, 6 -> assertEquals( expected.remove( key ) != null, map.remove( key ) );
+				case 7 -> {
+					if( random.nextInt( 20 ) == 0 ) assertEquals( expected.remove( null ) != null, map.remove( ( Integer ) null ) );
+					else assertEquals( expected.put( null, value ) == null, map.put( ( Integer ) null, value ) );
+				}
+				case 8 -> {
+					if( random.nextInt( 5_000 ) == 0 ) map.trim();
+				}
+				default -> {
+					assertEquals( expected.containsKey( key ), map.containsKey( key ) );
+					assertEquals( ( int ) expected.getOrDefault( key, ~value ), map.getOrDefault( key, ~value ) );
+				}
+			}
+			assertEquals( expected.size(), map.size() );
+			if( op % 30_000 == 0 ) assertIntMatches( expected, map );
+		}
+		assertIntMatches( expected, map );
+
+		IntIntMap.Open copy = map.clone();
+		assertIntMatches( expected, copy );
+		copy.put( 1, 1 );
+		copy.remove( 0 );
+		assertIntMatches( expected, map );
+
+		map.clear();
+		expected.clear();
+		assertIntMatches( expected, map );
+	}
+
+	@Test
+	void longOpenMatchesHashMap() {
+		SplittableRandom  random   = new SplittableRandom( 92 );
+		Map< Long, Long > expected = new HashMap<>();
+		LongLongMap.Open  map      = new LongLongMap.Open( 16 );
+
+		for( int op = 0; op < 300_000; op++ ) {
+			long key   = random.nextInt( 8 ) == 0 ?
+			             0 :
+			             ( random.nextLong( 6_000 ) - 3_000 ) << 32; // equal low halves
+			long value = random.nextLong();
+			switch( random.nextInt( 8 ) ) {
+				case 0, 1, 2 -> assertEquals( expected.put( key, value ) == null, map.put( key, value ) );
+				case 3, 4 -> assertEquals( expected.remove( key ) != null, map.remove( key ) );
+				case 5 -> {
+					if( random.nextInt( 20 ) == 0 ) assertEquals( expected.remove( null ) != null, map.remove( ( Long ) null ) );
+					else assertEquals( expected.put( null, value ) == null, map.put( ( Long ) null, value ) );
+				}
+				case 6 -> {
+					if( random.nextInt( 5_000 ) == 0 ) map.ensureCapacity( map.size() * 3 );
+				}
+				default -> assertEquals( ( long ) expected.getOrDefault( key, ~value ), map.getOrDefault( key, ~value ) );
+			}
+			assertEquals( expected.size(), map.size() );
+			if( op % 30_000 == 0 ) assertLongMatches( expected, map );
+		}
+		assertLongMatches( expected, map );
+
+		map.trim();
+		assertLongMatches( expected, map );
+	}
+
+	private static void assertIntMatches( Map< Integer, Integer > expected, IntIntMap.R map ) {
+		assertEquals( expected.size(), map.size() );
+		assertEquals( expected.containsKey( null ), map.hasNullKey() );
+
+		Map< Integer, Integer > actual = new HashMap<>();
+		for( long t = map.token(); t != IntIntMap.R.INVALID_TOKEN; t = map.token( t ) )
+			assertNull( actual.put( map.isKeyNull( t ) ?
+			                        null :
+			                        map.key( t ), map.value( t ) ) );
+		assertEquals( expected, actual );
+
+		Map< Integer, Integer > visited = new HashMap<>();
+		map.forEach( ( key, value ) -> assertNull( visited.put( key, value ) ) );
+		if( map.hasNullKey() ) visited.put( null, map.nullKeyValue() );
+		assertEquals( expected, visited );
+		assertEquals( expected.size() - ( map.hasNullKey() ?
+		                                  1 :
+		                                  0 ), map.keys().count() );
+
+		for( Map.Entry< Integer, Integer > e : expected.entrySet() )
+			if( e.getKey() != null ) assertEquals( ( int ) e.getValue(), map.getOrDefault( e.getKey(), ~e.getValue() ) );
+	}
+
+	private static void assertLongMatches( Map< Long, Long > expected, LongLongMap.R map ) {
+		assertEquals( expected.size(), map.size() );
+		assertEquals( expected.containsKey( null ), map.hasNullKey() );
+
+		Map< Long, Long > actual = new HashMap<>();
+		for( long t = map.token(); t != LongLongMap.R.INVALID_TOKEN; t = map.token( t ) )
+			assertNull( actual.put( map.isKeyNull( t ) ?
+			                        null :
+			                        map.key( t ), map.value( t ) ) );
+		assertEquals( expected, actual );
+
+		for( Map.Entry< Long, Long > e : expected.entrySet() )
+			if( e.getKey() != null ) assertEquals( ( long ) e.getValue(), map.getOrDefault( e.getKey(), ~e.getValue() ) );
+	}
+}
@@ -0,0 +1,137 @@
+package org.unirail.collections;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the {@code Persistent} and {@code Transient} trie engines of {@link IntIntMap} and {@link LongLongMap}
+ * against a {@link HashMap}, and that every version handed out keeps its content while later versions are edited.
+ */
+class PersistentMapTest {
+
+	@Test
+	void intVersionsStayIntact() {
+		SplittableRandom                random    = new SplittableRandom( 21 );
+		Map< Integer, Integer >         expected  = new HashMap<>();
+		IntIntMap.Persistent            map       = new IntIntMap.Persistent();
+		List< IntIntMap.Persistent >    versions  = new ArrayList<>();
+		List< Map< Integer, Integer > > snapshots = new ArrayList<>();
+
+		for( int round = 0; round < 200; round++ ) {
+			if( random.nextBoolean() )
+				for( int op = 0; op < 100; op++ ) {
+					Integer key = random.nextInt( 50 ) == 0 ?
+					              null :
+					              random.nextInt( 4_000 ) - 2_000;
+					int value = random.nextInt();
+					if( random.nextInt( 3 ) == 0 ) {
+						IntIntMap.Persistent next = map.remove( key );
+						assertEquals( expected.containsKey( key ), next != map );
+						expected.remove( key );
+						map = next;
+					}
+					else {
+						map = map.put( key, value );
+						expected.put( key, value );
+					}
+				}
+			else {
+				IntIntMap.Transient edit = map.edit();
+				for( int op = 0; op < 300; op++ ) {
+					int key   = random.nextInt( 4_000 ) - 2_000;
+					int value = random.nextInt();
+					if( random.nextInt( 3 ) == 0 ) assertEquals( expected.remove( key ) != null, edit.remove( key ) );
+					else assertEquals( expected.put( key, value ) == null, edit.put( key, value ) );
+				}
+				assertIntEquals( expected, edit );
+				map = edit.persistent();
+			}
+			assertIntEquals( expected, map );
+
+			versions.add( map );
+			snapshots.add( new HashMap<>( expected ) );
+		}
+
+		for( int i = 0; i < versions.size(); i++ ) assertIntEquals( snapshots.get( i ), versions.get( i ) );
+	}
+
+	@Test
+	void longVersionsStayIntact() {
+		SplittableRandom               random    = new SplittableRandom( 22 );
+		Map< Long, Long >              expected  = new HashMap<>();
+		LongLongMap.Persistent         map       = new LongLongMap.Persistent();
+		List< LongLongMap.Persistent > versions  = new ArrayList<>();
+		List< Map< Long, Long > >      snapshots = new ArrayList<>();
+
+		for( int round = 0; round < 200; round++ ) {
+			LongLongMap.Transient edit = map.edit();
+			for( int op = 0; op < 200; op++ ) {
+				long key   = random.nextLong( 3_000 ) * 0x1_0000_0001L;
+				long value = random.nextLong();
+				switch( random.nextInt( 3 ) ) {
+					case 0 -> assertEquals( expected.remove( key ) != null, edit.remove( key ) );
+					default -> assertEquals( expected.put( key, value ) == null, edit.put( key, value ) );
+				}
+			}
+			map = edit.persistent();
+
+			long key = random.nextLong( 3_000 ) * 0x1_0000_0001L;
+			map = map.put( key, round );
+			expected.put( key, ( long ) round );
+			assertLongEquals( expected, map );
+
+			versions.add( map );
+			snapshots.add( new HashMap<>( expected ) );
+		}
+
+		for( int i = 0; i < versions.size(); i++ ) assertLongEquals( snapshots.get( i ), versions.get( i ) );
+	}
+
+	@Test
+	void transientKeepsEditingAfterPersistent() {
+		IntIntMap.Transient edit = new IntIntMap.Transient();
+		for( int key = 0; key < 1_000; key++ ) edit.put( key, key );
+		IntIntMap.Persistent sealed = edit.persistent();
+
+		for( int key = 0; key < 1_000; key += 2 ) edit.remove( key );
+		edit.put( 5, -5 );
+
+		assertEquals( 1_000, sealed.size() );
+		for( int key = 0; key < 1_000; key++ ) assertEquals( key, sealed.getOrDefault( key, -1 ) );
+		assertEquals( 500, edit.size() );
+		assertEquals( -5, edit.getOrDefault( 5, 0 ) );
+		assertEquals( -1, edit.getOrDefault( 4, -1 ) );
+	}
+
+	private static void assertIntEquals( Map< Integer, Integer > expected, IntIntMap.R map ) {
+		assertEquals( expected.size(), map.size() );
+		assertEquals( expected.containsKey( null ), map.hasNullKey() );
+		if( map.hasNullKey() ) assertEquals( ( int ) expected.get( null ), map.nullKeyValue() );
+
+		Map< Integer, Integer > actual = new HashMap<>();
+		for( long t = map.token(); t != IntIntMap.R.INVALID_TOKEN; t = map.token( t ) )
+			if( !map.isKeyNull( t ) ) assertNull( actual.put( map.key( t ), map.value( t ) ) );
+		if( map.hasNullKey() ) actual.put( null, map.nullKeyValue() );
+		assertEquals( expected, actual );
+
+		for( Map.Entry< Integer, Integer > e : expected.entrySet() )
+			if( e.getKey() != null ) assertEquals( ( int ) e.getValue(), map.getOrDefault( e.getKey(), ~e.getValue() ) );
+	}
+
+	private static void assertLongEquals( Map< Long, Long > expected, LongLongMap.R map ) {
+		assertEquals( expected.size(), map.size() );
+
+		Map< Long, Long > actual = new HashMap<>();
+		for( long t = map.token(); t != LongLongMap.R.INVALID_TOKEN; t = map.token( t ) ) assertNull( actual.put( map.key( t ), map.value( t ) ) );
+		assertEquals( expected, actual );
+
+		for( Map.Entry< Long, Long > e : expected.entrySet() ) assertEquals( ( long ) e.getValue(), map.getOrDefault( e.getKey(), ~e.getValue() ) );
+	}
+}
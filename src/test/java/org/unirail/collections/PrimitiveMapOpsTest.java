@@ -0,0 +1,212 @@
+package org.unirail.collections;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks {@code putIfAbsent}, {@code addTo}, {@code computeIfAbsent}, {@code computeIfPresent}, {@code merge} and
+ * {@code getOrDefault} of each map engine against the same operations of a {@link HashMap}. In the null maps a key
+ * mapped to null is a key the {@link HashMap} maps to null, which its operations treat as absent too.
+ */
+class PrimitiveMapOpsTest {
+
+	@Test
+	void hashedMapWithUIntKeysAndValues() {
+		SplittableRandom  random   = new SplittableRandom( 1 );
+		Map< Long, Long > expected = new HashMap<>();
+		UIntUIntMap.RW    map      = new UIntUIntMap.RW();
+		map.hash_K( Array.Hash.MURMUR );
+
+		for( int op = 0; op < 200_000; op++ ) {
+			long key   = ( random.nextBoolean() ? 0x7FFF_F800L : 0xFFFF_F800L ) + random.nextInt( 0x1000 ) & 0xFFFF_FFFFL; // straddles 2^31 and 2^32
+			long value = random.nextLong() & 0xFFFF_FFFFL;
+			switch( random.nextInt( 8 ) ) {
+				case 0 -> assertEquals( expected.put( key, value ) == null, map.put( key, value ) );
+				case 1 -> assertEquals( expected.remove( key ) != null, map.remove( key ) );
+				case 2 -> assertEquals( expected.putIfAbsent( key, value ) == null, map.putIfAbsent( key, value ) );
+				case 3 -> assertEquals( ( long ) expected.merge( key, value, ( a, b ) -> a + b & 0xFFFF_FFFFL ), map.addTo( key, value ) );
+				case 4 -> assertEquals( ( long ) expected.computeIfAbsent( key, k -> k ^ value ), map.computeIfAbsent( key, k -> k ^ value ) );
+				case 5 -> assertEquals( expected.computeIfPresent( key, ( k, v ) -> v * 3 & 0xFFFF_FFFFL ) != null, map.computeIfPresent( key, ( k, v ) -> v * 3 ) );
+				case 6 -> assertEquals( ( long ) expected.merge( key, value, ( a, b ) -> a ^ b ), map.merge( key, value, ( a, b ) -> a ^ b ) );
+				default -> assertEquals( ( long ) expected.getOrDefault( key, -1L ), map.getOrDefault( key, -1 ) );
+			}
+			assertEquals( expected.size(), map.size() );
+		}
+	}
+
+	@Test
+	void hashedNullMap() {
+		SplittableRandom        random   = new SplittableRandom( 2 );
+		Map< Integer, Integer > expected = new HashMap<>();
+		IntIntNullMap.RW        map      = new IntIntNullMap.RW();
+
+		for( int op = 0; op < 200_000; op++ ) {
+			int key   = random.nextInt( 3_000 ) - 1_000;
+			int value = random.nextInt();
+			switch( random.nextInt( 8 ) ) {
+				case 0 -> {
+					Integer v = random.nextInt( 3 ) == 0 ?
+					            null :
+					            value;
+					assertEquals( !expected.containsKey( key ), map.put( key, v ) );
+					expected.put( key, v );
+				}
+				case 1 -> {
+					assertEquals( expected.containsKey( key ), map.remove( key ) );
+					expected.remove( key );
+				}
+				case 2 -> assertEquals( expected.putIfAbsent( key, value ) == null, map.putIfAbsent( key, value ) );
+				case 3 -> assertEquals( ( int ) expected.merge( key, value, Integer::sum ), map.addTo( key, value ) );
+				case 4 -> assertEquals( ( int ) expected.computeIfAbsent( key, k -> k * 7 ), map.computeIfAbsent( key, k -> k * 7 ) );
+				case 5 -> assertEquals( expected.computeIfPresent( key, ( k, v ) -> v - k ) != null, map.computeIfPresent( key, ( k, v ) -> v - k ) );
+				case 6 -> assertEquals( ( int ) expected.merge( key, value, ( a, b ) -> a ^ b ), map.merge( key, value, ( a, b ) -> a ^ b ) );
+				default -> assertEquals( expected.get( key ) == null ?
+				                         -1 :
+				                         expected.get( key ), map.getOrDefault( key, -1 ) );
+			}
+			assertEquals( expected.size(), map.size() );
+		}
+	}
+
+	@Test
+	void hashedBitsMap() {
+		SplittableRandom        random   = new SplittableRandom( 3 );
+		Map< Integer, Integer > expected = new HashMap<>();
+		IntBitsMap.RW           map      = new IntBitsMap.RW( 5 );
+
+		for( int op = 0; op < 200_000; op++ ) {
+			int  key   = random.nextInt( 2_000 );
+			byte value = ( byte ) random.nextInt( 32 );
+			switch( random.nextInt( 8 ) ) {
+				case 0 -> assertEquals( expected.put( key, ( int ) value ) == null, map.put( key, value ) );
+				case 1 -> assertEquals( expected.remove( key ) != null, map.remove( key ) );
+				case 2 -> assertEquals( expected.putIfAbsent( key, ( int ) value ) == null, map.putIfAbsent( key, value ) );
+				case 3 -> assertEquals( ( int ) expected.merge( key, ( int ) value, ( a, b ) -> a + b & 31 ), map.addTo( key, value ) );
+				case 4 -> assertEquals( ( int ) expected.computeIfAbsent( key, k -> k & 31 ), map.computeIfAbsent( key, k -> ( byte ) k ) );
+				case 5 -> assertEquals( expected.computeIfPresent( key, ( k, v ) -> v * 3 & 31 ) != null, map.computeIfPresent( key, ( k, v ) -> ( byte ) ( v * 3 ) ) );
+				case 6 -> assertEquals( ( int ) expected.merge( key, ( int ) value, ( a, b ) -> a ^ b ), map.merge( key, value, ( a, b ) -> ( byte ) ( a ^ b ) ) );
+				default -> assertEquals( ( int ) expected.getOrDefault( key, -1 ), map.getOrDefault( key, ( byte ) -1 ) );
+			}
+			assertEquals( expected.size(), map.size() );
+		}
+	}
+
+	@Test
+	void charKeyedBitsMapAcrossFlatSwitch() {
+		SplittableRandom          random   = new SplittableRandom( 7 );
+		Map< Character, Integer > expected = new HashMap<>();
+		CharBitsMap.RW            map      = new CharBitsMap.RW( 3 );
+
+		for( int op = 0; op < 300_000; op++ ) {
+			char key   = ( char ) random.nextInt( op < 150_000 ? 0x800 : 0x10000 ); // sparse first, then flat
+			byte value = ( byte ) random.nextInt( 8 );
+			switch( random.nextInt( 8 ) ) {
+				case 0 -> assertEquals( expected.put( key, ( int ) value ) == null, map.put( key, value ) );
+				case 1 -> assertEquals( expected.remove( key ) != null, map.remove( key ) );
+				case 2 -> assertEquals( expected.putIfAbsent( key, ( int ) value ) == null, map.putIfAbsent( key, value ) );
+				case 3 -> assertEquals( ( int ) expected.merge( key, ( int ) value, ( a, b ) -> a + b & 7 ), map.addTo( key, value ) );
+				case 4 -> assertEquals( ( int ) expected.computeIfAbsent( key, k -> k & 7 ), map.computeIfAbsent( key, k -> ( byte ) k ) );
+				case 5 -> assertEquals( expected.computeIfPresent( key, ( k, v ) -> v * 3 & 7 ) != null, map.computeIfPresent( key, ( k, v ) -> ( byte ) ( v * 3 ) ) );
+				case 6 -> assertEquals( ( int ) expected.merge( key, ( int ) value, ( a, b ) -> a ^ b ), map.merge( key, value, ( a, b ) -> ( byte ) ( a ^ b ) ) );
+				default -> assertEquals( ( int ) expected.getOrDefault( key, -1 ), map.getOrDefault( key, ( byte ) -1 ) );
+			}
+			assertEquals( expected.size(), map.size() );
+		}
+	}
+
+	@Test
+	void byteKeyedNullMap() {
+		SplittableRandom        random   = new SplittableRandom( 4 );
+		Map< Integer, Integer > expected = new HashMap<>();
+		ByteIntNullMap.RW       map      = new ByteIntNullMap.RW( 0 );
+
+		for( int op = 0; op < 100_000; op++ ) {
+			byte key   = ( byte ) random.nextInt( 256 );
+			int  value = random.nextInt();
+			switch( random.nextInt( 8 ) ) {
+				case 0 -> {
+					Integer v = random.nextInt( 3 ) == 0 ?
+					            null :
+					            value;
+					assertEquals( !expected.containsKey( ( int ) key ), map.put( key, v ) );
+					expected.put( ( int ) key, v );
+				}
+				case 1 -> {
+					assertEquals( expected.containsKey( ( int ) key ), map.remove( key ) );
+					expected.remove( ( int ) key );
+				}
+				case 2 -> assertEquals( expected.putIfAbsent( ( int ) key, value ) == null, map.putIfAbsent( key, value ) );
+				case 3 -> assertEquals( ( int ) expected.merge( ( int ) key, value, Integer::sum ), map.addTo( key, value ) );
+				case 4 -> assertEquals( ( int ) expected.computeIfAbsent( ( int ) key, k -> k * 7 ), map.computeIfAbsent( key, k -> k * 7 ) );
+				case 5 -> assertEquals( expected.computeIfPresent( ( int ) key, ( k, v ) -> v - k ) != null, map.computeIfPresent( key, ( k, v ) -> v - k ) );
+				case 6 -> assertEquals( ( int ) expected.merge( ( int ) key, value, ( a, b ) -> a ^ b ), map.merge( key, value, ( a, b ) -> a ^ b ) );
+				default -> assertEquals( expected.get( ( int ) key ) == null ?
+				                         -1 :
+				                         expected.get( ( int ) key ), map.getOrDefault( key, -1 ) );
+			}
+			assertEquals( expected.size(), map.size() );
+		}
+	}
+
+	@Test
+	void charKeyedMapAcrossFlatSwitch() {
+		SplittableRandom          random   = new SplittableRandom( 5 );
+		Map< Character, Integer > expected = new HashMap<>();
+		CharIntMap.RW             map      = new CharIntMap.RW();
+
+		for( int op = 0; op < 300_000; op++ ) {
+			char key   = ( char ) random.nextInt( 0x10000 );
+			int  value = random.nextInt();
+			switch( random.nextInt( op < 150_000 ? 7 : 8 ) ) { // removes start once the map has gone flat
+				case 0 -> assertEquals( expected.put( key, value ) == null, map.put( key, value ) );
+				case 1 -> assertEquals( expected.putIfAbsent( key, value ) == null, map.putIfAbsent( key, value ) );
+				case 2 -> assertEquals( ( int ) expected.merge( key, value, Integer::sum ), map.addTo( key, value ) );
+				case 3 -> assertEquals( ( int ) expected.computeIfAbsent( key, k -> k * 7 ), map.computeIfAbsent( key, k -> k * 7 ) );
+				case 4 -> assertEquals( expected.computeIfPresent( key, ( k, v ) -> v - k ) != null, map.computeIfPresent( key, ( k, v ) -> v - k ) );
+				case 5 -> assertEquals( ( int ) expected.merge( key, value, ( a, b ) -> a ^ b ), map.merge( key, value, ( a, b ) -> a ^ b ) );
+				case 6 -> assertEquals( ( int ) expected.getOrDefault( key, -1 ), map.getOrDefault( key, -1 ) );
+				default -> assertEquals( expected.remove( key ) != null, map.remove( key ) );
+			}
+			assertEquals( expected.size(), map.size() );
+		}
+	}
+
+	@Test
+	void shortKeyedNullMapWithUByteValues() {
+		SplittableRandom        random   = new SplittableRandom( 6 );
+		Map< Short, Character > expected = new HashMap<>();
+		ShortUByteNullMap.RW    map      = new ShortUByteNullMap.RW();
+
+		for( int op = 0; op < 300_000; op++ ) {
+			short key   = ( short ) random.nextInt( op < 150_000 ? 0x100 : 0x10000 ); // sparse first, then flat
+			char  value = ( char ) random.nextInt( 0x100 );
+			switch( random.nextInt( 8 ) ) {
+				case 0 -> {
+					Character v = random.nextInt( 3 ) == 0 ?
+					              null :
+					              value;
+					assertEquals( !expected.containsKey( key ), map.put( key, v ) );
+					expected.put( key, v );
+				}
+				case 1 -> {
+					assertEquals( expected.containsKey( key ), map.remove( key ) );
+					expected.remove( key );
+				}
+				case 2 -> assertEquals( expected.putIfAbsent( key, value ) == null, map.putIfAbsent( key, value ) );
+				case 3 -> assertEquals( ( char ) expected.merge( key, value, ( a, b ) -> ( char ) ( a + b & 0xFF ) ), map.addTo( key, value ) );
+				case 4 -> assertEquals( ( char ) expected.computeIfAbsent( key, k -> ( char ) ( k & 0xFF ) ), map.computeIfAbsent( key, k -> ( char ) k ) );
+				case 5 -> assertEquals( expected.computeIfPresent( key, ( k, v ) -> ( char ) ( v * 3 & 0xFF ) ) != null, map.computeIfPresent( key, ( k, v ) -> ( char ) ( v * 3 ) ) );
+				case 6 -> assertEquals( ( char ) expected.merge( key, value, ( a, b ) -> ( char ) ( a ^ b ) ), map.merge( key, value, ( a, b ) -> ( char ) ( a ^ b ) ) );
+				default -> assertEquals( expected.get( key ) == null ?
+				                         '?' :
+				                         expected.get( key ), map.getOrDefault( key, '?' ) );
+			}
+			assertEquals( expected.size(), map.size() );
+		}
+	}
+}
@@ -0,0 +1,107 @@
+package org.unirail.collections;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks {@link IntRoaringSet} against a {@link TreeSet} with keys spread so the containers pass through the
+ * {@code ARRAY}, {@code BITMAP} and {@code RUN} kinds.
+ */
+class RoaringSetTest {
+
+	@Test
+	void matchesTreeSet() {
+		SplittableRandom   random   = new SplittableRandom( 71 );
+		TreeSet< Integer > expected = new TreeSet<>();
+		IntRoaringSet.RW   set      = new IntRoaringSet.RW();
+
+		for( int op = 0; op < 300_000; op++ ) {
+			int key = key( random );
+			switch( random.nextInt( 8 ) ) {
+				case 0, 1, 2, 3 -> assertEquals( expected.add( key ), set.add( key ) );
+				case 4, 5 -> assertEquals( expected.remove( key ), set.remove( key ) );
+				case 6 -> {
+					if( random.nextInt( 5_000 ) == 0 ) set.optimize();
+				}
+				default -> assertEquals( expected.contains( key ), set.contains( key ) );
+			}
+			assertEquals( expected.size(), set.size() );
+			if( op % 20_000 == 0 ) assertMatches( expected, set, random );
+		}
+		assertMatches( expected, set, random );
+
+		set.optimize();
+		assertMatches( expected, set, random );
+
+		IntRoaringSet.RW copy = set.clone();
+		assertEquals( set, copy );
+		assertEquals( set.hashCode(), copy.hashCode() );
+		copy.remove( expected.first() );
+		assertNotEquals( set, copy );
+	}
+
+	@Test
+	void runsSurviveEditsAfterOptimize() {
+		TreeSet< Integer > expected = new TreeSet<>();
+		IntRoaringSet.RW   set      = new IntRoaringSet.RW();
+		for( int key = -100_000; key < 100_000; key++ )
+			if( key % 1_000 < 900 ) {
+				expected.add( key );
+				set.add( key );
+			}
+		set.optimize();
+		assertMatches( expected, set, new SplittableRandom( 72 ) );
+
+		for( int key = -100_000; key < 100_000; key += 7 ) assertEquals( expected.remove( key ), set.remove( key ) );
+		for( int key = -100_050; key < 100_000; key += 500 ) assertEquals( expected.add( key ), set.add( key ) );
+		assertMatches( expected, set, new SplittableRandom( 73 ) );
+
+		assertThrows( IndexOutOfBoundsException.class, () -> set.select( set.size() ) );
+		assertThrows( IndexOutOfBoundsException.class, () -> set.select( -1 ) );
+	}
+
+	/**
+	 * Dense keys around zero fill bitmaps and runs, sparse keys anywhere else keep {@code ARRAY} containers.
+	 */
+	private static int key( SplittableRandom random ) {
+		return switch( random.nextInt( 3 ) ) {
+			case 0 -> random.nextInt( 200_000 ) - 100_000;
+			case 1 -> 0x7000_0000 + random.nextInt( 3_000 );
+			default -> random.nextInt();
+		};
+	}
+
+	private static void assertMatches( TreeSet< Integer > expected, IntRoaringSet.R set, SplittableRandom random ) {
+		assertEquals( expected.size(), set.size() );
+
+		List< Integer > tokens = new ArrayList<>();
+		for( long t = set.token(); t != IntRoaringSet.R.INVALID_TOKEN; t = set.token( t ) ) tokens.add( set.key( t ) );
+		assertEquals( new ArrayList<>( expected ), tokens );
+
+		int[] array = set.toArray( null );
+		assertEquals( expected.size(), array.length );
+		int i = 0;
+		for( int key : expected ) assertEquals( key, array[ i++ ] );
+
+		List< Integer > streamed = new ArrayList<>();
+		set.stream().forEach( streamed::add );
+		assertEquals( tokens, streamed );
+		assertEquals( expected.stream().mapToLong( Integer::longValue ).sum(), set.parallelStream().asLongStream().sum() );
+
+		for( int probe = 0; probe < 200; probe++ ) {
+			int key = key( random );
+			assertEquals( expected.headSet( key, true ).size(), set.rank( key ) );
+			assertEquals( expected.contains( key ), set.contains( key ) );
+		}
+		for( int index = 0; index < array.length; index += 1 + array.length / 1_000 ) {
+			assertEquals( array[ index ], set.select( index ) );
+			assertEquals( index + 1, set.rank( array[ index ] ) );
+		}
+	}
+}
@@ -0,0 +1,89 @@
+package org.unirail.collections;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks {@link LongLongMap.RobinHood} against a {@link HashMap} at a high load factor, and with keys that all share
+ * one home slot under {@link Array.Hash#IDENTITY}, so long probes relieve the table by reseeding its hash.
+ */
+class RobinHoodMapTest {
+
+	@Test
+	void matchesHashMapAtHighLoad() {
+		SplittableRandom      random   = new SplittableRandom( 101 );
+		Map< Long, Long >     expected = new HashMap<>();
+		LongLongMap.RobinHood map      = new LongLongMap.RobinHood( 0, 0.95f );
+
+		for( int op = 0; op < 400_000; op++ ) {
+			long key   = random.nextInt( 8 ) == 0 ?
+			             0 :
+			             random.nextLong( 20_000 ) * 0x9E37_79B9_7F4A_7C15L;
+			long value = random.nextLong();
+			switch( random.nextInt( 8 ) ) {
+				case 0, 1, 2 -> assertEquals( expected.put( key, value ) == null, map.put( key, value ) );
+				case 3, 4 -> assertEquals( expected.remove( key ) != null, map.remove( key ) );
+				case 5 -> {
+					if( random.nextInt( 20 ) == 0 ) assertEquals( expected.remove( null ) != null, map.remove( ( Long ) null ) );
+					else assertEquals( expected.put( null, value ) == null, map.put( ( Long ) null, value ) );
+				}
+				case 6 -> {
+					if( random.nextInt( 10_000 ) == 0 ) map.trim();
+				}
+				default -> assertEquals( ( long ) expected.getOrDefault( key, ~value ), map.getOrDefault( key, ~value ) );
+			}
+			assertEquals( expected.size(), map.size() );
+			if( op % 40_000 == 0 ) assertMatches( expected, map );
+		}
+		assertMatches( expected, map );
+
+		LongLongMap.RobinHood copy = map.clone();
+		assertEquals( map, copy );
+		copy.remove( 0 );
+		copy.put( 1, 1 );
+		assertMatches( expected, map );
+	}
+
+	@Test
+	void reseedsClusteredKeys() {
+		Map< Long, Long >     expected = new HashMap<>();
+		LongLongMap.RobinHood map      = new LongLongMap.RobinHood( 4_096 );
+		map.hash_K( Array.Hash.IDENTITY );
+
+		for( long i = 1; i <= 2_000; i++ ) { // equal halves fold to hash 0 under IDENTITY: one home slot
+			long key = i << 32 | i;
+			assertTrue( map.put( key, i ) );
+			expected.put( key, i );
+		}
+		assertNotSame( Array.Hash.IDENTITY, map.hash_K() );
+		assertMatches( expected, map );
+
+		for( long i = 1; i <= 2_000; i += 3 ) assertEquals( expected.remove( i << 32 | i ) != null, map.remove( i << 32 | i ) );
+		assertMatches( expected, map );
+	}
+
+	private static void assertMatches( Map< Long, Long > expected, LongLongMap.R map ) {
+		assertEquals( expected.size(), map.size() );
+		assertEquals( expected.containsKey( null ), map.hasNullKey() );
+
+		Map< Long, Long > actual = new HashMap<>();
+		for( long t = map.token(); t != LongLongMap.R.INVALID_TOKEN; t = map.token( t ) )
+			assertNull( actual.put( map.isKeyNull( t ) ?
+			                        null :
+			                        map.key( t ), map.value( t ) ) );
+		assertEquals( expected, actual );
+
+		Map< Long, Long > visited = new HashMap<>();
+		map.forEach( ( key, value ) -> assertNull( visited.put( key, value ) ) );
+		if( map.hasNullKey() ) visited.put( null, map.nullKeyValue() );
+		assertEquals( expected, visited );
+
+		for( Map.Entry< Long, Long > e : expected.entrySet() )
+			if( e.getKey() != null ) assertEquals( ( long ) e.getValue(), map.getOrDefault( e.getKey(), ~e.getValue() ) );
+	}
+}
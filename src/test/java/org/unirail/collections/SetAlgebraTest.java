@@ -0,0 +1,181 @@
+package org.unirail.collections;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the bulk {@code containsAll}, {@code intersects}, {@code addAll}, {@code removeAll} and {@code retainAll}
+ * of the primitive sets against {@link HashSet}, null key included, on both sides of the smaller-set shortcuts and,
+ * for {@link CharSet}, in hash and flat mode.
+ */
+class SetAlgebraTest {
+
+	@Test
+	void intSetMatchesHashSet() {
+		SplittableRandom random = new SplittableRandom( 81 );
+		for( int round = 0; round < 300; round++ ) {
+			int            range = random.nextBoolean() ?
+			                       100 :
+			                       5_000;
+			IntSet.RW      x     = new IntSet.RW();
+			IntSet.RW      y     = new IntSet.RW();
+			Set< Integer > a     = fill( random, 2_000, range, x::add );
+			Set< Integer > b     = fill( random, 2_000, range, y::add );
+
+			assertEquals( a.containsAll( b ), x.containsAll( y ) );
+			assertEquals( !Collections.disjoint( a, b ), x.intersects( y ) );
+			assertEquals( !Collections.disjoint( a, b ), y.intersects( x ) );
+
+			Set< Integer > expected = new HashSet<>( a );
+			IntSet.RW      actual   = x.clone();
+			switch( round % 3 ) {
+				case 0 -> {
+					expected.addAll( b );
+					actual.addAll( y );
+				}
+				case 1 -> assertEquals( expected.removeAll( b ), actual.removeAll( y ) );
+				default -> assertEquals( expected.retainAll( b ), actual.retainAll( y ) );
+			}
+			assertEquals( expected.size(), actual.size() );
+			for( Integer key : expected ) assertTrue( actual.contains( key ) );
+			assertTrue( actual.containsAll( actual ) );
+		}
+	}
+
+	@Test
+	void longSetMatchesHashSet() {
+		SplittableRandom random = new SplittableRandom( 82 );
+		for( int round = 0; round < 300; round++ ) {
+			LongSet.RW     x = new LongSet.RW();
+			LongSet.RW     y = new LongSet.RW();
+			Set< Integer > a = fill( random, 2_000, 3_000, key -> x.add( key == null ?
+			                                                           null :
+			                                                           key * 0x1_0000_0001L ) );
+			Set< Integer > b = fill( random, 2_000, 3_000, key -> y.add( key == null ?
+			                                                           null :
+			                                                           key * 0x1_0000_0001L ) );
+
+			assertEquals( a.containsAll( b ), x.containsAll( y ) );
+			assertEquals( !Collections.disjoint( a, b ), x.intersects( y ) );
+
+			Set< Integer > expected = new HashSet<>( a );
+			LongSet.RW     actual   = x.clone();
+			switch( round % 3 ) {
+				case 0 -> {
+					expected.addAll( b );
+					actual.addAll( y );
+				}
+				case 1 -> assertEquals( expected.removeAll( b ), actual.removeAll( y ) );
+				default -> assertEquals( expected.retainAll( b ), actual.retainAll( y ) );
+			}
+			assertEquals( expected.size(), actual.size() );
+			for( Integer key : expected ) assertTrue( actual.contains( key == null ?
+			                                                           null :
+			                                                           key * 0x1_0000_0001L ) );
+		}
+	}
+
+	@Test
+	void charSetMatchesHashSetInBothModes() {
+		SplittableRandom random = new SplittableRandom( 83 );
+		for( int round = 0; round < 200; round++ ) {
+			boolean        flatX = random.nextBoolean();
+			boolean        flatY = random.nextBoolean();
+			CharSet.RW     x     = new CharSet.RW( flatX ?
+			                                       0x10000 :
+			                                       0 );
+			CharSet.RW     y     = new CharSet.RW( flatY ?
+			                                       0x10000 :
+			                                       0 );
+			int            range = flatX && flatY ?
+			                       0x10000 :
+			                       2_000;
+			Set< Integer > a     = fill( random, flatX ?
+			                                     40_000 :
+			                                     500, range, key -> x.add( key == null ?
+			                                                               null :
+			                                                               ( char ) ( int ) key ) );
+			Set< Integer > b     = fill( random, flatY ?
+			                                     40_000 :
+			                                     500, range, key -> y.add( key == null ?
+			                                                               null :
+			                                                               ( char ) ( int ) key ) );
+
+			assertEquals( a.containsAll( b ), x.containsAll( y ) );
+			assertEquals( !Collections.disjoint( a, b ), x.intersects( y ) );
+
+			Set< Integer > expected = new HashSet<>( a );
+			CharSet.RW     actual   = x.clone();
+			switch( round % 3 ) {
+				case 0 -> {
+					expected.addAll( b );
+					actual.addAll( y );
+				}
+				case 1 -> assertEquals( expected.removeAll( b ), actual.removeAll( y ) );
+				default -> assertEquals( expected.retainAll( b ), actual.retainAll( y ) );
+			}
+			assertEquals( expected.size(), actual.size() );
+			for( Integer key : expected ) assertTrue( actual.contains( key == null ?
+			                                                           null :
+			                                                           ( char ) ( int ) key ) );
+		}
+	}
+
+	@Test
+	void byteSetMatchesHashSet() {
+		SplittableRandom random = new SplittableRandom( 84 );
+		for( int round = 0; round < 300; round++ ) {
+			ByteSet.RW     x = new ByteSet.RW();
+			ByteSet.RW     y = new ByteSet.RW();
+			Set< Integer > a = fill( random, 200, 256, key -> x.add( key == null ?
+			                                                       null :
+			                                                       ( byte ) ( int ) key ) );
+			Set< Integer > b = fill( random, 200, 256, key -> y.add( key == null ?
+			                                                       null :
+			                                                       ( byte ) ( int ) key ) );
+
+			assertEquals( a.containsAll( b ), x.containsAll( y ) );
+			assertEquals( !Collections.disjoint( a, b ), x.intersects( y ) );
+
+			Set< Integer > expected = new HashSet<>( a );
+			ByteSet.RW     actual   = x.clone();
+			switch( round % 3 ) {
+				case 0 -> {
+					expected.addAll( b );
+					actual.addAll( y );
+				}
+				case 1 -> assertEquals( expected.removeAll( b ), actual.removeAll( y ) );
+				default -> assertEquals( expected.retainAll( b ), actual.retainAll( y ) );
+			}
+			assertEquals( expected.size(), actual.size() );
+			for( Integer key : expected ) assertTrue( actual.contains( key == null ?
+			                                                           null :
+			                                                           ( byte ) ( int ) key ) );
+		}
+	}
+
+	/**
+	 * Adds up to {@code max} keys drawn from {@code [0, range)}, and the null key one time in four, to the set under
+	 * test through {@code add}, and returns them as the reference model.
+	 */
+	private static Set< Integer > fill( SplittableRandom random, int max, int range, Consumer< Integer > add ) {
+		Set< Integer > model = new HashSet<>();
+		for( int i = 0, count = random.nextInt( 1 + max ); i < count; i++ ) {
+			int key = random.nextInt( range );
+			model.add( key );
+			add.accept( key );
+		}
+		if( random.nextInt( 4 ) == 0 ) {
+			model.add( null );
+			add.accept( null );
+		}
+		return model;
+	}
+}
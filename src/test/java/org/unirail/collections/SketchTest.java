@@ -0,0 +1,124 @@
+package org.unirail.collections;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks {@link CountMinSketch} against exact counts in a {@link HashMap}, and the {@link HyperLogLog} estimate
+ * against the size of a {@link HashSet}.
+ */
+class SketchTest {
+
+	@Test
+	void countMinNeverUndercountsAndStaysWithinBound() {
+		SplittableRandom     random   = new SplittableRandom( 51 );
+		Map< Long, Integer > expected = new HashMap<>();
+		CountMinSketch       sketch   = CountMinSketch.of( 0.001, 0.01 );
+
+		for( int i = 0; i < 200_000; i++ ) {
+			long key   = ( long ) Math.pow( 50_000, random.nextDouble() ) * 0x9E37_79B9L; // skewed: few heavy keys
+			int  count = 1 + random.nextInt( 3 );
+			int  now   = expected.merge( key, count, Integer::sum );
+			assertTrue( now <= sketch.add( key, count ) );
+		}
+		assertEquals( expected.values().stream().mapToLong( Integer::longValue ).sum(), sketch.total() );
+
+		long bound = ( long ) Math.ceil( 0.001 * sketch.total() );
+		int  over  = 0;
+		for( Map.Entry< Long, Integer > e : expected.entrySet() ) {
+			int estimate = sketch.estimate( e.getKey() );
+			assertTrue( e.getValue() <= estimate );
+			if( e.getValue() + bound < estimate ) over++;
+		}
+		assertTrue( over <= 0.01 * expected.size(), over + " of " + expected.size() + " keys exceed the error bound" );
+	}
+
+	@Test
+	void countMinMergeNeverUndercounts() {
+		CountMinSketch a = new CountMinSketch( 1 << 10, 4 );
+		CountMinSketch b = new CountMinSketch( 1 << 10, 4 );
+		for( int key = 0; key < 5_000; key++ )
+			( key % 2 == 0 ?
+			  a :
+			  b ).add( key, key % 7 );
+
+		CountMinSketch merged = a.clone();
+		merged.merge( b );
+		assertEquals( a.total() + b.total(), merged.total() );
+		for( int key = 0; key < 5_000; key++ ) assertTrue( key % 7 <= merged.estimate( key ) );
+
+		CountMinSketch empty = new CountMinSketch( 1 << 10, 4 );
+		empty.merge( b );
+		assertEquals( b, empty );
+		assertEquals( b.hashCode(), empty.hashCode() );
+		assertNotEquals( a, merged );
+
+		assertThrows( IllegalArgumentException.class, () -> a.merge( new CountMinSketch( 1 << 9, 4 ) ) );
+		assertThrows( IllegalArgumentException.class, () -> a.add( 1L, -1 ) );
+	}
+
+	@Test
+	void hyperLogLogStaysWithinStandardError() {
+		SplittableRandom random   = new SplittableRandom( 52 );
+		Set< Long >      expected = new HashSet<>();
+		HyperLogLog      counter  = new HyperLogLog( 14 );
+		double           error    = 1.04 / Math.sqrt( 1 << 14 );
+
+		for( int checkpoint : new int[]{ 10, 100, 1_000, 10_000, 100_000, 1_000_000 } ) {
+			while( expected.size() < checkpoint ) {
+				long key = random.nextLong();
+				expected.add( key );
+				counter.add( key );
+				if( random.nextInt( 4 ) == 0 ) counter.add( key ); // duplicates do not count
+			}
+			assertEquals( checkpoint, counter.estimate(), Math.max( 1, 4 * error * checkpoint ), "distinct keys: " + checkpoint );
+		}
+		assertFalse( counter.isSparse() );
+	}
+
+	@Test
+	void hyperLogLogMergeEqualsAndJson() {
+		SplittableRandom random = new SplittableRandom( 53 );
+		List< Long >     keys   = new ArrayList<>();
+		for( int i = 0; i < 50_000; i++ ) keys.add( random.nextLong() );
+
+		HyperLogLog forward = new HyperLogLog( 12 );
+		for( long key : keys ) forward.add( key );
+		Collections.shuffle( keys, new Random( 54 ) );
+		HyperLogLog shuffled = new HyperLogLog( 12 );
+		for( long key : keys ) shuffled.add( key );
+		assertEquals( forward, shuffled );
+		assertEquals( forward.hashCode(), shuffled.hashCode() );
+
+		HyperLogLog a = new HyperLogLog( 12 );
+		HyperLogLog b = new HyperLogLog( 12 );
+		for( int i = 0; i < keys.size(); i++ ) ( i < 30_000 ?
+		                                         a :
+		                                         b ).add( keys.get( i ) );
+		a.merge( b );
+		assertEquals( forward.estimate(), a.estimate() );
+
+		HyperLogLog small = new HyperLogLog( 12 );
+		for( int key = 0; key < 10; key++ ) small.add( key );
+		assertTrue( small.isSparse() );
+		HyperLogLog copy = small.clone();
+		copy.add( 10 );
+		assertNotEquals( small, copy );
+		assertTrue( small.toString().replaceAll( "\\s", "" ).startsWith( "{\"precision\":12,\"sparse\":true,\"estimate\":10," ) );
+		assertTrue( forward.toString().replaceAll( "\\s", "" ).startsWith( "{\"precision\":12,\"sparse\":false," ) );
+
+		assertThrows( IllegalArgumentException.class, () -> a.merge( new HyperLogLog( 13 ) ) );
+		assertThrows( IllegalArgumentException.class, () -> new HyperLogLog( 3 ) );
+	}
+}
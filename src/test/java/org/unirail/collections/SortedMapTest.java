@@ -0,0 +1,143 @@
+package org.unirail.collections;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks {@link IntIntSortedMap} and {@link LongLongSortedMap} against a {@link TreeMap}: lookups, neighbour
+ * searches, inclusive rank and select, ascending and descending iteration, and range views.
+ */
+class SortedMapTest {
+
+	@Test
+	void intMapMatchesTreeMap() {
+		SplittableRandom            random   = new SplittableRandom( 11 );
+		TreeMap< Integer, Integer > expected = new TreeMap<>();
+		IntIntSortedMap.RW          map      = new IntIntSortedMap.RW();
+
+		for( int op = 0; op < 100_000; op++ ) {
+			int key   = random.nextInt( 5_000 ) - 2_500;
+			int value = random.nextInt();
+			switch( random.nextInt( op < 50_000 ? 3 : 4 ) ) { // grows first, then shrinks through merges
+				case 0, 1 -> assertEquals( expected.put( key, value ) == null, map.put( key, value ) );
+				case 2 -> assertEquals( ( int ) expected.getOrDefault( key, -1 ), map.getOrDefault( key, -1 ) );
+				default -> assertEquals( expected.remove( key ) != null, map.remove( key ) );
+			}
+			assertEquals( expected.size(), map.size() );
+
+			if( op % 1_000 == 0 ) {
+				assertNeighbours( expected, map, random );
+				assertOrder( expected, map );
+				assertViews( expected, map, random );
+			}
+		}
+
+		while( !expected.isEmpty() ) {
+			int key = expected.firstKey();
+			expected.remove( key );
+			assertTrue( map.remove( key ) );
+		}
+		assertEquals( 0, map.size() );
+		assertEquals( IntIntSortedMap.R.INVALID_TOKEN, map.token() );
+	}
+
+	@Test
+	void longMapMatchesTreeMap() {
+		SplittableRandom      random   = new SplittableRandom( 12 );
+		TreeMap< Long, Long > expected = new TreeMap<>();
+		LongLongSortedMap.RW  map      = new LongLongSortedMap.RW();
+
+		for( int op = 0; op < 100_000; op++ ) {
+			long key   = ( random.nextInt( 5_000 ) - 2_500L ) * 0x1_0000_0001L; // spans the full long range
+			long value = random.nextLong();
+			switch( random.nextInt( 4 ) ) {
+				case 0, 1 -> assertEquals( expected.put( key, value ) == null, map.put( key, value ) );
+				case 2 -> assertEquals( ( long ) expected.getOrDefault( key, -1L ), map.getOrDefault( key, -1 ) );
+				default -> assertEquals( expected.remove( key ) != null, map.remove( key ) );
+			}
+			assertEquals( expected.size(), map.size() );
+		}
+
+		List< Long > keys = new ArrayList<>();
+		for( long t = map.token(); t != LongLongSortedMap.R.INVALID_TOKEN; t = map.token( t ) ) keys.add( map.key( t ) );
+		assertEquals( new ArrayList<>( expected.keySet() ), keys );
+
+		int rank = 0;
+		for( Map.Entry< Long, Long > e : expected.entrySet() ) {
+			assertEquals( ++rank, map.rank( e.getKey() ) );
+			assertEquals( ( long ) e.getValue(), map.value( map.select( rank - 1 ) ) );
+			assertEquals( rank - 1, map.rank( e.getKey() - 1 ) );
+		}
+	}
+
+	private static void assertNeighbours( TreeMap< Integer, Integer > expected, IntIntSortedMap.RW map, SplittableRandom random ) {
+		for( int i = 0; i < 200; i++ ) {
+			int key = random.nextInt( 5_200 ) - 2_600;
+			assertEquals( expected.floorKey( key ), keyOf( map, map.floorToken( key ) ) );
+			assertEquals( expected.lowerKey( key ), keyOf( map, map.lowerToken( key ) ) );
+			assertEquals( expected.ceilingKey( key ), keyOf( map, map.ceilingToken( key ) ) );
+			assertEquals( expected.higherKey( key ), keyOf( map, map.higherToken( key ) ) );
+			assertEquals( expected.headMap( key, true ).size(), map.rank( key ) );
+		}
+	}
+
+	private static void assertOrder( TreeMap< Integer, Integer > expected, IntIntSortedMap.RW map ) {
+		List< Integer > ascending = new ArrayList<>();
+		for( long t = map.token(); t != IntIntSortedMap.R.INVALID_TOKEN; t = map.token( t ) ) {
+			ascending.add( map.key( t ) );
+			assertEquals( ( int ) expected.get( map.key( t ) ), map.value( t ) );
+		}
+		assertEquals( new ArrayList<>( expected.keySet() ), ascending );
+
+		List< Integer > descending = new ArrayList<>();
+		for( long t = map.lastToken(); t != IntIntSortedMap.R.INVALID_TOKEN; t = map.prevToken( t ) ) descending.add( map.key( t ) );
+		assertEquals( new ArrayList<>( expected.descendingKeySet() ), descending );
+
+		int index = 0;
+		for( int key : expected.keySet() ) {
+			assertEquals( key, map.key( map.select( index ) ) );
+			assertEquals( ++index, map.rank( key ) );
+		}
+		assertThrows( IndexOutOfBoundsException.class, () -> map.select( expected.size() ) );
+	}
+
+	private static void assertViews( TreeMap< Integer, Integer > expected, IntIntSortedMap.RW map, SplittableRandom random ) {
+		for( int i = 0; i < 20; i++ ) {
+			int     from          = random.nextInt( 5_200 ) - 2_600;
+			int     to            = from + random.nextInt( 2_000 );
+			boolean fromInclusive = random.nextBoolean();
+			boolean toInclusive   = random.nextBoolean();
+
+			assertView( expected.subMap( from, fromInclusive, to, toInclusive ), map.subMap( from, fromInclusive, to, toInclusive ) );
+			assertView( expected.headMap( to, toInclusive ), map.headMap( to, toInclusive ) );
+			assertView( expected.tailMap( from, fromInclusive ), map.tailMap( from, fromInclusive ) );
+		}
+	}
+
+	private static void assertView( NavigableMap< Integer, Integer > expected, IntIntSortedMap.View view ) {
+		assertEquals( expected.size(), view.size() );
+		assertEquals( expected.isEmpty(), view.isEmpty() );
+
+		List< Integer > ascending = new ArrayList<>();
+		for( long t = view.token(); t != IntIntSortedMap.R.INVALID_TOKEN; t = view.token( t ) ) ascending.add( view.key( t ) );
+		assertEquals( new ArrayList<>( expected.keySet() ), ascending );
+
+		List< Integer > descending = new ArrayList<>();
+		for( long t = view.lastToken(); t != IntIntSortedMap.R.INVALID_TOKEN; t = view.prevToken( t ) ) descending.add( view.key( t ) );
+		assertEquals( new ArrayList<>( expected.descendingKeySet() ), descending );
+	}
+
+	private static Integer keyOf( IntIntSortedMap.RW map, long token ) {
+		return token == IntIntSortedMap.R.INVALID_TOKEN ?
+		       null :
+		       map.key( token );
+	}
+}
@@ -0,0 +1,100 @@
+package org.unirail.collections;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the control-byte engines {@link IntObjectMap.Swiss} and {@link LongObjectMap.Swiss} against a
+ * {@link HashMap}, through group probing, tombstones left by removals and the rehashes that clear them.
+ */
+class SwissMapTest {
+
+	@Test
+	void intSwissMatchesHashMap() {
+		SplittableRandom             random   = new SplittableRandom( 111 );
+		Map< Integer, String >       expected = new HashMap<>();
+		IntObjectMap.Swiss< String > map      = new IntObjectMap.Swiss<>( String.class );
+
+		for( int op = 0; op < 300_000; op++ ) {
+			int    key   = random.nextInt( 5_000 ) - 2_500 << 7; // shared low bits: long groups of equal H2 bytes
+			String value = Integer.toString( random.nextInt( 1_000 ) );
+			switch( random.nextInt( 8 ) ) {
+				case 0, 1, 2 -> assertEquals( expected.put( key, value ) == null, map.put( key, value ) );
+				case 3, 4 -> assertEquals( expected.remove( key ), map.remove( key ) );
+				case 5 -> {
+					if( random.nextInt( 20 ) == 0 ) assertEquals( expected.remove( null ), map.remove( ( Integer ) null ) );
+					else assertEquals( expected.put( null, value ) == null, map.put( ( Integer ) null, value ) );
+				}
+				case 6 -> {
+					if( random.nextInt( 5_000 ) == 0 ) map.trim();
+				}
+				default -> assertEquals( expected.get( key ), map.get( key ) );
+			}
+			assertEquals( expected.size(), map.size() );
+			if( op % 30_000 == 0 ) assertIntMatches( expected, map );
+		}
+		assertIntMatches( expected, map );
+
+		IntObjectMap.Swiss< String > copy = map.clone();
+		assertEquals( map, copy );
+		for( Integer key : expected.keySet() ) if( key != null ) copy.remove( key );
+		assertEquals( copy.hasNullKey() ?
+		              1 :
+		              0, copy.size() );
+		assertIntMatches( expected, map );
+	}
+
+	@Test
+	void longSwissMatchesHashMap() {
+		SplittableRandom              random   = new SplittableRandom( 112 );
+		Map< Long, String >           expected = new HashMap<>();
+		LongObjectMap.Swiss< String > map      = new LongObjectMap.Swiss<>( String.class, 64 );
+
+		for( int round = 0; round < 50; round++ ) { // fill and drain, so removals leave tombstones behind
+			for( int i = 0; i < 2_000; i++ ) {
+				long   key   = random.nextLong( 50_000 ) << 40;
+				String value = Long.toString( key );
+				assertEquals( expected.put( key, value ) == null, map.put( key, value ) );
+			}
+			for( int i = 0; i < 2_000; i++ ) {
+				long key = random.nextLong( 50_000 ) << 40;
+				assertEquals( expected.remove( key ), map.remove( key ) );
+			}
+			assertEquals( expected.size(), map.size() );
+			assertLongMatches( expected, map );
+		}
+	}
+
+	private static void assertIntMatches( Map< Integer, String > expected, IntObjectMap.R< String > map ) {
+		assertEquals( expected.size(), map.size() );
+		assertEquals( expected.containsKey( null ), map.hasNullKey() );
+
+		Map< Integer, String > actual = new HashMap<>();
+		for( long t = map.token(); t != IntObjectMap.R.INVALID_TOKEN; t = map.token( t ) )
+			assertNull( actual.put( map.isKeyNull( t ) ?
+			                        null :
+			                        map.key( t ), map.value( t ) ) );
+		assertEquals( expected, actual );
+
+		Map< Integer, String > visited = new HashMap<>();
+		map.forEach( ( key, value ) -> assertNull( visited.put( key, value ) ) );
+		if( map.hasNullKey() ) visited.put( null, map.nullKeyValue() );
+		assertEquals( expected, visited );
+
+		for( Map.Entry< Integer, String > e : expected.entrySet() )
+			if( e.getKey() != null ) assertEquals( e.getValue(), map.get( ( int ) e.getKey() ) );
+	}
+
+	private static void assertLongMatches( Map< Long, String > expected, LongObjectMap.R< String > map ) {
+		Map< Long, String > actual = new HashMap<>();
+		for( long t = map.token(); t != LongObjectMap.R.INVALID_TOKEN; t = map.token( t ) ) assertNull( actual.put( map.key( t ), map.value( t ) ) );
+		assertEquals( expected, actual );
+
+		for( Map.Entry< Long, String > e : expected.entrySet() ) assertEquals( e.getValue(), map.get( ( long ) e.getKey() ) );
+	}
+}
@@ -319,12 +319,17 @@ public class vs_FastutilBenchmarks {
         int[]   intKeys;
         long[]  longKeys;
 
+        int[]   intValues; // getAll destinations
+        long[]  longValues;
+
         @Setup( Level.Trial )
         public void setupTrial( vs_FastutilBenchmarks benchmark ) {
-            this.byteKeys  = benchmark.byteKeys;
-            this.shortKeys = benchmark.shortKeys;
-            this.intKeys   = benchmark.intKeys;
-            this.longKeys  = benchmark.longKeys;
+            this.byteKeys   = benchmark.byteKeys;
+            this.shortKeys  = benchmark.shortKeys;
+            this.intKeys    = benchmark.intKeys;
+            this.longKeys   = benchmark.longKeys;
+            this.intValues  = new int[ intKeys.length ];
+            this.longValues = new long[ longKeys.length ];
         }
 
         @Setup( Level.Invocation )
@@ -419,6 +424,9 @@ public class vs_FastutilBenchmarks {
     @Benchmark public void fInt_AdHoc_Search( MapState state ) { for( int key : state.intKeys ) b = state.intAdHoc.containsKey( key ); }
     @Benchmark public void fInt_AdHoc_Get( MapState state ) { for( int key : state.intKeys ) { long token = state.intAdHoc.tokenOf( key ); if( token != -1 ) i = state.intAdHoc.value( token ); } }
     @Benchmark public void fInt_AdHoc_Delete( MapState state ) { for( int key : state.intKeys ) state.intAdHoc.remove( key ); }
+    // Batched counterparts of fInt_AdHoc_Insert / fInt_AdHoc_Get (not charted in the report)
+    @Benchmark public void fInt_AdHoc_PutAll( MapState state ) { state.empty_intAdHoc.putAll( state.intKeys, state.intKeys ); }
+    @Benchmark public void fInt_AdHoc_GetAll( MapState state ) { i = state.intAdHoc.getAll( state.intKeys, state.intValues, 0 ); }
 
     // Long Benchmarks
     @Benchmark public void fLong_Map_Insert( MapState state ) { for( long key : state.longKeys ) state.empty_longMap.put( key, key ); }
@@ -430,6 +438,9 @@ public class vs_FastutilBenchmarks {
     @Benchmark public void fLong_AdHoc_Search( MapState state ) { for( long key : state.longKeys ) b = state.longAdHoc.containsKey( key ); }
     @Benchmark public void fLong_AdHoc_Get( MapState state ) { for( long key : state.longKeys ) { long token = state.longAdHoc.tokenOf( key ); if( token != -1 ) l = state.longAdHoc.value( token ); } }
     @Benchmark public void fLong_AdHoc_Delete( MapState state ) { for( long key : state.longKeys ) state.longAdHoc.remove( key ); }
+    // Batched counterparts of fLong_AdHoc_Insert / fLong_AdHoc_Get (not charted in the report)
+    @Benchmark public void fLong_AdHoc_PutAll( MapState state ) { state.empty_longAdHoc.putAll( state.longKeys, state.longKeys ); }
+    @Benchmark public void fLong_AdHoc_GetAll( MapState state ) { i = state.longAdHoc.getAll( state.longKeys, state.longValues, 0 ); }
 
     // Int-Boolean Benchmarks
     @Benchmark public void fIntBool_Map_Insert( MapState state ) { for( int key : state.intKeys ) state.empty_intBoolMap.put( key, ( byte ) ( key % 2 ) ); }
@@ -0,0 +1,165 @@
+package org.unirail;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.unirail.collections.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookup latency of {@link IntIntMap.RW} and {@link LongLongMap.RW} with the division-free bucket indexing
+ * ({@code fastmod}) against the same maps reduced with the {@code %} operator ({@code modulo}).
+ * <p>
+ * Every invocation looks up {@link #LOOKUPS} random keys, half of them present, so the reported time is per lookup.
+ * The {@code GetAll} variants resolve the same keys in one batched {@code getAll} call.
+ * The 50M entries tables need a large heap, e.g. {@code -Xmx8g}.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 2, time = 1, timeUnit = TimeUnit.SECONDS )
+@Measurement( iterations = 3, time = 1, timeUnit = TimeUnit.SECONDS )
+@Fork( value = 1, jvmArgsAppend = { "-Xms8g", "-Xmx8g" } )
+//@Fork( 0 ) // Uncomment for local debugging without forking JMH
+public class vs_ModuloBenchmarks {
+	public static void main( String[] args ) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include( vs_ModuloBenchmarks.class.getSimpleName() + "\\.m.*" )
+				.build();
+
+		new Runner( opt ).run();
+	}
+
+	static final int LOOKUPS = 1024;
+
+	/**
+	 * {@link IntIntMap.RW} with the previous {@code %} bucket indexing.
+	 */
+	static class ModuloIntIntMap extends IntIntMap.RW {
+		ModuloIntIntMap( int capacity ) { super( capacity ); }
+
+		@Override
+		protected int bucketIndex( int hash ) { return ( hash & 0x7FFF_FFFF ) % _buckets.length; }
+	}
+
+	/**
+	 * {@link LongLongMap.RW} with the previous {@code %} bucket indexing.
+	 */
+	static class ModuloLongLongMap extends LongLongMap.RW {
+		ModuloLongLongMap( int capacity ) { super( capacity ); }
+
+		@Override
+		protected int bucketIndex( int hash ) { return ( hash & 0x7FFF_FFFF ) % _buckets.length; }
+	}
+
+	@State( Scope.Benchmark )
+	public static class IntState {
+		@Param( { "1000", "1000000", "50000000" } )
+		int size;
+
+		@Param( { "modulo", "fastmod" } )
+		String reduction;
+
+		IntIntMap.RW map;
+		int[]        keys   = new int[ LOOKUPS ];
+		int[]        values = new int[ LOOKUPS ];
+
+		@Setup( Level.Trial )
+		public void setup() {
+			SplittableRandom rand = new SplittableRandom( 42 );
+			map = reduction.equals( "modulo" ) ?
+			      new ModuloIntIntMap( size ) :
+			      new IntIntMap.RW( size );
+
+			int[] inserted = new int[ LOOKUPS ];
+			for( int i = 0; i < size; i++ ) {
+				int key = rand.nextInt();
+				map.put( key, i );
+				if( i < LOOKUPS ) inserted[ i ] = key;
+			}
+
+			for( int i = 0; i < LOOKUPS; i++ )
+			     keys[ i ] = ( i & 1 ) == 0 ?
+			                 inserted[ rand.nextInt( Math.min( size, LOOKUPS ) ) ] :
+			                 rand.nextInt();
+		}
+
+		@TearDown( Level.Trial )
+		public void tearDown() { map = null; }
+	}
+
+	@State( Scope.Benchmark )
+	public static class LongState {
+		@Param( { "1000", "1000000", "50000000" } )
+		int size;
+
+		@Param( { "modulo", "fastmod" } )
+		String reduction;
+
+		LongLongMap.RW map;
+		long[]         keys   = new long[ LOOKUPS ];
+		long[]         values = new long[ LOOKUPS ];
+
+		@Setup( Level.Trial )
+		public void setup() {
+			SplittableRandom rand = new SplittableRandom( 42 );
+			map = reduction.equals( "modulo" ) ?
+			      new ModuloLongLongMap( size ) :
+			      new LongLongMap.RW( size );
+
+			long[] inserted = new long[ LOOKUPS ];
+			for( int i = 0; i < size; i++ ) {
+				long key = rand.nextLong();
+				map.put( key, i );
+				if( i < LOOKUPS ) inserted[ i ] = key;
+			}
+
+			for( int i = 0; i < LOOKUPS; i++ )
+			     keys[ i ] = ( i & 1 ) == 0 ?
+			                 inserted[ rand.nextInt( Math.min( size, LOOKUPS ) ) ] :
+			                 rand.nextLong();
+		}
+
+		@TearDown( Level.Trial )
+		public void tearDown() { map = null; }
+	}
+
+	@Benchmark
+	@OperationsPerInvocation( LOOKUPS )
+	public void mIntIntMap_Get( IntState state, Blackhole bh ) {
+		IntIntMap.RW map = state.map;
+		for( int key : state.keys ) {
+			long token = map.tokenOf( key );
+			if( token != -1 ) bh.consume( map.value( token ) );
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation( LOOKUPS )
+	public void mLongLongMap_Get( LongState state, Blackhole bh ) {
+		LongLongMap.RW map = state.map;
+		for( long key : state.keys ) {
+			long token = map.tokenOf( key );
+			if( token != -1 ) bh.consume( map.value( token ) );
+		}
+	}
+
+	/**
+	 * The same lookups as {@link #mIntIntMap_Get} through {@link IntIntMap.R#getAll(int[], int[], int)}, which loads the
+	 * buckets of a whole batch before resolving it.
+	 */
+	@Benchmark
+	@OperationsPerInvocation( LOOKUPS )
+	public void mIntIntMap_GetAll( IntState state, Blackhole bh ) { bh.consume( state.map.getAll( state.keys, state.values, 0 ) ); }
+
+	/**
+	 * The same lookups as {@link #mLongLongMap_Get} through {@link LongLongMap.R#getAll(long[], long[], long)}.
+	 */
+	@Benchmark
+	@OperationsPerInvocation( LOOKUPS )
+	public void mLongLongMap_GetAll( LongState state, Blackhole bh ) { bh.consume( state.map.getAll( state.keys, state.values, 0 ) ); }
+}